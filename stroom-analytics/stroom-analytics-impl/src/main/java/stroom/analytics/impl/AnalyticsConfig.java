@@ -33,6 +33,11 @@ public class AnalyticsConfig extends AbstractConfig implements IsStroomConfig, H
     private final EmailConfig emailConfig;
     @JsonPropertyDescription("Configuration for caching streaming analytics.")
     private final CacheConfig streamingAnalyticCache;
+    @JsonPropertyDescription("If true, streaming analytic rules whose processor filters run as the same user " +
+                             "and whose views use the same extraction pipeline will share a single run of the " +
+                             "pipeline over each stream. The first task to process a stream also processes it " +
+                             "for any of the other rules whose tasks for the stream haven't started yet.")
+    private final boolean streamingSharedScanEnabled;
     @JsonPropertyDescription("How long should we retain analytic execution history?")
     private final StroomDuration executionHistoryRetention;
 
@@ -46,6 +51,7 @@ public class AnalyticsConfig extends AbstractConfig implements IsStroomConfig, H
                 .maximumSize(1000L)
                 .refreshAfterWrite(StroomDuration.ofMinutes(10))
                 .build();
+        streamingSharedScanEnabled = false;
         executionHistoryRetention = StroomDuration.ofDays(10);
     }
 
@@ -57,6 +63,7 @@ public class AnalyticsConfig extends AbstractConfig implements IsStroomConfig, H
                            @JsonProperty("duplicateCheckStore") final DuplicateCheckStoreConfig duplicateCheckStore,
                            @JsonProperty("emailConfig") final EmailConfig emailConfig,
                            @JsonProperty("streamingAnalyticCache") final CacheConfig streamingAnalyticCache,
+                           @JsonProperty("streamingSharedScanEnabled") final boolean streamingSharedScanEnabled,
                            @JsonProperty("executionHistoryRetention") final StroomDuration executionHistoryRetention) {
         this.dbConfig = dbConfig;
         this.timezone = timezone;
@@ -64,6 +71,7 @@ public class AnalyticsConfig extends AbstractConfig implements IsStroomConfig, H
         this.duplicateCheckStore = duplicateCheckStore;
         this.emailConfig = emailConfig;
         this.streamingAnalyticCache = streamingAnalyticCache;
+        this.streamingSharedScanEnabled = streamingSharedScanEnabled;
         this.executionHistoryRetention = executionHistoryRetention;
     }
 
@@ -98,6 +106,11 @@ public class AnalyticsConfig extends AbstractConfig implements IsStroomConfig, H
         return streamingAnalyticCache;
     }
 
+    @JsonProperty("streamingSharedScanEnabled")
+    public boolean isStreamingSharedScanEnabled() {
+        return streamingSharedScanEnabled;
+    }
+
     @JsonProperty("executionHistoryRetention")
     public StroomDuration getExecutionHistoryRetention() {
         return executionHistoryRetention;
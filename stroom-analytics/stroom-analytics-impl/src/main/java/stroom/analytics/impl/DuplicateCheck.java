@@ -2,9 +2,25 @@ package stroom.analytics.impl;
 
 import stroom.query.language.functions.Values;
 
+import java.util.List;
+
 public interface DuplicateCheck extends AutoCloseable {
 
     boolean check(Values values);
 
+    /**
+     * Checks a batch of rows in one go, as if {@link DuplicateCheck#check(Values)} was called
+     * for each in turn.
+     *
+     * @return The result of the check for each of the rows.
+     */
+    default boolean[] check(final List<? extends Values> valuesList) {
+        final boolean[] results = new boolean[valuesList.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = check(valuesList.get(i));
+        }
+        return results;
+    }
+
     void close();
 }
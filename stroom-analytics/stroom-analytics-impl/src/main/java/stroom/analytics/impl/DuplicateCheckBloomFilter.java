@@ -0,0 +1,204 @@
+package stroom.analytics.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A scalable bloom filter of the row hashes held in a {@link DuplicateCheckStore}. If the filter
+ * doesn't contain a hash then no row with that hash is in the store, so a new row can be put
+ * without probing the store for it.
+ * <p>
+ * The filter is made up of layers. When the newest layer reaches its capacity a new layer
+ * with four times the capacity and half the false positive probability is added, so the overall
+ * false positive probability stays bounded however many rows are added.
+ * <p>
+ * Rows can't be removed from the filter so deleted rows will just be false positives until
+ * the filter is rebuilt from the store. Not thread safe.
+ */
+class DuplicateCheckBloomFilter {
+
+    private static final int SERIALISATION_VERSION = 1;
+    static final long INITIAL_CAPACITY = 10_000;
+    private static final int GROWTH_FACTOR = 4;
+    private static final double INITIAL_FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final int MAX_BITS = Integer.MAX_VALUE - 63;
+
+    private final List<Layer> layers;
+
+    DuplicateCheckBloomFilter() {
+        layers = new ArrayList<>();
+        layers.add(Layer.create(INITIAL_CAPACITY, INITIAL_FALSE_POSITIVE_PROBABILITY));
+    }
+
+    private DuplicateCheckBloomFilter(final List<Layer> layers) {
+        this.layers = layers;
+    }
+
+    /**
+     * @return False if the hash has definitely not been added to the filter.
+     */
+    boolean mightContain(final long hash) {
+        final long mixed = mix(hash);
+        // Newest layer first as it holds the most hashes
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            if (layers.get(i).mightContain(mixed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void put(final long hash) {
+        Layer layer = layers.getLast();
+        if (layer.count >= layer.capacity) {
+            final double falsePositiveProbability = INITIAL_FALSE_POSITIVE_PROBABILITY
+                                                    * Math.pow(TIGHTENING_RATIO, layers.size());
+            layer = Layer.create(layer.capacity * GROWTH_FACTOR, falsePositiveProbability);
+            layers.add(layer);
+        }
+        layer.put(mix(hash));
+    }
+
+    int getLayerCount() {
+        return layers.size();
+    }
+
+    /**
+     * @return The number of hashes that have been added to the filter.
+     */
+    long getCount() {
+        long count = 0;
+        for (final Layer layer : layers) {
+            count += layer.count;
+        }
+        return count;
+    }
+
+    int getSerialisedSize() {
+        int size = Integer.BYTES + Integer.BYTES;
+        for (final Layer layer : layers) {
+            size += Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES
+                    + (layer.words.length * Long.BYTES);
+        }
+        return size;
+    }
+
+    /**
+     * Writes the filter to byteBuffer, which must have at least {@link #getSerialisedSize()}
+     * bytes remaining. Relative, the caller must flip.
+     */
+    void write(final ByteBuffer byteBuffer) {
+        byteBuffer.putInt(SERIALISATION_VERSION);
+        byteBuffer.putInt(layers.size());
+        for (final Layer layer : layers) {
+            byteBuffer.putLong(layer.capacity);
+            byteBuffer.putLong(layer.count);
+            byteBuffer.putInt(layer.hashCount);
+            byteBuffer.putInt(layer.bitCount);
+            byteBuffer.putInt(layer.words.length);
+            for (final long word : layer.words) {
+                byteBuffer.putLong(word);
+            }
+        }
+    }
+
+    /**
+     * @return The filter read from byteBuffer or null if it was written in a different version.
+     */
+    static DuplicateCheckBloomFilter read(final ByteBuffer byteBuffer) {
+        final int version = byteBuffer.getInt();
+        if (version != SERIALISATION_VERSION) {
+            return null;
+        }
+        final int layerCount = byteBuffer.getInt();
+        final List<Layer> layers = new ArrayList<>(layerCount);
+        for (int i = 0; i < layerCount; i++) {
+            final long capacity = byteBuffer.getLong();
+            final long count = byteBuffer.getLong();
+            final int hashCount = byteBuffer.getInt();
+            final int bitCount = byteBuffer.getInt();
+            final long[] words = new long[byteBuffer.getInt()];
+            for (int j = 0; j < words.length; j++) {
+                words[j] = byteBuffer.getLong();
+            }
+            layers.add(new Layer(capacity, hashCount, bitCount, words, count));
+        }
+        return new DuplicateCheckBloomFilter(layers);
+    }
+
+    /**
+     * The row hashes from the store may be poorly distributed (e.g. in tests), so mix the bits.
+     */
+    private static long mix(final long hash) {
+        long h = hash;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static final class Layer {
+
+        private final long capacity;
+        private final int hashCount;
+        private final int bitCount;
+        private final long[] words;
+        private long count;
+
+        private Layer(final long capacity,
+                      final int hashCount,
+                      final int bitCount,
+                      final long[] words,
+                      final long count) {
+            this.capacity = capacity;
+            this.hashCount = hashCount;
+            this.bitCount = bitCount;
+            this.words = words;
+            this.count = count;
+        }
+
+        private static Layer create(final long capacity, final double falsePositiveProbability) {
+            final double ln2 = Math.log(2);
+            final long optimalBits = (long) Math.ceil(
+                    -capacity * Math.log(falsePositiveProbability) / (ln2 * ln2));
+            final int bitCount = (int) Math.min(MAX_BITS, Math.max(64, optimalBits));
+            final int hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+            return new Layer(capacity, hashCount, bitCount, new long[(bitCount + 63) / 64], 0);
+        }
+
+        private boolean mightContain(final long mixedHash) {
+            final int hash1 = (int) mixedHash;
+            final int hash2 = (int) (mixedHash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                final int bit = index(hash1 + (i * hash2));
+                if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(final long mixedHash) {
+            final int hash1 = (int) mixedHash;
+            final int hash2 = (int) (mixedHash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                final int bit = index(hash1 + (i * hash2));
+                words[bit >>> 6] |= (1L << bit);
+            }
+            count++;
+        }
+
+        private int index(final int combinedHash) {
+            // Flip all the bits if it's negative (guaranteed positive number)
+            final int positiveHash = combinedHash < 0
+                    ? ~combinedHash
+                    : combinedHash;
+            return positiveHash % bitCount;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.Executor;
@@ -39,7 +40,8 @@ public class DuplicateCheckFactoryImpl implements DuplicateCheckFactory {
                                      final ByteBuffers byteBuffers,
                                      final DuplicateCheckStoreConfig duplicateCheckStoreConfig,
                                      final DuplicateCheckRowSerde duplicateCheckRowSerde,
-                                     final Provider<Executor> executorProvider) {
+                                     final Provider<Executor> executorProvider,
+                                     final DuplicateCheckMetrics duplicateCheckMetrics) {
         this.analyticResultStoreConfig = duplicateCheckStoreConfig;
 
         pool = new DuplicateCheckStorePool<>(
@@ -50,6 +52,7 @@ public class DuplicateCheckFactoryImpl implements DuplicateCheckFactory {
                         analyticResultStoreConfig,
                         duplicateCheckRowSerde,
                         executorProvider,
+                        duplicateCheckMetrics,
                         k),
                 null,
                 DuplicateCheckStore::flush,
@@ -114,6 +117,20 @@ public class DuplicateCheckFactoryImpl implements DuplicateCheckFactory {
                 return sendNotificationCheck.test(isNonDuplicate);
             }
 
+            @Override
+            public boolean[] check(final List<? extends Values> valuesList) {
+                final List<DuplicateCheckRow> duplicateCheckRows = new ArrayList<>(valuesList.size());
+                for (final Values values : valuesList) {
+                    duplicateCheckRows.add(duplicateCheckRowFactory.createDuplicateCheckRow(values));
+                }
+                // Probe and insert the whole batch in one write txn
+                final boolean[] results = store.tryInsert(duplicateCheckRows);
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = sendNotificationCheck.test(results[i]);
+                }
+                return results;
+            }
+
             @Override
             public void close() {
                 pool.release(analyticRuleDoc.getUuid());
@@ -0,0 +1,97 @@
+package stroom.analytics.impl;
+
+import stroom.lmdb2.LmdbBatchWriter;
+import stroom.util.metrics.Metrics;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics for the bloom filters and writers used by all the {@link DuplicateCheckStore}s.
+ */
+@Singleton
+public class DuplicateCheckMetrics {
+
+    // New rows that the filter said were definitely new, so the store wasn't probed
+    private final Meter probeSkippedMeter;
+    // New rows that the filter said might be present, so the store was probed needlessly
+    private final Meter falsePositiveMeter;
+    private final Timer writerCommitTimer;
+    // The writers of all open stores
+    private final Set<LmdbBatchWriter> writers = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public DuplicateCheckMetrics(final Metrics metrics) {
+        probeSkippedMeter = metrics.registrationBuilder(getClass())
+                .addNamePart("bloomFilter")
+                .addNamePart("probeSkipped")
+                .meter()
+                .createAndRegister();
+        falsePositiveMeter = metrics.registrationBuilder(getClass())
+                .addNamePart("bloomFilter")
+                .addNamePart("falsePositive")
+                .meter()
+                .createAndRegister();
+        metrics.registrationBuilder(getClass())
+                .addNamePart("bloomFilter")
+                .addNamePart("falsePositiveRate")
+                .gauge(this::getFalsePositiveRate)
+                .register();
+        writerCommitTimer = metrics.registrationBuilder(getClass())
+                .addNamePart("writer")
+                .addNamePart("commit")
+                .timer()
+                .createAndRegister();
+        metrics.registrationBuilder(getClass())
+                .addNamePart("writer")
+                .addNamePart("queueDepth")
+                .gauge(this::getWriterQueueDepth)
+                .register();
+    }
+
+    void addWriter(final LmdbBatchWriter writer) {
+        writers.add(writer);
+    }
+
+    void removeWriter(final LmdbBatchWriter writer) {
+        writers.remove(writer);
+    }
+
+    void recordCommit(final long durationNanos) {
+        writerCommitTimer.update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The total number of write operations waiting to be applied by the writers of all open stores.
+     */
+    int getWriterQueueDepth() {
+        return writers.stream()
+                .mapToInt(LmdbBatchWriter::getQueueDepth)
+                .sum();
+    }
+
+    void recordProbeSkipped() {
+        probeSkippedMeter.mark();
+    }
+
+    void recordFalsePositive() {
+        falsePositiveMeter.mark();
+    }
+
+    /**
+     * @return The proportion of new rows that the filter failed to identify as new.
+     */
+    double getFalsePositiveRate() {
+        final long falsePositives = falsePositiveMeter.getCount();
+        final long newRows = falsePositives + probeSkippedMeter.getCount();
+        return newRows == 0
+                ? 0
+                : (double) falsePositives / newRows;
+    }
+}
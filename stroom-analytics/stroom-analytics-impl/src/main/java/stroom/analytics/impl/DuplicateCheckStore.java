@@ -12,11 +12,11 @@ import stroom.lmdb.LmdbConfig;
 import stroom.lmdb.stream.LmdbEntry;
 import stroom.lmdb.stream.LmdbIterable;
 import stroom.lmdb2.AbstractTxn;
+import stroom.lmdb2.LmdbBatchWriter;
 import stroom.lmdb2.LmdbDb;
 import stroom.lmdb2.LmdbEnv;
 import stroom.lmdb2.LmdbEnvDir;
 import stroom.lmdb2.LmdbKeySequence;
-import stroom.lmdb2.LmdbWriter;
 import stroom.lmdb2.ReadTxn;
 import stroom.lmdb2.WriteTxn;
 import stroom.query.common.v2.DuplicateCheckStoreConfig;
@@ -37,13 +37,13 @@ import org.lmdbjava.EnvFlags;
 import org.lmdbjava.PutFlags;
 
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 class DuplicateCheckStore {
@@ -55,6 +55,12 @@ class DuplicateCheckStore {
     static final int MAX_DBS = 2;
     static final int MAX_READERS = 1;
     static final EnvFlags ENV_FLAGS = EnvFlags.MDB_NOTLS;
+    // Write operations (each of one or more rows) applied before the write txn is committed
+    static final int MAX_WRITES_BEFORE_COMMIT = 100;
+    static final Duration MAX_COMMIT_INTERVAL = Duration.ofSeconds(1);
+    // Serialising the filter means writing all of it, so a flush only persists it once it has grown by this
+    // many hashes, or by a tenth if that is more, since it was last persisted. It is always persisted on close.
+    private static final long MIN_BLOOM_FILTER_GROWTH_BEFORE_SAVE = DuplicateCheckBloomFilter.INITIAL_CAPACITY;
 
     private final ByteBufferFactory byteBufferFactory;
     private final ByteBuffers byteBuffers;
@@ -62,10 +68,16 @@ class DuplicateCheckStore {
     private final LmdbEnv lmdbEnv;
     private final LmdbDb db;
     private final LmdbDb infoDb;
-    private final LmdbWriter writer;
+    private final LmdbBatchWriter writer;
     private final LmdbKeySequence lmdbKeySequence;
-    private final int maxPutsBeforeCommit = 100;
-    private long uncommittedCount = 0;
+    private final DuplicateCheckMetrics duplicateCheckMetrics;
+    // The bloom filter state is only used by write operations, so it is confined to the writer thread.
+    // Holds the hashes of all rows in the db so we can skip probing the db for new rows
+    private DuplicateCheckBloomFilter bloomFilter;
+    // True if the persisted filter matches the db, false if the db has changed since it was persisted
+    private boolean isBloomFilterPersisted;
+    // The number of hashes in the filter when it was last persisted
+    private long persistedBloomFilterCount;
 
     DuplicateCheckStore(final DuplicateCheckDirs duplicateCheckDirs,
                         final ByteBufferFactory byteBufferFactory,
@@ -73,10 +85,12 @@ class DuplicateCheckStore {
                         final DuplicateCheckStoreConfig duplicateCheckStoreConfig,
                         final DuplicateCheckRowSerde duplicateCheckRowSerde,
                         final Provider<Executor> executorProvider,
+                        final DuplicateCheckMetrics duplicateCheckMetrics,
                         final String analyticRuleUUID) {
         this.byteBufferFactory = byteBufferFactory;
         this.byteBuffers = byteBuffers;
         this.duplicateCheckRowSerde = duplicateCheckRowSerde;
+        this.duplicateCheckMetrics = duplicateCheckMetrics;
         lmdbKeySequence = new LmdbKeySequence(byteBuffers);
         final LmdbEnvDir lmdbEnvDir = duplicateCheckDirs.getDir(analyticRuleUUID);
         final LmdbConfig lmdbConfig = duplicateCheckStoreConfig.getLmdbConfig();
@@ -101,10 +115,104 @@ class DuplicateCheckStore {
         this.lmdbEnv = anLmdbEnv;
         this.db = lmdbEnv.openDb(DUPLICATE_CHECK_DB_NAME, DbiFlags.MDB_CREATE);
         this.infoDb = lmdbEnv.openDb(INFO_DB_NAME, DbiFlags.MDB_CREATE);
-        this.writer = new LmdbWriter(executorProvider, lmdbEnv);
+        loadBloomFilter();
+        // Concurrent inserts from different threads are applied in the same wake-up of the writer and
+        // committed together.
+        this.writer = LmdbBatchWriter
+                .builder()
+                .executorProvider(executorProvider)
+                .env(lmdbEnv)
+                .maxBatchSize(MAX_WRITES_BEFORE_COMMIT)
+                .maxCommitInterval(MAX_COMMIT_INTERVAL)
+                .commitListener(duplicateCheckMetrics::recordCommit)
+                .build();
+        duplicateCheckMetrics.addWriter(writer);
         writeSchemaVersion();
     }
 
+    /**
+     * Reads the persisted bloom filter if there is one that matches the db, else builds the
+     * filter from the keys in the db.
+     */
+    private void loadBloomFilter() {
+        try (final ReadTxn readTxn = lmdbEnv.readTxn()) {
+            final ByteBuffer valueBuffer = infoDb.get(readTxn, InfoKey.BLOOM_FILTER.getByteBuffer());
+            if (valueBuffer != null) {
+                bloomFilter = DuplicateCheckBloomFilter.read(valueBuffer);
+            }
+            if (bloomFilter != null) {
+                isBloomFilterPersisted = true;
+                persistedBloomFilterCount = bloomFilter.getCount();
+                LOGGER.debug("Read bloom filter with {} layers, lmdbEnvDir: {}",
+                        bloomFilter.getLayerCount(), lmdbEnv.getDir());
+            } else {
+                // Either a store from before we had filters or the db was changed after the
+                // filter was persisted and not persisted again, e.g. a crash
+                final DuplicateCheckBloomFilter newBloomFilter = new DuplicateCheckBloomFilter();
+                final int keyLength = duplicateCheckRowSerde.getKeyLength();
+                try (final LmdbIterable iterable = LmdbIterable.create(readTxn.get(), db.getDbi())) {
+                    for (final LmdbEntry entry : iterable) {
+                        // The key is the row hash optionally followed by a sequence number.
+                        final ByteBuffer key = entry.getKey();
+                        if (key.remaining() >= keyLength) {
+                            newBloomFilter.put(key.getLong(key.position()));
+                        }
+                    }
+                }
+                bloomFilter = newBloomFilter;
+                // Not persisted, so the next flush can save us having to build it again.
+                persistedBloomFilterCount = 0;
+                LOGGER.debug("Built bloom filter with {} layers, lmdbEnvDir: {}",
+                        bloomFilter.getLayerCount(), lmdbEnv.getDir());
+            }
+        }
+    }
+
+    /**
+     * Persists the bloom filter if the db has changed since it was last persisted.
+     * The filter is written in the same txn as the rows, so the next commit makes them consistent.
+     */
+    private void saveBloomFilter(final WriteTxn writeTxn) {
+        if (!isBloomFilterPersisted) {
+            final int size = bloomFilter.getSerialisedSize();
+            final ByteBuffer byteBuffer = byteBufferFactory.acquire(size);
+            try {
+                bloomFilter.write(byteBuffer);
+                byteBuffer.flip();
+                infoDb.put(writeTxn, InfoKey.BLOOM_FILTER.getByteBuffer(), byteBuffer);
+                isBloomFilterPersisted = true;
+                persistedBloomFilterCount = bloomFilter.getCount();
+                LOGGER.debug("Saved bloom filter of {} bytes, lmdbEnvDir: {}", size, lmdbEnv.getDir());
+            } finally {
+                byteBufferFactory.release(byteBuffer);
+            }
+        }
+    }
+
+    /**
+     * Persists the bloom filter if it has grown enough since it was last persisted to be worth the cost of
+     * writing it all again. If the store is not closed cleanly before the filter is next persisted, the
+     * filter will be rebuilt from the db when the store is next opened.
+     */
+    private void saveBloomFilterIfGrown(final WriteTxn writeTxn) {
+        final long growth = bloomFilter.getCount() - persistedBloomFilterCount;
+        if (growth >= Math.max(MIN_BLOOM_FILTER_GROWTH_BEFORE_SAVE, persistedBloomFilterCount / 10)) {
+            saveBloomFilter(writeTxn);
+        }
+    }
+
+    /**
+     * Must be called in the same txn as any change to the db, before it is made. Removes the
+     * persisted filter so that if the store is not closed cleanly, the out of date filter will
+     * not be used when it is next opened.
+     */
+    private void onDbChange(final WriteTxn writeTxn) {
+        if (isBloomFilterPersisted) {
+            infoDb.delete(writeTxn, InfoKey.BLOOM_FILTER.getByteBuffer());
+            isBloomFilterPersisted = false;
+        }
+    }
+
     /**
      * Caller is responsible for (auto-)closing.
      * Pkg-private for testing
@@ -168,11 +276,12 @@ class DuplicateCheckStore {
     }
 
     private synchronized void writeSchemaVersion() {
-        writer.write(writeTxn -> {
+        writer.writeAndWait(writeTxn -> {
             byteBuffers.useInt(CURRENT_SCHEMA_VERSION, byteBuffer -> {
                 infoDb.put(writeTxn, InfoKey.SCHEMA_VERSION.getByteBuffer(), byteBuffer);
             });
-        }, true);
+        });
+        writer.flush();
     }
 
 //    synchronized void writeColumnNames(final List<String> columnNames) {
@@ -219,7 +328,7 @@ class DuplicateCheckStore {
     }
 
     synchronized void writeColumnNames(final List<String> columnNames) {
-        writer.write(writeTxn -> {
+        writer.writeAndWait(writeTxn -> {
             final Optional<List<String>> optColumnNames = fetchColumnNames(writeTxn);
 
             if (optColumnNames.isPresent()) {
@@ -238,7 +347,10 @@ class DuplicateCheckStore {
 
                     // Change of columns (added, removed, re-ordered) means any new data won't match the layout
                     // of the existing data, so we have to clear it out.
+                    onDbChange(writeTxn);
                     db.drop(writeTxn);
+                    bloomFilter = new DuplicateCheckBloomFilter();
+                    persistedBloomFilterCount = 0;
 
                     // Write the new columns
                     LOGGER.debug("writeColumnNames() - Writing column names {}", columnNames);
@@ -250,7 +362,8 @@ class DuplicateCheckStore {
                 // None set so just write what we have and there should be no data to delete.
                 writeColumnNames(writeTxn, columnNames);
             }
-        }, true);
+        });
+        writer.flush();
     }
 
     /**
@@ -258,39 +371,77 @@ class DuplicateCheckStore {
      * @return True if duplicateCheckRow can be inserted, i.e. it is NOT a duplicate of
      * any existing rows.
      */
-    synchronized boolean tryInsert(final DuplicateCheckRow duplicateCheckRow) {
-        final LmdbKV lmdbKV = duplicateCheckRowSerde.createLmdbKV(duplicateCheckRow);
-        final AtomicBoolean res = new AtomicBoolean();
+    boolean tryInsert(final DuplicateCheckRow duplicateCheckRow) {
+        return tryInsert(List.of(duplicateCheckRow))[0];
+    }
 
-        writer.write(writeTxn -> {
-            try {
-                try {
-                    final boolean didInsert = tryInsert(duplicateCheckRow, writeTxn, lmdbKV);
-                    res.set(didInsert);
-                } finally {
-                    releaseLmdbKv(lmdbKV);
-                }
+    /**
+     * Checks and inserts a batch of rows in a single write txn. Rows are checked in order, so if
+     * the batch contains the same row twice, only the first will be inserted.
+     *
+     * @param duplicateCheckRows The rows to check.
+     * @return An array with an element for each row that is true if the row was inserted,
+     * i.e. it is NOT a duplicate of any existing rows or earlier rows in the batch.
+     */
+    boolean[] tryInsert(final List<DuplicateCheckRow> duplicateCheckRows) {
+        if (duplicateCheckRows.isEmpty()) {
+            return new boolean[0];
+        }
 
-                if (uncommittedCount > 0) {
-                    final long count = uncommittedCount;
-                    if (count >= maxPutsBeforeCommit) {
-                        // Commit
-                        LOGGER.trace(() -> "Committing for max puts " + maxPutsBeforeCommit);
-                        writeTxn.commit();
-                        uncommittedCount = 0;
-                    }
-                }
-            } catch (final Throwable e) {
-                LOGGER.error(e::getMessage, e);
+        // Serialise the rows before handing them to the writer thread
+        final List<LmdbKV> lmdbKVs = new ArrayList<>(duplicateCheckRows.size());
+        try {
+            for (final DuplicateCheckRow duplicateCheckRow : duplicateCheckRows) {
+                lmdbKVs.add(duplicateCheckRowSerde.createLmdbKV(duplicateCheckRow));
             }
-        });
 
-        return res.get();
+            // The writer commits once enough writes have been applied
+            return writer.writeAndGet(writeTxn -> {
+                final boolean[] results = new boolean[duplicateCheckRows.size()];
+                for (int i = 0; i < results.length; i++) {
+                    try {
+                        results[i] = tryInsert(duplicateCheckRows.get(i), writeTxn, lmdbKVs.get(i));
+                    } catch (final Throwable e) {
+                        LOGGER.error(e::getMessage, e);
+                    }
+                }
+                return results;
+            });
+        } finally {
+            lmdbKVs.forEach(this::releaseLmdbKv);
+        }
     }
 
     private boolean tryInsert(final DuplicateCheckRow duplicateCheckRow,
                               final WriteTxn writeTxn,
                               final LmdbKV lmdbKV) {
+        final long rowHash = lmdbKV.key().getLong(lmdbKV.key().position());
+        if (!bloomFilter.mightContain(rowHash)) {
+            // Definitely no row with this hash so no need to probe for it. The put will only fail
+            // if the filter is out of step with the db, in which case fall back to probing.
+            onDbChange(writeTxn);
+            if (db.put(writeTxn, lmdbKV.key(), lmdbKV.val(), PutFlags.MDB_NOOVERWRITE)) {
+                bloomFilter.put(rowHash);
+                duplicateCheckMetrics.recordProbeSkipped();
+                LOGGER.debug(() -> "New row, probe skipped (row=" + duplicateCheckRow
+                                   + ", " + toString(lmdbKV) +
+                                   ", lmdbEnvDir=" + lmdbEnv.getDir() + ")");
+                return true;
+            }
+            LOGGER.warn(() -> "Bloom filter out of step with the store, lmdbEnvDir=" + lmdbEnv.getDir());
+        }
+
+        final boolean didPut = probeAndInsert(duplicateCheckRow, writeTxn, lmdbKV);
+        if (didPut) {
+            bloomFilter.put(rowHash);
+            duplicateCheckMetrics.recordFalsePositive();
+        }
+        return didPut;
+    }
+
+    private boolean probeAndInsert(final DuplicateCheckRow duplicateCheckRow,
+                                   final WriteTxn writeTxn,
+                                   final LmdbKV lmdbKV) {
         // try immediate insert first.
         final boolean didPut = lmdbKeySequence.find(
                 db.getDbi(),
@@ -300,6 +451,7 @@ class DuplicateCheckStore {
                 val -> val.equals(lmdbKV.val()),
                 match -> {
                     if (match.foundKey() == null) {
+                        onDbChange(writeTxn);
                         // If there is 0 sequence number then just put.
                         if (match.nextSequenceNumber() == 0) {
                             final boolean success = db.put(writeTxn,
@@ -325,7 +477,6 @@ class DuplicateCheckStore {
                                     if (!success) {
                                         throw new RuntimeException("Expected to put value but failed");
                                     }
-                                    uncommittedCount++;
                                     return true;
                                 });
                     }
@@ -350,15 +501,24 @@ class DuplicateCheckStore {
     }
 
     synchronized void flush() {
+        writer.write(this::saveBloomFilterIfGrown);
         writer.flush();
-        uncommittedCount = 0;
 
         LOGGER.debug("flush called");
         LOGGER.trace(() -> "flush()", new RuntimeException("flush"));
     }
 
     synchronized void close() {
-        writer.close();
+        try {
+            writer.write(this::saveBloomFilter);
+        } catch (final RuntimeException e) {
+            LOGGER.error(e::getMessage, e);
+        }
+        try {
+            writer.close();
+        } finally {
+            duplicateCheckMetrics.removeWriter(writer);
+        }
 
         LOGGER.debug("close called");
         LOGGER.trace(() -> "close()", new RuntimeException("close"));
@@ -369,6 +529,12 @@ class DuplicateCheckStore {
         }
     }
 
+    // pkg private for testing
+    synchronized boolean hasPersistedBloomFilter() {
+        return lmdbEnv.readResult(readTxn ->
+                infoDb.get(readTxn, InfoKey.BLOOM_FILTER.getByteBuffer()) != null);
+    }
+
     public synchronized DuplicateCheckRows fetchData(final FindDuplicateCheckCriteria criteria) {
         final List<DuplicateCheckRow> results = new ArrayList<>();
         final AtomicLong totalSize = new AtomicLong();
@@ -490,8 +656,10 @@ class DuplicateCheckStore {
     }
 
     private synchronized void delete(final LmdbKV lmdbKV) {
-        writer.write(writeTxn -> {
+        writer.writeAndWait(writeTxn -> {
             try {
+                // The row stays in the bloom filter, so it will be a false positive if seen again
+                onDbChange(writeTxn);
                 lmdbKeySequence.delete(
                         db.getDbi(),
                         writeTxn.get(),
@@ -513,11 +681,7 @@ class DuplicateCheckStore {
     }
 
     private synchronized void commit() {
-        writer.write(writeTxn -> {
-            LOGGER.debug("Committing, uncommittedCount: {}", uncommittedCount);
-            writeTxn.commit();
-            uncommittedCount = 0;
-        });
+        writer.flush();
     }
 
     private static String toString(final LmdbKV lmdbKV) {
@@ -541,7 +705,8 @@ class DuplicateCheckStore {
      */
     enum InfoKey implements HasPrimitiveValue {
         SCHEMA_VERSION(0),
-        COLUMN_NAMES(1);
+        COLUMN_NAMES(1),
+        BLOOM_FILTER(2);
 
         private final byte primitiveValue;
         private final ByteBuffer byteBuffer;
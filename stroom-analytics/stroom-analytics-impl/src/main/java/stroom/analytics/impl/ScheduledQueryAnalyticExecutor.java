@@ -57,6 +57,7 @@ import stroom.query.common.v2.format.FormatterFactory;
 import stroom.query.language.SearchRequestFactory;
 import stroom.query.language.functions.ExpressionContext;
 import stroom.query.language.functions.Val;
+import stroom.query.language.functions.Values;
 import stroom.query.language.functions.ref.ErrorConsumer;
 import stroom.security.api.SecurityContext;
 import stroom.task.api.ExecutorProvider;
@@ -86,6 +87,7 @@ import java.util.function.Predicate;
 public class ScheduledQueryAnalyticExecutor extends AbstractScheduledQueryExecutor<AnalyticRuleDoc> {
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ScheduledQueryAnalyticExecutor.class);
+    private static final int DUPLICATE_CHECK_BATCH_SIZE = 1_000;
 
     private final AnalyticRuleStore analyticRuleStore;
     private final ResultStoreManager searchResponseCreatorManager;
@@ -216,49 +218,68 @@ public class ScheduledQueryAnalyticExecutor extends AbstractScheduledQueryExecut
                     try (final DuplicateCheck duplicateCheck =
                             duplicateCheckFactory.create(analytic, compiledColumns)) {
                         detectionConsumerProxy.start();
-                        final Consumer<Item> itemConsumer = item -> {
-                            if (duplicateCheck.check(item)) {
-                                Long streamId = null;
-                                Long eventId = null;
-                                final List<DetectionValue> values = new ArrayList<>();
-                                for (int i = 0; i < dataStore.getColumns().size(); i++) {
-                                    final Column column = dataStore.getColumns().get(i);
-                                    final String columnName = column.getName();
-                                    final Val val = item.getValue(i);
-                                    if (val != null) {
-                                        if (IndexConstants.STREAM_ID.equals(columnName)) {
-                                            streamId = DetectionConsumerProxy.getSafeLong(val);
-                                        } else if (IndexConstants.EVENT_ID.equals(columnName)) {
-                                            eventId = DetectionConsumerProxy.getSafeLong(val);
-                                        }
-                                        final String fieldValStr = fieldFormatter.format(column, val);
-                                        values.add(new DetectionValue(columnName, fieldValStr));
+                        final Consumer<Values> detectionCreator = item -> {
+                            Long streamId = null;
+                            Long eventId = null;
+                            final List<DetectionValue> values = new ArrayList<>();
+                            for (int i = 0; i < dataStore.getColumns().size(); i++) {
+                                final Column column = dataStore.getColumns().get(i);
+                                final String columnName = column.getName();
+                                final Val val = item.getValue(i);
+                                if (val != null) {
+                                    if (IndexConstants.STREAM_ID.equals(columnName)) {
+                                        streamId = DetectionConsumerProxy.getSafeLong(val);
+                                    } else if (IndexConstants.EVENT_ID.equals(columnName)) {
+                                        eventId = DetectionConsumerProxy.getSafeLong(val);
                                     }
+                                    final String fieldValStr = fieldFormatter.format(column, val);
+                                    values.add(new DetectionValue(columnName, fieldValStr));
                                 }
+                            }
 
-                                List<DetectionLinkedEvent> linkedEvents = null;
-                                if (streamId != null || eventId != null) {
-                                    linkedEvents = List.of(new DetectionLinkedEvent(null, streamId, eventId));
-                                }
+                            List<DetectionLinkedEvent> linkedEvents = null;
+                            if (streamId != null || eventId != null) {
+                                linkedEvents = List.of(new DetectionLinkedEvent(null, streamId, eventId));
+                            }
 
-                                final Detection detection = Detection
-                                        .builder()
-                                        .withDetectTime(DateUtil.createNormalDateTimeString())
-                                        .withDetectorName(analytic.getName())
-                                        .withDetectorUuid(analytic.getUuid())
-                                        .withDetectorVersion(analytic.getVersion())
-                                        .withDetailedDescription(analytic.getDescription())
-                                        .withRandomDetectionUniqueId()
-                                        .withDetectionRevision(0)
-                                        .withExecutionSchedule(NullSafe
-                                                .get(executionSchedule, ExecutionSchedule::getName))
-                                        .withExecutionTime(executionTime)
-                                        .withEffectiveExecutionTime(effectiveExecutionTime)
-                                        .notDefunct()
-                                        .withValues(values)
-                                        .withLinkedEvents(linkedEvents)
-                                        .build();
-                                detectionConsumerProxy.getDetectionConsumer().accept(detection);
+                            final Detection detection = Detection
+                                    .builder()
+                                    .withDetectTime(DateUtil.createNormalDateTimeString())
+                                    .withDetectorName(analytic.getName())
+                                    .withDetectorUuid(analytic.getUuid())
+                                    .withDetectorVersion(analytic.getVersion())
+                                    .withDetailedDescription(analytic.getDescription())
+                                    .withRandomDetectionUniqueId()
+                                    .withDetectionRevision(0)
+                                    .withExecutionSchedule(NullSafe
+                                            .get(executionSchedule, ExecutionSchedule::getName))
+                                    .withExecutionTime(executionTime)
+                                    .withEffectiveExecutionTime(effectiveExecutionTime)
+                                    .notDefunct()
+                                    .withValues(values)
+                                    .withLinkedEvents(linkedEvents)
+                                    .build();
+                            detectionConsumerProxy.getDetectionConsumer().accept(detection);
+                        };
+                        // Check the items against the duplicate store in batches so each batch only needs
+                        // one write txn
+                        final List<Values> batch = new ArrayList<>(DUPLICATE_CHECK_BATCH_SIZE);
+                        final Runnable batchProcessor = () -> {
+                            if (!batch.isEmpty()) {
+                                final boolean[] results = duplicateCheck.check(batch);
+                                for (int i = 0; i < results.length; i++) {
+                                    if (results[i]) {
+                                        detectionCreator.accept(batch.get(i));
+                                    }
+                                }
+                                batch.clear();
+                            }
+                        };
+                        final Consumer<Item> itemConsumer = item -> {
+                            // Resolve all the values now as the item may not be usable after this call
+                            batch.add(Values.of(item.toArray()));
+                            if (batch.size() >= DUPLICATE_CHECK_BATCH_SIZE) {
+                                batchProcessor.run();
                             }
                         };
                         final Consumer<Long> countConsumer = count -> {
@@ -294,6 +315,7 @@ public class ScheduledQueryAnalyticExecutor extends AbstractScheduledQueryExecut
                                     mapper,
                                     itemConsumer,
                                     countConsumer);
+                            batchProcessor.run();
                         }
 
                     } finally {
@@ -17,11 +17,16 @@
 
 package stroom.analytics.impl;
 
+import stroom.analytics.impl.StreamingAnalyticScanGroups.Member;
 import stroom.analytics.shared.AnalyticRuleDoc;
 import stroom.core.dataprocess.ProcessorTaskDecorator;
 import stroom.dictionary.api.WordListProvider;
 import stroom.docref.DocRef;
+import stroom.meta.shared.Meta;
+import stroom.pipeline.errorhandler.ErrorReceiverProxy;
+import stroom.processor.api.ProcessorTaskService;
 import stroom.processor.shared.ProcessorFilter;
+import stroom.processor.shared.ProcessorTask;
 import stroom.query.api.ParamUtil;
 import stroom.query.api.SearchRequest;
 import stroom.query.api.TableSettings;
@@ -39,19 +44,33 @@ import stroom.search.extraction.FieldValue;
 import stroom.search.extraction.FieldValueExtractor;
 import stroom.search.extraction.FieldValueExtractorFactory;
 import stroom.search.extraction.MemoryIndex;
+import stroom.security.api.SecurityContext;
 import stroom.task.api.TaskTerminatedException;
 import stroom.util.concurrent.UncheckedInterruptedException;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.ElementId;
+import stroom.util.shared.Severity;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Predicate;
 
+/**
+ * Sets up a streaming analytic rule to receive the events extracted from a stream.
+ * <p>
+ * If shared scans are enabled, the task also claims the tasks of other rules for the same stream that
+ * can share the pipeline run and haven't started yet, and feeds the events to those rules too. A claimed
+ * task is only completed if the whole stream was processed for its rule without a fatal error. Otherwise
+ * it is released to be processed on its own, so that its rule doesn't miss any of the stream and any
+ * errors are recorded against it.
+ */
 public class StreamingAnalyticProcessorTaskDecorator implements ProcessorTaskDecorator {
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory
@@ -66,8 +85,16 @@ public class StreamingAnalyticProcessorTaskDecorator implements ProcessorTaskDec
     private final FieldValueExtractorFactory fieldValueExtractorFactory;
     private final ExpressionPredicateFactory expressionPredicateFactory;
     private final WordListProvider wordListProvider;
+    private final Provider<DetectionConsumerProxy> detectionConsumerProxyProvider;
+    private final Provider<ErrorReceiverProxy> errorReceiverProxyProvider;
+    private final Provider<AnalyticsConfig> analyticsConfigProvider;
+    private final StreamingAnalyticScanGroups streamingAnalyticScanGroups;
+    private final ProcessorTaskService processorTaskService;
+    private final SecurityContext securityContext;
 
     private AnalyticFieldListConsumer fieldListConsumer;
+    private List<ClaimedMember> claimedMembers = List.of();
+    private List<SharedScanRuleConsumer> sharedScanRuleConsumers = List.of();
 
     private StreamingAnalytic analytic;
 
@@ -80,7 +107,13 @@ public class StreamingAnalyticProcessorTaskDecorator implements ProcessorTaskDec
                                                    final FieldListConsumerHolder fieldListConsumerHolder,
                                                    final FieldValueExtractorFactory fieldValueExtractorFactory,
                                                    final ExpressionPredicateFactory expressionPredicateFactory,
-                                                   final WordListProvider wordListProvider) {
+                                                   final WordListProvider wordListProvider,
+                                                   final Provider<DetectionConsumerProxy> detectionConsumerProxyProvider,
+                                                   final Provider<ErrorReceiverProxy> errorReceiverProxyProvider,
+                                                   final Provider<AnalyticsConfig> analyticsConfigProvider,
+                                                   final StreamingAnalyticScanGroups streamingAnalyticScanGroups,
+                                                   final ProcessorTaskService processorTaskService,
+                                                   final SecurityContext securityContext) {
         this.streamingAnalyticCache = streamingAnalyticCache;
         this.expressionContextFactory = expressionContextFactory;
         this.memoryIndex = memoryIndex;
@@ -90,10 +123,16 @@ public class StreamingAnalyticProcessorTaskDecorator implements ProcessorTaskDec
         this.fieldValueExtractorFactory = fieldValueExtractorFactory;
         this.expressionPredicateFactory = expressionPredicateFactory;
         this.wordListProvider = wordListProvider;
+        this.detectionConsumerProxyProvider = detectionConsumerProxyProvider;
+        this.errorReceiverProxyProvider = errorReceiverProxyProvider;
+        this.analyticsConfigProvider = analyticsConfigProvider;
+        this.streamingAnalyticScanGroups = streamingAnalyticScanGroups;
+        this.processorTaskService = processorTaskService;
+        this.securityContext = securityContext;
     }
 
     @Override
-    public void beforeProcessing(final ProcessorFilter processorFilter) {
+    public void beforeProcessing(final ProcessorFilter processorFilter, final Meta meta) {
         // Load rule.
         final DocRef analyticRuleRef = new DocRef(AnalyticRuleDoc.TYPE, processorFilter.getPipelineUuid());
         analytic = streamingAnalyticCache.get(analyticRuleRef);
@@ -101,15 +140,33 @@ public class StreamingAnalyticProcessorTaskDecorator implements ProcessorTaskDec
             throw new RuntimeException("Unable to get analytic from cache: " + analyticRuleRef);
         }
 
-        fieldListConsumer = createEventConsumer(analytic).orElse(new NullFieldListConsumer());
+        if (analyticsConfigProvider.get().isStreamingSharedScanEnabled()) {
+            claimedMembers = claimSharedScan(processorFilter, meta);
+        }
+
+        if (claimedMembers.isEmpty()) {
+            fieldListConsumer = createEventConsumer(analytic, detectionConsumerProxy)
+                    .orElse(new NullFieldListConsumer());
+        } else {
+            fieldListConsumer = createSharedScanConsumer();
+        }
+
         fieldListConsumerHolder.setFieldListConsumer(fieldListConsumer);
         fieldListConsumer.start();
     }
 
     @Override
-    public void afterProcessing() {
-        if (fieldListConsumer != null) {
-            fieldListConsumer.end();
+    public void afterProcessing(final boolean success) {
+        try {
+            if (fieldListConsumer != null) {
+                fieldListConsumer.end();
+            }
+        } finally {
+            if (!claimedMembers.isEmpty()) {
+                LOGGER.debug(() -> "Shared scan by " + analytic.ruleIdentity() + " finished (success=" +
+                                   success + "): " + sharedScanRuleConsumers);
+                finishClaimedTasks(success);
+            }
         }
     }
 
@@ -118,7 +175,122 @@ public class StreamingAnalyticProcessorTaskDecorator implements ProcessorTaskDec
         return analytic.viewDoc().getPipeline();
     }
 
-    private Optional<AnalyticFieldListConsumer> createEventConsumer(final StreamingAnalytic analytic) {
+    private List<ClaimedMember> claimSharedScan(final ProcessorFilter processorFilter, final Meta meta) {
+        final List<Member> candidates = streamingAnalyticScanGroups.getSharedScanCandidates(
+                processorFilter, analytic);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        final List<ProcessorTask> claimedTasks = securityContext.asProcessingUserResult(() ->
+                processorTaskService.claimTasks(
+                        meta.getId(),
+                        candidates.stream()
+                                .map(member -> member.processorFilter().getId())
+                                .toList()));
+        final List<ClaimedMember> claimedMembers = new ArrayList<>(claimedTasks.size());
+        for (final ProcessorTask claimedTask : claimedTasks) {
+            final Integer filterId = claimedTask.getProcessorFilter() != null
+                    ? claimedTask.getProcessorFilter().getId()
+                    : null;
+            candidates.stream()
+                    .filter(member -> Objects.equals(member.processorFilter().getId(), filterId))
+                    .findFirst()
+                    .ifPresentOrElse(
+                            member -> claimedMembers.add(new ClaimedMember(member, claimedTask)),
+                            () -> {
+                                // Shouldn't happen but make sure the task isn't lost.
+                                LOGGER.warn("Releasing claimed task {} with no matching rule", claimedTask.getId());
+                                releaseClaimedTasks(List.of(claimedTask));
+                            });
+        }
+        LOGGER.debug(() -> "Stream " + meta.getId() + " is processed by " + analytic.ruleIdentity() +
+                           " for " + claimedMembers.size() + " other rules");
+        return claimedMembers;
+    }
+
+    private AnalyticFieldListConsumer createSharedScanConsumer() {
+        final List<SharedScanRuleConsumer> consumers = new ArrayList<>(claimedMembers.size() + 1);
+
+        // This task's own rule fails the task as usual if it can't be set up.
+        consumers.add(new SharedScanRuleConsumer(
+                analytic.ruleIdentity(),
+                createEventConsumer(analytic, detectionConsumerProxy).orElse(new NullFieldListConsumer()),
+                null,
+                errorReceiverProxyProvider.get()));
+
+        for (final ClaimedMember claimedMember : claimedMembers) {
+            final StreamingAnalytic memberAnalytic = claimedMember.member().analytic();
+            try {
+                consumers.add(new SharedScanRuleConsumer(
+                        memberAnalytic.ruleIdentity(),
+                        createEventConsumer(memberAnalytic, detectionConsumerProxyProvider.get())
+                                .orElse(new NullFieldListConsumer()),
+                        claimedMember.processorTask(),
+                        null));
+            } catch (final TaskTerminatedException | UncheckedInterruptedException e) {
+                throw e;
+            } catch (final RuntimeException e) {
+                // The task will be released so the rule can process the stream itself and record the error
+                // against its own task.
+                LOGGER.debug(() -> "Unable to share scan with " + memberAnalytic.ruleIdentity(), e);
+            }
+        }
+        sharedScanRuleConsumers = consumers;
+        return new MultiAnalyticFieldListConsumer(new ArrayList<>(consumers));
+    }
+
+    private void finishClaimedTasks(final boolean success) {
+        final List<ProcessorTask> tasksToRelease = new ArrayList<>();
+        for (final ClaimedMember claimedMember : claimedMembers) {
+            final ProcessorTask claimedTask = claimedMember.processorTask();
+            final boolean processed = success && sharedScanRuleConsumers.stream()
+                    .anyMatch(consumer -> consumer.claimedTask == claimedTask && !consumer.failed);
+            if (processed) {
+                try {
+                    securityContext.asProcessingUser(() ->
+                            processorTaskService.completeClaimedTask(claimedTask));
+                } catch (final RuntimeException e) {
+                    LOGGER.error(() -> "Unable to complete claimed task " + claimedTask.getId(), e);
+                }
+            } else {
+                tasksToRelease.add(claimedTask);
+            }
+        }
+        releaseClaimedTasks(tasksToRelease);
+    }
+
+    private void releaseClaimedTasks(final List<ProcessorTask> claimedTasks) {
+        if (!claimedTasks.isEmpty()) {
+            LOGGER.debug(() -> "Releasing claimed tasks " + claimedTasks.stream().map(ProcessorTask::getId).toList());
+            try {
+                securityContext.asProcessingUser(() ->
+                        processorTaskService.releaseClaimedTasks(claimedTasks));
+            } catch (final RuntimeException e) {
+                LOGGER.error(() -> "Unable to release claimed tasks " +
+                                   claimedTasks.stream().map(ProcessorTask::getId).toList(), e);
+            }
+        }
+    }
+
+    private static void logRuleError(final ErrorReceiverProxy errorReceiverProxy,
+                                     final String ruleIdentity,
+                                     final RuntimeException e) {
+        final String message = "Error processing shared scan for rule " + ruleIdentity +
+                               ", the rule will not receive any more events from this stream: " + e.getMessage();
+        LOGGER.error(message, e);
+        errorReceiverProxy.log(
+                Severity.ERROR,
+                null,
+                new ElementId(StreamingAnalyticProcessorTaskDecorator.class.getSimpleName()),
+                message,
+                e);
+    }
+
+    // pkg private for testing
+    Optional<AnalyticFieldListConsumer> createEventConsumer(
+            final StreamingAnalytic analytic,
+            final DetectionConsumerProxy detectionConsumerProxy) {
         // Create field index.
         final SearchRequest searchRequest = analytic.searchRequest();
         final ExpressionContext expressionContext = expressionContextFactory
@@ -168,6 +340,90 @@ public class StreamingAnalyticProcessorTaskDecorator implements ProcessorTaskDec
         }
     }
 
+    /**
+     * Feeds one rule of a shared scan, keeping a count of the events it has been given and
+     * isolating the other rules from its failures.
+     */
+    private static class SharedScanRuleConsumer implements AnalyticFieldListConsumer {
+
+        private final String ruleIdentity;
+        private final AnalyticFieldListConsumer delegate;
+        // Null for the rule of the task doing the scan
+        private final ProcessorTask claimedTask;
+        // Null for claimed tasks
+        private final ErrorReceiverProxy errorReceiverProxy;
+        private long count;
+        private boolean failed;
+
+        private SharedScanRuleConsumer(final String ruleIdentity,
+                                       final AnalyticFieldListConsumer delegate,
+                                       final ProcessorTask claimedTask,
+                                       final ErrorReceiverProxy errorReceiverProxy) {
+            this.ruleIdentity = ruleIdentity;
+            this.delegate = delegate;
+            this.claimedTask = claimedTask;
+            this.errorReceiverProxy = errorReceiverProxy;
+        }
+
+        @Override
+        public void start() {
+            run(delegate::start);
+        }
+
+        @Override
+        public void end() {
+            run(delegate::end);
+        }
+
+        @Override
+        public void acceptFieldValues(final List<FieldValue> fieldValues) {
+            count++;
+            run(() -> delegate.acceptFieldValues(fieldValues));
+        }
+
+        @Override
+        public void acceptStringValues(final List<StringFieldValue> stringValues) {
+            count++;
+            run(() -> delegate.acceptStringValues(stringValues));
+        }
+
+        private void run(final Runnable runnable) {
+            if (!failed) {
+                try {
+                    runnable.run();
+                } catch (final TaskTerminatedException | UncheckedInterruptedException e) {
+                    throw e;
+                } catch (final RuntimeException e) {
+                    failed = true;
+                    if (claimedTask == null) {
+                        logRuleError(errorReceiverProxy, ruleIdentity, e);
+                    } else {
+                        // The claimed task will be released so the rule processes the stream itself and the
+                        // error is recorded against its own task.
+                        LOGGER.debug(() -> "Error processing shared scan for rule " + ruleIdentity, e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return ruleIdentity + " (events=" + count + ", failed=" + failed + ")";
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record ClaimedMember(Member member, ProcessorTask processorTask) {
+
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
     private static class NullFieldListConsumer implements AnalyticFieldListConsumer {
 
         @Override
@@ -0,0 +1,150 @@
+package stroom.analytics.impl;
+
+import stroom.analytics.shared.AnalyticRuleDoc;
+import stroom.docref.DocRef;
+import stroom.entity.shared.ExpressionCriteria;
+import stroom.processor.api.ProcessorFilterService;
+import stroom.processor.shared.ProcessorFields;
+import stroom.processor.shared.ProcessorFilter;
+import stroom.processor.shared.ProcessorFilterFields;
+import stroom.processor.shared.ProcessorType;
+import stroom.query.api.ExpressionOperator;
+import stroom.query.api.ExpressionTerm.Condition;
+import stroom.security.api.SecurityContext;
+import stroom.task.api.TaskTerminatedException;
+import stroom.util.concurrent.UncheckedInterruptedException;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds the streaming analytic rules that could share a single run of their extraction pipeline over
+ * a stream. Rules can share a scan if their processor filters run as the same user and their views use
+ * the same pipeline.
+ * <p>
+ * Whether a rule actually needs the stream, and hasn't already started processing it, is decided by
+ * claiming its task for the stream (see {@link stroom.processor.api.ProcessorTaskService#claimTasks}),
+ * so the filters held here only need to be roughly current.
+ */
+@Singleton
+public class StreamingAnalyticScanGroups {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(StreamingAnalyticScanGroups.class);
+
+    static final long MAX_FILTERS_AGE_MS = Duration.ofMinutes(1).toMillis();
+
+    private final ProcessorFilterService processorFilterService;
+    private final StreamingAnalyticCache streamingAnalyticCache;
+    private final SecurityContext securityContext;
+
+    private volatile Filters filters;
+
+    @Inject
+    public StreamingAnalyticScanGroups(final ProcessorFilterService processorFilterService,
+                                       final StreamingAnalyticCache streamingAnalyticCache,
+                                       final SecurityContext securityContext) {
+        this.processorFilterService = processorFilterService;
+        this.streamingAnalyticCache = streamingAnalyticCache;
+        this.securityContext = securityContext;
+    }
+
+    /**
+     * @param processorFilter The filter of the task processing the stream.
+     * @param analytic        The rule of processorFilter.
+     * @return The other rules that could share the scan of a stream by the task of processorFilter, ordered
+     * by processor filter id.
+     */
+    public List<Member> getSharedScanCandidates(final ProcessorFilter processorFilter,
+                                                final StreamingAnalytic analytic) {
+        if (!isSharedScanCandidate(processorFilter)) {
+            return List.of();
+        }
+
+        final List<Member> members = new ArrayList<>();
+        for (final ProcessorFilter filter : getFilters()) {
+            if (!Objects.equals(filter.getId(), processorFilter.getId())
+                && isSharedScanCandidate(filter)
+                && Objects.equals(filter.getRunAsUser(), processorFilter.getRunAsUser())) {
+                final StreamingAnalytic otherAnalytic = getAnalytic(filter);
+                if (otherAnalytic != null
+                    && Objects.equals(
+                        otherAnalytic.viewDoc().getPipeline(),
+                        analytic.viewDoc().getPipeline())) {
+                    members.add(new Member(filter, otherAnalytic));
+                }
+            }
+        }
+        members.sort(Comparator.comparing(member -> member.processorFilter().getId()));
+        return members;
+    }
+
+    private boolean isSharedScanCandidate(final ProcessorFilter processorFilter) {
+        return !processorFilter.isReprocess() && processorFilter.getId() != null;
+    }
+
+    private StreamingAnalytic getAnalytic(final ProcessorFilter processorFilter) {
+        try {
+            return streamingAnalyticCache.get(
+                    new DocRef(AnalyticRuleDoc.TYPE, processorFilter.getPipelineUuid()));
+        } catch (final TaskTerminatedException | UncheckedInterruptedException e) {
+            throw e;
+        } catch (final RuntimeException e) {
+            // This rule will have to process the stream itself
+            LOGGER.debug(() -> "Unable to get analytic for processor filter " + processorFilter.getId(), e);
+            return null;
+        }
+    }
+
+    private List<ProcessorFilter> getFilters() {
+        final Filters current = filters;
+        if (current != null && System.currentTimeMillis() - current.loadTimeMs < MAX_FILTERS_AGE_MS) {
+            return current.processorFilters;
+        }
+
+        synchronized (this) {
+            if (filters == null || System.currentTimeMillis() - filters.loadTimeMs >= MAX_FILTERS_AGE_MS) {
+                // Take the time before loading so the filters are never older than we think
+                final long loadTimeMs = System.currentTimeMillis();
+                final ExpressionOperator expression = ExpressionOperator.builder()
+                        .addTextTerm(
+                                ProcessorFields.PROCESSOR_TYPE,
+                                Condition.EQUALS,
+                                ProcessorType.STREAMING_ANALYTIC.getDisplayValue())
+                        .addBooleanTerm(ProcessorFields.ENABLED, Condition.EQUALS, true)
+                        .addBooleanTerm(ProcessorFields.DELETED, Condition.EQUALS, false)
+                        .addBooleanTerm(ProcessorFilterFields.ENABLED, Condition.EQUALS, true)
+                        .addBooleanTerm(ProcessorFilterFields.DELETED, Condition.EQUALS, false)
+                        .build();
+                final List<ProcessorFilter> processorFilters = securityContext.asProcessingUserResult(() ->
+                        processorFilterService.find(new ExpressionCriteria(expression)).getValues());
+                LOGGER.debug("Loaded {} streaming analytic processor filters", processorFilters.size());
+                filters = new Filters(loadTimeMs, List.copyOf(processorFilters));
+            }
+            return filters.processorFilters;
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    public record Member(ProcessorFilter processorFilter, StreamingAnalytic analytic) {
+
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record Filters(long loadTimeMs, List<ProcessorFilter> processorFilters) {
+
+    }
+}
@@ -0,0 +1,81 @@
+package stroom.analytics.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDuplicateCheckBloomFilter {
+
+    @Test
+    void testNoFalseNegatives() {
+        final DuplicateCheckBloomFilter bloomFilter = new DuplicateCheckBloomFilter();
+        final int count = (int) DuplicateCheckBloomFilter.INITIAL_CAPACITY * 10;
+        for (long i = 0; i < count; i++) {
+            bloomFilter.put(i);
+            assertThat(bloomFilter.mightContain(i))
+                    .isTrue();
+        }
+        // Has grown to hold them all
+        assertThat(bloomFilter.getLayerCount())
+                .isGreaterThan(1);
+
+        for (long i = 0; i < count; i++) {
+            assertThat(bloomFilter.mightContain(i))
+                    .isTrue();
+        }
+    }
+
+    @Test
+    void testFalsePositiveRate() {
+        final DuplicateCheckBloomFilter bloomFilter = new DuplicateCheckBloomFilter();
+        final Random random = new Random(123);
+        final int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            bloomFilter.put(random.nextLong());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < count; i++) {
+            if (bloomFilter.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        // Each layer has a lower probability than the first, so the total is below the sum of
+        // a geometric series, i.e. 2%
+        assertThat((double) falsePositives / count)
+                .isLessThan(0.02);
+    }
+
+    @Test
+    void testSerialisation() {
+        final DuplicateCheckBloomFilter bloomFilter = new DuplicateCheckBloomFilter();
+        final int count = (int) DuplicateCheckBloomFilter.INITIAL_CAPACITY * 2;
+        for (long i = 0; i < count; i++) {
+            bloomFilter.put(i * 31);
+        }
+
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(bloomFilter.getSerialisedSize());
+        bloomFilter.write(byteBuffer);
+        assertThat(byteBuffer.remaining())
+                .isZero();
+        byteBuffer.flip();
+
+        final DuplicateCheckBloomFilter bloomFilter2 = DuplicateCheckBloomFilter.read(byteBuffer);
+        assertThat(bloomFilter2)
+                .isNotNull();
+        assertThat(bloomFilter2.getLayerCount())
+                .isEqualTo(bloomFilter.getLayerCount());
+        for (long i = 0; i < count; i++) {
+            assertThat(bloomFilter2.mightContain(i * 31))
+                    .isTrue();
+        }
+
+        // Carries on filling the last layer
+        bloomFilter2.put(-1);
+        assertThat(bloomFilter2.mightContain(-1))
+                .isTrue();
+    }
+}
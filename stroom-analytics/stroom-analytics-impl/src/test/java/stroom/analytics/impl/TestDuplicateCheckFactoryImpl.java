@@ -46,6 +46,7 @@ import stroom.util.shared.PageRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
 
 import java.nio.file.Path;
 import java.util.Collections;
@@ -93,6 +94,29 @@ class TestDuplicateCheckFactoryImpl {
         }
     }
 
+    @Test
+    void testBatch() {
+        final Values valuesA = Values.of("a");
+        final Values valuesB = Values.of("b");
+        final Values valuesC = Values.of("c");
+        final Values valuesD = Values.of("d");
+        final DuplicateCheckFactoryImpl duplicateCheckFactory = createDuplicateCheckFactory();
+        try (final DuplicateCheck duplicateCheck = createDuplicateCheck(duplicateCheckFactory, "test")) {
+            assertThat(duplicateCheck.check(List.of(valuesA, valuesB, valuesA)))
+                    .containsExactly(true, true, false);
+            assertThat(duplicateCheck.check(List.of(valuesA, valuesC)))
+                    .containsExactly(false, true);
+        }
+
+        // Store re-opened with the persisted bloom filter
+        try (final DuplicateCheck duplicateCheck2 = createDuplicateCheck(duplicateCheckFactory, "test")) {
+            assertThat(duplicateCheck2.check(List.of(valuesA, valuesB, valuesC, valuesD)))
+                    .containsExactly(false, false, false, true);
+            assertThat(duplicateCheck2.check(valuesD))
+                    .isFalse();
+        }
+    }
+
     @Test
     void testDifferentAnalytic() {
         final Values values = Values.of("test");
@@ -172,7 +196,8 @@ class TestDuplicateCheckFactoryImpl {
                 byteBuffers,
                 new DuplicateCheckStoreConfig(),
                 new DuplicateCheckRowSerde(byteBufferFactory),
-                Executors::newCachedThreadPool);
+                Executors::newCachedThreadPool,
+                Mockito.mock(DuplicateCheckMetrics.class));
     }
 
     private DuplicateCheck createDuplicateCheck(final DuplicateCheckFactoryImpl duplicateCheckFactory,
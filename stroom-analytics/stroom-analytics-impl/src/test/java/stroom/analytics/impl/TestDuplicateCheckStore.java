@@ -31,12 +31,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -63,6 +67,8 @@ class TestDuplicateCheckStore {
 
     @Mock
     private DuplicateCheckDirs mockDuplicateCheckDirs;
+    @Mock
+    private DuplicateCheckMetrics mockDuplicateCheckMetrics;
 
     @Test
     void test(@TempDir final Path tempDir) {
@@ -81,6 +87,7 @@ class TestDuplicateCheckStore {
                     duplicateCheckStoreConfig,
                     serde,
                     () -> executorService,
+                    mockDuplicateCheckMetrics,
                     UUID);
             duplicateCheckStore.writeColumnNames(List.of("col1", "col2", "col3"));
 
@@ -117,6 +124,124 @@ class TestDuplicateCheckStore {
         }
     }
 
+    @Test
+    void testConcurrentInserts(@TempDir final Path tempDir) throws Exception {
+        final LmdbEnvDir lmdbEnvDir = new LmdbEnvDir(tempDir, true);
+        Mockito.when(mockDuplicateCheckDirs.getDir(UUID))
+                .thenReturn(lmdbEnvDir);
+
+        final DuplicateCheckStoreConfig duplicateCheckStoreConfig = new DuplicateCheckStoreConfig();
+        final DuplicateCheckRowSerde serde = new DuplicateCheckRowSerde(byteBufferFactory);
+        final int threads = 4;
+        final List<DuplicateCheckRow> rows = IntStream.range(0, 500)
+                .mapToObj(i -> new DuplicateCheckRow(List.of("val1_" + i, "val2_" + i)))
+                .toList();
+
+        try (final ExecutorService executorService = Executors.newCachedThreadPool()) {
+            final DuplicateCheckStore duplicateCheckStore = new DuplicateCheckStore(
+                    mockDuplicateCheckDirs,
+                    byteBufferFactory,
+                    byteBuffers,
+                    duplicateCheckStoreConfig,
+                    serde,
+                    () -> executorService,
+                    mockDuplicateCheckMetrics,
+                    UUID);
+            duplicateCheckStore.writeColumnNames(List.of("col1", "col2"));
+
+            // Every thread tries to insert every row, so each row should only be new to one of them
+            final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    int inserted = 0;
+                    for (final DuplicateCheckRow row : rows) {
+                        if (duplicateCheckStore.tryInsert(row)) {
+                            inserted++;
+                        }
+                    }
+                    return inserted;
+                }, executorService));
+            }
+            int inserted = 0;
+            for (final CompletableFuture<Integer> future : futures) {
+                inserted += future.get(30, TimeUnit.SECONDS);
+            }
+            assertThat(inserted)
+                    .isEqualTo(rows.size());
+
+            duplicateCheckStore.flush();
+            assertThat(duplicateCheckStore.size())
+                    .isEqualTo(rows.size());
+            Mockito.verify(mockDuplicateCheckMetrics).addWriter(Mockito.any());
+            Mockito.verify(mockDuplicateCheckMetrics, Mockito.atLeastOnce()).recordCommit(Mockito.anyLong());
+
+            duplicateCheckStore.close();
+            Mockito.verify(mockDuplicateCheckMetrics).removeWriter(Mockito.any());
+        }
+    }
+
+    @Test
+    void testBloomFilterPersistence(@TempDir final Path tempDir) {
+        final LmdbEnvDir lmdbEnvDir = new LmdbEnvDir(tempDir, true);
+        Mockito.when(mockDuplicateCheckDirs.getDir(UUID))
+                .thenReturn(lmdbEnvDir);
+
+        final DuplicateCheckStoreConfig duplicateCheckStoreConfig = new DuplicateCheckStoreConfig();
+        final DuplicateCheckRowSerde serde = new DuplicateCheckRowSerde(byteBufferFactory);
+
+        try (final ExecutorService executorService = Executors.newSingleThreadExecutor()) {
+            DuplicateCheckStore duplicateCheckStore = new DuplicateCheckStore(
+                    mockDuplicateCheckDirs,
+                    byteBufferFactory,
+                    byteBuffers,
+                    duplicateCheckStoreConfig,
+                    serde,
+                    () -> executorService,
+                    mockDuplicateCheckMetrics,
+                    UUID);
+            duplicateCheckStore.writeColumnNames(List.of("col1", "col2", "col3"));
+            duplicateCheckStore.tryInsert(List.of(ROW_A, ROW_B));
+
+            // Not grown enough to be worth persisting on flush
+            duplicateCheckStore.flush();
+            assertThat(duplicateCheckStore.hasPersistedBloomFilter())
+                    .isFalse();
+
+            // Always persisted on close
+            duplicateCheckStore.close();
+            duplicateCheckStore = new DuplicateCheckStore(
+                    mockDuplicateCheckDirs,
+                    byteBufferFactory,
+                    byteBuffers,
+                    duplicateCheckStoreConfig,
+                    serde,
+                    () -> executorService,
+                    mockDuplicateCheckMetrics,
+                    UUID);
+            assertThat(duplicateCheckStore.hasPersistedBloomFilter())
+                    .isTrue();
+
+            // Removed as soon as the db changes
+            duplicateCheckStore.tryInsert(ROW_C);
+            duplicateCheckStore.flush();
+            assertThat(duplicateCheckStore.hasPersistedBloomFilter())
+                    .isFalse();
+
+            // Persisted on flush once it has grown enough
+            final List<DuplicateCheckRow> rows = IntStream.range(0, (int) DuplicateCheckBloomFilter.INITIAL_CAPACITY)
+                    .mapToObj(i -> new DuplicateCheckRow(List.of("val1_" + i, "val2_" + i, "val3_" + i)))
+                    .toList();
+            duplicateCheckStore.tryInsert(rows);
+            duplicateCheckStore.flush();
+            assertThat(duplicateCheckStore.hasPersistedBloomFilter())
+                    .isTrue();
+            assertThat(duplicateCheckStore.size())
+                    .isEqualTo(rows.size() + 3);
+
+            duplicateCheckStore.close();
+        }
+    }
+
     @Test
     void testLargeValue(@TempDir final Path tempDir) {
         final LmdbEnvDir lmdbEnvDir = new LmdbEnvDir(tempDir, true);
@@ -134,6 +259,7 @@ class TestDuplicateCheckStore {
                     duplicateCheckStoreConfig,
                     serde,
                     () -> executorService,
+                    mockDuplicateCheckMetrics,
                     UUID);
             duplicateCheckStore.writeColumnNames(List.of("col1", "col2", "col3"));
 
@@ -181,6 +307,7 @@ class TestDuplicateCheckStore {
                     duplicateCheckStoreConfig,
                     serde,
                     () -> executorService,
+                    mockDuplicateCheckMetrics,
                     UUID);
             duplicateCheckStore.writeColumnNames(List.of("col1", "col2", "col3"));
 
@@ -240,6 +367,7 @@ class TestDuplicateCheckStore {
                     duplicateCheckStoreConfig,
                     serde,
                     () -> executorService,
+                    mockDuplicateCheckMetrics,
                     UUID);
             duplicateCheckStore.writeColumnNames(List.of("col1", "col2", "col3"));
 
@@ -294,6 +422,7 @@ class TestDuplicateCheckStore {
                     duplicateCheckStoreConfig,
                     serde,
                     () -> executorService,
+                    mockDuplicateCheckMetrics,
                     UUID);
             try {
                 duplicateCheckStore.writeColumnNames(List.of("col1", "col2", "col3"));
@@ -357,6 +486,7 @@ class TestDuplicateCheckStore {
                         duplicateCheckStoreConfig,
                         serde,
                         () -> executorService,
+                        mockDuplicateCheckMetrics,
                         UUID);
 
                 duplicateCheckStore.writeColumnNames(List.of("favouriteAnimal", "favouriteThing"));
@@ -439,6 +569,7 @@ class TestDuplicateCheckStore {
                         duplicateCheckStoreConfig,
                         serde,
                         () -> executorService,
+                        mockDuplicateCheckMetrics,
                         UUID);
                 duplicateCheckStore.writeColumnNames(List.of("foo", "bar"));
                 duplicateCheckStore.flush();
@@ -464,6 +595,7 @@ class TestDuplicateCheckStore {
                         duplicateCheckStoreConfig,
                         serde,
                         () -> executorService,
+                        mockDuplicateCheckMetrics,
                         UUID);
 
                 // New env so no cols
@@ -512,6 +644,7 @@ class TestDuplicateCheckStore {
                         duplicateCheckStoreConfig,
                         serde,
                         () -> executorService,
+                        mockDuplicateCheckMetrics,
                         UUID);
                 // Add some cols
                 duplicateCheckStore.writeColumnNames(List.of("foo", "bar"));
@@ -529,6 +662,7 @@ class TestDuplicateCheckStore {
                         duplicateCheckStoreConfig,
                         serde,
                         () -> executorService,
+                        mockDuplicateCheckMetrics,
                         UUID);
 
                 // Cols still there
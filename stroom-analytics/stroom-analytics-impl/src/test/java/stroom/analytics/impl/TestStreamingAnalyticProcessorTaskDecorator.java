@@ -0,0 +1,326 @@
+package stroom.analytics.impl;
+
+import stroom.analytics.impl.StreamingAnalyticScanGroups.Member;
+import stroom.docref.DocRef;
+import stroom.meta.shared.Meta;
+import stroom.pipeline.errorhandler.ErrorReceiverProxy;
+import stroom.processor.api.ProcessorTaskService;
+import stroom.processor.shared.ProcessorFilter;
+import stroom.processor.shared.ProcessorTask;
+import stroom.query.common.v2.StringFieldValue;
+import stroom.search.extraction.AnalyticFieldListConsumer;
+import stroom.search.extraction.FieldListConsumerHolder;
+import stroom.search.extraction.FieldValue;
+import stroom.security.api.SecurityContext;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+class TestStreamingAnalyticProcessorTaskDecorator {
+
+    private static final long META_ID = 123L;
+
+    @Mock
+    private StreamingAnalyticCache mockStreamingAnalyticCache;
+    @Mock
+    private FieldListConsumerHolder mockFieldListConsumerHolder;
+    @Mock
+    private AnalyticsConfig mockAnalyticsConfig;
+    @Mock
+    private StreamingAnalyticScanGroups mockStreamingAnalyticScanGroups;
+    @Mock
+    private ProcessorTaskService mockProcessorTaskService;
+    @Mock
+    private SecurityContext mockSecurityContext;
+    @Mock
+    private ErrorReceiverProxy mockErrorReceiverProxy;
+
+    private final Map<String, StreamingAnalytic> analytics = new HashMap<>();
+    private final Map<String, RuleConsumer> ruleConsumers = new HashMap<>();
+    // Rules that fail to set up or fail while receiving events
+    private final Set<String> failingSetupRules = new HashSet<>();
+    private final Set<String> failingRules = new HashSet<>();
+
+    private ProcessorFilter filter1;
+    private ProcessorTask task2;
+    private ProcessorTask task3;
+
+    @BeforeEach
+    void setup() {
+        filter1 = createFilter(1);
+        final ProcessorFilter filter2 = createFilter(2);
+        final ProcessorFilter filter3 = createFilter(3);
+        task2 = createTask(22, filter2);
+        task3 = createTask(33, filter3);
+
+        Mockito.when(mockStreamingAnalyticCache.get(Mockito.any()))
+                .thenAnswer(invocation -> analytics.get(invocation.<DocRef>getArgument(0).getUuid()));
+        Mockito.when(mockAnalyticsConfig.isStreamingSharedScanEnabled())
+                .thenReturn(true);
+        Mockito.when(mockStreamingAnalyticScanGroups.getSharedScanCandidates(Mockito.eq(filter1), Mockito.any()))
+                .thenReturn(List.of(
+                        new Member(filter2, getAnalytic(filter2)),
+                        new Member(filter3, getAnalytic(filter3))));
+        Mockito.when(mockProcessorTaskService.claimTasks(META_ID, List.of(2, 3)))
+                .thenReturn(List.of(task2, task3));
+        Mockito.when(mockSecurityContext.asProcessingUserResult(Mockito.any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        Mockito.doAnswer(invocation -> {
+                    ((Runnable) invocation.getArgument(0)).run();
+                    return null;
+                })
+                .when(mockSecurityContext)
+                .asProcessingUser(Mockito.any());
+    }
+
+    @Test
+    void testSharedScan() {
+        final StreamingAnalyticProcessorTaskDecorator decorator = createDecorator();
+        decorator.beforeProcessing(filter1, createMeta());
+        sendEvents(3);
+        decorator.afterProcessing(true);
+
+        for (final String rule : List.of("rule1", "rule2", "rule3")) {
+            assertThat(ruleConsumers.get(rule).events)
+                    .isEqualTo(3);
+            assertThat(ruleConsumers.get(rule).ended)
+                    .isTrue();
+        }
+        Mockito.verify(mockProcessorTaskService).completeClaimedTask(task2);
+        Mockito.verify(mockProcessorTaskService).completeClaimedTask(task3);
+        Mockito.verify(mockProcessorTaskService, Mockito.never()).releaseClaimedTasks(Mockito.any());
+    }
+
+    @Test
+    void testLeaderFailureReleasesClaimedTasks() {
+        final StreamingAnalyticProcessorTaskDecorator decorator = createDecorator();
+        decorator.beforeProcessing(filter1, createMeta());
+        sendEvents(2);
+        // A fatal error part way through the stream or the task being terminated
+        decorator.afterProcessing(false);
+
+        // The other rules process the stream themselves
+        Mockito.verify(mockProcessorTaskService, Mockito.never()).completeClaimedTask(Mockito.any());
+        assertThat(getReleasedTasks())
+                .containsExactlyInAnyOrder(task2, task3);
+    }
+
+    @Test
+    void testLeaderSetupFailureReleasesClaimedTasks() {
+        failingSetupRules.add("rule1");
+        final StreamingAnalyticProcessorTaskDecorator decorator = createDecorator();
+        assertThatThrownBy(() -> decorator.beforeProcessing(filter1, createMeta()))
+                .isInstanceOf(RuntimeException.class);
+        decorator.afterProcessing(false);
+
+        Mockito.verify(mockProcessorTaskService, Mockito.never()).completeClaimedTask(Mockito.any());
+        assertThat(getReleasedTasks())
+                .containsExactlyInAnyOrder(task2, task3);
+    }
+
+    @Test
+    void testMemberFailureReleasesItsTask() {
+        failingRules.add("rule3");
+        final StreamingAnalyticProcessorTaskDecorator decorator = createDecorator();
+        decorator.beforeProcessing(filter1, createMeta());
+        sendEvents(3);
+        decorator.afterProcessing(true);
+
+        // The other rules are unaffected
+        assertThat(ruleConsumers.get("rule1").events)
+                .isEqualTo(3);
+        assertThat(ruleConsumers.get("rule2").events)
+                .isEqualTo(3);
+        Mockito.verify(mockProcessorTaskService).completeClaimedTask(task2);
+        Mockito.verify(mockProcessorTaskService, Mockito.never()).completeClaimedTask(task3);
+        // The rule will record the error against its own task when it processes the stream itself
+        assertThat(getReleasedTasks())
+                .containsExactly(task3);
+        Mockito.verifyNoInteractions(mockErrorReceiverProxy);
+    }
+
+    @Test
+    void testMemberSetupFailureReleasesItsTask() {
+        failingSetupRules.add("rule2");
+        final StreamingAnalyticProcessorTaskDecorator decorator = createDecorator();
+        decorator.beforeProcessing(filter1, createMeta());
+        sendEvents(1);
+        decorator.afterProcessing(true);
+
+        Mockito.verify(mockProcessorTaskService).completeClaimedTask(task3);
+        assertThat(getReleasedTasks())
+                .containsExactly(task2);
+    }
+
+    @Test
+    void testNothingClaimed() {
+        Mockito.when(mockProcessorTaskService.claimTasks(META_ID, List.of(2, 3)))
+                .thenReturn(List.of());
+        final StreamingAnalyticProcessorTaskDecorator decorator = createDecorator();
+        decorator.beforeProcessing(filter1, createMeta());
+        sendEvents(1);
+        decorator.afterProcessing(true);
+
+        assertThat(ruleConsumers)
+                .containsOnlyKeys("rule1");
+        Mockito.verify(mockProcessorTaskService, Mockito.never()).completeClaimedTask(Mockito.any());
+        Mockito.verify(mockProcessorTaskService, Mockito.never()).releaseClaimedTasks(Mockito.any());
+    }
+
+    @Test
+    void testSharedScanDisabled() {
+        Mockito.when(mockAnalyticsConfig.isStreamingSharedScanEnabled())
+                .thenReturn(false);
+        final StreamingAnalyticProcessorTaskDecorator decorator = createDecorator();
+        decorator.beforeProcessing(filter1, createMeta());
+        sendEvents(1);
+        decorator.afterProcessing(true);
+
+        assertThat(ruleConsumers)
+                .containsOnlyKeys("rule1");
+        Mockito.verifyNoInteractions(mockStreamingAnalyticScanGroups, mockProcessorTaskService);
+    }
+
+    private StreamingAnalyticProcessorTaskDecorator createDecorator() {
+        return new StreamingAnalyticProcessorTaskDecorator(
+                mockStreamingAnalyticCache,
+                null,
+                null,
+                null,
+                null,
+                mockFieldListConsumerHolder,
+                null,
+                null,
+                null,
+                () -> null,
+                () -> mockErrorReceiverProxy,
+                () -> mockAnalyticsConfig,
+                mockStreamingAnalyticScanGroups,
+                mockProcessorTaskService,
+                mockSecurityContext) {
+
+            @Override
+            Optional<AnalyticFieldListConsumer> createEventConsumer(
+                    final StreamingAnalytic analytic,
+                    final DetectionConsumerProxy detectionConsumerProxy) {
+                final String rule = analytic.ruleIdentity();
+                if (failingSetupRules.contains(rule)) {
+                    throw new RuntimeException("Bad rule " + rule);
+                }
+                final RuleConsumer ruleConsumer = new RuleConsumer(failingRules.contains(rule));
+                ruleConsumers.put(rule, ruleConsumer);
+                return Optional.of(ruleConsumer);
+            }
+        };
+    }
+
+    private void sendEvents(final int count) {
+        final ArgumentCaptor<AnalyticFieldListConsumer> captor = ArgumentCaptor.forClass(
+                AnalyticFieldListConsumer.class);
+        Mockito.verify(mockFieldListConsumerHolder).setFieldListConsumer(captor.capture());
+        for (int i = 0; i < count; i++) {
+            captor.getValue().acceptStringValues(List.of());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProcessorTask> getReleasedTasks() {
+        final ArgumentCaptor<Collection<ProcessorTask>> captor = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(mockProcessorTaskService, Mockito.atLeastOnce()).releaseClaimedTasks(captor.capture());
+        return captor.getAllValues()
+                .stream()
+                .flatMap(Collection::stream)
+                .toList();
+    }
+
+    private ProcessorFilter createFilter(final int id) {
+        final String ruleUuid = "rule" + id;
+        analytics.put(ruleUuid, new StreamingAnalytic(ruleUuid, null, null, null));
+        return ProcessorFilter.builder()
+                .id(id)
+                .pipelineUuid(ruleUuid)
+                .enabled(true)
+                .build();
+    }
+
+    private ProcessorTask createTask(final long id, final ProcessorFilter filter) {
+        final ProcessorTask task = new ProcessorTask();
+        task.setId(id);
+        task.setMetaId(META_ID);
+        task.setProcessorFilter(filter);
+        return task;
+    }
+
+    private StreamingAnalytic getAnalytic(final ProcessorFilter filter) {
+        return analytics.get(filter.getPipelineUuid());
+    }
+
+    private Meta createMeta() {
+        return Meta.builder()
+                .id(META_ID)
+                .build();
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static class RuleConsumer implements AnalyticFieldListConsumer {
+
+        private final boolean fail;
+        private int events;
+        private boolean ended;
+
+        private RuleConsumer(final boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override
+        public void acceptFieldValues(final List<FieldValue> fieldValues) {
+            accept();
+        }
+
+        @Override
+        public void acceptStringValues(final List<StringFieldValue> stringValues) {
+            accept();
+        }
+
+        private void accept() {
+            if (fail) {
+                throw new RuntimeException("Rule failed");
+            }
+            events++;
+        }
+
+        @Override
+        public void start() {
+
+        }
+
+        @Override
+        public void end() {
+            ended = true;
+        }
+    }
+}
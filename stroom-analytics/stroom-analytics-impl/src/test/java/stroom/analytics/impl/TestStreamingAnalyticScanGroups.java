@@ -0,0 +1,134 @@
+package stroom.analytics.impl;
+
+import stroom.analytics.impl.StreamingAnalyticScanGroups.Member;
+import stroom.docref.DocRef;
+import stroom.entity.shared.ExpressionCriteria;
+import stroom.meta.shared.MetaFields;
+import stroom.pipeline.shared.PipelineDoc;
+import stroom.processor.api.ProcessorFilterService;
+import stroom.processor.shared.ProcessorFilter;
+import stroom.processor.shared.QueryData;
+import stroom.query.api.ExpressionOperator;
+import stroom.query.api.ExpressionTerm.Condition;
+import stroom.security.api.SecurityContext;
+import stroom.util.shared.ResultPage;
+import stroom.util.shared.UserRef;
+import stroom.view.shared.ViewDoc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class TestStreamingAnalyticScanGroups {
+
+    private static final UserRef RUN_AS_USER = UserRef.forUserUuid("user1");
+    private static final QueryData QUERY_DATA = QueryData.builder()
+            .expression(ExpressionOperator.builder()
+                    .addTextTerm(MetaFields.TYPE, Condition.EQUALS, "Events")
+                    .build())
+            .build();
+    private static final DocRef PIPELINE_1 = new DocRef(PipelineDoc.TYPE, "pipeline1");
+    private static final DocRef PIPELINE_2 = new DocRef(PipelineDoc.TYPE, "pipeline2");
+
+    @Mock
+    private ProcessorFilterService mockProcessorFilterService;
+    @Mock
+    private StreamingAnalyticCache mockStreamingAnalyticCache;
+    @Mock
+    private SecurityContext mockSecurityContext;
+
+    private final Map<String, StreamingAnalytic> analytics = new HashMap<>();
+
+    @Test
+    void testSharedScanCandidates() {
+        final ProcessorFilter filter1 = createFilter(1, PIPELINE_1);
+        final ProcessorFilter filter2 = createFilter(2, PIPELINE_1);
+        final ProcessorFilter filter3 = createFilter(3, PIPELINE_1);
+        final StreamingAnalyticScanGroups scanGroups = createScanGroups(filter3, filter1, filter2);
+
+        // Every other rule is a candidate, in filter id order
+        assertThat(scanGroups.getSharedScanCandidates(filter1, getAnalytic(filter1)))
+                .extracting(member -> member.processorFilter().getId())
+                .containsExactly(2, 3);
+        assertThat(scanGroups.getSharedScanCandidates(filter3, getAnalytic(filter3)))
+                .extracting(member -> member.processorFilter().getId())
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    void testNotSharedScanCandidates() {
+        final ProcessorFilter filter1 = createFilter(1, PIPELINE_1);
+        // Different pipeline
+        final ProcessorFilter filter2 = createFilter(2, PIPELINE_2);
+        // Different user
+        final ProcessorFilter filter3 = createFilter(3, PIPELINE_1).copy()
+                .runAsUser(UserRef.forUserUuid("user2"))
+                .build();
+        // Reprocessing
+        final ProcessorFilter filter4 = createFilter(4, PIPELINE_1).copy()
+                .reprocess(true)
+                .build();
+        final StreamingAnalyticScanGroups scanGroups = createScanGroups(filter1, filter2, filter3, filter4);
+
+        assertThat(scanGroups.getSharedScanCandidates(filter1, getAnalytic(filter1)))
+                .isEmpty();
+    }
+
+    @Test
+    void testReprocess() {
+        final ProcessorFilter filter1 = createFilter(1, PIPELINE_1).copy()
+                .reprocess(true)
+                .build();
+        final StreamingAnalyticScanGroups scanGroups = new StreamingAnalyticScanGroups(
+                mockProcessorFilterService,
+                mockStreamingAnalyticCache,
+                mockSecurityContext);
+
+        assertThat(scanGroups.getSharedScanCandidates(filter1, getAnalytic(filter1)))
+                .isEmpty();
+        Mockito.verifyNoInteractions(mockProcessorFilterService);
+    }
+
+    private StreamingAnalyticScanGroups createScanGroups(final ProcessorFilter... filters) {
+        Mockito.when(mockSecurityContext.asProcessingUserResult(Mockito.any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        Mockito.when(mockProcessorFilterService.find(Mockito.any(ExpressionCriteria.class)))
+                .thenReturn(ResultPage.createUnboundedList(Arrays.asList(filters)));
+        Mockito.lenient().when(mockStreamingAnalyticCache.get(Mockito.any()))
+                .thenAnswer(invocation -> analytics.get(invocation.<DocRef>getArgument(0).getUuid()));
+        return new StreamingAnalyticScanGroups(
+                mockProcessorFilterService,
+                mockStreamingAnalyticCache,
+                mockSecurityContext);
+    }
+
+    private ProcessorFilter createFilter(final int id, final DocRef pipeline) {
+        final String ruleUuid = "rule" + id;
+        final ViewDoc viewDoc = new ViewDoc();
+        viewDoc.setPipeline(pipeline);
+        analytics.put(ruleUuid, new StreamingAnalytic(ruleUuid, null, null, viewDoc));
+
+        return ProcessorFilter.builder()
+                .id(id)
+                .pipelineUuid(ruleUuid)
+                .queryData(QUERY_DATA)
+                .runAsUser(RUN_AS_USER)
+                .enabled(true)
+                .build();
+    }
+
+    private StreamingAnalytic getAnalytic(final ProcessorFilter filter) {
+        return analytics.get(filter.getPipelineUuid());
+    }
+}
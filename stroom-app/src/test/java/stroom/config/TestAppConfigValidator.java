@@ -63,7 +63,9 @@ public class TestAppConfigValidator extends AbstractCoreIntegrationTest {
                 types,
                 rawTypes,
                 dataFormats,
-                0);
+                0,
+                null,
+                null);
 
         final Result<AbstractConfig> result = appConfigValidator.validate(metaServiceConfig);
 
@@ -0,0 +1,76 @@
+package stroom.benchmark;
+
+import stroom.bytebuffer.ByteBufferPool;
+import stroom.bytebuffer.ByteBufferPoolConfig;
+import stroom.bytebuffer.ByteBufferPoolImpl4;
+import stroom.bytebuffer.PooledByteBuffer;
+import stroom.bytebuffer.impl6.ByteBufferPoolImpl6;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Measures the cost of borrowing and returning buffers from the byte buffer pool implementations with several
+ * threads contending for the pool.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@Threads(4)
+public class ByteBufferPoolBenchmark {
+
+    @Param({"IMPL_4", "IMPL_6"})
+    private String poolType;
+
+    @Param({"64", "1024", "65536"})
+    private int capacity;
+
+    private ByteBufferPool byteBufferPool;
+
+    @Setup
+    public void setup() {
+        final ByteBufferPoolConfig byteBufferPoolConfig = new ByteBufferPoolConfig();
+        byteBufferPool = switch (poolType) {
+            case "IMPL_4" -> new ByteBufferPoolImpl4(() -> byteBufferPoolConfig);
+            case "IMPL_6" -> new ByteBufferPoolImpl6(() -> byteBufferPoolConfig);
+            default -> throw new IllegalArgumentException("Unknown pool type " + poolType);
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        byteBufferPool.clear();
+    }
+
+    @Benchmark
+    public void getPooledByteBuffer(final Blackhole blackhole) {
+        try (final PooledByteBuffer pooledByteBuffer = byteBufferPool.getPooledByteBuffer(capacity)) {
+            final ByteBuffer byteBuffer = pooledByteBuffer.getByteBuffer();
+            byteBuffer.putLong(0, capacity);
+            blackhole.consume(byteBuffer);
+        }
+    }
+
+    @Benchmark
+    public void doWithBuffer(final Blackhole blackhole) {
+        byteBufferPool.doWithBuffer(capacity, byteBuffer -> {
+            byteBuffer.putLong(0, capacity);
+            blackhole.consume(byteBuffer);
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package stroom.benchmark;
+
+import stroom.expression.matcher.ExpressionMatcher;
+import stroom.meta.shared.MetaFields;
+import stroom.query.api.ExpressionOperator;
+import stroom.query.api.ExpressionOperator.Op;
+import stroom.query.api.ExpressionTerm.Condition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Measures finding the first matching data retention rule for a set of streams, interpreting the
+ * rule expressions for each stream vs compiling them once.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+public class ExpressionMatcherBenchmark {
+
+    private static final int META_COUNT = 10_000;
+    private static final int FEED_COUNT = 100;
+    private static final String[] TYPES = {"Raw Events", "Events", "Raw Reference", "Reference", "Error"};
+
+    private final ExpressionMatcher expressionMatcher = new ExpressionMatcher(MetaFields.getFieldMap());
+    private final List<Map<String, Object>> attributeMaps = new ArrayList<>(META_COUNT);
+    private final List<ExpressionOperator> rules = new ArrayList<>();
+    private final List<Predicate<Map<String, Object>>> compiledRules = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        final long now = System.currentTimeMillis();
+        for (int i = 0; i < META_COUNT; i++) {
+            final Map<String, Object> attributeMap = new HashMap<>();
+            attributeMap.put(MetaFields.ID.getFldName(), (long) i);
+            attributeMap.put(MetaFields.FEED.getFldName(), "FEED_" + (i % FEED_COUNT) + "-EVENTS");
+            attributeMap.put(MetaFields.TYPE.getFldName(), TYPES[i % TYPES.length]);
+            attributeMap.put(MetaFields.STATUS.getFldName(), "Unlocked");
+            attributeMap.put(MetaFields.CREATE_TIME.getFldName(), now - (i * 60_000L));
+            attributeMap.put(MetaFields.REC_ERROR.getFldName(), (long) (i % 3));
+            attributeMaps.add(attributeMap);
+        }
+
+        // A typical set of retention rules, most specific first with the most general rules
+        // matching most of the streams at the end.
+        for (int i = 0; i < 20; i++) {
+            rules.add(ExpressionOperator.builder()
+                    .addTextTerm(MetaFields.FEED, Condition.EQUALS, "FEED_" + (i * 7) + "-EVENTS")
+                    .addTextTerm(MetaFields.TYPE, Condition.IN, "Events Reference")
+                    .build());
+        }
+        rules.add(ExpressionOperator.builder()
+                .addTextTerm(MetaFields.FEED, Condition.EQUALS, "*_9*-EVENTS")
+                .addTerm(MetaFields.REC_ERROR.getFldName(), Condition.GREATER_THAN, "0")
+                .addDateTerm(MetaFields.CREATE_TIME, Condition.LESS_THAN, "2020-01-01T00:00:00.000Z")
+                .build());
+        rules.add(ExpressionOperator.builder()
+                .op(Op.OR)
+                .addTextTerm(MetaFields.TYPE, Condition.EQUALS, "Error")
+                .addTerm(MetaFields.ID.getFldName(), Condition.IN, "1,2,3,4,5,6,7,8,9,10")
+                .build());
+        rules.add(ExpressionOperator.builder()
+                .addTextTerm(MetaFields.TYPE, Condition.EQUALS, "Raw*")
+                .build());
+
+        rules.forEach(rule -> compiledRules.add(expressionMatcher.compile(rule)));
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int total = 0;
+        for (final Map<String, Object> attributeMap : attributeMaps) {
+            for (int i = 0; i < rules.size(); i++) {
+                if (expressionMatcher.match(attributeMap, rules.get(i))) {
+                    total += i;
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int total = 0;
+        for (final Map<String, Object> attributeMap : attributeMaps) {
+            for (int i = 0; i < compiledRules.size(); i++) {
+                if (compiledRules.get(i).test(attributeMap)) {
+                    total += i;
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,93 @@
+package stroom.benchmark;
+
+import stroom.query.api.ExpressionOperator;
+import stroom.query.api.ExpressionTerm.Condition;
+import stroom.query.api.datasource.QueryField;
+import stroom.query.common.v2.ExpressionPredicateFactory;
+import stroom.query.common.v2.ExpressionPredicateFactory.ValueFunctionFactories;
+import stroom.query.common.v2.StringValueFunctionFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.function.Predicate;
+
+/**
+ * Measures building predicates from expressions and quick filters and testing values against them.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+public class ExpressionPredicateFactoryBenchmark {
+
+    private static final QueryField FIELD = QueryField.createText("UserId");
+    private static final int VALUE_COUNT = 1_000;
+
+    @Param({"EQUALS", "EQUALS_WILDCARD", "CONTAINS", "MATCHES_REGEX", "IN"})
+    private String termType;
+
+    private final ExpressionPredicateFactory expressionPredicateFactory = new ExpressionPredicateFactory();
+    private final ValueFunctionFactories<String> valueFunctionFactories = StringValueFunctionFactory.create(FIELD);
+    private final String[] values = new String[VALUE_COUNT];
+    private ExpressionOperator expression;
+    private Predicate<String> predicate;
+    private Predicate<String> quickFilterPredicate;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            values[i] = "user" + i + "@example.com";
+        }
+        final ExpressionOperator.Builder builder = ExpressionOperator.builder();
+        switch (termType) {
+            case "EQUALS" -> builder.addTextTerm(FIELD, Condition.EQUALS, "user500@example.com");
+            case "EQUALS_WILDCARD" -> builder.addTextTerm(FIELD, Condition.EQUALS, "user5*@example.com");
+            case "CONTAINS" -> builder.addTextTerm(FIELD, Condition.CONTAINS, "500@");
+            case "MATCHES_REGEX" -> builder.addTextTerm(FIELD, Condition.MATCHES_REGEX, "^user5[0-9]+@.*$");
+            case "IN" -> builder.addTextTerm(FIELD,
+                    Condition.IN,
+                    "user1@example.com user50@example.com user500@example.com");
+            default -> throw new IllegalArgumentException("Unknown term type " + termType);
+        }
+        expression = builder.build();
+        predicate = expressionPredicateFactory.create(expression, valueFunctionFactories);
+        quickFilterPredicate = expressionPredicateFactory.create("user5 example");
+    }
+
+    @Benchmark
+    public Predicate<String> createPredicate() {
+        return expressionPredicateFactory.create(expression, valueFunctionFactories);
+    }
+
+    @Benchmark
+    public int testPredicate() {
+        int matches = 0;
+        for (final String value : values) {
+            if (predicate.test(value)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int testQuickFilter() {
+        int matches = 0;
+        for (final String value : values) {
+            if (quickFilterPredicate.test(value)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
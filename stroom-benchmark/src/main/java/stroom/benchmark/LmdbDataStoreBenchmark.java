@@ -0,0 +1,223 @@
+package stroom.benchmark;
+
+import stroom.bytebuffer.impl6.ByteBufferFactoryImpl;
+import stroom.lmdb.LmdbLibrary;
+import stroom.lmdb.LmdbLibraryConfig;
+import stroom.lmdb2.LmdbEnv;
+import stroom.lmdb2.LmdbEnvDir;
+import stroom.lmdb2.LmdbEnvDirFactory;
+import stroom.query.api.Column;
+import stroom.query.api.Format;
+import stroom.query.api.OffsetRange;
+import stroom.query.api.ParamUtil;
+import stroom.query.api.QueryKey;
+import stroom.query.api.ResultRequest;
+import stroom.query.api.SearchRequestSource;
+import stroom.query.api.TableSettings;
+import stroom.query.common.v2.AnnotationMapperFactory;
+import stroom.query.common.v2.DataStore;
+import stroom.query.common.v2.DataStoreSettings;
+import stroom.query.common.v2.ErrorConsumerImpl;
+import stroom.query.common.v2.ExpressionPredicateFactory;
+import stroom.query.common.v2.LmdbDataStore;
+import stroom.query.common.v2.SearchResultStoreConfig;
+import stroom.query.common.v2.Sizes;
+import stroom.query.common.v2.TableResultCreator;
+import stroom.query.language.functions.ExpressionContext;
+import stroom.query.language.functions.FieldIndex;
+import stroom.query.language.functions.Val;
+import stroom.query.language.functions.ValLong;
+import stroom.query.language.functions.ValString;
+import stroom.util.io.FileUtil;
+import stroom.util.io.PathCreator;
+import stroom.util.io.SimplePathCreator;
+import stroom.util.shared.Result;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding rows to an {@link LmdbDataStore} and fetching pages of results from it.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LmdbDataStoreBenchmark {
+
+    @Benchmark
+    public void put(final PutState state) {
+        final DataStore dataStore = state.create();
+        try {
+            load(dataStore, state.rows, state.grouped);
+        } finally {
+            dataStore.clear();
+        }
+    }
+
+    @Benchmark
+    public Result get(final GetState state) {
+        final ResultRequest resultRequest = ResultRequest.builder()
+                .componentId("0")
+                .addMappings(state.tableSettings)
+                .requestedRange(new OffsetRange(state.offset, 100))
+                .build();
+        // Move through the results a page at a time.
+        state.offset = (state.offset + 100) % state.rows;
+        return new TableResultCreator().create(state.dataStore, resultRequest);
+    }
+
+    private static void load(final DataStore dataStore, final int rows, final boolean grouped) {
+        final int groups = grouped
+                ? Math.max(1, rows / 10)
+                : rows;
+        for (int i = 0; i < rows; i++) {
+            dataStore.accept(Val.of(ValString.create("key" + (i % groups)), ValLong.create(i)));
+        }
+        try {
+            dataStore.getCompletionState().signalComplete();
+            dataStore.getCompletionState().awaitCompletion();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+
+
+    @State(Scope.Benchmark)
+    public static class PutState {
+
+        @Param({"10000", "100000"})
+        int rows;
+
+        @Param({"false", "true"})
+        boolean grouped;
+
+        private Path tempDir;
+        private ExecutorService executorService;
+        private TableSettings tableSettings;
+
+        @Setup
+        public void setup() throws IOException {
+            tempDir = Files.createTempDirectory("stroom-benchmark");
+            executorService = Executors.newCachedThreadPool();
+            tableSettings = createTableSettings(grouped);
+        }
+
+        @TearDown
+        public void tearDown() {
+            executorService.shutdownNow();
+            FileUtil.deleteDir(tempDir);
+        }
+
+        DataStore create() {
+            final PathCreator pathCreator = new SimplePathCreator(() -> tempDir, () -> tempDir);
+            final SearchResultStoreConfig resultStoreConfig = new SearchResultStoreConfig();
+            final LmdbEnvDirFactory lmdbEnvDirFactory = new LmdbEnvDirFactory(
+                    new LmdbLibrary(pathCreator, () -> tempDir, LmdbLibraryConfig::new), pathCreator);
+            final LmdbEnvDir lmdbEnvDir = lmdbEnvDirFactory
+                    .builder()
+                    .config(resultStoreConfig.getLmdbConfig())
+                    .subDir(UUID.randomUUID().toString())
+                    .build();
+            final LmdbEnv.Builder lmdbEnvBuilder = LmdbEnv
+                    .builder()
+                    .config(resultStoreConfig.getLmdbConfig())
+                    .lmdbEnvDir(lmdbEnvDir);
+            final DataStoreSettings dataStoreSettings = DataStoreSettings
+                    .createBasicSearchResultStoreSettings()
+                    .copy()
+                    .maxResults(Sizes.unlimited())
+                    .build();
+            return new LmdbDataStore(
+                    SearchRequestSource.createBasic(),
+                    lmdbEnvBuilder,
+                    resultStoreConfig,
+                    new QueryKey(UUID.randomUUID().toString()),
+                    "0",
+                    tableSettings,
+                    new ExpressionContext(),
+                    new FieldIndex(),
+                    Collections.emptyMap(),
+                    dataStoreSettings,
+                    () -> executorService,
+                    new ErrorConsumerImpl(),
+                    new ByteBufferFactoryImpl(),
+                    new ExpressionPredicateFactory(),
+                    AnnotationMapperFactory.NO_OP,
+                    null);
+        }
+
+        private static TableSettings createTableSettings(final boolean grouped) {
+            final Column.Builder keyColumn = Column.builder()
+                    .id("Key")
+                    .name("Key")
+                    .expression(ParamUtil.create("Key"))
+                    .format(Format.TEXT);
+            final Column.Builder valueColumn = Column.builder()
+                    .id("Value")
+                    .name("Value")
+                    .format(Format.NUMBER);
+            if (grouped) {
+                keyColumn.group(0);
+                valueColumn.expression("sum(" + ParamUtil.create("Value") + ")");
+            } else {
+                valueColumn.expression(ParamUtil.create("Value"));
+            }
+            return TableSettings.builder()
+                    .addColumns(keyColumn.build())
+                    .addColumns(valueColumn.build())
+                    .build();
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+
+
+    @State(Scope.Benchmark)
+    public static class GetState extends PutState {
+
+        private DataStore dataStore;
+        private int offset;
+
+        @Override
+        @Setup
+        public void setup() throws IOException {
+            super.setup();
+            dataStore = create();
+            load(dataStore, rows, grouped);
+            if (grouped) {
+                rows = Math.max(1, rows / 10);
+            }
+        }
+
+        @Override
+        @TearDown
+        public void tearDown() {
+            dataStore.clear();
+            super.tearDown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package stroom.benchmark;
+
+import stroom.bytebuffer.PooledByteBufferOutputStream;
+import stroom.pipeline.refdata.ReferenceDataConfig;
+import stroom.pipeline.refdata.ReferenceDataLmdbConfig;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefDataStore;
+import stroom.pipeline.refdata.store.RefDataStoreFactory;
+import stroom.pipeline.refdata.store.RefDataStoreTestModule;
+import stroom.pipeline.refdata.store.RefDataValue;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.StagingValueOutputStream;
+import stroom.pipeline.refdata.store.StringValue;
+import stroom.pipeline.refdata.store.ValueStoreHashAlgorithm;
+import stroom.util.io.FileUtil;
+import stroom.util.shared.Range;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures key/value and range lookups against a loaded {@link RefDataStore} with several threads reading
+ * concurrently.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.Throughput)
+@Threads(4)
+public class RefDataOffHeapStoreBenchmark {
+
+    private static final String KV_MAP_NAME = "KV";
+    private static final String RANGE_MAP_NAME = "Range";
+
+    @Param({"1000", "100000"})
+    private int entryCount;
+
+    private Path tempDir;
+    private RefDataStore refDataStore;
+    private MapDefinition keyValueMapDefinition;
+    private MapDefinition rangeMapDefinition;
+
+    @Setup
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("stroom-benchmark");
+        final ReferenceDataConfig referenceDataConfig = new ReferenceDataConfig()
+                .withLmdbConfig(new ReferenceDataLmdbConfig()
+                        .withLocalDir(tempDir.toAbsolutePath().toString())
+                        .withReaderBlockedByWriter(false));
+        final Injector injector = Guice.createInjector(new RefDataStoreTestModule(
+                () -> referenceDataConfig,
+                () -> tempDir,
+                () -> tempDir));
+        refDataStore = injector.getInstance(RefDataStoreFactory.class).getOffHeapStore();
+
+        final RefStreamDefinition refStreamDefinition = RefDataStoreTestModule.REF_STREAM_1_DEF;
+        keyValueMapDefinition = new MapDefinition(refStreamDefinition, KV_MAP_NAME);
+        rangeMapDefinition = new MapDefinition(refStreamDefinition, RANGE_MAP_NAME);
+
+        final ValueStoreHashAlgorithm valueStoreHashAlgorithm = injector.getInstance(ValueStoreHashAlgorithm.class);
+        final PooledByteBufferOutputStream.Factory pooledByteBufferOutputStreamFactory =
+                injector.getInstance(PooledByteBufferOutputStream.Factory.class);
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, System.currentTimeMillis(), loader -> {
+            loader.initialise(false);
+            try (final StagingValueOutputStream stagingValueOutputStream = new StagingValueOutputStream(
+                    valueStoreHashAlgorithm,
+                    pooledByteBufferOutputStreamFactory)) {
+                for (int i = 0; i < entryCount; i++) {
+                    writeValue(stagingValueOutputStream, "value" + i);
+                    loader.put(keyValueMapDefinition, buildKey(i), stagingValueOutputStream);
+                    writeValue(stagingValueOutputStream, "rangeValue" + i);
+                    loader.put(rangeMapDefinition, Range.of(i * 10L, (i * 10L) + 10), stagingValueOutputStream);
+                }
+            }
+            loader.completeProcessing();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.deleteDir(tempDir);
+    }
+
+    @Benchmark
+    public Optional<RefDataValue> getKeyValue() {
+        final int i = ThreadLocalRandom.current().nextInt(entryCount);
+        return refDataStore.getValue(keyValueMapDefinition, buildKey(i));
+    }
+
+    @Benchmark
+    public Optional<RefDataValue> getRangeValue() {
+        final long key = ThreadLocalRandom.current().nextLong(entryCount * 10L);
+        return refDataStore.getValue(rangeMapDefinition, Long.toString(key));
+    }
+
+    @Benchmark
+    public Optional<RefDataValue> getMissingValue() {
+        final int i = ThreadLocalRandom.current().nextInt(entryCount);
+        return refDataStore.getValue(keyValueMapDefinition, "missing" + i);
+    }
+
+    private static String buildKey(final int i) {
+        return "key" + i;
+    }
+
+    private static void writeValue(final StagingValueOutputStream stagingValueOutputStream, final String value) {
+        stagingValueOutputStream.clear();
+        try {
+            stagingValueOutputStream.write(value);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stagingValueOutputStream.setTypeId(StringValue.TYPE_ID);
+    }
+}
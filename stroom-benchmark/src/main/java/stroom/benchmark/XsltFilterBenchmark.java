@@ -0,0 +1,201 @@
+package stroom.benchmark;
+
+import stroom.pipeline.LocationFactory;
+import stroom.pipeline.LocationFactoryProxy;
+import stroom.pipeline.cache.PoolItem;
+import stroom.pipeline.cache.PoolKey;
+import stroom.pipeline.cache.StoredXsltExecutable;
+import stroom.pipeline.cache.XsltPool;
+import stroom.pipeline.errorhandler.ErrorReceiver;
+import stroom.pipeline.errorhandler.ErrorReceiverProxy;
+import stroom.pipeline.errorhandler.FatalErrorReceiver;
+import stroom.pipeline.errorhandler.StoredErrorReceiver;
+import stroom.pipeline.filter.XsltConfig;
+import stroom.pipeline.filter.XsltFilter;
+import stroom.pipeline.shared.XsltDoc;
+import stroom.pipeline.shared.data.PipelineReference;
+import stroom.pipeline.state.PipelineContext;
+
+import net.sf.saxon.s9api.Processor;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XsltExecutable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Measures transforming sample event XML with an {@link XsltFilter}. The XSLT is compiled once in setup to
+ * mimic a warm XSLT pool so the benchmark measures the transform rather than compilation. A parse only
+ * benchmark is included as a baseline for the cost of producing the SAX events.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class XsltFilterBenchmark {
+
+    private static final String XSLT = """
+            <?xml version="1.0" encoding="UTF-8" ?>
+            <xsl:stylesheet
+                xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                version="3.0">
+              <xsl:template match="/Events">
+                <Records>
+                  <xsl:apply-templates select="Event"/>
+                </Records>
+              </xsl:template>
+              <xsl:template match="Event">
+                <Record>
+                  <data name="Id" value="{Id}"/>
+                  <data name="Time" value="{Time}"/>
+                  <data name="User" value="{upper-case(User)}"/>
+                  <data name="Action" value="{Action}"/>
+                  <xsl:if test="Action = 'Logon'">
+                    <data name="Host" value="{substring-before(Host, '.')}"/>
+                  </xsl:if>
+                </Record>
+              </xsl:template>
+            </xsl:stylesheet>
+            """;
+
+    @Param({"100", "10000"})
+    private int eventCount;
+
+    private String eventXml;
+    private XsltDoc xsltDoc;
+    private XsltPool xsltPool;
+    private SAXParserFactory saxParserFactory;
+
+    @Setup
+    public void setup() throws SaxonApiException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Events>\n");
+        for (int i = 0; i < eventCount; i++) {
+            sb.append("<Event><Id>")
+                    .append(i)
+                    .append("</Id><Time>2024-01-01T00:00:")
+                    .append(String.format("%02d", i % 60))
+                    .append(".000Z</Time><User>user")
+                    .append(i % 100)
+                    .append("</User><Action>")
+                    .append(i % 3 == 0
+                            ? "Logon"
+                            : "Logoff")
+                    .append("</Action><Host>host")
+                    .append(i % 10)
+                    .append(".example.com</Host></Event>\n");
+        }
+        sb.append("</Events>\n");
+        eventXml = sb.toString();
+
+        xsltDoc = new XsltDoc();
+        xsltDoc.setType(XsltDoc.TYPE);
+        xsltDoc.setUuid(UUID.randomUUID().toString());
+        xsltDoc.setName("Benchmark");
+        xsltDoc.setData(XSLT);
+
+        final Processor processor = new Processor(false);
+        final XsltExecutable xsltExecutable = processor.newXsltCompiler()
+                .compile(new StreamSource(new StringReader(XSLT)));
+        xsltPool = new FixedXsltPool(new PoolItem<>(
+                new PoolKey<>(xsltDoc),
+                new StoredXsltExecutable(xsltExecutable, null, new StoredErrorReceiver())));
+
+        saxParserFactory = SAXParserFactory.newInstance();
+        saxParserFactory.setNamespaceAware(true);
+    }
+
+    @Benchmark
+    public void transform() throws ParserConfigurationException, SAXException, IOException {
+        final XsltDoc xsltDoc = this.xsltDoc;
+        final XsltFilter xsltFilter = new XsltFilter(
+                xsltPool,
+                new ErrorReceiverProxy(new FatalErrorReceiver()),
+                null,
+                new XsltConfig(),
+                new LocationFactoryProxy(),
+                new PipelineContext(),
+                null,
+                null,
+                null,
+                null) {
+            @Override
+            public XsltDoc loadXsltDoc() {
+                return xsltDoc;
+            }
+        };
+
+        xsltFilter.startProcessing();
+        try {
+            final XMLReader xmlReader = saxParserFactory.newSAXParser().getXMLReader();
+            xmlReader.setContentHandler(xsltFilter);
+            xmlReader.parse(new InputSource(new StringReader(eventXml)));
+        } finally {
+            xsltFilter.endProcessing();
+        }
+    }
+
+    @Benchmark
+    public void parseOnly() throws ParserConfigurationException, SAXException, IOException {
+        final XMLReader xmlReader = saxParserFactory.newSAXParser().getXMLReader();
+        xmlReader.setContentHandler(new DefaultHandler());
+        xmlReader.parse(new InputSource(new StringReader(eventXml)));
+    }
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * Always hands out the same pre-compiled XSLT.
+     */
+    private static class FixedXsltPool implements XsltPool {
+
+        private final PoolItem<StoredXsltExecutable> poolItem;
+
+        private FixedXsltPool(final PoolItem<StoredXsltExecutable> poolItem) {
+            this.poolItem = poolItem;
+        }
+
+        @Override
+        public PoolItem<StoredXsltExecutable> borrowConfiguredTemplate(
+                final XsltDoc k,
+                final ErrorReceiver errorReceiver,
+                final LocationFactory locationFactory,
+                final List<PipelineReference> pipelineReferences,
+                final boolean usePool) {
+            return poolItem;
+        }
+
+        @Override
+        public PoolItem<StoredXsltExecutable> borrowObject(final XsltDoc key, final boolean usePool) {
+            return poolItem;
+        }
+
+        @Override
+        public void returnObject(final PoolItem<StoredXsltExecutable> poolItem, final boolean usePool) {
+        }
+    }
+}
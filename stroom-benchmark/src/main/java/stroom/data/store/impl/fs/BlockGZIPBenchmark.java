@@ -0,0 +1,110 @@
+package stroom.data.store.impl.fs;
+
+import stroom.util.io.FileUtil;
+import stroom.util.io.StreamUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading block GZIP files. This lives in the same package as the block GZIP classes as they
+ * are package private.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlockGZIPBenchmark {
+
+    private static final int DATA_SIZE = 10 * 1024 * 1024;
+
+    @Param({"100000", "1000000"})
+    private int blockSize;
+
+    private Path tempDir;
+    private Path writeFile;
+    private Path readFile;
+    private byte[] data;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("stroom-benchmark");
+        writeFile = tempDir.resolve("write.bgz");
+        readFile = tempDir.resolve("read.bgz");
+
+        // Repetitive event like data so that it compresses in a similar way to real data.
+        final StringBuilder sb = new StringBuilder(DATA_SIZE);
+        int i = 0;
+        while (sb.length() < DATA_SIZE) {
+            sb.append("<Event><Id>")
+                    .append(i)
+                    .append("</Id><User>user")
+                    .append(i % 100)
+                    .append("</User><Action>")
+                    .append(i % 3 == 0
+                            ? "Logon"
+                            : "Logoff")
+                    .append("</Action></Event>\n");
+            i++;
+        }
+        data = sb.toString().getBytes(StreamUtil.DEFAULT_CHARSET);
+        buffer = new byte[StreamUtil.BUFFER_SIZE];
+
+        write(readFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.deleteDir(tempDir);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        return write(writeFile);
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        long total = 0;
+        try (final InputStream inputStream = new BlockGZIPInputStream(Files.newInputStream(readFile))) {
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                total += len;
+            }
+        }
+        return total;
+    }
+
+    private long write(final Path file) throws IOException {
+        Files.deleteIfExists(file);
+        try (final OutputStream outputStream = new BlockGZIPOutputFile(file, blockSize)) {
+            int offset = 0;
+            while (offset < data.length) {
+                final int len = Math.min(buffer.length, data.length - offset);
+                outputStream.write(data, offset, len);
+                offset += len;
+            }
+        }
+        return Files.size(file);
+    }
+}
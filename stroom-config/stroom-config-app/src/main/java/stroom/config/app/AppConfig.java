@@ -54,6 +54,7 @@ import stroom.search.impl.SearchConfig;
 import stroom.search.solr.SolrConfig;
 import stroom.state.impl.StateConfig;
 import stroom.storedquery.impl.StoredQueryConfig;
+import stroom.task.api.TaskConfig;
 import stroom.ui.config.shared.UiConfig;
 import stroom.util.io.StroomPathConfig;
 import stroom.util.shared.AbstractConfig;
@@ -125,6 +126,7 @@ public class AppConfig extends AbstractConfig implements IsStroomConfig {
     public static final String PROP_NAME_STATE = "state";
     public static final String PROP_NAME_PLANB = "planb";
     public static final String PROP_NAME_STATISTICS = "statistics";
+    public static final String PROP_NAME_TASK = "task";
     public static final String PROP_NAME_UI = "ui";
     public static final String PROP_NAME_UI_URI = "uiUri";
     public static final String PROP_NAME_VOLUMES = "volumes";
@@ -175,6 +177,7 @@ public class AppConfig extends AbstractConfig implements IsStroomConfig {
     private final StatisticsConfig statisticsConfig;
     private final StoredQueryConfig storedQueryConfig;
     private final StroomPathConfig pathConfig;
+    private final TaskConfig taskConfig;
     private final UiConfig uiConfig;
     private final UiUriConfig uiUri;
     private final VolumeConfig volumeConfig;
@@ -228,6 +231,7 @@ public class AppConfig extends AbstractConfig implements IsStroomConfig {
                 new StatisticsConfig(),
                 new StoredQueryConfig(),
                 new StroomPathConfig(),
+                new TaskConfig(),
                 new UiConfig(),
                 new UiUriConfig(),
                 new VolumeConfig());
@@ -280,6 +284,7 @@ public class AppConfig extends AbstractConfig implements IsStroomConfig {
                      @JsonProperty(PROP_NAME_STATISTICS) final StatisticsConfig statisticsConfig,
                      @JsonProperty(PROP_NAME_QUERY_HISTORY) final StoredQueryConfig storedQueryConfig,
                      @JsonProperty(PROP_NAME_PATH) final StroomPathConfig pathConfig,
+                     @JsonProperty(PROP_NAME_TASK) final TaskConfig taskConfig,
                      @JsonProperty(PROP_NAME_UI) final UiConfig uiConfig,
                      @JsonProperty(PROP_NAME_UI_URI) final UiUriConfig uiUri,
                      @JsonProperty(PROP_NAME_VOLUMES) final VolumeConfig volumeConfig) {
@@ -328,6 +333,7 @@ public class AppConfig extends AbstractConfig implements IsStroomConfig {
         this.statisticsConfig = statisticsConfig;
         this.storedQueryConfig = storedQueryConfig;
         this.pathConfig = pathConfig;
+        this.taskConfig = taskConfig;
         this.uiConfig = uiConfig;
         this.uiUri = uiUri;
         this.volumeConfig = volumeConfig;
@@ -584,6 +590,12 @@ public class AppConfig extends AbstractConfig implements IsStroomConfig {
         return statisticsConfig;
     }
 
+    @JsonProperty(PROP_NAME_TASK)
+    @JsonPropertyDescription("Configuration for the thread pools used to execute tasks")
+    public TaskConfig getTaskConfig() {
+        return taskConfig;
+    }
+
     @JsonProperty(PROP_NAME_UI)
     public UiConfig getUiConfig() {
         return uiConfig;
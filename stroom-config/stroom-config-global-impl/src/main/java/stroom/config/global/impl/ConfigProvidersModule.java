@@ -801,6 +801,15 @@ public class ConfigProvidersModule extends AbstractModule {
                 stroom.storedquery.impl.StoredQueryConfig.class);
     }
 
+    @Generated("stroom.config.global.impl.GenerateConfigProvidersModule")
+    @Provides
+    @SuppressWarnings("unused")
+    stroom.task.api.TaskConfig getTaskConfig(
+            final ConfigMapper configMapper) {
+        return configMapper.getConfigObject(
+                stroom.task.api.TaskConfig.class);
+    }
+
     @Generated("stroom.config.global.impl.GenerateConfigProvidersModule")
     @Provides
     @SuppressWarnings("unused")
@@ -7,6 +7,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Map;
+
 @JsonInclude(Include.NON_NULL)
 public class AssignTasksRequest {
 
@@ -16,14 +18,18 @@ public class AssignTasksRequest {
     private final String nodeName;
     @JsonProperty
     private final int count;
+    @JsonProperty
+    private final Map<Integer, Integer> finishedTaskCounts;
 
     @JsonCreator
     public AssignTasksRequest(@JsonProperty("sourceTaskId") final TaskId sourceTaskId,
                               @JsonProperty("nodeName") final String nodeName,
-                              @JsonProperty("count") final int count) {
+                              @JsonProperty("count") final int count,
+                              @JsonProperty("finishedTaskCounts") final Map<Integer, Integer> finishedTaskCounts) {
         this.sourceTaskId = sourceTaskId;
         this.nodeName = nodeName;
         this.count = count;
+        this.finishedTaskCounts = finishedTaskCounts;
     }
 
     public TaskId getSourceTaskId() {
@@ -38,12 +44,21 @@ public class AssignTasksRequest {
         return count;
     }
 
+    /**
+     * @return The number of tasks for each processor filter that have finished on the requesting node since
+     * its last request, or null if there are none.
+     */
+    public Map<Integer, Integer> getFinishedTaskCounts() {
+        return finishedTaskCounts;
+    }
+
     @Override
     public String toString() {
         return "AssignTasksRequest{" +
                 "sourceTaskId=" + sourceTaskId +
                 ", nodeName='" + nodeName + '\'' +
                 ", count=" + count +
+                ", finishedTaskCounts=" + finishedTaskCounts +
                 '}';
     }
 }
@@ -148,6 +148,7 @@ public abstract class AbstractProcessorTaskExecutor implements ProcessorTaskExec
     private Source streamSource;
 
     private long startTime;
+    private boolean processingFailed;
 
     protected AbstractProcessorTaskExecutor(final PipelineFactory pipelineFactory,
                                             final Store store,
@@ -229,22 +230,24 @@ public abstract class AbstractProcessorTaskExecutor implements ProcessorTaskExec
                         errorReceiverProxy,
                         volumeGroupNameProvider)) {
             ProcessorTaskDecorator processDecorator = null;
+            boolean success = false;
             try {
                 final DefaultErrorWriter errorWriter = new DefaultErrorWriter();
                 errorWriter.addOutputStreamProvider(processInfoOutputStreamProvider);
                 errorWriterProxy.setErrorWriter(errorWriter);
 
                 processDecorator = getProcessDecorator();
-                processDecorator.beforeProcessing(processorFilter);
+                processDecorator.beforeProcessing(processorFilter, meta);
 
                 process(taskContext);
+                success = !processingFailed && !taskContext.isTerminated();
 
             } catch (final Exception e) {
                 outputFatalError(e);
             } finally {
                 try {
                     if (processDecorator != null) {
-                        processDecorator.afterProcessing();
+                        processDecorator.afterProcessing(success);
                     }
                 } catch (final Exception e) {
                     outputFatalError(e);
@@ -488,6 +491,8 @@ public abstract class AbstractProcessorTaskExecutor implements ProcessorTaskExec
 
     private void handleProcessingException(final Throwable e,
                                            final Meta meta) {
+        // Errors that have already been logged are fatal too.
+        processingFailed = true;
         if (e instanceof LoggedException) {
             // The exception has already been logged so ignore it.
             LOGGER.trace(() -> "Error while processing data task: id = " + NullSafe.get(meta, Meta::getId), e);
@@ -510,6 +515,7 @@ public abstract class AbstractProcessorTaskExecutor implements ProcessorTaskExec
     }
 
     private void outputFatalError(final Throwable e) {
+        processingFailed = true;
         outputError(e, Severity.FATAL_ERROR);
     }
 
@@ -1,13 +1,18 @@
 package stroom.core.dataprocess;
 
 import stroom.docref.DocRef;
+import stroom.meta.shared.Meta;
 import stroom.processor.shared.ProcessorFilter;
 
 public interface ProcessorTaskDecorator {
 
     DocRef getPipeline();
 
-    void beforeProcessing(ProcessorFilter processorFilter);
+    void beforeProcessing(ProcessorFilter processorFilter, Meta meta);
 
-    void afterProcessing();
+    /**
+     * @param success True if the whole stream was processed without a fatal error and the task
+     *                wasn't terminated.
+     */
+    void afterProcessing(boolean success);
 }
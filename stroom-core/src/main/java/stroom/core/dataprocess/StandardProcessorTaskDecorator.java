@@ -1,6 +1,7 @@
 package stroom.core.dataprocess;
 
 import stroom.docref.DocRef;
+import stroom.meta.shared.Meta;
 import stroom.pipeline.shared.PipelineDoc;
 import stroom.processor.shared.ProcessorFilter;
 
@@ -9,12 +10,12 @@ public class StandardProcessorTaskDecorator implements ProcessorTaskDecorator {
     private ProcessorFilter processorFilter;
 
     @Override
-    public void beforeProcessing(final ProcessorFilter processorFilter) {
+    public void beforeProcessing(final ProcessorFilter processorFilter, final Meta meta) {
         this.processorFilter = processorFilter;
     }
 
     @Override
-    public void afterProcessing() {
+    public void afterProcessing(final boolean success) {
 
     }
 
@@ -39,6 +39,7 @@ import stroom.util.shared.ResultPage;
 import stroom.util.shared.StringUtil;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 
 import java.nio.file.Files;
@@ -73,6 +74,7 @@ public class IndexShardManager {
     private final TaskContextFactory taskContextFactory;
     private final SecurityContext securityContext;
     private final PathCreator pathCreator;
+    private final Provider<LuceneProviderFactory> luceneProviderFactoryProvider;
     private final AtomicBoolean deletingShards = new AtomicBoolean();
 
     @Inject
@@ -83,7 +85,8 @@ public class IndexShardManager {
                       final Executor executor,
                       final TaskContextFactory taskContextFactory,
                       final SecurityContext securityContext,
-                      final PathCreator pathCreator) {
+                      final PathCreator pathCreator,
+                      final Provider<LuceneProviderFactory> luceneProviderFactoryProvider) {
         this.indexStore = indexStore;
         this.indexShardDao = indexShardDao;
         this.indexShardWriterCache = indexShardWriterCache;
@@ -92,6 +95,7 @@ public class IndexShardManager {
         this.taskContextFactory = taskContextFactory;
         this.securityContext = securityContext;
         this.pathCreator = pathCreator;
+        this.luceneProviderFactoryProvider = luceneProviderFactoryProvider;
     }
 
     /**
@@ -170,6 +174,9 @@ public class IndexShardManager {
             LOGGER.debug(() -> LogUtil.message("deleteFromDisk() - shard ID: {}, dir: '{}'",
                     shard.getId(), LogUtil.path(dir)));
 
+            // Make sure no cached searchers are holding the shard files open.
+            luceneProviderFactoryProvider.get().invalidateCachedSearchers(shard.getId());
+
             // See if there are any files in the directory.
             if (!Files.isDirectory(dir) || FileUtil.deleteDir(dir)) {
                 // The directory either doesn't exist or we have
@@ -14,34 +14,56 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 public class IndexShardSearchConfig extends AbstractConfig implements IsStroomConfig {
 
     private static final int DEFAULT_MAX_THREADS_PER_TASK = 5;
+    private static final int DEFAULT_DOC_ID_CHUNK_SIZE = 1_000;
+    private static final int DEFAULT_MAX_SEGMENT_THREADS_PER_SHARD = 1;
+    private static final int DEFAULT_MIN_DOCS_FOR_CONCURRENT_SEGMENT_SEARCH = 1_000_000;
+    private static final int DEFAULT_INDEX_SHARD_SEARCHER_CACHE_MAX_OPEN_FILES = 10_000;
 
     private final int maxDocIdQueueSize;
+    private final int docIdChunkSize;
     private final int maxThreadsPerTask;
+    private final int maxSegmentThreadsPerShard;
+    private final int minDocsForConcurrentSegmentSearch;
     private final CacheConfig remoteSearchResultCache;
     private final CacheConfig indexShardSearcherCache;
+    private final int indexShardSearcherCacheMaxOpenFiles;
 
     public IndexShardSearchConfig() {
         maxDocIdQueueSize = 1_000_000;
+        docIdChunkSize = DEFAULT_DOC_ID_CHUNK_SIZE;
         maxThreadsPerTask = DEFAULT_MAX_THREADS_PER_TASK;
+        maxSegmentThreadsPerShard = DEFAULT_MAX_SEGMENT_THREADS_PER_SHARD;
+        minDocsForConcurrentSegmentSearch = DEFAULT_MIN_DOCS_FOR_CONCURRENT_SEGMENT_SEARCH;
         remoteSearchResultCache = CacheConfig.builder()
                 .maximumSize(100L)
                 .expireAfterAccess(StroomDuration.ofMinutes(10))
                 .build();
         indexShardSearcherCache = CacheConfig.builder()
-                .maximumSize(2L)
-                .expireAfterAccess(StroomDuration.ofMinutes(1))
+                .maximumSize(100L)
+                .expireAfterAccess(StroomDuration.ofMinutes(10))
                 .build();
+        indexShardSearcherCacheMaxOpenFiles = DEFAULT_INDEX_SHARD_SEARCHER_CACHE_MAX_OPEN_FILES;
     }
 
     @JsonCreator
     public IndexShardSearchConfig(@JsonProperty("maxDocIdQueueSize") final int maxDocIdQueueSize,
+                                  @JsonProperty("docIdChunkSize") final int docIdChunkSize,
                                   @JsonProperty("maxThreadsPerTask") final int maxThreadsPerTask,
+                                  @JsonProperty("maxSegmentThreadsPerShard") final int maxSegmentThreadsPerShard,
+                                  @JsonProperty("minDocsForConcurrentSegmentSearch") final int
+                                          minDocsForConcurrentSegmentSearch,
                                   @JsonProperty("remoteSearchResultCache") final CacheConfig remoteSearchResultCache,
-                                  @JsonProperty("indexShardSearcherCache") final CacheConfig indexShardSearcherCache) {
+                                  @JsonProperty("indexShardSearcherCache") final CacheConfig indexShardSearcherCache,
+                                  @JsonProperty("indexShardSearcherCacheMaxOpenFiles") final int
+                                          indexShardSearcherCacheMaxOpenFiles) {
         this.maxDocIdQueueSize = maxDocIdQueueSize;
+        this.docIdChunkSize = docIdChunkSize;
         this.maxThreadsPerTask = maxThreadsPerTask;
+        this.maxSegmentThreadsPerShard = maxSegmentThreadsPerShard;
+        this.minDocsForConcurrentSegmentSearch = minDocsForConcurrentSegmentSearch;
         this.remoteSearchResultCache = remoteSearchResultCache;
         this.indexShardSearcherCache = indexShardSearcherCache;
+        this.indexShardSearcherCacheMaxOpenFiles = indexShardSearcherCacheMaxOpenFiles;
     }
 
     @JsonPropertyDescription("The maximum number of doc ids that will be queued ready for stored data to be " +
@@ -50,26 +72,59 @@ public class IndexShardSearchConfig extends AbstractConfig implements IsStroomCo
         return maxDocIdQueueSize;
     }
 
+    @JsonPropertyDescription("The number of doc ids that are handed over from the shard searcher to the stored " +
+            "data reader at a time. Each chunk is sorted by doc id before stored data is read so that reads are " +
+            "sequential.")
+    public int getDocIdChunkSize() {
+        return docIdChunkSize;
+    }
+
     @JsonPropertyDescription("The maximum number of threads per search, per node, used to search Lucene index shards")
     public int getMaxThreadsPerTask() {
         return maxThreadsPerTask;
     }
 
+    @JsonPropertyDescription("The maximum number of threads that can be used to search the segments of a single " +
+            "large Lucene 9.8 index shard concurrently. Threads are only used if they are not needed to search other " +
+            "shards within the limit set by maxThreadsPerTask. A value of 1 disables concurrent segment searching.")
+    public int getMaxSegmentThreadsPerShard() {
+        return maxSegmentThreadsPerShard;
+    }
+
+    @JsonPropertyDescription("The minimum number of documents a shard must contain before its segments are " +
+            "searched concurrently.")
+    public int getMinDocsForConcurrentSegmentSearch() {
+        return minDocsForConcurrentSegmentSearch;
+    }
+
     public CacheConfig getRemoteSearchResultCache() {
         return remoteSearchResultCache;
     }
 
+    @JsonPropertyDescription("The cache of open searchers for closed index shards. Cached searchers avoid the " +
+            "cost of reopening shard files for every search.")
     public CacheConfig getIndexShardSearcherCache() {
         return indexShardSearcherCache;
     }
 
+    @JsonPropertyDescription("The maximum total number of index shard files that cached index shard searchers " +
+            "may hold open. The least recently used searchers are evicted when this limit is exceeded. " +
+            "Set to 0 for no limit.")
+    public int getIndexShardSearcherCacheMaxOpenFiles() {
+        return indexShardSearcherCacheMaxOpenFiles;
+    }
+
     @Override
     public String toString() {
         return "IndexShardSearchConfig{" +
                 "maxDocIdQueueSize=" + maxDocIdQueueSize +
+                ", docIdChunkSize=" + docIdChunkSize +
                 ", maxThreadsPerTask=" + maxThreadsPerTask +
+                ", maxSegmentThreadsPerShard=" + maxSegmentThreadsPerShard +
+                ", minDocsForConcurrentSegmentSearch=" + minDocsForConcurrentSegmentSearch +
                 ", remoteSearchResultCache=" + remoteSearchResultCache +
                 ", indexShardSearcherCache=" + indexShardSearcherCache +
+                ", indexShardSearcherCacheMaxOpenFiles=" + indexShardSearcherCacheMaxOpenFiles +
                 '}';
     }
 }
@@ -124,10 +124,16 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
             if (v != null) {
                 closeWriter(v);
             }
+            // Searchers opened against the closed shard must not outlive the shard being opened for writing.
+            invalidateCachedSearchers(indexShardId);
             return openWriter(indexShardId);
         });
     }
 
+    private void invalidateCachedSearchers(final long indexShardId) {
+        luceneProviderFactoryProvider.get().invalidateCachedSearchers(indexShardId);
+    }
+
     private IndexShardWriter openWriter(final long indexShardId) {
         LOGGER.debug(() -> "Opening " + indexShardId);
 
@@ -211,6 +217,7 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
                 } finally {
                     // Update the shard status.
                     indexShardDao.reset(indexShardId);
+                    invalidateCachedSearchers(indexShardId);
                 }
             } catch (final RuntimeException e) {
                 LOGGER.error(e::getMessage, e);
@@ -278,6 +285,7 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
     public void delete(final long indexShardId) {
         indexShardDao.logicalDelete(indexShardId);
         LOGGER.debug(() -> "Deleted " + indexShardId);
+        invalidateCachedSearchers(indexShardId);
         cache.invalidate(indexShardId);
         cache.evictExpiredElements();
     }
@@ -23,5 +23,11 @@ public interface LuceneProvider {
 
     IndexSystemInfoProvider getIndexSystemInfoProvider();
 
+    /**
+     * Discard any searchers that are being held open for the specified shard, e.g. because the state of the shard
+     * has changed.
+     */
+    void invalidateCachedSearchers(long indexShardId);
+
     LuceneVersion getLuceneVersion();
 }
@@ -34,4 +34,17 @@ public class LuceneProviderFactory {
         }
         return luceneProvider;
     }
+
+    /**
+     * Discard any cached searchers held by any of the Lucene providers for the specified shard.
+     */
+    public void invalidateCachedSearchers(final long indexShardId) {
+        luceneProviders.values().forEach(luceneProvider -> {
+            try {
+                luceneProvider.invalidateCachedSearchers(indexShardId);
+            } catch (final RuntimeException e) {
+                LOGGER.error(e::getMessage, e);
+            }
+        });
+    }
 }
@@ -1,8 +1,12 @@
 package stroom.index.lucene553;
 
-import stroom.util.concurrent.CompletableObjectQueue;
+import stroom.util.concurrent.CompletableIntQueue;
 
-class DocIdQueue extends CompletableObjectQueue<Integer> {
+/**
+ * Hands doc ids over from the {@link IndexShardHitCollector} to the thread that reads stored fields in chunks of
+ * primitive ints.
+ */
+class DocIdQueue extends CompletableIntQueue {
 
     DocIdQueue(final int capacity) {
         super(capacity);
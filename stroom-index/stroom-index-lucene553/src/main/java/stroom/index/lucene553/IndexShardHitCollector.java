@@ -47,6 +47,8 @@ class IndexShardHitCollector extends SimpleCollector {
     private final DocIdQueue docIdQueue;
     private final LongAdder totalHitCount;
     private final LongAdder localHitCount = new LongAdder();
+    private final int[] docIdChunk;
+    private int docIdChunkCount;
     private int docBase;
 
     IndexShardHitCollector(final TaskContext taskContext,
@@ -54,12 +56,14 @@ class IndexShardHitCollector extends SimpleCollector {
                            final IndexShard indexShard,
                            final Query query,
                            final DocIdQueue docIdQueue,
+                           final int docIdChunkSize,
                            final LongAdder totalHitCount) {
         this.taskContext = taskContext;
         this.indexShard = indexShard;
         this.queryKey = queryKey;
         this.query = query;
         this.docIdQueue = docIdQueue;
+        this.docIdChunk = new int[Math.max(1, docIdChunkSize)];
         this.totalHitCount = totalHitCount;
 
         info(() -> "Searching...");
@@ -78,8 +82,13 @@ class IndexShardHitCollector extends SimpleCollector {
         if (!taskContext.isTerminated()) {
             final int docId = docBase + doc;
 
+            // Buffer the doc id and hand the chunk over once it is full.
+            docIdChunk[docIdChunkCount++] = docId;
+            if (docIdChunkCount == docIdChunk.length) {
+                flush();
+            }
+
             // Add to the hit count.
-            docIdQueue.put(docId);
             localHitCount.increment();
             totalHitCount.increment();
 
@@ -100,6 +109,16 @@ class IndexShardHitCollector extends SimpleCollector {
         }
     }
 
+    /**
+     * Hand over any buffered doc ids to the queue. Must be called once the search is complete.
+     */
+    void flush() {
+        if (docIdChunkCount > 0) {
+            docIdQueue.put(docIdChunk, 0, docIdChunkCount);
+            docIdChunkCount = 0;
+        }
+    }
+
     private void info(final Supplier<String> message) {
         taskContext.info(message);
         LOGGER.trace(message);
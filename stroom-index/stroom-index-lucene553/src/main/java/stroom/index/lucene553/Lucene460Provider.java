@@ -67,6 +67,11 @@ class Lucene460Provider implements LuceneProvider {
         return systemInfoProvider;
     }
 
+    @Override
+    public void invalidateCachedSearchers(final long indexShardId) {
+        // Searchers for shards of this version are not cached.
+    }
+
     @Override
     public LuceneVersion getLuceneVersion() {
         return LuceneVersion.LUCENE_4_6_0;
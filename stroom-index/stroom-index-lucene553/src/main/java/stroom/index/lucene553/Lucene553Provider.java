@@ -67,6 +67,11 @@ class Lucene553Provider implements LuceneProvider {
         return systemInfoProvider;
     }
 
+    @Override
+    public void invalidateCachedSearchers(final long indexShardId) {
+        // Searchers for shards of this version are not cached.
+    }
+
     @Override
     public LuceneVersion getLuceneVersion() {
         return LuceneVersion.LUCENE_5_5_3;
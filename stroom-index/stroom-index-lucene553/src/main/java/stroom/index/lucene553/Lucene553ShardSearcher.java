@@ -55,6 +55,7 @@ import org.apache.lucene553.search.Query;
 import org.apache.lucene553.search.SearcherManager;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -183,7 +184,9 @@ class Lucene553ShardSearcher implements LuceneShardSearcher {
         // If there is an error building the query then it will be null here.
         if (query != null) {
             final int maxDocIdQueueSize = shardConfig.getMaxDocIdQueueSize();
-            LOGGER.debug(() -> "Creating docIdStore with size " + maxDocIdQueueSize);
+            final int docIdChunkSize = Math.max(1, Math.min(shardConfig.getDocIdChunkSize(), maxDocIdQueueSize));
+            LOGGER.debug(() -> "Creating docIdStore with size " + maxDocIdQueueSize +
+                               " and chunk size " + docIdChunkSize);
             final DocIdQueue docIdQueue = new DocIdQueue(maxDocIdQueueSize);
             try {
                 final SearcherManager searcherManager = indexShardSearcher.getSearcherManager();
@@ -204,9 +207,11 @@ class Lucene553ShardSearcher implements LuceneShardSearcher {
                                                     indexShard,
                                                     query,
                                                     docIdQueue,
+                                                    docIdChunkSize,
                                                     hitCount);
 
                                             searcher.search(query, collector);
+                                            collector.flush();
 
                                             LOGGER.debug("Shard search complete. {}, query term [{}]",
                                                     collector,
@@ -228,6 +233,7 @@ class Lucene553ShardSearcher implements LuceneShardSearcher {
                     CompletableFuture.runAsync(runnable, executor);
 
                     // Start converting found docIds into stored data values
+                    final int[] docIds = new int[docIdChunkSize];
                     boolean done = false;
                     while (!done) {
                         // Uncomment this to slow searches down in dev
@@ -239,22 +245,25 @@ class Lucene553ShardSearcher implements LuceneShardSearcher {
                             done = true;
 
                         } else {
-                            // Take the next item.
-                            // When we get null we are done.
-                            final Integer docId = docIdQueue.take();
-                            if (docId == null) {
+                            // Take the next chunk of doc ids.
+                            // When we get COMPLETE we are done.
+                            final int count = docIdQueue.take(docIds);
+                            if (count == DocIdQueue.COMPLETE) {
                                 done = true;
                             } else {
                                 try {
-                                    // If we have a doc id then retrieve the stored data for it.
-                                    SearchProgressLog.increment(queryKey,
-                                            SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE);
+                                    // Sort the chunk so that stored fields are read sequentially.
+                                    SearchProgressLog.add(queryKey,
+                                            SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE,
+                                            count);
+                                    Arrays.sort(docIds, 0, count);
                                     getStoredData(
                                             storedFields,
                                             fieldsToLoad,
                                             valuesConsumer,
                                             searcher,
-                                            docId,
+                                            docIds,
+                                            count,
                                             errorConsumer);
                                 } catch (final RuntimeException e) {
                                     error(errorConsumer, e);
@@ -273,11 +282,23 @@ class Lucene553ShardSearcher implements LuceneShardSearcher {
     }
 
     /**
-     * This method takes a list of document id's and extracts the stored fields
+     * This method takes a sorted chunk of document id's and extracts the stored fields
      * that are required for data display. In some cases such as batch search we
      * only want to get stream and event ids, in these cases no values are
      * retrieved, only stream and event ids.
      */
+    private void getStoredData(final IndexField[] storedFields,
+                               final Set<String> fieldsToLoad,
+                               final ValuesConsumer valuesConsumer,
+                               final IndexSearcher searcher,
+                               final int[] docIds,
+                               final int count,
+                               final ErrorConsumer errorConsumer) {
+        for (int i = 0; i < count; i++) {
+            getStoredData(storedFields, fieldsToLoad, valuesConsumer, searcher, docIds[i], errorConsumer);
+        }
+    }
+
     private void getStoredData(final IndexField[] storedFields,
                                final Set<String> fieldsToLoad,
                                final ValuesConsumer valuesConsumer,
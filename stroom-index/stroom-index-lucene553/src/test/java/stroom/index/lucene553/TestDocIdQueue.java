@@ -10,8 +10,10 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TestDocIdQueue extends StroomUnitTest {
 
@@ -33,23 +35,32 @@ class TestDocIdQueue extends StroomUnitTest {
     @SuppressWarnings("unchecked")
     void testDocIdQueue() {
         final int threads = 10;
-        final DocIdQueue queue = new DocIdQueue(1000000);
+        final int chunkSize = 7;
+        final DocIdQueue queue = new DocIdQueue(100);
         final AtomicInteger produced = new AtomicInteger();
         final AtomicInteger consumed = new AtomicInteger();
+        final AtomicLong consumedSum = new AtomicLong();
 
         // Producer.
         final CompletableFuture<Void>[] producers = new CompletableFuture[threads];
         for (int i = 0; i < threads; i++) {
             final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                final int[] chunk = new int[chunkSize];
+                int count = 0;
                 boolean run = true;
                 while (run) {
                     final int id = produced.incrementAndGet();
                     if (id > MAX) {
                         run = false;
                     } else {
-                        queue.put(id);
+                        chunk[count++] = id;
+                        if (count == chunk.length) {
+                            queue.put(chunk, 0, count);
+                            count = 0;
+                        }
                     }
                 }
+                queue.put(chunk, 0, count);
             }, executorService);
             producers[i] = future;
         }
@@ -57,12 +68,17 @@ class TestDocIdQueue extends StroomUnitTest {
         final CompletableFuture<Void>[] consumers = new CompletableFuture[threads];
         for (int i = 0; i < threads; i++) {
             final CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+                final int[] chunk = new int[chunkSize];
                 boolean done = false;
                 while (!done) {
-                    if (queue.take() == null) {
+                    final int count = queue.take(chunk);
+                    if (count == DocIdQueue.COMPLETE) {
                         done = true;
                     } else {
-                        consumed.incrementAndGet();
+                        consumed.addAndGet(count);
+                        for (int j = 0; j < count; j++) {
+                            consumedSum.addAndGet(chunk[j]);
+                        }
                     }
                 }
             }, executorService);
@@ -70,11 +86,40 @@ class TestDocIdQueue extends StroomUnitTest {
         }
 
         CompletableFuture.allOf(producers).join();
-        for (int i = 0; i < threads; i++) {
-            queue.complete();
-        }
+        queue.complete();
         CompletableFuture.allOf(consumers).join();
 
         assertThat(consumed.get()).isEqualTo(MAX);
+        assertThat(consumedSum.get()).isEqualTo(MAX * (MAX + 1) / 2);
+    }
+
+    @Test
+    void testTerminate() {
+        final DocIdQueue queue = new DocIdQueue(10);
+        queue.put(new int[]{1, 2, 3}, 0, 3);
+        assertThat(queue.size()).isEqualTo(3);
+
+        queue.terminate();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.take(new int[10])).isEqualTo(DocIdQueue.COMPLETE);
+
+        // Puts after termination are ignored rather than blocking.
+        queue.put(new int[]{1, 2, 3}, 0, 3);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testPutAfterComplete() {
+        final DocIdQueue queue = new DocIdQueue(10);
+        queue.put(new int[]{1, 2, 3}, 0, 3);
+        queue.complete();
+
+        // Values added after completion would never be seen by consumers so must not be silently dropped.
+        assertThatThrownBy(() -> queue.put(new int[]{4, 5}, 0, 2))
+                .isInstanceOf(IllegalStateException.class);
+
+        final int[] chunk = new int[10];
+        assertThat(queue.take(chunk)).isEqualTo(3);
+        assertThat(queue.take(chunk)).isEqualTo(DocIdQueue.COMPLETE);
     }
 }
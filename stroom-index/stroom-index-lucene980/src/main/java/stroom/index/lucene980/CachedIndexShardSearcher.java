@@ -0,0 +1,111 @@
+package stroom.index.lucene980;
+
+import stroom.index.shared.IndexShard;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted wrapper around an {@link IndexShardSearcher} that is held in the
+ * {@link IndexShardSearcherCache}. The cache itself holds one reference and each search that is using the searcher
+ * holds another. The underlying searcher is only destroyed once it has been evicted from the cache and all searches
+ * using it have released it.
+ */
+class CachedIndexShardSearcher {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(CachedIndexShardSearcher.class);
+
+    private final IndexShardSearcher indexShardSearcher;
+    private final int fileCount;
+    // Starts at 1 to represent the reference held by the cache.
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private final AtomicBoolean evicted = new AtomicBoolean();
+    private volatile long lastAccessTime;
+
+    CachedIndexShardSearcher(final IndexShardSearcher indexShardSearcher) {
+        this.indexShardSearcher = indexShardSearcher;
+        this.fileCount = indexShardSearcher.getFileCount();
+        this.lastAccessTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Try to take a reference to this searcher.
+     *
+     * @return False if the searcher has already been destroyed and can no longer be used.
+     */
+    boolean tryAcquire() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!refCount.compareAndSet(count, count + 1));
+        lastAccessTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Release a reference previously taken with {@link #tryAcquire()}.
+     */
+    void release() {
+        if (refCount.decrementAndGet() == 0) {
+            destroy();
+        }
+    }
+
+    /**
+     * Called when the cache removes this searcher. Releases the reference held by the cache.
+     *
+     * @return True if this call evicted the searcher, false if it had already been evicted.
+     */
+    boolean evict() {
+        if (evicted.compareAndSet(false, true)) {
+            LOGGER.debug(() -> "Evicting cached searcher for index shard " + getIndexShard().getId());
+            release();
+            return true;
+        }
+        return false;
+    }
+
+    boolean isEvicted() {
+        return evicted.get();
+    }
+
+    private void destroy() {
+        LOGGER.debug(() -> "Closing cached searcher for index shard " + getIndexShard().getId());
+        try {
+            indexShardSearcher.destroy();
+        } catch (final RuntimeException e) {
+            LOGGER.error(e::getMessage, e);
+        }
+    }
+
+    IndexShardSearcher getIndexShardSearcher() {
+        return indexShardSearcher;
+    }
+
+    IndexShard getIndexShard() {
+        return indexShardSearcher.getIndexShard();
+    }
+
+    int getFileCount() {
+        return fileCount;
+    }
+
+    long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedIndexShardSearcher{" +
+               "indexShardSearcher=" + indexShardSearcher +
+               ", fileCount=" + fileCount +
+               ", refCount=" + refCount.get() +
+               ", evicted=" + evicted.get() +
+               '}';
+    }
+}
@@ -0,0 +1,216 @@
+package stroom.index.lucene980;
+
+import stroom.task.api.TaskContext;
+import stroom.task.api.TaskContextFactory;
+import stroom.task.api.TaskTerminatedException;
+import stroom.task.api.TerminateHandlerFactory;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import org.apache.lucene980.index.LeafReaderContext;
+import org.apache.lucene980.search.BulkScorer;
+import org.apache.lucene980.search.CollectionTerminatedException;
+import org.apache.lucene980.search.IndexSearcher;
+import org.apache.lucene980.search.LeafCollector;
+import org.apache.lucene980.search.Query;
+import org.apache.lucene980.search.ScoreMode;
+import org.apache.lucene980.search.Weight;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Searches the leaf segments of a single shard concurrently. The calling thread always takes part in the search and
+ * is joined by as many helper threads as can be taken from the per query thread permits, up to the configured
+ * maximum per shard. Segments are handed out largest first from a shared queue so that the work is balanced between
+ * threads.
+ * <p>
+ * Each thread collects hits with its own {@link IndexShardHitCollector} as collectors hold per segment state. All
+ * collectors share the same total hit count and doc id queue.
+ * <p>
+ * Helpers run on the same executor as the calling thread so may not get a thread if the executor is busy. The calling
+ * thread never waits for a helper that has not started: once it has run out of segments it claims any helpers that
+ * are still waiting for a thread so that they do nothing if they do start later. This means that a search can always
+ * complete on the calling thread alone, however busy the executor is.
+ */
+class ConcurrentSegmentSearcher {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ConcurrentSegmentSearcher.class);
+
+    private final TaskContextFactory taskContextFactory;
+    private final Executor executor;
+    private final Semaphore threadPermits;
+    private final int maxThreadsPerShard;
+
+    ConcurrentSegmentSearcher(final TaskContextFactory taskContextFactory,
+                              final Executor executor,
+                              final Semaphore threadPermits,
+                              final int maxThreadsPerShard) {
+        this.taskContextFactory = taskContextFactory;
+        this.executor = executor;
+        this.threadPermits = threadPermits;
+        this.maxThreadsPerShard = maxThreadsPerShard;
+    }
+
+    /**
+     * @param collectorFactory Creates a new collector for the task context of each searching thread.
+     */
+    void search(final TaskContext parentContext,
+                final IndexSearcher searcher,
+                final Query query,
+                final Function<TaskContext, IndexShardHitCollector> collectorFactory) throws IOException {
+        final List<LeafReaderContext> leaves = new ArrayList<>(searcher.getIndexReader().leaves());
+        leaves.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+        final Queue<LeafReaderContext> leafQueue = new ConcurrentLinkedQueue<>(leaves);
+
+        // Create the weight once and share it between all threads.
+        final Weight weight = searcher.createWeight(
+                searcher.rewrite(query),
+                ScoreMode.COMPLETE_NO_SCORES,
+                1F);
+
+        // Take as many helper threads as we are allowed.
+        final List<Helper> helpers = new ArrayList<>();
+        final int maxHelpers = Math.min(maxThreadsPerShard, leaves.size()) - 1;
+        while (helpers.size() < maxHelpers && threadPermits.tryAcquire()) {
+            final Helper helper = new Helper();
+            final Runnable runnable = taskContextFactory.childContext(
+                    parentContext,
+                    "Index Segment Searcher",
+                    TerminateHandlerFactory.NOOP_FACTORY,
+                    taskContext -> {
+                        // If the calling thread has already claimed this helper then it has given the permit back
+                        // and there is nothing left to do.
+                        if (helper.claim()) {
+                            try {
+                                searchLeaves(weight, leafQueue, collectorFactory.apply(taskContext));
+                            } catch (final IOException e) {
+                                throw new UncheckedIOException(e);
+                            } finally {
+                                threadPermits.release();
+                            }
+                        }
+                    });
+            try {
+                helper.future = CompletableFuture.runAsync(runnable, executor);
+                helpers.add(helper);
+            } catch (final RuntimeException e) {
+                threadPermits.release();
+                throw e;
+            }
+        }
+        LOGGER.debug(() -> "Searching " + leaves.size() + " segments with up to " + (helpers.size() + 1) +
+                           " threads");
+
+        // This thread searches segments too.
+        boolean success = false;
+        try {
+            searchLeaves(weight, leafQueue, collectorFactory.apply(parentContext));
+            success = true;
+        } finally {
+            if (!success) {
+                // Stop helpers picking up any more segments.
+                leafQueue.clear();
+            }
+            // Always wait for the helpers so the searcher is not released while they are still using it.
+            awaitHelpers(helpers, success);
+        }
+    }
+
+    private void awaitHelpers(final List<Helper> helpers,
+                              final boolean rethrow) throws IOException {
+        CompletionException firstError = null;
+        for (final Helper helper : helpers) {
+            if (helper.claim()) {
+                // The helper never got a thread and there are no segments left for it to search so don't wait for
+                // it.
+                LOGGER.debug(() -> "Segment search helper not started");
+                threadPermits.release();
+            } else {
+                try {
+                    helper.future.join();
+                } catch (final CompletionException e) {
+                    LOGGER.debug(e::getMessage, e);
+                    if (firstError == null) {
+                        firstError = e;
+                    }
+                }
+            }
+        }
+
+        if (rethrow && firstError != null) {
+            if (firstError.getCause() instanceof final TaskTerminatedException taskTerminatedException) {
+                throw taskTerminatedException;
+            } else if (firstError.getCause() instanceof final UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            } else if (firstError.getCause() instanceof final RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw firstError;
+        }
+    }
+
+    private void searchLeaves(final Weight weight,
+                              final Queue<LeafReaderContext> leafQueue,
+                              final IndexShardHitCollector collector) throws IOException {
+        try {
+            LeafReaderContext leaf = leafQueue.poll();
+            while (leaf != null) {
+                searchLeaf(weight, leaf, collector);
+                leaf = leafQueue.poll();
+            }
+        } finally {
+            collector.flush();
+        }
+    }
+
+    private void searchLeaf(final Weight weight,
+                            final LeafReaderContext leaf,
+                            final IndexShardHitCollector collector) throws IOException {
+        final LeafCollector leafCollector;
+        try {
+            leafCollector = collector.getLeafCollector(leaf);
+        } catch (final CollectionTerminatedException e) {
+            // There is no doc of interest in this reader context.
+            return;
+        }
+
+        final BulkScorer scorer = weight.bulkScorer(leaf);
+        if (scorer != null) {
+            try {
+                scorer.score(leafCollector, leaf.reader().getLiveDocs());
+            } catch (final CollectionTerminatedException e) {
+                // Collection was terminated prematurely.
+            }
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * A helper is claimed either by its own thread when it starts or by the calling thread when it has finished
+     * searching, whichever comes first.
+     */
+    private static class Helper {
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile CompletableFuture<Void> future;
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
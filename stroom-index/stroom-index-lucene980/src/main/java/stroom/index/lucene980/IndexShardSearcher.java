@@ -29,6 +29,7 @@ import org.apache.lucene980.search.IndexSearcher;
 import org.apache.lucene980.search.SearcherFactory;
 import org.apache.lucene980.search.SearcherManager;
 import org.apache.lucene980.store.Directory;
+import org.apache.lucene980.store.MMapDirectory;
 import org.apache.lucene980.store.NIOFSDirectory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +58,18 @@ class IndexShardSearcher {
     IndexShardSearcher(final IndexShard indexShard,
                        final IndexWriter indexWriter,
                        final PathCreator pathCreator) {
+        this(indexShard, indexWriter, pathCreator, false);
+    }
+
+    /**
+     * @param memoryMapped If true and no writer is supplied then the shard directory will be opened with an
+     *                     {@link MMapDirectory} rather than an {@link NIOFSDirectory}. This is only sensible for
+     *                     closed shards that are going to be held open for reuse across many searches.
+     */
+    IndexShardSearcher(final IndexShard indexShard,
+                       final IndexWriter indexWriter,
+                       final PathCreator pathCreator,
+                       final boolean memoryMapped) {
         this.indexShard = indexShard;
         this.indexWriter = indexWriter;
 
@@ -87,7 +100,11 @@ class IndexShardSearcher {
                             dir));
                 }
 
-                directory = new NIOFSDirectory(dir, Lucene980LockFactory.get());
+                if (memoryMapped) {
+                    directory = new MMapDirectory(dir, Lucene980LockFactory.get());
+                } else {
+                    directory = new NIOFSDirectory(dir, Lucene980LockFactory.get());
+                }
 //                indexReader = DirectoryReader.open(directory);
                 searcherManager = new SearcherManager(directory, new SearcherFactory());
 
@@ -128,6 +145,21 @@ class IndexShardSearcher {
         return searcherManager;
     }
 
+    /**
+     * @return The number of files in the shard directory or 0 if this searcher is using an index writer.
+     */
+    int getFileCount() {
+        if (directory == null) {
+            return 0;
+        }
+        try {
+            return directory.listAll().length;
+        } catch (final IOException e) {
+            LOGGER.debug(e.getMessage(), e);
+            return 0;
+        }
+    }
+
     private SearcherManager openWithWriter(final IndexWriter indexWriter) throws IOException {
         final SearcherManager searcherManager = new SearcherManager(
                 indexWriter,
@@ -0,0 +1,136 @@
+package stroom.index.lucene980;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.StroomCache;
+import stroom.index.impl.IndexShardSearchConfig;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.util.io.PathCreator;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds open, memory mapped searchers for closed index shards so that repeated searches of the same shards do not
+ * have to reopen the segment files and rebuild reader state every time. Entries are reference counted so a searcher
+ * that is evicted while still in use by a search is only closed once that search releases it.
+ * <p>
+ * The number of cached searchers is bounded by the configured cache size and the total number of shard files held
+ * open is bounded by {@link IndexShardSearchConfig#getIndexShardSearcherCacheMaxOpenFiles()}, with the least recently
+ * used searchers evicted first.
+ */
+@Singleton
+class IndexShardSearcherCache {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardSearcherCache.class);
+
+    private static final String CACHE_NAME = "Lucene 9.8.0 Index Shard Searcher Cache";
+
+    private final StroomCache<Long, CachedIndexShardSearcher> cache;
+    private final Provider<IndexShardSearchConfig> indexShardSearchConfigProvider;
+    private final PathCreator pathCreator;
+    // The total number of shard files held by searchers that have not yet been evicted.
+    private final AtomicLong openFiles = new AtomicLong();
+
+    @Inject
+    IndexShardSearcherCache(final CacheManager cacheManager,
+                            final Provider<IndexShardSearchConfig> indexShardSearchConfigProvider,
+                            final PathCreator pathCreator) {
+        this.indexShardSearchConfigProvider = indexShardSearchConfigProvider;
+        this.pathCreator = pathCreator;
+        cache = cacheManager.create(
+                CACHE_NAME,
+                () -> indexShardSearchConfigProvider.get().getIndexShardSearcherCache(),
+                (k, v) -> {
+                    if (v.evict()) {
+                        openFiles.addAndGet(-v.getFileCount());
+                    }
+                });
+    }
+
+    /**
+     * Only closed shards are cached as open shards are searched via their writer so that uncommitted documents are
+     * visible.
+     */
+    boolean isCacheable(final IndexShard indexShard) {
+        return IndexShardStatus.CLOSED.equals(indexShard.getStatus());
+    }
+
+    /**
+     * Get a cached searcher for the supplied shard, opening one if necessary. The caller must call
+     * {@link CachedIndexShardSearcher#release()} when it has finished with the searcher.
+     */
+    CachedIndexShardSearcher acquire(final IndexShard indexShard) {
+        final long indexShardId = indexShard.getId();
+        while (true) {
+            final CachedIndexShardSearcher cachedIndexShardSearcher = cache.get(indexShardId, k -> open(indexShard));
+            if (cachedIndexShardSearcher.tryAcquire()) {
+                enforceOpenFileLimit(cachedIndexShardSearcher);
+                return cachedIndexShardSearcher;
+            }
+
+            // The searcher has been closed since we got it from the cache so make sure it is gone and try again.
+            LOGGER.debug(() -> "Cached searcher for index shard " + indexShardId + " already closed, retrying");
+            cache.invalidateEntries((k, v) -> v == cachedIndexShardSearcher);
+        }
+    }
+
+    /**
+     * Remove any cached searcher for the supplied shard. This must be called whenever the state of a shard changes,
+     * e.g. it is opened for writing or deleted.
+     */
+    void invalidate(final long indexShardId) {
+        LOGGER.debug(() -> "Invalidating cached searcher for index shard " + indexShardId);
+        cache.invalidate(indexShardId);
+    }
+
+    private CachedIndexShardSearcher open(final IndexShard indexShard) {
+        LOGGER.debug(() -> "Opening cached searcher for index shard " + indexShard.getId());
+        final CachedIndexShardSearcher cachedIndexShardSearcher =
+                new CachedIndexShardSearcher(new IndexShardSearcher(indexShard, null, pathCreator, true));
+        openFiles.addAndGet(cachedIndexShardSearcher.getFileCount());
+        return cachedIndexShardSearcher;
+    }
+
+    private void enforceOpenFileLimit(final CachedIndexShardSearcher current) {
+        final int maxOpenFiles = indexShardSearchConfigProvider.get().getIndexShardSearcherCacheMaxOpenFiles();
+        if (maxOpenFiles <= 0) {
+            return;
+        }
+
+        // Evict least recently used searchers until we are back within budget. Track the excess locally rather than
+        // re-reading the total as the removal listener may not have run by the time we look again.
+        long excess = openFiles.get() - maxOpenFiles;
+        while (excess > 0) {
+            final Entry<Long, CachedIndexShardSearcher> entry = findLeastRecentlyUsed(current);
+            if (entry == null) {
+                break;
+            }
+            LOGGER.debug(() -> "Evicting cached searcher for index shard " + entry.getKey() +
+                               " to stay within open file limit of " + maxOpenFiles);
+            cache.invalidate(entry.getKey());
+            excess -= entry.getValue().getFileCount();
+        }
+    }
+
+    private Entry<Long, CachedIndexShardSearcher> findLeastRecentlyUsed(final CachedIndexShardSearcher exclude) {
+        Entry<Long, CachedIndexShardSearcher> leastRecentlyUsed = null;
+        for (final Entry<Long, CachedIndexShardSearcher> entry : cache.asMap().entrySet()) {
+            final CachedIndexShardSearcher cachedIndexShardSearcher = entry.getValue();
+            if (cachedIndexShardSearcher != exclude
+                && !cachedIndexShardSearcher.isEvicted()
+                && (leastRecentlyUsed == null
+                    || cachedIndexShardSearcher.getLastAccessTime()
+                       < leastRecentlyUsed.getValue().getLastAccessTime())) {
+                leastRecentlyUsed = entry;
+            }
+        }
+        return leastRecentlyUsed;
+    }
+}
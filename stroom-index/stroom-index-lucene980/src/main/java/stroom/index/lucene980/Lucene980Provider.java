@@ -23,16 +23,19 @@ class Lucene980Provider implements LuceneProvider {
     private final Lucene980ShardSearcherFactory shardSearcherFactory;
     private final Lucene980SystemInfoProvider systemInfoProvider;
     private final Lucene980IndexShardWriterFactory indexShardWriterFactory;
+    private final IndexShardSearcherCache indexShardSearcherCache;
 
     @Inject
     Lucene980Provider(final Lucene980HighlightProvider highlightProvider,
                       final Lucene980ShardSearcherFactory shardSearcherFactory,
                       final Lucene980SystemInfoProvider systemInfoProvider,
-                      final Lucene980IndexShardWriterFactory indexShardWriterFactory) {
+                      final Lucene980IndexShardWriterFactory indexShardWriterFactory,
+                      final IndexShardSearcherCache indexShardSearcherCache) {
         this.highlightProvider = highlightProvider;
         this.shardSearcherFactory = shardSearcherFactory;
         this.systemInfoProvider = systemInfoProvider;
         this.indexShardWriterFactory = indexShardWriterFactory;
+        this.indexShardSearcherCache = indexShardSearcherCache;
     }
 
     @Override
@@ -67,6 +70,11 @@ class Lucene980Provider implements LuceneProvider {
         return systemInfoProvider;
     }
 
+    @Override
+    public void invalidateCachedSearchers(final long indexShardId) {
+        indexShardSearcherCache.invalidate(indexShardId);
+    }
+
     @Override
     public LuceneVersion getLuceneVersion() {
         return LuceneVersion.LUCENE_9_8_0;
@@ -50,15 +50,18 @@ import stroom.util.logging.LambdaLoggerFactory;
 import org.apache.lucene980.document.Document;
 import org.apache.lucene980.index.IndexWriter;
 import org.apache.lucene980.index.IndexableField;
+import org.apache.lucene980.index.StoredFields;
 import org.apache.lucene980.search.IndexSearcher;
 import org.apache.lucene980.search.Query;
 import org.apache.lucene980.search.SearcherManager;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.LongAdder;
 
 class Lucene980ShardSearcher implements LuceneShardSearcher {
@@ -72,6 +75,9 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
     private final Executor executor;
     private final TaskContextFactory taskContextFactory;
     private final PathCreator pathCreator;
+    private final IndexShardSearcherCache indexShardSearcherCache;
+    private final Semaphore threadPermits;
+    private final ConcurrentSegmentSearcher concurrentSegmentSearcher;
 
     private final QueryKey queryKey;
     private final Query query;
@@ -81,6 +87,7 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
                            final ExecutorProvider executorProvider,
                            final TaskContextFactory taskContextFactory,
                            final PathCreator pathCreator,
+                           final IndexShardSearcherCache indexShardSearcherCache,
                            final DocRef indexDocRef,
                            final IndexFieldCache indexFieldCache,
                            final ExpressionOperator expression,
@@ -93,6 +100,16 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
         this.executor = executorProvider.get(THREAD_POOL);
         this.taskContextFactory = taskContextFactory;
         this.pathCreator = pathCreator;
+        this.indexShardSearcherCache = indexShardSearcherCache;
+
+        // Threads used to search shards and segments of shards for this query are limited to the max threads per
+        // task.
+        this.threadPermits = new Semaphore(Math.max(1, shardConfig.getMaxThreadsPerTask()));
+        this.concurrentSegmentSearcher = new ConcurrentSegmentSearcher(
+                taskContextFactory,
+                executor,
+                threadPermits,
+                shardConfig.getMaxSegmentThreadsPerShard());
 
         final SearchExpressionQueryBuilder searchExpressionQueryBuilder = new SearchExpressionQueryBuilder(
                 indexDocRef,
@@ -121,6 +138,10 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
                             final ValuesConsumer valuesConsumer,
                             final ErrorConsumer errorConsumer) {
         IndexShardSearcher indexShardSearcher = null;
+        CachedIndexShardSearcher cachedIndexShardSearcher = null;
+        // Hold a permit while searching this shard so that segment searches of other shards know how many threads
+        // are free.
+        final boolean hasPermit = threadPermits.tryAcquire();
         try {
             if (!taskContext.isTerminated()) {
                 taskContext.reset();
@@ -128,9 +149,29 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
                         "Searching shard " + shardNumber + " of " + shardTotal +
                                 " (id=" + indexShard.getId() + ")", LOGGER);
 
-                final IndexWriter indexWriter = getWriter(indexShard.getId());
+                IndexWriter indexWriter = getWriter(indexShard.getId());
+
+                if (indexWriter == null && indexShardSearcherCache.isCacheable(indexShard)) {
+                    // Closed shards can be searched with a cached searcher.
+                    cachedIndexShardSearcher = indexShardSearcherCache.acquire(indexShard);
+
+                    // The shard may have been opened for writing since we looked for a writer, in which case the
+                    // cached searcher won't see documents added by the writer so search via the writer instead.
+                    indexWriter = getWriter(indexShard.getId());
+                    if (indexWriter != null) {
+                        LOGGER.debug(() -> "Index shard " + indexShard.getId() +
+                                           " opened for writing while acquiring cached searcher");
+                        cachedIndexShardSearcher.release();
+                        cachedIndexShardSearcher = null;
+                        indexShardSearcherCache.invalidate(indexShard.getId());
+                    }
+                }
 
-                indexShardSearcher = new IndexShardSearcher(indexShard, indexWriter, pathCreator);
+                if (cachedIndexShardSearcher != null) {
+                    indexShardSearcher = cachedIndexShardSearcher.getIndexShardSearcher();
+                } else {
+                    indexShardSearcher = new IndexShardSearcher(indexShard, indexWriter, pathCreator);
+                }
 
                 // Start searching.
                 searchShard(
@@ -147,7 +188,12 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
             error(errorConsumer, e);
 
         } finally {
-            if (indexShardSearcher != null) {
+            if (hasPermit) {
+                threadPermits.release();
+            }
+            if (cachedIndexShardSearcher != null) {
+                cachedIndexShardSearcher.release();
+            } else if (indexShardSearcher != null) {
                 taskContext.info(() -> "Closing searcher for index shard " + indexShard.getId(), LOGGER);
                 indexShardSearcher.destroy();
             }
@@ -181,7 +227,9 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
         // If there is an error building the query then it will be null here.
         if (query != null) {
             final int maxDocIdQueueSize = shardConfig.getMaxDocIdQueueSize();
-            LOGGER.debug(() -> "Creating docIdStore with size " + maxDocIdQueueSize);
+            final int docIdChunkSize = Math.max(1, Math.min(shardConfig.getDocIdChunkSize(), maxDocIdQueueSize));
+            LOGGER.debug(() -> "Creating docIdStore with size " + maxDocIdQueueSize +
+                               " and chunk size " + docIdChunkSize);
             final DocIdQueue docIdQueue = new DocIdQueue(maxDocIdQueueSize);
             try {
                 final SearcherManager searcherManager = indexShardSearcher.getSearcherManager();
@@ -195,20 +243,44 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
                                 try {
                                     LOGGER.logDurationIfDebugEnabled(() -> {
                                         try {
-                                            // Create a collector.
-                                            final IndexShardHitCollector collector = new IndexShardHitCollector(
-                                                    taskContext,
-                                                    queryKey,
-                                                    indexShard,
-                                                    query,
-                                                    docIdQueue,
-                                                    hitCount);
-
-                                            searcher.search(query, collector);
-
-                                            LOGGER.debug("Shard search complete. {}, query term [{}]",
-                                                    collector,
-                                                    query);
+                                            if (isConcurrentSegmentSearch(searcher)) {
+                                                // Search the segments of this large shard concurrently with a
+                                                // collector per thread.
+                                                concurrentSegmentSearcher.search(
+                                                        taskContext,
+                                                        searcher,
+                                                        query,
+                                                        context -> new IndexShardHitCollector(
+                                                                context,
+                                                                queryKey,
+                                                                indexShard,
+                                                                query,
+                                                                docIdQueue,
+                                                                docIdChunkSize,
+                                                                hitCount));
+
+                                                LOGGER.debug("Concurrent shard search complete. {}, " +
+                                                             "query term [{}]",
+                                                        indexShard,
+                                                        query);
+                                            } else {
+                                                // Create a collector.
+                                                final IndexShardHitCollector collector = new IndexShardHitCollector(
+                                                        taskContext,
+                                                        queryKey,
+                                                        indexShard,
+                                                        query,
+                                                        docIdQueue,
+                                                        docIdChunkSize,
+                                                        hitCount);
+
+                                                searcher.search(query, collector);
+                                                collector.flush();
+
+                                                LOGGER.debug("Shard search complete. {}, query term [{}]",
+                                                        collector,
+                                                        query);
+                                            }
 
                                         } catch (final TaskTerminatedException e) {
                                             // Expected error on early completion.
@@ -226,6 +298,7 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
                     CompletableFuture.runAsync(runnable, executor);
 
                     // Start converting found docIds into stored data values
+                    final int[] docIds = new int[docIdChunkSize];
                     boolean done = false;
                     while (!done) {
                         // Uncomment this to slow searches down in dev
@@ -237,21 +310,25 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
                             done = true;
 
                         } else {
-                            // Take the next item.
-                            // When we get null we are done.
-                            final Integer docId = docIdQueue.take();
-                            if (docId == null) {
+                            // Take the next chunk of doc ids.
+                            // When we get COMPLETE we are done.
+                            final int count = docIdQueue.take(docIds);
+                            if (count == DocIdQueue.COMPLETE) {
                                 done = true;
                             } else {
                                 try {
-                                    // If we have a doc id then retrieve the stored data for it.
-                                    SearchProgressLog.increment(queryKey,
-                                            SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE);
-                                    getStoredData(storedFields,
+                                    // Sort the chunk so that stored fields are read sequentially.
+                                    SearchProgressLog.add(queryKey,
+                                            SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE,
+                                            count);
+                                    Arrays.sort(docIds, 0, count);
+                                    getStoredData(
+                                            storedFields,
                                             fieldsToLoad,
                                             valuesConsumer,
                                             searcher,
-                                            docId,
+                                            docIds,
+                                            count,
                                             errorConsumer);
                                 } catch (final RuntimeException e) {
                                     error(errorConsumer, e);
@@ -269,8 +346,14 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
         }
     }
 
+    private boolean isConcurrentSegmentSearch(final IndexSearcher searcher) {
+        return shardConfig.getMaxSegmentThreadsPerShard() > 1
+               && searcher.getIndexReader().leaves().size() > 1
+               && searcher.getIndexReader().maxDoc() >= shardConfig.getMinDocsForConcurrentSegmentSearch();
+    }
+
     /**
-     * This method takes a list of document id's and extracts the stored fields
+     * This method takes a sorted chunk of document id's and extracts the stored fields
      * that are required for data display. In some cases such as batch search we
      * only want to get stream and event ids, in these cases no values are
      * retrieved, only stream and event ids.
@@ -279,12 +362,32 @@ class Lucene980ShardSearcher implements LuceneShardSearcher {
                                final Set<String> fieldsToLoad,
                                final ValuesConsumer valuesConsumer,
                                final IndexSearcher searcher,
+                               final int[] docIds,
+                               final int count,
+                               final ErrorConsumer errorConsumer) {
+        final StoredFields luceneStoredFields;
+        try {
+            luceneStoredFields = searcher.storedFields();
+        } catch (final IOException e) {
+            error(errorConsumer, e);
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            getStoredData(storedFields, fieldsToLoad, valuesConsumer, luceneStoredFields, docIds[i], errorConsumer);
+        }
+    }
+
+    private void getStoredData(final IndexField[] storedFields,
+                               final Set<String> fieldsToLoad,
+                               final ValuesConsumer valuesConsumer,
+                               final StoredFields luceneStoredFields,
                                final int docId,
                                final ErrorConsumer errorConsumer) {
         try {
             SearchProgressLog.increment(queryKey, SearchPhase.INDEX_SHARD_SEARCH_TASK_HANDLER_GET_STORED_DATA);
             final Val[] values = new Val[storedFields.length];
-            final Document document = searcher.storedFields().document(docId, fieldsToLoad);
+            final Document document = luceneStoredFields.document(docId, fieldsToLoad);
 
             for (int i = 0; i < storedFields.length; i++) {
                 final IndexField storedField = storedFields[i];
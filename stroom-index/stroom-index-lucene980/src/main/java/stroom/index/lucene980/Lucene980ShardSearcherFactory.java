@@ -25,6 +25,7 @@ class Lucene980ShardSearcherFactory {
     private final ExecutorProvider executorProvider;
     private final TaskContextFactory taskContextFactory;
     private final PathCreator pathCreator;
+    private final IndexShardSearcherCache indexShardSearcherCache;
     private final WordListProvider dictionaryStore;
     private final Provider<SearchConfig> searchConfigProvider;
 
@@ -34,6 +35,7 @@ class Lucene980ShardSearcherFactory {
                                   final ExecutorProvider executorProvider,
                                   final TaskContextFactory taskContextFactory,
                                   final PathCreator pathCreator,
+                                  final IndexShardSearcherCache indexShardSearcherCache,
                                   final WordListProvider dictionaryStore,
                                   final Provider<SearchConfig> searchConfigProvider) {
         this.indexShardWriterCache = indexShardWriterCache;
@@ -41,6 +43,7 @@ class Lucene980ShardSearcherFactory {
         this.executorProvider = executorProvider;
         this.taskContextFactory = taskContextFactory;
         this.pathCreator = pathCreator;
+        this.indexShardSearcherCache = indexShardSearcherCache;
         this.dictionaryStore = dictionaryStore;
         this.searchConfigProvider = searchConfigProvider;
     }
@@ -57,6 +60,7 @@ class Lucene980ShardSearcherFactory {
                 executorProvider,
                 taskContextFactory,
                 pathCreator,
+                indexShardSearcherCache,
                 indexDocRef,
                 indexFieldCache,
                 expression,
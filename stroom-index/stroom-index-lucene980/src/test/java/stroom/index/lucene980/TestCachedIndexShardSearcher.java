@@ -0,0 +1,111 @@
+package stroom.index.lucene980;
+
+import stroom.index.impl.IndexConfig;
+import stroom.index.impl.IndexDocument;
+import stroom.index.impl.IndexShardWriter;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.index.shared.IndexVolume;
+import stroom.index.shared.LuceneIndexField;
+import stroom.index.shared.LuceneVersionUtil;
+import stroom.query.language.functions.ValInteger;
+import stroom.search.extraction.FieldValue;
+import stroom.util.io.FileUtil;
+import stroom.util.io.PathCreator;
+import stroom.util.io.SimplePathCreator;
+
+import org.apache.lucene980.search.IndexSearcher;
+import org.apache.lucene980.search.SearcherManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestCachedIndexShardSearcher {
+
+    @Test
+    void testRefCounting(@TempDir final Path tempDir) throws IOException {
+        final PathCreator pathCreator = new SimplePathCreator(
+                () -> tempDir.resolve("home"),
+                () -> tempDir);
+        final IndexShard indexShard = createShard(tempDir, pathCreator);
+
+        final CachedIndexShardSearcher cachedIndexShardSearcher = new CachedIndexShardSearcher(
+                new IndexShardSearcher(indexShard, null, pathCreator, true));
+        assertThat(cachedIndexShardSearcher.getFileCount()).isGreaterThan(0);
+
+        // Take a reference as a search would.
+        assertThat(cachedIndexShardSearcher.tryAcquire()).isTrue();
+
+        // Evicting from the cache must not close the searcher while the search is using it.
+        cachedIndexShardSearcher.evict();
+        assertThat(cachedIndexShardSearcher.isEvicted()).isTrue();
+        assertDocCount(cachedIndexShardSearcher, 1);
+
+        // Once released the searcher is closed and can't be acquired again.
+        cachedIndexShardSearcher.release();
+        assertThat(cachedIndexShardSearcher.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void testEvictWhenUnused(@TempDir final Path tempDir) throws IOException {
+        final PathCreator pathCreator = new SimplePathCreator(
+                () -> tempDir.resolve("home"),
+                () -> tempDir);
+        final IndexShard indexShard = createShard(tempDir, pathCreator);
+
+        final CachedIndexShardSearcher cachedIndexShardSearcher = new CachedIndexShardSearcher(
+                new IndexShardSearcher(indexShard, null, pathCreator, true));
+        assertThat(cachedIndexShardSearcher.tryAcquire()).isTrue();
+        assertDocCount(cachedIndexShardSearcher, 1);
+        cachedIndexShardSearcher.release();
+
+        // Still held by the cache.
+        assertThat(cachedIndexShardSearcher.tryAcquire()).isTrue();
+        cachedIndexShardSearcher.release();
+
+        // Evicting twice must only release the cache reference once.
+        assertThat(cachedIndexShardSearcher.evict()).isTrue();
+        assertThat(cachedIndexShardSearcher.evict()).isFalse();
+        assertThat(cachedIndexShardSearcher.tryAcquire()).isFalse();
+    }
+
+    private void assertDocCount(final CachedIndexShardSearcher cachedIndexShardSearcher,
+                                final int expected) throws IOException {
+        final SearcherManager searcherManager = cachedIndexShardSearcher.getIndexShardSearcher()
+                .getSearcherManager();
+        final IndexSearcher searcher = searcherManager.acquire();
+        try {
+            assertThat(searcher.getIndexReader().numDocs()).isEqualTo(expected);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    private IndexShard createShard(final Path tempDir, final PathCreator pathCreator) {
+        final IndexVolume volume = new IndexVolume();
+        volume.setPath(FileUtil.getCanonicalPath(tempDir.resolve("volume")));
+
+        final IndexShard indexShard = new IndexShard();
+        indexShard.setId(1L);
+        indexShard.setIndexUuid(UUID.randomUUID().toString());
+        indexShard.setPartition("all");
+        indexShard.setVolume(volume);
+        indexShard.setIndexVersion(LuceneVersionUtil.getCurrentVersion());
+
+        final IndexShardWriter writer = new Lucene980IndexShardWriter(
+                null, new IndexConfig(), indexShard, pathCreator, 1000);
+        final IndexDocument document = new IndexDocument();
+        document.add(new FieldValue(LuceneIndexField.createIdField("Id"), ValInteger.create(1)));
+        writer.addDocument(document);
+        writer.close();
+
+        indexShard.setDocumentCount(1);
+        indexShard.setStatus(IndexShardStatus.CLOSED);
+        return indexShard;
+    }
+}
@@ -0,0 +1,178 @@
+package stroom.index.lucene980;
+
+import stroom.index.impl.IndexConfig;
+import stroom.index.impl.IndexDocument;
+import stroom.index.impl.IndexShardWriter;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.index.shared.IndexVolume;
+import stroom.index.shared.LuceneIndexField;
+import stroom.index.shared.LuceneVersionUtil;
+import stroom.query.api.QueryKey;
+import stroom.query.language.functions.ValInteger;
+import stroom.search.extraction.FieldValue;
+import stroom.task.api.SimpleTaskContext;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.util.io.FileUtil;
+import stroom.util.io.PathCreator;
+import stroom.util.io.SimplePathCreator;
+
+import org.apache.lucene980.search.IndexSearcher;
+import org.apache.lucene980.search.MatchAllDocsQuery;
+import org.apache.lucene980.search.SearcherManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestConcurrentSegmentSearcher {
+
+    private static final int SEGMENTS = 5;
+    private static final int DOCS_PER_SEGMENT = 100;
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void beforeEach() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void afterEach() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void testSearch(@TempDir final Path tempDir) throws IOException {
+        final Semaphore threadPermits = new Semaphore(4);
+        search(tempDir, executorService, threadPermits);
+
+        // All permits should have been given back.
+        assertThat(threadPermits.availablePermits()).isEqualTo(4);
+    }
+
+    @Test
+    void testSearchWithNoFreeThreads(@TempDir final Path tempDir) throws IOException {
+        // An executor that never gets round to running helpers, as if all of its threads are busy.
+        final List<Runnable> waiting = new ArrayList<>();
+        final Semaphore threadPermits = new Semaphore(4);
+        search(tempDir, waiting::add, threadPermits);
+
+        // The calling thread should have searched every segment itself without waiting for the helpers.
+        assertThat(waiting).isNotEmpty();
+        assertThat(threadPermits.availablePermits()).isEqualTo(4);
+
+        // Helpers that start late have nothing to do and must not give back permits twice.
+        waiting.forEach(Runnable::run);
+        assertThat(threadPermits.availablePermits()).isEqualTo(4);
+    }
+
+    private void search(final Path tempDir,
+                        final Executor executor,
+                        final Semaphore threadPermits) throws IOException {
+        final PathCreator pathCreator = new SimplePathCreator(
+                () -> tempDir.resolve("home"),
+                () -> tempDir);
+        final IndexShard indexShard = createShard(tempDir, pathCreator);
+
+        final int totalDocs = SEGMENTS * DOCS_PER_SEGMENT;
+        final ConcurrentSegmentSearcher concurrentSegmentSearcher = new ConcurrentSegmentSearcher(
+                new SimpleTaskContextFactory(),
+                executor,
+                threadPermits,
+                4);
+        final DocIdQueue docIdQueue = new DocIdQueue(totalDocs);
+        final LongAdder hitCount = new LongAdder();
+        final QueryKey queryKey = new QueryKey(UUID.randomUUID().toString());
+        final MatchAllDocsQuery query = new MatchAllDocsQuery();
+
+        final IndexShardSearcher indexShardSearcher = new IndexShardSearcher(indexShard, pathCreator);
+        try {
+            final SearcherManager searcherManager = indexShardSearcher.getSearcherManager();
+            final IndexSearcher searcher = searcherManager.acquire();
+            try {
+                assertThat(searcher.getIndexReader().leaves().size()).isGreaterThan(1);
+
+                concurrentSegmentSearcher.search(
+                        new SimpleTaskContext(),
+                        searcher,
+                        query,
+                        taskContext -> new IndexShardHitCollector(
+                                taskContext,
+                                queryKey,
+                                indexShard,
+                                query,
+                                docIdQueue,
+                                7,
+                                hitCount));
+                docIdQueue.complete();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } finally {
+            indexShardSearcher.destroy();
+        }
+
+        assertThat(hitCount.sum()).isEqualTo(totalDocs);
+
+        // Every doc should have been found exactly once.
+        final BitSet found = new BitSet(totalDocs);
+        final int[] chunk = new int[10];
+        int count = docIdQueue.take(chunk);
+        int total = 0;
+        while (count != DocIdQueue.COMPLETE) {
+            for (int i = 0; i < count; i++) {
+                assertThat(found.get(chunk[i])).isFalse();
+                found.set(chunk[i]);
+            }
+            total += count;
+            count = docIdQueue.take(chunk);
+        }
+        assertThat(total).isEqualTo(totalDocs);
+        assertThat(found.cardinality()).isEqualTo(totalDocs);
+    }
+
+    private IndexShard createShard(final Path tempDir, final PathCreator pathCreator) {
+        final IndexVolume volume = new IndexVolume();
+        volume.setPath(FileUtil.getCanonicalPath(tempDir.resolve("volume")));
+
+        final IndexShard indexShard = new IndexShard();
+        indexShard.setId(1L);
+        indexShard.setIndexUuid(UUID.randomUUID().toString());
+        indexShard.setPartition("all");
+        indexShard.setVolume(volume);
+        indexShard.setIndexVersion(LuceneVersionUtil.getCurrentVersion());
+
+        // Flush after each batch of documents so that we end up with several segments.
+        final IndexShardWriter writer = new Lucene980IndexShardWriter(
+                null, new IndexConfig(), indexShard, pathCreator, Integer.MAX_VALUE);
+        int id = 0;
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            for (int i = 0; i < DOCS_PER_SEGMENT; i++) {
+                final IndexDocument document = new IndexDocument();
+                document.add(new FieldValue(LuceneIndexField.createIdField("Id"), ValInteger.create(id++)));
+                writer.addDocument(document);
+            }
+            writer.flush();
+        }
+        writer.close();
+
+        indexShard.setDocumentCount(id);
+        indexShard.setStatus(IndexShardStatus.CLOSED);
+        return indexShard;
+    }
+}
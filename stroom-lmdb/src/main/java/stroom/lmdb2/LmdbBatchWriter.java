@@ -0,0 +1,481 @@
+package stroom.lmdb2;
+
+import stroom.util.concurrent.UncheckedInterruptedException;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.logging.LogUtil;
+import stroom.util.shared.NullSafe;
+
+import jakarta.inject.Provider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * An alternative to {@link LmdbWriter} that does not make each writing thread rendezvous with the transfer thread.
+ * Write operations are added to a bounded queue and the transfer thread drains as many operations as are available
+ * on each wake-up, applying them all to the same write txn. The txn is committed once a number of writes have been
+ * applied or a period of time has passed since the last commit, whichever comes first.
+ * <p>
+ * Callers that need the result of a write, e.g. whether a put succeeded, can use {@link #writeAndGet(Function)}
+ * which waits until the write has been applied to the txn, but not until it is committed. Writes from other threads
+ * waiting at the same time are applied in the same wake-up and committed together. Callers that need to know when
+ * a write is durable can use {@link #writeAsync(Consumer)} which returns a future that completes once the txn
+ * containing the write has been committed.
+ */
+public class LmdbBatchWriter {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(LmdbBatchWriter.class);
+
+    private final LmdbEnv env;
+    private final BlockingQueue<WriteOp> queue;
+    private final int maxBatchSize;
+    private final long maxCommitIntervalNanos;
+    private final LongConsumer commitListener;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private volatile long lastCommitNanos;
+    private volatile int lastBatchSize;
+
+    private LmdbBatchWriter(final Provider<Executor> executorProvider,
+                            final LmdbEnv env,
+                            final int queueCapacity,
+                            final int maxBatchSize,
+                            final Duration maxCommitInterval,
+                            final LongConsumer commitListener) {
+        this.env = env;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxCommitIntervalNanos = maxCommitInterval.toNanos();
+        this.commitListener = commitListener;
+
+        // Start transfer loop.
+        executorProvider.get().execute(this::transfer);
+    }
+
+    /**
+     * Queues the write operation. The operation will be committed along with other queued operations once the
+     * batch size or commit interval is reached. Any error performing the operation will be logged.
+     */
+    public void write(final Consumer<WriteTxn> consumer) {
+        put(new WriteOp(OpType.WRITE, consumer, null, null));
+    }
+
+    /**
+     * Queues the write operation and waits until it has been applied to the write txn. The write is not committed
+     * until the batch size or commit interval is reached or {@link #flush()} is called.
+     *
+     * @throws RuntimeException If the write operation fails.
+     */
+    public void writeAndWait(final Consumer<WriteTxn> consumer) {
+        writeAndGet(writeTxn -> {
+            consumer.accept(writeTxn);
+            return null;
+        });
+    }
+
+    /**
+     * Queues the write operation and waits until it has been applied to the write txn. The write is not committed
+     * until the batch size or commit interval is reached or {@link #flush()} is called.
+     *
+     * @return The result of the write operation.
+     * @throws RuntimeException If the write operation fails.
+     */
+    public <R> R writeAndGet(final Function<WriteTxn, R> function) {
+        final CompletableFuture<R> applied = new CompletableFuture<>();
+        put(new WriteOp(OpType.WRITE, writeTxn -> applied.complete(function.apply(writeTxn)), applied, null));
+        return await(applied);
+    }
+
+    /**
+     * Queues the write operation.
+     *
+     * @return A future that completes once the txn containing the write has been committed or completes
+     * exceptionally if the write or the commit fails.
+     */
+    public CompletableFuture<Void> writeAsync(final Consumer<WriteTxn> consumer) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        put(new WriteOp(OpType.WRITE, consumer, null, future));
+        return future;
+    }
+
+    /**
+     * Commits all writes queued before this call and waits for the commit to complete.
+     */
+    public void flush() {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        put(new WriteOp(OpType.FLUSH, null, null, future));
+        await(future);
+    }
+
+    /**
+     * Commits all outstanding writes and stops the transfer thread.
+     */
+    public void close() {
+        if (!closed) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            put(new WriteOp(OpType.CLOSE, null, null, future));
+            closed = true;
+            await(future);
+        }
+        try {
+            stopped.await();
+        } catch (final InterruptedException e) {
+            LOGGER.debug(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+            throw new UncheckedInterruptedException(e);
+        }
+    }
+
+    /**
+     * @return The number of write operations waiting to be applied.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return The total number of write operations applied.
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * @return The total number of commits.
+     */
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /**
+     * @return The number of writes included in the most recent commit.
+     */
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public Duration getLastCommitDuration() {
+        return Duration.ofNanos(lastCommitNanos);
+    }
+
+    public Duration getMaxCommitDuration() {
+        return Duration.ofNanos(maxCommitNanos.get());
+    }
+
+    public Duration getAverageCommitDuration() {
+        final long count = commitCount.get();
+        return count == 0
+                ? Duration.ZERO
+                : Duration.ofNanos(totalCommitNanos.get() / count);
+    }
+
+    private void put(final WriteOp writeOp) {
+        if (closed) {
+            throw new RuntimeException("Closed");
+        }
+        try {
+            // Don't block forever if the transfer thread has stopped while we are waiting for space.
+            while (!queue.offer(writeOp, 1, TimeUnit.SECONDS)) {
+                if (closed) {
+                    throw new RuntimeException("Closed");
+                }
+            }
+            // The transfer thread may have stopped after we checked, in which case make sure our op doesn't sit
+            // in the queue forever.
+            if (closed) {
+                failRemaining(new ArrayList<>());
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.debug(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+            throw new UncheckedInterruptedException(e);
+        }
+    }
+
+    private <R> R await(final CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof final RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private void transfer() {
+        final List<WriteOp> batch = new ArrayList<>(maxBatchSize);
+        final List<CompletableFuture<Void>> uncommittedFutures = new ArrayList<>();
+        int uncommittedCount = 0;
+        long lastCommitTime = System.nanoTime();
+        boolean running = true;
+
+        try (final WriteTxn writeTxn = env.writeTxn()) {
+            try {
+                while (running) {
+                    // Wait for the next op, but no longer than it takes to reach the commit interval if we have
+                    // uncommitted writes.
+                    final WriteOp first;
+                    if (uncommittedCount > 0) {
+                        final long waitNanos = maxCommitIntervalNanos - (System.nanoTime() - lastCommitTime);
+                        first = queue.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                    } else {
+                        first = queue.take();
+                    }
+
+                    if (first != null) {
+                        // Take everything else that is waiting.
+                        batch.add(first);
+                        queue.drainTo(batch);
+
+                        for (final WriteOp writeOp : batch) {
+                            switch (writeOp.type) {
+                                case WRITE -> {
+                                    if (apply(writeTxn, writeOp)) {
+                                        uncommittedCount++;
+                                        if (writeOp.committed != null) {
+                                            uncommittedFutures.add(writeOp.committed);
+                                        }
+                                    }
+                                }
+                                case FLUSH -> {
+                                    commit(writeTxn, uncommittedCount, uncommittedFutures);
+                                    uncommittedCount = 0;
+                                    lastCommitTime = System.nanoTime();
+                                    writeOp.committed.complete(null);
+                                }
+                                case CLOSE -> {
+                                    commit(writeTxn, uncommittedCount, uncommittedFutures);
+                                    uncommittedCount = 0;
+                                    running = false;
+                                    writeOp.committed.complete(null);
+                                }
+                            }
+
+                            // Commit if we have reached the batch size.
+                            if (uncommittedCount >= maxBatchSize) {
+                                commit(writeTxn, uncommittedCount, uncommittedFutures);
+                                uncommittedCount = 0;
+                                lastCommitTime = System.nanoTime();
+                            }
+                        }
+                        batch.clear();
+                    }
+
+                    // Commit if we have reached the commit interval.
+                    if (uncommittedCount > 0 && System.nanoTime() - lastCommitTime >= maxCommitIntervalNanos) {
+                        commit(writeTxn, uncommittedCount, uncommittedFutures);
+                        uncommittedCount = 0;
+                        lastCommitTime = System.nanoTime();
+                    }
+                }
+            } finally {
+                LOGGER.debug("close called");
+                if (uncommittedCount > 0) {
+                    try {
+                        // Final commit.
+                        commit(writeTxn, uncommittedCount, uncommittedFutures);
+                    } catch (final RuntimeException e) {
+                        LOGGER.error(e::getMessage, e);
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.error(e.getMessage(), e);
+            Thread.currentThread().interrupt();
+            throw new UncheckedInterruptedException(e);
+        } finally {
+            closed = true;
+            failRemaining(batch);
+            stopped.countDown();
+        }
+    }
+
+    private boolean apply(final WriteTxn writeTxn, final WriteOp writeOp) {
+        try {
+            writeOp.consumer.accept(writeTxn);
+            writeCount.incrementAndGet();
+            return true;
+        } catch (final RuntimeException e) {
+            if (writeOp.applied != null || writeOp.committed != null) {
+                NullSafe.consume(writeOp.applied, future -> future.completeExceptionally(e));
+                NullSafe.consume(writeOp.committed, future -> future.completeExceptionally(e));
+            } else {
+                LOGGER.error(() -> LogUtil.message("Error doing write: {}", LogUtil.exceptionMessage(e)), e);
+            }
+            return false;
+        }
+    }
+
+    private void commit(final WriteTxn writeTxn,
+                        final int uncommittedCount,
+                        final List<CompletableFuture<Void>> uncommittedFutures) {
+        final long startTime = System.nanoTime();
+        try {
+            writeTxn.commit();
+        } catch (final RuntimeException e) {
+            uncommittedFutures.forEach(future -> future.completeExceptionally(e));
+            uncommittedFutures.clear();
+            throw e;
+        }
+        final long elapsed = System.nanoTime() - startTime;
+
+        LOGGER.trace(() -> "Committed " + uncommittedCount + " writes in " + Duration.ofNanos(elapsed));
+        commitCount.incrementAndGet();
+        totalCommitNanos.addAndGet(elapsed);
+        maxCommitNanos.accumulateAndGet(elapsed, Math::max);
+        lastCommitNanos = elapsed;
+        lastBatchSize = uncommittedCount;
+        if (commitListener != null) {
+            try {
+                commitListener.accept(elapsed);
+            } catch (final RuntimeException e) {
+                LOGGER.error(e::getMessage, e);
+            }
+        }
+
+        uncommittedFutures.forEach(future -> future.complete(null));
+        uncommittedFutures.clear();
+    }
+
+    private void failRemaining(final List<WriteOp> remaining) {
+        // Fail anything that was part of an unfinished batch or is still queued so that no caller waits forever.
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            final RuntimeException e = new RuntimeException("Closed");
+            remaining.forEach(writeOp -> {
+                NullSafe.consume(writeOp.applied, future -> future.completeExceptionally(e));
+                NullSafe.consume(writeOp.committed, future -> future.completeExceptionally(e));
+            });
+            remaining.clear();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private enum OpType {
+        WRITE,
+        FLUSH,
+        CLOSE
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * @param applied   Completed once the op has been applied, or null if no one is waiting for that.
+     * @param committed Completed once the op has been committed, or null if no one is waiting for that.
+     */
+    private record WriteOp(OpType type,
+                           Consumer<WriteTxn> consumer,
+                           CompletableFuture<?> applied,
+                           CompletableFuture<Void> committed) {
+
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    public static class Builder {
+
+        private Provider<Executor> executorProvider;
+        private LmdbEnv env;
+        private int queueCapacity = 10_000;
+        private int maxBatchSize = 10_000;
+        private Duration maxCommitInterval = Duration.ofSeconds(1);
+        private LongConsumer commitListener;
+
+        private Builder() {
+        }
+
+        public Builder executorProvider(final Provider<Executor> executorProvider) {
+            this.executorProvider = executorProvider;
+            return this;
+        }
+
+        public Builder env(final LmdbEnv env) {
+            this.env = env;
+            return this;
+        }
+
+        /**
+         * The maximum number of write operations that can be waiting before writers are blocked.
+         */
+        public Builder queueCapacity(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * The number of write operations applied before the write txn is committed.
+         */
+        public Builder maxBatchSize(final int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * The maximum time uncommitted writes will be held before the write txn is committed.
+         */
+        public Builder maxCommitInterval(final Duration maxCommitInterval) {
+            this.maxCommitInterval = maxCommitInterval;
+            return this;
+        }
+
+        /**
+         * Called on the transfer thread with the duration in nanoseconds of each commit, e.g. to record a
+         * commit latency metric.
+         */
+        public Builder commitListener(final LongConsumer commitListener) {
+            this.commitListener = commitListener;
+            return this;
+        }
+
+        public LmdbBatchWriter build() {
+            Objects.requireNonNull(executorProvider, "Executor provider is required");
+            Objects.requireNonNull(env, "Env is required");
+            Objects.requireNonNull(maxCommitInterval, "Max commit interval is required");
+            if (queueCapacity <= 0) {
+                throw new IllegalArgumentException("Queue capacity must be greater than 0");
+            }
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("Max batch size must be greater than 0");
+            }
+            return new LmdbBatchWriter(
+                    executorProvider,
+                    env,
+                    queueCapacity,
+                    maxBatchSize,
+                    maxCommitInterval,
+                    commitListener);
+        }
+    }
+}
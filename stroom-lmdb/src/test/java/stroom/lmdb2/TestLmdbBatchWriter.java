@@ -0,0 +1,278 @@
+package stroom.lmdb2;
+
+import stroom.bytebuffer.ByteBufferPool;
+import stroom.bytebuffer.ByteBufferPoolFactory;
+import stroom.bytebuffer.PooledByteBufferPair;
+import stroom.lmdb.LmdbConfig;
+import stroom.util.io.ByteSize;
+import stroom.util.logging.LogUtil;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.lmdbjava.EnvFlags;
+import org.lmdbjava.PutFlags;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class TestLmdbBatchWriter {
+
+    private static final String DB_NAME = "db";
+
+    @Mock
+    private LmdbConfig mockLmdbConfig;
+    private final ByteBufferPool byteBufferPool = new ByteBufferPoolFactory().getByteBufferPool();
+
+    @Test
+    void testConcurrentWrites(@TempDir final Path tempDir) throws Exception {
+        final int threads = 4;
+        final int writesPerThread = 1_000;
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        try (final LmdbEnv lmdbEnv = createEnv(tempDir)) {
+            final LmdbDb db = lmdbEnv.openDb(DB_NAME);
+            final LmdbBatchWriter writer = LmdbBatchWriter
+                    .builder()
+                    .executorProvider(() -> executorService)
+                    .env(lmdbEnv)
+                    .queueCapacity(100)
+                    .maxBatchSize(500)
+                    .maxCommitInterval(Duration.ofSeconds(10))
+                    .build();
+
+            final List<CompletableFuture<Void>> producers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final int thread = i;
+                producers.add(CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < writesPerThread; j++) {
+                        final String key = "key-" + thread + "-" + j;
+                        writer.write(writeTxn -> put(writeTxn, db, key));
+                    }
+                }, executorService));
+            }
+            CompletableFuture.allOf(producers.toArray(new CompletableFuture[0])).join();
+            writer.flush();
+
+            assertThat(db.count())
+                    .isEqualTo(threads * writesPerThread);
+            assertThat(writer.getWriteCount())
+                    .isEqualTo(threads * writesPerThread);
+            // Writes should have been grouped into far fewer commits than writes.
+            assertThat(writer.getCommitCount())
+                    .isLessThan(threads * writesPerThread);
+            assertThat(writer.getQueueDepth())
+                    .isZero();
+
+            writer.close();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWriteAsyncCompletesOnCommitInterval(@TempDir final Path tempDir) {
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        try (final LmdbEnv lmdbEnv = createEnv(tempDir)) {
+            final LmdbDb db = lmdbEnv.openDb(DB_NAME);
+            final LmdbBatchWriter writer = LmdbBatchWriter
+                    .builder()
+                    .executorProvider(() -> executorService)
+                    .env(lmdbEnv)
+                    .maxBatchSize(1_000)
+                    .maxCommitInterval(Duration.ofMillis(50))
+                    .build();
+
+            // The batch size is never reached so the commit must be driven by the interval.
+            writer.writeAsync(writeTxn -> put(writeTxn, db, "key-1")).join();
+
+            assertThat(db.count())
+                    .isEqualTo(1);
+            assertThat(writer.getCommitCount())
+                    .isEqualTo(1);
+            assertThat(writer.getLastBatchSize())
+                    .isEqualTo(1);
+
+            writer.close();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWriteAsyncFailure(@TempDir final Path tempDir) {
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        try (final LmdbEnv lmdbEnv = createEnv(tempDir)) {
+            final LmdbDb db = lmdbEnv.openDb(DB_NAME);
+            final LmdbBatchWriter writer = LmdbBatchWriter
+                    .builder()
+                    .executorProvider(() -> executorService)
+                    .env(lmdbEnv)
+                    .build();
+
+            final CompletableFuture<Void> failed = writer.writeAsync(writeTxn -> {
+                throw new RuntimeException("Bad write");
+            });
+            final CompletableFuture<Void> succeeded = writer.writeAsync(writeTxn -> put(writeTxn, db, "key-1"));
+            writer.flush();
+
+            assertThat(failed)
+                    .isCompletedExceptionally();
+            assertThat(succeeded)
+                    .isCompleted()
+                    .isNotCompletedExceptionally();
+            assertThat(db.count())
+                    .isEqualTo(1);
+
+            writer.close();
+            assertThatThrownBy(() -> writer.write(writeTxn -> put(writeTxn, db, "key-2")))
+                    .hasMessage("Closed");
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWriteAndGet(@TempDir final Path tempDir) throws Exception {
+        final int threads = 4;
+        final int writesPerThread = 500;
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        final AtomicInteger commitListenerCount = new AtomicInteger();
+        try (final LmdbEnv lmdbEnv = createEnv(tempDir)) {
+            final LmdbDb db = lmdbEnv.openDb(DB_NAME);
+            final LmdbBatchWriter writer = LmdbBatchWriter
+                    .builder()
+                    .executorProvider(() -> executorService)
+                    .env(lmdbEnv)
+                    .maxBatchSize(100)
+                    .maxCommitInterval(Duration.ofSeconds(10))
+                    .commitListener(nanos -> commitListenerCount.incrementAndGet())
+                    .build();
+
+            // Each thread puts its keys twice, so the second put of each key must report that it
+            // found the first even though it may not have been committed.
+            final List<CompletableFuture<Integer>> producers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                final int thread = i;
+                producers.add(CompletableFuture.supplyAsync(() -> {
+                    int newKeys = 0;
+                    for (int j = 0; j < writesPerThread * 2; j++) {
+                        final String key = "key-" + thread + "-" + (j % writesPerThread);
+                        if (writer.writeAndGet(writeTxn -> putIfAbsent(writeTxn, db, key))) {
+                            newKeys++;
+                        }
+                    }
+                    return newKeys;
+                }, executorService));
+            }
+            for (final CompletableFuture<Integer> producer : producers) {
+                assertThat(producer.get(30, TimeUnit.SECONDS))
+                        .isEqualTo(writesPerThread);
+            }
+            writer.flush();
+
+            assertThat(db.count())
+                    .isEqualTo(threads * writesPerThread);
+            assertThat(writer.getWriteCount())
+                    .isEqualTo(threads * writesPerThread * 2);
+            assertThat(writer.getCommitCount())
+                    .isLessThan(threads * writesPerThread * 2);
+            assertThat(commitListenerCount.get())
+                    .isEqualTo(writer.getCommitCount());
+
+            writer.close();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testWriteAndWaitFailure(@TempDir final Path tempDir) {
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        try (final LmdbEnv lmdbEnv = createEnv(tempDir)) {
+            final LmdbDb db = lmdbEnv.openDb(DB_NAME);
+            final LmdbBatchWriter writer = LmdbBatchWriter
+                    .builder()
+                    .executorProvider(() -> executorService)
+                    .env(lmdbEnv)
+                    .build();
+
+            assertThatThrownBy(() -> writer.writeAndWait(writeTxn -> {
+                throw new RuntimeException("Bad write");
+            }))
+                    .hasMessage("Bad write");
+
+            // The writer carries on after a failed write
+            writer.writeAndWait(writeTxn -> put(writeTxn, db, "key-1"));
+            writer.flush();
+            assertThat(db.count())
+                    .isEqualTo(1);
+
+            writer.close();
+            assertThatThrownBy(() -> writer.writeAndWait(writeTxn -> put(writeTxn, db, "key-2")))
+                    .hasMessage("Closed");
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private boolean putIfAbsent(final WriteTxn writeTxn, final LmdbDb db, final String key) {
+        try (final PooledByteBufferPair pair = byteBufferPool.getPooledBufferPair(50, 20)) {
+            final ByteBuffer keyBuf = pair.getKeyBuffer();
+            final ByteBuffer valBuf = pair.getValueBuffer();
+            keyBuf.put(key.getBytes(StandardCharsets.UTF_8));
+            keyBuf.flip();
+            valBuf.put("val".getBytes(StandardCharsets.UTF_8));
+            valBuf.flip();
+            return db.put(writeTxn, keyBuf, valBuf, PutFlags.MDB_NOOVERWRITE);
+        }
+    }
+
+    private void put(final WriteTxn writeTxn, final LmdbDb db, final String key) {
+        try (final PooledByteBufferPair pair = byteBufferPool.getPooledBufferPair(50, 20)) {
+            final ByteBuffer keyBuf = pair.getKeyBuffer();
+            final ByteBuffer valBuf = pair.getValueBuffer();
+            keyBuf.put(key.getBytes(StandardCharsets.UTF_8));
+            keyBuf.flip();
+            valBuf.put("val".getBytes(StandardCharsets.UTF_8));
+            valBuf.flip();
+            db.put(writeTxn, keyBuf, valBuf);
+        }
+    }
+
+    private LmdbEnv createEnv(final Path tempDir) {
+        Mockito.when(mockLmdbConfig.getMaxStoreSize())
+                .thenReturn(ByteSize.ofMebibytes(10));
+        Mockito.when(mockLmdbConfig.getMaxReaders())
+                .thenReturn(10);
+
+        final LmdbEnvDir lmdbEnvDir = new LmdbEnvDir(tempDir, true);
+        try {
+            return LmdbEnv
+                    .builder()
+                    .config(mockLmdbConfig)
+                    .lmdbEnvDir(lmdbEnvDir)
+                    .maxDbs(2)
+                    .addEnvFlag(EnvFlags.MDB_NOTLS)
+                    .build();
+        } catch (final Exception e) {
+            throw new RuntimeException(LogUtil.message("Error creating/opening LMDB Env in {} - {}",
+                    lmdbEnvDir, LogUtil.exceptionMessage(e)), e);
+        }
+    }
+}
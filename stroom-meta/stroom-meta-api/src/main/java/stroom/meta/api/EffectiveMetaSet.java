@@ -405,7 +405,7 @@ public class EffectiveMetaSet implements Iterable<EffectiveMeta> {
                     (existingMeta, newMeta) -> {
                         final EffectiveMeta resultMeta = newMeta.getId() > existingMeta.getId()
                                 ? newMeta
-                                : effectiveMeta;
+                                : existingMeta;
 
                         LOGGER.warn("Reference streams [{}] and [{}] from feed '{}' found with the same " +
                                     "effective time {}. Stroom cannot know which is the preferred " +
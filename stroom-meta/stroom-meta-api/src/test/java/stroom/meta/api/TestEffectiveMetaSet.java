@@ -33,6 +33,21 @@ class TestEffectiveMetaSet {
                 .containsExactly(1L, 4L, 5L);
     }
 
+    @Test
+    void testDeDep_outOfOrder() {
+        // The highest id wins whatever order they are added in
+        final EffectiveMetaSet effectiveMetaSet = EffectiveMetaSet.builder(FEED_1, "Reference")
+                .add(4, 456)
+                .add(2, 456)
+                .add(3, 456)
+                .build();
+
+        assertThat(effectiveMetaSet.stream()
+                .map(EffectiveMeta::getId)
+                .toList())
+                .containsExactly(4L);
+    }
+
     @Test
     void testOrder() {
         final EffectiveMetaSet effectiveMetaSet = EffectiveMetaSet.builder(FEED_1, "Reference")
@@ -1870,11 +1870,12 @@ public class MetaDaoImpl implements MetaDao {
                 context -> {
                     // Try to get a single stream that is just before our range.  This is so that we always
                     // have a stream (unless there are no streams at all) that was effective at the start
-                    // of our range.
+                    // of our range. If several share that time then take the one with the highest id, as
+                    // EffectiveMetaSet does when de-duping.
                     final var selectUpToRange = createBaseEffectiveStreamsQuery(
                             context, feedId, typeId)
                             .and(meta.EFFECTIVE_TIME.lessOrEqual(fromMs))
-                            .orderBy(meta.EFFECTIVE_TIME.desc())
+                            .orderBy(meta.EFFECTIVE_TIME.desc(), meta.ID.desc())
                             .limit(1);
 
                     // Get the streams in our range
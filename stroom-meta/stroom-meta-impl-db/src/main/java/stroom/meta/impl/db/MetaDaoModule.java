@@ -49,7 +49,7 @@ public class MetaDaoModule extends AbstractModule {
 
         @Inject
         MetaValueServiceFlush(final MetaValueDaoImpl metaValueService) {
-            super(metaValueService::flush);
+            super(metaValueService::shutdown);
         }
     }
 }
@@ -22,28 +22,42 @@ import stroom.meta.api.AttributeMap;
 import stroom.meta.impl.MetaKeyDao;
 import stroom.meta.impl.MetaValueConfig;
 import stroom.meta.impl.MetaValueDao;
+import stroom.meta.impl.db.jooq.tables.records.MetaValRecord;
 import stroom.meta.shared.Meta;
 import stroom.task.api.TaskContextFactory;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogExecutionTime;
 import stroom.util.logging.LogUtil;
+import stroom.util.metrics.Metrics;
 import stroom.util.shared.Clearable;
+import stroom.util.thread.CustomThreadFactory;
+import stroom.util.thread.StroomThreadGroup;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
-import org.jooq.BatchBindStep;
+import org.jooq.InsertValuesStep4;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -55,6 +69,15 @@ class MetaValueDaoImpl implements MetaValueDao, Clearable {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(MetaValueDaoImpl.class);
 
     private static final String LOCK_NAME = "MetaDeleteExecutor";
+    // Keeps the number of bind values in a multi row insert well below the MySQL limit of 65,535.
+    private static final int MAX_ROWS_PER_INSERT = 10_000;
+    // A row that still can't be inserted after this many attempts is dropped so that a row the DB will never
+    // accept, e.g. one for a deleted stream, can't stay in the queue forever.
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+    // After a failed insert, async flushes are held off for a period that doubles with each consecutive
+    // failure, up to the max. The flush job still runs on its own schedule.
+    private static final long MIN_FLUSH_BACKOFF_MS = Duration.ofSeconds(1).toMillis();
+    private static final long MAX_FLUSH_BACKOFF_MS = Duration.ofMinutes(1).toMillis();
 
     private final MetaDbConnProvider metaDbConnProvider;
     private final MetaKeyDao metaKeyService;
@@ -62,19 +85,63 @@ class MetaValueDaoImpl implements MetaValueDao, Clearable {
     private final ClusterLockService clusterLockService;
     private final TaskContextFactory taskContextFactory;
 
-    private volatile List<Row> queue = new ArrayList<>();
+    // Rows waiting to be written to the DB. Producers add to this without blocking each other or the
+    // flusher, which drains it in batches.
+    private final Queue<Row> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    // Held while draining the queue so that flush() can wait for any async flush in progress.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean asyncFlushScheduled = new AtomicBoolean();
+    // Set when rows start being dropped so that we only warn once each time the queue fills up.
+    private final AtomicBoolean queueFull = new AtomicBoolean();
+    // Only touched while holding the flush lock.
+    private int consecutiveInsertFailures;
+    private volatile long asyncFlushBackoffUntilMs;
+    private final ExecutorService flushExecutor;
+    private final Histogram batchSizeHistogram;
+    private final Histogram lagHistogram;
+    private final Counter droppedCounter;
 
     @Inject
     MetaValueDaoImpl(final MetaDbConnProvider metaDbConnProvider,
                      final MetaKeyDao metaKeyService,
                      final Provider<MetaValueConfig> metaValueConfigProvider,
                      final ClusterLockService clusterLockService,
-                     final TaskContextFactory taskContextFactory) {
+                     final TaskContextFactory taskContextFactory,
+                     final Metrics metrics) {
         this.metaDbConnProvider = metaDbConnProvider;
         this.metaKeyService = metaKeyService;
         this.metaValueConfigProvider = metaValueConfigProvider;
         this.clusterLockService = clusterLockService;
         this.taskContextFactory = taskContextFactory;
+
+        final CustomThreadFactory threadFactory = new CustomThreadFactory(
+                "Meta Value Flush ",
+                StroomThreadGroup.instance(),
+                Thread.NORM_PRIORITY);
+        threadFactory.setDaemon(true);
+        flushExecutor = Executors.newSingleThreadExecutor(threadFactory);
+
+        batchSizeHistogram = metrics.registrationBuilder(getClass())
+                .addNamePart("flush")
+                .addNamePart("batchSize")
+                .histogram()
+                .createAndRegister();
+        lagHistogram = metrics.registrationBuilder(getClass())
+                .addNamePart("flush")
+                .addNamePart("lagMs")
+                .histogram()
+                .createAndRegister();
+        metrics.registrationBuilder(getClass())
+                .addNamePart("queue")
+                .addNamePart(Metrics.SIZE)
+                .gauge(queueSize::get)
+                .register();
+        droppedCounter = metrics.registrationBuilder(getClass())
+                .addNamePart("queue")
+                .addNamePart("dropped")
+                .counter()
+                .createAndRegister();
     }
 
     @Override
@@ -106,54 +173,196 @@ class MetaValueDaoImpl implements MetaValueDao, Clearable {
         if (records.isEmpty()) {
             LOGGER.debug("records is empty");
         } else {
-            if (metaValueConfigProvider.get().isAddAsync()) {
-                final Optional<List<Row>> optional = add(records, metaValueConfigProvider.get()
-                        .getFlushBatchSize());
-                optional.ifPresent(this::insertRecords);
+            final MetaValueConfig metaValueConfig = metaValueConfigProvider.get();
+            if (metaValueConfig.isAddAsync()) {
+                enqueue(records, metaValueConfig.getMaxQueueSize());
+                if (queueSize.get() >= metaValueConfig.getFlushBatchSize()) {
+                    scheduleAsyncFlush();
+                }
             } else {
                 insertRecords(records);
             }
         }
     }
 
-    private synchronized Optional<List<Row>> add(final List<Row> records, final int batchSize) {
-        List<Row> readyForFlush = null;
-        queue.addAll(records);
-        if (queue.size() >= batchSize) {
-            // Switch out the current queue.
-            readyForFlush = queue;
-            queue = new ArrayList<>();
+    /**
+     * Adds as many of the rows to the queue as will fit and drops the rest.
+     *
+     * @return The number of rows added.
+     */
+    private int enqueue(final List<Row> rows, final int maxQueueSize) {
+        // Reserve the space first so concurrent producers can't take the queue over the limit.
+        int size;
+        int addCount;
+        do {
+            size = queueSize.get();
+            addCount = Math.max(0, Math.min(rows.size(), maxQueueSize - size));
+        } while (addCount > 0 && !queueSize.compareAndSet(size, size + addCount));
+
+        queue.addAll(addCount == rows.size()
+                ? rows
+                : rows.subList(0, addCount));
+
+        final int droppedCount = rows.size() - addCount;
+        if (droppedCount > 0) {
+            droppedCounter.inc(droppedCount);
+            if (queueFull.compareAndSet(false, true)) {
+                LOGGER.warn("Meta value queue is full ({} values), dropping meta values until it can be " +
+                        "flushed to the DB", maxQueueSize);
+            }
+        } else {
+            queueFull.set(false);
+        }
+        return addCount;
+    }
+
+    /**
+     * Hands a full batch over to the flush thread so the caller doesn't have to wait for the insert.
+     */
+    private void scheduleAsyncFlush() {
+        // Don't hammer the DB while it is failing.
+        if (System.currentTimeMillis() < asyncFlushBackoffUntilMs) {
+            return;
+        }
+        if (asyncFlushScheduled.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(this::asyncFlush);
+            } catch (final RejectedExecutionException e) {
+                // Shutting down, the shutdown task will flush the queue.
+                LOGGER.debug(e::getMessage, e);
+                asyncFlushScheduled.set(false);
+            }
+        }
+    }
+
+    private void asyncFlush() {
+        final int batchSize = metaValueConfigProvider.get().getFlushBatchSize();
+        boolean failed = false;
+        try {
+            flushLock.lock();
+            try {
+                // Only write full batches, the rest will be written by the next batch or the flush job.
+                while (!failed && queueSize.get() >= batchSize) {
+                    failed = !insertOrRequeue(drain(Math.min(batchSize, MAX_ROWS_PER_INSERT)));
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        } finally {
+            asyncFlushScheduled.set(false);
+        }
+
+        // Rows may have been added after we last checked but before we cleared the flag. If the insert failed
+        // then the retry is left until the backoff has expired or the flush job runs.
+        if (!failed && queueSize.get() >= batchSize) {
+            scheduleAsyncFlush();
         }
-        // Return the old queue for flushing if it was switched.
-        return Optional.ofNullable(readyForFlush);
     }
 
     @Override
     public void flush() {
         taskContextFactory.current().info(() -> "Flushing meta values to the DB");
-        final Optional<List<Row>> optional = add(Collections.emptyList(), 1);
-        optional.ifPresent(this::insertRecords);
+        final int batchSize = Math.max(1, Math.min(
+                metaValueConfigProvider.get().getFlushBatchSize(),
+                MAX_ROWS_PER_INSERT));
+        flushLock.lock();
+        try {
+            List<Row> rows = drain(batchSize);
+            // Stop at the first failure, the rows are back in the queue for the next flush.
+            while (!rows.isEmpty() && insertOrRequeue(rows)) {
+                rows = drain(batchSize);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops any more async flushes and then writes everything that is left in the queue.
+     */
+    void shutdown() {
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.warn("Timed out waiting for the meta value flush thread to finish");
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.debug(e::getMessage, e);
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Must be called while holding the flush lock.
+     *
+     * @return True if the rows were inserted. If not the rows are put back on the queue to be retried, unless
+     * they have already failed {@link #MAX_INSERT_ATTEMPTS} times or the queue is full, and async flushes are
+     * held off for a while.
+     */
+    private boolean insertOrRequeue(final List<Row> rows) {
+        try {
+            insertRecords(rows);
+            consecutiveInsertFailures = 0;
+            asyncFlushBackoffUntilMs = 0;
+            return true;
+        } catch (final RuntimeException e) {
+            final List<Row> retryRows = new ArrayList<>(rows.size());
+            for (final Row row : rows) {
+                if (row.incrementInsertAttempts() < MAX_INSERT_ATTEMPTS) {
+                    retryRows.add(row);
+                }
+            }
+            // Rows that don't fit in the queue are counted as dropped by enqueue.
+            droppedCounter.inc(rows.size() - retryRows.size());
+            final int retryCount = enqueue(retryRows, metaValueConfigProvider.get().getMaxQueueSize());
+
+            consecutiveInsertFailures++;
+            final long backoffMs = Math.min(
+                    MIN_FLUSH_BACKOFF_MS << Math.min(consecutiveInsertFailures - 1, 16),
+                    MAX_FLUSH_BACKOFF_MS);
+            asyncFlushBackoffUntilMs = System.currentTimeMillis() + backoffMs;
+
+            LOGGER.error("Error inserting {} meta values, {} will be retried and {} have been dropped. " +
+                            "Async flushes will be held off for {}ms: {}",
+                    rows.size(), retryCount, rows.size() - retryCount, backoffMs, LogUtil.exceptionMessage(e), e);
+            return false;
+        }
+    }
+
+    private List<Row> drain(final int maxRows) {
+        final List<Row> rows = new ArrayList<>(Math.min(maxRows, Math.max(0, queueSize.get())));
+        Row row;
+        while (rows.size() < maxRows && (row = queue.poll()) != null) {
+            rows.add(row);
+        }
+        queueSize.addAndGet(-rows.size());
+        return rows;
     }
 
     private void insertRecords(final List<Row> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
         final LogExecutionTime logExecutionTime = new LogExecutionTime();
         LOGGER.debug(() -> "Inserting meta_val batch of " + rows.size());
 
+        // A single multi row insert is much quicker than a JDBC batch of single row inserts.
         JooqUtil.context(metaDbConnProvider, context -> {
-            BatchBindStep batchBindStep = context
-                    .batch(context
-                            .insertInto(META_VAL,
-                                    META_VAL.CREATE_TIME,
-                                    META_VAL.META_ID,
-                                    META_VAL.META_KEY_ID,
-                                    META_VAL.VAL)
-                            .values(null, null, null, (Long) null));
+            InsertValuesStep4<MetaValRecord, Long, Long, Integer, Long> insert = context
+                    .insertInto(META_VAL,
+                            META_VAL.CREATE_TIME,
+                            META_VAL.META_ID,
+                            META_VAL.META_KEY_ID,
+                            META_VAL.VAL);
             for (final Row row : rows) {
-                batchBindStep = batchBindStep.bind(row.getCreateMs(), row.getMetaId(), row.getKeyId(), row.getValue());
+                insert = insert.values(row.getCreateMs(), row.getMetaId(), row.getKeyId(), row.getValue());
             }
-            batchBindStep.execute();
+            insert.execute();
         });
 
+        batchSizeHistogram.update(rows.size());
+        lagHistogram.update(System.currentTimeMillis() - rows.getFirst().getQueuedMs());
         LOGGER.debug(() -> "Inserted " + rows.size() + " meta_val rows, completed in " + logExecutionTime);
     }
 
@@ -301,8 +510,13 @@ class MetaValueDaoImpl implements MetaValueDao, Clearable {
         clearQueue();
     }
 
-    private synchronized void clearQueue() {
-        queue.clear();
+    private void clearQueue() {
+        flushLock.lock();
+        try {
+            drain(Integer.MAX_VALUE);
+        } finally {
+            flushLock.unlock();
+        }
     }
 
     private static final class Row {
@@ -311,6 +525,9 @@ class MetaValueDaoImpl implements MetaValueDao, Clearable {
         private final long metaId;
         private final int keyId;
         private final Long value;
+        private final long queuedMs;
+        // Only touched while holding the flush lock.
+        private int insertAttempts;
 
         Row(final long createMs,
             final long metaId,
@@ -320,6 +537,7 @@ class MetaValueDaoImpl implements MetaValueDao, Clearable {
             this.metaId = metaId;
             this.keyId = keyId;
             this.value = value;
+            this.queuedMs = System.currentTimeMillis();
         }
 
         long getCreateMs() {
@@ -337,5 +555,13 @@ class MetaValueDaoImpl implements MetaValueDao, Clearable {
         Long getValue() {
             return value;
         }
+
+        long getQueuedMs() {
+            return queuedMs;
+        }
+
+        int incrementInsertAttempts() {
+            return ++insertAttempts;
+        }
     }
 }
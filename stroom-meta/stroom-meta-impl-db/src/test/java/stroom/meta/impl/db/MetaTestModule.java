@@ -1,6 +1,7 @@
 package stroom.meta.impl.db;
 
 import stroom.meta.api.MetaSecurityFilter;
+import stroom.util.entityevent.EntityEventBus;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
@@ -13,4 +14,10 @@ public class MetaTestModule extends AbstractModule {
     MetaSecurityFilter getMetaSecurityFilter() {
         return (permission, fields) -> Optional.empty();
     }
+
+    @Provides
+    EntityEventBus getEntityEventBus() {
+        return event -> {
+        };
+    }
 }
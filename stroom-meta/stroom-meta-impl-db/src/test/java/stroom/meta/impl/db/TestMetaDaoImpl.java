@@ -34,6 +34,7 @@ import stroom.meta.api.AttributeMap;
 import stroom.meta.api.EffectiveMeta;
 import stroom.meta.api.EffectiveMetaDataCriteria;
 import stroom.meta.api.MetaProperties;
+import stroom.meta.impl.EffectiveMetaIndex;
 import stroom.meta.impl.MetaServiceConfig;
 import stroom.meta.impl.MetaValueDao;
 import stroom.meta.shared.FindMetaCriteria;
@@ -135,6 +136,8 @@ class TestMetaDaoImpl {
     private MetaValueDao metaValueDao;
     @Inject
     private MetaDbConnProvider metaDbConnProvider;
+    @Inject
+    private EffectiveMetaIndex effectiveMetaIndex;
 
     private MetaServiceConfig metaServiceConfigSpy = Mockito.spy(new MetaServiceConfig());
 
@@ -837,6 +840,57 @@ class TestMetaDaoImpl {
                 .build();
     }
 
+    @Test
+    void testEffectiveMetaIndexMatchesGetEffectiveStreams() {
+        final Instant baseEffectiveTime = LocalDateTime.of(2022, 1, 1, 1, 0)
+                .toInstant(ZoneOffset.UTC);
+        // Starting at the above time, creates 10 ref streams each a day apart
+        final List<EffectiveMeta> effectiveMetaList = new ArrayList<>(populateDbWithRefStreams(baseEffectiveTime));
+        // Plus some that share an effective time with an existing stream
+        for (final int day : List.of(2, 2, 5)) {
+            final Meta parent = metaDao.create(createRawRefProperties(
+                    REF1_FEED_NAME,
+                    baseEffectiveTime.plus(day, ChronoUnit.DAYS)));
+            effectiveMetaList.add(new EffectiveMeta(metaDao.create(
+                    createProcessedRefMetaProperties(parent, REF1_FEED_NAME))));
+        }
+        unlockAllLockedStreams();
+
+        // Period boundaries on, just before and just after each effective time and outside the range of streams
+        final List<Long> times = new ArrayList<>();
+        times.add(baseEffectiveTime.minus(10, ChronoUnit.DAYS).toEpochMilli());
+        times.add(baseEffectiveTime.plus(20, ChronoUnit.DAYS).toEpochMilli());
+        for (final EffectiveMeta effectiveMeta : effectiveMetaList) {
+            times.add(effectiveMeta.getEffectiveMs() - 1);
+            times.add(effectiveMeta.getEffectiveMs());
+            times.add(effectiveMeta.getEffectiveMs() + 1);
+        }
+
+        for (final long fromMs : times) {
+            for (final long toMs : times) {
+                if (fromMs <= toMs) {
+                    final EffectiveMetaDataCriteria criteria = new EffectiveMetaDataCriteria(
+                            new Period(fromMs, toMs),
+                            REF1_FEED_NAME,
+                            REF_STREAM_TYPE_NAME);
+                    assertThat(effectiveMetaIndex.find(criteria))
+                            .describedAs("Criteria %s", criteria)
+                            .isEqualTo(metaDao.getEffectiveStreams(criteria));
+                }
+            }
+        }
+
+        // An unknown feed
+        final EffectiveMetaDataCriteria criteria = new EffectiveMetaDataCriteria(
+                new Period(times.getFirst(), times.get(1)),
+                "UNKNOWN_FEED",
+                REF_STREAM_TYPE_NAME);
+        assertThat(effectiveMetaIndex.find(criteria))
+                .isEmpty();
+        assertThat(metaDao.getEffectiveStreams(criteria))
+                .isEmpty();
+    }
+
     @Test
     void testGetLogicallyDeleted() {
         final List<Meta> metaList = new ArrayList<>();
@@ -33,6 +33,7 @@ import stroom.meta.shared.FindMetaCriteria;
 import stroom.meta.shared.Meta;
 import stroom.meta.shared.MetaFields;
 import stroom.query.api.ExpressionOperator;
+import stroom.query.api.ExpressionOperator.Op;
 import stroom.query.api.ExpressionTerm.Condition;
 import stroom.security.mock.MockSecurityContextModule;
 import stroom.task.mock.MockTaskModule;
@@ -182,6 +183,74 @@ class TestMetaValueDaoImpl {
         assertThat(metaService.find(criteria).size()).isEqualTo(0);
     }
 
+    @Test
+    void testAddAsync() {
+        setAddAsync(true);
+        final ExpressionOperator.Builder builder = ExpressionOperator.builder().op(Op.OR);
+        for (int i = 0; i < 10; i++) {
+            final Meta meta = metaService.create(createProperties("FEED1"));
+            metaService.addAttributes(meta, createAttributes());
+            builder.addIdTerm(MetaFields.ID, Condition.EQUALS, meta.getId());
+        }
+        final ExpressionOperator expression = ExpressionOperator.builder()
+                .addOperator(builder.build())
+                .addTerm(MetaFields.FILE_SIZE.getFldName(), Condition.BETWEEN, "0,1000000")
+                .build();
+        final FindMetaCriteria criteria = new FindMetaCriteria(expression);
+
+        // Less than a batch so still queued
+        assertThat(metaService.find(criteria).size()).isEqualTo(0);
+
+        metaValueDao.flush();
+        assertThat(metaService.find(criteria).size()).isEqualTo(10);
+    }
+
+    @Test
+    void testShutdownFlushesQueue() {
+        setAddAsync(true);
+        final Meta meta = metaService.create(createProperties("FEED1"));
+        metaService.addAttributes(meta, createAttributes());
+        final FindMetaCriteria criteria = new FindMetaCriteria(ExpressionOperator.builder()
+                .addIdTerm(MetaFields.ID, Condition.EQUALS, meta.getId())
+                .addTerm(MetaFields.FILE_SIZE.getFldName(), Condition.BETWEEN, "0,1000000")
+                .build());
+        assertThat(metaService.find(criteria).size()).isEqualTo(0);
+
+        metaValueDao.shutdown();
+        assertThat(metaService.find(criteria).size()).isEqualTo(1);
+
+        // Values added after shutdown are still queued for a flush
+        final Meta meta2 = metaService.create(createProperties("FEED1"));
+        metaService.addAttributes(meta2, createAttributes());
+        metaValueDao.flush();
+        assertThat(metaService.find(new FindMetaCriteria(ExpressionOperator.builder()
+                .addIdTerm(MetaFields.ID, Condition.EQUALS, meta2.getId())
+                .addTerm(MetaFields.FILE_SIZE.getFldName(), Condition.BETWEEN, "0,1000000")
+                .build())).size()).isEqualTo(1);
+    }
+
+    @Test
+    void testQueueLimit() {
+        setAddAsync(true);
+        metaServiceConfig = metaServiceConfig.withMetaValueConfig(
+                metaServiceConfig.getMetaValueConfig()
+                        .withMaxQueueSize(5));
+        final ExpressionOperator.Builder builder = ExpressionOperator.builder().op(Op.OR);
+        for (int i = 0; i < 10; i++) {
+            final Meta meta = metaService.create(createProperties("FEED1"));
+            metaService.addAttributes(meta, createAttributes());
+            builder.addIdTerm(MetaFields.ID, Condition.EQUALS, meta.getId());
+        }
+        final FindMetaCriteria criteria = new FindMetaCriteria(ExpressionOperator.builder()
+                .addOperator(builder.build())
+                .addTerm(MetaFields.FILE_SIZE.getFldName(), Condition.BETWEEN, "0,1000000")
+                .build());
+
+        // Values added once the queue is full are dropped
+        metaValueDao.flush();
+        assertThat(metaService.find(criteria).size()).isEqualTo(5);
+    }
+
     private MetaProperties createProperties(final String feedName) {
         return MetaProperties.builder()
                 .createMs(1000L)
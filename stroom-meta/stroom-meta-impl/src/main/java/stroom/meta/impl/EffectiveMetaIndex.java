@@ -0,0 +1,355 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.meta.impl;
+
+import stroom.docref.DocRef;
+import stroom.meta.api.EffectiveMeta;
+import stroom.meta.api.EffectiveMetaDataCriteria;
+import stroom.meta.api.EffectiveMetaSet;
+import stroom.meta.shared.FindMetaCriteria;
+import stroom.meta.shared.Meta;
+import stroom.meta.shared.MetaFields;
+import stroom.meta.shared.Status;
+import stroom.query.api.ExpressionOperator;
+import stroom.query.api.ExpressionTerm.Condition;
+import stroom.util.Period;
+import stroom.util.entityevent.EntityAction;
+import stroom.util.entityevent.EntityEvent;
+import stroom.util.entityevent.EntityEventBus;
+import stroom.util.entityevent.EntityEventHandler;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.Clearable;
+import stroom.util.shared.NullSafe;
+import stroom.util.shared.PageRequest;
+import stroom.util.time.StroomDuration;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A node local index of the effective streams for each feed and type, so that effective stream
+ * lookups for reference data don't need to query the database.
+ * <p>
+ * The streams for a feed/type are loaded from the database on the first lookup. After that the
+ * index is kept up to date by entity events fired when a stream of an indexed type changes status,
+ * e.g. when it is unlocked or deleted. Only the types in
+ * {@link MetaServiceConfig#getEffectiveMetaIndexTypes()} are indexed, as an event is sent to every
+ * node for each status change of those types.
+ * <p>
+ * Bulk status changes don't say which streams changed so they fire a
+ * {@link EntityAction#CLEAR_CACHE} event, which drops the whole index to be re-loaded on demand.
+ * <p>
+ * As a guard against a missed event, the streams for a feed/type are re-loaded on the next lookup
+ * once they are older than {@link MetaServiceConfig#getEffectiveMetaIndexMaxAge()}.
+ */
+@Singleton
+@EntityEventHandler(
+        type = EffectiveMetaIndex.ENTITY_TYPE,
+        action = {EntityAction.UPDATE, EntityAction.CLEAR_CACHE})
+public class EffectiveMetaIndex implements Clearable, EntityEvent.Handler {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(EffectiveMetaIndex.class);
+
+    static final String ENTITY_TYPE = "EFFECTIVE_META";
+    private static final DocRef CLEAR_DOCREF = new DocRef(ENTITY_TYPE, ENTITY_TYPE, ENTITY_TYPE);
+    private static final Period ALL_TIME = new Period(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private final MetaDao metaDao;
+    private final Provider<MetaServiceConfig> metaServiceConfigProvider;
+    private final Provider<EntityEventBus> entityEventBusProvider;
+
+    private final Map<Key, Streams> index = new ConcurrentHashMap<>();
+
+    @Inject
+    EffectiveMetaIndex(final MetaDao metaDao,
+                       final Provider<MetaServiceConfig> metaServiceConfigProvider,
+                       final Provider<EntityEventBus> entityEventBusProvider) {
+        this.metaDao = metaDao;
+        this.metaServiceConfigProvider = metaServiceConfigProvider;
+        this.entityEventBusProvider = entityEventBusProvider;
+    }
+
+    /**
+     * @return True if effective streams of any type are held in the index.
+     */
+    public boolean isEnabled() {
+        return !NullSafe.isEmptyCollection(metaServiceConfigProvider.get().getEffectiveMetaIndexTypes());
+    }
+
+    /**
+     * @return True if effective streams of this type are held in the index.
+     */
+    public boolean isIndexed(final String typeName) {
+        return typeName != null
+               && NullSafe.set(metaServiceConfigProvider.get().getEffectiveMetaIndexTypes()).contains(typeName);
+    }
+
+    /**
+     * Finds the latest stream effective at or before the start of the period plus all the streams
+     * effective within the period, as per {@link MetaDao#getEffectiveStreams(EffectiveMetaDataCriteria)}.
+     * The type of the criteria must be indexed.
+     */
+    public EffectiveMetaSet find(final EffectiveMetaDataCriteria criteria) {
+        final Period period = Objects.requireNonNull(criteria.getEffectivePeriod());
+        // Inclusive
+        final long fromMs = Objects.requireNonNull(period.getFromMs());
+        // Exclusive
+        final long toMs = Objects.requireNonNull(period.getToMs());
+        final Key key = new Key(criteria.getFeed(), criteria.getType());
+
+        final long minLoadTimeMs = getMinLoadTimeMs();
+        final Streams streams = index.compute(key, (k, existing) ->
+                existing == null || existing.loadTimeMs() < minLoadTimeMs
+                        ? load(k)
+                        : existing);
+        final EffectiveMetaSet effectiveMetaSet = streams.find(key, fromMs, toMs);
+
+        LOGGER.debug(() -> "returning " + effectiveMetaSet.size() + " effective streams from the index for "
+                           + criteria);
+        return effectiveMetaSet;
+    }
+
+    /**
+     * Tells all nodes that the status of a stream has changed so they can update their index.
+     *
+     * @param feedName The feed of the stream if known, used to ignore the event on nodes that
+     *                 have not indexed the feed.
+     */
+    void fireStatusChange(final long metaId, final String feedName) {
+        fire(new DocRef(ENTITY_TYPE, String.valueOf(metaId), feedName), EntityAction.UPDATE);
+    }
+
+    /**
+     * Tells all nodes that an unknown set of streams have changed status so the index must be rebuilt.
+     */
+    void fireClear() {
+        fire(CLEAR_DOCREF, EntityAction.CLEAR_CACHE);
+    }
+
+    private void fire(final DocRef docRef, final EntityAction action) {
+        if (isEnabled()) {
+            try {
+                final EntityEventBus entityEventBus = entityEventBusProvider.get();
+                if (entityEventBus != null) {
+                    entityEventBus.fire(new EntityEvent(docRef, action));
+                }
+            } catch (final RuntimeException e) {
+                LOGGER.error(e::getMessage, e);
+            }
+        }
+    }
+
+    @Override
+    public void onChange(final EntityEvent event) {
+        LOGGER.debug("Received event {}", event);
+        if (EntityAction.UPDATE.equals(event.getAction())) {
+            onStatusChange(Long.parseLong(event.getDocRef().getUuid()), event.getDocRef().getName());
+        } else {
+            clear();
+        }
+    }
+
+    private void onStatusChange(final long metaId, final String feedName) {
+        // Don't bother going to the db if we have nothing that the stream could belong to
+        if (index.isEmpty()
+            || (feedName != null && index.keySet().stream().noneMatch(key -> key.feedName.equals(feedName)))) {
+            LOGGER.debug("Ignoring status change of meta {}, feed {} not indexed", metaId, feedName);
+            return;
+        }
+
+        final FindMetaCriteria criteria = new FindMetaCriteria(ExpressionOperator.builder()
+                .addIdTerm(MetaFields.ID, Condition.EQUALS, metaId)
+                .build());
+        criteria.setPageRequest(PageRequest.oneRow());
+        final List<Meta> list = metaDao.find(criteria).getValues();
+        if (NullSafe.isEmptyCollection(list)) {
+            LOGGER.debug("Meta {} not found", metaId);
+            return;
+        }
+
+        final Meta meta = list.getFirst();
+        final Key key = new Key(meta.getFeedName(), meta.getTypeName());
+        // Only apply it to streams that are already loaded, anything else will pick it up when loaded.
+        index.computeIfPresent(key, (k, streams) -> {
+            if (Status.UNLOCKED.equals(meta.getStatus()) && meta.getEffectiveMs() != null) {
+                LOGGER.debug("Adding meta {} to {}", metaId, key);
+                return streams.add(meta.getId(), meta.getEffectiveMs());
+            } else {
+                LOGGER.debug("Removing meta {} with status {} from {}", metaId, meta.getStatus(), key);
+                return streams.remove(meta.getId());
+            }
+        });
+    }
+
+    private Streams load(final Key key) {
+        LOGGER.debug("Loading effective streams for {}", key);
+        final EffectiveMetaSet effectiveMetaSet = metaDao.getEffectiveStreams(
+                new EffectiveMetaDataCriteria(ALL_TIME, key.feedName, key.typeName));
+        final int size = effectiveMetaSet.size();
+        final long[] effectiveTimes = new long[size];
+        final long[] ids = new long[size];
+        int i = 0;
+        // The set is in effective time order
+        for (final EffectiveMeta effectiveMeta : effectiveMetaSet) {
+            effectiveTimes[i] = effectiveMeta.getEffectiveMs();
+            ids[i] = effectiveMeta.getId();
+            i++;
+        }
+        LOGGER.debug("Loaded {} effective streams for {}", size, key);
+        return new Streams(effectiveTimes, ids, System.currentTimeMillis());
+    }
+
+    /**
+     * @return The time that streams must have been loaded at or after to still be used.
+     */
+    private long getMinLoadTimeMs() {
+        final StroomDuration maxAge = metaServiceConfigProvider.get().getEffectiveMetaIndexMaxAge();
+        if (maxAge == null || maxAge.isZero()) {
+            return Long.MIN_VALUE;
+        }
+        return System.currentTimeMillis() - maxAge.toMillis();
+    }
+
+    @Override
+    public void clear() {
+        LOGGER.debug("Clearing index");
+        index.clear();
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    record Key(String feedName, String typeName) {
+
+        private Key {
+            Objects.requireNonNull(feedName);
+            Objects.requireNonNull(typeName);
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * The unlocked streams of a feed/type ordered by effective time then id. Immutable so can be
+     * read without locking, changes create a new instance.
+     *
+     * @param loadTimeMs When the streams were loaded from the database, kept by changes.
+     */
+    record Streams(long[] effectiveTimes, long[] ids, long loadTimeMs) {
+
+        /**
+         * @return The latest streams effective at or before fromMs plus all streams effective after fromMs and
+         * before toMs, de-duplicated by the {@link EffectiveMetaSet.Builder}.
+         */
+        EffectiveMetaSet find(final Key key, final long fromMs, final long toMs) {
+            final EffectiveMetaSet.Builder builder = EffectiveMetaSet.builder(key.feedName, key.typeName);
+            final int afterFrom = indexOfFirstAfter(fromMs);
+            // Include the latest stream effective at the start of the period, plus any others with the
+            // same time so the builder can de-dup them.
+            int i = afterFrom;
+            if (afterFrom > 0) {
+                i = indexOfFirstAfter(effectiveTimes[afterFrom - 1] - 1);
+            }
+            for (; i < effectiveTimes.length && (i < afterFrom || effectiveTimes[i] < toMs); i++) {
+                builder.add(ids[i], effectiveTimes[i]);
+            }
+            return builder.build();
+        }
+
+        /**
+         * @return The position of the first stream effective after timeMs, or the length if there are none.
+         */
+        private int indexOfFirstAfter(final long timeMs) {
+            int low = 0;
+            int high = effectiveTimes.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (effectiveTimes[mid] <= timeMs) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        Streams add(final long id, final long effectiveMs) {
+            if (indexOf(id) >= 0) {
+                return this;
+            }
+            int pos = indexOfFirstAfter(effectiveMs);
+            // Keep equal effective times in id order
+            while (pos > 0 && effectiveTimes[pos - 1] == effectiveMs && ids[pos - 1] > id) {
+                pos--;
+            }
+            final int len = effectiveTimes.length;
+            final long[] newEffectiveTimes = new long[len + 1];
+            final long[] newIds = new long[len + 1];
+            System.arraycopy(effectiveTimes, 0, newEffectiveTimes, 0, pos);
+            System.arraycopy(ids, 0, newIds, 0, pos);
+            newEffectiveTimes[pos] = effectiveMs;
+            newIds[pos] = id;
+            System.arraycopy(effectiveTimes, pos, newEffectiveTimes, pos + 1, len - pos);
+            System.arraycopy(ids, pos, newIds, pos + 1, len - pos);
+            return new Streams(newEffectiveTimes, newIds, loadTimeMs);
+        }
+
+        Streams remove(final long id) {
+            final int pos = indexOf(id);
+            if (pos < 0) {
+                return this;
+            }
+            final int len = effectiveTimes.length;
+            final long[] newEffectiveTimes = new long[len - 1];
+            final long[] newIds = new long[len - 1];
+            System.arraycopy(effectiveTimes, 0, newEffectiveTimes, 0, pos);
+            System.arraycopy(ids, 0, newIds, 0, pos);
+            System.arraycopy(effectiveTimes, pos + 1, newEffectiveTimes, pos, len - pos - 1);
+            System.arraycopy(ids, pos + 1, newIds, pos, len - pos - 1);
+            return new Streams(newEffectiveTimes, newIds, loadTimeMs);
+        }
+
+        private int indexOf(final long id) {
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public String toString() {
+            return "Streams{" +
+                   "effectiveTimes=" + Arrays.toString(effectiveTimes) +
+                   ", ids=" + Arrays.toString(ids) +
+                   ", loadTimeMs=" + loadTimeMs +
+                   '}';
+        }
+    }
+}
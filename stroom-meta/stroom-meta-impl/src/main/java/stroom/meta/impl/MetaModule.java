@@ -10,8 +10,10 @@ import stroom.meta.shared.Meta;
 import stroom.query.api.datasource.DataSourceProvider;
 import stroom.searchable.api.Searchable;
 import stroom.util.RunnableWrapper;
+import stroom.util.entityevent.EntityEvent;
 import stroom.util.guice.GuiceUtil;
 import stroom.util.guice.RestResourcesBinder;
+import stroom.util.shared.Clearable;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.multibindings.OptionalBinder;
@@ -35,6 +37,10 @@ public class MetaModule extends AbstractModule {
                 .addBinding(MetaServiceImpl.class);
         GuiceUtil.buildMultiBinder(binder(), Searchable.class)
                 .addBinding(MetaServiceImpl.class);
+        GuiceUtil.buildMultiBinder(binder(), Clearable.class)
+                .addBinding(EffectiveMetaIndex.class);
+        GuiceUtil.buildMultiBinder(binder(), EntityEvent.Handler.class)
+                .addBinding(EffectiveMetaIndex.class);
 
         RestResourcesBinder.create(binder())
                 .bind(MetaResourceImpl.class);
@@ -48,6 +48,8 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
     private final Set<String> rawMetaTypes;
     private final Set<String> dataFormats;
     private final int metaStatusUpdateBatchSize;
+    private final Set<String> effectiveMetaIndexTypes;
+    private final StroomDuration effectiveMetaIndexMaxAge;
 
     public MetaServiceConfig() {
         dbConfig = new MetaServiceDbConfig();
@@ -68,6 +70,8 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
         rawMetaTypes = new HashSet<>(StreamTypeNames.ALL_HARD_CODED_RAW_STREAM_TYPE_NAMES);
         dataFormats = new HashSet<>(DataFormatNames.ALL_HARD_CODED_FORMAT_NAMES);
         metaStatusUpdateBatchSize = 0;
+        effectiveMetaIndexTypes = new HashSet<>(Set.of(StreamTypeNames.REFERENCE));
+        effectiveMetaIndexMaxAge = StroomDuration.ofMinutes(10);
     }
 
     @SuppressWarnings("unused")
@@ -80,7 +84,9 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
                              @JsonProperty("metaTypes") final Set<String> metaTypes,
                              @JsonProperty("rawMetaTypes") final Set<String> rawMetaTypes,
                              @JsonProperty("dataFormats") final Set<String> dataFormats,
-                             @JsonProperty("metaStatusUpdateBatchSize") final int metaStatusUpdateBatchSize) {
+                             @JsonProperty("metaStatusUpdateBatchSize") final int metaStatusUpdateBatchSize,
+                             @JsonProperty("effectiveMetaIndexTypes") final Set<String> effectiveMetaIndexTypes,
+                             @JsonProperty("effectiveMetaIndexMaxAge") final StroomDuration effectiveMetaIndexMaxAge) {
         this.dbConfig = dbConfig;
         this.metaValueConfig = metaValueConfig;
         this.metaFeedCache = metaFeedCache;
@@ -90,6 +96,8 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
         this.rawMetaTypes = rawMetaTypes;
         this.dataFormats = dataFormats;
         this.metaStatusUpdateBatchSize = metaStatusUpdateBatchSize;
+        this.effectiveMetaIndexTypes = effectiveMetaIndexTypes;
+        this.effectiveMetaIndexMaxAge = effectiveMetaIndexMaxAge;
     }
 
     @Override
@@ -191,6 +199,26 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
         return metaStatusUpdateBatchSize;
     }
 
+    @JsonPropertyDescription(
+            "Set of meta type names whose effective streams are held in an in-memory index on each node, " +
+            "so that effective stream lookups for reference data don't need to query the database. " +
+            "Each status change of a stream of one of these types is sent to all nodes to keep " +
+            "their index up to date, so it should only contain types used for reference data. " +
+            "An empty set means effective streams are always found using the database.")
+    public Set<String> getEffectiveMetaIndexTypes() {
+        return effectiveMetaIndexTypes;
+    }
+
+    @JsonPropertyDescription(
+            "The maximum age of the effective streams held in the in-memory index for a feed and type. " +
+            "The index is kept up to date by events from other nodes, but once the streams for a feed and " +
+            "type are older than this they are re-loaded from the database on the next lookup, in case an " +
+            "event was missed. A value of zero means they are never re-loaded. In ISO-8601 duration format, " +
+            "e.g. 'PT10M'.")
+    public StroomDuration getEffectiveMetaIndexMaxAge() {
+        return effectiveMetaIndexMaxAge;
+    }
+
     public MetaServiceConfig withMetaValueConfig(final MetaValueConfig metaValueConfig) {
         return new MetaServiceConfig(
                 dbConfig,
@@ -201,7 +229,39 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
                 metaTypes,
                 rawMetaTypes,
                 dataFormats,
-                metaStatusUpdateBatchSize);
+                metaStatusUpdateBatchSize,
+                effectiveMetaIndexTypes,
+                effectiveMetaIndexMaxAge);
+    }
+
+    public MetaServiceConfig withEffectiveMetaIndexTypes(final Set<String> effectiveMetaIndexTypes) {
+        return new MetaServiceConfig(
+                dbConfig,
+                metaValueConfig,
+                metaFeedCache,
+                metaProcessorCache,
+                metaTypeCache,
+                metaTypes,
+                rawMetaTypes,
+                dataFormats,
+                metaStatusUpdateBatchSize,
+                effectiveMetaIndexTypes,
+                effectiveMetaIndexMaxAge);
+    }
+
+    public MetaServiceConfig withEffectiveMetaIndexMaxAge(final StroomDuration effectiveMetaIndexMaxAge) {
+        return new MetaServiceConfig(
+                dbConfig,
+                metaValueConfig,
+                metaFeedCache,
+                metaProcessorCache,
+                metaTypeCache,
+                metaTypes,
+                rawMetaTypes,
+                dataFormats,
+                metaStatusUpdateBatchSize,
+                effectiveMetaIndexTypes,
+                effectiveMetaIndexMaxAge);
     }
 
     public MetaServiceConfig withMetaStatusUpdateBatchSize(
@@ -216,7 +276,9 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
                 metaTypes,
                 rawMetaTypes,
                 dataFormats,
-                metaStatusUpdateBatchSize);
+                metaStatusUpdateBatchSize,
+                effectiveMetaIndexTypes,
+                effectiveMetaIndexMaxAge);
     }
 
     @Override
@@ -231,6 +293,8 @@ public class MetaServiceConfig extends AbstractConfig implements IsStroomConfig,
                ", rawMetaTypes=" + rawMetaTypes +
                ", dataFormats=" + dataFormats +
                ", metaStatusUpdateBatchSize=" + metaStatusUpdateBatchSize +
+               ", effectiveMetaIndexTypes=" + effectiveMetaIndexTypes +
+               ", effectiveMetaIndexMaxAge=" + effectiveMetaIndexMaxAge +
                '}';
     }
 
@@ -105,6 +105,7 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
     private final UserQueryRegistry userQueryRegistry;
     private final TaskManager taskManager;
     private final FieldInfoResultPageFactory fieldInfoResultPageFactory;
+    private final EffectiveMetaIndex effectiveMetaIndex;
 
     @Inject
     MetaServiceImpl(final MetaDao metaDao,
@@ -119,7 +120,8 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
                     final TaskContextFactory taskContextFactory,
                     final UserQueryRegistry userQueryRegistry,
                     final TaskManager taskManager,
-                    final FieldInfoResultPageFactory fieldInfoResultPageFactory) {
+                    final FieldInfoResultPageFactory fieldInfoResultPageFactory,
+                    final EffectiveMetaIndex effectiveMetaIndex) {
         this.metaDao = metaDao;
         this.metaFeedDao = metaFeedDao;
         this.metaValueDao = metaValueDao;
@@ -133,6 +135,7 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
         this.userQueryRegistry = userQueryRegistry;
         this.taskManager = taskManager;
         this.fieldInfoResultPageFactory = fieldInfoResultPageFactory;
+        this.effectiveMetaIndex = effectiveMetaIndex;
     }
 
     @Override
@@ -182,6 +185,9 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
                 now,
                 DocumentPermission.EDIT);
         if (result > 0) {
+            if (effectiveMetaIndex.isIndexed(meta.getTypeName())) {
+                effectiveMetaIndex.fireStatusChange(meta.getId(), meta.getFeedName());
+            }
             return meta
                     .copy()
                     .status(newStatus)
@@ -244,12 +250,17 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
                     FEED_FIELDS);
             criteria.setExpression(expression);
 
-            return metaDao.updateStatus(
+            final int count = metaDao.updateStatus(
                     criteria,
                     currentStatus,
                     newStatus,
                     System.currentTimeMillis(),
                     usesUniqueIds);
+            if (count > 0) {
+                // We don't know which feeds/types were changed
+                effectiveMetaIndex.fireClear();
+            }
+            return count;
         });
     }
 
@@ -269,7 +280,11 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
                       final TimePeriod period) {
         return securityContext.secureResult(AppPermission.DELETE_DATA_PERMISSION, () -> {
             if (ruleActions != null && !ruleActions.isEmpty()) {
-                return metaDao.logicalDelete(ruleActions, period);
+                final int count = metaDao.logicalDelete(ruleActions, period);
+                if (count > 0) {
+                    effectiveMetaIndex.fireClear();
+                }
+                return count;
             } else {
                 return 0;
             }
@@ -283,8 +298,9 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
     }
 
     private int doLogicalDelete(final long id, final boolean lockCheck) {
+        Meta meta = null;
         if (lockCheck) {
-            final Meta meta = getMeta(id, true);
+            meta = getMeta(id, true);
 
             // Don't bother to try and set the status of deleted data to be deleted.
             if (Status.DELETED.equals(meta.getStatus())) {
@@ -300,12 +316,25 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
         // Ensure the user has permission to delete this data.
         final long now = System.currentTimeMillis();
 
-        return updateStatus(
+        final int count = updateStatus(
                 id,
                 null,
                 Status.DELETED,
                 now,
                 DocumentPermission.DELETE);
+        if (count > 0 && effectiveMetaIndex.isEnabled()) {
+            if (meta == null) {
+                // Only need the feed and type, which the status change hasn't altered.
+                meta = getMeta(id, true);
+            }
+            if (meta == null) {
+                // Can't tell if it is indexed, so let every node check.
+                effectiveMetaIndex.fireStatusChange(id, null);
+            } else if (effectiveMetaIndex.isIndexed(meta.getTypeName())) {
+                effectiveMetaIndex.fireStatusChange(id, meta.getFeedName());
+            }
+        }
+        return count;
     }
 
     @Override
@@ -476,8 +505,13 @@ public class MetaServiceImpl implements MetaService, StreamFeedProvider, Searcha
     public EffectiveMetaSet findEffectiveData(final EffectiveMetaDataCriteria criteria) {
         LOGGER.debug("findEffectiveData({})", criteria);
 
-        return securityContext.asProcessingUserResult(() ->
-                metaDao.getEffectiveStreams(criteria));
+        return securityContext.asProcessingUserResult(() -> {
+            if (effectiveMetaIndex.isIndexed(criteria.getType())) {
+                return effectiveMetaIndex.find(criteria);
+            } else {
+                return metaDao.getEffectiveStreams(criteria);
+            }
+        });
     }
 
     @Override
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 
 import java.util.Objects;
@@ -30,10 +31,18 @@ public class MetaValueConfig extends AbstractConfig implements IsStroomConfig {
             "Only applicable if property 'addAsync' is true.")
     private final int flushBatchSize;
 
+    @Min(1)
     @JsonProperty
-    @JsonPropertyDescription("If true, stream attributes will be queued in memory until the queue " +
-            "reaches 'flushBatchSize'. If false, stream attributes will be written to the database " +
-            "immediately and synchronously.")
+    @JsonPropertyDescription("The maximum number of stream attributes that can be queued waiting to be written " +
+            "to the database. If the queue is full, e.g. because the database is unavailable, any more stream " +
+            "attributes will be dropped. Only applicable if property 'addAsync' is true.")
+    private final int maxQueueSize;
+
+    @JsonProperty
+    @JsonPropertyDescription("If true, stream attributes will be queued in memory and written to the " +
+            "database in the background each time the queue reaches 'flushBatchSize', with any remainder " +
+            "written by the 'Flush Data Attributes To DB' job. If false, stream attributes will be written " +
+            "to the database immediately and synchronously.")
     // TODO 01/12/2021 AT: Make final
     private boolean addAsync;
 
@@ -41,6 +50,7 @@ public class MetaValueConfig extends AbstractConfig implements IsStroomConfig {
         deleteAge = StroomDuration.ofDays(30);
         deleteBatchSize = 500;
         flushBatchSize = 500;
+        maxQueueSize = 100_000;
         addAsync = true;
     }
 
@@ -48,10 +58,12 @@ public class MetaValueConfig extends AbstractConfig implements IsStroomConfig {
     public MetaValueConfig(@JsonProperty("deleteAge") final StroomDuration deleteAge,
                            @JsonProperty("deleteBatchSize") final int deleteBatchSize,
                            @JsonProperty("flushBatchSize") final int flushBatchSize,
+                           @JsonProperty("maxQueueSize") final int maxQueueSize,
                            @JsonProperty("addAsync") final boolean addAsync) {
         this.deleteAge = deleteAge;
         this.deleteBatchSize = deleteBatchSize;
         this.flushBatchSize = flushBatchSize;
+        this.maxQueueSize = maxQueueSize;
         this.addAsync = addAsync;
     }
 
@@ -67,6 +79,10 @@ public class MetaValueConfig extends AbstractConfig implements IsStroomConfig {
         return flushBatchSize;
     }
 
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
     public boolean isAddAsync() {
         return addAsync;
     }
@@ -77,7 +93,11 @@ public class MetaValueConfig extends AbstractConfig implements IsStroomConfig {
     }
 
     public MetaValueConfig withAddAsync(final boolean addAsync) {
-        return new MetaValueConfig(deleteAge, deleteBatchSize, flushBatchSize, addAsync);
+        return new MetaValueConfig(deleteAge, deleteBatchSize, flushBatchSize, maxQueueSize, addAsync);
+    }
+
+    public MetaValueConfig withMaxQueueSize(final int maxQueueSize) {
+        return new MetaValueConfig(deleteAge, deleteBatchSize, flushBatchSize, maxQueueSize, addAsync);
     }
 
     @Override
@@ -86,6 +106,7 @@ public class MetaValueConfig extends AbstractConfig implements IsStroomConfig {
                 "deleteAge=" + deleteAge +
                 ", deleteBatchSize=" + deleteBatchSize +
                 ", flushBatchSize=" + flushBatchSize +
+                ", maxQueueSize=" + maxQueueSize +
                 ", addAsync=" + addAsync +
                 '}';
     }
@@ -101,12 +122,13 @@ public class MetaValueConfig extends AbstractConfig implements IsStroomConfig {
         final MetaValueConfig that = (MetaValueConfig) o;
         return deleteBatchSize == that.deleteBatchSize &&
                 flushBatchSize == that.flushBatchSize &&
+                maxQueueSize == that.maxQueueSize &&
                 addAsync == that.addAsync &&
                 Objects.equals(deleteAge, that.deleteAge);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(deleteAge, deleteBatchSize, flushBatchSize, addAsync);
+        return Objects.hash(deleteAge, deleteBatchSize, flushBatchSize, maxQueueSize, addAsync);
     }
 }
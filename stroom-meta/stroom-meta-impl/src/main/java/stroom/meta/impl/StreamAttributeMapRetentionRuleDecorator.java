@@ -34,27 +34,41 @@ import org.slf4j.LoggerFactory;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 class StreamAttributeMapRetentionRuleDecorator {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StreamAttributeMapRetentionRuleDecorator.class);
 
     private final List<DataRetentionRule> rules;
-    private final ExpressionMatcher expressionMatcher;
+    // The compiled expression of each rule, null for rules that are not enabled
+    private final List<Predicate<Map<String, Object>>> rulePredicates;
 
     @Inject
     public StreamAttributeMapRetentionRuleDecorator(final ExpressionMatcherFactory expressionMatcherFactory,
                                                     final Provider<DataRetentionRules> dataRetentionRulesProvider) {
-        expressionMatcher = expressionMatcherFactory.create(MetaFields.getFieldMap());
+        final ExpressionMatcher expressionMatcher = expressionMatcherFactory.create(MetaFields.getFieldMap());
 
         rules = Optional.ofNullable(dataRetentionRulesProvider)
                 .map(Provider::get)
                 .map(DataRetentionRules::getRules)
                 .orElse(Collections.emptyList());
+
+        // Compile the rules once as we are likely to be matching a lot of streams against them
+        rulePredicates = new ArrayList<>(rules.size());
+        for (final DataRetentionRule rule : rules) {
+            // We will ignore rules that are not enabled or have no enabled expression.
+            if (rule.isEnabled() && rule.getExpression() != null && rule.getExpression().enabled()) {
+                rulePredicates.add(expressionMatcher.compile(rule.getExpression()));
+            } else {
+                rulePredicates.add(null);
+            }
+        }
     }
 
     void addMatchingRetentionRuleInfo(final Meta meta, final Map<String, String> attributeMap) {
@@ -103,12 +117,9 @@ class StreamAttributeMapRetentionRuleDecorator {
 
         for (int i = 0; i < rules.size(); i++) {
             try {
-                final DataRetentionRule rule = rules.get(i);
-                // We will ignore rules that are not enabled or have no enabled expression.
-                if (rule.isEnabled() && rule.getExpression() != null && rule.getExpression().enabled()) {
-                    if (expressionMatcher.match(attributeMap, rule.getExpression())) {
-                        return i;
-                    }
+                final Predicate<Map<String, Object>> rulePredicate = rulePredicates.get(i);
+                if (rulePredicate != null && rulePredicate.test(attributeMap)) {
+                    return i;
                 }
             } catch (final RuntimeException e) {
                 lastException = e;
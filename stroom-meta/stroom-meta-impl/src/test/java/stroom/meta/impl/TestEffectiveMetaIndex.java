@@ -0,0 +1,342 @@
+package stroom.meta.impl;
+
+import stroom.docref.DocRef;
+import stroom.meta.api.EffectiveMeta;
+import stroom.meta.api.EffectiveMetaDataCriteria;
+import stroom.meta.api.EffectiveMetaSet;
+import stroom.meta.impl.EffectiveMetaIndex.Key;
+import stroom.meta.impl.EffectiveMetaIndex.Streams;
+import stroom.meta.shared.Meta;
+import stroom.meta.shared.Status;
+import stroom.util.Period;
+import stroom.util.entityevent.EntityAction;
+import stroom.util.entityevent.EntityEvent;
+import stroom.util.shared.ResultPage;
+import stroom.util.time.StroomDuration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class TestEffectiveMetaIndex {
+
+    private static final String FEED = "FEED1";
+    private static final String OTHER_FEED = "FEED2";
+    private static final String TYPE = "Reference";
+    private static final Key KEY = new Key(FEED, TYPE);
+
+    @Mock
+    private MetaDao mockMetaDao;
+
+    @Test
+    void testFind_empty() {
+        final Streams streams = createStreams();
+
+        assertThat(streams.find(KEY, Long.MIN_VALUE, Long.MAX_VALUE))
+                .isEmpty();
+        assertThat(streams.find(KEY, 100, 200))
+                .isEmpty();
+    }
+
+    @Test
+    void testFind_periodBoundaries() {
+        final Streams streams = createStreams(
+                new StreamTime(1, 10),
+                new StreamTime(2, 20),
+                new StreamTime(3, 30));
+
+        // Nothing effective at or before the start and nothing in the period
+        assertThat(getIds(streams.find(KEY, 5, 10)))
+                .isEmpty();
+        // End is exclusive
+        assertThat(getIds(streams.find(KEY, 5, 11)))
+                .containsExactly(1L);
+        // Start is inclusive
+        assertThat(getIds(streams.find(KEY, 20, 30)))
+                .containsExactly(2L);
+        assertThat(getIds(streams.find(KEY, 19, 30)))
+                .containsExactly(1L, 2L);
+        assertThat(getIds(streams.find(KEY, 19, 31)))
+                .containsExactly(1L, 2L, 3L);
+        // Only the latest before the start
+        assertThat(getIds(streams.find(KEY, 40, 50)))
+                .containsExactly(3L);
+    }
+
+    @Test
+    void testFind_tiedEffectiveTimes() {
+        final Streams streams = createStreams(
+                new StreamTime(1, 10),
+                new StreamTime(2, 10),
+                new StreamTime(3, 20),
+                new StreamTime(4, 20));
+
+        // The highest id wins a tie
+        assertThat(getIds(streams.find(KEY, 15, 16)))
+                .containsExactly(2L);
+        assertThat(getIds(streams.find(KEY, 10, 25)))
+                .containsExactly(2L, 4L);
+        assertThat(getIds(streams.find(KEY, 5, 15)))
+                .containsExactly(2L);
+        assertThat(getIds(streams.find(KEY, 20, 21)))
+                .containsExactly(4L);
+    }
+
+    @Test
+    void testAdd() {
+        Streams streams = createStreams(
+                new StreamTime(2, 10),
+                new StreamTime(4, 20));
+
+        streams = streams.add(3, 10);
+        streams = streams.add(1, 10);
+        streams = streams.add(5, 5);
+        streams = streams.add(6, 30);
+
+        // Ordered by effective time then id
+        assertThat(streams.effectiveTimes())
+                .containsExactly(5, 10, 10, 10, 20, 30);
+        assertThat(streams.ids())
+                .containsExactly(5, 1, 2, 3, 4, 6);
+
+        // Adding one we already have is a no-op
+        assertThat(streams.add(3, 10))
+                .isSameAs(streams);
+    }
+
+    @Test
+    void testRemove() {
+        Streams streams = createStreams(
+                new StreamTime(1, 10),
+                new StreamTime(2, 10),
+                new StreamTime(3, 20));
+
+        streams = streams.remove(2);
+        assertThat(streams.ids())
+                .containsExactly(1, 3);
+        assertThat(getIds(streams.find(KEY, 15, 16)))
+                .containsExactly(1L);
+
+        // Removing one we don't have is a no-op
+        assertThat(streams.remove(99))
+                .isSameAs(streams);
+
+        streams = streams.remove(1).remove(3);
+        assertThat(streams.find(KEY, Long.MIN_VALUE, Long.MAX_VALUE))
+                .isEmpty();
+    }
+
+    /**
+     * Checks the index gives the same results as the database query in
+     * {@link MetaDao#getEffectiveStreams(EffectiveMetaDataCriteria)} for lots of periods, with lots of tied
+     * effective times, as streams are added and removed.
+     */
+    @Test
+    void testFind_matchesDatabaseQuery() {
+        final Random random = new Random(12345);
+        final List<StreamTime> streamTimes = new ArrayList<>();
+        Streams streams = createStreams();
+        long nextId = 1;
+
+        for (int i = 0; i < 500; i++) {
+            if (streamTimes.isEmpty() || random.nextInt(3) > 0) {
+                final StreamTime streamTime = new StreamTime(nextId++, random.nextInt(50) * 10L);
+                streamTimes.add(streamTime);
+                streams = streams.add(streamTime.id(), streamTime.effectiveMs());
+            } else {
+                final StreamTime streamTime = streamTimes.remove(random.nextInt(streamTimes.size()));
+                streams = streams.remove(streamTime.id());
+            }
+
+            for (int j = 0; j < 20; j++) {
+                // Periods that start and end on and around effective times
+                final long fromMs = random.nextInt(520) - 10;
+                final long toMs = fromMs + random.nextInt(100);
+                assertThat(streams.find(KEY, fromMs, toMs))
+                        .describedAs("Period %s to %s, streams %s", fromMs, toMs, streams)
+                        .isEqualTo(findLikeDatabase(streamTimes, fromMs, toMs));
+            }
+        }
+    }
+
+    @Test
+    void testLoadedOnFirstFind() {
+        final EffectiveMetaIndex effectiveMetaIndex = createIndex(new MetaServiceConfig());
+        Mockito.when(mockMetaDao.getEffectiveStreams(Mockito.any()))
+                .thenReturn(EffectiveMetaSet.builder(FEED, TYPE)
+                        .add(1, 10)
+                        .add(2, 20)
+                        .build());
+
+        assertThat(getIds(effectiveMetaIndex.find(createCriteria(15, 25))))
+                .containsExactly(1L, 2L);
+        assertThat(getIds(effectiveMetaIndex.find(createCriteria(25, 35))))
+                .containsExactly(2L);
+
+        // Loaded once
+        Mockito.verify(mockMetaDao, Mockito.times(1))
+                .getEffectiveStreams(Mockito.any());
+    }
+
+    @Test
+    void testReloadedAfterMaxAge() throws InterruptedException {
+        final EffectiveMetaIndex effectiveMetaIndex = createIndex(new MetaServiceConfig()
+                .withEffectiveMetaIndexMaxAge(StroomDuration.ofMillis(1)));
+        Mockito.when(mockMetaDao.getEffectiveStreams(Mockito.any()))
+                .thenReturn(EffectiveMetaSet.builder(FEED, TYPE)
+                        .add(1, 10)
+                        .build())
+                .thenReturn(EffectiveMetaSet.builder(FEED, TYPE)
+                        .add(1, 10)
+                        .add(2, 20)
+                        .build());
+
+        assertThat(getIds(effectiveMetaIndex.find(createCriteria(15, 25))))
+                .containsExactly(1L);
+
+        Thread.sleep(10);
+
+        // Stream 2 was missed but is picked up by the reload
+        assertThat(getIds(effectiveMetaIndex.find(createCriteria(15, 25))))
+                .containsExactly(1L, 2L);
+        Mockito.verify(mockMetaDao, Mockito.times(2))
+                .getEffectiveStreams(Mockito.any());
+    }
+
+    @Test
+    void testStatusChange() {
+        final EffectiveMetaIndex effectiveMetaIndex = createIndex(new MetaServiceConfig());
+        Mockito.when(mockMetaDao.getEffectiveStreams(Mockito.any()))
+                .thenReturn(EffectiveMetaSet.builder(FEED, TYPE)
+                        .add(1, 10)
+                        .build());
+        assertThat(getIds(effectiveMetaIndex.find(createCriteria(15, 25))))
+                .containsExactly(1L);
+
+        // Unlocked
+        mockFind(2, Status.UNLOCKED);
+        effectiveMetaIndex.onChange(createStatusChangeEvent(2, FEED));
+        assertThat(getIds(effectiveMetaIndex.find(createCriteria(15, 25))))
+                .containsExactly(1L, 2L);
+
+        // Deleted
+        mockFind(1, Status.DELETED);
+        effectiveMetaIndex.onChange(createStatusChangeEvent(1, FEED));
+        assertThat(getIds(effectiveMetaIndex.find(createCriteria(15, 25))))
+                .containsExactly(2L);
+
+        Mockito.verify(mockMetaDao, Mockito.times(1))
+                .getEffectiveStreams(Mockito.any());
+    }
+
+    @Test
+    void testStatusChange_feedNotIndexed() {
+        final EffectiveMetaIndex effectiveMetaIndex = createIndex(new MetaServiceConfig());
+        Mockito.when(mockMetaDao.getEffectiveStreams(Mockito.any()))
+                .thenReturn(EffectiveMetaSet.builder(FEED, TYPE)
+                        .add(1, 10)
+                        .build());
+        effectiveMetaIndex.find(createCriteria(15, 25));
+
+        effectiveMetaIndex.onChange(createStatusChangeEvent(2, OTHER_FEED));
+
+        // No need to look at the stream
+        Mockito.verify(mockMetaDao, Mockito.never())
+                .find(Mockito.any());
+    }
+
+    @Test
+    void testClear() {
+        final EffectiveMetaIndex effectiveMetaIndex = createIndex(new MetaServiceConfig());
+        Mockito.when(mockMetaDao.getEffectiveStreams(Mockito.any()))
+                .thenReturn(EffectiveMetaSet.builder(FEED, TYPE)
+                        .add(1, 10)
+                        .build());
+        effectiveMetaIndex.find(createCriteria(15, 25));
+
+        effectiveMetaIndex.onChange(new EntityEvent(
+                new DocRef(EffectiveMetaIndex.ENTITY_TYPE, EffectiveMetaIndex.ENTITY_TYPE),
+                EntityAction.CLEAR_CACHE));
+        effectiveMetaIndex.find(createCriteria(15, 25));
+
+        Mockito.verify(mockMetaDao, Mockito.times(2))
+                .getEffectiveStreams(Mockito.any());
+    }
+
+    /**
+     * What {@link MetaDao#getEffectiveStreams(EffectiveMetaDataCriteria)} does. The latest stream effective at
+     * or before the start, taking the highest id if there is a tie, plus all streams effective after the start
+     * and before the end.
+     */
+    private EffectiveMetaSet findLikeDatabase(final List<StreamTime> streamTimes,
+                                              final long fromMs,
+                                              final long toMs) {
+        final EffectiveMetaSet.Builder builder = EffectiveMetaSet.builder(FEED, TYPE);
+        streamTimes.stream()
+                .filter(streamTime -> streamTime.effectiveMs() <= fromMs)
+                .max(Comparator.comparingLong(StreamTime::effectiveMs)
+                        .thenComparingLong(StreamTime::id))
+                .ifPresent(streamTime -> builder.add(streamTime.id(), streamTime.effectiveMs()));
+        streamTimes.stream()
+                .filter(streamTime -> streamTime.effectiveMs() > fromMs && streamTime.effectiveMs() < toMs)
+                .forEach(streamTime -> builder.add(streamTime.id(), streamTime.effectiveMs()));
+        return builder.build();
+    }
+
+    private Streams createStreams(final StreamTime... streamTimes) {
+        Streams streams = new Streams(new long[0], new long[0], System.currentTimeMillis());
+        for (final StreamTime streamTime : streamTimes) {
+            streams = streams.add(streamTime.id(), streamTime.effectiveMs());
+        }
+        return streams;
+    }
+
+    private EffectiveMetaIndex createIndex(final MetaServiceConfig metaServiceConfig) {
+        return new EffectiveMetaIndex(mockMetaDao, () -> metaServiceConfig, () -> null);
+    }
+
+    private EffectiveMetaDataCriteria createCriteria(final long fromMs, final long toMs) {
+        return new EffectiveMetaDataCriteria(new Period(fromMs, toMs), FEED, TYPE);
+    }
+
+    private EntityEvent createStatusChangeEvent(final long metaId, final String feedName) {
+        return new EntityEvent(
+                new DocRef(EffectiveMetaIndex.ENTITY_TYPE, String.valueOf(metaId), feedName),
+                EntityAction.UPDATE);
+    }
+
+    private void mockFind(final long metaId, final Status status) {
+        Mockito.when(mockMetaDao.find(Mockito.any()))
+                .thenReturn(new ResultPage<>(List.of(Meta.builder()
+                        .id(metaId)
+                        .feedName(FEED)
+                        .typeName(TYPE)
+                        .status(status)
+                        .effectiveMs(20L)
+                        .build())));
+    }
+
+    private List<Long> getIds(final EffectiveMetaSet effectiveMetaSet) {
+        return effectiveMetaSet.stream()
+                .map(EffectiveMeta::getId)
+                .toList();
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record StreamTime(long id, long effectiveMs) {
+
+    }
+}
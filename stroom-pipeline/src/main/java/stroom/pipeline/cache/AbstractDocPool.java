@@ -46,7 +46,19 @@ public abstract class AbstractDocPool<K extends Doc, V>
                            final Supplier<CacheConfig> cacheConfigSupplier,
                            final DocumentPermissionCache documentPermissionCache,
                            final SecurityContext securityContext) {
-        super(cacheManager, name, cacheConfigSupplier);
+        this(cacheManager, name, cacheConfigSupplier, documentPermissionCache, securityContext, false);
+    }
+
+    /**
+     * @param shareValues See {@link AbstractPoolCache#AbstractPoolCache(CacheManager, String, Supplier, boolean)}
+     */
+    public AbstractDocPool(final CacheManager cacheManager,
+                           final String name,
+                           final Supplier<CacheConfig> cacheConfigSupplier,
+                           final DocumentPermissionCache documentPermissionCache,
+                           final SecurityContext securityContext,
+                           final boolean shareValues) {
+        super(cacheManager, name, cacheConfigSupplier, shareValues);
         this.documentPermissionCache = documentPermissionCache;
         this.securityContext = securityContext;
     }
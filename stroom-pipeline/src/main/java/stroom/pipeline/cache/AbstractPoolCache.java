@@ -48,10 +48,27 @@ public abstract class AbstractPoolCache<K, V> implements Clearable, HasSystemInf
     private final LoadingStroomCache<PoolKey<K>, PoolItem<V>> cache;
     // Provides all the cache keys (PoolKey) for each K
     private final Map<K, LinkedBlockingDeque<PoolKey<K>>> keyMap = new ConcurrentHashMap<>();
+    // If true there is only ever one PoolKey per K and its value is shared by all borrowers
+    private final boolean shareValues;
 
     public AbstractPoolCache(final CacheManager cacheManager,
                              final String cacheName,
                              final Supplier<CacheConfig> cacheConfigSupplier) {
+        this(cacheManager, cacheName, cacheConfigSupplier, false);
+    }
+
+    /**
+     * @param shareValues If true, only one value is created for each key and it is handed to
+     *                    all borrowers concurrently, so the value must be thread safe. Concurrent
+     *                    borrowers of a key that is not in the cache will wait for a single creation
+     *                    of the value rather than each creating their own. If false, each concurrent
+     *                    borrower gets its own value.
+     */
+    public AbstractPoolCache(final CacheManager cacheManager,
+                             final String cacheName,
+                             final Supplier<CacheConfig> cacheConfigSupplier,
+                             final boolean shareValues) {
+        this.shareValues = shareValues;
         cache = cacheManager.createLoadingCache(
                 cacheName,
                 cacheConfigSupplier,
@@ -116,6 +133,12 @@ public abstract class AbstractPoolCache<K, V> implements Clearable, HasSystemInf
                 return new PoolItem<>(new PoolKey<>(key), internalCreateValue(key));
             }
 
+            if (shareValues) {
+                // All borrowers use the same pool key so the cache will only create the
+                // value once, with any concurrent borrowers waiting on that creation.
+                return cache.get(getSharedPoolKey(key));
+            }
+
             // Get the current deque associated with the key.
             final LinkedBlockingDeque<PoolKey<K>> deque = keyMap.get(key);
             if (deque != null) {
@@ -139,13 +162,44 @@ public abstract class AbstractPoolCache<K, V> implements Clearable, HasSystemInf
         }
     }
 
+    private PoolKey<K> getSharedPoolKey(final K key) {
+        // Fast path, no locking
+        final LinkedBlockingDeque<PoolKey<K>> existingDeque = keyMap.get(key);
+        if (existingDeque != null) {
+            final PoolKey<K> poolKey = existingDeque.peek();
+            if (poolKey != null) {
+                return poolKey;
+            }
+        }
+
+        final LinkedBlockingDeque<PoolKey<K>> deque = keyMap.compute(key, (k, v) -> {
+            LinkedBlockingDeque<PoolKey<K>> newDeque = v;
+            if (newDeque == null) {
+                newDeque = new LinkedBlockingDeque<>();
+            }
+            // Deque may have been drained by an invalidation
+            if (newDeque.isEmpty()) {
+                newDeque.offer(new PoolKey<>(k));
+            }
+            return newDeque;
+        });
+        final PoolKey<K> poolKey = deque.peek();
+        // Lost a race with an invalidation, so just use a one-off key
+        return poolKey != null
+                ? poolKey
+                : new PoolKey<>(key);
+    }
+
     @SuppressWarnings("unchecked")
     protected void internalReturnObject(final PoolItem<V> item, final boolean usePool) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Return Object\n" + getKeySizes());
         }
 
-        if (usePool) {
+        if (shareValues) {
+            // The item was never taken off the deque so there is nothing to give back
+            LOGGER.trace("Not returning shared item {}", item);
+        } else if (usePool) {
             try {
                 final PoolKey<K> poolKey = item.getKey();
 
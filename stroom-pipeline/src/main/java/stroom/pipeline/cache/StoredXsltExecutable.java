@@ -17,21 +17,43 @@
 package stroom.pipeline.cache;
 
 import stroom.pipeline.errorhandler.StoredErrorReceiver;
+import stroom.pipeline.xsltfunctions.StroomXsltFunctionCalls;
 import stroom.pipeline.xsltfunctions.StroomXsltFunctionLibrary;
 
 import net.sf.saxon.s9api.XsltExecutable;
 
+/**
+ * A compiled XSLT. The {@link XsltExecutable} is thread safe so one instance is shared by all
+ * users of the same XSLT doc version. Each borrower gets its own copy holding the
+ * {@link StroomXsltFunctionCalls} configured for it.
+ */
 public class StoredXsltExecutable {
 
     private final XsltExecutable xsltExecutable;
     private final StroomXsltFunctionLibrary functionLibrary;
     private final StoredErrorReceiver errorReceiver;
+    private final StroomXsltFunctionCalls functionCalls;
 
     public StoredXsltExecutable(final XsltExecutable xsltExecutable, final StroomXsltFunctionLibrary functionLibrary,
                                 final StoredErrorReceiver errorReceiver) {
+        this(xsltExecutable, functionLibrary, errorReceiver, null);
+    }
+
+    private StoredXsltExecutable(final XsltExecutable xsltExecutable,
+                                 final StroomXsltFunctionLibrary functionLibrary,
+                                 final StoredErrorReceiver errorReceiver,
+                                 final StroomXsltFunctionCalls functionCalls) {
         this.xsltExecutable = xsltExecutable;
         this.functionLibrary = functionLibrary;
         this.errorReceiver = errorReceiver;
+        this.functionCalls = functionCalls;
+    }
+
+    /**
+     * @return A copy of this sharing the same compiled XSLT but with the passed function calls.
+     */
+    StoredXsltExecutable withFunctionCalls(final StroomXsltFunctionCalls functionCalls) {
+        return new StoredXsltExecutable(xsltExecutable, functionLibrary, errorReceiver, functionCalls);
     }
 
     public XsltExecutable getXsltExecutable() {
@@ -45,4 +67,12 @@ public class StoredXsltExecutable {
     public StoredErrorReceiver getErrorReceiver() {
         return errorReceiver;
     }
+
+    /**
+     * @return The function calls to bind to each transformer created from the executable or null
+     * if they have not been configured.
+     */
+    public StroomXsltFunctionCalls getFunctionCalls() {
+        return functionCalls;
+    }
 }
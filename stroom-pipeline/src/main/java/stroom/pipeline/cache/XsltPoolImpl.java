@@ -26,6 +26,7 @@ import stroom.pipeline.errorhandler.StoredErrorReceiver;
 import stroom.pipeline.filter.XsltConfig;
 import stroom.pipeline.shared.XsltDoc;
 import stroom.pipeline.shared.data.PipelineReference;
+import stroom.pipeline.xsltfunctions.StroomXsltFunctionCalls;
 import stroom.pipeline.xsltfunctions.StroomXsltFunctionLibrary;
 import stroom.security.api.SecurityContext;
 import stroom.util.entityevent.EntityAction;
@@ -75,7 +76,8 @@ class XsltPoolImpl extends AbstractDocPool<XsltDoc, StoredXsltExecutable> implem
                 "XSLT Pool",
                 () -> xsltConfigProvider.get().getCacheConfig(),
                 documentPermissionCache,
-                securityContext);
+                securityContext,
+                true);
         this.uriResolver = uriResolver;
         this.stroomXsltFunctionLibraryProvider = stroomXsltFunctionLibraryProvider;
     }
@@ -86,28 +88,20 @@ class XsltPoolImpl extends AbstractDocPool<XsltDoc, StoredXsltExecutable> implem
                                                                    final LocationFactory locationFactory,
                                                                    final List<PipelineReference> pipelineReferences,
                                                                    final boolean usePool) {
-        // Get the item from the pool.
+        // Get the item from the pool. The compiled XSLT in it is shared with other threads.
         final PoolItem<StoredXsltExecutable> poolItem = super.borrowObject(k, usePool);
 
-        // Configure the item.
+        // Configure a set of function calls just for this borrower.
         if (poolItem != null && poolItem.getValue() != null && poolItem.getValue().getFunctionLibrary() != null) {
-            poolItem.getValue().getFunctionLibrary().configure(errorReceiver, locationFactory,
-                    pipelineReferences);
+            final StoredXsltExecutable storedXsltExecutable = poolItem.getValue();
+            final StroomXsltFunctionCalls functionCalls = storedXsltExecutable.getFunctionLibrary()
+                    .configure(errorReceiver, locationFactory, pipelineReferences);
+            return new PoolItem<>(poolItem.getKey(), storedXsltExecutable.withFunctionCalls(functionCalls));
         }
 
         return poolItem;
     }
 
-    @Override
-    public void returnObject(final PoolItem<StoredXsltExecutable> poolItem, final boolean usePool) {
-        // Reset all references to function library classes to release memory.
-        if (poolItem != null && poolItem.getValue() != null && poolItem.getValue().getFunctionLibrary() != null) {
-            poolItem.getValue().getFunctionLibrary().reset();
-        }
-
-        super.returnObject(poolItem, usePool);
-    }
-
     @Override
     protected StoredXsltExecutable createValue(final XsltDoc xslt) {
         if (LOGGER.isDebugEnabled()) {
@@ -42,6 +42,7 @@ import stroom.pipeline.state.FeedHolder;
 import stroom.pipeline.state.PipelineContext;
 import stroom.pipeline.state.PipelineHolder;
 import stroom.pipeline.xslt.XsltStore;
+import stroom.pipeline.xsltfunctions.StroomXsltFunctionCalls;
 import stroom.svg.shared.SvgImage;
 import stroom.util.CharBuffer;
 import stroom.util.io.PathCreator;
@@ -54,7 +55,6 @@ import stroom.util.shared.Severity;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
-import net.sf.saxon.Configuration;
 import net.sf.saxon.jaxp.TemplatesImpl;
 import net.sf.saxon.jaxp.TransformerImpl;
 import net.sf.saxon.s9api.QName;
@@ -119,6 +119,7 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
      */
     private PoolItem<StoredXsltExecutable> poolItem;
     private XsltExecutable xsltExecutable;
+    private StroomXsltFunctionCalls functionCalls;
     private TransformerHandler handler;
     private Locator locator;
     private boolean xsltRequired = false;
@@ -184,6 +185,8 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
                     final StoredErrorReceiver storedErrors = storedXsltExecutable.getErrorReceiver();
                     // Get the XSLT executable.
                     xsltExecutable = storedXsltExecutable.getXsltExecutable();
+                    // Get the function calls configured for this filter.
+                    functionCalls = storedXsltExecutable.getFunctionCalls();
 
                     if (storedErrors.getTotalErrors() > 0) {
                         // Replay any exceptions that were created when
@@ -227,6 +230,7 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
             if (poolItem != null) {
                 xsltPool.returnObject(poolItem, usePool);
                 poolItem = null;
+                functionCalls = null;
             }
         } finally {
             super.endProcessing();
@@ -256,9 +260,8 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
     public void startDocument() throws SAXException {
         try {
             if (xsltExecutable != null) {
-                // Make sure the executable points at the local error handler.
-                final Configuration configuration = xsltExecutable.getUnderlyingCompiledStylesheet().getConfiguration();
-                configuration.setErrorListener(errorListener);
+                // The executable (and its configuration) is shared with other threads so the local
+                // error handler is set on the transformer rather than the configuration.
 //                configuration.setLineNumbering(!pipelineContext.isStepping());
 
                 // Create a handler to receive all SAX events.
@@ -266,6 +269,10 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
                 final TransformerImpl transformer = (TransformerImpl) templates.newTransformer();
                 transformer.setErrorListener(errorListener);
                 configureMessageListener(transformer);
+                // Make our Stroom function calls available to this transform.
+                if (functionCalls != null) {
+                    functionCalls.bind(transformer.getUnderlyingXsltTransformer().getUnderlyingController());
+                }
 
                 handler = transformer.newTransformerHandler();
                 handler.setResult(new SAXResult(getFilter()));
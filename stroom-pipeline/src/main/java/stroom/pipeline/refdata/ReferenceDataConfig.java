@@ -25,6 +25,7 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
     private final ReferenceDataStagingLmdbConfig stagingLmdbConfig;
     private final CacheConfig effectiveStreamCache;
     private final CacheConfig metaIdToRefStoreCache;
+    private final CacheConfig lookupCache;
 
     public ReferenceDataConfig() {
         maxPutsBeforeCommit = 200_000;
@@ -44,6 +45,12 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 .maximumSize(1_000L)
                 .expireAfterAccess(StroomDuration.ofHours(1))
                 .build();
+
+        // Short-lived as lookups tend to be hit hard for the duration of a stream then not at all
+        lookupCache = CacheConfig.builder()
+                .maximumSize(100_000L)
+                .expireAfterAccess(StroomDuration.ofMinutes(1))
+                .build();
     }
 
     @JsonCreator
@@ -54,7 +61,8 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                                @JsonProperty("lmdb") final ReferenceDataLmdbConfig lmdbConfig,
                                @JsonProperty("stagingLmdb") final ReferenceDataStagingLmdbConfig stagingLmdbConfig,
                                @JsonProperty("effectiveStreamCache") final CacheConfig effectiveStreamCache,
-                               @JsonProperty("metaIdToRefStoreCache") final CacheConfig metaIdToRefStoreCache) {
+                               @JsonProperty("metaIdToRefStoreCache") final CacheConfig metaIdToRefStoreCache,
+                               @JsonProperty("lookupCache") final CacheConfig lookupCache) {
         this.maxPutsBeforeCommit = maxPutsBeforeCommit;
         this.maxPurgeDeletesBeforeCommit = maxPurgeDeletesBeforeCommit;
         this.purgeAge = purgeAge;
@@ -63,6 +71,7 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
         this.stagingLmdbConfig = stagingLmdbConfig;
         this.effectiveStreamCache = effectiveStreamCache;
         this.metaIdToRefStoreCache = metaIdToRefStoreCache;
+        this.lookupCache = lookupCache;
     }
 
     @Min(0)
@@ -118,6 +127,16 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
         return metaIdToRefStoreCache;
     }
 
+    @JsonPropertyDescription("The on-heap cache held by each reference data store in front of the off-heap " +
+            "store. It caches map UIDs and the location of values for map/key pairs (including lookups that " +
+            "found nothing) so that repeated lookups of the same keys avoid most of the LMDB reads. The maximum " +
+            "size applies to the map UIDs and to the value locations across all reference streams. Entries " +
+            "for a stream are invalidated when the stream is loaded or purged. Changes to this cache " +
+            "configuration only take effect when the store is next opened.")
+    public CacheConfig getLookupCache() {
+        return lookupCache;
+    }
+
     public ReferenceDataConfig withLmdbConfig(final ReferenceDataLmdbConfig lmdbConfig) {
         return new ReferenceDataConfig(
                 maxPutsBeforeCommit,
@@ -126,7 +145,7 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 loadingLockStripes,
                 lmdbConfig,
                 stagingLmdbConfig,
-                effectiveStreamCache, metaIdToRefStoreCache);
+                effectiveStreamCache, metaIdToRefStoreCache, lookupCache);
     }
 
     public ReferenceDataConfig withPurgeAge(final StroomDuration purgeAge) {
@@ -137,7 +156,7 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 loadingLockStripes,
                 lmdbConfig,
                 stagingLmdbConfig,
-                effectiveStreamCache, metaIdToRefStoreCache);
+                effectiveStreamCache, metaIdToRefStoreCache, lookupCache);
     }
 
     public ReferenceDataConfig withMaxPutsBeforeCommit(final int maxPutsBeforeCommit) {
@@ -148,7 +167,7 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 loadingLockStripes,
                 lmdbConfig,
                 stagingLmdbConfig,
-                effectiveStreamCache, metaIdToRefStoreCache);
+                effectiveStreamCache, metaIdToRefStoreCache, lookupCache);
     }
 
     public ReferenceDataConfig withMaxPurgeDeletesBeforeCommit(final int maxPurgeDeletesBeforeCommit) {
@@ -159,7 +178,7 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 loadingLockStripes,
                 lmdbConfig,
                 stagingLmdbConfig,
-                effectiveStreamCache, metaIdToRefStoreCache);
+                effectiveStreamCache, metaIdToRefStoreCache, lookupCache);
     }
 
     public ReferenceDataConfig withEffectiveStreamCache(final CacheConfig effectiveStreamCache) {
@@ -170,7 +189,7 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 loadingLockStripes,
                 lmdbConfig,
                 stagingLmdbConfig,
-                effectiveStreamCache, metaIdToRefStoreCache);
+                effectiveStreamCache, metaIdToRefStoreCache, lookupCache);
     }
 
     @Override
@@ -183,6 +202,8 @@ public class ReferenceDataConfig extends AbstractConfig implements IsStroomConfi
                 ", lmdbConfig=" + lmdbConfig +
                 ", stagingLmdbConfig=" + stagingLmdbConfig +
                 ", effectiveStreamCache=" + effectiveStreamCache +
+                ", metaIdToRefStoreCache=" + metaIdToRefStoreCache +
+                ", lookupCache=" + lookupCache +
                 '}';
     }
 }
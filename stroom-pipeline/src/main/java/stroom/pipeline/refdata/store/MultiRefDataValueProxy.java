@@ -23,8 +23,11 @@ import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -158,6 +161,28 @@ public class MultiRefDataValueProxy implements RefDataValueProxy {
         return optResult;
     }
 
+    @Override
+    public Optional<Map<String, RefDataValue>> supplyValues(final Collection<String> keys) {
+        // As with supplyValue, earlier proxies take precedence so only pass the keys that
+        // have not yet been found on to the next proxy
+        final Map<String, RefDataValue> values = new LinkedHashMap<>(keys.size());
+        List<String> remainingKeys = new ArrayList<>(keys);
+        for (final SingleRefDataValueProxy refDataValueProxy : refDataValueProxies) {
+            if (remainingKeys.isEmpty()) {
+                break;
+            }
+            LOGGER.trace("Attempting to supplyValues with sub-proxy {}", refDataValueProxy);
+            // Single proxies always support bulk lookups
+            final Map<String, RefDataValue> subValues = refDataValueProxy.supplyValues(remainingKeys)
+                    .orElseThrow();
+            values.putAll(subValues);
+            remainingKeys = remainingKeys.stream()
+                    .filter(key -> !values.containsKey(key))
+                    .collect(Collectors.toList());
+        }
+        return Optional.of(values);
+    }
+
     @Override
     public boolean consumeBytes(final Consumer<TypedByteBuffer> typedByteBufferConsumer) {
         // try each of our proxies in turn and as soon as one finds a result break out
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.pipeline.refdata.store;
+
+import stroom.pipeline.refdata.store.RefDataStore.StorageType;
+import stroom.pipeline.refdata.store.offheapstore.RefDataValueProxyConsumer;
+import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
+import stroom.util.logging.LogUtil;
+
+import net.sf.saxon.trans.XPathException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A {@link RefDataValueProxy} for a value that has already been fetched from the store, e.g. by
+ * {@link RefDataValueProxy#supplyValues(java.util.Collection)}. The value is held on the heap so
+ * no further store access is needed to consume it.
+ */
+public class PrefetchedRefDataValueProxy implements RefDataValueProxy {
+
+    private final String key;
+    private final String mapName;
+    private final List<MapDefinition> mapDefinitions;
+    private final RefDataValue refDataValue;
+
+    /**
+     * @param refDataValue The value or null if the key was not found.
+     */
+    public PrefetchedRefDataValueProxy(final RefDataValueProxy sourceProxy,
+                                       final String key,
+                                       final RefDataValue refDataValue) {
+        Objects.requireNonNull(sourceProxy);
+        this.key = Objects.requireNonNull(key);
+        this.mapName = sourceProxy.getMapName();
+        this.mapDefinitions = sourceProxy.getMapDefinitions();
+        this.refDataValue = refDataValue;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String getMapName() {
+        return mapName;
+    }
+
+    @Override
+    public List<MapDefinition> getMapDefinitions() {
+        return mapDefinitions;
+    }
+
+    @Override
+    public Optional<MapDefinition> getSuccessfulMapDefinition() {
+        // We don't know which of the maps supplied the value
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<RefDataValue> supplyValue() {
+        return Optional.ofNullable(refDataValue);
+    }
+
+    @Override
+    public boolean consumeBytes(final Consumer<TypedByteBuffer> typedByteBufferConsumer) {
+        if (refDataValue == null) {
+            return false;
+        }
+        final TypedByteBuffer typedByteBuffer;
+        if (refDataValue instanceof final FastInfosetValue fastInfosetValue) {
+            typedByteBuffer = new TypedByteBuffer(
+                    FastInfosetValue.TYPE_ID,
+                    fastInfosetValue.getByteBuffer().duplicate());
+        } else if (refDataValue instanceof final StringValue stringValue) {
+            typedByteBuffer = new TypedByteBuffer(
+                    StringValue.TYPE_ID,
+                    ByteBuffer.wrap(stringValue.getValue().getBytes(StandardCharsets.UTF_8)));
+        } else if (refDataValue.isNullValue()) {
+            // Null values are held in the stores as an empty buffer
+            typedByteBuffer = new TypedByteBuffer(NullValue.TYPE_ID, ByteBuffer.allocate(0));
+        } else if (refDataValue instanceof final UnknownRefDataValue unknownRefDataValue) {
+            typedByteBuffer = new TypedByteBuffer(
+                    UnknownRefDataValue.TYPE_ID,
+                    unknownRefDataValue.getValue().duplicate());
+        } else {
+            throw new IllegalStateException(LogUtil.message(
+                    "Unexpected reference data value type {} for key [{}], map {}",
+                    refDataValue.getClass().getSimpleName(), key, mapName));
+        }
+        typedByteBufferConsumer.accept(typedByteBuffer);
+        return true;
+    }
+
+    @Override
+    public boolean consumeValue(final RefDataValueProxyConsumerFactory refDataValueProxyConsumerFactory) {
+        // The value is on the heap so use the on heap consumer
+        final RefDataValueProxyConsumer refDataValueProxyConsumer = refDataValueProxyConsumerFactory
+                .getConsumer(StorageType.ON_HEAP);
+        try {
+            return refDataValueProxyConsumer.consume(this);
+        } catch (final XPathException e) {
+            throw new RuntimeException(LogUtil.message(
+                    "Error consuming reference data value for key [{}], map {}: {}",
+                    key, mapName, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * As with {@link MultiRefDataValueProxy}, this proxy takes precedence over the additional
+     * proxy. The value has already been fetched so if it was found the additional proxy will never
+     * be consulted, else the additional proxy is the only one that can supply a value.
+     */
+    @Override
+    public RefDataValueProxy merge(final RefDataValueProxy additionalProxy) {
+        Objects.requireNonNull(additionalProxy);
+        if (!Objects.equals(key, additionalProxy.getKey())) {
+            throw new RuntimeException(LogUtil.message("All keys should be the same. Found '{}' and '{}'",
+                    key,
+                    additionalProxy.getKey()));
+        }
+        if (!Objects.equals(mapName, additionalProxy.getMapName())) {
+            throw new RuntimeException(LogUtil.message("All map names should be the same. Found '{}' and '{}'",
+                    mapName,
+                    additionalProxy.getMapName()));
+        }
+        return refDataValue != null
+                ? this
+                : additionalProxy;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefetchedRefDataValueProxy{" +
+               "key='" + key + '\'' +
+               ", mapName='" + mapName + '\'' +
+               ", found=" + (refDataValue != null) +
+               '}';
+    }
+}
@@ -20,7 +20,10 @@ package stroom.pipeline.refdata.store;
 import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
 import stroom.util.time.StroomDuration;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -62,6 +65,25 @@ public interface RefDataStore {
     Optional<RefDataValue> getValue(final MapDefinition mapDefinition,
                                     final String key);
 
+    /**
+     * Gets the values from the store for each of the passed keys in mapDefinition. Implementations should
+     * look up all the keys in one go, e.g. in a single transaction, which is cheaper than calling
+     * {@link RefDataStore#getValue(MapDefinition, String)} for each key. The returned values can be
+     * used after this method returns.
+     *
+     * @return A map of key to value, in the iteration order of keys. Keys that are not found are
+     * not included in the map.
+     */
+    default Map<String, RefDataValue> getValues(final MapDefinition mapDefinition,
+                                                final Collection<String> keys) {
+        final Map<String, RefDataValue> values = new LinkedHashMap<>(keys.size());
+        for (final String key : keys) {
+            getValue(mapDefinition, key)
+                    .ifPresent(refDataValue -> values.put(key, refDataValue));
+        }
+        return values;
+    }
+
     /**
      * Looks up the passed key and mapDefinition in the store and if found returns a proxy to the
      * actual value. The proxy allows the value to be read/processed/mapped inside a transaction
@@ -19,7 +19,9 @@ package stroom.pipeline.refdata.store;
 
 import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -44,6 +46,17 @@ public interface RefDataValueProxy {
      */
     Optional<RefDataValue> supplyValue();
 
+    /**
+     * Materialise the values for each of keys, using the same map(s) as this proxy. This allows
+     * many keys to be looked up with one transaction per map rather than one per key.
+     *
+     * @return A map of key to value for the keys that were found, or empty if this proxy does not
+     * support bulk lookups, in which case each key needs to be looked up separately.
+     */
+    default Optional<Map<String, RefDataValue>> supplyValues(final Collection<String> keys) {
+        return Optional.empty();
+    }
+
     /**
      * If a reference data entry exists for this {@link RefDataValueProxy} pass its value to the consumer
      * as a {@link TypedByteBuffer}.
@@ -25,7 +25,9 @@ import net.sf.saxon.trans.XPathException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -95,6 +97,18 @@ public class SingleRefDataValueProxy implements RefDataValueProxy {
         }
     }
 
+    @Override
+    public Optional<Map<String, RefDataValue>> supplyValues(final Collection<String> keys) {
+        LOGGER.trace("supplyValues({})", keys);
+        try {
+            return Optional.of(refDataStore.getValues(mapDefinition, keys));
+        } catch (final Exception e) {
+            throw new RuntimeException(LogUtil.message(
+                    "Error supplying values for {} keys, {}: {}",
+                    keys.size(), mapDefinition, e.getMessage()), e);
+        }
+    }
+
     /**
      * If a reference data entry exists for this {@link SingleRefDataValueProxy} pass its value to the consumer
      * as a {@link TypedByteBuffer}.
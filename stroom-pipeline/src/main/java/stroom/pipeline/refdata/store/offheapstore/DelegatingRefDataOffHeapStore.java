@@ -42,6 +42,7 @@ import jakarta.inject.Singleton;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -233,6 +234,12 @@ public class DelegatingRefDataOffHeapStore implements RefDataStore, HasSystemInf
         return getEffectiveStore(mapDefinition).getValue(mapDefinition, key);
     }
 
+    @Override
+    public Map<String, RefDataValue> getValues(final MapDefinition mapDefinition,
+                                               final Collection<String> keys) {
+        return getEffectiveStore(mapDefinition).getValues(mapDefinition, keys);
+    }
+
     @Override
     public RefDataValueProxy getValueProxy(final MapDefinition mapDefinition, final String key) {
         return getEffectiveStore(mapDefinition).getValueProxy(mapDefinition, key);
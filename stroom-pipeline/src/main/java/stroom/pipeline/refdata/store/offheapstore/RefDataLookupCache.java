@@ -0,0 +1,229 @@
+package stroom.pipeline.refdata.store.offheapstore;
+
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.util.cache.CacheConfig;
+import stroom.util.cache.CacheConfig.StatisticsMode;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.NullSafe;
+import stroom.util.time.StroomDuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A short-lived on-heap cache that sits in front of the LMDB databases of a {@link RefDataOffHeapStore}.
+ * The same map/key pairs tend to be looked up many times when processing a stream so this saves us
+ * repeatedly hitting the map UID, key/value and range stores.
+ * <p>
+ * It holds:
+ * <ul>
+ *     <li>{@link MapDefinition} => map {@link UID} (or the absence of one) plus whether the map has any
+ *     ranges.</li>
+ *     <li>{@link MapDefinition} + key => the {@link ValueStoreKey} bytes of the value (or the absence of
+ *     one).</li>
+ * </ul>
+ * The values themselves are not held as they can be large and are read directly from LMDB.
+ * <p>
+ * The configured maximum size applies to each of these across all ref streams. Entries must be invalidated
+ * by the store whenever a {@link RefStreamDefinition} is loaded or purged. Each entry is keyed on a token
+ * for its ref stream, so invalidating a ref stream replaces its token, which makes all its entries
+ * unreachable at once and leaves them to be evicted. A lookup that is in flight at the time will add its entry under the old token, so
+ * it can never be seen by later lookups.
+ */
+class RefDataLookupCache {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(RefDataLookupCache.class);
+
+    private final Cache<RefStreamDefinition, StreamToken> streamTokenCache;
+    private final Cache<MapKey, MapEntry> mapCache;
+    private final Cache<LookupKey, Optional<byte[]>> valueStoreKeyCache;
+
+    RefDataLookupCache(final CacheConfig cacheConfig) {
+        Objects.requireNonNull(cacheConfig);
+        LOGGER.debug("Creating lookup cache with config {}", cacheConfig);
+        // If a token is evicted its entries can no longer be reached, so they will be evicted in turn.
+        this.streamTokenCache = createCache(cacheConfig.copy()
+                .statisticsMode(StatisticsMode.NONE)
+                .build());
+        this.mapCache = createCache(cacheConfig);
+        this.valueStoreKeyCache = createCache(cacheConfig);
+    }
+
+    private static <K, V> Cache<K, V> createCache(final CacheConfig cacheConfig) {
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (!StatisticsMode.NONE.equals(cacheConfig.getStatisticsMode())) {
+            builder.recordStats();
+        }
+        NullSafe.consume(cacheConfig.getMaximumSize(), builder::maximumSize);
+        NullSafe.consume(
+                cacheConfig.getExpireAfterAccess(),
+                StroomDuration::getDuration,
+                builder::expireAfterAccess);
+        NullSafe.consume(
+                cacheConfig.getExpireAfterWrite(),
+                StroomDuration::getDuration,
+                builder::expireAfterWrite);
+        return builder.build();
+    }
+
+    /**
+     * @param loader Must return a {@link UID} that is not backed by LMDB memory.
+     */
+    Optional<UID> getMapUid(final MapDefinition mapDefinition,
+                            final Supplier<Optional<UID>> loader) {
+        return getMapEntry(mapDefinition, loader).mapUid;
+    }
+
+    boolean containsRanges(final MapDefinition mapDefinition,
+                           final Supplier<Optional<UID>> mapUidLoader,
+                           final BooleanSupplier containsRangesLoader) {
+        final MapEntry mapEntry = getMapEntry(mapDefinition, mapUidLoader);
+        Boolean containsRanges = mapEntry.containsRanges;
+        if (containsRanges == null) {
+            // Benign race, worst case two threads both do the check
+            containsRanges = containsRangesLoader.getAsBoolean();
+            mapEntry.containsRanges = containsRanges;
+        }
+        return containsRanges;
+    }
+
+    /**
+     * @param loader Must return a copy of the value store key bytes that is not backed by LMDB memory.
+     * @return The value store key bytes or empty if there is no entry for this map/key.
+     */
+    Optional<byte[]> getValueStoreKey(final MapDefinition mapDefinition,
+                                      final String key,
+                                      final Supplier<Optional<byte[]>> loader) {
+        return valueStoreKeyCache.get(
+                new LookupKey(getStreamToken(mapDefinition), mapDefinition.getMapName(), key),
+                k -> loader.get());
+    }
+
+    /**
+     * @return True if we have previously established that there is no value for this map/key.
+     * Does not perform a load.
+     */
+    boolean isKnownToBeMissing(final MapDefinition mapDefinition,
+                               final String key) {
+        final StreamToken streamToken = streamTokenCache.getIfPresent(mapDefinition.getRefStreamDefinition());
+        if (streamToken == null) {
+            return false;
+        }
+        final Optional<byte[]> optValueStoreKey = valueStoreKeyCache.getIfPresent(
+                new LookupKey(streamToken, mapDefinition.getMapName(), key));
+        return optValueStoreKey != null && optValueStoreKey.isEmpty();
+    }
+
+    /**
+     * Remove all entries associated with refStreamDefinition.
+     */
+    void invalidate(final RefStreamDefinition refStreamDefinition) {
+        LOGGER.debug("Invalidating lookup cache entries for {}", refStreamDefinition);
+        // The old entries can no longer be reached and will never be used again, so they will be evicted
+        // ahead of the live ones. Removing them here would mean scanning the whole cache, possibly from
+        // inside a load.
+        streamTokenCache.invalidate(refStreamDefinition);
+    }
+
+    void invalidateAll() {
+        streamTokenCache.invalidateAll();
+        mapCache.invalidateAll();
+        valueStoreKeyCache.invalidateAll();
+    }
+
+    /**
+     * @return The total number of map and value store key entries held.
+     */
+    long getEntryCount() {
+        mapCache.cleanUp();
+        valueStoreKeyCache.cleanUp();
+        return mapCache.estimatedSize() + valueStoreKeyCache.estimatedSize();
+    }
+
+    Map<String, Object> getStats() {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("Ref streams", streamTokenCache.estimatedSize());
+        stats.put("Map cache", getStats(mapCache.estimatedSize(), mapCache.stats()));
+        stats.put("Value store key cache", getStats(valueStoreKeyCache.estimatedSize(), valueStoreKeyCache.stats()));
+        return stats;
+    }
+
+    private static Map<String, Object> getStats(final long size, final CacheStats cacheStats) {
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("Size", size);
+        stats.put("Hit count", cacheStats.hitCount());
+        stats.put("Miss count", cacheStats.missCount());
+        stats.put("Hit rate", cacheStats.hitRate());
+        stats.put("Eviction count", cacheStats.evictionCount());
+        return stats;
+    }
+
+    private MapEntry getMapEntry(final MapDefinition mapDefinition,
+                                 final Supplier<Optional<UID>> loader) {
+        return mapCache.get(
+                new MapKey(getStreamToken(mapDefinition), mapDefinition.getMapName()),
+                k -> new MapEntry(loader.get()));
+    }
+
+    private StreamToken getStreamToken(final MapDefinition mapDefinition) {
+        // Callers hold on to the token for the duration of their load, so if the ref stream is invalidated
+        // during the load the result goes in under the token that has just been removed.
+        return streamTokenCache.get(mapDefinition.getRefStreamDefinition(), k -> new StreamToken());
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * Identifies the entries for a ref stream between invalidations. Uses identity equality.
+     */
+    private static final class StreamToken {
+
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record MapKey(StreamToken streamToken, String mapName) {
+
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record LookupKey(StreamToken streamToken, String mapName, String key) {
+
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static final class MapEntry {
+
+        private final Optional<UID> mapUid;
+        // Null until we have checked
+        private volatile Boolean containsRanges;
+
+        private MapEntry(final Optional<UID> mapUid) {
+            this.mapUid = mapUid;
+            // No map means no ranges
+            this.containsRanges = mapUid.isEmpty()
+                    ? Boolean.FALSE
+                    : null;
+        }
+    }
+}
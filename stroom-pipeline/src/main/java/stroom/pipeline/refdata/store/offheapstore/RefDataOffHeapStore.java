@@ -25,6 +25,7 @@ import stroom.docstore.shared.DocRefUtil;
 import stroom.lmdb.LmdbEnv.BatchingWriteTxn;
 import stroom.pipeline.refdata.ReferenceDataConfig;
 import stroom.pipeline.refdata.store.AbstractRefDataStore;
+import stroom.pipeline.refdata.store.FastInfosetValue;
 import stroom.pipeline.refdata.store.MapDefinition;
 import stroom.pipeline.refdata.store.ProcessingInfoResponse;
 import stroom.pipeline.refdata.store.ProcessingInfoResponse.EntryCounts;
@@ -69,7 +70,9 @@ import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -120,6 +123,8 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
 
     private final ByteBufferPool byteBufferPool;
     private final String storeName;
+    // On-heap cache of map UIDs and value store keys to save hitting LMDB for repeated lookups
+    private final RefDataLookupCache lookupCache;
 
     @Inject
     RefDataOffHeapStore(@Assisted final RefDataLmdbEnv lmdbEnvironment,
@@ -154,6 +159,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         LOGGER.debug("Initialising striped with {} stripes", stripesCount);
         this.refStreamDefStripedReentrantLock = Striped.lazyWeakLock(stripesCount);
         this.storeName = lmdbEnvironment.getName().orElse(null);
+        this.lookupCache = new RefDataLookupCache(referenceDataConfigProvider.get().getLookupCache());
     }
 
     private void purgePartialLoads() {
@@ -323,25 +329,23 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
     public Optional<RefDataValue> getValue(final MapDefinition mapDefinition,
                                            final String key) {
 
+        if (lookupCache.isKnownToBeMissing(mapDefinition, key)) {
+            // No point opening a txn as we know it is not there
+            LOGGER.trace("getValue({}, {}) - known to be missing", mapDefinition, key);
+            return Optional.empty();
+        }
+
         // Use the mapDef to get a mapUid, then use the mapUid and key
         // to do a lookup in the keyValue or rangeValue stores. The resulting
         // value store key buffer can then be used to get the actual value.
         // The value is then deserialised while still inside the txn.
-        try (final PooledByteBuffer valueStoreKeyPooledBufferClone = valueStore.getPooledKeyBuffer()) {
+        try (final PooledByteBuffer valueStoreKeyPooledBuffer = valueStore.getPooledKeyBuffer()) {
             final Optional<RefDataValue> optionalRefDataValue =
                     lmdbEnvironment.getWithReadTxn(readTxn ->
                             // Perform the lookup with the map+key. The returned value (if found)
                             // is the key of the ValueStore, which we can use to find the actual
                             // value.
-                            getValueStoreKey(readTxn, mapDefinition, key)
-                                    .flatMap(valueStoreKeyBuffer -> {
-                                        // we are going to use the valueStoreKeyBuffer as a key in multiple
-                                        // get() calls so need to clone it first.
-                                        final ByteBuffer valueStoreKeyBufferClone =
-                                                valueStoreKeyPooledBufferClone.getByteBuffer();
-                                        ByteBufferUtils.copy(valueStoreKeyBuffer, valueStoreKeyBufferClone);
-                                        return Optional.of(valueStoreKeyBufferClone);
-                                    })
+                            getValueStoreKey(readTxn, mapDefinition, key, valueStoreKeyPooledBuffer.getByteBuffer())
                                     .flatMap(valueStoreKeyBuffer ->
                                             valueStore.get(readTxn, valueStoreKeyBuffer)));
 
@@ -350,6 +354,49 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         }
     }
 
+    @Override
+    public Map<String, RefDataValue> getValues(final MapDefinition mapDefinition,
+                                               final Collection<String> keys) {
+        Objects.requireNonNull(mapDefinition);
+        Objects.requireNonNull(keys);
+
+        // No point opening a txn for keys we know are not there
+        final List<String> keysToFind = keys.stream()
+                .filter(key -> !lookupCache.isKnownToBeMissing(mapDefinition, key))
+                .distinct()
+                .toList();
+
+        final Map<String, RefDataValue> values = new LinkedHashMap<>(keysToFind.size());
+        if (!keysToFind.isEmpty()) {
+            try (final PooledByteBuffer valueStoreKeyPooledBuffer = valueStore.getPooledKeyBuffer()) {
+                final ByteBuffer valueStoreKeyBuffer = valueStoreKeyPooledBuffer.getByteBuffer();
+                // One txn for all the keys. Values are copied to the heap as the ones from LMDB
+                // are only valid inside the txn.
+                lmdbEnvironment.doWithReadTxn(readTxn -> {
+                    for (final String key : keysToFind) {
+                        getValueStoreKey(readTxn, mapDefinition, key, valueStoreKeyBuffer)
+                                .flatMap(keyBuffer -> valueStore.get(readTxn, keyBuffer))
+                                .map(RefDataOffHeapStore::copyToHeap)
+                                .ifPresent(refDataValue -> values.put(key, refDataValue));
+                    }
+                });
+            }
+        }
+        LOGGER.trace(() -> LogUtil.message("getValues({}, {}) - found {} of {} keys",
+                mapDefinition, keys.size(), values.size(), keysToFind.size()));
+        return values;
+    }
+
+    private static RefDataValue copyToHeap(final RefDataValue refDataValue) {
+        if (refDataValue instanceof final FastInfosetValue fastInfosetValue) {
+            return fastInfosetValue.copy(() ->
+                    ByteBuffer.allocate(fastInfosetValue.size()));
+        } else {
+            // Other value types are de-serialised to heap objects
+            return refDataValue;
+        }
+    }
+
     @Override
     public Set<String> getMapNames(final RefStreamDefinition refStreamDefinition) {
         Objects.requireNonNull(refStreamDefinition);
@@ -377,14 +424,45 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         });
     }
 
+    /**
+     * Find the value store key for mapDefinition + key, consulting the lookup cache first.
+     *
+     * @param destBuffer The buffer to copy the value store key into. As this is not backed by
+     *                   LMDB memory it can be used as a key in multiple get() calls.
+     * @return destBuffer, ready for reading, if a value store key was found.
+     */
     private Optional<ByteBuffer> getValueStoreKey(final Txn<ByteBuffer> readTxn,
                                                   final MapDefinition mapDefinition,
-                                                  final String key) {
+                                                  final String key,
+                                                  final ByteBuffer destBuffer) {
         LOGGER.trace("getValueStoreKey({}, {})", mapDefinition, key);
 
-        // TODO we could could consider a short lived on-heap cache for this as it
-        // will be hit MANY times for the same entry
-        final Optional<UID> optMapUid = mapDefinitionUIDStore.get(readTxn, mapDefinition);
+        return lookupCache.getValueStoreKey(
+                        mapDefinition,
+                        key,
+                        () -> findValueStoreKey(readTxn, mapDefinition, key)
+                                .map(ByteBufferUtils::toBytes))
+                .map(valueStoreKeyBytes -> {
+                    destBuffer.clear();
+                    destBuffer.put(valueStoreKeyBytes);
+                    destBuffer.flip();
+                    return destBuffer;
+                });
+    }
+
+    private Optional<UID> getMapUid(final Txn<ByteBuffer> readTxn,
+                                    final MapDefinition mapDefinition) {
+        // The UID from the store is backed by LMDB memory so needs copying
+        return mapDefinitionUIDStore.get(readTxn, mapDefinition)
+                .map(UID::cloneToNewBuffer);
+    }
+
+    private Optional<ByteBuffer> findValueStoreKey(final Txn<ByteBuffer> readTxn,
+                                                   final MapDefinition mapDefinition,
+                                                   final String key) {
+        final Optional<UID> optMapUid = lookupCache.getMapUid(
+                mapDefinition,
+                () -> getMapUid(readTxn, mapDefinition));
 
         Optional<ByteBuffer> optValueStoreKeyBuffer;
         if (optMapUid.isPresent()) {
@@ -411,8 +489,10 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                     // key could not be converted to a long, either this mapdef has no ranges or
                     // an invalid key was used. See if we have any ranges at all for this mapdef
                     // to determine whether to error or not.
-                    // TODO @AT Could maybe hold the result in a short lived on-heap cache to improve performance
-                    final boolean doesStoreContainRanges = rangeStoreDb.containsMapDefinition(readTxn, mapUid);
+                    final boolean doesStoreContainRanges = lookupCache.containsRanges(
+                            mapDefinition,
+                            () -> getMapUid(readTxn, mapDefinition),
+                            () -> rangeStoreDb.containsMapDefinition(readTxn, mapUid));
                     if (doesStoreContainRanges) {
                         // we have ranges for this map def so we would expect to be able to convert the key
                         throw new RuntimeException(LogUtil.message(
@@ -443,17 +523,15 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         // The consumer gets only the value, not the type or ref count and has to understand how
         // to interpret the bytes in the buffer
 
-        try (final PooledByteBuffer valueStoreKeyPooledBufferClone = valueStore.getPooledKeyBuffer()) {
+        if (lookupCache.isKnownToBeMissing(mapDefinition, key)) {
+            // No point opening a txn as we know it is not there
+            LOGGER.trace("consumeValueBytes({}, {}) - known to be missing", mapDefinition, key);
+            return false;
+        }
+
+        try (final PooledByteBuffer valueStoreKeyPooledBuffer = valueStore.getPooledKeyBuffer()) {
             final boolean wasValueFound = lmdbEnvironment.getWithReadTxn(txn ->
-                    getValueStoreKey(txn, mapDefinition, key)
-                            .flatMap(valueStoreKeyBuffer -> {
-                                // we are going to use the valueStoreKeyBuffer as a key in multiple
-                                // get() calls so need to clone it first.
-                                final ByteBuffer valueStoreKeyBufferClone =
-                                        valueStoreKeyPooledBufferClone.getByteBuffer();
-                                ByteBufferUtils.copy(valueStoreKeyBuffer, valueStoreKeyBufferClone);
-                                return Optional.of(valueStoreKeyBufferClone);
-                            })
+                    getValueStoreKey(txn, mapDefinition, key, valueStoreKeyPooledBuffer.getByteBuffer())
                             .flatMap(valueStoreKeyBuf ->
                                     valueStore.getTypedValueBuffer(txn, valueStoreKeyBuf))
                             .map(valueBuf -> {
@@ -617,6 +695,18 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         storeMigrator.migrate();
     }
 
+    @Override
+    public boolean doWithLoaderUnlessComplete(final RefStreamDefinition refStreamDefinition,
+                                              final long effectiveTimeMs,
+                                              final Consumer<RefDataLoader> work) {
+        try {
+            return super.doWithLoaderUnlessComplete(refStreamDefinition, effectiveTimeMs, work);
+        } finally {
+            // We may have cached negative lookups for this ref stream before it was loaded
+            lookupCache.invalidate(refStreamDefinition);
+        }
+    }
+
     /**
      * Get an instance of a {@link RefDataLoader} for bulk loading multiple entries for a given
      * {@link RefStreamDefinition} and its associated effectiveTimeMs. The {@link RefDataLoader}
@@ -995,6 +1085,9 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                         refStreamDefinition, e2.getMessage(), e2);
             }
             // Don't re-throw so we can move on to the next one
+        } finally {
+            // Whether it worked or not, anything we have cached for this ref stream may now be wrong
+            lookupCache.invalidate(refStreamDefinition);
         }
 
         return refStreamSummaryInfo;
@@ -1503,7 +1596,8 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                     .addDetail("Latest lastAccessedTime", lastAccessedTimeRange._2()
                             .map(Instant::toString)
                             .orElse(null))
-                    .addDetail("Total reference entries", getKeyValueEntryCount() + getRangeValueEntryCount());
+                    .addDetail("Total reference entries", getKeyValueEntryCount() + getRangeValueEntryCount())
+                    .addDetail("Lookup cache", lookupCache.getStats());
 
             lmdbEnvironment.doWithReadTxn(txn -> {
                 builder.addDetail("Entry counts", Map.of(
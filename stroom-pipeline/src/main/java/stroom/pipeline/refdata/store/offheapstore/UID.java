@@ -114,8 +114,8 @@ public class UID implements Comparable<UID> {
      */
     public UID cloneToNewBuffer() {
         final ByteBuffer newBuffer = ByteBuffer.allocateDirect(UID_ARRAY_LENGTH);
-        newBuffer.put(byteBuffer);
-        byteBuffer.rewind();
+        // Use a duplicate so that concurrent readers of this UID are not affected
+        newBuffer.put(byteBuffer.duplicate());
         newBuffer.flip();
         return new UID(newBuffer);
     }
@@ -124,8 +124,7 @@ public class UID implements Comparable<UID> {
      * Clone the contents of this into the passed buffer. destByteBuffer will be left ready for reading
      */
     public UID cloneToBuffer(final ByteBuffer destByteBuffer) {
-        destByteBuffer.put(byteBuffer);
-        byteBuffer.rewind();
+        destByteBuffer.put(byteBuffer.duplicate());
         destByteBuffer.flip();
         return new UID(destByteBuffer);
     }
@@ -160,7 +159,8 @@ public class UID implements Comparable<UID> {
      * Writes the next uid value after 'this' to the passed bytebuffer
      */
     public void writeNextUid(final ByteBuffer otherBuffer) {
-        ByteBufferUtils.copy(this.byteBuffer, otherBuffer);
+        // Use a duplicate so that concurrent readers of this UID are not affected
+        ByteBufferUtils.copy(this.byteBuffer.duplicate(), otherBuffer);
         try {
             // Increment the uid in place in the copy
             UNSIGNED_BYTES.increment(otherBuffer);
@@ -155,11 +155,11 @@ abstract class AbstractLookup extends StroomExtensionFunctionCall {
                     try {
                         if (LOGGER.isDebugEnabled()) {
                             final DurationTimer timer = DurationTimer.start();
-                            result = doLookup(context, ignoreWarnings, traceLookup, lookupIdentifier);
+                            result = doLookup(context, ignoreWarnings, traceLookup, lookupIdentifier, arguments);
                             LOGGER.debug("doLookup for {}, in {}", lookupIdentifier, timer);
                         } else {
                             LOGGER.debug("doLookup for {}", lookupIdentifier);
-                            result = doLookup(context, ignoreWarnings, traceLookup, lookupIdentifier);
+                            result = doLookup(context, ignoreWarnings, traceLookup, lookupIdentifier, arguments);
                         }
                     } catch (final RuntimeException e) {
                         // Don't want termination (which is a normal thing to happen
@@ -202,6 +202,19 @@ abstract class AbstractLookup extends StroomExtensionFunctionCall {
                                final LookupIdentifier lookupIdentifier)
             throws XPathException;
 
+    /**
+     * Sub-classes that need more than the first key argument, e.g. a sequence of keys, can override
+     * this to get at the function arguments.
+     */
+    Sequence doLookup(final XPathContext context,
+                      final boolean ignoreWarnings,
+                      final boolean trace,
+                      final LookupIdentifier lookupIdentifier,
+                      final Sequence[] arguments)
+            throws XPathException {
+        return doLookup(context, ignoreWarnings, trace, lookupIdentifier);
+    }
+
 
     ReferenceDataResult getReferenceData(final LookupIdentifier lookupIdentifier,
                                          final boolean isTraceEnabled,
@@ -10,6 +10,7 @@ public class DataStoreXsltFunctionModule extends AbstractXsltFunctionModule {
     protected void configureFunctions() {
         bindFunction(BitmapLookupFunction.class);
         bindFunction(LookupFunction.class);
+        bindFunction(LookupValuesFunction.class);
         bindFunction(ParentForIdFunction.class);
         bindFunction(ParentIdFunction.class);
         bindFunction(PartNoFunction.class);
@@ -55,6 +56,25 @@ public class DataStoreXsltFunctionModule extends AbstractXsltFunctionModule {
         }
     }
 
+    private static class LookupValuesFunction extends StroomExtensionFunctionDefinition<LookupValues> {
+
+        @Inject
+        LookupValuesFunction(final Provider<LookupValues> functionCallProvider) {
+            super(
+                    LookupValues.FUNCTION_NAME,
+                    2,
+                    5,
+                    new SequenceType[]{
+                            SequenceType.SINGLE_STRING,
+                            SequenceType.STRING_SEQUENCE,
+                            SequenceType.OPTIONAL_STRING,
+                            SequenceType.OPTIONAL_BOOLEAN,
+                            SequenceType.OPTIONAL_BOOLEAN},
+                    SequenceType.NODE_SEQUENCE,
+                    functionCallProvider);
+        }
+    }
+
     private static class ParentForIdFunction extends StroomExtensionFunctionDefinition<ParentForId> {
 
         @Inject
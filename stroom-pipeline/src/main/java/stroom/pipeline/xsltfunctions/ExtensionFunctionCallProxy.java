@@ -16,14 +16,22 @@
 
 package stroom.pipeline.xsltfunctions;
 
+import net.sf.saxon.Controller;
 import net.sf.saxon.expr.XPathContext;
 import net.sf.saxon.lib.ExtensionFunctionCall;
 import net.sf.saxon.om.Sequence;
 import net.sf.saxon.trans.XPathException;
 
+/**
+ * The compiled XSLT holds one of these for each Stroom function it uses. As the compiled XSLT is shared
+ * between threads, the actual {@link StroomExtensionFunctionCall} is held against the {@link Controller}
+ * of each transform, see {@link StroomXsltFunctionCalls}.
+ */
 class ExtensionFunctionCallProxy extends ExtensionFunctionCall {
+
+    static final String USER_DATA_NAME = "stroomFunctionCall";
+
     private final String functionName;
-    private transient StroomExtensionFunctionCall functionCall;
 
     ExtensionFunctionCallProxy(final String functionName) {
         this.functionName = functionName;
@@ -31,10 +39,13 @@ class ExtensionFunctionCallProxy extends ExtensionFunctionCall {
 
     @Override
     public Sequence call(final XPathContext context, final Sequence[] arguments) throws XPathException {
+        final Controller controller = context.getController();
+        final StroomExtensionFunctionCall functionCall = controller != null
+                ? (StroomExtensionFunctionCall) controller.getUserData(this, USER_DATA_NAME)
+                : null;
+        if (functionCall == null) {
+            throw new XPathException("Function " + functionName + "() has not been configured for this transform");
+        }
         return functionCall.call(functionName, context, arguments);
     }
-
-    void setFunctionCall(final StroomExtensionFunctionCall functionCall) {
-        this.functionCall = functionCall;
-    }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.pipeline.xsltfunctions;
+
+import stroom.pipeline.refdata.LookupIdentifier;
+import stroom.pipeline.refdata.ReferenceData;
+import stroom.pipeline.refdata.ReferenceDataResult;
+import stroom.pipeline.refdata.store.PrefetchedRefDataValueProxy;
+import stroom.pipeline.refdata.store.RefDataValue;
+import stroom.pipeline.refdata.store.RefDataValueProxy;
+import stroom.pipeline.state.MetaHolder;
+import stroom.task.api.TaskContextFactory;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.logging.LogUtil;
+import stroom.util.shared.Severity;
+
+import jakarta.inject.Inject;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.om.EmptyAtomicSequence;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.Sequence;
+import net.sf.saxon.om.SequenceIterator;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.value.SequenceExtent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Looks up multiple keys in the same map in one go, e.g.
+ * <pre>{@code
+ * <xsl:variable name="keys" select="(User, Host, Manager)"/>
+ * <xsl:variable name="values" select="stroom:lookup-values('USER_TO_LOCATION', $keys)"/>
+ * <xsl:value-of select="$values[2]"/>
+ * }</pre>
+ * This allows all the keys for a record to be prefetched at the top of a template. The effective
+ * streams are only resolved once and, for reference data streams, all the keys are looked up in a
+ * single transaction per map.
+ * <p>
+ * Returns one document node per key, in the same order as the keys. The document is empty if
+ * the key is not found so the position of each value matches the position of its key.
+ */
+class LookupValues extends AbstractLookup {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(LookupValues.class);
+
+    public static final String FUNCTION_NAME = "lookup-values";
+
+    @Inject
+    LookupValues(final ReferenceData referenceData,
+                 final MetaHolder metaHolder,
+                 final SequenceMakerFactory sequenceMakerFactory,
+                 final TaskContextFactory taskContextFactory) {
+        super(referenceData, metaHolder, sequenceMakerFactory, taskContextFactory);
+    }
+
+    @Override
+    protected Sequence call(final String functionName, final XPathContext context, final Sequence[] arguments) {
+        try {
+            if (arguments[1] == null || arguments[1].iterate().next() == null) {
+                // No keys so nothing to look up
+                return EmptyAtomicSequence.getInstance();
+            }
+        } catch (final XPathException e) {
+            log(context, Severity.ERROR, e.getMessage(), e);
+            return EmptyAtomicSequence.getInstance();
+        }
+        return super.call(functionName, context, arguments);
+    }
+
+    @Override
+    Sequence doLookup(final XPathContext context,
+                      final boolean ignoreWarnings,
+                      final boolean trace,
+                      final LookupIdentifier lookupIdentifier,
+                      final Sequence[] arguments) throws XPathException {
+        return doLookup(context, ignoreWarnings, trace, lookupIdentifier, getKeys(arguments[1]));
+    }
+
+    @Override
+    protected Sequence doLookup(final XPathContext context,
+                                final boolean ignoreWarnings,
+                                final boolean trace,
+                                final LookupIdentifier lookupIdentifier) throws XPathException {
+        return doLookup(context, ignoreWarnings, trace, lookupIdentifier, List.of(lookupIdentifier.getKey()));
+    }
+
+    private Sequence doLookup(final XPathContext context,
+                              final boolean ignoreWarnings,
+                              final boolean trace,
+                              final LookupIdentifier lookupIdentifier,
+                              final List<String> keys) throws XPathException {
+
+        LOGGER.debug(() -> LogUtil.message("Looking up {} keys, {}", keys.size(), lookupIdentifier));
+
+        // Resolve the effective streams using the first key. The effective streams only depend on the
+        // map and the lookup time so this holds for all the keys.
+        final ReferenceDataResult firstResult = getReferenceData(lookupIdentifier, trace, ignoreWarnings);
+
+        // Nested maps need a lookup per key to get the key for the next map so can't be done in bulk
+        final Optional<Map<String, RefDataValue>> optValues = lookupIdentifier.isMapNested()
+                ? Optional.empty()
+                : firstResult.getRefDataValueProxy()
+                        .flatMap(refDataValueProxy -> refDataValueProxy.supplyValues(keys));
+
+        final List<Item> items = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            final String key = keys.get(i);
+            final LookupIdentifier keyIdentifier = i == 0
+                    ? lookupIdentifier
+                    : lookupIdentifier.cloneWithNewKey(key);
+            final Sequence sequence;
+            if (optValues.isPresent()) {
+                // Value already fetched, just need to output it
+                //noinspection OptionalGetWithoutIsPresent // optValues only present if we have a proxy
+                final RefDataValueProxy refDataValueProxy = new PrefetchedRefDataValueProxy(
+                        firstResult.getRefDataValueProxy().get(),
+                        key,
+                        optValues.get().get(key));
+                firstResult.setCurrentLookupIdentifier(keyIdentifier);
+                sequence = consumeValue(context, ignoreWarnings, trace, keyIdentifier, firstResult, refDataValueProxy);
+            } else {
+                // Bulk lookups not supported by the store so look up each key in turn
+                final ReferenceDataResult result = i == 0
+                        ? firstResult
+                        : getReferenceData(keyIdentifier, trace, ignoreWarnings);
+                if (result.getRefDataValueProxy().isPresent()) {
+                    sequence = consumeValue(
+                            context,
+                            ignoreWarnings,
+                            trace,
+                            keyIdentifier,
+                            result,
+                            result.getRefDataValueProxy().get());
+                } else {
+                    // No value proxy so log the reason and output an empty document to keep the
+                    // values in step with the keys
+                    logFailureReason(result, context, ignoreWarnings, trace);
+                    sequence = consumeValue(context, ignoreWarnings, trace, keyIdentifier, result, null);
+                }
+            }
+            items.add(sequence.head());
+        }
+        return new SequenceExtent(items);
+    }
+
+    private Sequence consumeValue(final XPathContext context,
+                                  final boolean ignoreWarnings,
+                                  final boolean trace,
+                                  final LookupIdentifier lookupIdentifier,
+                                  final ReferenceDataResult result,
+                                  final RefDataValueProxy refDataValueProxy) throws XPathException {
+        final SequenceMaker sequenceMaker = createSequenceMaker(context);
+        sequenceMaker.open();
+        try {
+            if (refDataValueProxy != null) {
+                logMapLocations(result, refDataValueProxy);
+                final boolean wasFound = sequenceMaker.consume(refDataValueProxy);
+                logLookupValue(wasFound, result, context, ignoreWarnings, trace);
+            }
+        } catch (final RuntimeException e) {
+            outputInfo(
+                    Severity.ERROR,
+                    () -> "Error during lookup: " + e.getMessage(),
+                    lookupIdentifier,
+                    trace,
+                    ignoreWarnings,
+                    result,
+                    context);
+        }
+        sequenceMaker.close();
+        return sequenceMaker.toSequence();
+    }
+
+    private List<String> getKeys(final Sequence sequence) throws XPathException {
+        final List<String> keys = new ArrayList<>();
+        if (sequence != null) {
+            final SequenceIterator iterator = sequence.iterate();
+            Item item;
+            while ((item = iterator.next()) != null) {
+                keys.add(item.getStringValue());
+            }
+        }
+        return keys;
+    }
+}
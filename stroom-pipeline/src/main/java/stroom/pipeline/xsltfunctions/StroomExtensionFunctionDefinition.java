@@ -90,19 +90,23 @@ class StroomExtensionFunctionDefinition<T extends StroomExtensionFunctionCall> e
         return proxy;
     }
 
-    void configure(final ErrorReceiver errorReceiver,
-                   final LocationFactory locationFactory,
-                   final List<PipelineReference> pipelineReferences) {
+    /**
+     * @return A new function call configured for one use of the compiled XSLT or null if the compiled
+     * XSLT does not use this function.
+     */
+    StroomExtensionFunctionCall createFunctionCall(final ErrorReceiver errorReceiver,
+                                                   final LocationFactory locationFactory,
+                                                   final List<PipelineReference> pipelineReferences) {
         if (proxy != null) {
             final StroomExtensionFunctionCall functionCall = functionCallProvider.get();
             functionCall.configure(errorReceiver, locationFactory, pipelineReferences);
-            proxy.setFunctionCall(functionCall);
+            return functionCall;
+        } else {
+            return null;
         }
     }
 
-    void reset() {
-        if (proxy != null) {
-            proxy.setFunctionCall(null);
-        }
+    ExtensionFunctionCallProxy getProxy() {
+        return proxy;
     }
 }
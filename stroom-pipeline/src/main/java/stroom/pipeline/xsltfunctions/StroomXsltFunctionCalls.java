@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.pipeline.xsltfunctions;
+
+import net.sf.saxon.Controller;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The Stroom function calls for one borrower of a compiled XSLT. These hold the borrower's state,
+ * e.g. the error receiver and pipeline references, so must not be shared between threads.
+ */
+public class StroomXsltFunctionCalls {
+
+    private final Map<ExtensionFunctionCallProxy, StroomExtensionFunctionCall> functionCalls;
+
+    StroomXsltFunctionCalls(final Map<ExtensionFunctionCallProxy, StroomExtensionFunctionCall> functionCalls) {
+        this.functionCalls = Objects.requireNonNull(functionCalls);
+    }
+
+    /**
+     * Make these function calls available to the transform being run by controller.
+     * Must be called for each transformer created from the compiled XSLT before it is used.
+     */
+    public void bind(final Controller controller) {
+        Objects.requireNonNull(controller);
+        functionCalls.forEach((proxy, functionCall) ->
+                controller.setUserData(proxy, ExtensionFunctionCallProxy.USER_DATA_NAME, functionCall));
+    }
+
+    @Override
+    public String toString() {
+        return "StroomXsltFunctionCalls{" +
+               "functionCount=" + functionCalls.size() +
+               '}';
+    }
+}
@@ -23,7 +23,9 @@ import stroom.pipeline.shared.data.PipelineReference;
 import jakarta.inject.Inject;
 import net.sf.saxon.Configuration;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class StroomXsltFunctionLibrary {
@@ -39,13 +41,21 @@ public class StroomXsltFunctionLibrary {
         functionDefinitions.forEach(config::registerExtensionFunction);
     }
 
-    public void configure(final ErrorReceiver errorReceiver,
-                          final LocationFactory locationFactory,
-                          final List<PipelineReference> pipelineReferences) {
-        functionDefinitions.forEach(def -> def.configure(errorReceiver, locationFactory, pipelineReferences));
-    }
-
-    public void reset() {
-        functionDefinitions.forEach(StroomExtensionFunctionDefinition::reset);
+    /**
+     * Create the function calls for one use of the compiled XSLT. The compiled XSLT may be used by many
+     * threads at once so the returned function calls must be bound to each transformer that is created.
+     */
+    public StroomXsltFunctionCalls configure(final ErrorReceiver errorReceiver,
+                                             final LocationFactory locationFactory,
+                                             final List<PipelineReference> pipelineReferences) {
+        final Map<ExtensionFunctionCallProxy, StroomExtensionFunctionCall> functionCalls = new HashMap<>();
+        for (final StroomExtensionFunctionDefinition<?> def : functionDefinitions) {
+            final StroomExtensionFunctionCall functionCall = def.createFunctionCall(
+                    errorReceiver, locationFactory, pipelineReferences);
+            if (functionCall != null) {
+                functionCalls.put(def.getProxy(), functionCall);
+            }
+        }
+        return new StroomXsltFunctionCalls(functionCalls);
     }
 }
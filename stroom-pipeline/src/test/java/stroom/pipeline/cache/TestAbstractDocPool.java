@@ -20,6 +20,12 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -160,6 +166,84 @@ class TestAbstractDocPool {
         myDocPool.returnObject(poolItem2, true);
     }
 
+    @Test
+    void testBorrowReturn_shared() {
+        final MyDocPool myDocPool = new MyDocPool(
+                cacheManager,
+                () -> cacheConfig,
+                documentPermissionCache,
+                this::createPoolValueWithCounter,
+                true);
+
+        final MyDoc myDoc = new MyDoc("foo");
+        final PoolItem<String> poolItem1 = myDocPool.borrowObject(myDoc, true);
+        // Borrow another while poolItem1 is still out on loan
+        final PoolItem<String> poolItem2 = myDocPool.borrowObject(myDoc, true);
+
+        // Value is shared so only created once
+        Assertions.assertThat(valueCreationCounter)
+                .hasValue(1);
+        Assertions.assertThat(poolItem2)
+                .isSameAs(poolItem1);
+
+        myDocPool.returnObject(poolItem1, true);
+        myDocPool.returnObject(poolItem2, true);
+
+        myDocPool.invalidate(myDoc);
+
+        final PoolItem<String> poolItem3 = myDocPool.borrowObject(myDoc, true);
+        Assertions.assertThat(valueCreationCounter)
+                .hasValue(2);
+        Assertions.assertThat(poolItem3.getValue())
+                .isEqualTo(createPoolValue(myDoc));
+    }
+
+    @Test
+    void testBorrow_shared_concurrent() throws Exception {
+        final CountDownLatch createStartedLatch = new CountDownLatch(1);
+        final CountDownLatch releaseCreateLatch = new CountDownLatch(1);
+        final MyDocPool myDocPool = new MyDocPool(
+                cacheManager,
+                () -> cacheConfig,
+                documentPermissionCache,
+                myDoc -> {
+                    createStartedLatch.countDown();
+                    try {
+                        releaseCreateLatch.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    }
+                    return createPoolValueWithCounter(myDoc);
+                },
+                true);
+
+        final MyDoc myDoc = new MyDoc("foo");
+        final int threadCount = 5;
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<PoolItem<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executorService.submit(() -> myDocPool.borrowObject(myDoc, true)));
+            }
+            // Let all the borrowers pile up behind the first create
+            createStartedLatch.await();
+            Thread.sleep(100);
+            releaseCreateLatch.countDown();
+
+            for (final Future<PoolItem<String>> future : futures) {
+                Assertions.assertThat(future.get().getValue())
+                        .isEqualTo(createPoolValue(myDoc));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Single-flight, so only one create
+        Assertions.assertThat(valueCreationCounter)
+                .hasValue(1);
+    }
+
     private String createPoolValueWithCounter(final MyDoc myDoc) {
         valueCreationCounter.incrementAndGet();
         return createPoolValue(myDoc);
@@ -177,12 +261,21 @@ class TestAbstractDocPool {
                          final Supplier<CacheConfig> cacheConfigProvider,
                          final DocumentPermissionCache documentPermissionCache,
                          final Function<MyDoc, String> valueCreator) {
+            this(cacheManager, cacheConfigProvider, documentPermissionCache, valueCreator, false);
+        }
+
+        public MyDocPool(final CacheManager cacheManager,
+                         final Supplier<CacheConfig> cacheConfigProvider,
+                         final DocumentPermissionCache documentPermissionCache,
+                         final Function<MyDoc, String> valueCreator,
+                         final boolean shareValues) {
             super(
                     cacheManager,
                     CACHE_NAME,
                     cacheConfigProvider,
                     documentPermissionCache,
-                    new MockSecurityContext());
+                    new MockSecurityContext(),
+                    shareValues);
             this.valueCreator = valueCreator;
         }
 
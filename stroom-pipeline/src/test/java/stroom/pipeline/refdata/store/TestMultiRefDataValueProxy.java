@@ -9,6 +9,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -259,6 +264,94 @@ class TestMultiRefDataValueProxy {
                 .isEmpty();
     }
 
+    @Test
+    void testSupplyValues() {
+        final String key1 = "key1";
+        final String key2 = "key2";
+        final String key3 = "key3";
+        final String key4 = "key4";
+        final RefDataStore mockRefDataStore1 = createRefDataStore(1L, key1);
+        final RefDataStore mockRefDataStore2 = createRefDataStore(2L, key1, key2);
+        final RefDataStore mockRefDataStore3 = createRefDataStore(3L, key3);
+
+        final RefDataValueProxy multiRefDataValueProxy = createSingleRefDataValueProxy(mockRefDataStore1, 1L)
+                .merge(createSingleRefDataValueProxy(mockRefDataStore2, 2L))
+                .merge(createSingleRefDataValueProxy(mockRefDataStore3, 3L));
+
+        final Map<String, RefDataValue> values = multiRefDataValueProxy.supplyValues(
+                        List.of(key1, key2, key3, key4))
+                .orElseThrow();
+
+        // Earlier proxies take precedence, as with supplyValue
+        Assertions.assertThat(values)
+                .containsOnly(
+                        Map.entry(key1, createVal(key1, A_MAP, 1L)),
+                        Map.entry(key2, createVal(key2, A_MAP, 2L)),
+                        Map.entry(key3, createVal(key3, A_MAP, 3L)));
+
+        // Each proxy is only asked for the keys that have not been found yet
+        Mockito.verify(mockRefDataStore2)
+                .getValues(Mockito.any(), Mockito.eq(List.of(key2, key3, key4)));
+        Mockito.verify(mockRefDataStore3)
+                .getValues(Mockito.any(), Mockito.eq(List.of(key3, key4)));
+    }
+
+    @Test
+    void testSupplyValues_allFoundInFirst() {
+        final RefDataStore mockRefDataStore1 = createRefDataStore(1L, A_KEY, OTHER_KEY);
+        final RefDataStore mockRefDataStore2 = createRefDataStore(2L, A_KEY, OTHER_KEY);
+
+        final RefDataValueProxy multiRefDataValueProxy = createSingleRefDataValueProxy(mockRefDataStore1, 1L)
+                .merge(createSingleRefDataValueProxy(mockRefDataStore2, 2L));
+
+        final Map<String, RefDataValue> values = multiRefDataValueProxy.supplyValues(List.of(A_KEY, OTHER_KEY))
+                .orElseThrow();
+
+        Assertions.assertThat(values)
+                .containsOnly(
+                        Map.entry(A_KEY, createVal(A_KEY, A_MAP, 1L)),
+                        Map.entry(OTHER_KEY, createVal(OTHER_KEY, A_MAP, 1L)));
+        // Nothing left to look up so the second proxy is never used
+        Mockito.verify(mockRefDataStore2, Mockito.never())
+                .getValues(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void testSupplyValues_noValues() {
+        final RefDataValueProxy multiRefDataValueProxy = createSingleRefDataValueProxy(
+                createRefDataStore(1L), 1L)
+                .merge(createSingleRefDataValueProxy(createRefDataStore(2L), 2L));
+
+        Assertions.assertThat(multiRefDataValueProxy.supplyValues(List.of(A_KEY, OTHER_KEY)))
+                .hasValue(Collections.emptyMap());
+    }
+
+    private RefDataStore createRefDataStore(final long streamId, final String... keys) {
+        final RefDataStore mockRefDataStore = Mockito.mock(RefDataStore.class);
+        Mockito.when(mockRefDataStore.getValues(Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    final Collection<String> requestedKeys = invocation.getArgument(1);
+                    final Map<String, RefDataValue> values = new HashMap<>();
+                    for (final String key : keys) {
+                        if (requestedKeys.contains(key)) {
+                            values.put(key, createVal(key, A_MAP, streamId));
+                        }
+                    }
+                    return values;
+                });
+        return mockRefDataStore;
+    }
+
+    private SingleRefDataValueProxy createSingleRefDataValueProxy(final RefDataStore refDataStore,
+                                                                  final long streamId) {
+        return new SingleRefDataValueProxy(
+                refDataStore,
+                new MapDefinition(
+                        new RefStreamDefinition("pipeUuid", "pipeVer", streamId),
+                        A_MAP),
+                A_KEY);
+    }
+
     private SingleRefDataValueProxy createSingleRefDataValueProxy(final long streamId) {
         return createSingleRefDataValueProxy(A_KEY, A_MAP, streamId, true);
     }
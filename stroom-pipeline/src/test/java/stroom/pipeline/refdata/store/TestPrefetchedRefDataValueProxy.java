@@ -0,0 +1,145 @@
+package stroom.pipeline.refdata.store;
+
+import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+class TestPrefetchedRefDataValueProxy {
+
+    private static final String A_KEY = "aKey";
+    private static final String OTHER_KEY = "otherKey";
+    private static final String A_MAP = "aMap";
+
+    @Test
+    void testSupplyValue() {
+        final StringValue stringValue = new StringValue("foo");
+        final RefDataValueProxy refDataValueProxy = createPrefetchedProxy(stringValue);
+
+        Assertions.assertThat(refDataValueProxy.getKey())
+                .isEqualTo(A_KEY);
+        Assertions.assertThat(refDataValueProxy.getMapName())
+                .isEqualTo(A_MAP);
+        Assertions.assertThat(refDataValueProxy.supplyValue())
+                .hasValue(stringValue);
+    }
+
+    @Test
+    void testSupplyValue_notFound() {
+        final RefDataValueProxy refDataValueProxy = createPrefetchedProxy(null);
+
+        Assertions.assertThat(refDataValueProxy.supplyValue())
+                .isEmpty();
+    }
+
+    @Test
+    void testConsumeBytes_string() {
+        final List<TypedByteBuffer> typedByteBuffers = consumeBytes(new StringValue("foo"));
+
+        Assertions.assertThat(typedByteBuffers)
+                .hasSize(1);
+        Assertions.assertThat(typedByteBuffers.get(0).getTypeId())
+                .isEqualTo(StringValue.TYPE_ID);
+        Assertions.assertThat(StandardCharsets.UTF_8.decode(typedByteBuffers.get(0).getByteBuffer()).toString())
+                .isEqualTo("foo");
+    }
+
+    @Test
+    void testConsumeBytes_fastInfoset() {
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        final List<TypedByteBuffer> typedByteBuffers = consumeBytes(FastInfosetValue.wrap(byteBuffer));
+
+        Assertions.assertThat(typedByteBuffers)
+                .hasSize(1);
+        Assertions.assertThat(typedByteBuffers.get(0).getTypeId())
+                .isEqualTo(FastInfosetValue.TYPE_ID);
+        Assertions.assertThat(typedByteBuffers.get(0).getByteBuffer())
+                .isEqualTo(byteBuffer);
+        // The held value must not be consumed by the consumer
+        Assertions.assertThat(byteBuffer.remaining())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void testConsumeBytes_nullValue() {
+        final List<TypedByteBuffer> typedByteBuffers = consumeBytes(NullValue.getInstance());
+
+        Assertions.assertThat(typedByteBuffers)
+                .hasSize(1);
+        Assertions.assertThat(typedByteBuffers.get(0).getTypeId())
+                .isEqualTo(NullValue.TYPE_ID);
+        Assertions.assertThat(typedByteBuffers.get(0).getByteBuffer().remaining())
+                .isZero();
+    }
+
+    @Test
+    void testConsumeBytes_notFound() {
+        final List<TypedByteBuffer> typedByteBuffers = new ArrayList<>();
+        final boolean wasFound = createPrefetchedProxy(null).consumeBytes(typedByteBuffers::add);
+
+        Assertions.assertThat(wasFound)
+                .isFalse();
+        Assertions.assertThat(typedByteBuffers)
+                .isEmpty();
+    }
+
+    @Test
+    void testMerge_found() {
+        final RefDataValueProxy refDataValueProxy = createPrefetchedProxy(new StringValue("foo"));
+        final RefDataValueProxy additionalProxy = createSingleRefDataValueProxy(A_KEY);
+
+        // Our value takes precedence so there is no need to look in the additional proxy
+        Assertions.assertThat(refDataValueProxy.merge(additionalProxy))
+                .isSameAs(refDataValueProxy);
+    }
+
+    @Test
+    void testMerge_notFound() {
+        final RefDataValueProxy refDataValueProxy = createPrefetchedProxy(null);
+        final RefDataValueProxy additionalProxy = createSingleRefDataValueProxy(A_KEY);
+
+        Assertions.assertThat(refDataValueProxy.merge(additionalProxy))
+                .isSameAs(additionalProxy);
+    }
+
+    @Test
+    void testMerge_badKey() {
+        final RefDataValueProxy refDataValueProxy = createPrefetchedProxy(null);
+        final RefDataValueProxy additionalProxy = createSingleRefDataValueProxy(OTHER_KEY);
+
+        Assertions.assertThatThrownBy(() -> refDataValueProxy.merge(additionalProxy))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("key");
+    }
+
+    private List<TypedByteBuffer> consumeBytes(final RefDataValue refDataValue) {
+        final List<TypedByteBuffer> typedByteBuffers = new ArrayList<>();
+        final boolean wasFound = createPrefetchedProxy(refDataValue).consumeBytes(typedByteBuffers::add);
+        Assertions.assertThat(wasFound)
+                .isTrue();
+        return typedByteBuffers;
+    }
+
+    private RefDataValueProxy createPrefetchedProxy(final RefDataValue refDataValue) {
+        return new PrefetchedRefDataValueProxy(createSingleRefDataValueProxy(A_KEY), A_KEY, refDataValue);
+    }
+
+    private SingleRefDataValueProxy createSingleRefDataValueProxy(final String key) {
+        final RefDataStore mockRefDataStore = Mockito.mock(RefDataStore.class);
+        Mockito.when(mockRefDataStore.getValue(Mockito.any(), Mockito.any()))
+                .thenReturn(Optional.empty());
+        return new SingleRefDataValueProxy(
+                mockRefDataStore,
+                new MapDefinition(
+                        new RefStreamDefinition("pipeUuid", "pipeVer", 1L),
+                        A_MAP),
+                key);
+    }
+}
@@ -0,0 +1,166 @@
+package stroom.pipeline.refdata.store.offheapstore;
+
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.util.cache.CacheConfig;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestRefDataLookupCache {
+
+    private static final RefStreamDefinition REF_STREAM_DEF_1 = new RefStreamDefinition(
+            UUID.randomUUID().toString(), UUID.randomUUID().toString(), 1L);
+    private static final RefStreamDefinition REF_STREAM_DEF_2 = new RefStreamDefinition(
+            UUID.randomUUID().toString(), UUID.randomUUID().toString(), 2L);
+    private static final MapDefinition MAP_DEF_1 = new MapDefinition(REF_STREAM_DEF_1, "map1");
+    private static final MapDefinition MAP_DEF_2 = new MapDefinition(REF_STREAM_DEF_2, "map1");
+
+    private final RefDataLookupCache lookupCache = new RefDataLookupCache(CacheConfig.builder()
+            .maximumSize(100L)
+            .build());
+
+    @Test
+    void testGetValueStoreKey() {
+        final AtomicInteger loadCount = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            final Optional<byte[]> optBytes = lookupCache.getValueStoreKey(MAP_DEF_1, "key1", () -> {
+                loadCount.incrementAndGet();
+                return Optional.of(new byte[]{1, 2, 3});
+            });
+            assertThat(optBytes)
+                    .isPresent();
+            assertThat(optBytes.get())
+                    .containsExactly(1, 2, 3);
+        }
+        assertThat(loadCount)
+                .hasValue(1);
+        assertThat(lookupCache.isKnownToBeMissing(MAP_DEF_1, "key1"))
+                .isFalse();
+    }
+
+    @Test
+    void testGetValueStoreKey_negative() {
+        assertThat(lookupCache.isKnownToBeMissing(MAP_DEF_1, "key1"))
+                .isFalse();
+
+        final AtomicInteger loadCount = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            final Optional<byte[]> optBytes = lookupCache.getValueStoreKey(MAP_DEF_1, "key1", () -> {
+                loadCount.incrementAndGet();
+                return Optional.empty();
+            });
+            assertThat(optBytes)
+                    .isEmpty();
+        }
+        assertThat(loadCount)
+                .hasValue(1);
+        assertThat(lookupCache.isKnownToBeMissing(MAP_DEF_1, "key1"))
+                .isTrue();
+    }
+
+    @Test
+    void testContainsRanges() {
+        final UID uid = UID.of(1, ByteBuffer.allocateDirect(UID.length()));
+        final AtomicInteger loadCount = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            final boolean containsRanges = lookupCache.containsRanges(
+                    MAP_DEF_1,
+                    () -> Optional.of(uid),
+                    () -> {
+                        loadCount.incrementAndGet();
+                        return false;
+                    });
+            assertThat(containsRanges)
+                    .isFalse();
+        }
+        assertThat(loadCount)
+                .hasValue(1);
+        assertThat(lookupCache.getMapUid(MAP_DEF_1, Optional::empty))
+                .hasValue(uid);
+    }
+
+    @Test
+    void testContainsRanges_noMap() {
+        final boolean containsRanges = lookupCache.containsRanges(
+                MAP_DEF_1,
+                Optional::empty,
+                () -> {
+                    throw new RuntimeException("Should not be called when there is no map");
+                });
+        assertThat(containsRanges)
+                .isFalse();
+    }
+
+    @Test
+    void testInvalidate() {
+        lookupCache.getValueStoreKey(MAP_DEF_1, "key1", Optional::empty);
+        lookupCache.getValueStoreKey(MAP_DEF_2, "key1", Optional::empty);
+        lookupCache.getMapUid(MAP_DEF_1, Optional::empty);
+
+        lookupCache.invalidate(REF_STREAM_DEF_1);
+
+        assertThat(lookupCache.isKnownToBeMissing(MAP_DEF_1, "key1"))
+                .isFalse();
+        // Different ref stream so untouched
+        assertThat(lookupCache.isKnownToBeMissing(MAP_DEF_2, "key1"))
+                .isTrue();
+
+        // Map entry should be re-loaded
+        final UID uid = UID.of(1, ByteBuffer.allocateDirect(UID.length()));
+        assertThat(lookupCache.getMapUid(MAP_DEF_1, () -> Optional.of(uid)))
+                .hasValue(uid);
+    }
+
+    @Test
+    void testInvalidateDuringLoad() {
+        // A purge invalidates the ref stream while a lookup is reading the old value store key
+        final Optional<byte[]> optBytes = lookupCache.getValueStoreKey(MAP_DEF_1, "key1", () -> {
+            lookupCache.invalidate(REF_STREAM_DEF_1);
+            return Optional.of(new byte[]{1, 2, 3});
+        });
+        assertThat(optBytes)
+                .isPresent();
+
+        // The stale value store key must not have been put back in the cache
+        final AtomicInteger loadCount = new AtomicInteger();
+        assertThat(lookupCache.getValueStoreKey(MAP_DEF_1, "key1", () -> {
+            loadCount.incrementAndGet();
+            return Optional.empty();
+        })).isEmpty();
+        assertThat(loadCount)
+                .hasValue(1);
+    }
+
+    @Test
+    void testTotalEntryCountBounded() {
+        final long maximumSize = 10;
+        final RefDataLookupCache lookupCache = new RefDataLookupCache(CacheConfig.builder()
+                .maximumSize(maximumSize)
+                .build());
+
+        // Many ref streams, each with more keys than the maximum size
+        for (int i = 0; i < 50; i++) {
+            final RefStreamDefinition refStreamDefinition = new RefStreamDefinition(
+                    UUID.randomUUID().toString(), UUID.randomUUID().toString(), i);
+            final MapDefinition mapDefinition = new MapDefinition(refStreamDefinition, "map1");
+            lookupCache.getMapUid(mapDefinition, Optional::empty);
+            for (int j = 0; j < 50; j++) {
+                lookupCache.getValueStoreKey(mapDefinition, "key" + j, Optional::empty);
+            }
+            if (i % 2 == 0) {
+                lookupCache.invalidate(refStreamDefinition);
+            }
+        }
+
+        // Bounded across all ref streams, i.e. the maximum size for each of the map and value store key caches
+        assertThat(lookupCache.getEntryCount())
+                .isLessThanOrEqualTo(2 * maximumSize);
+    }
+}
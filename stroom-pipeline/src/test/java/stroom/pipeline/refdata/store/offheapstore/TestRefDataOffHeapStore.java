@@ -160,6 +160,36 @@ class TestRefDataOffHeapStore extends AbstractRefDataOffHeapStoreTest {
         doKeyRangeValueOverwriteTest(false, value1, value2, expectedFinalValue);
     }
 
+    @Test
+    void testGetValues() {
+        final RefStreamDefinition refStreamDefinition = buildUniqueRefStreamDefinition();
+        final MapDefinition mapDefinition = new MapDefinition(refStreamDefinition, "map1");
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, System.currentTimeMillis(), loader -> {
+            loader.initialise(false);
+            doLoaderPut(loader, mapDefinition, "key1", StringValue.of("value1"));
+            doLoaderPut(loader, mapDefinition, "key2", StringValue.of("value2"));
+            doLoaderPut(loader, mapDefinition, "key3", StringValue.of("value3"));
+            loader.markPutsComplete();
+            loader.completeProcessing();
+        });
+
+        final Map<String, RefDataValue> values = refDataStore.getValues(
+                mapDefinition,
+                List.of("key3", "missingKey", "key1", "key3"));
+
+        assertThat(values)
+                .containsOnlyKeys("key3", "key1");
+        assertThat(values.get("key1"))
+                .isEqualTo(StringValue.of("value1"));
+        assertThat(values.get("key3"))
+                .isEqualTo(StringValue.of("value3"));
+
+        // Repeat so the missing key comes from the lookup cache
+        assertThat(refDataStore.getValues(mapDefinition, List.of("missingKey", "key2")))
+                .containsOnlyKeys("key2");
+    }
+
     private void doKeyValueOverwriteTest(final boolean overwriteExisting,
                                          final StringValue value1,
                                          final StringValue value2,
@@ -0,0 +1,247 @@
+package stroom.pipeline.xsltfunctions;
+
+import stroom.data.shared.StreamTypeNames;
+import stroom.feed.shared.FeedDoc;
+import stroom.pipeline.refdata.ReferenceData;
+import stroom.pipeline.refdata.ReferenceDataResult;
+import stroom.pipeline.refdata.store.PrefetchedRefDataValueProxy;
+import stroom.pipeline.refdata.store.RefDataValue;
+import stroom.pipeline.refdata.store.RefDataValueProxy;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.StringValue;
+import stroom.pipeline.shared.PipelineDoc;
+import stroom.pipeline.shared.data.PipelineReference;
+import stroom.pipeline.state.MetaHolder;
+import stroom.pipeline.xsltfunctions.AbstractLookup.SequenceMaker;
+import stroom.pipeline.xsltfunctions.AbstractLookup.SequenceMakerFactory;
+import stroom.task.api.TaskContext;
+import stroom.task.api.TaskContextFactory;
+import stroom.util.date.DateUtil;
+
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.Sequence;
+import net.sf.saxon.om.SequenceIterator;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.value.SequenceExtent;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+class TestLookupValues extends AbstractXsltFunctionTest<LookupValues> {
+
+    private static final String MAP = "MY_MAP";
+    private static final String KEY1 = "KEY1";
+    private static final String KEY2 = "KEY2";
+    private static final String KEY3 = "KEY3";
+
+    @Mock
+    private ReferenceData mockReferenceData;
+
+    @SuppressWarnings("unused") // Used by @InjectMocks
+    @Mock
+    private MetaHolder mockMetaHolder;
+    @Mock
+    private SequenceMakerFactory mockSequenceMakerFactory;
+    @Mock
+    private TaskContextFactory mockTaskContextFactory;
+    @Mock
+    private TaskContext mockTaskContext;
+
+    @InjectMocks
+    private LookupValues lookupValues;
+
+    private final List<PipelineReference> pipelineReferences = List.of(
+            new PipelineReference(
+                    PipelineDoc.buildDocRef().randomUuid().name("MyPipe").build(),
+                    FeedDoc.buildDocRef().randomUuid().name("MY_FEED").build(),
+                    StreamTypeNames.REFERENCE));
+    private final RefStreamDefinition refStreamDefinition = new RefStreamDefinition(
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            123L);
+    private final List<RefDataValueProxy> consumedProxies = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(mockTaskContextFactory.current())
+                .thenReturn(mockTaskContext);
+        Mockito.when(mockTaskContext.isTerminated())
+                .thenReturn(false);
+        Mockito.when(mockSequenceMakerFactory.create(Mockito.any()))
+                .thenAnswer(invocation -> createSequenceMaker());
+    }
+
+    @Test
+    void testBulkLookup() {
+        final RefDataValueProxy mockRefDataValueProxy = createRefDataValueProxy(KEY1);
+        Mockito.when(mockRefDataValueProxy.supplyValues(Mockito.any()))
+                .thenReturn(Optional.of(Map.of(
+                        KEY1, new StringValue("value1"),
+                        KEY3, new StringValue("value3"))));
+        initReferenceData(Map.of(KEY1, mockRefDataValueProxy));
+
+        final Sequence sequence = doLookup(KEY1, KEY2, KEY3);
+
+        // One value per key, in key order, with an empty value for the missing key
+        Assertions.assertThat(getValues(sequence))
+                .containsExactly("value1", "", "value3");
+
+        // The effective streams are only resolved once and all keys looked up in one go
+        Mockito.verify(mockReferenceData, Mockito.times(1))
+                .ensureReferenceDataAvailability(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(mockRefDataValueProxy, Mockito.times(1))
+                .supplyValues(List.of(KEY1, KEY2, KEY3));
+        Mockito.verify(mockRefDataValueProxy, Mockito.never())
+                .supplyValue();
+        Assertions.assertThat(consumedProxies)
+                .hasSize(3)
+                .allMatch(proxy -> proxy instanceof PrefetchedRefDataValueProxy);
+        Assertions.assertThat(consumedProxies)
+                .extracting(RefDataValueProxy::getKey)
+                .containsExactly(KEY1, KEY2, KEY3);
+    }
+
+    @Test
+    void testBulkLookupNotSupported() {
+        final RefDataValueProxy mockRefDataValueProxy1 = createRefDataValueProxy(KEY1);
+        final RefDataValueProxy mockRefDataValueProxy2 = createRefDataValueProxy(KEY2);
+        final RefDataValueProxy mockRefDataValueProxy3 = createRefDataValueProxy(KEY3);
+        // Bulk lookups not supported by the store
+        Mockito.when(mockRefDataValueProxy1.supplyValues(Mockito.any()))
+                .thenReturn(Optional.empty());
+        Mockito.when(mockRefDataValueProxy1.supplyValue())
+                .thenReturn(Optional.of(new StringValue("value1")));
+        Mockito.when(mockRefDataValueProxy2.supplyValue())
+                .thenReturn(Optional.of(new StringValue("value2")));
+        Mockito.when(mockRefDataValueProxy3.supplyValue())
+                .thenReturn(Optional.empty());
+        initReferenceData(Map.of(
+                KEY1, mockRefDataValueProxy1,
+                KEY2, mockRefDataValueProxy2,
+                KEY3, mockRefDataValueProxy3));
+
+        final Sequence sequence = doLookup(KEY1, KEY2, KEY3);
+
+        Assertions.assertThat(getValues(sequence))
+                .containsExactly("value1", "value2", "");
+
+        // Falls back to a lookup per key
+        Mockito.verify(mockReferenceData, Mockito.times(3))
+                .ensureReferenceDataAvailability(Mockito.any(), Mockito.any(), Mockito.any());
+        Assertions.assertThat(consumedProxies)
+                .containsExactly(mockRefDataValueProxy1, mockRefDataValueProxy2, mockRefDataValueProxy3);
+    }
+
+    @Test
+    void testNoKeys() {
+        final Sequence sequence = callFunctionWithSequenceArgs(new Sequence[]{
+                net.sf.saxon.value.StringValue.makeStringValue(MAP),
+                new SequenceExtent(List.of())});
+
+        Assertions.assertThat(getValues(sequence))
+                .isEmpty();
+        Mockito.verifyNoInteractions(mockReferenceData);
+    }
+
+    private void initReferenceData(final Map<String, RefDataValueProxy> keyToProxyMap) {
+        Mockito.doAnswer(
+                        invocation -> {
+                            final ReferenceDataResult result = invocation.getArgument(2);
+                            result.addEffectiveStream(pipelineReferences.get(0), refStreamDefinition);
+
+                            final String key = result.getCurrentLookupIdentifier().getKey();
+                            final ReferenceDataResult resultSpy = Mockito.spy(result);
+                            Mockito.doReturn(Optional.ofNullable(keyToProxyMap.get(key)))
+                                    .when(resultSpy).getRefDataValueProxy();
+                            return resultSpy;
+                        }).when(mockReferenceData)
+                .ensureReferenceDataAvailability(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    private RefDataValueProxy createRefDataValueProxy(final String key) {
+        final RefDataValueProxy mockRefDataValueProxy = Mockito.mock(RefDataValueProxy.class);
+        Mockito.when(mockRefDataValueProxy.getKey())
+                .thenReturn(key);
+        Mockito.when(mockRefDataValueProxy.getMapName())
+                .thenReturn(MAP);
+        return mockRefDataValueProxy;
+    }
+
+    /**
+     * A {@link SequenceMaker} that outputs the string value supplied by the consumed proxy
+     */
+    private SequenceMaker createSequenceMaker() throws XPathException {
+        final SequenceMaker mockSequenceMaker = Mockito.mock(SequenceMaker.class);
+        final AtomicReference<String> value = new AtomicReference<>("");
+        Mockito.when(mockSequenceMaker.consume(Mockito.any(RefDataValueProxy.class)))
+                .thenAnswer(invocation -> {
+                    final RefDataValueProxy refDataValueProxy = invocation.getArgument(0);
+                    consumedProxies.add(refDataValueProxy);
+                    final Optional<RefDataValue> optRefDataValue = refDataValueProxy.supplyValue();
+                    optRefDataValue.ifPresent(refDataValue ->
+                            value.set(((StringValue) refDataValue).getValue()));
+                    return optRefDataValue.isPresent();
+                });
+        Mockito.when(mockSequenceMaker.toSequence())
+                .thenAnswer(invocation -> net.sf.saxon.value.StringValue.makeStringValue(value.get()));
+        return mockSequenceMaker;
+    }
+
+    private Sequence doLookup(final String... keys) {
+        final List<Item> keyItems = new ArrayList<>();
+        for (final String key : keys) {
+            keyItems.add(net.sf.saxon.value.StringValue.makeStringValue(key));
+        }
+        return callFunctionWithSequenceArgs(new Sequence[]{
+                net.sf.saxon.value.StringValue.makeStringValue(MAP),
+                new SequenceExtent(keyItems),
+                net.sf.saxon.value.StringValue.makeStringValue(DateUtil.createNormalDateTimeString(
+                        Instant.now().toEpochMilli()))});
+    }
+
+    private List<String> getValues(final Sequence sequence) {
+        final List<String> values = new ArrayList<>();
+        try {
+            final SequenceIterator iterator = sequence.iterate();
+            Item item;
+            while ((item = iterator.next()) != null) {
+                values.add(item.getStringValue());
+            }
+        } catch (final XPathException e) {
+            throw new RuntimeException(e);
+        }
+        return values;
+    }
+
+    @Override
+    LookupValues getXsltFunction() {
+        return lookupValues;
+    }
+
+    @Override
+    String getFunctionName() {
+        return LookupValues.FUNCTION_NAME;
+    }
+
+    @Override
+    public List<PipelineReference> getPipelineReferences() {
+        return pipelineReferences;
+    }
+}
@@ -22,9 +22,33 @@ import stroom.processor.shared.ProcessorTask;
 import stroom.processor.shared.ProcessorTaskSummary;
 import stroom.util.shared.ResultPage;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface ProcessorTaskService {
 
     ResultPage<ProcessorTask> find(final ExpressionCriteria criteria);
 
     ResultPage<ProcessorTaskSummary> findSummary(final ExpressionCriteria criteria);
+
+    /**
+     * Claim the tasks of other processor filters for a stream that haven't started yet, so that the
+     * calling task can process the stream on their behalf. Each claimed task must then be passed to
+     * {@link #completeClaimedTask(ProcessorTask)} or {@link #releaseClaimedTasks(Collection)}.
+     *
+     * @param metaId             The id of the stream being processed.
+     * @param processorFilterIds The processor filters to claim tasks for.
+     * @return The claimed tasks.
+     */
+    List<ProcessorTask> claimTasks(long metaId, Collection<Integer> processorFilterIds);
+
+    /**
+     * Mark a task claimed with {@link #claimTasks(long, Collection)} as complete.
+     */
+    void completeClaimedTask(ProcessorTask processorTask);
+
+    /**
+     * Give up tasks claimed with {@link #claimTasks(long, Collection)} so that they are processed on their own.
+     */
+    void releaseClaimedTasks(Collection<ProcessorTask> processorTasks);
 }
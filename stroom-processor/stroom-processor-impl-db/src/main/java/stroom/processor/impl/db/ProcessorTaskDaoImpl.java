@@ -84,6 +84,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -610,6 +611,60 @@ class ProcessorTaskDaoImpl implements ProcessorTaskDao {
                 });
     }
 
+    @Override
+    public List<ProcessorTask> claimTasks(final long metaId,
+                                          final Collection<Integer> filterIds,
+                                          final String nodeName) {
+        if (NullSafe.isEmptyCollection(filterIds)) {
+            return Collections.emptyList();
+        }
+        final long now = System.currentTimeMillis();
+        final Integer nodeId = processorNodeCache.getOrCreate(nodeName);
+
+        // Do everything within a single transaction.
+        final Result<Record> result = JooqUtil.withDeadlockRetries(
+                () -> JooqUtil.transactionResult(processorDbConnProvider, context -> {
+                    // Lock the tasks that haven't started so nothing else can start them while we take them.
+                    final List<Long> idList = context
+                            .select(PROCESSOR_TASK.ID)
+                            .from(PROCESSOR_TASK)
+                            .where(PROCESSOR_TASK.META_ID.eq(metaId))
+                            .and(PROCESSOR_TASK.FK_PROCESSOR_FILTER_ID.in(filterIds))
+                            .and(PROCESSOR_TASK.STATUS.in(
+                                    TaskStatus.CREATED.getPrimitiveValue(),
+                                    TaskStatus.QUEUED.getPrimitiveValue()))
+                            .and(PROCESSOR_TASK.DATA.isNull())
+                            .forUpdate()
+                            .fetch(PROCESSOR_TASK.ID);
+                    if (idList.isEmpty()) {
+                        return null;
+                    }
+
+                    // The version change means a node holding one of these tasks in its queue won't process it.
+                    final Condition condition = PROCESSOR_TASK.ID.in(idList);
+                    context
+                            .update(PROCESSOR_TASK)
+                            .set(PROCESSOR_TASK.FK_PROCESSOR_NODE_ID, nodeId)
+                            .set(PROCESSOR_TASK.STATUS, TaskStatus.PROCESSING.getPrimitiveValue())
+                            .set(PROCESSOR_TASK.STATUS_TIME_MS, now)
+                            .set(PROCESSOR_TASK.START_TIME_MS, now)
+                            .setNull(PROCESSOR_TASK.END_TIME_MS)
+                            .set(PROCESSOR_TASK.VERSION, PROCESSOR_TASK.VERSION.plus(1))
+                            .where(condition)
+                            .execute();
+
+                    return select(context, condition);
+                }),
+                () -> LogUtil.message("Claim processor tasks for meta {}, filters: {}", metaId, filterIds));
+
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        LOGGER.debug(() -> LogUtil.message("claimTasks() - Claimed {} tasks for meta {} on node {}",
+                result.size(), metaId, nodeName));
+        return convert(result);
+    }
+
     /**
      * Count the current number of tasks for a filter matching the specified status.
      *
@@ -629,6 +684,23 @@ class ProcessorTaskDaoImpl implements ProcessorTaskDao {
                                 .fetchOne(0, int.class));
     }
 
+    @Override
+    public Map<Integer, Integer> countTasksForFilters(final Collection<Integer> filterIds,
+                                                      final TaskStatus status) {
+        if (NullSafe.isEmptyCollection(filterIds)) {
+            return Collections.emptyMap();
+        }
+        return JooqUtil.contextResult(
+                processorDbConnProvider, context ->
+                        context
+                                .select(PROCESSOR_TASK.FK_PROCESSOR_FILTER_ID, COUNT)
+                                .from(PROCESSOR_TASK)
+                                .where(PROCESSOR_TASK.STATUS.eq(status.getPrimitiveValue()))
+                                .and(PROCESSOR_TASK.FK_PROCESSOR_FILTER_ID.in(filterIds))
+                                .groupBy(PROCESSOR_TASK.FK_PROCESSOR_FILTER_ID)
+                                .fetchMap(PROCESSOR_TASK.FK_PROCESSOR_FILTER_ID, COUNT));
+    }
+
     private Result<Record> select(final DSLContext context,
                                   final Condition condition) {
         return context
@@ -1033,15 +1105,11 @@ class ProcessorTaskDaoImpl implements ProcessorTaskDao {
                                 success = true;
 
                                 try {
-                                    if (LOGGER.isDebugEnabled()) {
-                                        LOGGER.warn(() -> LogUtil.message(
-                                                "changeTaskStatus({}) - {} - Task has changed, attempting reload {}",
-                                                status, e.getMessage(), processorTask), e);
-                                    } else {
-                                        LOGGER.warn(() -> LogUtil.message(
-                                                "changeTaskStatus({}) - Task has changed, attempting reload {}",
-                                                status, processorTask));
-                                    }
+                                    // Warnings are logged below once we know why the task has changed as
+                                    // tasks claimed by other tasks are expected to change.
+                                    LOGGER.debug(() -> LogUtil.message(
+                                            "changeTaskStatus({}) - {} - Task has changed, attempting reload {}",
+                                            status, e.getMessage(), processorTask), e);
 
                                     final Optional<ProcessorTaskRecord> optTaskRec = context
                                             .selectFrom(PROCESSOR_TASK)
@@ -1061,6 +1129,14 @@ class ProcessorTaskDaoImpl implements ProcessorTaskDao {
                                                 status,
                                                 processorTask));
                                         record = null;
+                                    } else if (TaskStatus.PROCESSING.equals(status)
+                                               && isStarted(optTaskRec.get())) {
+                                        // Another task has claimed this one, see claimTasks().
+                                        LOGGER.debug(() -> LogUtil.message(
+                                                "changeTaskStatus({}) - Task has already been started {}",
+                                                status,
+                                                processorTask));
+                                        record = null;
                                     } else {
                                         LOGGER.warn(() -> LogUtil.message(
                                                 "changeTaskStatus({}) - Re-loaded stream task {}",
@@ -1103,6 +1179,11 @@ class ProcessorTaskDaoImpl implements ProcessorTaskDao {
                 processorTask.getProcessorFilter());
     }
 
+    private static boolean isStarted(final ProcessorTaskRecord record) {
+        return TaskStatus.PROCESSING.getPrimitiveValue() == record.getStatus()
+               || TaskStatus.COMPLETE.getPrimitiveValue() == record.getStatus();
+    }
+
     private ProcessorTask convert(final ProcessorTaskRecord record,
                                   final String nodeName,
                                   final String feedName,
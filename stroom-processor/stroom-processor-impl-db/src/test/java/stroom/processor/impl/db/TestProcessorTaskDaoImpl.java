@@ -1,8 +1,10 @@
 package stroom.processor.impl.db;
 
+import stroom.db.util.JooqUtil;
 import stroom.entity.shared.ExpressionCriteria;
 import stroom.processor.shared.Processor;
 import stroom.processor.shared.ProcessorFilter;
+import stroom.processor.shared.ProcessorTask;
 import stroom.processor.shared.ProcessorTaskFields;
 import stroom.processor.shared.TaskStatus;
 import stroom.query.api.datasource.QueryField;
@@ -124,6 +126,59 @@ class TestProcessorTaskDaoImpl extends AbstractProcessorTest {
         assertThat(countOwned(null)).isEqualTo(3);
     }
 
+    @Test
+    void testClaimTasks() {
+        processor1 = createProcessor();
+        processorFilter1a = createProcessorFilter(processor1);
+        processorFilter1b = createProcessorFilter(processor1);
+        processorFilter2 = createProcessorFilter(processor1);
+
+        createProcessorTask(processorFilter1a, TaskStatus.CREATED, null, FEED);
+        createProcessorTask(processorFilter1b, TaskStatus.QUEUED, NODE1, FEED);
+        createProcessorTask(processorFilter2, TaskStatus.PROCESSING, NODE1, FEED);
+        // Streaming tasks have no data
+        JooqUtil.context(processorDbConnProvider, context -> context
+                .update(PROCESSOR_TASK)
+                .setNull(PROCESSOR_TASK.DATA)
+                .execute());
+        // Has data so can't be claimed
+        createProcessorTask(processorFilter1a, TaskStatus.CREATED, null, FEED);
+
+        final ProcessorTask queuedTask = processorTaskDao.find(new ExpressionCriteria()).getValues()
+                .stream()
+                .filter(task -> TaskStatus.QUEUED.equals(task.getStatus()))
+                .findFirst()
+                .orElseThrow();
+
+        final List<Integer> filterIds = List.of(
+                processorFilter1a.getId(),
+                processorFilter1b.getId(),
+                processorFilter2.getId());
+        final List<ProcessorTask> claimedTasks = processorTaskDao.claimTasks(123L, filterIds, NODE2);
+
+        assertThat(claimedTasks)
+                .extracting(task -> task.getProcessorFilter().getId())
+                .containsExactlyInAnyOrder(processorFilter1a.getId(), processorFilter1b.getId());
+        assertThat(claimedTasks)
+                .allSatisfy(task -> {
+                    assertThat(task.getStatus()).isEqualTo(TaskStatus.PROCESSING);
+                    assertThat(task.getNodeName()).isEqualTo(NODE2);
+                });
+        assertThat(getProcessorTaskCount(PROCESSOR_TASK.STATUS.eq(TaskStatus.PROCESSING.getPrimitiveValue())))
+                .isEqualTo(3);
+
+        // The node that queued the task must not start it now it has been claimed
+        assertThat(processorTaskDao.changeTaskStatus(
+                queuedTask, NODE1, TaskStatus.PROCESSING, System.currentTimeMillis(), null))
+                .isNull();
+
+        // Nothing left to claim
+        assertThat(processorTaskDao.claimTasks(123L, filterIds, NODE1))
+                .isEmpty();
+        assertThat(processorTaskDao.claimTasks(456L, filterIds, NODE1))
+                .isEmpty();
+    }
+
     @Test
     void testLogicalDeleteByProcessorId() {
         assertThat(getProcessorCount(null))
@@ -41,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @DistributedTaskFactoryDescription(
@@ -56,6 +57,7 @@ public class DataProcessorTaskFactory implements DistributedTaskFactory {
     private final ProcessorTaskResource processorTaskResource;
     private final NodeInfo nodeInfo;
     private final TaskContextFactory taskContextFactory;
+    private final FinishedTaskCounts finishedTaskCounts;
     private RunnableFactory runnableFactory;
 
     @Inject
@@ -63,24 +65,34 @@ public class DataProcessorTaskFactory implements DistributedTaskFactory {
                              final ProcessorTaskResource processorTaskResource,
                              final Provider<DataProcessorTaskHandler> dataProcessorTaskHandlerProvider,
                              final NodeInfo nodeInfo,
-                             final TaskContextFactory taskContextFactory) {
+                             final TaskContextFactory taskContextFactory,
+                             final FinishedTaskCounts finishedTaskCounts) {
         this.targetNodeSetFactory = targetNodeSetFactory;
         this.processorTaskResource = processorTaskResource;
         this.nodeInfo = nodeInfo;
         this.runnableFactory = new RunnableFactoryImpl(dataProcessorTaskHandlerProvider);
         this.taskContextFactory = taskContextFactory;
+        this.finishedTaskCounts = finishedTaskCounts;
     }
 
     @Override
     public List<DistributedTask> fetch(final String nodeName, final int count) {
+        Map<Integer, Integer> finished = null;
         try {
             if (targetNodeSetFactory.isClusterStateInitialised()) {
                 final String masterNode = targetNodeSetFactory.getMasterNode();
                 LOGGER.debug("masterNode: {}", masterNode);
                 final TaskContext taskContext = taskContextFactory.current();
                 taskContext.info(() -> "Processor task resource assign tasks");
+                // Tell the master which tasks have finished here so it can keep its processing task counts current.
+                finished = finishedTaskCounts.drain();
                 final ProcessorTaskList processorTaskList = processorTaskResource
-                        .assignTasks(masterNode, new AssignTasksRequest(taskContext.getTaskId(), nodeName, count));
+                        .assignTasks(masterNode, new AssignTasksRequest(
+                                taskContext.getTaskId(),
+                                nodeName,
+                                count,
+                                finished));
+                finished = null;
 
                 taskContext.info(() ->
                         "Received " +
@@ -100,6 +112,8 @@ public class DataProcessorTaskFactory implements DistributedTaskFactory {
             }
         } catch (final RuntimeException | NullClusterStateException | NodeNotFoundException e) {
             LOGGER.error(e.getMessage(), e);
+            // Try to report them again with the next request.
+            finishedTaskCounts.restore(finished);
         }
 
         return Collections.emptyList();
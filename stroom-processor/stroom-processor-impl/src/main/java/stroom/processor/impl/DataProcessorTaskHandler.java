@@ -39,6 +39,7 @@ import stroom.util.date.DateUtil;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
+import stroom.util.shared.NullSafe;
 import stroom.util.shared.UserRef;
 
 import jakarta.inject.Inject;
@@ -61,6 +62,7 @@ public class DataProcessorTaskHandler {
     private final NodeInfo nodeInfo;
     private final SecurityContext securityContext;
     private final TaskContextFactory taskContextFactory;
+    private final FinishedTaskCounts finishedTaskCounts;
 
     @Inject
     DataProcessorTaskHandler(final Map<ProcessorType, Provider<ProcessorTaskExecutor>> executorProviders,
@@ -70,7 +72,8 @@ public class DataProcessorTaskHandler {
                              final MetaService metaService,
                              final NodeInfo nodeInfo,
                              final SecurityContext securityContext,
-                             final TaskContextFactory taskContextFactory) {
+                             final TaskContextFactory taskContextFactory,
+                             final FinishedTaskCounts finishedTaskCounts) {
         this.executorProviders = executorProviders;
         this.processorFilterCache = processorFilterCache;
         this.processorTaskDao = processorTaskDao;
@@ -79,6 +82,7 @@ public class DataProcessorTaskHandler {
         this.nodeInfo = nodeInfo;
         this.securityContext = securityContext;
         this.taskContextFactory = taskContextFactory;
+        this.finishedTaskCounts = finishedTaskCounts;
     }
 
     public ProcessorResult exec(final ProcessorTask task) {
@@ -171,7 +175,8 @@ public class DataProcessorTaskHandler {
                     }
                 } else {
                     LOGGER.debug("Null processorTask. " +
-                            "Task may have been logically/physically deleted so nothing to do");
+                            "Task may have been logically/physically deleted or claimed by another task " +
+                            "so nothing to do");
                 }
             }
         } catch (final IOException | RuntimeException e) {
@@ -188,8 +193,8 @@ public class DataProcessorTaskHandler {
                 LOGGER.error(e::getMessage, e);
             }
         } finally {
-            // Null processorTask implies the task was (logically)? deleted before we completed so no point in
-            // changing status
+            // Null processorTask implies the task was (logically)? deleted or claimed by another task before we
+            // completed so no point in changing status
             if (processorTask != null) {
                 if (complete) {
                     processorTaskDao.changeTaskStatus(processorTask, nodeInfo.getThisNodeName(), TaskStatus.COMPLETE,
@@ -201,6 +206,12 @@ public class DataProcessorTaskHandler {
                             startTime,
                             System.currentTimeMillis());
                 }
+                // Record it so the master can be told with our next request for tasks and keep its processing
+                // task counts current without having to query the DB.
+                final Integer filterId = NullSafe.get(task, ProcessorTask::getProcessorFilter, ProcessorFilter::getId);
+                if (filterId != null) {
+                    finishedTaskCounts.increment(filterId);
+                }
             }
         }
 
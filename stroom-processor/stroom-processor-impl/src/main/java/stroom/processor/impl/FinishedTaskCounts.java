@@ -0,0 +1,44 @@
+package stroom.processor.impl;
+
+import jakarta.inject.Singleton;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the number of tasks that have finished processing on this node for each processor filter since they
+ * were last reported to the master node. The counts are sent to the master with the next request for tasks so
+ * that it can keep its processing task counts current without querying the database.
+ */
+@Singleton
+class FinishedTaskCounts {
+
+    private Map<Integer, Integer> counts = new HashMap<>();
+
+    synchronized void increment(final int filterId) {
+        counts.merge(filterId, 1, Integer::sum);
+    }
+
+    /**
+     * Remove and return all the counts held, e.g. to send them to the master node.
+     *
+     * @return The counts held or null if there are none.
+     */
+    synchronized Map<Integer, Integer> drain() {
+        if (counts.isEmpty()) {
+            return null;
+        }
+        final Map<Integer, Integer> drained = counts;
+        counts = new HashMap<>();
+        return drained;
+    }
+
+    /**
+     * Add back counts that were drained but could not be reported to the master node.
+     */
+    synchronized void restore(final Map<Integer, Integer> drained) {
+        if (drained != null) {
+            drained.forEach((filterId, count) -> counts.merge(filterId, count, Integer::sum));
+        }
+    }
+}
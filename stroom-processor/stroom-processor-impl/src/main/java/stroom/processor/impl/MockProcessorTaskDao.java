@@ -19,6 +19,7 @@ import stroom.util.shared.ResultPage;
 import jakarta.inject.Singleton;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -123,6 +124,12 @@ public class MockProcessorTaskDao implements ProcessorTaskDao, Clearable {
         return 0;
     }
 
+    @Override
+    public Map<Integer, Integer> countTasksForFilters(final Collection<Integer> filterIds,
+                                                      final TaskStatus status) {
+        return Collections.emptyMap();
+    }
+
     @Override
     public List<ProcessorTask> queueTasks(final Set<Long> idSet,
                                           final String thisNodeName) {
@@ -134,6 +141,13 @@ public class MockProcessorTaskDao implements ProcessorTaskDao, Clearable {
         return 0;
     }
 
+    @Override
+    public List<ProcessorTask> claimTasks(final long metaId,
+                                          final Collection<Integer> filterIds,
+                                          final String nodeName) {
+        return Collections.emptyList();
+    }
+
     @Override
     public ResultPage<ProcessorTask> changeTaskStatus(final ExpressionCriteria criteria,
                                                       final String nodeName,
@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 @Singleton
 public class MockProcessorTaskQueueManager implements ProcessorTaskQueueManager {
@@ -120,4 +121,8 @@ public class MockProcessorTaskQueueManager implements ProcessorTaskQueueManager
     public Boolean abandonTasks(final ProcessorTaskList processorTaskList) {
         return true;
     }
+
+    @Override
+    public void onTasksFinished(final Map<Integer, Integer> finishedTaskCounts) {
+    }
 }
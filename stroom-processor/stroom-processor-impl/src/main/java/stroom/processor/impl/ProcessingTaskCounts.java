@@ -0,0 +1,139 @@
+package stroom.processor.impl;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Holds the number of tasks that are currently being processed for each processor filter so that the master
+ * node doesn't need to count them in the database every time it assigns tasks for a filter with a bounded
+ * number of concurrent processing tasks.
+ * <p>
+ * Counts are incremented as tasks are assigned and decremented as they are abandoned or reported as finished by
+ * the node that processed them. Nodes report finished tasks with their next request for tasks, so any reports that
+ * are lost, e.g. if a node dies, are corrected by periodically reconciling the counts with the database.
+ * </p>
+ */
+class ProcessingTaskCounts {
+
+    private final Map<Integer, FilterCount> counts = new ConcurrentHashMap<>();
+
+    /**
+     * @return The count held for a filter or null if we aren't tracking the filter yet.
+     */
+    Integer get(final int filterId) {
+        final FilterCount filterCount = counts.get(filterId);
+        return filterCount != null
+                ? filterCount.count.get()
+                : null;
+    }
+
+    /**
+     * Set the count for a filter from the database, starting to track the filter if we aren't already. Any changes
+     * made to the count while the database is being queried are kept.
+     *
+     * @return The new count.
+     */
+    int load(final int filterId, final IntSupplier dbCountSupplier) {
+        // Query the DB outside any map operation so we don't block other filters.
+        final FilterCount existing = counts.get(filterId);
+        final long changesBefore = existing != null
+                ? existing.changes.get()
+                : 0;
+        final int dbCount = dbCountSupplier.getAsInt();
+
+        if (existing == null) {
+            final FilterCount filterCount = counts.computeIfAbsent(filterId, k -> new FilterCount(dbCount));
+            return filterCount.count.get();
+        }
+
+        final long changesSinceQuery = existing.changes.get() - changesBefore;
+        final int newCount = (int) Math.max(0, dbCount + changesSinceQuery);
+        existing.count.set(newCount);
+        return newCount;
+    }
+
+    void add(final int filterId, final int delta) {
+        if (delta != 0) {
+            final FilterCount filterCount = counts.get(filterId);
+            // If we aren't tracking this filter yet then the count will be initialised from the DB when needed.
+            if (filterCount != null) {
+                filterCount.changes.addAndGet(delta);
+                filterCount.count.updateAndGet(current -> Math.max(0, current + delta));
+            }
+        }
+    }
+
+    /**
+     * Begin a reconciliation by capturing the number of changes made to each tracked count so that changes made
+     * while the database is being queried are not lost.
+     *
+     * @return A snapshot to pass to {@link #reconcile(Map, Map)}.
+     */
+    Map<Integer, Long> snapshot() {
+        final Map<Integer, Long> snapshot = new ConcurrentHashMap<>();
+        counts.forEach((filterId, filterCount) -> snapshot.put(filterId, filterCount.changes.get()));
+        return snapshot;
+    }
+
+    /**
+     * Replace the tracked counts with those from the database plus any changes made since the snapshot.
+     *
+     * @param snapshot The snapshot taken before the database was queried.
+     * @param dbCounts The processing task counts from the database for the filters in the snapshot.
+     * @return The number of filters whose count was corrected.
+     */
+    int reconcile(final Map<Integer, Long> snapshot, final Map<Integer, Integer> dbCounts) {
+        int corrected = 0;
+        for (final Map.Entry<Integer, Long> entry : snapshot.entrySet()) {
+            final FilterCount filterCount = counts.get(entry.getKey());
+            if (filterCount != null) {
+                final int dbCount = dbCounts.getOrDefault(entry.getKey(), 0);
+                final long changesSinceSnapshot = filterCount.changes.get() - entry.getValue();
+                final int newCount = (int) Math.max(0, dbCount + changesSinceSnapshot);
+                if (filterCount.count.getAndSet(newCount) != newCount) {
+                    corrected++;
+                }
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * Stop tracking any filters not in the supplied set.
+     */
+    void retain(final Collection<Integer> filterIds) {
+        counts.keySet().retainAll(filterIds);
+    }
+
+    void clear() {
+        counts.clear();
+    }
+
+    /**
+     * @return A sorted copy of the current counts.
+     */
+    Map<Integer, Integer> getCounts() {
+        final Map<Integer, Integer> map = new TreeMap<>();
+        counts.forEach((filterId, filterCount) -> map.put(filterId, filterCount.count.get()));
+        return map;
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static class FilterCount {
+
+        private final AtomicInteger count;
+        private final AtomicLong changes = new AtomicLong();
+
+        private FilterCount(final int count) {
+            this.count = new AtomicInteger(count);
+        }
+    }
+}
@@ -41,6 +41,7 @@ public class ProcessorConfig extends AbstractConfig implements IsStroomConfig, H
 
     private final StroomDuration waitToQueueTasksDuration;
     private StroomDuration skipNonProducingFiltersDuration;
+    private final StroomDuration processingTaskCountReconcileInterval;
 
     public ProcessorConfig() {
         dbConfig = new ProcessorDbConfig();
@@ -73,6 +74,7 @@ public class ProcessorConfig extends AbstractConfig implements IsStroomConfig, H
         disownDeadTasksAfter = StroomDuration.ofMinutes(10);
         waitToQueueTasksDuration = StroomDuration.ofSeconds(10);
         skipNonProducingFiltersDuration = StroomDuration.ofSeconds(10);
+        processingTaskCountReconcileInterval = StroomDuration.ofMinutes(1);
     }
 
     @SuppressWarnings("unused")
@@ -93,7 +95,9 @@ public class ProcessorConfig extends AbstractConfig implements IsStroomConfig, H
                            @JsonProperty("disownDeadTasksAfter") final StroomDuration disownDeadTasksAfter,
                            @JsonProperty("waitToQueueTasksDuration") final StroomDuration waitToQueueTasksDuration,
                            @JsonProperty("skipNonProducingFiltersDuration") final StroomDuration
-                                   skipNonProducingFiltersDuration) {
+                                   skipNonProducingFiltersDuration,
+                           @JsonProperty("processingTaskCountReconcileInterval") final StroomDuration
+                                   processingTaskCountReconcileInterval) {
         this.dbConfig = dbConfig;
         this.assignTasks = assignTasks;
         this.deleteAge = deleteAge;
@@ -110,6 +114,7 @@ public class ProcessorConfig extends AbstractConfig implements IsStroomConfig, H
         this.disownDeadTasksAfter = disownDeadTasksAfter;
         this.waitToQueueTasksDuration = waitToQueueTasksDuration;
         this.skipNonProducingFiltersDuration = skipNonProducingFiltersDuration;
+        this.processingTaskCountReconcileInterval = processingTaskCountReconcileInterval;
     }
 
     @Override
@@ -200,6 +205,14 @@ public class ProcessorConfig extends AbstractConfig implements IsStroomConfig, H
         return skipNonProducingFiltersDuration;
     }
 
+    @JsonPropertyDescription("The master node holds the number of tasks being processed for each filter with a " +
+            "limited number of concurrent processing tasks. Nodes report the tasks they have finished when " +
+            "they next ask for tasks. This is how often those counts are reconciled with the database to " +
+            "correct for any reports that were lost, e.g. if a node stopped unexpectedly.")
+    public StroomDuration getProcessingTaskCountReconcileInterval() {
+        return processingTaskCountReconcileInterval;
+    }
+
     public void setSkipNonProducingFiltersDuration(final StroomDuration skipNonProducingFiltersDuration) {
         this.skipNonProducingFiltersDuration = skipNonProducingFiltersDuration;
     }
@@ -222,6 +235,7 @@ public class ProcessorConfig extends AbstractConfig implements IsStroomConfig, H
                 ", disownDeadTasksAfter=" + disownDeadTasksAfter +
                 ", waitToQueueTasksDuration=" + waitToQueueTasksDuration +
                 ", skipNonProducingFiltersDuration=" + skipNonProducingFiltersDuration +
+                ", processingTaskCountReconcileInterval=" + processingTaskCountReconcileInterval +
                 '}';
     }
 
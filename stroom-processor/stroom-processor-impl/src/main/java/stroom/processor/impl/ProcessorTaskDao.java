@@ -14,6 +14,7 @@ import stroom.query.language.functions.ValuesConsumer;
 import stroom.util.shared.ResultPage;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,6 +48,16 @@ public interface ProcessorTaskDao {
      */
     int countTasksForFilter(int filterId, TaskStatus status);
 
+    /**
+     * Count the current number of tasks for each of the supplied filters matching the specified status.
+     *
+     * @param filterIds The filters to count tasks for.
+     * @param status    Task status.
+     * @return A map of filter id to the number of tasks matching the specified status. Filters with no
+     * matching tasks will not be present in the map.
+     */
+    Map<Integer, Integer> countTasksForFilters(Collection<Integer> filterIds, TaskStatus status);
+
     /**
      * Create new tasks for the specified filter and add them to the queue.
      *
@@ -89,6 +100,20 @@ public interface ProcessorTaskDao {
      */
     int releaseTasks(Set<Long> idSet, TaskStatus currentStatus);
 
+    /**
+     * Take ownership of the tasks of other filters for a stream that haven't started yet so they can be
+     * processed as part of another task. Claimed tasks are set to processing so that nothing else will
+     * start them. They must then be completed or released.
+     *
+     * @param metaId    The id of the stream being processed.
+     * @param filterIds The filters to claim tasks for.
+     * @param nodeName  This node name.
+     * @return The tasks that have been claimed.
+     */
+    List<ProcessorTask> claimTasks(long metaId,
+                                   Collection<Integer> filterIds,
+                                   String nodeName);
+
     ResultPage<ProcessorTask> changeTaskStatus(ExpressionCriteria criteria,
                                                String nodeName,
                                                TaskStatus status,
@@ -19,12 +19,21 @@ package stroom.processor.impl;
 import stroom.processor.shared.ProcessorTaskList;
 import stroom.task.shared.TaskId;
 
+import java.util.Map;
+
 public interface ProcessorTaskQueueManager {
 
     ProcessorTaskList assignTasks(TaskId sourceTaskId, String nodeName, int count);
 
     Boolean abandonTasks(ProcessorTaskList processorTaskList);
 
+    /**
+     * Called on the master node when a node reports tasks that have finished processing, successfully or not.
+     *
+     * @param finishedTaskCounts The number of finished tasks for each processor filter.
+     */
+    void onTasksFinished(Map<Integer, Integer> finishedTaskCounts);
+
     int getTaskQueueSize();
 
     void writeQueueStatistics();
@@ -48,6 +48,7 @@ import stroom.util.shared.NullSafe;
 import stroom.util.shared.PermissionException;
 import stroom.util.sysinfo.HasSystemInfo;
 import stroom.util.sysinfo.SystemInfoResult;
+import stroom.util.time.StroomDuration;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
@@ -114,6 +115,14 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
     private final Map<String, Instant> lastNodeContactTime = new ConcurrentHashMap<>();
     private Instant lastDisownedTasks = Instant.now();
 
+    /**
+     * The number of tasks being processed for each bounded filter so we don't have to count them in the DB
+     * each time we assign tasks.
+     */
+    private final ProcessingTaskCounts processingTaskCounts = new ProcessingTaskCounts();
+    private final AtomicBoolean reconcilingProcessingTaskCounts = new AtomicBoolean();
+    private volatile Instant lastProcessingTaskCountReconcile = Instant.now();
+
     @Inject
     ProcessorTaskQueueManagerImpl(final ProcessorTaskDao processorTaskDao,
                                   final ExecutorProvider executorProvider,
@@ -158,6 +167,9 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
             LOGGER.error(e.getMessage(), e);
         }
 
+        // Any counts we held from a previous time as master are no longer valid.
+        processingTaskCounts.clear();
+
         // Allow task queueing.
         allowTaskQueueFill = true;
     }
@@ -214,6 +226,8 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
                     "Only the processing user is allowed to assign tasks");
         }
 
+        reconcileProcessingTaskCountsIfDue();
+
         final List<ProcessorTask> assignedStreamTasks = new ArrayList<>();
         final AtomicInteger attempt = new AtomicInteger();
         while (attempt.getAndIncrement() < MAX_ASSIGNMENT_ATTEMPTS) {
@@ -261,8 +275,7 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
                         int maxFilterTasks = count - assignedStreamTasks.size();
                         if (filter.isProcessingTaskCountBounded()) {
                             final int maxFilterTasksToCreate = filter.getMaxProcessingTasks() -
-                                                               processorTaskDao.countTasksForFilter(filter.getId(),
-                                                                       TaskStatus.PROCESSING);
+                                                               getProcessingTaskCount(filter);
                             maxFilterTasks = Math.min(
                                     maxFilterTasks,
                                     Math.max(0, maxFilterTasksToCreate));
@@ -281,6 +294,10 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
                                     streamTask = null;
                                 }
                             }
+
+                            if (filter.isProcessingTaskCountBounded()) {
+                                processingTaskCounts.add(filter.getId(), filterTasksAssigned);
+                            }
                         }
                     }
                 }
@@ -412,6 +429,7 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
                         .map(ProcessorTask::getId)
                         .collect(Collectors.toSet());
                 processorTaskDao.releaseTasks(idSet, TaskStatus.PROCESSING);
+                processorTaskList.getList().forEach(this::decrementProcessingTaskCount);
 
             } catch (final RuntimeException e) {
                 LOGGER.error("abandon() - {}", processorTaskList, e);
@@ -421,6 +439,74 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
         return true;
     }
 
+    @Override
+    public void onTasksFinished(final Map<Integer, Integer> finishedTaskCounts) {
+        NullSafe.forEach(finishedTaskCounts, (filterId, count) ->
+                processingTaskCounts.add(filterId, -count));
+    }
+
+    private void decrementProcessingTaskCount(final ProcessorTask processorTask) {
+        final Integer filterId = NullSafe.get(processorTask, ProcessorTask::getProcessorFilter, ProcessorFilter::getId);
+        if (filterId != null) {
+            processingTaskCounts.add(filterId, -1);
+        }
+    }
+
+    // pkg private for testing
+    int getProcessingTaskCount(final ProcessorFilter filter) {
+        final Integer count = processingTaskCounts.get(filter.getId());
+        if (count != null) {
+            // Nodes report finished tasks when they next ask for tasks, so the count stays current even when
+            // the filter is at its limit.
+            return count;
+        }
+        return processingTaskCounts.load(filter.getId(), () ->
+                processorTaskDao.countTasksForFilter(filter.getId(), TaskStatus.PROCESSING));
+    }
+
+    /**
+     * Tasks can be completed on other nodes without us knowing, so periodically correct the held counts
+     * with a single query for all the filters we are tracking.
+     */
+    private void reconcileProcessingTaskCountsIfDue() {
+        final StroomDuration interval = NullSafe.requireNonNullElse(
+                processorConfigProvider.get().getProcessingTaskCountReconcileInterval(),
+                StroomDuration.ofMinutes(1));
+        if (Instant.now().isAfter(lastProcessingTaskCountReconcile.plus(interval))
+            && reconcilingProcessingTaskCounts.compareAndSet(false, true)) {
+            try {
+                reconcileProcessingTaskCounts();
+            } catch (final RuntimeException e) {
+                LOGGER.error("Error reconciling processing task counts", e);
+            } finally {
+                lastProcessingTaskCountReconcile = Instant.now();
+                reconcilingProcessingTaskCounts.set(false);
+            }
+        }
+    }
+
+    void reconcileProcessingTaskCounts() {
+        // Stop tracking filters that are no longer enabled and bounded.
+        final Set<Integer> boundedFilterIds = NullSafe.list(prioritisedFilters.get())
+                .stream()
+                .filter(ProcessorFilter::isProcessingTaskCountBounded)
+                .map(ProcessorFilter::getId)
+                .collect(Collectors.toSet());
+        processingTaskCounts.retain(boundedFilterIds);
+
+        final Map<Integer, Long> snapshot = processingTaskCounts.snapshot();
+        if (!snapshot.isEmpty()) {
+            final DurationTimer durationTimer = DurationTimer.start();
+            final Map<Integer, Integer> dbCounts = processorTaskDao.countTasksForFilters(
+                    snapshot.keySet(),
+                    TaskStatus.PROCESSING);
+            final int corrected = processingTaskCounts.reconcile(snapshot, dbCounts);
+            LOGGER.debug(() -> LogUtil.message("Reconciled processing task counts for {} filters, " +
+                                               "{} corrected, in {}",
+                    snapshot.size(), corrected, durationTimer.get()));
+        }
+    }
+
     private long releaseAll() {
         long total = 0;
         for (final Entry<ProcessorFilter, ProcessorTaskQueue> entry : queueMap.entrySet()) {
@@ -856,6 +942,8 @@ class ProcessorTaskQueueManagerImpl implements ProcessorTaskQueueManager, HasSys
                 .description("Processor task queue info")
                 .addDetail("filterQueues", queueInfo)
                 .addDetail("overallQueueSize", getTaskQueueSize())
+                .addDetail("processingTaskCounts", processingTaskCounts.getCounts())
+                .addDetail("lastProcessingTaskCountReconcile", lastProcessingTaskCountReconcile.toString())
                 .build();
     }
 }
@@ -128,12 +128,15 @@ class ProcessorTaskResourceImpl implements ProcessorTaskResource {
                                 ProcessorTaskResource.BASE_PATH,
                                 ProcessorTaskResource.ASSIGN_TASKS_PATH_PART,
                                 nodeName),
-                        () ->
-                                processorTaskManagerProvider.get()
-                                        .assignTasks(
-                                                request.getSourceTaskId(),
-                                                request.getNodeName(),
-                                                request.getCount()),
+                        () -> {
+                            final ProcessorTaskQueueManager processorTaskQueueManager =
+                                    processorTaskManagerProvider.get();
+                            processorTaskQueueManager.onTasksFinished(request.getFinishedTaskCounts());
+                            return processorTaskQueueManager.assignTasks(
+                                    request.getSourceTaskId(),
+                                    request.getNodeName(),
+                                    request.getCount());
+                        },
                         builder ->
                                 builder.post(Entity.json(request)));
     }
@@ -20,11 +20,13 @@ package stroom.processor.impl;
 import stroom.docref.DocRef;
 import stroom.docrefinfo.api.DocRefInfoService;
 import stroom.entity.shared.ExpressionCriteria;
+import stroom.node.api.NodeInfo;
 import stroom.pipeline.shared.PipelineDoc;
 import stroom.processor.api.ProcessorTaskService;
 import stroom.processor.shared.ProcessorTask;
 import stroom.processor.shared.ProcessorTaskFields;
 import stroom.processor.shared.ProcessorTaskSummary;
+import stroom.processor.shared.TaskStatus;
 import stroom.query.api.DateTimeSettings;
 import stroom.query.api.datasource.FindFieldCriteria;
 import stroom.query.api.datasource.QueryField;
@@ -40,9 +42,12 @@ import stroom.util.shared.ResultPage;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Singleton
 class ProcessorTaskServiceImpl implements ProcessorTaskService, Searchable {
@@ -53,16 +58,19 @@ class ProcessorTaskServiceImpl implements ProcessorTaskService, Searchable {
     private final DocRefInfoService docRefInfoService;
     private final SecurityContext securityContext;
     private final FieldInfoResultPageFactory fieldInfoResultPageFactory;
+    private final NodeInfo nodeInfo;
 
     @Inject
     ProcessorTaskServiceImpl(final ProcessorTaskDao processorTaskDao,
                              final DocRefInfoService docRefInfoService,
                              final SecurityContext securityContext,
-                             final FieldInfoResultPageFactory fieldInfoResultPageFactory) {
+                             final FieldInfoResultPageFactory fieldInfoResultPageFactory,
+                             final NodeInfo nodeInfo) {
         this.processorTaskDao = processorTaskDao;
         this.docRefInfoService = docRefInfoService;
         this.securityContext = securityContext;
         this.fieldInfoResultPageFactory = fieldInfoResultPageFactory;
+        this.nodeInfo = nodeInfo;
     }
 
     @Override
@@ -85,6 +93,34 @@ class ProcessorTaskServiceImpl implements ProcessorTaskService, Searchable {
                 processorTaskDao.findSummary(criteria));
     }
 
+    @Override
+    public List<ProcessorTask> claimTasks(final long metaId, final Collection<Integer> processorFilterIds) {
+        return securityContext.secureResult(PERMISSION, () ->
+                processorTaskDao.claimTasks(metaId, processorFilterIds, nodeInfo.getThisNodeName()));
+    }
+
+    @Override
+    public void completeClaimedTask(final ProcessorTask processorTask) {
+        securityContext.secure(PERMISSION, () ->
+                processorTaskDao.changeTaskStatus(
+                        processorTask,
+                        nodeInfo.getThisNodeName(),
+                        TaskStatus.COMPLETE,
+                        processorTask.getStartTimeMs(),
+                        System.currentTimeMillis()));
+    }
+
+    @Override
+    public void releaseClaimedTasks(final Collection<ProcessorTask> processorTasks) {
+        if (NullSafe.hasItems(processorTasks)) {
+            final Set<Long> idSet = processorTasks.stream()
+                    .map(ProcessorTask::getId)
+                    .collect(Collectors.toSet());
+            securityContext.secure(PERMISSION, () ->
+                    processorTaskDao.releaseTasks(idSet, TaskStatus.PROCESSING));
+        }
+    }
+
     @Override
     public void search(final ExpressionCriteria criteria,
                        final FieldIndex fieldIndex,
@@ -0,0 +1,87 @@
+package stroom.processor.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestProcessingTaskCounts {
+
+    @Test
+    void testLoad() {
+        final ProcessingTaskCounts counts = new ProcessingTaskCounts();
+        assertThat(counts.get(1)).isNull();
+
+        assertThat(counts.load(1, () -> 5)).isEqualTo(5);
+        assertThat(counts.get(1)).isEqualTo(5);
+
+        // Reloading replaces the count with the DB count.
+        assertThat(counts.load(1, () -> 2)).isEqualTo(2);
+        assertThat(counts.get(1)).isEqualTo(2);
+    }
+
+    @Test
+    void testLoadKeepsChangesMadeDuringQuery() {
+        final ProcessingTaskCounts counts = new ProcessingTaskCounts();
+        counts.load(1, () -> 4);
+
+        // Tasks are assigned while the DB is being queried.
+        assertThat(counts.load(1, () -> {
+            counts.add(1, 3);
+            return 1;
+        })).isEqualTo(4);
+        assertThat(counts.get(1)).isEqualTo(4);
+    }
+
+    @Test
+    void testAdd() {
+        final ProcessingTaskCounts counts = new ProcessingTaskCounts();
+        // Not tracked yet so ignored.
+        counts.add(1, 10);
+        assertThat(counts.getCounts()).isEmpty();
+
+        counts.load(1, () -> 2);
+        counts.add(1, 3);
+        assertThat(counts.get(1)).isEqualTo(5);
+
+        // Never goes negative.
+        counts.add(1, -10);
+        assertThat(counts.get(1)).isZero();
+    }
+
+    @Test
+    void testReconcile() {
+        final ProcessingTaskCounts counts = new ProcessingTaskCounts();
+        counts.load(1, () -> 10);
+        counts.load(2, () -> 4);
+
+        final Map<Integer, Long> snapshot = counts.snapshot();
+        // Changes made while the DB is being queried.
+        counts.add(1, 2);
+        counts.add(2, -1);
+
+        // Filter 1 has had tasks completed on another node, filter 2 has none left in the DB.
+        final int corrected = counts.reconcile(snapshot, Map.of(1, 6));
+        assertThat(corrected).isEqualTo(2);
+        assertThat(counts.getCounts()).isEqualTo(Map.of(1, 8, 2, 0));
+
+        // Nothing to correct.
+        assertThat(counts.reconcile(counts.snapshot(), Map.of(1, 8))).isZero();
+    }
+
+    @Test
+    void testRetain() {
+        final ProcessingTaskCounts counts = new ProcessingTaskCounts();
+        counts.load(1, () -> 1);
+        counts.load(2, () -> 2);
+        counts.load(3, () -> 3);
+
+        counts.retain(List.of(1, 3));
+        assertThat(counts.getCounts()).isEqualTo(Map.of(1, 1, 3, 3));
+
+        counts.clear();
+        assertThat(counts.getCounts()).isEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package stroom.processor.impl;
+
+import stroom.processor.shared.ProcessorFilter;
+import stroom.processor.shared.TaskStatus;
+import stroom.task.api.ExecutorProvider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class TestProcessorTaskQueueManagerImpl {
+
+    private static final int FILTER_ID = 1;
+
+    @Mock
+    private ProcessorTaskDao mockProcessorTaskDao;
+    @Mock
+    private ExecutorProvider mockExecutorProvider;
+
+    private ProcessorTaskQueueManagerImpl processorTaskQueueManager;
+    private ProcessorFilter filter;
+
+    @BeforeEach
+    void setup() {
+        processorTaskQueueManager = new ProcessorTaskQueueManagerImpl(
+                mockProcessorTaskDao,
+                mockExecutorProvider,
+                null,
+                null,
+                ProcessorConfig::new,
+                null,
+                null,
+                null,
+                null,
+                null);
+        filter = ProcessorFilter.builder()
+                .id(FILTER_ID)
+                .maxProcessingTasks(2)
+                .build();
+    }
+
+    @Test
+    void testNoDbCountAtLimit() {
+        Mockito.when(mockProcessorTaskDao.countTasksForFilter(FILTER_ID, TaskStatus.PROCESSING))
+                .thenReturn(2);
+
+        // The count is loaded the first time it is needed.
+        for (int i = 0; i < 10; i++) {
+            assertThat(processorTaskQueueManager.getProcessingTaskCount(filter))
+                    .isEqualTo(2);
+        }
+
+        // The filter is at its limit but we don't keep querying the DB.
+        Mockito.verify(mockProcessorTaskDao, Mockito.times(1))
+                .countTasksForFilter(FILTER_ID, TaskStatus.PROCESSING);
+    }
+
+    @Test
+    void testOnTasksFinished() {
+        Mockito.when(mockProcessorTaskDao.countTasksForFilter(FILTER_ID, TaskStatus.PROCESSING))
+                .thenReturn(2);
+        assertThat(processorTaskQueueManager.getProcessingTaskCount(filter))
+                .isEqualTo(2);
+
+        // Another node reports that one of the filter's tasks has finished.
+        processorTaskQueueManager.onTasksFinished(Map.of(FILTER_ID, 1, 99, 1));
+        assertThat(processorTaskQueueManager.getProcessingTaskCount(filter))
+                .isEqualTo(1);
+
+        processorTaskQueueManager.onTasksFinished(null);
+        assertThat(processorTaskQueueManager.getProcessingTaskCount(filter))
+                .isEqualTo(1);
+
+        Mockito.verify(mockProcessorTaskDao, Mockito.times(1))
+                .countTasksForFilter(FILTER_ID, TaskStatus.PROCESSING);
+    }
+}
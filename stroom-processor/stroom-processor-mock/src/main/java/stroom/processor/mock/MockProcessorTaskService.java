@@ -6,6 +6,9 @@ import stroom.processor.shared.ProcessorTask;
 import stroom.processor.shared.ProcessorTaskSummary;
 import stroom.util.shared.ResultPage;
 
+import java.util.Collection;
+import java.util.List;
+
 public class MockProcessorTaskService implements ProcessorTaskService {
 
     @Override
@@ -17,4 +20,19 @@ public class MockProcessorTaskService implements ProcessorTaskService {
     public ResultPage<ProcessorTaskSummary> findSummary(final ExpressionCriteria criteria) {
         return ResultPage.empty();
     }
+
+    @Override
+    public List<ProcessorTask> claimTasks(final long metaId, final Collection<Integer> processorFilterIds) {
+        return List.of();
+    }
+
+    @Override
+    public void completeClaimedTask(final ProcessorTask processorTask) {
+
+    }
+
+    @Override
+    public void releaseClaimedTasks(final Collection<ProcessorTask> processorTasks) {
+
+    }
 }
@@ -6,6 +6,7 @@ import stroom.proxy.app.handler.ForwardFileConfig;
 import stroom.proxy.app.handler.ForwardHttpPostConfig;
 import stroom.proxy.app.handler.ForwarderConfig;
 import stroom.proxy.app.handler.ProxyId;
+import stroom.proxy.app.handler.QueueConfig;
 import stroom.proxy.app.handler.ThreadConfig;
 import stroom.proxy.repo.AggregatorConfig;
 import stroom.proxy.repo.LogStreamConfig;
@@ -58,6 +59,7 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
     public static final String PROP_NAME_LOG_STREAM = "logStream";
     public static final String PROP_NAME_FEED_STATUS = "feedStatus";
     public static final String PROP_NAME_THREADS = "threads";
+    public static final String PROP_NAME_QUEUES = "queues";
     public static final String PROP_NAME_SECURITY = "security";
     public static final String PROP_NAME_SQS_CONNECTORS = "sqsConnectors";
 
@@ -80,6 +82,7 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
     private final LogStreamConfig logStreamConfig;
     private final FeedStatusConfig feedStatusConfig;
     private final ThreadConfig threadConfig;
+    private final QueueConfig queueConfig;
     private final ProxySecurityConfig proxySecurityConfig;
     private final List<SqsConnectorConfig> sqsConnectors;
 
@@ -99,6 +102,7 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
                 new LogStreamConfig(),
                 new FeedStatusConfig(),
                 new ThreadConfig(),
+                new QueueConfig(),
                 new ProxySecurityConfig(),
                 new ArrayList<>());
     }
@@ -121,6 +125,7 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
             @JsonProperty(PROP_NAME_LOG_STREAM) final LogStreamConfig logStreamConfig,
             @JsonProperty(PROP_NAME_FEED_STATUS) final FeedStatusConfig feedStatusConfig,
             @JsonProperty(PROP_NAME_THREADS) final ThreadConfig threadConfig,
+            @JsonProperty(PROP_NAME_QUEUES) final QueueConfig queueConfig,
             @JsonProperty(PROP_NAME_SECURITY) final ProxySecurityConfig proxySecurityConfig,
             @JsonProperty(PROP_NAME_SQS_CONNECTORS) final List<SqsConnectorConfig> sqsConnectors) {
 
@@ -140,6 +145,7 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
         this.logStreamConfig = Objects.requireNonNullElseGet(logStreamConfig, LogStreamConfig::new);
         this.feedStatusConfig = Objects.requireNonNullElseGet(feedStatusConfig, FeedStatusConfig::new);
         this.threadConfig = Objects.requireNonNullElseGet(threadConfig, ThreadConfig::new);
+        this.queueConfig = Objects.requireNonNullElseGet(queueConfig, QueueConfig::new);
         this.proxySecurityConfig = Objects.requireNonNullElseGet(proxySecurityConfig, ProxySecurityConfig::new);
         this.sqsConnectors = NullSafe.list(sqsConnectors);
     }
@@ -235,6 +241,11 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
         return threadConfig;
     }
 
+    @JsonProperty(PROP_NAME_QUEUES)
+    public QueueConfig getQueueConfig() {
+        return queueConfig;
+    }
+
     @JsonProperty(PROP_NAME_SECURITY)
     public ProxySecurityConfig getProxySecurityConfig() {
         return proxySecurityConfig;
@@ -424,6 +435,7 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
         private LogStreamConfig logStreamConfig = new LogStreamConfig();
         private FeedStatusConfig feedStatusConfig = new FeedStatusConfig();
         private ThreadConfig threadConfig = new ThreadConfig();
+        private QueueConfig queueConfig = new QueueConfig();
         private ProxySecurityConfig proxySecurityConfig = new ProxySecurityConfig();
         private final List<SqsConnectorConfig> sqsConnectors = new ArrayList<>();
 
@@ -522,6 +534,11 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
             return this;
         }
 
+        public Builder queueConfig(final QueueConfig queueConfig) {
+            this.queueConfig = queueConfig;
+            return this;
+        }
+
         public Builder securityConfig(final ProxySecurityConfig proxySecurityConfig) {
             this.proxySecurityConfig = proxySecurityConfig;
             return this;
@@ -549,6 +566,7 @@ public class ProxyConfig extends AbstractConfig implements IsProxyConfig {
                     logStreamConfig,
                     feedStatusConfig,
                     threadConfig,
+                    queueConfig,
                     proxySecurityConfig,
                     sqsConnectors);
         }
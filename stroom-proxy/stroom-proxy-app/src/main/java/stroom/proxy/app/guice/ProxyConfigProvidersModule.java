@@ -125,6 +125,15 @@ public class ProxyConfigProvidersModule extends AbstractModule {
                 stroom.proxy.app.handler.FeedStatusConfig.class);
     }
 
+    @Generated("stroom.proxy.app.guice.GenerateProxyConfigProvidersModule")
+    @Provides
+    @SuppressWarnings("unused")
+    stroom.proxy.app.handler.QueueConfig getQueueConfig(
+            final ProxyConfigProvider proxyConfigProvider) {
+        return proxyConfigProvider.getConfigObject(
+                stroom.proxy.app.handler.QueueConfig.class);
+    }
+
     @Generated("stroom.proxy.app.guice.GenerateProxyConfigProvidersModule")
     @Provides
     @SuppressWarnings("unused")
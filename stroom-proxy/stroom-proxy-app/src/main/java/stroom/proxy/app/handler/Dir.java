@@ -7,12 +7,12 @@ import java.util.Objects;
 
 public class Dir implements AutoCloseable {
 
-    private final DirQueue dirQueue;
+    private final ProxyQueue queue;
     private final Path path;
 
-    Dir(final DirQueue dirQueue,
+    Dir(final ProxyQueue queue,
         final Path path) {
-        this.dirQueue = Objects.requireNonNull(dirQueue);
+        this.queue = Objects.requireNonNull(queue);
         this.path = Objects.requireNonNull(path);
     }
 
@@ -22,7 +22,7 @@ public class Dir implements AutoCloseable {
 
     @Override
     public void close() {
-        dirQueue.close(this);
+        queue.close(this);
     }
 
     @Override
@@ -5,6 +5,7 @@ import stroom.proxy.repo.queue.QueueMonitors;
 import stroom.proxy.repo.store.FileStores;
 import stroom.util.concurrent.UncheckedInterruptedException;
 import stroom.util.exception.ThrowingSupplier;
+import stroom.util.io.FileUtil;
 import stroom.util.logging.DurationTimer;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
@@ -42,10 +43,11 @@ import java.util.stream.Stream;
  * </p>
  * <p>
  * On initialisation, the queue will scan the rootDir to establish the min and max IDs then
- * set the readId and writeId accordingly.
+ * set the readId and writeId accordingly. Any items left by a {@link LogQueue} in the same rootDir are
+ * then added to the end of the queue.
  * </p>
  */
-public class DirQueue {
+public class DirQueue implements ProxyQueue {
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(DirQueue.class);
     private final Path rootDir;
@@ -90,16 +92,46 @@ public class DirQueue {
         readId = Math.max(1, minId);
         queueMonitor.setWritePos(maxId);
         queueMonitor.setReadPos(minId);
+
+        importLogQueueItems();
+
         LOGGER.info("Initialising queue '{}' in {} with readId {} and writeId {}",
                 name, LogUtil.path(rootDir), readId, writeId);
     }
 
+    /**
+     * If this queue was previously a {@link LogQueue} then take ownership of any items it still holds.
+     */
+    private void importLogQueueItems() {
+        final Path dataDir = rootDir.resolve(LogQueue.DATA_DIR);
+        if (Files.isDirectory(dataDir)) {
+            try {
+                final long[] ids = LogQueue.getItemIds(dataDir, 0);
+                if (ids.length > 0) {
+                    LOGGER.info("Importing {} items from log queue structure in {}",
+                            ids.length, LogUtil.path(rootDir));
+                    for (final long id : ids) {
+                        add(dataDir.resolve(Long.toString(id)));
+                    }
+                }
+
+                // The log and read position only relate to the items we have just imported.
+                FileUtil.deleteDir(rootDir.resolve(LogQueue.LOG_DIR));
+                Files.deleteIfExists(rootDir.resolve(LogQueue.READ_POS_FILE));
+                Files.deleteIfExists(dataDir);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     /**
      * Get the next dir that is available in the queue as soon as one is available, block until then.
      *
      * @return A dir that is managed by this queue. The dir should be closed once used to ensure parent dirs are
      * deleted if empty.
      */
+    @Override
     public Dir next() {
         Dir dir = null;
         try {
@@ -129,6 +161,7 @@ public class DirQueue {
      * @return A dir that is managed by this queue. The dir should be closed once used to ensure parent dirs are
      * deleted if empty.
      */
+    @Override
     public Optional<Dir> next(final long time, final TimeUnit unit) {
         Dir dir = null;
         try {
@@ -375,6 +408,7 @@ public class DirQueue {
      *
      * @param sourceDir The source dir to move to the queue.
      */
+    @Override
     public void add(final Path sourceDir) {
         try {
             lock.lockInterruptibly();
@@ -415,6 +449,7 @@ public class DirQueue {
      *
      * @param dir The dir to close.
      */
+    @Override
     public void close(final Dir dir) {
         try {
             lock.lockInterruptibly();
@@ -1,26 +1,86 @@
 package stroom.proxy.app.handler;
 
 import stroom.proxy.app.DataDirProvider;
+import stroom.proxy.repo.ProxyServices;
 import stroom.proxy.repo.queue.QueueMonitors;
 import stroom.proxy.repo.store.FileStores;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Provider;
 
 import java.nio.file.Path;
+import java.util.Objects;
+import java.util.function.Function;
 
 public class DirQueueFactory {
 
     private final Path dataDir;
     private final QueueMonitors queueMonitors;
     private final FileStores fileStores;
+    private final Provider<QueueConfig> queueConfigProvider;
+    private final ProxyServices proxyServices;
 
     @Inject
     public DirQueueFactory(final DataDirProvider dataDirProvider,
                            final QueueMonitors queueMonitors,
-                           final FileStores fileStores) {
+                           final FileStores fileStores,
+                           final Provider<QueueConfig> queueConfigProvider,
+                           final ProxyServices proxyServices) {
         this.dataDir = dataDirProvider.get();
         this.queueMonitors = queueMonitors;
         this.fileStores = fileStores;
+        this.queueConfigProvider = queueConfigProvider;
+        this.proxyServices = proxyServices;
+    }
+
+    /**
+     * Create a queue of the type configured in {@link QueueConfig}.
+     *
+     * @param queueTypeSelector Selects the configured queue type for this queue.
+     */
+    public ProxyQueue create(final String dirName,
+                             final int order,
+                             final String name,
+                             final Function<QueueConfig, ProxyQueueType> queueTypeSelector) {
+        final Path rootDir = dataDir.resolve(dirName);
+        return create(rootDir, order, name, queueTypeSelector);
+    }
+
+    /**
+     * Create a queue of the type configured in {@link QueueConfig}.
+     *
+     * @param queueTypeSelector Selects the configured queue type for this queue.
+     */
+    public ProxyQueue create(final Path rootDir,
+                             final int order,
+                             final String name,
+                             final Function<QueueConfig, ProxyQueueType> queueTypeSelector) {
+        final QueueConfig queueConfig = queueConfigProvider.get();
+        final ProxyQueueType queueType = Objects.requireNonNullElse(
+                queueTypeSelector.apply(queueConfig), QueueConfig.DEFAULT_QUEUE_TYPE);
+        return switch (queueType) {
+            case DIR -> create(rootDir, order, name);
+            case LOG -> createLogQueue(rootDir, order, name, queueConfig);
+        };
+    }
+
+    private LogQueue createLogQueue(final Path rootDir,
+                                    final int order,
+                                    final String name,
+                                    final QueueConfig queueConfig) {
+        final LogQueue logQueue = new LogQueue(
+                rootDir,
+                queueMonitors,
+                fileStores,
+                order,
+                name,
+                queueConfig.getLogSegmentSize(),
+                queueConfig.getLogSyncBatchSize(),
+                queueConfig.getLogSyncInterval().toMillis());
+        // Writes to the log are synced in batches so make sure the last batch is synced once the
+        // consumers of the queue have stopped.
+        proxyServices.addShutdownTask("Flush queue '" + name + "'", logQueue::flush);
+        return logQueue;
     }
 
     public DirQueue create(final String dirName,
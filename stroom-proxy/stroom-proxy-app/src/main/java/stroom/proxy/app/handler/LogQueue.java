@@ -0,0 +1,558 @@
+package stroom.proxy.app.handler;
+
+import stroom.proxy.repo.queue.QueueMonitor;
+import stroom.proxy.repo.queue.QueueMonitors;
+import stroom.proxy.repo.store.FileStores;
+import stroom.util.concurrent.UncheckedInterruptedException;
+import stroom.util.io.FileUtil;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.logging.LogUtil;
+
+import com.google.common.base.Strings;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A concurrent queue that records the order of queued items in a segmented append log rather
+ * than a nested directory structure, see {@link DirQueue} for the alternative.
+ * <p>
+ * Each item is moved with a single atomic move into a flat data directory and its sequential ID is
+ * appended to the current log segment. Consumers take items in ID order and the position of the oldest
+ * item that has not yet been closed is persisted as the read position. Writes to the log and the read
+ * position are only synced to disk in batches.
+ * </p>
+ * <pre>
+ * {@code
+ * <rootDir>/data/<id>/           - Queued item dirs.
+ * <rootDir>/log/<first id>.log   - Log segments, each holding the IDs of up to segmentSize items.
+ * <rootDir>/read.pos             - The persisted read position.
+ * }
+ * </pre>
+ * <p>
+ * On initialisation the queue reads the tail of the last segment, discarding any torn record, then
+ * scans the data dir for items that were moved into it but whose log record was not synced before a crash.
+ * Items before the read position that no longer exist are skipped when read. Segments that only contain IDs
+ * before the read position are deleted.
+ * </p>
+ * <p>
+ * Writes are only synced in batches so {@link #flush()} should be called on shutdown, see {@link DirQueueFactory}.
+ * If the queue type is changed back to {@link ProxyQueueType#DIR} then {@link DirQueue} will import any items
+ * still held in the data dir.
+ * </p>
+ */
+public class LogQueue implements ProxyQueue {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(LogQueue.class);
+
+    static final String DATA_DIR = "data";
+    static final String LOG_DIR = "log";
+    static final String READ_POS_FILE = "read.pos";
+    private static final String LOG_EXTENSION = ".log";
+    private static final int RECORD_SIZE = Long.BYTES * 2;
+    private static final long CHECK_MASK = 0x5A5A5A5A5A5A5A5AL;
+    private static final Pattern ITEM_NAME_PATTERN = Pattern.compile("[0-9]{1,18}");
+
+    private final Path rootDir;
+    private final Path dataDir;
+    private final Path logDir;
+    private final Path readPosFile;
+    private final int segmentSize;
+    private final int syncBatchSize;
+    private final long syncIntervalMs;
+
+    /**
+     * ID last written to, i.e. 0 if never written to
+     */
+    private long writeId;
+    /**
+     * ID to read from next, i.e. 1 if not read yet
+     */
+    private long readId;
+    /**
+     * IDs that have been handed to a consumer but not yet closed.
+     */
+    private final TreeSet<Long> inFlightIds = new TreeSet<>();
+    /**
+     * The first ID of each segment, oldest first.
+     */
+    private final Deque<Long> segments = new ArrayDeque<>();
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private FileChannel activeSegment;
+    private long activeSegmentCount;
+    private long persistedReadPos;
+    private int unsyncedChanges;
+    private long lastSyncTimeMs;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final QueueMonitor queueMonitor;
+    private final String name;
+
+    LogQueue(final Path rootDir,
+             final QueueMonitors queueMonitors,
+             final FileStores fileStores,
+             final int order,
+             final String name,
+             final int segmentSize,
+             final int syncBatchSize,
+             final long syncIntervalMs) {
+        this.rootDir = rootDir;
+        this.dataDir = rootDir.resolve(DATA_DIR);
+        this.logDir = rootDir.resolve(LOG_DIR);
+        this.readPosFile = rootDir.resolve(READ_POS_FILE);
+        this.segmentSize = Math.max(1, segmentSize);
+        this.syncBatchSize = Math.max(1, syncBatchSize);
+        this.syncIntervalMs = Math.max(0, syncIntervalMs);
+        this.queueMonitor = queueMonitors.create(order, name);
+        this.name = name;
+
+        DirUtil.ensureDirExists(rootDir);
+        DirUtil.ensureDirExists(dataDir);
+        DirUtil.ensureDirExists(logDir);
+
+        fileStores.add(order, name + " - store", rootDir);
+
+        try {
+            recover();
+            importDirQueueItems();
+            sync();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        queueMonitor.setWritePos(writeId);
+        queueMonitor.setReadPos(readId);
+        LOGGER.info("Initialising log queue '{}' in {} with readId {} and writeId {}",
+                name, LogUtil.path(rootDir), readId, writeId);
+    }
+
+    private void recover() throws IOException {
+        try (final Stream<Path> stream = Files.list(logDir)) {
+            stream.map(path -> path.getFileName().toString())
+                    .filter(fileName -> fileName.endsWith(LOG_EXTENSION))
+                    .map(fileName -> fileName.substring(0, fileName.length() - LOG_EXTENSION.length()))
+                    .mapToLong(Long::parseLong)
+                    .sorted()
+                    .forEach(segments::addLast);
+        }
+
+        final long readPos = readPersistedReadPos();
+        long lastLoggedId;
+        if (segments.isEmpty()) {
+            lastLoggedId = Math.max(0, readPos - 1);
+        } else {
+            lastLoggedId = openLastSegment();
+        }
+
+        // Items are moved into the data dir before their record is appended, so any item that was added after
+        // the last synced record will have an ID greater than the last logged ID. The IDs may not be contiguous
+        // as some of these items may have been consumed before the crash.
+        final long[] unloggedIds = getItemIds(dataDir, lastLoggedId);
+        for (final long id : unloggedIds) {
+            appendRecord(id);
+        }
+        if (unloggedIds.length > 0) {
+            LOGGER.info("Recovered {} items in '{}' that were not recorded in the log", unloggedIds.length, name);
+            writeId = unloggedIds[unloggedIds.length - 1];
+        } else {
+            writeId = lastLoggedId;
+        }
+
+        final long firstLoggedId = segments.isEmpty()
+                ? writeId + 1
+                : segments.peekFirst();
+        readId = Math.max(1, Math.max(readPos, firstLoggedId));
+        persistedReadPos = readPos;
+    }
+
+    /**
+     * Open the last segment for append, truncating any torn record at its end.
+     *
+     * @return The last ID recorded in the log.
+     */
+    private long openLastSegment() throws IOException {
+        final long firstId = segments.peekLast();
+        final Path segmentFile = getSegmentPath(firstId);
+        activeSegment = FileChannel.open(segmentFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        long count = 0;
+        long position = 0;
+        while (true) {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                if (activeSegment.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            if (buffer.hasRemaining()) {
+                break;
+            }
+            buffer.flip();
+            final long id = buffer.getLong();
+            final long check = buffer.getLong();
+            if (id != firstId + count || check != (id ^ CHECK_MASK)) {
+                break;
+            }
+            count++;
+            position += RECORD_SIZE;
+        }
+
+        if (activeSegment.size() > position) {
+            LOGGER.warn("Truncating invalid data at the end of log segment {} from {} to {} bytes",
+                    segmentFile, activeSegment.size(), position);
+            activeSegment.truncate(position);
+        }
+        activeSegment.position(position);
+        activeSegmentCount = count;
+        return firstId + count - 1;
+    }
+
+    /**
+     * If this queue was previously a {@link DirQueue} then take ownership of any items it still holds.
+     */
+    private void importDirQueueItems() {
+        final long maxId = DirUtil.getMaxDirId(rootDir);
+        if (maxId > 0) {
+            final long minId = Math.max(1, DirUtil.getMinDirId(rootDir));
+            LOGGER.info("Importing items {} to {} from dir queue structure in {}",
+                    minId, maxId, LogUtil.path(rootDir));
+            for (long id = minId; id <= maxId; id++) {
+                final Path path = DirUtil.createPath(rootDir, id);
+                if (Files.isDirectory(path)) {
+                    add(path);
+                    deleteEmptyParents(path);
+                }
+            }
+        }
+    }
+
+    private void deleteEmptyParents(final Path path) {
+        try {
+            Path parent = path.getParent();
+            while (parent != null && !parent.equals(rootDir) && Files.deleteIfExists(parent)) {
+                parent = parent.getParent();
+            }
+        } catch (final DirectoryNotEmptyException e) {
+            // Expected error.
+            LOGGER.trace(() -> LogUtil.message("{} is not empty so can't be deleted", e.getMessage()));
+        } catch (final IOException e) {
+            LOGGER.error(e::getMessage, e);
+        }
+    }
+
+    @Override
+    public Dir next() {
+        Dir dir = null;
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (dir == null) {
+                    while (readId > writeId) {
+                        condition.await();
+                    }
+                    dir = tryNext();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+        LOGGER.trace("next() - {} ({}) - next() dir: {}", name, rootDir, dir);
+        return dir;
+    }
+
+    @Override
+    public Optional<Dir> next(final long time, final TimeUnit unit) {
+        Dir dir = null;
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (dir == null) {
+                    while (readId > writeId) {
+                        if (!condition.await(time, unit)) {
+                            return Optional.empty();
+                        }
+                    }
+                    dir = tryNext();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+        LOGGER.trace("next() - {} ({}) - next() time: {}, unit: {}, dir: {}", name, rootDir, time, unit, dir);
+        return Optional.of(dir);
+    }
+
+    private Dir tryNext() {
+        while (readId <= writeId) {
+            final long id = readId++;
+            final Path path = getItemPath(id);
+            if (Files.isDirectory(path)) {
+                inFlightIds.add(id);
+                queueMonitor.setReadPos(id);
+                return new Dir(this, path);
+            } else {
+                // Consumed before the read position was last persisted.
+                LOGGER.debug("tryNext() - {} ({}) - Skipping missing item {}", name, rootDir, id);
+            }
+        }
+        queueMonitor.setReadPos(readId);
+        return null;
+    }
+
+    @Override
+    public void add(final Path sourceDir) {
+        try {
+            lock.lockInterruptibly();
+            try {
+                final long id = writeId + 1;
+                final Path targetDir = getItemPath(id);
+                try {
+                    Files.move(sourceDir, targetDir, StandardCopyOption.ATOMIC_MOVE);
+                } catch (final IOException e) {
+                    LOGGER.error("Error moving {} -> {}, msg: {}",
+                            sourceDir, targetDir, LogUtil.exceptionMessage(e), e);
+                    throw new UncheckedIOException(e);
+                }
+                // The item is now owned by the queue so make it visible to readers even if appending the
+                // record fails, as it would be recovered from the data dir on restart anyway.
+                writeId = id;
+                queueMonitor.setWritePos(id);
+                condition.signalAll();
+                LOGGER.trace("add() - {} ({}) - Added sourceDir {}", name, rootDir, sourceDir);
+
+                try {
+                    appendRecord(id);
+                    unsyncedChanges++;
+                    syncIfDue();
+                } catch (final IOException e) {
+                    LOGGER.error("Error appending {} to log for '{}', msg: {}",
+                            id, name, LogUtil.exceptionMessage(e), e);
+                    throw new UncheckedIOException(e);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+    }
+
+    /**
+     * When we have finished with a dir it should have been moved out of the data dir by the consumer, so
+     * all we need to do is advance the read position past it.
+     *
+     * @param dir The dir to close.
+     */
+    @Override
+    public void close(final Dir dir) {
+        final long id = Long.parseLong(dir.getPath().getFileName().toString());
+        try {
+            lock.lockInterruptibly();
+            try {
+                if (inFlightIds.remove(id)) {
+                    unsyncedChanges++;
+                    syncIfDue();
+                }
+            } catch (final IOException e) {
+                LOGGER.error("Error syncing log for '{}', msg: {}", name, LogUtil.exceptionMessage(e), e);
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+    }
+
+    /**
+     * Sync the log and read position to disk and delete any segments that are no longer needed.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            sync();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void appendRecord(final long id) throws IOException {
+        // Each segment holds a contiguous run of IDs so start a new one if there is a gap, e.g. on recovery.
+        if (activeSegment == null
+            || activeSegmentCount >= segmentSize
+            || id != segments.peekLast() + activeSegmentCount) {
+            rollSegment(id);
+        }
+        recordBuffer.clear();
+        recordBuffer.putLong(id);
+        recordBuffer.putLong(id ^ CHECK_MASK);
+        recordBuffer.flip();
+        while (recordBuffer.hasRemaining()) {
+            activeSegment.write(recordBuffer);
+        }
+        activeSegmentCount++;
+    }
+
+    private void rollSegment(final long firstId) throws IOException {
+        if (activeSegment != null) {
+            activeSegment.force(false);
+            activeSegment.close();
+        }
+        activeSegment = FileChannel.open(getSegmentPath(firstId),
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        activeSegmentCount = 0;
+        segments.addLast(firstId);
+        LOGGER.debug("rollSegment() - {} ({}) - Started segment {}", name, rootDir, firstId);
+    }
+
+    private void syncIfDue() throws IOException {
+        if (unsyncedChanges >= syncBatchSize
+            || System.currentTimeMillis() - lastSyncTimeMs >= syncIntervalMs) {
+            sync();
+        }
+    }
+
+    private void sync() throws IOException {
+        if (activeSegment != null) {
+            activeSegment.force(false);
+        }
+
+        final long readPos = getReadPos();
+        if (readPos != persistedReadPos) {
+            final Path tempFile = rootDir.resolve(READ_POS_FILE + ".tmp");
+            Files.writeString(tempFile, Long.toString(readPos), StandardCharsets.UTF_8);
+            try (final FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tempFile, readPosFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            persistedReadPos = readPos;
+        }
+
+        compact(readPos);
+        unsyncedChanges = 0;
+        lastSyncTimeMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Delete all segments (other than the active one) that only hold IDs before the read position.
+     */
+    private void compact(final long readPos) {
+        while (segments.size() > 1) {
+            final Long first = segments.pollFirst();
+            final Long second = segments.peekFirst();
+            if (second != null && second <= readPos) {
+                final Path segmentFile = getSegmentPath(first);
+                try {
+                    Files.deleteIfExists(segmentFile);
+                    LOGGER.debug("compact() - {} ({}) - Deleted segment {}", name, rootDir, first);
+                } catch (final IOException e) {
+                    LOGGER.error("Error deleting log segment {}, msg: {}",
+                            segmentFile, LogUtil.exceptionMessage(e), e);
+                    segments.addFirst(first);
+                    break;
+                }
+            } else {
+                segments.addFirst(first);
+                break;
+            }
+        }
+    }
+
+    private long readPersistedReadPos() throws IOException {
+        if (Files.isRegularFile(readPosFile)) {
+            final String value = Files.readString(readPosFile, StandardCharsets.UTF_8).trim();
+            try {
+                return Long.parseLong(value);
+            } catch (final NumberFormatException e) {
+                LOGGER.error("Invalid read position '{}' in {}, reading from the start of the log",
+                        value, FileUtil.getCanonicalPath(readPosFile));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return The oldest ID that has not been closed by a consumer.
+     */
+    private long getReadPos() {
+        return inFlightIds.isEmpty()
+                ? readId
+                : inFlightIds.first();
+    }
+
+    /**
+     * @return The IDs of all items in the data dir with an ID greater than afterId, in ascending order.
+     */
+    static long[] getItemIds(final Path dataDir, final long afterId) throws IOException {
+        try (final Stream<Path> stream = Files.list(dataDir)) {
+            return stream.map(path -> path.getFileName().toString())
+                    .filter(fileName -> ITEM_NAME_PATTERN.matcher(fileName).matches())
+                    .mapToLong(Long::parseLong)
+                    .filter(id -> id > afterId)
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    private Path getItemPath(final long id) {
+        return dataDir.resolve(Long.toString(id));
+    }
+
+    private Path getSegmentPath(final long firstId) {
+        return logDir.resolve(Strings.padStart(Long.toString(firstId), 19, '0') + LOG_EXTENSION);
+    }
+
+    /**
+     * ID to read from next, i.e. 1 if not read yet
+     */
+    long getReadId() {
+        return readId;
+    }
+
+    /**
+     * ID last written to, i.e. 0 if never written to
+     */
+    long getWriteId() {
+        return writeId;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public String toString() {
+        return "LogQueue{" +
+               "rootDir=" + rootDir +
+               ", writeId=" + writeId +
+               ", readId=" + readId +
+               '}';
+    }
+}
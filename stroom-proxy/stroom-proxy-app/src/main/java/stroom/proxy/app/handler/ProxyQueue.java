@@ -0,0 +1,43 @@
+package stroom.proxy.app.handler;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent queue of directories used to pass items between the stages of proxy.
+ * Adding a directory transfers ownership of it to the queue and each directory taken from
+ * the queue must be closed once the consumer has moved it elsewhere.
+ */
+public interface ProxyQueue {
+
+    /**
+     * Get the next dir that is available in the queue as soon as one is available, block until then.
+     *
+     * @return A dir that is managed by this queue. The dir should be closed once used.
+     */
+    Dir next();
+
+    /**
+     * Get the next dir that is available in the queue as soon as one is available, block until then or timeout.
+     *
+     * @return A dir that is managed by this queue. The dir should be closed once used.
+     */
+    Optional<Dir> next(long time, TimeUnit unit);
+
+    /**
+     * Add a dir to the queue. In the process this will move (atomically) the source dir to a dir managed
+     * by the queue so that the process providing the dir will no longer be responsible
+     * for managing the supplied dir.
+     *
+     * @param sourceDir The source dir to move to the queue.
+     */
+    void add(Path sourceDir);
+
+    /**
+     * Called when the consumer of a dir has finished with it, i.e. it has been moved out of the queue.
+     *
+     * @param dir The dir to close.
+     */
+    void close(Dir dir);
+}
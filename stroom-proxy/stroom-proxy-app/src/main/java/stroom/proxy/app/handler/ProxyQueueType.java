@@ -0,0 +1,14 @@
+package stroom.proxy.app.handler;
+
+public enum ProxyQueueType {
+    /**
+     * Each queued item is a numbered directory in a nested directory structure.
+     * See {@link DirQueue}.
+     */
+    DIR,
+    /**
+     * Queued items are held in a flat directory and their order is recorded in a segmented append log.
+     * See {@link LogQueue}.
+     */
+    LOG
+}
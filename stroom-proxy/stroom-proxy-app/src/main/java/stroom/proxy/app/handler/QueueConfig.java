@@ -0,0 +1,157 @@
+package stroom.proxy.app.handler;
+
+import stroom.util.config.annotations.RequiresProxyRestart;
+import stroom.util.shared.AbstractConfig;
+import stroom.util.shared.IsProxyConfig;
+import stroom.util.time.StroomDuration;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.Objects;
+
+@JsonPropertyOrder(alphabetic = true)
+public class QueueConfig extends AbstractConfig implements IsProxyConfig {
+
+    public static final ProxyQueueType DEFAULT_QUEUE_TYPE = ProxyQueueType.DIR;
+    public static final int DEFAULT_LOG_SEGMENT_SIZE = 100_000;
+    public static final int DEFAULT_LOG_SYNC_BATCH_SIZE = 1_000;
+    public static final StroomDuration DEFAULT_LOG_SYNC_INTERVAL = StroomDuration.ofSeconds(1);
+
+    private final ProxyQueueType zipSplittingInputQueueType;
+    private final ProxyQueueType preAggregateInputQueueType;
+    private final ProxyQueueType aggregateInputQueueType;
+    private final ProxyQueueType forwardingInputQueueType;
+    private final ProxyQueueType forwardQueueType;
+    private final int logSegmentSize;
+    private final int logSyncBatchSize;
+    private final StroomDuration logSyncInterval;
+
+    public QueueConfig() {
+        zipSplittingInputQueueType = DEFAULT_QUEUE_TYPE;
+        preAggregateInputQueueType = DEFAULT_QUEUE_TYPE;
+        aggregateInputQueueType = DEFAULT_QUEUE_TYPE;
+        forwardingInputQueueType = DEFAULT_QUEUE_TYPE;
+        forwardQueueType = DEFAULT_QUEUE_TYPE;
+        logSegmentSize = DEFAULT_LOG_SEGMENT_SIZE;
+        logSyncBatchSize = DEFAULT_LOG_SYNC_BATCH_SIZE;
+        logSyncInterval = DEFAULT_LOG_SYNC_INTERVAL;
+    }
+
+    @SuppressWarnings("unused")
+    @JsonCreator
+    public QueueConfig(
+            @JsonProperty("zipSplittingInputQueueType") final ProxyQueueType zipSplittingInputQueueType,
+            @JsonProperty("preAggregateInputQueueType") final ProxyQueueType preAggregateInputQueueType,
+            @JsonProperty("aggregateInputQueueType") final ProxyQueueType aggregateInputQueueType,
+            @JsonProperty("forwardingInputQueueType") final ProxyQueueType forwardingInputQueueType,
+            @JsonProperty("forwardQueueType") final ProxyQueueType forwardQueueType,
+            @JsonProperty("logSegmentSize") final Integer logSegmentSize,
+            @JsonProperty("logSyncBatchSize") final Integer logSyncBatchSize,
+            @JsonProperty("logSyncInterval") final StroomDuration logSyncInterval) {
+
+        this.zipSplittingInputQueueType = Objects.requireNonNullElse(
+                zipSplittingInputQueueType, DEFAULT_QUEUE_TYPE);
+        this.preAggregateInputQueueType = Objects.requireNonNullElse(
+                preAggregateInputQueueType, DEFAULT_QUEUE_TYPE);
+        this.aggregateInputQueueType = Objects.requireNonNullElse(
+                aggregateInputQueueType, DEFAULT_QUEUE_TYPE);
+        this.forwardingInputQueueType = Objects.requireNonNullElse(
+                forwardingInputQueueType, DEFAULT_QUEUE_TYPE);
+        this.forwardQueueType = Objects.requireNonNullElse(
+                forwardQueueType, DEFAULT_QUEUE_TYPE);
+        this.logSegmentSize = Objects.requireNonNullElse(
+                logSegmentSize, DEFAULT_LOG_SEGMENT_SIZE);
+        this.logSyncBatchSize = Objects.requireNonNullElse(
+                logSyncBatchSize, DEFAULT_LOG_SYNC_BATCH_SIZE);
+        this.logSyncInterval = Objects.requireNonNullElse(
+                logSyncInterval, DEFAULT_LOG_SYNC_INTERVAL);
+    }
+
+    @JsonPropertyDescription("The type of queue (DIR or LOG) to use for the zip splitting input queue.")
+    @RequiresProxyRestart
+    @NotNull
+    @JsonProperty
+    public ProxyQueueType getZipSplittingInputQueueType() {
+        return zipSplittingInputQueueType;
+    }
+
+    @JsonPropertyDescription("The type of queue (DIR or LOG) to use for the pre-aggregate input queue.")
+    @RequiresProxyRestart
+    @NotNull
+    @JsonProperty
+    public ProxyQueueType getPreAggregateInputQueueType() {
+        return preAggregateInputQueueType;
+    }
+
+    @JsonPropertyDescription("The type of queue (DIR or LOG) to use for the aggregate input queue.")
+    @RequiresProxyRestart
+    @NotNull
+    @JsonProperty
+    public ProxyQueueType getAggregateInputQueueType() {
+        return aggregateInputQueueType;
+    }
+
+    @JsonPropertyDescription("The type of queue (DIR or LOG) to use for the forwarding input queue.")
+    @RequiresProxyRestart
+    @NotNull
+    @JsonProperty
+    public ProxyQueueType getForwardingInputQueueType() {
+        return forwardingInputQueueType;
+    }
+
+    @JsonPropertyDescription("The type of queue (DIR or LOG) to use for the forward and retry queues of " +
+                             "each forward destination.")
+    @RequiresProxyRestart
+    @NotNull
+    @JsonProperty
+    public ProxyQueueType getForwardQueueType() {
+        return forwardQueueType;
+    }
+
+    @JsonPropertyDescription("For LOG queues, the number of items recorded in each log segment file before " +
+                             "a new segment is started. Segments are deleted once all their items have " +
+                             "been consumed.")
+    @RequiresProxyRestart
+    @Min(1)
+    @JsonProperty
+    public int getLogSegmentSize() {
+        return logSegmentSize;
+    }
+
+    @JsonPropertyDescription("For LOG queues, the maximum number of log changes that can be made before the " +
+                             "log and read position are synced to disk.")
+    @RequiresProxyRestart
+    @Min(1)
+    @JsonProperty
+    public int getLogSyncBatchSize() {
+        return logSyncBatchSize;
+    }
+
+    @JsonPropertyDescription("For LOG queues, the maximum time between a log change and the log and read " +
+                             "position being synced to disk.")
+    @RequiresProxyRestart
+    @NotNull
+    @JsonProperty
+    public StroomDuration getLogSyncInterval() {
+        return logSyncInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueConfig{" +
+               "zipSplittingInputQueueType=" + zipSplittingInputQueueType +
+               ", preAggregateInputQueueType=" + preAggregateInputQueueType +
+               ", aggregateInputQueueType=" + aggregateInputQueueType +
+               ", forwardingInputQueueType=" + forwardingInputQueueType +
+               ", forwardQueueType=" + forwardQueueType +
+               ", logSegmentSize=" + logSegmentSize +
+               ", logSyncBatchSize=" + logSyncBatchSize +
+               ", logSyncInterval=" + logSyncInterval +
+               '}';
+    }
+}
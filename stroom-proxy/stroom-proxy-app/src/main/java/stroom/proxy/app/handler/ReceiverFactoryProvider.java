@@ -62,10 +62,11 @@ public class ReceiverFactoryProvider implements Provider<ReceiverFactory> {
             // Create forwarder.
             final Forwarder forwarder = forwarderProvider.get();
             // Create the forwarding queue.
-            final DirQueue forwardInputQueue = dirQueueFactory.create(
+            final ProxyQueue forwardInputQueue = dirQueueFactory.create(
                     DirNames.FORWARDING_INPUT_QUEUE,
                     40,
-                    "Forwarding Input Queue");
+                    "Forwarding Input Queue",
+                    QueueConfig::getForwardingInputQueueType);
             // Move items from the forwarding queue to the forwarder(s).
             final DirQueueTransfer forwardingInputQueueTransfer =
                     new DirQueueTransfer(forwardInputQueue::next, forwarder::add);
@@ -94,7 +95,7 @@ public class ReceiverFactoryProvider implements Provider<ReceiverFactory> {
 
     private void createNonAggregatingReceiverFactory(final Provider<ZipReceiver> zipReceiverProvider,
                                                      final Provider<SimpleReceiver> simpleReceiverProvider,
-                                                     final DirQueue forwardInputQueue) {
+                                                     final ProxyQueue forwardInputQueue) {
         // Create the receivers that will add data to the forward queue on receipt.
         final SimpleReceiver simpleReceiver = simpleReceiverProvider.get();
         simpleReceiver.setDestination(forwardInputQueue::add);
@@ -110,15 +111,16 @@ public class ReceiverFactoryProvider implements Provider<ReceiverFactory> {
                                                   final Provider<ZipReceiver> zipReceiverProvider,
                                                   final Provider<SimpleReceiver> simpleReceiverProvider,
                                                   final ProxyServices proxyServices,
-                                                  final DirQueue forwardInputQueue) {
+                                                  final ProxyQueue forwardInputQueue) {
         // Create the aggregator.
         final Aggregator aggregator = aggregatorProvider.get();
         aggregator.setDestination(forwardInputQueue::add);
 
-        final DirQueue aggregateInputQueue = dirQueueFactory.create(
+        final ProxyQueue aggregateInputQueue = dirQueueFactory.create(
                 DirNames.AGGREGATE_INPUT_QUEUE,
                 30,
-                "Aggregate Input Queue");
+                "Aggregate Input Queue",
+                QueueConfig::getAggregateInputQueueType);
         // Move items from the pre aggregate queue to the aggregator.
         // TODO : Could use more than one thread here.
         final DirQueueTransfer aggregateInputQueueTransfer =
@@ -132,10 +134,11 @@ public class ReceiverFactoryProvider implements Provider<ReceiverFactory> {
         final PreAggregator preAggregator = preAggregatorProvider.get();
         preAggregator.setDestination(aggregateInputQueue::add);
 
-        final DirQueue preAggregateInputQueue = dirQueueFactory.create(
+        final ProxyQueue preAggregateInputQueue = dirQueueFactory.create(
                 DirNames.PRE_AGGREGATE_INPUT_QUEUE,
                 20,
-                "Pre Aggregate Input Queue");
+                "Pre Aggregate Input Queue",
+                QueueConfig::getPreAggregateInputQueueType);
         // Move items from the file store to the pre aggregator.
         final DirQueueTransfer preAggregateInputQueueTransfer =
                 new DirQueueTransfer(preAggregateInputQueue::next, preAggregator::addDir);
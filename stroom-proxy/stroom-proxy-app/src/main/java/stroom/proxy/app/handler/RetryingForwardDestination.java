@@ -55,8 +55,8 @@ public class RetryingForwardDestination implements ForwardDestination {
     private final ForwardDestination delegateDestination;
     private final ProxyServices proxyServices;
 
-    private final DirQueue forwardQueue;
-    private final DirQueue retryQueue;
+    private final ProxyQueue forwardQueue;
+    private final ProxyQueue retryQueue;
     private final ParallelExecutor forwardExecutor;
     private final ParallelExecutor retryExecutor;
     private final ForwardFileDestination failureDestination;
@@ -88,11 +88,13 @@ public class RetryingForwardDestination implements ForwardDestination {
         forwardQueue = dirQueueFactory.create(
                 forwardingDir.resolve("01_forward"),
                 FORWARD_ORDER,
-                "forward - " + destinationName);
+                "forward - " + destinationName,
+                QueueConfig::getForwardQueueType);
         retryQueue = dirQueueFactory.create(
                 forwardingDir.resolve("02_retry"),
                 RETRY_ORDER,
-                "retry - " + destinationName);
+                "retry - " + destinationName,
+                QueueConfig::getForwardQueueType);
 
         final DirQueueTransfer forwarding = new DirQueueTransfer(
                 forwardQueue::next, this::forwardDir);
@@ -71,7 +71,7 @@ public class ZipSplitter {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ZipSplitter.class);
 //    private static final String SPLIT_DIR_PREFIX = "split-";
 
-    private final DirQueue splittingQueue;
+    private final ProxyQueue splittingQueue;
     private final NumberedDirProvider splitZipDirProvider;
     private Consumer<Path> destination;
 
@@ -87,7 +87,8 @@ public class ZipSplitter {
         splittingQueue = dirQueueFactory.create(
                 splitZipQueue,
                 2,
-                "Zip Splitting Input Queue");
+                "Zip Splitting Input Queue",
+                QueueConfig::getZipSplittingInputQueueType);
 
         final DirQueueTransfer dirQueueTransfer = new DirQueueTransfer(
                 splittingQueue::next,
@@ -1,6 +1,7 @@
 package stroom.proxy.app.handler;
 
 import stroom.proxy.app.DataDirProvider;
+import stroom.proxy.repo.ProxyServices;
 import stroom.proxy.repo.queue.QueueMonitor;
 import stroom.proxy.repo.queue.QueueMonitors;
 import stroom.proxy.repo.store.FileStores;
@@ -18,6 +19,8 @@ public class DirQueueFactoryFactory {
         return new DirQueueFactory(
                 dataDirProvider,
                 mockQueueMonitors,
-                mockFileStores);
+                mockFileStores,
+                QueueConfig::new,
+                new ProxyServices());
     }
 }
@@ -0,0 +1,303 @@
+package stroom.proxy.app.handler;
+
+import stroom.proxy.repo.ProxyServices;
+import stroom.proxy.repo.queue.QueueMonitors;
+import stroom.proxy.repo.store.FileStores;
+import stroom.test.common.util.test.StroomUnitTest;
+import stroom.util.io.FileUtil;
+import stroom.util.time.StroomDuration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestLogQueue extends StroomUnitTest {
+
+    private final AtomicInteger sourceCount = new AtomicInteger();
+
+    @Test
+    void testAddAndNext(@TempDir final Path tempDir) {
+        final Path rootDir = tempDir.resolve("queue");
+        final LogQueue logQueue = createQueue(rootDir, 100);
+
+        final Path source1 = addSource(tempDir, logQueue);
+        final Path source2 = addSource(tempDir, logQueue);
+        assertThat(Files.exists(source1)).isFalse();
+        assertThat(Files.exists(source2)).isFalse();
+        assertThat(logQueue.getWriteId()).isEqualTo(2);
+
+        assertThat(consume(tempDir, logQueue)).isEqualTo(source1.getFileName().toString());
+        assertThat(consume(tempDir, logQueue)).isEqualTo(source2.getFileName().toString());
+        assertThat(logQueue.next(10, TimeUnit.MILLISECONDS)).isEmpty();
+        logQueue.flush();
+
+        // Re open, everything has been consumed.
+        final LogQueue reopened = createQueue(rootDir, 100);
+        assertThat(reopened.getReadId()).isEqualTo(3);
+        assertThat(reopened.getWriteId()).isEqualTo(2);
+        assertThat(reopened.next(10, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+
+    @Test
+    void testReopenRedeliversUnclosedItems(@TempDir final Path tempDir) {
+        final Path rootDir = tempDir.resolve("queue");
+        final LogQueue logQueue = createQueue(rootDir, 100);
+
+        final Path source1 = addSource(tempDir, logQueue);
+        final Path source2 = addSource(tempDir, logQueue);
+        final Path source3 = addSource(tempDir, logQueue);
+
+        // Taken but not consumed or closed, e.g. we crashed while processing it.
+        logQueue.next();
+        assertThat(consume(tempDir, logQueue)).isEqualTo(source2.getFileName().toString());
+        logQueue.flush();
+
+        final LogQueue reopened = createQueue(rootDir, 100);
+        assertThat(consume(tempDir, reopened)).isEqualTo(source1.getFileName().toString());
+        // Item 2 was consumed so is skipped.
+        assertThat(consume(tempDir, reopened)).isEqualTo(source3.getFileName().toString());
+        assertThat(reopened.next(10, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+
+    @Test
+    void testRecoverUnloggedItems(@TempDir final Path tempDir) throws IOException {
+        final Path rootDir = tempDir.resolve("queue");
+        final LogQueue logQueue = createQueue(rootDir, 100);
+        addSource(tempDir, logQueue);
+        addSource(tempDir, logQueue);
+        logQueue.flush();
+
+        // Simulate a crash after an item was moved into the queue but before its log record was written.
+        final Path unlogged = rootDir.resolve(LogQueue.DATA_DIR).resolve("3");
+        Files.createDirectories(unlogged);
+        Files.writeString(unlogged.resolve("file.txt"), "unlogged");
+
+        final LogQueue reopened = createQueue(rootDir, 100);
+        assertThat(reopened.getWriteId()).isEqualTo(3);
+        consume(tempDir, reopened);
+        consume(tempDir, reopened);
+        assertThat(consume(tempDir, reopened)).isEqualTo("unlogged");
+    }
+
+    @Test
+    void testRecoverUnloggedItemsWithGap(@TempDir final Path tempDir) throws IOException {
+        final Path rootDir = tempDir.resolve("queue");
+        final LogQueue logQueue = createQueue(rootDir, 100);
+        addSource(tempDir, logQueue);
+        addSource(tempDir, logQueue);
+        logQueue.flush();
+
+        // Simulate a crash after items 3 to 5 were moved into the queue and item 4 was consumed but before any
+        // of their log records were written.
+        for (final int id : new int[]{3, 5}) {
+            final Path unlogged = rootDir.resolve(LogQueue.DATA_DIR).resolve(Integer.toString(id));
+            Files.createDirectories(unlogged);
+            Files.writeString(unlogged.resolve("file.txt"), "unlogged" + id);
+        }
+
+        final LogQueue reopened = createQueue(rootDir, 100);
+        assertThat(reopened.getWriteId()).isEqualTo(5);
+
+        // New items must not collide with the recovered ones.
+        final Path source = addSource(tempDir, reopened);
+        assertThat(reopened.getWriteId()).isEqualTo(6);
+
+        consume(tempDir, reopened);
+        consume(tempDir, reopened);
+        assertThat(consume(tempDir, reopened)).isEqualTo("unlogged3");
+        assertThat(consume(tempDir, reopened)).isEqualTo("unlogged5");
+        assertThat(consume(tempDir, reopened)).isEqualTo(source.getFileName().toString());
+        assertThat(reopened.next(10, TimeUnit.MILLISECONDS)).isEmpty();
+        reopened.flush();
+
+        // The recovered records must still be valid after the gap.
+        final LogQueue reopenedAgain = createQueue(rootDir, 100);
+        assertThat(reopenedAgain.getWriteId()).isEqualTo(6);
+        assertThat(reopenedAgain.getReadId()).isEqualTo(7);
+    }
+
+    @Test
+    void testTruncateTornRecord(@TempDir final Path tempDir) throws IOException {
+        final Path rootDir = tempDir.resolve("queue");
+        final LogQueue logQueue = createQueue(rootDir, 100);
+        addSource(tempDir, logQueue);
+        addSource(tempDir, logQueue);
+        logQueue.flush();
+
+        // Simulate a partially written record.
+        final Path segment;
+        try (final Stream<Path> segments = getSegments(rootDir)) {
+            segment = segments.findFirst().orElseThrow();
+        }
+        final long validSize = Files.size(segment);
+        Files.write(segment, new byte[]{1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        final LogQueue reopened = createQueue(rootDir, 100);
+        assertThat(Files.size(segment)).isEqualTo(validSize);
+        assertThat(reopened.getWriteId()).isEqualTo(2);
+
+        addSource(tempDir, reopened);
+        assertThat(reopened.getWriteId()).isEqualTo(3);
+        for (int i = 0; i < 3; i++) {
+            consume(tempDir, reopened);
+        }
+        assertThat(reopened.next(10, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+
+    @Test
+    void testCompaction(@TempDir final Path tempDir) {
+        final Path rootDir = tempDir.resolve("queue");
+        final LogQueue logQueue = createQueue(rootDir, 2);
+        for (int i = 0; i < 5; i++) {
+            addSource(tempDir, logQueue);
+        }
+        assertThat(logQueue.getSegmentCount()).isEqualTo(3);
+
+        for (int i = 0; i < 5; i++) {
+            consume(tempDir, logQueue);
+        }
+        logQueue.flush();
+
+        // Only the active segment should remain.
+        assertThat(logQueue.getSegmentCount()).isEqualTo(1);
+        try (final Stream<Path> segments = getSegments(rootDir)) {
+            assertThat(segments.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testImportDirQueueItems(@TempDir final Path tempDir) {
+        final Path rootDir = tempDir.resolve("queue");
+        final DirQueue dirQueue = new DirQueue(rootDir,
+                new QueueMonitors(getMetrics()),
+                new FileStores(getMetrics()),
+                1,
+                "test");
+        final Path source1 = addSource(tempDir, dirQueue);
+        final Path source2 = addSource(tempDir, dirQueue);
+
+        final LogQueue logQueue = createQueue(rootDir, 100);
+        assertThat(logQueue.getWriteId()).isEqualTo(2);
+        assertThat(consume(tempDir, logQueue)).isEqualTo(source1.getFileName().toString());
+        assertThat(consume(tempDir, logQueue)).isEqualTo(source2.getFileName().toString());
+        assertThat(DirUtil.getMaxDirId(rootDir)).isZero();
+    }
+
+    @Test
+    void testSwitchToDirQueue(@TempDir final Path tempDir) {
+        final Path rootDir = tempDir.resolve("queue");
+        final LogQueue logQueue = createQueue(rootDir, 100);
+        addSource(tempDir, logQueue);
+        final Path source2 = addSource(tempDir, logQueue);
+        final Path source3 = addSource(tempDir, logQueue);
+        consume(tempDir, logQueue);
+
+        // The queue type has been changed back to DIR so the remaining items must not be stranded.
+        final DirQueue dirQueue = new DirQueue(rootDir,
+                new QueueMonitors(getMetrics()),
+                new FileStores(getMetrics()),
+                1,
+                "test");
+        assertThat(consume(tempDir, dirQueue)).isEqualTo(source2.getFileName().toString());
+        assertThat(consume(tempDir, dirQueue)).isEqualTo(source3.getFileName().toString());
+        assertThat(dirQueue.next(10, TimeUnit.MILLISECONDS)).isEmpty();
+        assertThat(rootDir.resolve(LogQueue.DATA_DIR)).doesNotExist();
+        assertThat(rootDir.resolve(LogQueue.LOG_DIR)).doesNotExist();
+        assertThat(rootDir.resolve(LogQueue.READ_POS_FILE)).doesNotExist();
+    }
+
+    @Test
+    void testFlushOnShutdown(@TempDir final Path tempDir) throws IOException {
+        // Never sync unless flushed.
+        final QueueConfig queueConfig = new QueueConfig(
+                ProxyQueueType.LOG,
+                null,
+                null,
+                null,
+                null,
+                100,
+                Integer.MAX_VALUE,
+                StroomDuration.ofDays(1));
+        final ProxyServices proxyServices = new ProxyServices();
+        final DirQueueFactory dirQueueFactory = new DirQueueFactory(
+                () -> tempDir,
+                new QueueMonitors(getMetrics()),
+                new FileStores(getMetrics()),
+                () -> queueConfig,
+                proxyServices);
+        final ProxyQueue queue = dirQueueFactory.create(
+                "queue", 1, "test", QueueConfig::getZipSplittingInputQueueType);
+        assertThat(queue).isInstanceOf(LogQueue.class);
+
+        addSource(tempDir, queue);
+        addSource(tempDir, queue);
+        consume(tempDir, queue);
+
+        final Path readPosFile = tempDir.resolve("queue").resolve(LogQueue.READ_POS_FILE);
+        assertThat(Files.readString(readPosFile)).isEqualTo("1");
+
+        proxyServices.stop();
+        assertThat(Files.readString(readPosFile)).isEqualTo("2");
+    }
+
+    private LogQueue createQueue(final Path rootDir, final int segmentSize) {
+        return new LogQueue(rootDir,
+                new QueueMonitors(getMetrics()),
+                new FileStores(getMetrics()),
+                1,
+                "test",
+                segmentSize,
+                1,
+                0);
+    }
+
+    private Path addSource(final Path tempDir, final ProxyQueue queue) {
+        try {
+            final Path source = tempDir.resolve("source_" + sourceCount.incrementAndGet());
+            Files.createDirectories(source);
+            Files.writeString(source.resolve("file.txt"), source.getFileName().toString());
+            queue.add(source);
+            return source;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Take the next item, move it out of the queue like a real consumer would and close it.
+     *
+     * @return The content of the item.
+     */
+    private String consume(final Path tempDir, final ProxyQueue queue) {
+        final Optional<Dir> optionalDir = queue.next(1, TimeUnit.SECONDS);
+        assertThat(optionalDir).isPresent();
+        try (final Dir dir = optionalDir.get()) {
+            final String content = Files.readString(dir.getPath().resolve("file.txt"));
+            final Path dest = Files.createTempDirectory(tempDir, "consumed");
+            Files.move(dir.getPath(), dest.resolve("item"));
+            FileUtil.deleteDir(dest);
+            return content;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Stream<Path> getSegments(final Path rootDir) {
+        try {
+            return Files.list(rootDir.resolve(LogQueue.LOG_DIR));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -61,7 +61,9 @@ class TestRetryingForwardDestination {
         this.proxyServices = new ProxyServices();
         this.dirQueueFactory = new DirQueueFactory(this::getDataDir,
                 new QueueMonitors(new MockMetrics()),
-                mockFileStores);
+                mockFileStores,
+                QueueConfig::new,
+                proxyServices);
 
         Mockito.when(mockDelegateDestination.getName())
                 .thenReturn("TestDest");
@@ -21,6 +21,7 @@ public class ProxyServices implements Managed {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ProxyServices.class);
 
     private final List<Managed> services = new ArrayList<>();
+    private final List<Runnable> shutdownTasks = new ArrayList<>();
     private final AtomicBoolean isShuttingDown = new AtomicBoolean(false);
 
     public ParallelExecutor addParallelExecutor(final String threadName,
@@ -48,6 +49,20 @@ public class ProxyServices implements Managed {
         addManaged(executor);
     }
 
+    /**
+     * Add a task to run on shutdown once all services have been stopped, e.g. to persist state that
+     * the services have been changing.
+     */
+    public synchronized void addShutdownTask(final String name,
+                                             final Runnable runnable) {
+        Objects.requireNonNull(runnable);
+        LOGGER.debug("Registering shutdown task '{}'", name);
+        shutdownTasks.add(() -> {
+            LOGGER.info("Running shutdown task '{}'", name);
+            runnable.run();
+        });
+    }
+
     private void addManaged(final Managed managed) {
         Objects.requireNonNull(managed);
         LOGGER.debug(() -> LogUtil.message("Registering managed service {} {}",
@@ -82,6 +97,18 @@ public class ProxyServices implements Managed {
             }
         }
 
+        final List<Runnable> tasks;
+        synchronized (this) {
+            tasks = new ArrayList<>(shutdownTasks);
+        }
+        for (final Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (final Exception e) {
+                LOGGER.error("Error running shutdown task", e);
+            }
+        }
+
         // This method is part of DW  Managed which is managed by Jersey, so we need to ensure any interrupts
         // are cleared before it goes back to Jersey
         final boolean interrupted = Thread.interrupted();
@@ -18,23 +18,27 @@ package stroom.query.common.v2;
 
 import stroom.query.api.Column;
 import stroom.query.language.functions.Generator;
+import stroom.query.language.functions.VectorEvaluator;
 
 public class CompiledColumn {
 
     private final Column column;
     private final int groupDepth;
     private final Generator generator;
+    private final VectorEvaluator vectorEvaluator;
     private final boolean hasAggregate;
     private final boolean requiresChildData;
 
     public CompiledColumn(final Column column,
                           final int groupDepth,
                           final Generator generator,
+                          final VectorEvaluator vectorEvaluator,
                           final boolean hasAggregate,
                           final boolean requiresChildData) {
         this.column = column;
         this.groupDepth = groupDepth;
         this.generator = generator;
+        this.vectorEvaluator = vectorEvaluator;
         this.hasAggregate = hasAggregate;
         this.requiresChildData = requiresChildData;
     }
@@ -51,6 +55,14 @@ public class CompiledColumn {
         return generator;
     }
 
+    /**
+     * @return An evaluator to evaluate the column expression for a block of rows at a time or null if the
+     * expression is an aggregate so must be evaluated with the generator.
+     */
+    public VectorEvaluator getVectorEvaluator() {
+        return vectorEvaluator;
+    }
+
     /**
      * Is this function an aggregating function or are any of the child
      * parameters used going to aggregate data.
@@ -24,6 +24,9 @@ import stroom.query.language.functions.FieldIndex;
 import stroom.query.language.functions.Generator;
 import stroom.query.language.functions.Null;
 import stroom.query.language.functions.ParamFactory;
+import stroom.query.language.functions.ValNull;
+import stroom.query.language.functions.VectorEvaluator;
+import stroom.query.language.functions.VectorEvaluators;
 import stroom.query.language.functions.ref.ValueReferenceIndex;
 import stroom.util.shared.NullSafe;
 
@@ -76,6 +79,7 @@ public class CompiledColumns {
                 groupDepth = column.getGroup();
             }
             Generator generator = Null.GEN;
+            VectorEvaluator vectorEvaluator = VectorEvaluators.constant(ValNull.INSTANCE);
             boolean hasAggregate = false;
             boolean requiresChildData = false;
             if (!NullSafe.isBlankString(column.getExpression())) {
@@ -89,6 +93,9 @@ public class CompiledColumns {
                     generator = expression.createGenerator();
                     hasAggregate = expression.hasAggregate();
                     requiresChildData = expression.requiresChildData();
+                    vectorEvaluator = hasAggregate || requiresChildData
+                            ? null
+                            : VectorEvaluators.create(expression, valueReferenceIndex);
                 } catch (final ParseException e) {
                     throw new RuntimeException(e.getMessage(), e);
                 }
@@ -99,6 +106,7 @@ public class CompiledColumns {
                             column,
                             groupDepth,
                             generator,
+                            vectorEvaluator,
                             hasAggregate,
                             requiresChildData);
 
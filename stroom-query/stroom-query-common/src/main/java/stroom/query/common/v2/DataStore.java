@@ -4,6 +4,7 @@ import stroom.query.api.Column;
 import stroom.query.api.DateTimeSettings;
 import stroom.query.api.OffsetRange;
 import stroom.query.api.TimeFilter;
+import stroom.query.language.functions.Val;
 import stroom.query.language.functions.ValuesConsumer;
 
 import com.esotericsoftware.kryo.io.Input;
@@ -14,6 +15,18 @@ import java.util.function.Consumer;
 
 public interface DataStore extends ValuesConsumer {
 
+    /**
+     * Add a block of rows to the data store. Stores that can evaluate column expressions for a block of rows at a
+     * time override this, otherwise each row is added in turn.
+     *
+     * @param rows The rows to add to the store.
+     */
+    default void acceptAll(final List<Val[]> rows) {
+        for (final Val[] values : rows) {
+            accept(values);
+        }
+    }
+
     /**
      * Get the columns that this data store knows about.
      */
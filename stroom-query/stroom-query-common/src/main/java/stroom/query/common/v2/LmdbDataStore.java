@@ -35,6 +35,7 @@ import stroom.query.api.TableSettings;
 import stroom.query.api.TimeFilter;
 import stroom.query.common.v2.CompiledWindow.WindowProcessor;
 import stroom.query.common.v2.SearchProgressLog.SearchPhase;
+import stroom.query.common.v2.ValFilter.BatchPredicate;
 import stroom.query.language.functions.ChildData;
 import stroom.query.language.functions.ExpressionContext;
 import stroom.query.language.functions.FieldIndex;
@@ -67,6 +68,7 @@ import org.lmdbjava.PutFlags;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -80,7 +82,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -105,7 +106,7 @@ public class LmdbDataStore implements DataStore {
     private final AtomicLong totalResultCount = new AtomicLong();
     private final AtomicLong resultCount = new AtomicLong();
     private final AtomicBoolean shutdown = new AtomicBoolean();
-    private final Predicate<Val[]> valueFilter;
+    private final BatchPredicate valueFilter;
 
     private final LmdbWriteQueue queue;
     private final CountDownLatch complete = new CountDownLatch(1);
@@ -217,7 +218,7 @@ public class LmdbDataStore implements DataStore {
         this.stateDb = env.openDb("state");
 
         // Create a filter for incoming data.
-        valueFilter = ValFilter.create(
+        valueFilter = ValFilter.createBatch(
                 tableSettings.getValueFilter(),
                 compiledColumns,
                 dateTimeSettings,
@@ -257,6 +258,20 @@ public class LmdbDataStore implements DataStore {
         }
     }
 
+    /**
+     * Add a block of rows to the data store. The value filter is evaluated for the whole block a column at a time
+     * before each matching row is added.
+     *
+     * @param rows The rows to add to the store.
+     */
+    @Override
+    public void acceptAll(final List<Val[]> rows) {
+        final BitSet matches = valueFilter.testAll(rows);
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            windowProcessor.process(rows.get(row), this::addInternal);
+        }
+    }
+
     private void addInternal(final Val[] values,
                              final int period) {
         SearchProgressLog.increment(queryKey, SearchPhase.LMDB_DATA_STORE_ADD);
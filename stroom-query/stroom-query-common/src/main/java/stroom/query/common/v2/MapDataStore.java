@@ -26,6 +26,8 @@ import stroom.query.language.functions.ExpressionContext;
 import stroom.query.language.functions.FieldIndex;
 import stroom.query.language.functions.Generator;
 import stroom.query.language.functions.Val;
+import stroom.query.language.functions.ValVector;
+import stroom.query.language.functions.VectorEvaluator;
 import stroom.query.language.functions.ref.ErrorConsumer;
 import stroom.query.language.functions.ref.StoredValues;
 import stroom.query.language.functions.ref.ValueReferenceIndex;
@@ -41,18 +43,19 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class MapDataStore implements DataStore {
 
@@ -70,7 +73,6 @@ public class MapDataStore implements DataStore {
     private final AtomicLong totalResultCount = new AtomicLong();
     private final AtomicLong resultCount = new AtomicLong();
 
-    private final GroupingFunction[] groupingFunctions;
     private final boolean hasSort;
     private final CompletionState completionState = new CompletionStateImpl();
     private final KeyFactory keyFactory;
@@ -105,11 +107,6 @@ public class MapDataStore implements DataStore {
         this.errorConsumer = errorConsumer;
         this.resultStoreMapConfig = resultStoreMapConfig;
 
-        groupingFunctions = new GroupingFunction[compiledDepths.getMaxDepth() + 1];
-        for (int depth = 0; depth <= compiledDepths.getMaxGroupDepth(); depth++) {
-            groupingFunctions[depth] = new GroupingFunction(compiledColumns.getCompiledColumns());
-        }
-
         // Find out if we have any sorting.
         this.hasSort = compiledSorters.hasSort();
     }
@@ -121,6 +118,41 @@ public class MapDataStore implements DataStore {
      */
     @Override
     public void accept(final Val[] values) {
+        add(values, null, 0);
+    }
+
+    /**
+     * Add a block of rows to the data store. The group values are evaluated for the whole block a column at a
+     * time before each row is added.
+     *
+     * @param rows The rows to add to the store.
+     */
+    @Override
+    public void acceptAll(final List<Val[]> rows) {
+        final boolean[][] groupIndicesByDepth = compiledDepths.getGroupIndicesByDepth();
+        final ValVector[] groupVectors = new ValVector[compiledColumnsArray.length];
+        for (int columnIndex = 0; columnIndex < compiledColumnsArray.length; columnIndex++) {
+            final VectorEvaluator vectorEvaluator = compiledColumnsArray[columnIndex].getVectorEvaluator();
+            if (vectorEvaluator != null && isGroupColumn(groupIndicesByDepth, columnIndex)) {
+                groupVectors[columnIndex] = vectorEvaluator.eval(rows);
+            }
+        }
+
+        for (int row = 0; row < rows.size(); row++) {
+            add(rows.get(row), groupVectors, row);
+        }
+    }
+
+    private boolean isGroupColumn(final boolean[][] groupIndicesByDepth, final int columnIndex) {
+        for (final boolean[] groupIndices : groupIndicesByDepth) {
+            if (groupIndices[columnIndex]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void add(final Val[] values, final ValVector[] groupVectors, final int row) {
         final int[] groupSizeByDepth = compiledDepths.getGroupSizeByDepth();
         final boolean[][] groupIndicesByDepth = compiledDepths.getGroupIndicesByDepth();
         final boolean[][] valueIndicesByDepth = compiledDepths.getValueIndicesByDepth();
@@ -165,8 +197,12 @@ public class MapDataStore implements DataStore {
 
                     // If we are grouping at this level then evaluate the expression and add to the group values.
                     if (groupIndices[columnIndex]) {
-                        // If we haven't already created the generator then do so now.
-                        value = valCache.getVal(values, storedValues);
+                        if (groupVectors != null && groupVectors[columnIndex] != null) {
+                            // The group value has already been evaluated for the block.
+                            value = valCache.setVal(values, storedValues, groupVectors[columnIndex].get(row));
+                        } else {
+                            value = valCache.getVal(values, storedValues);
+                        }
                         groupValues[groupIndex++] = value;
                     }
 
@@ -209,30 +245,13 @@ public class MapDataStore implements DataStore {
         // Update the total number of results that we have received.
         totalResultCount.getAndIncrement();
 
-        final GroupingFunction groupingFunction = groupingFunctions[depth];
-        final Function<Stream<MapItem>, Stream<MapItem>> sortingFunction = compiledSorters.get(depth);
-
-        childMap.compute(parentKey, (k, v) -> {
-            ItemsImpl result = v;
-
-            if (result == null) {
-                result = new ItemsImpl(
-                        depth,
-                        maxResults.size(depth),
-                        this,
-                        groupingFunction,
-                        sortingFunction,
-                        this::remove,
-                        resultStoreMapConfig);
-                result.add(groupKey, storedValues);
-                resultCount.incrementAndGet();
-
-            } else {
-                result.add(groupKey, storedValues);
-            }
-
-            return result;
+        // Add outside of the map compute so that threads adding to the same parent are only
+        // serialised as much as the items implementation needs.
+        final ItemsImpl items = childMap.computeIfAbsent(parentKey, k -> {
+            resultCount.incrementAndGet();
+            return createItems(depth);
         });
+        items.add(groupKey, storedValues);
 
         // Some searches can be terminated early if the user is not sorting or grouping.
         if (!hasEnoughData && !hasSort && !compiledDepths.hasGroup()) {
@@ -246,14 +265,26 @@ public class MapDataStore implements DataStore {
         LOGGER.trace(() -> "Finished adding items to the queue");
     }
 
+    private ItemsImpl createItems(final int depth) {
+        final long limit = maxResults.size(depth);
+        final Comparator<MapItem> comparator = compiledSorters.get(depth);
+        if (depth <= compiledDepths.getMaxGroupDepth()) {
+            return new GroupedItems(depth, limit, this, comparator, this::remove, resultStoreMapConfig);
+        } else if (comparator != null) {
+            return new SortedItems(depth, limit, this, comparator, this::remove, resultStoreMapConfig);
+        } else {
+            return new UnsortedItems(depth, limit, this, this::remove, resultStoreMapConfig);
+        }
+    }
+
     private void remove(final Key parentKey) {
         if (parentKey != null) {
             // Execute removal asynchronously to prevent blocking.
             CompletableFuture.runAsync(() -> {
                 final ItemsImpl items = childMap.remove(parentKey);
                 if (items != null) {
-                    resultCount.addAndGet(-items.list.size());
-                    items.list.forEach(item -> remove(item.getKey()));
+                    resultCount.addAndGet(-items.size());
+                    items.forEach(item -> remove(item.getKey()));
                 }
             });
         }
@@ -481,6 +512,12 @@ public class MapDataStore implements DataStore {
             }
             return val;
         }
+
+        Val setVal(final Val[] values, final StoredValues storedValues, final Val val) {
+            generator.set(values, storedValues);
+            this.val = val;
+            return val;
+        }
     }
 
     private static class FetchState {
@@ -515,45 +552,70 @@ public class MapDataStore implements DataStore {
         boolean keepGoing;
     }
 
-    public static class ItemsImpl {
-
-        private final int depth;
-        private final int trimmedSize;
-        private final int maxSize;
-        private final MapDataStore dataStore;
-        private final Function<Stream<MapItem>, Stream<MapItem>> groupingFunction;
-        private final Function<Stream<MapItem>, Stream<MapItem>> sortingFunction;
-        private final Consumer<Key> removeHandler;
-
-        private volatile List<MapItem> list;
+    /**
+     * Holds the child items of a parent key, trimming them to the maximum number of results
+     * for the depth.
+     */
+    public abstract static class ItemsImpl {
 
-        private volatile boolean trimmed = true;
+        final int depth;
+        final int trimmedSize;
+        final int maxSize;
+        final MapDataStore dataStore;
+        final Consumer<Key> removeHandler;
 
         ItemsImpl(final int depth,
                   final long limit,
                   final MapDataStore dataStore,
-                  final Function<Stream<MapItem>, Stream<MapItem>> groupingFunction,
-                  final Function<Stream<MapItem>, Stream<MapItem>> sortingFunction,
                   final Consumer<Key> removeHandler,
                   final ResultStoreMapConfig resultStoreMapConfig) {
             this.depth = depth;
             this.trimmedSize = (int) Math.max(Math.min(limit, resultStoreMapConfig.getTrimmedSizeLimit()), 0);
             this.maxSize = Math.max(this.trimmedSize * 2, resultStoreMapConfig.getMinUntrimmedSize());
             this.dataStore = dataStore;
-            this.groupingFunction = groupingFunction;
-            this.sortingFunction = sortingFunction;
             this.removeHandler = removeHandler;
-            list = new ArrayList<>();
         }
 
+        abstract void add(Key groupKey, StoredValues storedValues);
+
+        /**
+         * @return A copy of the items, sorted if needed and trimmed to the maximum number of results.
+         */
+        abstract List<MapItem> copy();
+
+        abstract int size();
+
+        abstract void forEach(Consumer<MapItem> consumer);
+
+        void logTruncation() {
+            dataStore.errorConsumer.add(Severity.WARNING, () ->
+                    "Truncating data for vis '" +
+                    dataStore.componentId +
+                    "' to " +
+                    trimmedSize +
+                    " data points at depth " +
+                    depth);
+        }
+    }
+
+    /**
+     * Ungrouped and unsorted items. We just keep the first items we are given.
+     */
+    private static class UnsortedItems extends ItemsImpl {
+
+        private final List<MapItem> list = new ArrayList<>();
+
+        UnsortedItems(final int depth,
+                      final long limit,
+                      final MapDataStore dataStore,
+                      final Consumer<Key> removeHandler,
+                      final ResultStoreMapConfig resultStoreMapConfig) {
+            super(depth, limit, dataStore, removeHandler, resultStoreMapConfig);
+        }
+
+        @Override
         synchronized void add(final Key groupKey, final StoredValues storedValues) {
-            if (groupingFunction != null || sortingFunction != null) {
-                list.add(new MapItem(dataStore, groupKey, dataStore.compiledColumnsArray, storedValues));
-                trimmed = false;
-                if (list.size() > maxSize) {
-                    sortAndTrim();
-                }
-            } else if (list.size() < trimmedSize) {
+            if (list.size() < trimmedSize) {
                 list.add(new MapItem(dataStore, groupKey, dataStore.compiledColumnsArray, storedValues));
             } else {
                 logTruncation();
@@ -561,55 +623,232 @@ public class MapDataStore implements DataStore {
             }
         }
 
-        private synchronized void sortAndTrim() {
-            if (!trimmed) {
-                // We won't group, sort or trim lists with only a single item obviously.
-                if (list.size() > 1) {
-                    if (groupingFunction != null || sortingFunction != null) {
-                        Stream<MapItem> stream = list
-                                .parallelStream();
+        @Override
+        synchronized List<MapItem> copy() {
+            return new ArrayList<>(list);
+        }
 
-                        // Group items.
-                        if (groupingFunction != null) {
-                            stream = groupingFunction.apply(stream);
-                        }
+        @Override
+        synchronized int size() {
+            return list.size();
+        }
 
-                        // Sort the list before trimming if we have a comparator.
-                        if (sortingFunction != null) {
-                            stream = sortingFunction.apply(stream);
-                        }
+        @Override
+        void forEach(final Consumer<MapItem> consumer) {
+            copy().forEach(consumer);
+        }
+    }
+
+    /**
+     * Ungrouped but sorted items. Rather than repeatedly sorting a list of all items we keep a bounded
+     * heap of the best items so far so each add is a single comparison with the worst item we hold
+     * in most cases. The heap is striped by thread so that adding threads don't contend with each
+     * other. The stripes are merged when the items are requested.
+     */
+    private static class SortedItems extends ItemsImpl {
+
+        private final Comparator<MapItem> comparator;
+        private final PriorityQueue<MapItem>[] heaps;
+
+        @SuppressWarnings("unchecked")
+        SortedItems(final int depth,
+                    final long limit,
+                    final MapDataStore dataStore,
+                    final Comparator<MapItem> comparator,
+                    final Consumer<Key> removeHandler,
+                    final ResultStoreMapConfig resultStoreMapConfig) {
+            super(depth, limit, dataStore, removeHandler, resultStoreMapConfig);
+            this.comparator = comparator;
+
+            // Each stripe can hold up to trimmedSize items so limit the number of stripes to keep
+            // the total within the untrimmed size.
+            final int stripeCount = Math.max(1, Math.min(
+                    Runtime.getRuntime().availableProcessors(),
+                    maxSize / Math.max(trimmedSize, 1)));
+            heaps = new PriorityQueue[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                // Reverse the order so the head of the heap is the worst item.
+                heaps[i] = new PriorityQueue<>(comparator.reversed());
+            }
+        }
 
-                        list = stream
-                                .collect(Collectors.toList());
+        @Override
+        void add(final Key groupKey, final StoredValues storedValues) {
+            final MapItem item = new MapItem(dataStore, groupKey, dataStore.compiledColumnsArray, storedValues);
+            final PriorityQueue<MapItem> heap = heaps[(int) (Thread.currentThread().threadId() % heaps.length)];
+            final Key removedKey;
+            synchronized (heap) {
+                if (heap.size() < trimmedSize) {
+                    heap.add(item);
+                    return;
+                }
+
+                final MapItem worst = heap.peek();
+                if (worst != null && comparator.compare(item, worst) < 0) {
+                    // The new item is better than the worst one we hold so replace it.
+                    heap.poll();
+                    heap.add(item);
+                    removedKey = worst.getKey();
+                } else {
+                    removedKey = groupKey;
+                }
+            }
+
+            logTruncation();
+            removeHandler.accept(removedKey);
+        }
+
+        @Override
+        List<MapItem> copy() {
+            final List<MapItem> list = new ArrayList<>();
+            for (final PriorityQueue<MapItem> heap : heaps) {
+                synchronized (heap) {
+                    list.addAll(heap);
+                }
+            }
+            list.sort(comparator);
+
+            if (list.size() <= trimmedSize) {
+                return list;
+            }
+
+            // Now we have seen all the stripes we know the worst item we need to keep so drop
+            // anything worse from the stripes.
+            final MapItem cutOff = list.get(trimmedSize - 1);
+            final List<Key> removedKeys = new ArrayList<>();
+            for (final PriorityQueue<MapItem> heap : heaps) {
+                synchronized (heap) {
+                    MapItem worst = heap.peek();
+                    while (worst != null && comparator.compare(worst, cutOff) > 0) {
+                        heap.poll();
+                        removedKeys.add(worst.getKey());
+                        worst = heap.peek();
                     }
+                }
+            }
+            if (!removedKeys.isEmpty()) {
+                logTruncation();
+                removedKeys.forEach(removeHandler);
+            }
+            return new ArrayList<>(list.subList(0, trimmedSize));
+        }
+
+        @Override
+        int size() {
+            int size = 0;
+            for (final PriorityQueue<MapItem> heap : heaps) {
+                synchronized (heap) {
+                    size += heap.size();
+                }
+            }
+            return size;
+        }
 
-                    if (list.size() > trimmedSize) {
-                        logTruncation();
-                        while (list.size() > trimmedSize) {
-                            final MapItem lastItem = list.removeLast();
+        @Override
+        void forEach(final Consumer<MapItem> consumer) {
+            final List<MapItem> list = new ArrayList<>();
+            for (final PriorityQueue<MapItem> heap : heaps) {
+                synchronized (heap) {
+                    list.addAll(heap);
+                }
+            }
+            list.forEach(consumer);
+        }
+    }
 
-                            // Tell the remove handler that we have removed an item.
-                            removeHandler.accept(lastItem.getKey());
-                        }
+    /**
+     * Grouped items, optionally sorted. Each item is merged into its group as it is added so we
+     * only ever hold one item per group rather than re-grouping a list of all the items added.
+     * Once the number of groups passes the untrimmed size they are sorted and trimmed.
+     */
+    private static class GroupedItems extends ItemsImpl {
+
+        private final Comparator<MapItem> comparator;
+        private final Map<Key, MapItem> groups = new ConcurrentHashMap<>();
+        // Adds hold the read lock as they can happen concurrently, trimming holds the write lock.
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        GroupedItems(final int depth,
+                     final long limit,
+                     final MapDataStore dataStore,
+                     final Comparator<MapItem> comparator,
+                     final Consumer<Key> removeHandler,
+                     final ResultStoreMapConfig resultStoreMapConfig) {
+            super(depth, limit, dataStore, removeHandler, resultStoreMapConfig);
+            this.comparator = comparator;
+        }
+
+        @Override
+        void add(final Key groupKey, final StoredValues storedValues) {
+            lock.readLock().lock();
+            try {
+                groups.compute(groupKey, (k, v) -> {
+                    if (v == null) {
+                        return new MapItem(dataStore, k, dataStore.compiledColumnsArray, storedValues);
                     }
+
+                    // Combine the new values into the existing group.
+                    for (final CompiledColumn compiledColumn : dataStore.compiledColumnsArray) {
+                        final Generator generator = compiledColumn.getGenerator();
+                        generator.merge(v.storedValues, storedValues);
+                    }
+                    return v;
+                });
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            if (groups.size() > maxSize) {
+                lock.writeLock().lock();
+                try {
+                    // Another thread may have trimmed while we waited for the lock.
+                    if (groups.size() > maxSize) {
+                        sortAndTrim();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
                 }
-                trimmed = true;
             }
         }
 
-        private void logTruncation() {
-            dataStore.errorConsumer.add(Severity.WARNING, () ->
-                    "Truncating data for vis '" +
-                    dataStore.componentId +
-                    "' to " +
-                    trimmedSize +
-                    " data points at depth " +
-                    depth);
+        private List<MapItem> sortAndTrim() {
+            final List<MapItem> list = new ArrayList<>(groups.values());
+            // Sort the list before trimming if we have a comparator.
+            if (comparator != null) {
+                list.sort(comparator);
+            }
+
+            if (list.size() > trimmedSize) {
+                logTruncation();
+                while (list.size() > trimmedSize) {
+                    final MapItem lastItem = list.removeLast();
+                    groups.remove(lastItem.getKey());
+
+                    // Tell the remove handler that we have removed an item.
+                    removeHandler.accept(lastItem.getKey());
+                }
+            }
+            return list;
         }
 
-        private synchronized List<MapItem> copy() {
-            sortAndTrim();
-            return new ArrayList<>(list);
+        @Override
+        List<MapItem> copy() {
+            lock.writeLock().lock();
+            try {
+                return sortAndTrim();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        int size() {
+            return groups.size();
+        }
+
+        @Override
+        void forEach(final Consumer<MapItem> consumer) {
+            groups.values().forEach(consumer);
         }
     }
 
@@ -734,43 +973,4 @@ public class MapDataStore implements DataStore {
             return val;
         }
     }
-
-    private class GroupingFunction implements Function<Stream<MapItem>, Stream<MapItem>> {
-
-        private final CompiledColumn[] compiledColumns;
-
-        public GroupingFunction(final CompiledColumn[] compiledColumns) {
-            this.compiledColumns = compiledColumns;
-        }
-
-        @Override
-        public Stream<MapItem> apply(final Stream<MapItem> stream) {
-            final Map<Key, StoredValues> groupingMap = new ConcurrentHashMap<>();
-            stream.forEach(item -> {
-                final Key rawKey = item.getKey();
-                final StoredValues storedValues = item.storedValues;
-
-                groupingMap.compute(rawKey, (k, v) -> {
-                    StoredValues result = v;
-
-                    if (result == null) {
-                        result = storedValues;
-                    } else {
-                        // Combine the new item into the original item.
-                        for (final CompiledColumn compiledColumn : compiledColumns) {
-                            final Generator generator = compiledColumn.getGenerator();
-                            generator.merge(result, storedValues);
-                        }
-                    }
-
-                    return result;
-                });
-            });
-
-            return groupingMap
-                    .entrySet()
-                    .parallelStream()
-                    .map(e -> new MapItem(MapDataStore.this, e.getKey(), compiledColumns, e.getValue()));
-        }
-    }
 }
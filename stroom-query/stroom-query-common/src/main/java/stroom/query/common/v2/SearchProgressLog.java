@@ -97,6 +97,7 @@ public class SearchProgressLog {
         EXTRACTION_DECORATOR_FACTORY_STORED_DATA_QUEUE_TAKE("ExtractionDecoratorFactory - storedDataQueue.take"),
         EXTRACTION_DECORATOR_FACTORY_STREAM_EVENT_MAP_PUT("ExtractionDecoratorFactory - streamEventMap.put"),
         EXTRACTION_DECORATOR_FACTORY_STREAM_EVENT_MAP_TAKE("ExtractionDecoratorFactory - streamEventMap.take"),
+        EXTRACTION_DECORATOR_FACTORY_EXTRACTION_CACHE_HIT("ExtractionDecoratorFactory - extractionCache hit"),
         EXTRACTION_DECORATOR_FACTORY_CREATE_TASKS("ExtractionDecoratorFactory - createTasks"),
         EXTRACTION_DECORATOR_FACTORY_CREATE_TASKS_EVENTS("ExtractionDecoratorFactory - createTasks - events"),
         EXTRACTION_DECORATOR_FACTORY_CREATE_TASKS_DOCREF("ExtractionDecoratorFactory - createTasks - docref"),
@@ -107,7 +108,11 @@ public class SearchProgressLog {
         INDEX_SHARD_SEARCH_TASK_HANDLER_SEARCH_SHARD("IndexShardSearchTaskHandler - searchShard"),
         INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_PUT("IndexShardSearchTaskHandler - docIdStore.put"),
         INDEX_SHARD_SEARCH_TASK_HANDLER_DOC_ID_STORE_TAKE("IndexShardSearchTaskHandler - docIdStore.take"),
-        INDEX_SHARD_SEARCH_TASK_HANDLER_GET_STORED_DATA("IndexShardSearchTaskHandler - getStoredData");
+        INDEX_SHARD_SEARCH_TASK_HANDLER_GET_STORED_DATA("IndexShardSearchTaskHandler - getStoredData"),
+        REMOTE_SEARCH_POLL_BYTES_WRITTEN("RemoteSearchService - poll - bytes written"),
+        REMOTE_SEARCH_POLL_WRITE_MS("RemoteSearchService - poll - write ms"),
+        REMOTE_NODE_SEARCH_POLL_BYTES_READ("RemoteNodeSearch - poll - bytes read"),
+        REMOTE_NODE_SEARCH_POLL_READ_MS("RemoteNodeSearch - poll - read ms");
 
         private final String displayName;
 
@@ -23,10 +23,26 @@ import stroom.query.language.functions.ref.ErrorConsumer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the rows it is given into blocks so that the data store can evaluate the column expressions for a block
+ * of rows at a time. Rows are held per thread stripe until a block is full or has been held for
+ * {@link #MAX_BATCH_AGE_MS}. Any remaining rows are passed on whenever the data store is read, told to complete,
+ * has a payload merged into it or has its payload written, so callers never see a data store that is missing rows
+ * this coprocessor has accepted.
+ */
 public class TableCoprocessor implements Coprocessor, HasCompletionState {
 
+    private static final int BATCH_SIZE = 256;
+    private static final long MAX_BATCH_AGE_MS = 1000;
+
     private final TableSettings tableSettings;
     private final DataStore dataStore;
+    private final RowBatch[] rowBatches;
+    private final CompletionState completionState;
 
     private final ErrorConsumer errorConsumer;
 
@@ -36,6 +52,12 @@ public class TableCoprocessor implements Coprocessor, HasCompletionState {
         this.tableSettings = tableSettings;
         this.dataStore = dataStore;
         this.errorConsumer = errorConsumer;
+
+        rowBatches = new RowBatch[Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < rowBatches.length; i++) {
+            rowBatches[i] = new RowBatch();
+        }
+        completionState = new FlushingCompletionState(dataStore.getCompletionState());
     }
 
     public TableSettings getTableSettings() {
@@ -44,7 +66,20 @@ public class TableCoprocessor implements Coprocessor, HasCompletionState {
 
     @Override
     public void accept(final Val[] values) {
-        dataStore.accept(values);
+        final RowBatch rowBatch = rowBatches[(int) (Thread.currentThread().threadId() % rowBatches.length)];
+        final List<Val[]> rows = rowBatch.add(values);
+        if (rows != null) {
+            dataStore.acceptAll(rows);
+        }
+    }
+
+    private void flush() {
+        for (final RowBatch rowBatch : rowBatches) {
+            final List<Val[]> rows = rowBatch.drain();
+            if (!rows.isEmpty()) {
+                dataStore.acceptAll(rows);
+            }
+        }
     }
 
     @Override
@@ -54,25 +89,34 @@ public class TableCoprocessor implements Coprocessor, HasCompletionState {
 
     @Override
     public void readPayload(final Input input) {
+        flush();
         dataStore.readPayload(input);
     }
 
     @Override
     public void writePayload(final Output output) {
+        flush();
         dataStore.writePayload(output);
     }
 
     @Override
     public CompletionState getCompletionState() {
-        return dataStore.getCompletionState();
+        return completionState;
     }
 
+    /**
+     * @return The data store after passing on any rows that are still held in a batch.
+     */
     public DataStore getData() {
+        flush();
         return dataStore;
     }
 
     @Override
     public void clear() {
+        for (final RowBatch rowBatch : rowBatches) {
+            rowBatch.drain();
+        }
         dataStore.clear();
     }
 
@@ -85,4 +129,72 @@ public class TableCoprocessor implements Coprocessor, HasCompletionState {
     public String toString() {
         return tableSettings.toString();
     }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static final class RowBatch {
+
+        private List<Val[]> rows = new ArrayList<>(BATCH_SIZE);
+        private long startTimeMs;
+
+        /**
+         * @return The rows in the batch if it is full or too old, otherwise null.
+         */
+        synchronized List<Val[]> add(final Val[] values) {
+            final long now = System.currentTimeMillis();
+            if (rows.isEmpty()) {
+                startTimeMs = now;
+            }
+            rows.add(values);
+            if (rows.size() >= BATCH_SIZE || now - startTimeMs >= MAX_BATCH_AGE_MS) {
+                return drain();
+            }
+            return null;
+        }
+
+        synchronized List<Val[]> drain() {
+            final List<Val[]> drained = rows;
+            rows = new ArrayList<>(BATCH_SIZE);
+            return drained;
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * Passes on any rows we are still holding before the data store is told to complete.
+     */
+    private class FlushingCompletionState implements CompletionState {
+
+        private final CompletionState delegate;
+
+        private FlushingCompletionState(final CompletionState delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void signalComplete() {
+            flush();
+            delegate.signalComplete();
+        }
+
+        @Override
+        public boolean isComplete() {
+            return delegate.isComplete();
+        }
+
+        @Override
+        public void awaitCompletion() throws InterruptedException {
+            delegate.awaitCompletion();
+        }
+
+        @Override
+        public boolean awaitCompletion(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitCompletion(timeout, unit);
+        }
+    }
 }
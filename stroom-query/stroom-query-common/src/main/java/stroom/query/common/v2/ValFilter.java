@@ -9,12 +9,15 @@ import stroom.query.common.v2.ExpressionPredicateFactory.ValueFunctionFactories;
 import stroom.query.language.functions.Generator;
 import stroom.query.language.functions.Val;
 import stroom.query.language.functions.ValNull;
+import stroom.query.language.functions.ValVector;
 import stroom.query.language.functions.Values;
+import stroom.query.language.functions.VectorEvaluator;
 import stroom.query.language.functions.ref.StoredValues;
 import stroom.query.language.functions.ref.ValueReferenceIndex;
 import stroom.util.shared.NullSafe;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +33,25 @@ public class ValFilter {
                                           final ExpressionPredicateFactory expressionPredicateFactory,
                                           final Map<String, String> paramMap,
                                           final WordListProvider wordListProvider) {
+        return createBatch(
+                rowExpression,
+                compiledColumns,
+                dateTimeSettings,
+                expressionPredicateFactory,
+                paramMap,
+                wordListProvider);
+    }
+
+    /**
+     * Create a filter that can also test a block of rows at a time, evaluating the filtered columns for the whole
+     * block a column at a time.
+     */
+    public static BatchPredicate createBatch(final ExpressionOperator rowExpression,
+                                             final CompiledColumns compiledColumns,
+                                             final DateTimeSettings dateTimeSettings,
+                                             final ExpressionPredicateFactory expressionPredicateFactory,
+                                             final Map<String, String> paramMap,
+                                             final WordListProvider wordListProvider) {
         final ValueFunctionFactories<Values> queryFieldIndex = RowUtil
                 .createColumnNameValExtractor(compiledColumns.getColumns());
         final Optional<Predicate<Values>> optionalRowExpressionMatcher =
@@ -60,7 +82,11 @@ public class ValFilter {
                     }
                 }
             }
-            usedColumns.add(new UsedColumn(required, generator, columnIncludeExcludePredicate));
+            usedColumns.add(new UsedColumn(
+                    required,
+                    generator,
+                    compiledColumn.getVectorEvaluator(),
+                    columnIncludeExcludePredicate));
         }
 
         // If we need column mappings then create a predicate that will use them.
@@ -68,28 +94,7 @@ public class ValFilter {
             final ValueReferenceIndex valueReferenceIndex = compiledColumns.getValueReferenceIndex();
             final Predicate<Values> rowPredicate = optionalRowExpressionMatcher.orElse(values -> true);
 
-            return values -> {
-                final StoredValues storedValues = valueReferenceIndex.createStoredValues();
-                final Val[] vals = new Val[usedColumns.size()];
-                for (int i = 0; i < usedColumns.size(); i++) {
-                    Val val = ValNull.INSTANCE;
-                    final UsedColumn usedColumn = usedColumns.get(i);
-                    if (usedColumn.required) {
-                        final Generator generator = usedColumn.generator;
-                        generator.set(values, storedValues);
-                        val = generator.eval(storedValues, null);
-
-                        // As soon as we fail a predicate test for a column then return false.
-                        if (!usedColumn.columnIncludeExcludePredicate.test(val)) {
-                            return false;
-                        }
-                    }
-                    vals[i] = val;
-                }
-
-                // Test the row value map.
-                return rowPredicate.test(Values.of(vals));
-            };
+            return new ColumnPredicate(usedColumns, rowPredicate, valueReferenceIndex);
         } else if (optionalRowExpressionMatcher.isPresent()) {
             return values -> false;
         } else {
@@ -99,7 +104,105 @@ public class ValFilter {
 
     private record UsedColumn(boolean required,
                               Generator generator,
+                              VectorEvaluator vectorEvaluator,
                               Predicate<Val> columnIncludeExcludePredicate) {
 
     }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    public interface BatchPredicate extends Predicate<Val[]> {
+
+        /**
+         * Test a block of rows.
+         *
+         * @param rows The rows to test.
+         * @return The indexes of the rows that match.
+         */
+        default BitSet testAll(final List<Val[]> rows) {
+            final BitSet matches = new BitSet(rows.size());
+            for (int row = 0; row < rows.size(); row++) {
+                if (test(rows.get(row))) {
+                    matches.set(row);
+                }
+            }
+            return matches;
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static class ColumnPredicate implements BatchPredicate {
+
+        private final List<UsedColumn> usedColumns;
+        private final Predicate<Values> rowPredicate;
+        private final ValueReferenceIndex valueReferenceIndex;
+
+        private ColumnPredicate(final List<UsedColumn> usedColumns,
+                                final Predicate<Values> rowPredicate,
+                                final ValueReferenceIndex valueReferenceIndex) {
+            this.usedColumns = usedColumns;
+            this.rowPredicate = rowPredicate;
+            this.valueReferenceIndex = valueReferenceIndex;
+        }
+
+        @Override
+        public boolean test(final Val[] values) {
+            return test(values, null, 0);
+        }
+
+        @Override
+        public BitSet testAll(final List<Val[]> rows) {
+            // Evaluate the columns we need for the whole block.
+            final ValVector[] vectors = new ValVector[usedColumns.size()];
+            for (int i = 0; i < usedColumns.size(); i++) {
+                final UsedColumn usedColumn = usedColumns.get(i);
+                if (usedColumn.required && usedColumn.vectorEvaluator != null) {
+                    vectors[i] = usedColumn.vectorEvaluator.eval(rows);
+                }
+            }
+
+            final BitSet matches = new BitSet(rows.size());
+            for (int row = 0; row < rows.size(); row++) {
+                if (test(rows.get(row), vectors, row)) {
+                    matches.set(row);
+                }
+            }
+            return matches;
+        }
+
+        private boolean test(final Val[] values, final ValVector[] vectors, final int row) {
+            StoredValues storedValues = null;
+            final Val[] vals = new Val[usedColumns.size()];
+            for (int i = 0; i < usedColumns.size(); i++) {
+                Val val = ValNull.INSTANCE;
+                final UsedColumn usedColumn = usedColumns.get(i);
+                if (usedColumn.required) {
+                    if (vectors != null && vectors[i] != null) {
+                        val = vectors[i].get(row);
+                    } else {
+                        if (storedValues == null) {
+                            storedValues = valueReferenceIndex.createStoredValues();
+                        }
+                        final Generator generator = usedColumn.generator;
+                        generator.set(values, storedValues);
+                        val = generator.eval(storedValues, null);
+                    }
+
+                    // As soon as we fail a predicate test for a column then return false.
+                    if (!usedColumn.columnIncludeExcludePredicate.test(val)) {
+                        return false;
+                    }
+                }
+                vals[i] = val;
+            }
+
+            // Test the row value map.
+            return rowPredicate.test(Values.of(vals));
+        }
+    }
 }
@@ -16,15 +16,32 @@
 
 package stroom.query.common.v2;
 
+import stroom.query.api.Column;
+import stroom.query.api.OffsetRange;
+import stroom.query.api.ParamUtil;
 import stroom.query.api.QueryKey;
+import stroom.query.api.ResultRequest;
+import stroom.query.api.Row;
 import stroom.query.api.SearchRequestSource;
+import stroom.query.api.Sort;
+import stroom.query.api.Sort.SortDirection;
+import stroom.query.api.TableResult;
 import stroom.query.api.TableSettings;
 import stroom.query.language.functions.ExpressionContext;
 import stroom.query.language.functions.FieldIndex;
+import stroom.query.language.functions.Val;
+import stroom.query.language.functions.ValLong;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 class TestMapDataStore extends AbstractDataStoreTest {
 
@@ -94,4 +111,60 @@ class TestMapDataStore extends AbstractDataStoreTest {
     void firstLastSelectorTest() {
         super.firstLastSelectorTest();
     }
+
+    @Test
+    void sortedNumberConcurrentTest() {
+        final TableSettings tableSettings = TableSettings.builder()
+                .addColumns(Column.builder()
+                        .id("Number")
+                        .name("Number")
+                        .expression(ParamUtil.create("Number"))
+                        .sort(new Sort(0, SortDirection.ASCENDING))
+                        .build())
+                .build();
+
+        final DataStore dataStore = create(tableSettings);
+
+        // Each thread adds its own distinct numbers in random order.
+        final int threadCount = 4;
+        final int perThread = 5000;
+        final CompletableFuture<?>[] futures = new CompletableFuture[threadCount];
+        for (int thread = 0; thread < threadCount; thread++) {
+            final int offset = thread;
+            futures[thread] = CompletableFuture.runAsync(() -> {
+                final List<Integer> numbers = new ArrayList<>(IntStream.range(0, perThread)
+                        .map(i -> (i * threadCount) + offset)
+                        .boxed()
+                        .toList());
+                Collections.shuffle(numbers);
+                numbers.forEach(number -> dataStore.accept(Val.of(ValLong.create(number))));
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+
+        // Wait for all items to be added.
+        try {
+            dataStore.getCompletionState().signalComplete();
+            dataStore.getCompletionState().awaitCompletion();
+        } catch (final InterruptedException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+
+        final ResultRequest tableResultRequest = ResultRequest.builder()
+                .componentId("componentX")
+                .addMappings(tableSettings)
+                .requestedRange(new OffsetRange(0, 50))
+                .build();
+        final TableResult searchResult = (TableResult) new TableResultCreator().create(
+                dataStore,
+                tableResultRequest);
+
+        // We should have the 50 smallest numbers in order.
+        final List<Long> values = searchResult.getRows()
+                .stream()
+                .map(Row::getValues)
+                .map(rowValues -> (long) Double.parseDouble(rowValues.getFirst()))
+                .toList();
+        assertThat(values).isEqualTo(LongStream.range(0, 50).boxed().toList());
+    }
 }
@@ -0,0 +1,127 @@
+package stroom.query.common.v2;
+
+import stroom.query.api.TableSettings;
+import stroom.query.language.functions.Val;
+import stroom.query.language.functions.ValString;
+import stroom.query.test.util.MockitoExtension;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class TestTableCoprocessor {
+
+    @Mock
+    private DataStore mockDataStore;
+    @Mock
+    private CompletionState mockCompletionState;
+
+    private final List<Val[]> acceptedRows = new ArrayList<>();
+    private TableCoprocessor tableCoprocessor;
+
+    @BeforeEach
+    void setup() {
+        Mockito.when(mockDataStore.getCompletionState())
+                .thenReturn(mockCompletionState);
+        Mockito.doAnswer(invocation -> {
+                    final List<Val[]> rows = invocation.getArgument(0);
+                    acceptedRows.addAll(rows);
+                    return null;
+                })
+                .when(mockDataStore)
+                .acceptAll(Mockito.any());
+        tableCoprocessor = new TableCoprocessor(
+                TableSettings.builder().build(),
+                mockDataStore,
+                new ErrorConsumerImpl());
+    }
+
+    @Test
+    void testRowsHeldUntilBatchFull() {
+        for (int i = 0; i < 10; i++) {
+            tableCoprocessor.accept(createRow(i));
+        }
+        assertThat(acceptedRows)
+                .isEmpty();
+    }
+
+    @Test
+    void testGetDataFlushes() {
+        final Val[] row = createRow(1);
+        tableCoprocessor.accept(row);
+
+        assertThat(tableCoprocessor.getData())
+                .isSameAs(mockDataStore);
+        assertThat(acceptedRows)
+                .containsExactly(row);
+
+        // Nothing is passed on twice
+        tableCoprocessor.getData();
+        assertThat(acceptedRows)
+                .hasSize(1);
+    }
+
+    @Test
+    void testReadPayloadFlushes() {
+        final Val[] row = createRow(1);
+        tableCoprocessor.accept(row);
+
+        final Input input = new Input(new byte[0]);
+        tableCoprocessor.readPayload(input);
+
+        assertThat(acceptedRows)
+                .containsExactly(row);
+        Mockito.verify(mockDataStore).readPayload(input);
+    }
+
+    @Test
+    void testWritePayloadFlushes() {
+        final Val[] row = createRow(1);
+        tableCoprocessor.accept(row);
+
+        final Output output = new Output(1024);
+        tableCoprocessor.writePayload(output);
+
+        assertThat(acceptedRows)
+                .containsExactly(row);
+        Mockito.verify(mockDataStore).writePayload(output);
+    }
+
+    @Test
+    void testSignalCompleteFlushes() {
+        final Val[] row = createRow(1);
+        tableCoprocessor.accept(row);
+
+        tableCoprocessor.getCompletionState().signalComplete();
+
+        assertThat(acceptedRows)
+                .containsExactly(row);
+        Mockito.verify(mockCompletionState).signalComplete();
+    }
+
+    @Test
+    void testClearDiscardsHeldRows() {
+        tableCoprocessor.accept(createRow(1));
+
+        tableCoprocessor.clear();
+        tableCoprocessor.getData();
+
+        assertThat(acceptedRows)
+                .isEmpty();
+        Mockito.verify(mockDataStore).clear();
+    }
+
+    private Val[] createRow(final int i) {
+        return new Val[]{ValString.create("row" + i)};
+    }
+}
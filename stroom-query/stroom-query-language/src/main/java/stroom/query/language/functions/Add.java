@@ -17,7 +17,10 @@
 package stroom.query.language.functions;
 
 import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.function.Supplier;
 
 @SuppressWarnings("unused") //Used by FunctionFactory
@@ -53,11 +56,44 @@ class Add extends NumericFunction {
         return new Gen(childGenerators, getCalculator());
     }
 
+    @Override
+    public VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        return new VectorEval(VectorEvaluators.create(functions, valueReferenceIndex), getCalculator());
+    }
+
     @Override
     protected Calculator getCalculator() {
         return CALC;
     }
 
+    private static Val calc(final Val[] vals, final Calculator calculator) {
+        // If any of the input values are strings then concatenate them all.
+        boolean concat = false;
+        for (final Val val : vals) {
+            if (val instanceof ValString) {
+                concat = true;
+                break;
+            }
+        }
+        if (concat) {
+            final StringBuilder sb = new StringBuilder();
+            for (final Val val : vals) {
+                if (val.type().isValue()) {
+                    sb.append(val);
+                }
+            }
+            return ValString.create(sb.toString());
+        }
+
+        Val value = ValNull.INSTANCE;
+        for (final Val val : vals) {
+            if (val.type().isValue()) {
+                value = calculator.calc(value, val);
+            }
+        }
+        return value;
+    }
+
     static class Calc extends Calculator {
 
         @Override
@@ -104,37 +140,102 @@ class Add extends NumericFunction {
 
         @Override
         public Val eval(final StoredValues storedValues, final Supplier<ChildData> childDataSupplier) {
-            boolean concat = false;
             final Val[] vals = new Val[childGenerators.length];
             for (int i = 0; i < vals.length; i++) {
                 final Val val = childGenerators[i].eval(storedValues, childDataSupplier);
                 if (val.type().isError()) {
                     return val;
-                } else if (val instanceof ValString) {
-                    concat = true;
                 }
+                vals[i] = val;
+            }
+            return calc(vals, calculator);
+        }
+    }
+
+    private static final class VectorEval implements VectorEvaluator {
+
+        private final VectorEvaluator[] childEvaluators;
+        private final Calculator calculator;
 
+        VectorEval(final VectorEvaluator[] childEvaluators, final Calculator calculator) {
+            this.childEvaluators = childEvaluators;
+            this.calculator = calculator;
+        }
+
+        @Override
+        public ValVector eval(final List<Val[]> rows) {
+            final ValVector[] vectors = VectorEvaluators.eval(childEvaluators, rows);
+
+            // Strings, dates and durations and errors need the full calculation for each row.
+            if (VectorEvaluators.isNumeric(vectors)) {
+                return evalNumeric(vectors, rows.size());
+            }
+
+            final Val[] results = new Val[rows.size()];
+            final Val[] vals = new Val[vectors.length];
+            for (int row = 0; row < results.length; row++) {
+                results[row] = evalRow(vectors, row, vals);
+            }
+            return VectorEvaluators.encode(results);
+        }
+
+        private Val evalRow(final ValVector[] vectors, final int row, final Val[] vals) {
+            for (int i = 0; i < vals.length; i++) {
+                final Val val = vectors[i].get(row);
+                if (val.type().isError()) {
+                    return val;
+                }
                 vals[i] = val;
             }
+            return calc(vals, calculator);
+        }
 
-            // If any of the input values are strings then concatenate them all.
-            if (concat) {
-                final StringBuilder sb = new StringBuilder();
-                for (final Val val : vals) {
-                    if (val.type().isValue()) {
-                        sb.append(val);
+        private ValVector evalNumeric(final ValVector[] vectors, final int size) {
+            final double[] values = new double[size];
+            final BitSet nulls = new BitSet(size);
+            Val[] singleValues = null;
+            for (int row = 0; row < size; row++) {
+                // Nulls are ignored when adding.
+                int count = 0;
+                int firstIndex = -1;
+                double value = 0;
+                for (int i = 0; i < vectors.length; i++) {
+                    final ValVector vector = vectors[i];
+                    if (!vector.isNull(row)) {
+                        if (count == 0) {
+                            firstIndex = i;
+                            value = vector.getDouble(row);
+                        } else {
+                            value = calculator.op(value, vector.getDouble(row));
+                        }
+                        count++;
                     }
                 }
-                return ValString.create(sb.toString());
+
+                if (count == 0) {
+                    nulls.set(row);
+                } else if (count == 1 && !(vectors[firstIndex] instanceof DoubleVector)) {
+                    // A single value is returned as is so might not be a double.
+                    if (singleValues == null) {
+                        singleValues = new Val[size];
+                    }
+                    singleValues[row] = vectors[firstIndex].get(row);
+                } else {
+                    values[row] = value;
+                }
             }
 
-            Val value = ValNull.INSTANCE;
-            for (final Val val : vals) {
-                if (val.type().isValue()) {
-                    value = calculator.calc(value, val);
+            if (singleValues == null) {
+                return new DoubleVector(values, nulls);
+            }
+            for (int row = 0; row < size; row++) {
+                if (singleValues[row] == null) {
+                    singleValues[row] = nulls.get(row)
+                            ? ValNull.INSTANCE
+                            : ValDouble.create(values[row]);
                 }
             }
-            return value;
+            return new ValArrayVector(singleValues);
         }
     }
 }
@@ -17,7 +17,12 @@
 package stroom.query.language.functions;
 
 import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Supplier;
 
 @SuppressWarnings("unused") //Used by FunctionFactory
@@ -49,6 +54,11 @@ class Concat extends AbstractManyChildFunction {
         return new Gen(childGenerators);
     }
 
+    @Override
+    public VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        return new VectorEval(VectorEvaluators.create(functions, valueReferenceIndex));
+    }
+
     private static final class Gen extends AbstractManyChildGenerator {
 
         Gen(final Generator[] childGenerators) {
@@ -71,4 +81,64 @@ class Concat extends AbstractManyChildFunction {
             return ValString.create(sb.toString());
         }
     }
+
+    private static final class VectorEval implements VectorEvaluator {
+
+        private final VectorEvaluator[] childEvaluators;
+
+        VectorEval(final VectorEvaluator[] childEvaluators) {
+            this.childEvaluators = childEvaluators;
+        }
+
+        @Override
+        public ValVector eval(final List<Val[]> rows) {
+            final ValVector[] vectors = VectorEvaluators.eval(childEvaluators, rows);
+
+            // Dictionary encode the results so each distinct string is only created once.
+            final Map<String, Integer> codeMap = new HashMap<>();
+            final List<ValString> dictionary = new ArrayList<>();
+            final int[] codes = new int[rows.size()];
+            Val[] errors = null;
+            final StringBuilder sb = new StringBuilder();
+            for (int row = 0; row < codes.length; row++) {
+                sb.setLength(0);
+                Val error = null;
+                for (final ValVector vector : vectors) {
+                    final Val val = vector.get(row);
+                    if (val.type().isError()) {
+                        error = val;
+                        break;
+                    }
+                    final String string = val.toString();
+                    if (string != null) {
+                        sb.append(string);
+                    }
+                }
+
+                if (error != null) {
+                    if (errors == null) {
+                        errors = new Val[codes.length];
+                    }
+                    errors[row] = error;
+                    codes[row] = -1;
+                } else {
+                    codes[row] = codeMap.computeIfAbsent(sb.toString(), string -> {
+                        dictionary.add(ValString.create(string));
+                        return dictionary.size() - 1;
+                    });
+                }
+            }
+
+            final StringVector stringVector = new StringVector(dictionary.toArray(new ValString[0]), codes);
+            if (errors == null) {
+                return stringVector;
+            }
+            for (int row = 0; row < codes.length; row++) {
+                if (errors[row] == null) {
+                    errors[row] = stringVector.get(row);
+                }
+            }
+            return new ValArrayVector(errors);
+        }
+    }
 }
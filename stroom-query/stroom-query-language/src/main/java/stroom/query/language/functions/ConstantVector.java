@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+/**
+ * A block in which every row has the same value.
+ */
+public final class ConstantVector implements ValVector {
+
+    private final Val value;
+    private final int size;
+
+    ConstantVector(final Val value, final int size) {
+        this.value = value == null
+                ? ValNull.INSTANCE
+                : value;
+        this.size = size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Val get(final int row) {
+        return value;
+    }
+
+    @Override
+    public boolean isNull(final int row) {
+        return value.type().isNull();
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return value.type().isNull() ||
+               value instanceof ValLong ||
+               value instanceof ValInteger ||
+               value instanceof ValDouble;
+    }
+
+    @Override
+    public double getDouble(final int row) {
+        return value.toDouble();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import stroom.query.language.functions.ref.HyperLogLogReference;
+import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
+import stroom.query.language.functions.sketch.HyperLogLog;
+
+import java.text.ParseException;
+import java.util.function.Supplier;
+
+@SuppressWarnings("unused") //Used by FunctionFactory
+@FunctionDef(
+        name = CountUniqueApprox.NAME,
+        commonCategory = FunctionCategory.AGGREGATE,
+        commonReturnType = ValLong.class,
+        commonReturnDescription = "The approximate number of unique values",
+        signatures = @FunctionSignature(
+                description = "Estimates the number of unique values across all grouped records. Unlike " +
+                        "countUnique() this uses a fixed amount of memory however many unique values there are, " +
+                        "with an error of around 2% for large numbers of unique values.",
+                args = @FunctionArg(
+                        name = "values",
+                        description = "Grouped field or the result of another function",
+                        argType = Val.class)))
+class CountUniqueApprox extends AbstractFunction implements AggregateFunction {
+
+    static final String NAME = "countUniqueApprox";
+
+    private Generator gen;
+    private Function function;
+    private HyperLogLogReference hyperLogLogReference;
+
+    public CountUniqueApprox(final String name) {
+        super(name, 1, 1);
+    }
+
+    @Override
+    public void setParams(final Param[] params) throws ParseException {
+        super.setParams(params);
+
+        final Param param = params[0];
+        if (param instanceof Function) {
+            function = (Function) param;
+
+            if (function.hasAggregate()) {
+                throw new ParseException(name + " cannot be applied to aggregating function", 0);
+            }
+
+        } else {
+            // A static input only ever has one unique value.
+            gen = new StaticValueGen(ValLong.create(1));
+        }
+    }
+
+    @Override
+    public void addValueReferences(final ValueReferenceIndex valueReferenceIndex) {
+        hyperLogLogReference = valueReferenceIndex.addHyperLogLog(name);
+        super.addValueReferences(valueReferenceIndex);
+    }
+
+    @Override
+    public Generator createGenerator() {
+        if (gen != null) {
+            return gen;
+        }
+
+        final Generator childGenerator = function.createGenerator();
+        return new Gen(childGenerator, hyperLogLogReference);
+    }
+
+    @Override
+    public boolean isAggregate() {
+        return true;
+    }
+
+    @Override
+    public boolean hasAggregate() {
+        return isAggregate();
+    }
+
+    @Override
+    public boolean requiresChildData() {
+        if (function != null) {
+            return function.requiresChildData();
+        }
+        return super.requiresChildData();
+    }
+
+    private static final class Gen extends AbstractSingleChildGenerator {
+
+        private final HyperLogLogReference hyperLogLogReference;
+
+        Gen(final Generator childGenerator,
+            final HyperLogLogReference hyperLogLogReference) {
+            super(childGenerator);
+            this.hyperLogLogReference = hyperLogLogReference;
+        }
+
+        @Override
+        public void set(final Val[] values, final StoredValues storedValues) {
+            childGenerator.set(values, storedValues);
+            final Val val = childGenerator.eval(storedValues, null);
+            if (val.type().isValue()) {
+                final HyperLogLog hyperLogLog = hyperLogLogReference.get(storedValues);
+                // Include the type so values of different types that look the same are counted separately.
+                hyperLogLog.add(HyperLogLog.hash(val.type().getName() + ":" + val));
+                hyperLogLogReference.set(storedValues, hyperLogLog);
+            }
+        }
+
+        @Override
+        public Val eval(final StoredValues storedValues, final Supplier<ChildData> childDataSupplier) {
+            return ValLong.create(hyperLogLogReference.get(storedValues).estimate());
+        }
+
+        @Override
+        public void merge(final StoredValues existingValues, final StoredValues newValues) {
+            final HyperLogLog existing = hyperLogLogReference.get(existingValues);
+            existing.merge(hyperLogLogReference.get(newValues));
+            hyperLogLogReference.set(existingValues, existing);
+            super.merge(existingValues, newValues);
+        }
+    }
+}
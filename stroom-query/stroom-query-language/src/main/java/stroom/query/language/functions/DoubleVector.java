@@ -0,0 +1,61 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import java.util.BitSet;
+
+/**
+ * A block of double values.
+ */
+public final class DoubleVector implements ValVector {
+
+    private final double[] values;
+    private final BitSet nulls;
+
+    DoubleVector(final double[] values, final BitSet nulls) {
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Val get(final int row) {
+        if (nulls.get(row)) {
+            return ValNull.INSTANCE;
+        }
+        return ValDouble.create(values[row]);
+    }
+
+    @Override
+    public boolean isNull(final int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return true;
+    }
+
+    @Override
+    public double getDouble(final int row) {
+        return values[row];
+    }
+}
@@ -57,6 +57,11 @@ public class Expression implements Function {
         return function.createGenerator();
     }
 
+    @Override
+    public VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        return function.createVectorEvaluator(valueReferenceIndex);
+    }
+
     @Override
     public String toString() {
         if (function == null) {
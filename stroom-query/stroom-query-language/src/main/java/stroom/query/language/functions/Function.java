@@ -49,6 +49,18 @@ public interface Function extends Param {
      */
     Generator createGenerator();
 
+    /**
+     * Create an evaluator to evaluate this function for a block of rows at a time. Use
+     * {@link VectorEvaluators#create(Function, ValueReferenceIndex)} rather than calling this directly as that will
+     * fall back to evaluating the generator a row at a time if this function has no vectorised implementation.
+     *
+     * @param valueReferenceIndex The value reference index that this function has added its references to.
+     * @return A vector evaluator or null if this function has no vectorised implementation.
+     */
+    default VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        return null;
+    }
+
     /**
      * Is this function operating as an aggregate, i.e. will it combine multiple
      * cell values when grouping is applied. Examples of aggregate functions are
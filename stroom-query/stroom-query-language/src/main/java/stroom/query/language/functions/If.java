@@ -17,8 +17,10 @@
 package stroom.query.language.functions;
 
 import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
 
 import java.text.ParseException;
+import java.util.List;
 import java.util.function.Supplier;
 
 @SuppressWarnings("unused") //Used by FunctionFactory
@@ -48,6 +50,7 @@ class If extends AbstractManyChildFunction {
 
     static final String NAME = "if";
     private Generator gen;
+    private Val staticValue;
     private boolean simple;
 
     public If(final String name) {
@@ -78,10 +81,11 @@ class If extends AbstractManyChildFunction {
             // Static computation.
             final Boolean condition = ((Val) params[0]).toBoolean();
             if (condition) {
-                gen = new StaticValueFunction((Val) params[1]).createGenerator();
+                staticValue = (Val) params[1];
             } else {
-                gen = new StaticValueFunction((Val) params[2]).createGenerator();
+                staticValue = (Val) params[2];
             }
+            gen = new StaticValueFunction(staticValue).createGenerator();
         }
     }
 
@@ -98,6 +102,14 @@ class If extends AbstractManyChildFunction {
         return new Gen(childGenerators);
     }
 
+    @Override
+    public VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        if (staticValue != null) {
+            return VectorEvaluators.constant(staticValue);
+        }
+        return new VectorEval(VectorEvaluators.create(functions, valueReferenceIndex));
+    }
+
     @Override
     public boolean hasAggregate() {
         if (simple) {
@@ -135,4 +147,45 @@ class If extends AbstractManyChildFunction {
             }
         }
     }
+
+    private static final class VectorEval implements VectorEvaluator {
+
+        private final VectorEvaluator[] childEvaluators;
+
+        VectorEval(final VectorEvaluator[] childEvaluators) {
+            this.childEvaluators = childEvaluators;
+        }
+
+        @Override
+        public ValVector eval(final List<Val[]> rows) {
+            // Both branches are evaluated for the whole block and each row then picks its value from one of them.
+            final ValVector[] vectors = VectorEvaluators.eval(childEvaluators, rows);
+            final Val[] results = new Val[rows.size()];
+            for (int row = 0; row < results.length; row++) {
+                results[row] = evalRow(vectors, row);
+            }
+            return VectorEvaluators.encode(results);
+        }
+
+        private Val evalRow(final ValVector[] vectors, final int row) {
+            final Val val = vectors[0].get(row);
+            if (!val.type().isValue()) {
+                return val;
+            }
+
+            try {
+                final Boolean condition = val.toBoolean();
+                if (condition == null) {
+                    return ValErr.create("Expecting a condition");
+                }
+                if (condition) {
+                    return vectors[1].get(row);
+                } else {
+                    return vectors[2].get(row);
+                }
+            } catch (final RuntimeException e) {
+                return ValErr.create(e.getMessage());
+            }
+        }
+    }
 }
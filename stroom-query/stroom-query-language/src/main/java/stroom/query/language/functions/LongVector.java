@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import java.util.BitSet;
+
+/**
+ * A block of long, integer, date or duration values.
+ */
+public final class LongVector implements ValVector {
+
+    private final Type type;
+    private final long[] values;
+    private final BitSet nulls;
+
+    LongVector(final Type type, final long[] values, final BitSet nulls) {
+        this.type = type;
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Val get(final int row) {
+        if (nulls.get(row)) {
+            return ValNull.INSTANCE;
+        }
+        final long value = values[row];
+        return switch (type) {
+            case LONG -> ValLong.create(value);
+            case INTEGER -> ValInteger.create((int) value);
+            case DATE -> ValDate.create(value);
+            case DURATION -> ValDuration.create(value);
+            default -> throw new IllegalStateException("Unexpected type " + type);
+        };
+    }
+
+    @Override
+    public boolean isNull(final int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public boolean isNumeric() {
+        // Dates and durations are treated differently by some functions so must be evaluated row by row.
+        return type == Type.LONG || type == Type.INTEGER;
+    }
+
+    @Override
+    public double getDouble(final int row) {
+        return values[row];
+    }
+
+    public long getLong(final int row) {
+        return values[row];
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
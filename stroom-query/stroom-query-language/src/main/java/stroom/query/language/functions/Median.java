@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+@SuppressWarnings("unused") //Used by FunctionFactory
+@FunctionDef(
+        name = Median.NAME,
+        commonCategory = FunctionCategory.AGGREGATE,
+        commonReturnType = ValDouble.class,
+        commonReturnDescription = "The approximate median of all values",
+        signatures = @FunctionSignature(
+                description = "Estimates the median value across all grouped records. This is the same as " +
+                        "percentile(values, 50).",
+                args = @FunctionArg(
+                        name = "values",
+                        description = "Grouped field or the result of another function",
+                        argType = ValNumber.class)))
+class Median extends Percentile {
+
+    static final String NAME = "median";
+
+    public Median(final String name) {
+        super(name, 1, 1);
+    }
+
+    @Override
+    double getPercentile(final Param[] params) {
+        return 50;
+    }
+}
@@ -17,7 +17,10 @@
 package stroom.query.language.functions;
 
 import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.function.Supplier;
 
 public abstract class NumericFunction extends AbstractManyChildFunction {
@@ -34,8 +37,21 @@ public abstract class NumericFunction extends AbstractManyChildFunction {
         return new Gen(childGenerators, getCalculator());
     }
 
+    @Override
+    public VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        return new VectorEval(VectorEvaluators.create(functions, valueReferenceIndex), getCalculator());
+    }
+
     protected abstract Calculator getCalculator();
 
+    private static Val calc(final Val[] vals, final Calculator calculator) {
+        Val value = ValNull.INSTANCE;
+        for (final Val val : vals) {
+            value = calculator.calc(value, val);
+        }
+        return value;
+    }
+
     @Override
     public void appendString(final StringBuilder sb) {
         if (usingOperator) {
@@ -86,11 +102,96 @@ public abstract class NumericFunction extends AbstractManyChildFunction {
                 vals[i] = val;
             }
 
-            Val value = ValNull.INSTANCE;
-            for (final Val val : vals) {
-                value = calculator.calc(value, val);
+            return calc(vals, calculator);
+        }
+    }
+
+    private static final class VectorEval implements VectorEvaluator {
+
+        private final VectorEvaluator[] childEvaluators;
+        private final Calculator calculator;
+
+        VectorEval(final VectorEvaluator[] childEvaluators, final Calculator calculator) {
+            this.childEvaluators = childEvaluators;
+            this.calculator = calculator;
+        }
+
+        @Override
+        public ValVector eval(final List<Val[]> rows) {
+            final ValVector[] vectors = VectorEvaluators.eval(childEvaluators, rows);
+
+            // A single value is returned as is so needs no calculation. Dates and durations and anything that isn't
+            // a number needs the calculator for each row.
+            if (vectors.length > 1 && VectorEvaluators.isNumeric(vectors)) {
+                return evalNumeric(vectors, rows.size());
+            }
+
+            final Val[] results = new Val[rows.size()];
+            final Val[] vals = new Val[vectors.length];
+            for (int row = 0; row < results.length; row++) {
+                results[row] = evalRow(vectors, row, vals);
+            }
+            return VectorEvaluators.encode(results);
+        }
+
+        private Val evalRow(final ValVector[] vectors, final int row, final Val[] vals) {
+            for (int i = 0; i < vals.length; i++) {
+                final Val val = vectors[i].get(row);
+                if (!val.type().isValue()) {
+                    return val;
+                } else if (!val.type().isNumber()) {
+                    return ValErr.INSTANCE;
+                }
+                vals[i] = val;
+            }
+            return calc(vals, calculator);
+        }
+
+        private ValVector evalNumeric(final ValVector[] vectors, final int size) {
+            final double[] values = new double[size];
+            final BitSet nulls = new BitSet(size);
+            Val[] errors = null;
+            for (int row = 0; row < size; row++) {
+                if (isAnyNull(vectors, row)) {
+                    nulls.set(row);
+                } else {
+                    try {
+                        double value = vectors[0].getDouble(row);
+                        for (int i = 1; i < vectors.length; i++) {
+                            value = calculator.op(value, vectors[i].getDouble(row));
+                        }
+                        values[row] = value;
+                    } catch (final RuntimeException e) {
+                        if (errors == null) {
+                            errors = new Val[size];
+                        }
+                        errors[row] = ValErr.create(e.getMessage());
+                    }
+                }
+            }
+
+            if (errors == null) {
+                return new DoubleVector(values, nulls);
+            }
+
+            // Some rows failed so we need to hold the errors alongside the values.
+            for (int row = 0; row < size; row++) {
+                if (errors[row] == null) {
+                    errors[row] = nulls.get(row)
+                            ? ValNull.INSTANCE
+                            : ValDouble.create(values[row]);
+                }
+            }
+            return new ValArrayVector(errors);
+        }
+
+        private static boolean isAnyNull(final ValVector[] vectors, final int row) {
+            for (final ValVector vector : vectors) {
+                if (vector.isNull(row)) {
+                    return true;
+                }
             }
-            return value;
+            return false;
         }
     }
 }
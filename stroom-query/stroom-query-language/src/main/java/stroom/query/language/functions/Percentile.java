@@ -0,0 +1,157 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.TDigestReference;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
+import stroom.query.language.functions.sketch.TDigest;
+
+import java.text.ParseException;
+import java.util.function.Supplier;
+
+@SuppressWarnings("unused") //Used by FunctionFactory
+@FunctionDef(
+        name = Percentile.NAME,
+        commonCategory = FunctionCategory.AGGREGATE,
+        commonReturnType = ValDouble.class,
+        commonReturnDescription = "The approximate value at the requested percentile",
+        signatures = @FunctionSignature(
+                description = "Estimates the value below which the given percentage of values across all grouped " +
+                        "records fall, e.g. percentile(${Duration}, 95). The estimate uses a fixed amount of " +
+                        "memory however many values there are and is most accurate for percentiles near 0 or 100.",
+                args = {
+                        @FunctionArg(
+                                name = "values",
+                                description = "Grouped field or the result of another function",
+                                argType = ValNumber.class),
+                        @FunctionArg(
+                                name = "percentile",
+                                description = "The percentile to return, from 0 to 100.",
+                                argType = ValNumber.class)}))
+class Percentile extends AbstractFunction implements AggregateFunction {
+
+    static final String NAME = "percentile";
+
+    private Function function;
+    private double quantile;
+    private TDigestReference tDigestReference;
+
+    public Percentile(final String name) {
+        super(name, 2, 2);
+    }
+
+    Percentile(final String name, final int minParams, final int maxParams) {
+        super(name, minParams, maxParams);
+    }
+
+    @Override
+    public void setParams(final Param[] params) throws ParseException {
+        super.setParams(params);
+
+        final Param param = params[0];
+        if (param instanceof final Function func) {
+            if (func.hasAggregate()) {
+                throw new ParseException(name + " cannot be applied to aggregating function", 0);
+            }
+            function = func;
+        } else {
+            function = new StaticValueFunction((Val) param);
+        }
+        quantile = getPercentile(params) / 100;
+    }
+
+    double getPercentile(final Param[] params) throws ParseException {
+        if (!(params[1] instanceof final Val val) || val.toDouble() == null) {
+            throw new ParseException("Expected a number for the percentile of '" + name + "' function", 0);
+        }
+        final double percentile = val.toDouble();
+        if (percentile < 0 || percentile > 100) {
+            throw new ParseException("The percentile of '" + name + "' function must be between 0 and 100", 0);
+        }
+        return percentile;
+    }
+
+    @Override
+    public void addValueReferences(final ValueReferenceIndex valueReferenceIndex) {
+        tDigestReference = valueReferenceIndex.addTDigest(name);
+        super.addValueReferences(valueReferenceIndex);
+    }
+
+    @Override
+    public Generator createGenerator() {
+        final Generator childGenerator = function.createGenerator();
+        return new Gen(childGenerator, tDigestReference, quantile);
+    }
+
+    @Override
+    public boolean isAggregate() {
+        return true;
+    }
+
+    @Override
+    public boolean hasAggregate() {
+        return isAggregate();
+    }
+
+    @Override
+    public boolean requiresChildData() {
+        return function.requiresChildData();
+    }
+
+    private static final class Gen extends AbstractSingleChildGenerator {
+
+        private final TDigestReference tDigestReference;
+        private final double quantile;
+
+        Gen(final Generator childGenerator,
+            final TDigestReference tDigestReference,
+            final double quantile) {
+            super(childGenerator);
+            this.tDigestReference = tDigestReference;
+            this.quantile = quantile;
+        }
+
+        @Override
+        public void set(final Val[] values, final StoredValues storedValues) {
+            childGenerator.set(values, storedValues);
+            final Double d = childGenerator.eval(storedValues, null).toDouble();
+            if (d != null) {
+                final TDigest tDigest = tDigestReference.get(storedValues);
+                tDigest.add(d);
+                tDigestReference.set(storedValues, tDigest);
+            }
+        }
+
+        @Override
+        public Val eval(final StoredValues storedValues, final Supplier<ChildData> childDataSupplier) {
+            final TDigest tDigest = tDigestReference.get(storedValues);
+            if (tDigest.isEmpty()) {
+                return ValNull.INSTANCE;
+            }
+            return ValDouble.create(tDigest.quantile(quantile));
+        }
+
+        @Override
+        public void merge(final StoredValues existingValues, final StoredValues newValues) {
+            final TDigest existing = tDigestReference.get(existingValues);
+            existing.merge(tDigestReference.get(newValues));
+            tDigestReference.set(existingValues, existing);
+            super.merge(existingValues, newValues);
+        }
+    }
+}
@@ -56,6 +56,15 @@ class Ref extends AbstractFunction {
         }
     }
 
+    @Override
+    public VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        if (fieldValReference == null) {
+            return VectorEvaluators.constant(ValNull.INSTANCE);
+        } else {
+            return rows -> VectorEvaluators.column(rows, fieldIndex);
+        }
+    }
+
     @Override
     public void appendString(final StringBuilder sb) {
         sb.append("${");
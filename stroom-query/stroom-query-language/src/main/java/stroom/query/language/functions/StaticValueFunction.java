@@ -59,6 +59,11 @@ public class StaticValueFunction implements Function, Appendable {
         return gen;
     }
 
+    @Override
+    public VectorEvaluator createVectorEvaluator(final ValueReferenceIndex valueReferenceIndex) {
+        return VectorEvaluators.constant(value);
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
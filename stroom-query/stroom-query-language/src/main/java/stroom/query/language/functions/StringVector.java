@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+/**
+ * A block of dictionary encoded string values. Each distinct string is held once and each row holds the index of its
+ * string in the dictionary, or -1 if the row has no value.
+ */
+public final class StringVector implements ValVector {
+
+    private final ValString[] dictionary;
+    private final int[] codes;
+
+    StringVector(final ValString[] dictionary, final int[] codes) {
+        this.dictionary = dictionary;
+        this.codes = codes;
+    }
+
+    @Override
+    public int size() {
+        return codes.length;
+    }
+
+    @Override
+    public Val get(final int row) {
+        final int code = codes[row];
+        if (code < 0) {
+            return ValNull.INSTANCE;
+        }
+        return dictionary[code];
+    }
+
+    @Override
+    public boolean isNull(final int row) {
+        return codes[row] < 0;
+    }
+
+    /**
+     * @return The dictionary index of the row value or -1 if the row has no value.
+     */
+    public int getCode(final int row) {
+        return codes[row];
+    }
+
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+}
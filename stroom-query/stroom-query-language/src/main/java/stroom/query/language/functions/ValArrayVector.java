@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+/**
+ * A block of values of mixed types that can't be held in a primitive array.
+ */
+public final class ValArrayVector implements ValVector {
+
+    private final Val[] values;
+
+    ValArrayVector(final Val[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Val get(final int row) {
+        final Val val = values[row];
+        return val == null
+                ? ValNull.INSTANCE
+                : val;
+    }
+
+    @Override
+    public boolean isNull(final int row) {
+        final Val val = values[row];
+        return val == null || val.type().isNull();
+    }
+}
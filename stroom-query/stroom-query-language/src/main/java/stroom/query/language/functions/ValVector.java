@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+/**
+ * The values of a column or of a function result for a block of rows. Where all the values in the block are of a
+ * single type they are held in a primitive array with a null bitmap so that functions can be evaluated over the whole
+ * block without creating a {@link Val} for every intermediate result.
+ */
+public interface ValVector {
+
+    /**
+     * @return The number of rows in the block.
+     */
+    int size();
+
+    /**
+     * @return The value for the row, never null, {@link ValNull#INSTANCE} if the row has no value.
+     */
+    Val get(int row);
+
+    boolean isNull(int row);
+
+    /**
+     * @return True if every non-null value is a long, integer or double so {@link #getDouble(int)} can be used
+     * instead of {@link #get(int)}.
+     */
+    default boolean isNumeric() {
+        return false;
+    }
+
+    /**
+     * @return The value of a non-null row as a double.
+     */
+    default double getDouble(final int row) {
+        return get(row).toDouble();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import java.util.List;
+
+/**
+ * Evaluates a non-aggregate function for a block of rows at a time.
+ *
+ * @see VectorEvaluators#create(Function, stroom.query.language.functions.ref.ValueReferenceIndex)
+ */
+public interface VectorEvaluator {
+
+    /**
+     * @param rows The raw values of each row in the block.
+     * @return The result of the function for each row.
+     */
+    ValVector eval(List<Val[]> rows);
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+public final class VectorEvaluators {
+
+    private VectorEvaluators() {
+        // Utility class.
+    }
+
+    /**
+     * Create an evaluator for a non-aggregate function. If the function has no vectorised implementation then the
+     * evaluator will use the function's generator to evaluate each row in turn.
+     *
+     * @param function            The function to evaluate. Value references must already have been added to the
+     *                            index for this function.
+     * @param valueReferenceIndex The value reference index used to create stored values for any row by row evaluation.
+     * @return An evaluator for the function.
+     */
+    public static VectorEvaluator create(final Function function,
+                                         final ValueReferenceIndex valueReferenceIndex) {
+        if (function.hasAggregate() || function.requiresChildData()) {
+            throw new IllegalArgumentException("Unable to evaluate aggregate function '" +
+                                               function +
+                                               "' a block at a time");
+        }
+        final VectorEvaluator vectorEvaluator = function.createVectorEvaluator(valueReferenceIndex);
+        if (vectorEvaluator != null) {
+            return vectorEvaluator;
+        }
+        return new GeneratorEvaluator(function.createGenerator(), valueReferenceIndex);
+    }
+
+    /**
+     * @return An evaluator that returns the same value for every row.
+     */
+    public static VectorEvaluator constant(final Val value) {
+        return rows -> new ConstantVector(value, rows.size());
+    }
+
+    static VectorEvaluator[] create(final Function[] functions,
+                                    final ValueReferenceIndex valueReferenceIndex) {
+        final VectorEvaluator[] vectorEvaluators = new VectorEvaluator[functions.length];
+        for (int i = 0; i < functions.length; i++) {
+            vectorEvaluators[i] = create(functions[i], valueReferenceIndex);
+        }
+        return vectorEvaluators;
+    }
+
+    static ValVector[] eval(final VectorEvaluator[] vectorEvaluators, final List<Val[]> rows) {
+        final ValVector[] vectors = new ValVector[vectorEvaluators.length];
+        for (int i = 0; i < vectorEvaluators.length; i++) {
+            vectors[i] = vectorEvaluators[i].eval(rows);
+        }
+        return vectors;
+    }
+
+    static boolean isNumeric(final ValVector[] vectors) {
+        for (final ValVector vector : vectors) {
+            if (!vector.isNumeric()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a vector for the values of a field in a block of rows.
+     */
+    static ValVector column(final List<Val[]> rows, final int fieldIndex) {
+        return encode(rows.size(), row -> rows.get(row)[fieldIndex]);
+    }
+
+    /**
+     * Create a vector holding the supplied values, in a primitive array if they are all of the same type.
+     */
+    static ValVector encode(final Val[] values) {
+        return encode(values.length, row -> values[row]);
+    }
+
+    private static ValVector encode(final int size, final IntFunction<Val> valueFunction) {
+        // Find out if all the values are of a single type that we can hold in a primitive array.
+        Type type = null;
+        boolean mixed = false;
+        for (int row = 0; row < size && !mixed; row++) {
+            final Val val = valueFunction.apply(row);
+            if (val != null && !val.type().isNull()) {
+                final Type valType = getEncodedType(val);
+                if (valType == null) {
+                    mixed = true;
+                } else if (type == null) {
+                    type = valType;
+                } else if (type != valType) {
+                    mixed = true;
+                }
+            }
+        }
+
+        if (mixed) {
+            final Val[] values = new Val[size];
+            for (int row = 0; row < size; row++) {
+                values[row] = valueFunction.apply(row);
+            }
+            return new ValArrayVector(values);
+        } else if (type == null) {
+            return new ConstantVector(ValNull.INSTANCE, size);
+        } else if (type == Type.DOUBLE) {
+            final double[] values = new double[size];
+            final BitSet nulls = new BitSet(size);
+            for (int row = 0; row < size; row++) {
+                final Val val = valueFunction.apply(row);
+                if (val == null || val.type().isNull()) {
+                    nulls.set(row);
+                } else {
+                    values[row] = val.toDouble();
+                }
+            }
+            return new DoubleVector(values, nulls);
+        } else if (type == Type.STRING) {
+            final Map<String, Integer> codeMap = new HashMap<>();
+            final List<ValString> dictionary = new ArrayList<>();
+            final int[] codes = new int[size];
+            for (int row = 0; row < size; row++) {
+                final Val val = valueFunction.apply(row);
+                if (val == null || val.type().isNull()) {
+                    codes[row] = -1;
+                } else {
+                    codes[row] = codeMap.computeIfAbsent(val.toString(), k -> {
+                        dictionary.add((ValString) val);
+                        return dictionary.size() - 1;
+                    });
+                }
+            }
+            return new StringVector(dictionary.toArray(new ValString[0]), codes);
+        } else {
+            final long[] values = new long[size];
+            final BitSet nulls = new BitSet(size);
+            for (int row = 0; row < size; row++) {
+                final Val val = valueFunction.apply(row);
+                if (val == null || val.type().isNull()) {
+                    nulls.set(row);
+                } else {
+                    values[row] = val.toLong();
+                }
+            }
+            return new LongVector(type, values, nulls);
+        }
+    }
+
+    private static Type getEncodedType(final Val val) {
+        if (val instanceof ValLong) {
+            return Type.LONG;
+        } else if (val instanceof ValInteger) {
+            return Type.INTEGER;
+        } else if (val instanceof ValDate) {
+            return Type.DATE;
+        } else if (val instanceof ValDuration) {
+            return Type.DURATION;
+        } else if (val instanceof ValDouble) {
+            return Type.DOUBLE;
+        } else if (val instanceof ValString) {
+            return Type.STRING;
+        }
+        return null;
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * Evaluates a function without a vectorised implementation a row at a time with its generator.
+     */
+    private static final class GeneratorEvaluator implements VectorEvaluator {
+
+        private final Generator generator;
+        private final ValueReferenceIndex valueReferenceIndex;
+
+        private GeneratorEvaluator(final Generator generator,
+                                   final ValueReferenceIndex valueReferenceIndex) {
+            this.generator = generator;
+            this.valueReferenceIndex = valueReferenceIndex;
+        }
+
+        @Override
+        public ValVector eval(final List<Val[]> rows) {
+            final Val[] results = new Val[rows.size()];
+            RuntimeException[] failures = null;
+            for (int row = 0; row < results.length; row++) {
+                try {
+                    final StoredValues storedValues = valueReferenceIndex.createStoredValues();
+                    generator.set(rows.get(row), storedValues);
+                    results[row] = generator.eval(storedValues, null);
+                } catch (final RuntimeException e) {
+                    // Hold on to the failure until the row value is asked for, as it might never be, e.g. if this
+                    // is the branch of an if() that isn't taken.
+                    if (failures == null) {
+                        failures = new RuntimeException[results.length];
+                    }
+                    failures[row] = e;
+                }
+            }
+
+            if (failures != null) {
+                return new FailedRowsVector(results, failures);
+            }
+            return encode(results);
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static final class FailedRowsVector implements ValVector {
+
+        private final Val[] values;
+        private final RuntimeException[] failures;
+
+        private FailedRowsVector(final Val[] values, final RuntimeException[] failures) {
+            this.values = values;
+            this.failures = failures;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Val get(final int row) {
+            if (failures[row] != null) {
+                throw failures[row];
+            }
+            final Val val = values[row];
+            return val == null
+                    ? ValNull.INSTANCE
+                    : val;
+        }
+
+        @Override
+        public boolean isNull(final int row) {
+            return failures[row] == null && get(row).type().isNull();
+        }
+    }
+}
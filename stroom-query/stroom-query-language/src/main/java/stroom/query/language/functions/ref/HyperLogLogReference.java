@@ -0,0 +1,43 @@
+package stroom.query.language.functions.ref;
+
+import stroom.query.language.functions.sketch.HyperLogLog;
+
+public class HyperLogLogReference implements ValueReference<HyperLogLog> {
+
+    private final int index;
+    private final String name;
+
+    HyperLogLogReference(final int index, final String name) {
+        this.index = index;
+        this.name = name;
+    }
+
+    @Override
+    public HyperLogLog get(final StoredValues storedValues) {
+        final Object o = storedValues.get(index);
+        if (o == null) {
+            return new HyperLogLog();
+        }
+        return (HyperLogLog) o;
+    }
+
+    @Override
+    public void set(final StoredValues storedValues, final HyperLogLog value) {
+        storedValues.set(index, value);
+    }
+
+    @Override
+    public void read(final StoredValues storedValues, final DataReader reader) {
+        set(storedValues, HyperLogLog.read(reader));
+    }
+
+    @Override
+    public void write(final StoredValues storedValues, final DataWriter writer) {
+        get(storedValues).write(writer);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
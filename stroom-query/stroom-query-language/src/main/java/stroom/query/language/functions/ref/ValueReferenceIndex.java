@@ -29,6 +29,14 @@ public class ValueReferenceIndex {
         return add(new ValListReference(list.size(), name));
     }
 
+    public HyperLogLogReference addHyperLogLog(final String name) {
+        return add(new HyperLogLogReference(list.size(), name));
+    }
+
+    public TDigestReference addTDigest(final String name) {
+        return add(new TDigestReference(list.size(), name));
+    }
+
     public FieldValReference addFieldValue(final String name, final int fieldIndex) {
         final FieldValReference valueReference =
                 new FieldValReference(list.size(), fieldIndex, name);
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions.sketch;
+
+import stroom.query.language.functions.ref.DataReader;
+import stroom.query.language.functions.ref.DataWriter;
+
+import java.util.Arrays;
+
+/**
+ * A merging t-digest that estimates quantiles of the values added to it. Values are collected into centroids that are
+ * kept small near the tails of the distribution so extreme quantiles remain accurate. The number of centroids is
+ * bounded by the compression factor regardless of how many values are added, and digests can be merged to give the
+ * quantiles of the combined values.
+ */
+public class TDigest {
+
+    private static final double COMPRESSION = 100;
+    // The number of unmerged values we buffer before merging them into the centroids.
+    private static final int MAX_BUFFER_SIZE = (int) (5 * COMPRESSION);
+
+    // Centroids and unmerged values, the centroids are always first and sorted by mean.
+    private double[] means;
+    private double[] weights;
+    private int centroidCount;
+    private int size;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(4);
+    }
+
+    private TDigest(final int capacity) {
+        means = new double[capacity];
+        weights = new double[capacity];
+    }
+
+    public void add(final double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Add all the values from another digest to this one.
+     */
+    public void merge(final TDigest other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public boolean isEmpty() {
+        return totalWeight == 0;
+    }
+
+    /**
+     * @param q The quantile to estimate between 0 and 1.
+     * @return The estimated value at the quantile or NaN if no values have been added.
+     */
+    public double quantile(final double q) {
+        compress();
+        if (centroidCount == 0) {
+            return Double.NaN;
+        } else if (centroidCount == 1) {
+            return means[0];
+        }
+
+        final int n = centroidCount;
+        final double index = q * totalWeight;
+        if (index < 1) {
+            return min;
+        }
+        // One value at each end is the min or max so we can interpolate between them and the outer centroids.
+        if (weights[0] > 1 && index < weights[0] / 2) {
+            return min + (index - 1) / (weights[0] / 2 - 1) * (means[0] - min);
+        }
+        if (index > totalWeight - 1) {
+            return max;
+        }
+        if (weights[n - 1] > 1 && totalWeight - index <= weights[n - 1] / 2) {
+            return max - (totalWeight - index - 1) / (weights[n - 1] / 2 - 1) * (max - means[n - 1]);
+        }
+
+        // Interpolate between the centroids either side of the index.
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < n - 1; i++) {
+            final double dw = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + dw > index) {
+                // A centroid with a single value is exactly that value so don't interpolate into it.
+                double leftUnit = 0;
+                if (weights[i] == 1) {
+                    if (index - weightSoFar < 0.5) {
+                        return means[i];
+                    }
+                    leftUnit = 0.5;
+                }
+                double rightUnit = 0;
+                if (weights[i + 1] == 1) {
+                    if (weightSoFar + dw - index <= 0.5) {
+                        return means[i + 1];
+                    }
+                    rightUnit = 0.5;
+                }
+                final double z1 = index - weightSoFar - leftUnit;
+                final double z2 = weightSoFar + dw - index - rightUnit;
+                return weightedAverage(means[i], z2, means[i + 1], z1);
+            }
+            weightSoFar += dw;
+        }
+
+        final double z1 = index - totalWeight - weights[n - 1] / 2;
+        final double z2 = weights[n - 1] / 2 - z1;
+        return weightedAverage(means[n - 1], z1, max, z2);
+    }
+
+    public void write(final DataWriter writer) {
+        compress();
+        writer.writeInt(centroidCount);
+        if (centroidCount > 0) {
+            writer.writeDouble(min);
+            writer.writeDouble(max);
+            for (int i = 0; i < centroidCount; i++) {
+                writer.writeDouble(means[i]);
+                writer.writeDouble(weights[i]);
+            }
+        }
+    }
+
+    public static TDigest read(final DataReader reader) {
+        final int centroidCount = reader.readInt();
+        final TDigest digest = new TDigest(Math.max(4, centroidCount));
+        if (centroidCount > 0) {
+            digest.min = reader.readDouble();
+            digest.max = reader.readDouble();
+            for (int i = 0; i < centroidCount; i++) {
+                digest.means[i] = reader.readDouble();
+                digest.weights[i] = reader.readDouble();
+                digest.totalWeight += digest.weights[i];
+            }
+            digest.centroidCount = centroidCount;
+            digest.size = centroidCount;
+        }
+        return digest;
+    }
+
+    private void add(final double value, final double weight) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (size == means.length) {
+            if (size - centroidCount >= MAX_BUFFER_SIZE) {
+                compress();
+            }
+            if (size == means.length) {
+                means = Arrays.copyOf(means, means.length * 2);
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+        }
+        means[size] = value;
+        weights[size] = weight;
+        size++;
+        totalWeight += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Merge any buffered values into the centroids.
+     */
+    private void compress() {
+        if (size == centroidCount) {
+            return;
+        }
+
+        // Sort the centroids and buffered values together by mean.
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (o1, o2) -> Double.compare(means[o1], means[o2]));
+
+        final double[] newMeans = new double[means.length];
+        final double[] newWeights = new double[weights.length];
+        int count = 0;
+        double mean = means[order[0]];
+        double weight = weights[order[0]];
+        double weightSoFar = 0;
+        for (int i = 1; i < size; i++) {
+            final int index = order[i];
+            final double proposedWeight = weight + weights[index];
+            final double q0 = weightSoFar / totalWeight;
+            final double q2 = (weightSoFar + proposedWeight) / totalWeight;
+            if (scale(q2) - scale(q0) <= 1) {
+                // Small enough to add to the current centroid.
+                mean += (means[index] - mean) * weights[index] / proposedWeight;
+                weight = proposedWeight;
+            } else {
+                newMeans[count] = mean;
+                newWeights[count] = weight;
+                count++;
+                weightSoFar += weight;
+                mean = means[index];
+                weight = weights[index];
+            }
+        }
+        newMeans[count] = mean;
+        newWeights[count] = weight;
+        count++;
+
+        means = newMeans;
+        weights = newWeights;
+        centroidCount = count;
+        size = count;
+    }
+
+    /**
+     * The k1 scale function that limits the size of each centroid according to its quantile.
+     */
+    private static double scale(final double q) {
+        return COMPRESSION / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+
+    private static double weightedAverage(final double x1, final double w1, final double x2, final double w2) {
+        final double average = (x1 * w1 + x2 * w2) / (w1 + w2);
+        return Math.max(Math.min(x1, x2), Math.min(average, Math.max(x1, x2)));
+    }
+}
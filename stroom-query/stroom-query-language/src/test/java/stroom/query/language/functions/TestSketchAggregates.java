@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
+
+import org.assertj.core.data.Offset;
+import org.junit.jupiter.api.Test;
+
+import java.text.ParseException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestSketchAggregates extends AbstractExpressionParserTest {
+
+    @Test
+    void testCountUniqueApproxSmall() {
+        createGenerator("countUniqueApprox(${val1})", (gen, storedValues) -> {
+            gen.set(Val.of(122D), storedValues);
+            gen.set(Val.of(133D), storedValues);
+            gen.set(Val.of(122D), storedValues);
+            ValAssertions.valLong(2).actual(gen.eval(storedValues, null));
+
+            gen.set(Val.of(11D), storedValues);
+            ValAssertions.valLong(3).actual(gen.eval(storedValues, null));
+        });
+    }
+
+    @Test
+    void testCountUniqueApproxLarge() {
+        final int count = 100_000;
+        createGenerator("countUniqueApprox(${val1})", (gen, storedValues) -> {
+            for (int i = 0; i < count; i++) {
+                gen.set(Val.of("user" + i), storedValues);
+                // Duplicates should not be counted
+                gen.set(Val.of("user" + (i / 2)), storedValues);
+            }
+            final Long estimate = gen.eval(storedValues, null).toLong();
+            assertThat(estimate.doubleValue()).isCloseTo(count, Offset.offset(count * 0.03));
+        });
+    }
+
+    @Test
+    void testCountUniqueApproxStaticValue() {
+        createGenerator("countUniqueApprox('test')", (gen, storedValues) -> {
+            gen.set(Val.of(122D), storedValues);
+            gen.set(Val.of(133D), storedValues);
+            ValAssertions.valLong(1).actual(gen.eval(storedValues, null));
+        });
+    }
+
+    @Test
+    void testCountUniqueApproxMerge() {
+        final int count = 20_000;
+        createMergeGenerator("countUniqueApprox(${val1})", (gen, storedValues1, storedValues2) -> {
+            // Overlapping halves
+            for (int i = 0; i < count * 3 / 4; i++) {
+                gen.set(Val.of(i), storedValues1);
+            }
+            for (int i = count / 4; i < count; i++) {
+                gen.set(Val.of(i), storedValues2);
+            }
+            gen.merge(storedValues1, storedValues2);
+            final Long estimate = gen.eval(storedValues1, null).toLong();
+            assertThat(estimate.doubleValue()).isCloseTo(count, Offset.offset(count * 0.03));
+        });
+    }
+
+    @Test
+    void testMedian() {
+        createGenerator("median(${val1})", (gen, storedValues) -> {
+            assertThat(gen.eval(storedValues, null)).isEqualTo(ValNull.INSTANCE);
+            for (int i = 1000; i > 0; i--) {
+                gen.set(Val.of(i), storedValues);
+            }
+            assertThat(gen.eval(storedValues, null).toDouble()).isCloseTo(500.5, Offset.offset(5D));
+        });
+    }
+
+    @Test
+    void testPercentile() {
+        createGenerator("percentile(${val1}, 95)", (gen, storedValues) -> {
+            for (int i = 1; i <= 1000; i++) {
+                gen.set(Val.of(i), storedValues);
+            }
+            assertThat(gen.eval(storedValues, null).toDouble()).isCloseTo(950.5, Offset.offset(5D));
+        });
+    }
+
+    @Test
+    void testPercentileSingleValue() {
+        createGenerator("percentile(${val1}, 99)", (gen, storedValues) -> {
+            gen.set(Val.of(42), storedValues);
+            ValAssertions.valDouble(42).actual(gen.eval(storedValues, null));
+        });
+    }
+
+    @Test
+    void testPercentileMerge() {
+        createMergeGenerator("percentile(${val1}, 25)", (gen, storedValues1, storedValues2) -> {
+            for (int i = 1; i <= 1000; i++) {
+                gen.set(Val.of(i), i % 2 == 0
+                        ? storedValues1
+                        : storedValues2);
+            }
+            gen.merge(storedValues1, storedValues2);
+            assertThat(gen.eval(storedValues1, null).toDouble()).isCloseTo(250.5, Offset.offset(5D));
+        });
+    }
+
+    @Test
+    void testPercentileOutOfRange() {
+        assertThatThrownBy(() -> parser.parse(new ExpressionContext(), new FieldIndex(), "percentile(${val1}, 101)"))
+                .isInstanceOf(ParseException.class);
+        assertThatThrownBy(() -> parser.parse(new ExpressionContext(), new FieldIndex(), "percentile(${val1}, 'a')"))
+                .isInstanceOf(ParseException.class);
+    }
+
+    private void createMergeGenerator(final String expression, final MergeConsumer consumer) {
+        createExpression(expression, exp -> {
+            final ValueReferenceIndex valueReferenceIndex = new ValueReferenceIndex();
+            exp.addValueReferences(valueReferenceIndex);
+            final StoredValues storedValues1 = valueReferenceIndex.createStoredValues();
+            final StoredValues storedValues2 = valueReferenceIndex.createStoredValues();
+            final Generator gen = exp.createGenerator();
+            consumer.accept(gen, storedValues1, storedValues2);
+            testKryo(valueReferenceIndex, gen, storedValues1);
+        });
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private interface MergeConsumer {
+
+        void accept(Generator gen, StoredValues storedValues1, StoredValues storedValues2);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.query.language.functions;
+
+import stroom.query.language.functions.ref.StoredValues;
+import stroom.query.language.functions.ref.ValueReferenceIndex;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestVectorEvaluators extends AbstractExpressionParserTest {
+
+    private static final List<Val[]> NUMERIC_ROWS = List.of(
+            new Val[]{ValLong.create(1), ValLong.create(2), ValString.create("a")},
+            new Val[]{ValLong.create(4), ValLong.create(0), ValString.create("b")},
+            new Val[]{null, ValLong.create(3), null},
+            new Val[]{ValLong.create(7), ValLong.create(2), ValString.create("a")});
+
+    private static final List<Val[]> DOUBLE_ROWS = List.of(
+            new Val[]{ValDouble.create(1.5), ValDouble.create(0.5), ValString.create("a")},
+            new Val[]{ValDouble.create(-2), ValNull.INSTANCE, ValString.create("a")},
+            new Val[]{ValDouble.create(0), ValDouble.create(0), ValString.create("c")});
+
+    private static final List<Val[]> MIXED_ROWS = List.of(
+            new Val[]{ValLong.create(1), ValString.create("x"), ValDouble.create(2)},
+            new Val[]{ValDouble.create(2.5), ValLong.create(1), ValLong.create(3)},
+            new Val[]{ValDuration.create(1000), ValDuration.create(2000), ValString.create("c")},
+            new Val[]{ValDate.create(1000), ValDuration.create(500), null},
+            new Val[]{ValErr.create("bad"), ValLong.create(1), ValString.create("d")},
+            new Val[]{ValBoolean.TRUE, ValInteger.create(5), ValString.create("e")});
+
+    @TestFactory
+    Stream<DynamicTest> testMatchesGenerator() {
+        return Stream.of(
+                        "${val1}",
+                        "${val1}+${val2}",
+                        "${val1}+${val2}+${val3}",
+                        "${val1}-${val2}",
+                        "${val1}*${val2}*2",
+                        "${val1}/${val2}",
+                        "${val1}%${val2}",
+                        "${val1}^2",
+                        "-${val1}",
+                        "concat(${val3}, '-', ${val1})",
+                        "if(${val1}>1, ${val3}, 'none')",
+                        "if(true, ${val1}, ${val2})",
+                        "upperCase(${val3})",
+                        "'constant'")
+                .map(expression -> DynamicTest.dynamicTest(expression, () ->
+                        createExpression(expression, 3, exp -> {
+                            final ValueReferenceIndex valueReferenceIndex = new ValueReferenceIndex();
+                            exp.addValueReferences(valueReferenceIndex);
+                            final Generator generator = exp.createGenerator();
+                            final VectorEvaluator vectorEvaluator = VectorEvaluators.create(exp, valueReferenceIndex);
+
+                            for (final List<Val[]> rows : List.of(NUMERIC_ROWS, DOUBLE_ROWS, MIXED_ROWS)) {
+                                final ValVector vector = vectorEvaluator.eval(rows);
+                                assertThat(vector.size()).isEqualTo(rows.size());
+                                for (int row = 0; row < rows.size(); row++) {
+                                    final StoredValues storedValues = valueReferenceIndex.createStoredValues();
+                                    generator.set(rows.get(row), storedValues);
+                                    final Val expected = generator.eval(storedValues, null);
+                                    assertThat(valToString(vector.get(row)))
+                                            .describedAs("row %s", row)
+                                            .isEqualTo(valToString(expected));
+                                }
+                            }
+                        })));
+    }
+
+    @Test
+    void testPrimitiveVectors() {
+        createExpression("${val1}*${val2}", 3, exp -> {
+            final ValueReferenceIndex valueReferenceIndex = new ValueReferenceIndex();
+            exp.addValueReferences(valueReferenceIndex);
+            final ValVector vector = VectorEvaluators.create(exp, valueReferenceIndex).eval(NUMERIC_ROWS);
+            assertThat(vector).isInstanceOf(DoubleVector.class);
+            assertThat(vector.getDouble(0)).isEqualTo(2);
+            assertThat(vector.isNull(2)).isTrue();
+        });
+
+        createExpression("concat(${val3}, '!')", 3, exp -> {
+            final ValueReferenceIndex valueReferenceIndex = new ValueReferenceIndex();
+            exp.addValueReferences(valueReferenceIndex);
+            final ValVector vector = VectorEvaluators.create(exp, valueReferenceIndex).eval(NUMERIC_ROWS);
+            assertThat(vector).isInstanceOf(StringVector.class);
+            // 'a!' is only held once.
+            assertThat(((StringVector) vector).getDictionarySize()).isEqualTo(3);
+            assertThat(vector.get(0)).isSameAs(vector.get(3));
+        });
+    }
+}
@@ -21,8 +21,13 @@ import stroom.meta.api.AttributeMap;
 import stroom.meta.api.AttributeMapper;
 import stroom.meta.api.StandardHeaderArguments;
 import stroom.proxy.StroomStatusCode;
+import stroom.query.api.ExpressionItem;
 import stroom.query.api.ExpressionOperator;
+import stroom.query.api.ExpressionOperator.Op;
+import stroom.query.api.ExpressionTerm;
+import stroom.query.api.ExpressionTerm.Condition;
 import stroom.query.api.ExpressionUtil;
+import stroom.query.api.datasource.FieldType;
 import stroom.query.api.datasource.QueryField;
 import stroom.query.common.v2.ExpressionPredicateFactory;
 import stroom.query.common.v2.ExpressionPredicateFactory.ValueFunctionFactories;
@@ -44,16 +49,21 @@ import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Singleton
 public class DataReceiptPolicyAttributeMapFilterFactoryImpl implements DataReceiptPolicyAttributeMapFilterFactory {
@@ -161,6 +171,7 @@ public class DataReceiptPolicyAttributeMapFilterFactoryImpl implements DataRecei
                             expressionPredicateFactory,
                             activeRules,
                             valueFunctionFactories,
+                            usedFieldMap,
                             attributeMapper,
                             NO_MATCH_OR_NO_RULES_ACTION, // Rules are essentially 'allow' rules rather than 'deny'.
                             receiveActionMetricsRecorderProvider.get());
@@ -217,41 +228,134 @@ public class DataReceiptPolicyAttributeMapFilterFactoryImpl implements DataRecei
     // --------------------------------------------------------------------------------
 
 
+    /**
+     * Checks attribute maps against the active rules. A new instance is created each time the rules
+     * are re-fetched, so the rule index and decision cache held by it never outlive the rules they
+     * were built from.
+     * <p>
+     * To avoid testing every rule for every request, rules whose expression is an AND that requires
+     * an exact (case-insensitive) match on the feed name are indexed by that feed name. Only the
+     * rules indexed for the feed of the request and the rules that can't be indexed are tested,
+     * in their original order.
+     * <p>
+     * As the outcome depends only on the values of the fields used by the rules, decisions are held
+     * in a bounded cache keyed on those values. The cache is only used if all the used fields are
+     * text fields as date and numeric fields (e.g. ReceivedTime) tend to be unique per request.
+     */
     private static class CheckerImpl implements Checker {
 
-        private final ExpressionPredicateFactory expressionMatcher;
+        private static final int NO_MATCH = -1;
+        private static final int MAX_CACHED_DECISIONS = 10_000;
+
         private final List<ReceiveDataRule> activeRules;
-        private final ValueFunctionFactories<AttributeMap> valueFunctionFactories;
         private final AttributeMapper attributeMapper;
-        private final Map<Integer, Predicate<AttributeMap>> ruleNoToPredicateFactoryMap;
         private final ReceiveAction noMatchAction;
         private final ReceiveActionMetricsRecorder receiveActionMetricsRecorder;
-
+        // Predicate for each rule, null if the rule has no expression so matches everything
+        private final Predicate<AttributeMap>[] rulePredicates;
+        // Error thrown when creating the predicate for each rule, null if there was no error
+        private final RuntimeException[] ruleErrors;
+        private final int[] allRuleIndexes;
+        private final int[] unindexedRuleIndexes;
+        // Upper case feed name => indexes of the rules to test for that feed
+        private final Map<String, int[]> feedToRuleIndexesMap;
+        // The fields used by the rules, or null if decisions are not cached
+        private final String[] decisionFields;
+        private final Map<DecisionKey, Integer> decisionCache = new ConcurrentHashMap<>();
+
+        @SuppressWarnings("unchecked")
         CheckerImpl(final ExpressionPredicateFactory expressionMatcher,
                     final List<ReceiveDataRule> activeRules,
                     final ValueFunctionFactories<AttributeMap> valueFunctionFactories,
+                    final Map<String, QueryField> usedFieldMap,
                     final AttributeMapper attributeMapper,
                     final ReceiveAction noMatchAction,
                     final ReceiveActionMetricsRecorder receiveActionMetricsRecorder) {
-            this.expressionMatcher = expressionMatcher;
             this.activeRules = activeRules;
-            this.valueFunctionFactories = valueFunctionFactories;
             this.attributeMapper = attributeMapper;
             this.receiveActionMetricsRecorder = receiveActionMetricsRecorder;
-            this.ruleNoToPredicateFactoryMap = new HashMap<>();
             this.noMatchAction = noMatchAction;
+
+            final int ruleCount = activeRules.size();
+            rulePredicates = new Predicate[ruleCount];
+            ruleErrors = new RuntimeException[ruleCount];
+            allRuleIndexes = IntStream.range(0, ruleCount).toArray();
+
+            final boolean isFeedIndexable = NullSafe.test(
+                    usedFieldMap.get(StandardHeaderArguments.FEED),
+                    field -> FieldType.TEXT.equals(field.getFldType()));
+            final List<Integer> unindexed = new ArrayList<>();
+            final Map<String, List<Integer>> feedToIndexes = new HashMap<>();
+
+            for (int i = 0; i < ruleCount; i++) {
+                final ExpressionOperator ruleExpression = activeRules.get(i).getExpression();
+                if (ruleExpression != null) {
+                    try {
+                        rulePredicates[i] = expressionMatcher.create(ruleExpression, valueFunctionFactories);
+                    } catch (final RuntimeException e) {
+                        // Hold on to the error so it surfaces if we get as far as this rule, as it
+                        // would have done if we created the predicate at that point.
+                        ruleErrors[i] = e;
+                    }
+                }
+                final String feedName = isFeedIndexable
+                        ? getRequiredFeedName(ruleExpression)
+                        : null;
+                if (feedName != null) {
+                    feedToIndexes.computeIfAbsent(feedName, k -> new ArrayList<>()).add(i);
+                } else {
+                    unindexed.add(i);
+                }
+            }
+
+            unindexedRuleIndexes = toSortedArray(unindexed, List.of());
+            feedToRuleIndexesMap = new HashMap<>();
+            feedToIndexes.forEach((feedName, indexes) ->
+                    feedToRuleIndexesMap.put(feedName, toSortedArray(indexes, unindexed)));
+
+            final boolean allTextFields = usedFieldMap.values()
+                    .stream()
+                    .allMatch(field -> FieldType.TEXT.equals(field.getFldType()));
+            decisionFields = allTextFields
+                    ? usedFieldMap.keySet().stream().sorted().toArray(String[]::new)
+                    : null;
+
+            LOGGER.debug(() -> LogUtil.message(
+                    "Created checker with {} rules, {} indexed by feed name, {} distinct feeds, " +
+                    "decision cache enabled: {}",
+                    ruleCount, ruleCount - unindexed.size(), feedToRuleIndexesMap.size(), allTextFields));
         }
 
         @Override
         public ReceiveAction check(final AttributeMap attributeMap) throws StroomStreamException {
             return LOGGER.logDurationIfDebugEnabled(
                     () -> {
+                        final long startNanos = System.nanoTime();
                         // First we need to hash any values for fields that need hashing.
                         // Then we will be evaluating hashed values in the attribute map against hashed
                         // values in the terms.
                         final AttributeMap effectiveAttrMap = attributeMapper.mapAttributes(attributeMap);
 
-                        final ReceiveDataRule matchingRule = findMatchingRule(effectiveAttrMap);
+                        final DecisionKey decisionKey = createDecisionKey(effectiveAttrMap);
+                        final Integer cachedRuleIdx = NullSafe.get(decisionKey, decisionCache::get);
+                        final int ruleIdx;
+                        if (cachedRuleIdx != null) {
+                            ruleIdx = cachedRuleIdx;
+                        } else {
+                            ruleIdx = findMatchingRule(effectiveAttrMap);
+                            // Once full, the cache just holds the values seen first. No eviction
+                            // needed as the cache is thrown away when the rules are next fetched.
+                            if (decisionKey != null && decisionCache.size() < MAX_CACHED_DECISIONS) {
+                                decisionCache.put(decisionKey, ruleIdx);
+                            }
+                        }
+                        receiveActionMetricsRecorder.recordRuleDecision(
+                                cachedRuleIdx != null,
+                                System.nanoTime() - startNanos);
+
+                        final ReceiveDataRule matchingRule = ruleIdx == NO_MATCH
+                                ? null
+                                : activeRules.get(ruleIdx);
                         // The default action is to receive data.
                         final ReceiveAction receiveAction = NullSafe.getOrElse(
                                 matchingRule,
@@ -270,8 +374,9 @@ public class DataReceiptPolicyAttributeMapFilterFactoryImpl implements DataRecei
 
                         LOGGER.debug(() -> LogUtil.message(
                                 "check() - matchingRule: '{}', ruleNo: {}, receiveAction: {}, " +
-                                "noMatchAction: {}, rule count: {}",
-                                matchingRule, ruleNo, receiveAction, noMatchAction, NullSafe.size(activeRules)));
+                                "noMatchAction: {}, rule count: {}, cacheHit: {}",
+                                matchingRule, ruleNo, receiveAction, noMatchAction, NullSafe.size(activeRules),
+                                cachedRuleIdx != null));
 
                         if (receiveAction == ReceiveAction.REJECT) {
                             throw new StroomStreamException(StroomStatusCode.REJECTED_BY_POLICY_RULES, attributeMap);
@@ -283,28 +388,31 @@ public class DataReceiptPolicyAttributeMapFilterFactoryImpl implements DataRecei
                             attributeMap, ruleAction));
         }
 
-        private ReceiveDataRule findMatchingRule(final AttributeMap attributeMap) {
-            for (final ReceiveDataRule rule : activeRules) {
-                final ExpressionOperator ruleExpression = rule.getExpression();
-
-                if (ruleExpression == null) {
+        /**
+         * @return The index of the first matching rule or {@link CheckerImpl#NO_MATCH}.
+         */
+        private int findMatchingRule(final AttributeMap attributeMap) {
+            final int[] ruleIndexes = getCandidateRuleIndexes(attributeMap.get(StandardHeaderArguments.FEED));
+            for (final int ruleIdx : ruleIndexes) {
+                final ReceiveDataRule rule = activeRules.get(ruleIdx);
+                if (ruleErrors[ruleIdx] != null) {
+                    throw ruleErrors[ruleIdx];
+                }
+                final Predicate<AttributeMap> predicate = rulePredicates[ruleIdx];
+                if (predicate == null) {
                     LOGGER.trace(() -> LogUtil.message(
                             "findMatchingRule() - Null ruleExpression, rule {}, ruleAction: {}, attributeMap: {}",
                             rule, rule.getAction(), attributeMap));
-                    return rule;
+                    return ruleIdx;
                 }
 
-                // Lazily create the predicate in case we match on the first rule
-                final Predicate<AttributeMap> predicate = ruleNoToPredicateFactoryMap.computeIfAbsent(
-                        rule.getRuleNumber(),
-                        ruleNo -> expressionMatcher.create(ruleExpression, valueFunctionFactories));
                 try {
                     final boolean isMatch = predicate.test(attributeMap);
                     LOGGER.trace(() -> LogUtil.message(
                             "findMatchingRule() - Rule {}, isMatch: {}, ruleAction: {}, attributeMap: {}",
                             rule, isMatch, rule.getAction(), attributeMap));
                     if (isMatch) {
-                        return rule;
+                        return ruleIdx;
                     }
                     // Carry on to the next rule
                 } catch (final RuntimeException e) {
@@ -312,9 +420,124 @@ public class DataReceiptPolicyAttributeMapFilterFactoryImpl implements DataRecei
                     // Try the next rule
                 }
             }
-            LOGGER.trace(() -> LogUtil.message("findMatchingRule() - No matched after {} active rules",
-                    activeRules.size()));
+            LOGGER.trace(() -> LogUtil.message("findMatchingRule() - No matched after {} of {} active rules",
+                    ruleIndexes.length, activeRules.size()));
+            return NO_MATCH;
+        }
+
+        private int[] getCandidateRuleIndexes(final String feedName) {
+            if (feedToRuleIndexesMap.isEmpty()) {
+                return allRuleIndexes;
+            } else if (feedName == null) {
+                // Can't match any of the indexed rules
+                return unindexedRuleIndexes;
+            } else if (!isAscii(feedName)) {
+                // equalsIgnoreCase can equate some non-ascii chars with ascii ones so
+                // we can't rely on the index
+                return allRuleIndexes;
+            } else {
+                return Objects.requireNonNullElse(
+                        feedToRuleIndexesMap.get(feedName.toUpperCase(Locale.ROOT)),
+                        unindexedRuleIndexes);
+            }
+        }
+
+        private DecisionKey createDecisionKey(final AttributeMap attributeMap) {
+            if (decisionFields == null) {
+                return null;
+            }
+            final String[] values = new String[decisionFields.length];
+            for (int i = 0; i < decisionFields.length; i++) {
+                values[i] = attributeMap.get(decisionFields[i]);
+            }
+            return new DecisionKey(values);
+        }
+
+        /**
+         * @return The upper case feed name that the expression requires an exact match on or null
+         * if there isn't one.
+         */
+        private static String getRequiredFeedName(final ExpressionOperator expression) {
+            if (expression == null || !Op.AND.equals(expression.op())) {
+                return null;
+            }
+            for (final ExpressionItem child : NullSafe.list(expression.getChildren())) {
+                if (child instanceof final ExpressionTerm term
+                    && term.enabled()
+                    && Condition.EQUALS.equals(term.getCondition())
+                    && StandardHeaderArguments.FEED.equals(NullSafe.get(term.getField(), String::trim))) {
+                    final String value = term.getValue();
+                    if (isIndexableFeedName(value)) {
+                        return ExpressionPredicateFactory.unescape(value).toUpperCase(Locale.ROOT);
+                    }
+                }
+            }
             return null;
         }
+
+        /**
+         * The term predicate for a text field is only a case-insensitive string equality if the value
+         * doesn't contain wildcards and can't be parsed as a date or number, so be conservative.
+         */
+        private static boolean isIndexableFeedName(final String value) {
+            if (NullSafe.isBlankString(value)
+                || !isAscii(value)
+                || !Character.isLetter(value.charAt(0))
+                || value.indexOf('(') != -1
+                || ExpressionPredicateFactory.containsWildcard(value)) {
+                return false;
+            }
+            try {
+                Double.parseDouble(value);
+                // e.g. NaN or Infinity
+                return false;
+            } catch (final NumberFormatException e) {
+                return true;
+            }
+        }
+
+        private static boolean isAscii(final String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) > 127) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int[] toSortedArray(final List<Integer> indexes1, final List<Integer> indexes2) {
+            return Stream.concat(indexes1.stream(), indexes2.stream())
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * The values of the fields used by the rules.
+     */
+    private record DecisionKey(String[] values) {
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            return o instanceof final DecisionKey that && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
     }
 }
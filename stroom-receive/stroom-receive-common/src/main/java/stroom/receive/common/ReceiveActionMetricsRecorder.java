@@ -7,18 +7,24 @@ import stroom.util.metrics.Metrics;
 import stroom.util.shared.NullSafe;
 
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
 import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Wraps one metrics {@link Meter} for each of the {@link ReceiveAction} values.
+ * Wraps one metrics {@link Meter} for each of the {@link ReceiveAction} values, plus metrics
+ * for the hit rate and latency of the receipt policy rule decisions.
  */
 @Singleton
 public class ReceiveActionMetricsRecorder {
 
     private final EnumMap<ReceiveAction, Meter> metersMap = new EnumMap<>(ReceiveAction.class);
+    private final Meter ruleDecisionCacheHitMeter;
+    private final Meter ruleDecisionCacheMissMeter;
+    private final Timer ruleDecisionTimer;
 
     @Inject
     public ReceiveActionMetricsRecorder(final Metrics metrics) {
@@ -30,6 +36,37 @@ public class ReceiveActionMetricsRecorder {
                     .createAndRegister();
             metersMap.put(receiveAction, meter);
         }
+        ruleDecisionCacheHitMeter = metrics.registrationBuilder(getClass())
+                .addNamePart("ruleDecision")
+                .addNamePart("cacheHit")
+                .meter()
+                .createAndRegister();
+        ruleDecisionCacheMissMeter = metrics.registrationBuilder(getClass())
+                .addNamePart("ruleDecision")
+                .addNamePart("cacheMiss")
+                .meter()
+                .createAndRegister();
+        ruleDecisionTimer = metrics.registrationBuilder(getClass())
+                .addNamePart("ruleDecision")
+                .addNamePart("time")
+                .timer()
+                .createAndRegister();
+    }
+
+    /**
+     * Records a receipt policy rule decision.
+     *
+     * @param cacheHit      True if the decision came from the decision cache rather than
+     *                      evaluating the rules.
+     * @param durationNanos The time taken to make the decision.
+     */
+    public void recordRuleDecision(final boolean cacheHit, final long durationNanos) {
+        if (cacheHit) {
+            ruleDecisionCacheHitMeter.mark();
+        } else {
+            ruleDecisionCacheMissMeter.mark();
+        }
+        ruleDecisionTimer.update(durationNanos, TimeUnit.NANOSECONDS);
     }
 
     public void record(final ReceiveAction receiveAction) {
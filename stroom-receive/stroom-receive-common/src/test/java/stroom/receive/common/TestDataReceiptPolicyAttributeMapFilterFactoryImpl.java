@@ -316,6 +316,108 @@ class TestDataReceiptPolicyAttributeMapFilterFactoryImpl {
         });
     }
 
+    @Test
+    void test_feedIndexedRules() {
+        final DataReceiptPolicyAttributeMapFilterFactoryImpl factory =
+                new DataReceiptPolicyAttributeMapFilterFactoryImpl(
+                        mockReceiveDataRuleSetService,
+                        new ExpressionPredicateFactoryFactory(),
+                        () -> mockReceiveDataConfig,
+                        () -> mockReceiveActionMetricsRecorder);
+
+        int ruleNo = 0;
+        final ReceiveDataRules receiveDataRules = ReceiveDataRules.builder()
+                // Indexed on FEED_1
+                .addRule(ReceiveDataRule.builder()
+                        .withRuleNumber(++ruleNo)
+                        .withAction(ReceiveAction.RECEIVE)
+                        .withEnabled(true)
+                        .withExpression(ExpressionOperator.builder()
+                                .addTerm(ExpressionTerm.equals(StandardHeaderArguments.FEED, FEED_1))
+                                .addTerm(ExpressionTerm.equals(StandardHeaderArguments.SYSTEM, SYSTEM_1))
+                                .build())
+                        .build())
+                // Not indexed
+                .addRule(ReceiveDataRule.builder()
+                        .withRuleNumber(++ruleNo)
+                        .withAction(ReceiveAction.DROP)
+                        .withEnabled(true)
+                        .withExpression(ExpressionUtil.equals(StandardHeaderArguments.SYSTEM, SYSTEM_2))
+                        .build())
+                // Indexed on FEED_2, matched case-insensitively
+                .addRule(ReceiveDataRule.builder()
+                        .withRuleNumber(++ruleNo)
+                        .withAction(ReceiveAction.RECEIVE)
+                        .withEnabled(true)
+                        .withExpression(ExpressionUtil.equals(StandardHeaderArguments.FEED, FEED_2.toLowerCase()))
+                        .build())
+                // Wildcard so not indexed
+                .addRule(ReceiveDataRule.builder()
+                        .withRuleNumber(++ruleNo)
+                        .withAction(ReceiveAction.DROP)
+                        .withEnabled(true)
+                        .withExpression(ExpressionUtil.equals(StandardHeaderArguments.FEED, "FEED_*"))
+                        .build())
+                .addField(FIELD_FEED)
+                .addField(FIELD_SYSTEM)
+                .build();
+
+        final WordListProvider wordListProvider = new WordListProviderFactory().create(Map.of());
+
+        Mockito.when(mockReceiveDataRuleSetService.getBundledRules())
+                .thenReturn(new BundledRules(
+                        receiveDataRules,
+                        wordListProvider,
+                        AttributeMapper.identity()));
+
+        final AttributeMapFilter filter = factory.create();
+
+        // RECEIVE by rule 1
+        AttributeMap attributeMap = createAttrMap(FEED_1, SYSTEM_1, null);
+        assertThat(filter.filter(attributeMap))
+                .isTrue();
+        assertThat(attributeMap.get(StandardHeaderArguments.DATA_RECEIPT_RULE))
+                .isEqualTo("1");
+
+        // DROP by rule 2
+        assertThat(filter.filter(createAttrMap(FEED_1, SYSTEM_2, null)))
+                .isFalse();
+
+        // RECEIVE by rule 3
+        attributeMap = createAttrMap(FEED_2, SYSTEM_1, null);
+        assertThat(filter.filter(attributeMap))
+                .isTrue();
+        assertThat(attributeMap.get(StandardHeaderArguments.DATA_RECEIPT_RULE))
+                .isEqualTo("3");
+
+        // DROP by rule 2 as it comes before rule 3
+        assertThat(filter.filter(createAttrMap(FEED_2, SYSTEM_2, null)))
+                .isFalse();
+
+        // DROP by rule 4
+        attributeMap = createAttrMap(FEED_3, SYSTEM_1, null);
+        assertThat(filter.filter(attributeMap))
+                .isFalse();
+        assertThat(attributeMap.get(StandardHeaderArguments.DATA_RECEIPT_RULE))
+                .isEqualTo("4");
+
+        // No match on any rule, so REJECT
+        assertRejected(() ->
+                filter.filter(createAttrMap("OTHER_FEED", SYSTEM_1, null)));
+
+        // Same values as the first check so the decision comes from the cache
+        attributeMap = createAttrMap(FEED_1, SYSTEM_1, null);
+        assertThat(filter.filter(attributeMap))
+                .isTrue();
+        assertThat(attributeMap.get(StandardHeaderArguments.DATA_RECEIPT_RULE))
+                .isEqualTo("1");
+
+        Mockito.verify(mockReceiveActionMetricsRecorder, Mockito.times(6))
+                .recordRuleDecision(Mockito.eq(false), Mockito.anyLong());
+        Mockito.verify(mockReceiveActionMetricsRecorder, Mockito.times(1))
+                .recordRuleDecision(Mockito.eq(true), Mockito.anyLong());
+    }
+
     @Test
     void test_numericValue() {
         final DataReceiptPolicyAttributeMapFilterFactoryImpl factory =
@@ -28,18 +28,28 @@ import stroom.query.api.ExpressionTerm.Condition;
 import stroom.query.api.datasource.FieldType;
 import stroom.query.api.datasource.QueryField;
 import stroom.query.common.v2.DateExpressionParser;
+import stroom.util.shared.NullSafe;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 public class ExpressionMatcher {
 
     private static final String DELIMITER = ",";
+    // Two reference times far enough apart to change the result of any relative date expression
+    private static final long REFERENCE_TIME_1 = 0;
+    private static final long REFERENCE_TIME_2 = 500L * 24 * 60 * 60 * 1000;
 
     private final Map<String, QueryField> fieldMap;
     private final WordListProvider wordListProvider;
@@ -74,6 +84,228 @@ public class ExpressionMatcher {
         return matchItem(attributeMap, item);
     }
 
+    /**
+     * Turns the expression into a predicate that gives the same result as {@link #match(Map, ExpressionItem)}
+     * but without interpreting the expression on each call. Term values are parsed, wildcards compiled
+     * and dictionaries loaded once, so the predicate should be held and reused when matching many
+     * attribute maps against the same expression.
+     * <p>
+     * Terms that can't be compiled, e.g. because they are invalid or use relative dates that change
+     * over time, are matched in the same way as {@link #match(Map, ExpressionItem)}, including
+     * throwing an exception when they are tested.
+     */
+    public Predicate<Map<String, Object>> compile(final ExpressionItem item) {
+        // If the initial item is null or not enabled then don't match.
+        if (item == null || !item.enabled()) {
+            return attributeMap -> true;
+        }
+        return compileItem(item);
+    }
+
+    private Predicate<Map<String, Object>> compileItem(final ExpressionItem item) {
+        if (!item.enabled()) {
+            return attributeMap -> true;
+        }
+
+        if (item instanceof final ExpressionOperator operator) {
+            return compileOperator(operator);
+        } else if (item instanceof final ExpressionTerm term) {
+            try {
+                return compileTerm(term);
+            } catch (final RuntimeException e) {
+                // Let the interpreted term deal with the problem when it is matched
+                return attributeMap -> matchTerm(attributeMap, term);
+            }
+        } else {
+            throw new MatchException("Unexpected item type");
+        }
+    }
+
+    private Predicate<Map<String, Object>> compileOperator(final ExpressionOperator operator) {
+        if (!operator.hasEnabledChildren()) {
+            return attributeMap -> true;
+        }
+        final List<ExpressionItem> enabledChildren = operator.getEnabledChildren();
+        @SuppressWarnings("unchecked") final Predicate<Map<String, Object>>[] children = enabledChildren
+                .stream()
+                .map(this::compileItem)
+                .toArray(Predicate[]::new);
+        return switch (operator.op()) {
+            case AND -> attributeMap -> {
+                for (final Predicate<Map<String, Object>> child : children) {
+                    if (!child.test(attributeMap)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+            case OR -> attributeMap -> {
+                for (final Predicate<Map<String, Object>> child : children) {
+                    if (child.test(attributeMap)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+            case NOT -> children.length == 1
+                    ? children[0].negate()
+                    : attributeMap -> false;
+        };
+    }
+
+    private Predicate<Map<String, Object>> compileTerm(final ExpressionTerm term) {
+        final Condition condition = term.getCondition();
+        final String termField = NullSafe.get(term.getField(), String::trim);
+        final String termValue = NullSafe.get(term.getValue(), String::trim);
+        final DocRef docRef = term.getDocRef();
+
+        // Do the same validation as matchTerm, any failure falls back to matchTerm
+        if (termField == null || termField.isEmpty()) {
+            throw new MatchException("Field not set");
+        }
+        final QueryField field = fieldMap.get(termField);
+        if (field == null) {
+            throw new MatchException("Field not found in index: " + termField);
+        }
+        final String fieldName = field.getFldName();
+        if (Condition.IN_DICTIONARY.equals(condition) ||
+            Condition.IN_FOLDER.equals(condition) ||
+            Condition.IS_DOC_REF.equals(condition) ||
+            Condition.OF_DOC_REF.equals(condition)) {
+            if (docRef == null || docRef.getUuid() == null) {
+                throw new MatchException("DocRef not set for field: " + termField);
+            }
+        } else {
+            if (termValue == null || termValue.isEmpty()) {
+                throw new MatchException("Value not set");
+            }
+        }
+
+        // Note the attribute is looked up with the un-trimmed field name as per matchTerm
+        final String attributeName = term.getField();
+        if (Condition.IS_NULL.equals(condition)) {
+            return attributeMap -> attributeMap.get(attributeName) == null;
+        } else if (Condition.IS_NOT_NULL.equals(condition)) {
+            return attributeMap -> attributeMap.get(attributeName) != null;
+        }
+
+        if (field.isNumeric()) {
+            final LongPredicate longPredicate = compileLongTerm(
+                    condition,
+                    termValue,
+                    docRef,
+                    value -> getNumbers(fieldName, value));
+            return attributeMap -> longPredicate.test(getNumber(fieldName, getAttribute(attributeMap, term)));
+        } else if (FieldType.DATE.equals(field.getFldType())) {
+            final LongPredicate longPredicate = compileLongTerm(
+                    condition,
+                    termValue,
+                    docRef,
+                    value -> getConstantDates(fieldName, value));
+            return attributeMap -> longPredicate.test(getDate(fieldName, getAttribute(attributeMap, term)));
+        } else {
+            final StringMatcher stringMatcher;
+            switch (condition) {
+                case EQUALS, CONTAINS, NOT_EQUALS -> stringMatcher = new StringMatcher(List.of(termValue));
+                case IN -> stringMatcher = new StringMatcher(Arrays.asList(termValue.split(" ")));
+                case IN_DICTIONARY -> {
+                    final List<String> words = new ArrayList<>();
+                    NullSafe.forEach(loadWords(docRef), line -> words.addAll(Arrays.asList(line.split(" "))));
+                    stringMatcher = new StringMatcher(words);
+                }
+                default -> {
+                    // Anything else is left to the interpreted matching
+                    return attributeMap -> matchTerm(attributeMap, term);
+                }
+            }
+            if (Condition.NOT_EQUALS.equals(condition)) {
+                return attributeMap -> !isStringMatch(stringMatcher, getAttribute(attributeMap, term));
+            }
+            return attributeMap -> isStringMatch(stringMatcher, getAttribute(attributeMap, term));
+        }
+    }
+
+    /**
+     * @param valuesParser Parses a comma delimited list of values, throwing if they can't be parsed
+     *                     up front.
+     */
+    private LongPredicate compileLongTerm(final Condition condition,
+                                          final String termValue,
+                                          final DocRef docRef,
+                                          final Function<String, long[]> valuesParser) {
+        return switch (condition) {
+            case EQUALS, CONTAINS -> {
+                final long value = getSingleValue(valuesParser, termValue);
+                yield num -> num == value;
+            }
+            case NOT_EQUALS -> {
+                final long value = getSingleValue(valuesParser, termValue);
+                yield num -> num != value;
+            }
+            case GREATER_THAN -> {
+                final long value = getSingleValue(valuesParser, termValue);
+                yield num -> num > value;
+            }
+            case GREATER_THAN_OR_EQUAL_TO -> {
+                final long value = getSingleValue(valuesParser, termValue);
+                yield num -> num >= value;
+            }
+            case LESS_THAN -> {
+                final long value = getSingleValue(valuesParser, termValue);
+                yield num -> num < value;
+            }
+            case LESS_THAN_OR_EQUAL_TO -> {
+                final long value = getSingleValue(valuesParser, termValue);
+                yield num -> num <= value;
+            }
+            case BETWEEN -> {
+                final long[] between = valuesParser.apply(termValue);
+                if (between.length != 2 || between[0] >= between[1]) {
+                    throw new MatchException("Invalid between values");
+                }
+                final long from = between[0];
+                final long to = between[1];
+                yield num -> num >= from && num <= to;
+            }
+            case IN -> {
+                final long[] in = valuesParser.apply(termValue);
+                Arrays.sort(in);
+                yield num -> Arrays.binarySearch(in, num) >= 0;
+            }
+            case IN_DICTIONARY -> {
+                final String[] lines = loadWords(docRef);
+                if (lines == null || lines.length == 0) {
+                    // Interpreted matching doesn't look at the attribute so leave it to that
+                    throw new MatchException("No words in dictionary");
+                }
+                final long[] in = Arrays.stream(lines)
+                        .map(valuesParser)
+                        .flatMapToLong(Arrays::stream)
+                        .sorted()
+                        .toArray();
+                yield num -> Arrays.binarySearch(in, num) >= 0;
+            }
+            // Anything else is left to the interpreted matching
+            default -> throw new MatchException("Unable to compile condition " + condition);
+        };
+    }
+
+    private long getSingleValue(final Function<String, long[]> valuesParser,
+                                final String termValue) {
+        if (termValue.contains(DELIMITER)) {
+            throw new MatchException("Expected a single value");
+        }
+        return valuesParser.apply(termValue)[0];
+    }
+
+    private Object getAttribute(final Map<String, Object> attributeMap, final ExpressionTerm term) {
+        final Object attribute = attributeMap.get(term.getField());
+        if (attribute == null) {
+            throw new MatchException("Attribute '" + term.getField() + "' not found");
+        }
+        return attribute;
+    }
+
     private boolean matchItem(final Map<String, Object> attributeMap, final ExpressionItem item) {
         if (!item.enabled()) {
             // If the child item is not enabled then return and keep trying to match with other parts of the expression.
@@ -361,6 +593,22 @@ public class ExpressionMatcher {
         return pattern.matcher(attribute.toString()).matches();
     }
 
+    private boolean isStringMatch(final StringMatcher stringMatcher, final Object attribute) {
+        if (attribute instanceof final DocRef docRef) {
+            if (stringMatcher.matches(docRef.getUuid())) {
+                return true;
+            }
+            return stringMatcher.matches(docRef.getName());
+        } else if (attribute instanceof final Collection<?> collection) {
+            for (final Object o : collection) {
+                if (isStringMatch(stringMatcher, o)) {
+                    return true;
+                }
+            }
+        }
+        return stringMatcher.matches(attribute.toString());
+    }
+
     private boolean isInDictionary(final String fieldName, final DocRef docRef,
                                    final QueryField field, final Object attribute) {
         final String[] lines = loadWords(docRef);
@@ -463,6 +711,26 @@ public class ExpressionMatcher {
         return dates;
     }
 
+    /**
+     * Parses dates in the same way as {@link #getDates(String, Object)} but throws if any of them
+     * are relative to the current time, as they can't be parsed up front.
+     */
+    private long[] getConstantDates(final String fieldName, final Object value) {
+        final long[] dates = getDates(fieldName, value);
+        if (dateTimeSettings.getReferenceTime() == null) {
+            final String[] values = value.toString().split(DELIMITER);
+            final DateTimeSettings settings1 = dateTimeSettings.copy().referenceTime(REFERENCE_TIME_1).build();
+            final DateTimeSettings settings2 = dateTimeSettings.copy().referenceTime(REFERENCE_TIME_2).build();
+            for (final String date : values) {
+                if (DateExpressionParser.getMs(fieldName, date.trim(), settings1)
+                    != DateExpressionParser.getMs(fieldName, date.trim(), settings2)) {
+                    throw new MatchException("Relative date " + date);
+                }
+            }
+        }
+        return dates;
+    }
+
     private long getNumber(final String fieldName, final Object value) {
         try {
             if (value instanceof Long) {
@@ -489,6 +757,78 @@ public class ExpressionMatcher {
     // --------------------------------------------------------------------------------
 
 
+    /**
+     * Matches strings against a set of term values in the same way as
+     * {@link #isStringMatch(String, Object)}. Values without any wildcards or regex characters are
+     * held in a set so they can be matched without a regex.
+     */
+    private static class StringMatcher {
+
+        private final Set<String> literals = new HashSet<>();
+        private final List<Pattern> patterns = new ArrayList<>();
+
+        StringMatcher(final Collection<String> termValues) {
+            for (final String termValue : termValues) {
+                if (isLiteral(termValue)) {
+                    literals.add(toAsciiLowerCase(termValue));
+                } else {
+                    patterns.add(Pattern.compile(termValue.replaceAll("\\*", ".*"), Pattern.CASE_INSENSITIVE));
+                }
+            }
+        }
+
+        boolean matches(final String value) {
+            if (!literals.isEmpty()) {
+                // CASE_INSENSITIVE only folds the case of US-ASCII chars so a value containing anything
+                // else can't equal one of our literals.
+                final String lowerCase = toAsciiLowerCase(value);
+                if (lowerCase != null && literals.contains(lowerCase)) {
+                    return true;
+                }
+            }
+            for (final Pattern pattern : patterns) {
+                if (pattern.matcher(value).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isLiteral(final String termValue) {
+            for (int i = 0; i < termValue.length(); i++) {
+                final char c = termValue.charAt(i);
+                if (!((c >= 'a' && c <= 'z')
+                      || (c >= 'A' && c <= 'Z')
+                      || (c >= '0' && c <= '9')
+                      || "_-:/@,=%#~!;&'\"<> ".indexOf(c) != -1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return The value in lower case or null if it contains any non US-ASCII chars.
+         */
+        private static String toAsciiLowerCase(final String value) {
+            final char[] chars = new char[value.length()];
+            for (int i = 0; i < chars.length; i++) {
+                final char c = value.charAt(i);
+                if (c > 127) {
+                    return null;
+                }
+                chars[i] = c >= 'A' && c <= 'Z'
+                        ? (char) (c + ('a' - 'A'))
+                        : c;
+            }
+            return new String(chars);
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
     private static class MatchException extends RuntimeException {
 
         MatchException(final String message) {
@@ -37,13 +37,16 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * This ought to behave in a consistent way with CommonExpressionMapper
@@ -57,6 +60,8 @@ class TestExpressionMatcher {
     public static final QueryField FEED = QueryField.createDocRefByUniqueName("Feed", "Feed");
     private static final QueryField TYPE = QueryField.createText("Type");
     private static final QueryField FRUIT = QueryField.createText("Fruit");
+    private static final QueryField ID = QueryField.createId("Id");
+    private static final QueryField CREATE_TIME = QueryField.createDate("Create Time");
     private static final Map<String, QueryField> FIELD_MAP = Map.of(
             FEED.getFldName(),
             FEED,
@@ -198,6 +203,17 @@ class TestExpressionMatcher {
         assertThat(match)
                 .isTrue();
 
+        final Predicate<Map<String, Object>> predicate = expressionMatcher.compile(expression);
+        assertThat(predicate.test(Map.of(FRUIT.getFldName(), "ORANGE")))
+                .isTrue();
+        assertThat(predicate.test(Map.of(FRUIT.getFldName(), "kiwi")))
+                .isTrue();
+        assertThat(predicate.test(Map.of(FRUIT.getFldName(), "pear")))
+                .isFalse();
+        // Dictionary is only loaded once
+        Mockito.verify(mockWordListProvider, Mockito.times(1))
+                .getWords(Mockito.eq(docRef));
+
         // This probably ought to work, but stroom.expression.matcher.ExpressionMatcher#isIn
         // is splitting dictionary lines on spaces
 //        match = expressionMatcher.match(
@@ -207,6 +223,46 @@ class TestExpressionMatcher {
 //                .isTrue();
     }
 
+    @Test
+    void testCompiledNumericAndDateTerms() {
+        final ExpressionMatcher expressionMatcher = new ExpressionMatcher(Map.of(
+                ID.getFldName(), ID,
+                CREATE_TIME.getFldName(), CREATE_TIME));
+        final Map<String, Object> attributeMap = Map.of(
+                ID.getFldName(), 5L,
+                CREATE_TIME.getFldName(), Instant.parse("2020-01-01T12:00:00Z").toEpochMilli());
+
+        assertCompiledMatch(expressionMatcher, attributeMap, ExpressionOperator.builder()
+                .addTerm(ID.getFldName(), Condition.IN, "7, 5, 1")
+                .build(), true);
+        assertCompiledMatch(expressionMatcher, attributeMap, ExpressionOperator.builder()
+                .addTerm(ID.getFldName(), Condition.BETWEEN, "6,10")
+                .build(), false);
+        assertCompiledMatch(expressionMatcher, attributeMap, ExpressionOperator.builder()
+                .addDateTerm(CREATE_TIME, Condition.GREATER_THAN, "2019-12-31T00:00:00.000Z")
+                .build(), true);
+        // Relative dates can't be parsed up front
+        assertCompiledMatch(expressionMatcher, attributeMap, ExpressionOperator.builder()
+                .addDateTerm(CREATE_TIME, Condition.LESS_THAN, "now()-1d")
+                .build(), true);
+        // Invalid terms fail when matched
+        final Predicate<Map<String, Object>> predicate = expressionMatcher.compile(ExpressionOperator.builder()
+                .addTerm(ID.getFldName(), Condition.EQUALS, "foo")
+                .build());
+        assertThatThrownBy(() -> predicate.test(attributeMap))
+                .isInstanceOf(RuntimeException.class);
+    }
+
+    private void assertCompiledMatch(final ExpressionMatcher expressionMatcher,
+                                     final Map<String, Object> attributeMap,
+                                     final ExpressionOperator expression,
+                                     final boolean outcome) {
+        assertThat(expressionMatcher.match(attributeMap, expression))
+                .isEqualTo(outcome);
+        assertThat(expressionMatcher.compile(expression).test(attributeMap))
+                .isEqualTo(outcome);
+    }
+
     private void test(final Map<String, Object> attributeMap,
                       final ExpressionOperator expression,
                       final boolean outcome) {
@@ -215,8 +271,7 @@ class TestExpressionMatcher {
                 null,
                 null,
                 DateTimeSettings.builder().build());
-        assertThat(expressionMatcher.match(attributeMap, expression))
-                .isEqualTo(outcome);
+        assertCompiledMatch(expressionMatcher, attributeMap, expression, outcome);
     }
 
     private ExpressionOperator createExpression(final Op op, final String feedName) {
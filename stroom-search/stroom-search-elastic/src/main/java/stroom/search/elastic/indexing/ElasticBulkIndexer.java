@@ -0,0 +1,330 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.elastic.indexing;
+
+import stroom.search.elastic.ElasticClientCache;
+import stroom.search.elastic.shared.ElasticConnectionConfig;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.elasticsearch.client.ResponseException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sends batches of documents to Elasticsearch in bulk requests. Requests rejected because the cluster
+ * is overloaded are retried after a delay, first deleting any documents from the request that were
+ * indexed, to avoid duplicates.
+ * <p>
+ * If maxInFlightRequests is zero, each batch is sent on the calling thread. Otherwise batches are sent
+ * on the executor, with at most maxInFlightRequests batches in flight at once, and {@link #send(List)}
+ * blocks while that many are in flight. A batch that fails is reported by the next call to
+ * {@link #send(List)} or {@link #flush()}, on the calling thread, and no more batches are sent.
+ */
+class ElasticBulkIndexer {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ElasticBulkIndexer.class);
+    private static final int ES_MAX_EXCEPTION_CHARS = 4096;
+    private static final int ES_TOO_MANY_REQUESTS_STATUS = 429;
+
+    private final ElasticClientCache elasticClientCache;
+    private final ElasticConnectionConfig connectionConfig;
+    private final ElasticIndexingConfig indexingConfig;
+    private final Executor executor;
+    private final int maxInFlightRequests;
+    private final boolean refreshAfterEachBatch;
+    private final String description;
+
+    private final Semaphore inFlightRequests;
+    private final AtomicReference<BulkIndexingException> failure = new AtomicReference<>();
+
+    /**
+     * @param description Describes what is being indexed (pipeline, stream and cluster) for log messages.
+     */
+    ElasticBulkIndexer(final ElasticClientCache elasticClientCache,
+                       final ElasticConnectionConfig connectionConfig,
+                       final ElasticIndexingConfig indexingConfig,
+                       final Executor executor,
+                       final int maxInFlightRequests,
+                       final boolean refreshAfterEachBatch,
+                       final String description) {
+        this.elasticClientCache = elasticClientCache;
+        this.connectionConfig = connectionConfig;
+        this.indexingConfig = indexingConfig;
+        this.executor = executor;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.refreshAfterEachBatch = refreshAfterEachBatch;
+        this.description = description;
+        inFlightRequests = new Semaphore(Math.max(1, maxInFlightRequests));
+    }
+
+    /**
+     * Sends a batch of operations, which must not be modified afterwards.
+     *
+     * @throws BulkIndexingException If this or an earlier batch failed.
+     */
+    void send(final List<BulkOperation> bulkOperations) {
+        throwIfFailed();
+        if (bulkOperations.isEmpty()) {
+            return;
+        }
+
+        if (maxInFlightRequests <= 0) {
+            index(bulkOperations);
+        } else {
+            // Wait for a slot in the window, holding up the pipeline until the cluster catches up
+            acquire(1);
+            try {
+                executor.execute(() -> {
+                    try {
+                        // Don't add to the index if an earlier batch has failed
+                        if (failure.get() == null) {
+                            index(bulkOperations);
+                        }
+                    } catch (final BulkIndexingException e) {
+                        failure.compareAndSet(null, e);
+                    } catch (final RuntimeException e) {
+                        failure.compareAndSet(null, new BulkIndexingException(truncate(e.getMessage()), e));
+                    } finally {
+                        inFlightRequests.release();
+                    }
+                });
+            } catch (final RuntimeException e) {
+                inFlightRequests.release();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Waits for all batches in flight to complete.
+     *
+     * @throws BulkIndexingException If any batch failed.
+     */
+    void flush() {
+        if (maxInFlightRequests > 0) {
+            acquire(maxInFlightRequests);
+            inFlightRequests.release(maxInFlightRequests);
+        }
+        throwIfFailed();
+    }
+
+    private void acquire(final int permits) {
+        try {
+            inFlightRequests.acquire(permits);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BulkIndexingException("Indexing terminated while waiting for bulk requests to complete", e);
+        }
+    }
+
+    private void throwIfFailed() {
+        final BulkIndexingException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Index a batch of documents, retrying if Elasticsearch is overloaded
+     */
+    private void index(final List<BulkOperation> bulkOperations) {
+        int retry = 0;
+        boolean succeeded = false;
+        while (!succeeded) {
+            final int currentRetry = retry;
+            succeeded = elasticClientCache.contextResult(connectionConfig, elasticClient -> {
+                try {
+                    return tryIndex(elasticClient, bulkOperations, currentRetry);
+                } catch (final ElasticsearchOverloadedException e) {
+                    handleElasticsearchOverloadedException(e, currentRetry);
+                } catch (final ElasticsearchException e) {
+                    if (e.status() == ES_TOO_MANY_REQUESTS_STATUS) {
+                        handleElasticsearchOverloadedException(e, currentRetry);
+                    } else {
+                        handleElasticsearchException(e, currentRetry);
+                    }
+                } catch (final ResponseException e) {
+                    if (e.getResponse().getStatusLine().getStatusCode() == ES_TOO_MANY_REQUESTS_STATUS) {
+                        handleElasticsearchOverloadedException(e, currentRetry);
+                    } else {
+                        handleElasticsearchException(e, currentRetry);
+                    }
+                } catch (final BulkIndexingException e) {
+                    throw e;
+                } catch (final RuntimeException | IOException e) {
+                    throw new BulkIndexingException(truncate(e.getMessage()), e);
+                }
+                return false;
+            });
+            retry++;
+        }
+    }
+
+    private boolean tryIndex(final ElasticsearchClient elasticClient,
+                             final List<BulkOperation> bulkOperations,
+                             final int currentRetry) throws IOException {
+        // Create a new bulk indexing request, containing the batch of documents
+        final BulkRequest bulkRequest = new BulkRequest.Builder()
+                .operations(bulkOperations)
+                .refresh(refreshAfterEachBatch
+                        ? Refresh.True
+                        : Refresh.False)
+                .build();
+
+        final BulkResponse response = elasticClient.bulk(bulkRequest);
+        if (response.errors()) {
+            final boolean overloaded = response.items().stream()
+                    .anyMatch(item -> item.status() == ES_TOO_MANY_REQUESTS_STATUS);
+            if (overloaded) {
+                // Failure was due to Elasticsearch being overloaded, so retry after a delay
+                deleteBulkRequestDocuments(elasticClient, response);
+                throw new ElasticsearchOverloadedException(response.toString());
+            } else {
+                // Request failed for some other reason, so abort without retry
+                throw new IOException("Bulk indexing request failed: " + response);
+            }
+        }
+
+        final String retryMessage = currentRetry > 0
+                ? " (retries: " + currentRetry + ")"
+                : "";
+        LOGGER.info("{} indexed {} documents in {} seconds{}",
+                description, bulkOperations.size(), response.took() / 1000, retryMessage);
+        return true;
+    }
+
+    /**
+     * Delete any documents that were successfully indexed during a failed bulk request.
+     * This removes duplicates in the destination index.
+     */
+    private void deleteBulkRequestDocuments(final ElasticsearchClient elasticClient,
+                                            final BulkResponse response) {
+        final List<BulkOperation> deleteOperations = new ArrayList<>();
+
+        for (final BulkResponseItem item : response.items()) {
+            if (item.error() == null) {
+                deleteOperations.add(BulkOperation.of(b -> b
+                        .delete(deleteOp -> deleteOp
+                                .index(item.index())
+                                .id(item.id())
+                        )
+                ));
+            }
+        }
+
+        if (!deleteOperations.isEmpty()) {
+            try {
+                final BulkRequest bulkRequest = new BulkRequest.Builder()
+                        .operations(deleteOperations)
+                        .build();
+
+                elasticClient.bulk(bulkRequest);
+
+                LOGGER.info("Deleted {} documents from failed bulk indexing request. {}",
+                        deleteOperations.size(), description);
+            } catch (final IOException e) {
+                LOGGER.warn("Error occurred when deleting documents indexed during a failed bulk request. {}",
+                        description, e);
+            }
+        }
+    }
+
+    /**
+     * Elasticsearch rejected the indexing request, because it is overloaded and
+     * cannot queue the batched payload. Retry after a delay, if we haven't exceeded the retry
+     * limit. Otherwise, fail so that an `Error` stream is created.
+     */
+    private void handleElasticsearchOverloadedException(final Exception e, final int currentRetry) {
+        final String errorDetailMsg = truncate(e.getMessage());
+
+        if (currentRetry < indexingConfig.getRetryCount()) {
+            // Backoff by the initial interval plus an exponential amount
+            final long sleepDurationMs = indexingConfig.getInitialRetryBackoffPeriodMs() +
+                                         (long) currentRetry * currentRetry;
+            try {
+                LOGGER.warn("Indexing request was rejected by Elasticsearch. {}. " +
+                            "Retrying in {} milliseconds (retries: {})", description, sleepDurationMs, currentRetry);
+                Thread.sleep(sleepDurationMs);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new BulkIndexingException(
+                        "Indexing terminated after " + currentRetry + " retries: " + errorDetailMsg, ex);
+            }
+        } else {
+            throw new BulkIndexingException(
+                    "Indexing failed to complete after " + currentRetry + " retries: " + errorDetailMsg, e);
+        }
+    }
+
+    /**
+     * A general Elasticsearch indexing error occurred. Fail so that an `Error` stream is created.
+     */
+    private void handleElasticsearchException(final Exception e, final int currentRetry) {
+        throw new BulkIndexingException(
+                "Indexing failed to complete after " + currentRetry + " retries: " + truncate(e.getMessage()),
+                e);
+    }
+
+    private static String truncate(final String message) {
+        return message != null
+                ? message.substring(0, Math.min(ES_MAX_EXCEPTION_CHARS, message.length()))
+                : "";
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * A bulk request failed and indexing must stop.
+     */
+    static class BulkIndexingException extends RuntimeException {
+
+        BulkIndexingException(final String message, final Exception cause) {
+            super(message, cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static class ElasticsearchOverloadedException extends RuntimeException {
+
+        public ElasticsearchOverloadedException(final String message) {
+            super(message);
+        }
+    }
+}
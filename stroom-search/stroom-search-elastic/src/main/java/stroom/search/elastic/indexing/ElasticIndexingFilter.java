@@ -23,6 +23,7 @@ import stroom.pipeline.PipelineStore;
 import stroom.pipeline.errorhandler.ErrorReceiverProxy;
 import stroom.pipeline.errorhandler.LoggedException;
 import stroom.pipeline.factory.ConfigurableElement;
+import stroom.pipeline.factory.PipelineFactoryException;
 import stroom.pipeline.factory.PipelineProperty;
 import stroom.pipeline.factory.PipelinePropertyDocRef;
 import stroom.pipeline.filter.AbstractXMLFilter;
@@ -35,32 +36,31 @@ import stroom.processor.shared.ProcessorFilter;
 import stroom.search.elastic.ElasticClientCache;
 import stroom.search.elastic.ElasticClusterStore;
 import stroom.search.elastic.ElasticConfig;
+import stroom.search.elastic.indexing.ElasticBulkIndexer.BulkIndexingException;
 import stroom.search.elastic.shared.ElasticClusterDoc;
 import stroom.search.elastic.shared.ElasticConnectionConfig;
 import stroom.search.elastic.shared.ElasticIndexConstants;
 import stroom.svg.shared.SvgImage;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
 import stroom.util.CharBuffer;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.ModelStringUtil;
 import stroom.util.shared.Severity;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.FieldValue;
-import co.elastic.clients.elasticsearch._types.Refresh;
 import co.elastic.clients.elasticsearch._types.aggregations.AggregationBuilders;
 import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregate;
 import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregation;
 import co.elastic.clients.elasticsearch._types.aggregations.CompositeAggregationSource;
 import co.elastic.clients.elasticsearch._types.query_dsl.TermQuery;
-import co.elastic.clients.elasticsearch.core.BulkRequest;
-import co.elastic.clients.elasticsearch.core.BulkRequest.Builder;
-import co.elastic.clients.elasticsearch.core.BulkResponse;
 import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
 import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
-import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
 import co.elastic.clients.util.BinaryData;
 import co.elastic.clients.util.ContentType;
 import com.fasterxml.jackson.core.JsonFactory;
@@ -68,7 +68,6 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.ws.rs.NotFoundException;
-import org.elasticsearch.client.ResponseException;
 import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
@@ -82,7 +81,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -108,8 +106,7 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
     private static final JsonFactory JSON_FACTORY = new JsonFactory();
     private static final int INITIAL_JSON_STREAM_SIZE_BYTES = 1024;
     private static final int ES_COMPOSITE_BATCH_SIZE = 100; // Number of index names to retrieve per request
-    private static final int ES_MAX_EXCEPTION_CHARS = 4096;
-    private static final int ES_TOO_MANY_REQUESTS_STATUS = 429;
+    private static final ThreadPool THREAD_POOL = new ThreadPoolImpl("Elasticsearch Bulk Indexing");
     private static final Pattern INDEX_NAME_VALUE_PATTERN = Pattern.compile("(\\{[^}]+?})");
     private static final Pattern INDEX_BASE_NAME_PATTERN = Pattern.compile("^([^{]+)");
 
@@ -122,9 +119,12 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
     private final PipelineStore pipelineStore;
     private final StreamProcessorHolder streamProcessorHolder;
     private final MetaHolder metaHolder;
+    private final ExecutorProvider executorProvider;
 
     // Pipeline filter configuration options
     private int batchSize = 10000;
+    private long maxBatchBytes = 0;
+    private int maxInFlightBulkRequests = 0;
     private boolean purgeOnReprocess = true;
     private String ingestPipelineName = null;
     private boolean refreshAfterEachBatch = false;
@@ -146,7 +146,8 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
     private boolean inOuterArray = false;
     private int currentDepth = 0;
     private JsonGenerator jsonGenerator;
-    private int currentRetry;
+    private long currentBatchBytes = 0;
+    private ElasticBulkIndexer bulkIndexer;
 
     private Locator locator;
 
@@ -159,7 +160,8 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
             final ElasticClusterStore elasticClusterStore,
             final PipelineStore pipelineStore,
             final StreamProcessorHolder streamProcessorHolder,
-            final MetaHolder metaHolder) {
+            final MetaHolder metaHolder,
+            final ExecutorProvider executorProvider) {
         this.locationFactory = locationFactory;
         this.errorReceiverProxy = errorReceiverProxy;
         this.elasticConfigProvider = elasticConfigProvider;
@@ -168,10 +170,10 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
         this.pipelineStore = pipelineStore;
         this.streamProcessorHolder = streamProcessorHolder;
         this.metaHolder = metaHolder;
+        this.executorProvider = executorProvider;
 
         bulkOperations = new ArrayList<>();
         currentDocument = new ByteArrayOutputStream(INITIAL_JSON_STREAM_SIZE_BYTES);
-        currentRetry = 0;
     }
 
     /**
@@ -234,8 +236,15 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
     @Override
     public void endProcessing() {
         try {
-            // Send any remaining documents
+            // Send any remaining documents and wait for them to be indexed
             indexDocuments();
+            if (bulkIndexer != null) {
+                try {
+                    bulkIndexer.flush();
+                } catch (final BulkIndexingException e) {
+                    fatalError(e.getMessage(), e.getCause());
+                }
+            }
         } finally {
             super.endProcessing();
         }
@@ -484,9 +493,11 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
                             return createOp;
                         })
                 ));
+                currentBatchBytes += currentDocument.size();
 
                 // If the maximum batch size has been reached, send the current batch for indexing
-                if (bulkOperations.size() >= batchSize) {
+                if (bulkOperations.size() >= batchSize
+                    || (maxBatchBytes > 0 && currentBatchBytes >= maxBatchBytes)) {
                     indexDocuments();
                 }
             }
@@ -626,158 +637,38 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
     }
 
     /**
-     * Index the current batch of documents
+     * Send the current batch of documents for indexing
      */
     private void indexDocuments() {
         if (bulkOperations.isEmpty()) {
             return;
         }
 
+        // The batch may be sent on another thread, so hand it a copy
+        final List<BulkOperation> batch = new ArrayList<>(bulkOperations);
+        bulkOperations.clear();
+        currentBatchBytes = 0;
         try {
-            final AtomicBoolean succeeded = new AtomicBoolean(false);
-            while (!succeeded.get()) {
-                elasticClientCache.context(elasticCluster.getConnection(), elasticClient -> {
-                    try {
-                        // Create a new bulk indexing request, containing the current batch of documents
-                        final Builder bulkRequestBuilder = new BulkRequest.Builder();
-
-                        // For each document, create an indexing request and append to the bulk request
-                        bulkRequestBuilder.operations(bulkOperations);
-
-                        if (refreshAfterEachBatch) {
-                            // Refresh upon completion of the batch index request
-                            bulkRequestBuilder.refresh(Refresh.True);
-                        } else {
-                            bulkRequestBuilder.refresh(Refresh.False);
-                        }
-
-                        final BulkResponse response = elasticClient.bulk(bulkRequestBuilder.build());
-                        if (response.errors()) {
-                            final boolean overloaded = response.items().stream()
-                                    .anyMatch(item -> item.status() == ES_TOO_MANY_REQUESTS_STATUS);
-                            if (overloaded) {
-                                // Failure was due to Elasticsearch being overloaded, so retry after a delay
-                                deleteBulkRequestDocuments(elasticClient, response);
-                                throw new ElasticsearchOverloadedException(response.toString());
-                            } else {
-                                // Request failed for some other reason, so abort without retry
-                                throw new IOException("Bulk indexing request failed: " + response);
-                            }
-                        } else {
-                            succeeded.set(true);
-                            final String retryMessage = currentRetry > 0
-                                    ? " (retries: " + currentRetry + ")"
-                                    : "";
-                            LOGGER.info("Pipeline '{}' indexed {} documents from stream {} to Elasticsearch cluster " +
-                                        "'{}' in {} seconds{}", pipelineName, bulkOperations.size(),
-                                    metaHolder.getMeta().getId(), elasticCluster.getName(), response.took() / 1000,
-                                    retryMessage);
-                        }
-                    } catch (final ElasticsearchOverloadedException e) {
-                        handleElasticsearchOverloadedException(e);
-                    } catch (final ElasticsearchException e) {
-                        if (e.status() == ES_TOO_MANY_REQUESTS_STATUS) {
-                            handleElasticsearchOverloadedException(e);
-                        } else {
-                            handleElasticsearchException(e);
-                        }
-                    } catch (final ResponseException e) {
-                        if (e.getResponse().getStatusLine().getStatusCode() == ES_TOO_MANY_REQUESTS_STATUS) {
-                            handleElasticsearchOverloadedException(e);
-                        } else {
-                            handleElasticsearchException(e);
-                        }
-                    } catch (final RuntimeException | IOException e) {
-                        fatalError(e.getMessage() != null
-                                ? e.getMessage().substring(0,
-                                Math.min(ES_MAX_EXCEPTION_CHARS, e.getMessage().length()))
-                                : "", e);
-                    } finally {
-                        currentRetry++;
-                    }
-                });
-            }
-        } finally {
-            currentRetry = 0;
-            bulkOperations.clear();
+            getBulkIndexer().send(batch);
+        } catch (final BulkIndexingException e) {
+            fatalError(e.getMessage(), e.getCause());
         }
     }
 
-    /**
-     * Delete any documents that were successfully indexed during a failed bulk request.
-     * This removes duplicates in the destination index.
-     */
-    private void deleteBulkRequestDocuments(final ElasticsearchClient elasticClient,
-                                            final BulkResponse response) {
-        final List<BulkOperation> deleteOperations = new ArrayList<>();
-
-        for (final BulkResponseItem item : response.items()) {
-            if (item.error() == null) {
-                deleteOperations.add(BulkOperation.of(b -> b
-                        .delete(deleteOp -> deleteOp
-                                .index(item.index())
-                                .id(item.id())
-                        )
-                ));
-            }
-        }
-
-        if (!deleteOperations.isEmpty()) {
-            try {
-                final BulkRequest bulkRequest = new BulkRequest.Builder()
-                        .operations(deleteOperations)
-                        .build();
-
-                elasticClient.bulk(bulkRequest);
-
-                LOGGER.info("Deleted {} documents from failed bulk indexing request for stream {}, pipeline '{}'",
-                        deleteOperations.size(), metaHolder.getMeta().getId(), pipelineName);
-            } catch (final IOException e) {
-                LOGGER.warn("Error occurred when deleting documents indexed during a failed bulk request. " +
-                            "Stream: {}, pipeline: '{}'", metaHolder.getMeta().getId(), pipelineName, e);
-            }
+    private ElasticBulkIndexer getBulkIndexer() {
+        if (bulkIndexer == null) {
+            final String description = "Pipeline '" + pipelineName + "' (stream " + metaHolder.getMeta().getId() +
+                                       ", Elasticsearch cluster '" + elasticCluster.getName() + "')";
+            bulkIndexer = new ElasticBulkIndexer(
+                    elasticClientCache,
+                    elasticCluster.getConnection(),
+                    elasticConfigProvider.get().getIndexingConfig(),
+                    executorProvider.get(THREAD_POOL),
+                    maxInFlightBulkRequests,
+                    refreshAfterEachBatch,
+                    description);
         }
-    }
-
-    /**
-     * Elasticsearch rejected the indexing request, because it is overloaded and
-     * cannot queue the batched payload. Retry after a delay, if we haven't exceeded the retry
-     * limit. Otherwise, terminate this thread and create an `Error` stream.
-     */
-    private void handleElasticsearchOverloadedException(final Exception e) {
-        final String errorDetailMsg = e.getMessage() != null
-                ? e.getMessage().substring(0,
-                Math.min(ES_MAX_EXCEPTION_CHARS, e.getMessage().length()))
-                : "";
-        final ElasticIndexingConfig indexingConfig = elasticConfigProvider.get().getIndexingConfig();
-
-        if (currentRetry < indexingConfig.getRetryCount()) {
-            // Backoff by the initial interval plus an exponential amount
-            final long sleepDurationMs = indexingConfig.getInitialRetryBackoffPeriodMs() +
-                                         (long) currentRetry * currentRetry;
-            try {
-                LOGGER.warn("Indexing request by pipeline '{}' for stream {} was rejected by Elasticsearch. " +
-                            "Retrying in {} milliseconds (retries: {})", pipelineName, metaHolder.getMeta().getId(),
-                        sleepDurationMs, currentRetry);
-                Thread.sleep(sleepDurationMs);
-            } catch (final InterruptedException ex) {
-                Thread.currentThread().interrupt();
-                fatalError("Indexing terminated after " + currentRetry + " retries: " + errorDetailMsg, ex);
-            }
-        } else {
-            fatalError("Indexing failed to complete after " + currentRetry + " retries: " + errorDetailMsg, e);
-        }
-    }
-
-    /**
-     * A general Elasticsearch indexing error occurred. Terminate processing and create an `Error` stream.
-     */
-    private void handleElasticsearchException(final Exception e) {
-        final String errorDetailMsg = e.getMessage() != null
-                ? e.getMessage().substring(0, Math.min(ES_MAX_EXCEPTION_CHARS, e.getMessage().length()))
-                : "";
-
-        fatalError("Indexing failed to complete after " + currentRetry + " retries: " + errorDetailMsg, e);
+        return bulkIndexer;
     }
 
     /**
@@ -847,6 +738,39 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
         this.indexName = indexName;
     }
 
+    @PipelineProperty(
+            description = "Maximum total size of the documents in each bulk request. A request is sent when " +
+                          "either this or the batch size is reached. Size is either specified in bytes e.g. " +
+                          "'1024' or with a IEC unit suffix, e.g. '1K', '1M', '1G', etc. If not set, requests are " +
+                          "only limited by the batch size.",
+            displayPriority = 6
+    )
+    public void setMaxBatchSize(final String maxBatchSize) {
+        if (maxBatchSize != null && !maxBatchSize.isBlank()) {
+            try {
+                final Long value = ModelStringUtil.parseIECByteSizeString(maxBatchSize);
+                if (value == null) {
+                    throw new PipelineFactoryException("Incorrect value for max batch size: " + maxBatchSize);
+                }
+                this.maxBatchBytes = value;
+            } catch (final NumberFormatException e) {
+                throw new PipelineFactoryException("Incorrect value for max batch size: " + maxBatchSize);
+            }
+        }
+    }
+
+    @PipelineProperty(
+            description = "Maximum number of bulk requests to have in flight at once. If greater than zero, " +
+                          "requests are sent in the background so that the pipeline can carry on producing " +
+                          "documents, and the pipeline waits when this many requests are in flight. If zero, " +
+                          "the pipeline waits for each request to complete.",
+            defaultValue = "0",
+            displayPriority = 7
+    )
+    public void setMaxInFlightBulkRequests(final int maxInFlightBulkRequests) {
+        this.maxInFlightBulkRequests = maxInFlightBulkRequests;
+    }
+
     @PipelineProperty(
             description = "When reprocessing a stream, first delete any documents from the index matching the " +
                           "source stream ID.",
@@ -876,11 +800,4 @@ class ElasticIndexingFilter extends AbstractXMLFilter {
             throw LoggedException.create(message);
         }
     }
-
-    private static class ElasticsearchOverloadedException extends RuntimeException {
-
-        public ElasticsearchOverloadedException(final String message) {
-            super(message);
-        }
-    }
 }
@@ -0,0 +1,209 @@
+package stroom.search.elastic.indexing;
+
+import stroom.search.elastic.ElasticClientCache;
+import stroom.search.elastic.ElasticClientConfig;
+import stroom.search.elastic.ElasticClientFactory;
+import stroom.search.elastic.indexing.ElasticBulkIndexer.BulkIndexingException;
+import stroom.search.elastic.shared.ElasticConnectionConfig;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the indexer against a local HTTP endpoint that pretends to be an Elasticsearch cluster.
+ */
+class TestElasticBulkIndexer {
+
+    private static final String SUCCESS_RESPONSE = """
+            {"took":1,"errors":false,"items":[]}""";
+
+    private final List<String> requestBodies = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    private HttpServer httpServer;
+    private ExecutorService executorService;
+    private ElasticClientCache elasticClientCache;
+    private ElasticConnectionConfig connectionConfig;
+    private long responseDelayMs;
+
+    @BeforeEach
+    void setup() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/", this::handle);
+        httpServer.setExecutor(Executors.newCachedThreadPool());
+        httpServer.start();
+
+        connectionConfig = new ElasticConnectionConfig();
+        connectionConfig.setConnectionUrls(List.of("http://localhost:" + httpServer.getAddress().getPort()));
+        final ElasticsearchClient elasticClient = new ElasticClientFactory()
+                .create(connectionConfig, new ElasticClientConfig());
+        elasticClientCache = new ElasticClientCache() {
+            @Override
+            public void context(final ElasticConnectionConfig key,
+                                final Consumer<ElasticsearchClient> consumer) {
+                consumer.accept(elasticClient);
+            }
+
+            @Override
+            public <R> R contextResult(final ElasticConnectionConfig key,
+                                       final Function<ElasticsearchClient, R> function) {
+                return function.apply(elasticClient);
+            }
+        };
+
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void teardown() {
+        httpServer.stop(0);
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testInFlightRequestsAreBounded() {
+        responseDelayMs = 100;
+        final ElasticBulkIndexer bulkIndexer = createBulkIndexer(2);
+
+        for (int i = 0; i < 6; i++) {
+            bulkIndexer.send(createBatch(3));
+        }
+        bulkIndexer.flush();
+
+        assertThat(requestBodies)
+                .hasSize(6);
+        assertThat(maxActiveRequests.get())
+                .isBetween(1, 2);
+    }
+
+    @Test
+    void testAsyncFailure() {
+        responses.add(new Response(400, """
+                {"error":{"type":"illegal_argument_exception","reason":"bad request"},"status":400}"""));
+        final ElasticBulkIndexer bulkIndexer = createBulkIndexer(2);
+
+        bulkIndexer.send(createBatch(3));
+
+        assertThatThrownBy(bulkIndexer::flush)
+                .isInstanceOf(BulkIndexingException.class)
+                .hasMessageContaining("Indexing failed to complete");
+        // Nothing more is sent once a batch has failed
+        assertThatThrownBy(() -> bulkIndexer.send(createBatch(3)))
+                .isInstanceOf(BulkIndexingException.class);
+        assertThat(requestBodies)
+                .hasSize(1);
+    }
+
+    @Test
+    void testOverloadedIsRetried() {
+        responses.add(new Response(200, """
+                {"took":1,"errors":true,"items":[
+                {"create":{"_index":"test","_id":"doc1","status":201}},
+                {"create":{"_index":"test","_id":"doc2","status":429,
+                "error":{"type":"es_rejected_execution_exception","reason":"rejected"}}}]}"""));
+        final ElasticBulkIndexer bulkIndexer = createBulkIndexer(0);
+
+        bulkIndexer.send(createBatch(2));
+        bulkIndexer.flush();
+
+        // Bulk request, delete of the document that was indexed, then the retry
+        assertThat(requestBodies)
+                .hasSize(3);
+        assertThat(requestBodies.get(1))
+                .contains("delete")
+                .contains("doc1")
+                .doesNotContain("doc2");
+        assertThat(requestBodies.get(2))
+                .isEqualTo(requestBodies.get(0));
+    }
+
+    private ElasticBulkIndexer createBulkIndexer(final int maxInFlightRequests) {
+        return new ElasticBulkIndexer(
+                elasticClientCache,
+                connectionConfig,
+                new ElasticIndexingConfig(10, 1, 2),
+                executorService,
+                maxInFlightRequests,
+                false,
+                "test");
+    }
+
+    private List<BulkOperation> createBatch(final int count) {
+        final List<BulkOperation> bulkOperations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final byte[] document = ("{\"value\":" + i + "}").getBytes(StandardCharsets.UTF_8);
+            bulkOperations.add(BulkOperation.of(b -> b
+                    .create(createOp -> createOp
+                            .index("test")
+                            .document(BinaryData.of(document, ContentType.APPLICATION_JSON)))));
+        }
+        return bulkOperations;
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final int active = activeRequests.incrementAndGet();
+        maxActiveRequests.accumulateAndGet(active, Math::max);
+        try {
+            requestBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            if (responseDelayMs > 0) {
+                Thread.sleep(responseDelayMs);
+            }
+
+            final Response response = responses.poll();
+            final int status = response != null
+                    ? response.status()
+                    : 200;
+            final byte[] body = (response != null
+                    ? response.body()
+                    : SUCCESS_RESPONSE).getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            // The client rejects responses that don't come from Elasticsearch
+            exchange.getResponseHeaders().add("X-Elastic-Product", "Elasticsearch");
+            exchange.sendResponseHeaders(status, body.length);
+            try (final OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            activeRequests.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record Response(int status, String body) {
+
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.extraction;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.StroomCache;
+import stroom.dictionary.shared.DictionaryDoc;
+import stroom.pipeline.shared.PipelineDoc;
+import stroom.pipeline.shared.TextConverterDoc;
+import stroom.pipeline.shared.XsltDoc;
+import stroom.query.language.functions.Type;
+import stroom.query.language.functions.Val;
+import stroom.util.entityevent.EntityAction;
+import stroom.util.entityevent.EntityEvent;
+import stroom.util.entityevent.EntityEventHandler;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.Clearable;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the values extracted by a search extraction pipeline for each event, so that repeated
+ * searches over the same events (e.g. refreshing a dashboard) don't need to run the pipeline again.
+ * <p>
+ * Values are keyed on the stream and event id, the pipeline uuid and version and the fields
+ * that the search requested. Each event holds all the records the pipeline produced for it, which
+ * may be none if the pipeline filtered the event out.
+ * <p>
+ * A pipeline, XSLT, text converter or dictionary change clears the whole cache as we don't know
+ * which pipelines use a changed XSLT, text converter or dictionary, or inherit from a changed pipeline.
+ * New reference data doesn't clear the cache so values that came from reference data lookups will
+ * be stale until the entry expires.
+ * <p>
+ * As well as the maximum number of entries in the cache config, the estimated size of all the values
+ * is limited by {@link ExtractionConfig#getMaxExtractionCacheSize()}. No more values are added while
+ * the cache is at this limit.
+ */
+@Singleton
+@EntityEventHandler(
+        type = PipelineDoc.TYPE,
+        action = {EntityAction.DELETE, EntityAction.UPDATE, EntityAction.CLEAR_CACHE})
+@EntityEventHandler(
+        type = XsltDoc.TYPE,
+        action = {EntityAction.DELETE, EntityAction.UPDATE, EntityAction.CLEAR_CACHE})
+@EntityEventHandler(
+        type = TextConverterDoc.TYPE,
+        action = {EntityAction.DELETE, EntityAction.UPDATE, EntityAction.CLEAR_CACHE})
+@EntityEventHandler(
+        type = DictionaryDoc.TYPE,
+        action = {EntityAction.DELETE, EntityAction.UPDATE, EntityAction.CLEAR_CACHE})
+public class ExtractionCache implements Clearable, EntityEvent.Handler {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ExtractionCache.class);
+
+    private static final String CACHE_NAME = "Search Extraction Cache";
+
+    // Rough sizes of the objects that hold the values, assuming compressed oops
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_SIZE = 4;
+
+    private final StroomCache<Key, Entry> cache;
+    private final Provider<ExtractionConfig> extractionConfigProvider;
+    private final AtomicLong totalByteSize = new AtomicLong();
+
+    @Inject
+    public ExtractionCache(final CacheManager cacheManager,
+                           final Provider<ExtractionConfig> extractionConfigProvider) {
+        this.extractionConfigProvider = extractionConfigProvider;
+        cache = cacheManager.create(
+                CACHE_NAME,
+                () -> extractionConfigProvider.get().getExtractionCache(),
+                this::onRemoval);
+    }
+
+    /**
+     * @return The records previously extracted for the event or empty if the event is not in the cache.
+     */
+    public Optional<Val[][]> get(final Extraction extraction, final long streamId, final long eventId) {
+        return cache.getIfPresent(new Key(extraction, streamId, eventId))
+                .map(Entry::records);
+    }
+
+    /**
+     * Adds the records extracted for each event of a stream. Every event that was extracted must
+     * have an entry, with an empty array for events that the pipeline produced no records for.
+     */
+    public void put(final Extraction extraction, final long streamId, final Map<Long, Val[][]> eventValues) {
+        final long maxByteSize = extractionConfigProvider.get().getMaxExtractionCacheSize().getBytes();
+        boolean recounted = false;
+        for (final Map.Entry<Long, Val[][]> mapEntry : eventValues.entrySet()) {
+            final Entry entry = new Entry(mapEntry.getValue(), estimateByteSize(mapEntry.getValue()));
+            if (totalByteSize.get() + entry.byteSize() > maxByteSize) {
+                // Rebuilding the cache from changed config drops the old entries without telling us
+                // so make sure we are not over the limit because of entries that have gone.
+                if (!recounted) {
+                    recountByteSize();
+                    recounted = true;
+                }
+                if (totalByteSize.get() + entry.byteSize() > maxByteSize) {
+                    LOGGER.debug(() -> "Extraction cache is at its maximum byte size of " + maxByteSize);
+                    return;
+                }
+            }
+            final Key key = new Key(extraction, streamId, mapEntry.getKey());
+            totalByteSize.addAndGet(entry.byteSize());
+            cache.put(key, entry);
+        }
+    }
+
+    /**
+     * @return The estimated number of bytes held by the values in the cache.
+     */
+    long getByteSize() {
+        return totalByteSize.get();
+    }
+
+    private void onRemoval(final Key key, final Entry entry) {
+        if (entry != null) {
+            totalByteSize.addAndGet(-entry.byteSize());
+        }
+    }
+
+    private void recountByteSize() {
+        long byteSize = 0;
+        for (final Entry entry : cache.values()) {
+            byteSize += entry.byteSize();
+        }
+        totalByteSize.set(byteSize);
+    }
+
+    static long estimateByteSize(final Val[][] records) {
+        long byteSize = OBJECT_OVERHEAD + (long) REFERENCE_SIZE * records.length;
+        for (final Val[] values : records) {
+            byteSize += OBJECT_OVERHEAD + (long) REFERENCE_SIZE * values.length;
+            for (final Val val : values) {
+                if (val != null) {
+                    byteSize += OBJECT_OVERHEAD;
+                    if (Type.STRING == val.type() || Type.XML == val.type()) {
+                        // String object plus its chars
+                        byteSize += OBJECT_OVERHEAD + val.toString().length();
+                    }
+                }
+            }
+        }
+        return byteSize;
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public void onChange(final EntityEvent event) {
+        LOGGER.debug("Received event {}, clearing cache", event);
+        clear();
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * Identifies the values produced by a pipeline for a set of requested fields.
+     *
+     * @param fields The field names in the order they appear in the extracted values.
+     */
+    public record Extraction(String pipelineUuid, String pipelineVersion, List<String> fields) {
+
+        public Extraction {
+            Objects.requireNonNull(pipelineUuid);
+            fields = List.copyOf(fields);
+        }
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record Key(Extraction extraction, long streamId, long eventId) {
+
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private record Entry(Val[][] records, long byteSize) {
+
+    }
+}
@@ -1,7 +1,10 @@
 package stroom.search.extraction;
 
+import stroom.util.cache.CacheConfig;
+import stroom.util.io.ByteSize;
 import stroom.util.shared.AbstractConfig;
 import stroom.util.shared.IsStroomConfig;
+import stroom.util.time.StroomDuration;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -20,28 +23,42 @@ public class ExtractionConfig extends AbstractConfig implements IsStroomConfig {
     private static final int DEFAULT_MAX_THREADS_PER_TASK = 5;
     private static final int DEFAULT_MAX_STREAM_EVENT_MAP_SIZE = 1000000;
     private static final long DEFAULT_EXTRACTION_DELAY_MS = 100;
+    private static final ByteSize DEFAULT_MAX_EXTRACTION_CACHE_SIZE = ByteSize.ofMebibytes(256);
 
     private final int maxStoredDataQueueSize;
     private final int maxThreadsPerTask;
     private final int maxStreamEventMapSize;
     private final long extractionDelayMs;
+    private final CacheConfig extractionCache;
+    private final ByteSize maxExtractionCacheSize;
 
     public ExtractionConfig() {
         maxStoredDataQueueSize = DEFAULT_MAX_STORED_DATA_QUEUE_SIZE;
         maxThreadsPerTask = DEFAULT_MAX_THREADS_PER_TASK;
         maxStreamEventMapSize = DEFAULT_MAX_STREAM_EVENT_MAP_SIZE;
         extractionDelayMs = DEFAULT_EXTRACTION_DELAY_MS;
+        // Each entry holds the extracted records for a single event. Expire after write so values
+        // from reference data lookups don't stay stale for ever.
+        extractionCache = CacheConfig.builder()
+                .maximumSize(100000L)
+                .expireAfterWrite(StroomDuration.ofMinutes(10))
+                .build();
+        maxExtractionCacheSize = DEFAULT_MAX_EXTRACTION_CACHE_SIZE;
     }
 
     @JsonCreator
     public ExtractionConfig(@JsonProperty("maxStoredDataQueueSize") final int maxStoredDataQueueSize,
                             @JsonProperty("maxThreadsPerTask") final int maxThreadsPerTask,
                             @JsonProperty("maxStreamEventMapSize") final int maxStreamEventMapSize,
-                            @JsonProperty("extractionDelayMs") final long extractionDelayMs) {
+                            @JsonProperty("extractionDelayMs") final long extractionDelayMs,
+                            @JsonProperty("extractionCache") final CacheConfig extractionCache,
+                            @JsonProperty("maxExtractionCacheSize") final ByteSize maxExtractionCacheSize) {
         this.maxStoredDataQueueSize = maxStoredDataQueueSize;
         this.maxThreadsPerTask = maxThreadsPerTask;
         this.maxStreamEventMapSize = maxStreamEventMapSize;
         this.extractionDelayMs = extractionDelayMs;
+        this.extractionCache = extractionCache;
+        this.maxExtractionCacheSize = maxExtractionCacheSize;
     }
 
     @JsonPropertyDescription("The maximum number documents that will have stored data retrieved from the index " +
@@ -67,6 +84,21 @@ public class ExtractionConfig extends AbstractConfig implements IsStroomConfig {
         return extractionDelayMs;
     }
 
+    @JsonPropertyDescription("The cache of values extracted by search extraction pipelines for each event. " +
+            "Set maximumSize to 0 to disable caching of extracted values. The cache is cleared when a " +
+            "pipeline, XSLT, text converter or dictionary changes. New reference data does not clear the " +
+            "cache, so extracted values that came from reference data lookups can be out of date until " +
+            "the entry expires.")
+    public CacheConfig getExtractionCache() {
+        return extractionCache;
+    }
+
+    @JsonPropertyDescription("The maximum estimated size of all the values held in the extraction cache. " +
+            "No more values are cached while the cache is at this size.")
+    public ByteSize getMaxExtractionCacheSize() {
+        return maxExtractionCacheSize;
+    }
+
     @Override
     public String toString() {
         return "ExtractionConfig{" +
@@ -74,6 +106,8 @@ public class ExtractionConfig extends AbstractConfig implements IsStroomConfig {
                 ", maxThreadsPerTask=" + maxThreadsPerTask +
                 ", maxStreamEventMapSize=" + maxStreamEventMapSize +
                 ", extractionDelayMs=" + extractionDelayMs +
+                ", extractionCache=" + extractionCache +
+                ", maxExtractionCacheSize=" + maxExtractionCacheSize +
                 '}';
     }
 }
@@ -18,6 +18,7 @@ import stroom.query.language.functions.FieldIndex;
 import stroom.query.language.functions.Val;
 import stroom.query.language.functions.ValuesConsumer;
 import stroom.query.language.functions.ref.ErrorConsumer;
+import stroom.search.extraction.ExtractionCache.Extraction;
 import stroom.search.extraction.StreamEventMap.EventSet;
 import stroom.security.api.SecurityContext;
 import stroom.task.api.ExecutorProvider;
@@ -33,10 +34,13 @@ import stroom.util.pipeline.scope.PipelineScopeRunnable;
 
 import jakarta.inject.Provider;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -67,9 +71,17 @@ public class ExtractionDecorator {
     private final Provider<ExtractionTaskHandler> handlerProvider;
     private final Provider<QueryInfoHolder> queryInfoHolderProvider;
     private final Provider<FieldListConsumerHolder> fieldListConsumerHolderProvider;
+    private final ExtractionCache extractionCache;
     private final QueryKey queryKey;
 
+    private final Map<DocRef, PipelineDoc> pipelineDocMap = new ConcurrentHashMap<>();
     private final Map<DocRef, PipelineData> pipelineDataMap = new ConcurrentHashMap<>();
+    private final Map<DocRef, Extraction> extractionMap = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> readableStreamMap = new ConcurrentHashMap<>();
+    private final LongAdder cachedExtractionCount = new LongAdder();
+    private final boolean useExtractionCache;
+    // Set by createStoredDataQueue but read by the mapper thread
+    private volatile boolean hasExtractionPipeline;
     private final StreamEventMap streamEventMap;
     private final StoredDataQueue storedDataQueue;
     private final Map<DocRef, Receiver> receivers;
@@ -88,6 +100,7 @@ public class ExtractionDecorator {
                         final Provider<ExtractionTaskHandler> handlerProvider,
                         final Provider<QueryInfoHolder> queryInfoHolderProvider,
                         final Provider<FieldListConsumerHolder> fieldListConsumerHolderProvider,
+                        final ExtractionCache extractionCache,
                         final QueryKey queryKey) {
         this.fieldValueExtractorFactory = fieldValueExtractorFactory;
         this.extractionConfig = extractionConfig;
@@ -101,8 +114,13 @@ public class ExtractionDecorator {
         this.handlerProvider = handlerProvider;
         this.queryInfoHolderProvider = queryInfoHolderProvider;
         this.fieldListConsumerHolderProvider = fieldListConsumerHolderProvider;
+        this.extractionCache = extractionCache;
         this.queryKey = queryKey;
 
+        // A maximum size of zero means extracted values are never cached.
+        final Long maximumSize = extractionConfig.getExtractionCache().getMaximumSize();
+        useExtractionCache = maximumSize == null || maximumSize > 0;
+
         // Create a queue to receive values and store them for asynchronous processing.
         streamEventMap = new StreamEventMap(extractionConfig.getMaxStreamEventMapSize());
         storedDataQueue = new StoredDataQueue(queryKey, extractionConfig.getMaxStoredDataQueueSize());
@@ -133,6 +151,8 @@ public class ExtractionDecorator {
             receivers.put(docRef, new Receiver(fieldIndex, valuesConsumer));
         });
 
+        hasExtractionPipeline = receivers.keySet().stream().anyMatch(Objects::nonNull);
+
         // Set the delay to use for extraction of each stream.
         streamEventMap.setExtractionDelayMs(getExtractionDelayMs());
 
@@ -190,10 +210,15 @@ public class ExtractionDecorator {
                                         SearchProgressLog.increment(queryKey,
                                                 SearchPhase.EXTRACTION_DECORATOR_FACTORY_STORED_DATA_QUEUE_TAKE);
                                         final Event event = eventFactory.create(values);
-                                        SearchProgressLog.increment(
-                                                queryKey,
-                                                SearchPhase.EXTRACTION_DECORATOR_FACTORY_STREAM_EVENT_MAP_PUT);
-                                        streamEventMap.put(event);
+
+                                        // Only queue the event for extraction if we don't already have
+                                        // the extracted values from a previous search.
+                                        if (!consumeCachedValues(event)) {
+                                            SearchProgressLog.increment(
+                                                    queryKey,
+                                                    SearchPhase.EXTRACTION_DECORATOR_FACTORY_STREAM_EVENT_MAP_PUT);
+                                            streamEventMap.put(event);
+                                        }
 
                                     } catch (final RuntimeException | CompleteException e) {
                                         LOGGER.debug(e::getMessage, e);
@@ -218,6 +243,79 @@ public class ExtractionDecorator {
                 });
     }
 
+    /**
+     * Passes the values for the event straight to the receivers if every extraction pipeline
+     * the event needs has already extracted it in a previous search.
+     *
+     * @return True if the values were taken from the extraction cache.
+     */
+    private boolean consumeCachedValues(final Event event) {
+        if (!useExtractionCache || !hasExtractionPipeline) {
+            return false;
+        }
+
+        final Map<DocRef, Val[][]> cachedValuesMap = new HashMap<>();
+        try {
+            for (final Entry<DocRef, Receiver> entry : receivers.entrySet()) {
+                final DocRef docRef = entry.getKey();
+                if (docRef != null) {
+                    final Extraction extraction = getExtraction(docRef, entry.getValue().fieldIndex);
+                    final Optional<Val[][]> optCachedValues = extractionCache.get(
+                            extraction,
+                            event.getStreamId(),
+                            event.getEventId());
+                    if (optCachedValues.isEmpty()) {
+                        return false;
+                    }
+                    cachedValuesMap.put(docRef, optCachedValues.get());
+                }
+            }
+
+            // The cache is shared by all users so make sure this user can still read the stream.
+            if (!canReadStream(event.getStreamId())) {
+                return false;
+            }
+        } catch (final RuntimeException e) {
+            // Leave it to the extraction to report the problem.
+            LOGGER.debug(e::getMessage, e);
+            return false;
+        }
+
+        SearchProgressLog.increment(queryKey, SearchPhase.EXTRACTION_DECORATOR_FACTORY_EXTRACTION_CACHE_HIT);
+        receivers.forEach((docRef, receiver) -> {
+            if (docRef != null) {
+                for (final Val[] values : cachedValuesMap.get(docRef)) {
+                    receiver.valuesConsumer.accept(values);
+                }
+            } else {
+                receiver.valuesConsumer.accept(event.getValues());
+            }
+            cachedExtractionCount.increment();
+        });
+        return true;
+    }
+
+    private boolean canReadStream(final long streamId) {
+        return readableStreamMap.computeIfAbsent(streamId, k ->
+                securityContext.useAsReadResult(() ->
+                        metaService.getMeta(streamId) != null));
+    }
+
+    private Extraction getExtraction(final DocRef pipelineRef, final FieldIndex fieldIndex) {
+        final Extraction extraction = extractionMap.get(pipelineRef);
+        // Fields can be added to the field index after we first saw it.
+        if (extraction != null && extraction.fields().size() == fieldIndex.size()) {
+            return extraction;
+        }
+        final PipelineDoc pipelineDoc = getPipelineDoc(pipelineRef);
+        final Extraction newExtraction = new Extraction(
+                pipelineDoc.getUuid(),
+                pipelineDoc.getVersion(),
+                List.of(fieldIndex.getFields()));
+        extractionMap.put(pipelineRef, newExtraction);
+        return newExtraction;
+    }
+
     private void info(final TaskContext taskContext, final Supplier<String> messageSupplier) {
         taskContext.info(messageSupplier);
         LOGGER.debug(messageSupplier);
@@ -255,7 +353,10 @@ public class ExtractionDecorator {
             futures[i] = CompletableFuture.runAsync(() ->
                     extractData(parentContext, queryKey, extractionCount, errorConsumer), executor);
         }
-        return CompletableFuture.allOf(futures);
+        // Values taken from the extraction cache by the mapper are only counted at the end as
+        // all mapping will be complete by the time extraction completes.
+        return CompletableFuture.allOf(futures)
+                .thenRun(() -> extractionCount.add(cachedExtractionCount.sum()));
     }
 
     private void extractData(final TaskContext parentContext,
@@ -338,6 +439,18 @@ public class ExtractionDecorator {
                         // Get cached pipeline data.
                         final PipelineData pipelineData = getPipelineData(docRef);
 
+                        // Record the extracted values so later searches can skip the extraction.
+                        final Extraction extraction = useExtractionCache
+                                ? getExtraction(docRef, receiver.fieldIndex)
+                                : null;
+                        final ExtractedValuesRecorder recorder = extraction != null
+                                ? new ExtractedValuesRecorder(
+                                        receiver.valuesConsumer,
+                                        receiver.fieldIndex,
+                                        extraction,
+                                        eventIds)
+                                : null;
+
                         // Execute the extraction within a fresh pipeline scope.
                         meta = pipelineScopeRunnable.scopeResult(() -> {
                             final ExtractionTaskHandler handler = handlerProvider.get();
@@ -349,7 +462,9 @@ public class ExtractionDecorator {
                                     new StandardFieldListConsumer(fieldValueExtractor);
                             fieldListConsumer.setQueryKey(queryKey);
                             fieldListConsumer.setFieldIndex(receiver.fieldIndex);
-                            fieldListConsumer.setReceiver(receiver.valuesConsumer);
+                            fieldListConsumer.setReceiver(recorder != null
+                                    ? recorder
+                                    : receiver.valuesConsumer);
                             fieldListConsumerHolderProvider.get().setFieldListConsumer(fieldListConsumer);
 
                             final QueryInfoHolder queryInfoHolder = queryInfoHolderProvider.get();
@@ -366,6 +481,15 @@ public class ExtractionDecorator {
                                     pipelineData);
                         });
 
+                        // Don't cache partial extractions.
+                        if (recorder != null
+                            && meta != null
+                            && !taskContext.isTerminated()
+                            && !Thread.currentThread().isInterrupted()) {
+                            recorder.getEventValues().ifPresent(eventValues ->
+                                    extractionCache.put(extraction, streamId, eventValues));
+                        }
+
                         extractionCount.add(events.size());
 
                     } else {
@@ -413,6 +537,15 @@ public class ExtractionDecorator {
 
     private PipelineData getPipelineData(final DocRef pipelineRef) {
         return pipelineDataMap.computeIfAbsent(pipelineRef, k -> {
+            final PipelineDoc pipelineDoc = getPipelineDoc(pipelineRef);
+
+            // Create the parser.
+            return pipelineDataCache.get(pipelineDoc);
+        });
+    }
+
+    private PipelineDoc getPipelineDoc(final DocRef pipelineRef) {
+        return pipelineDocMap.computeIfAbsent(pipelineRef, k -> {
             // Check the pipelineRef is not our 'NULL SELECTION'
             if (pipelineRef == null || NULL_SELECTION.compareTo(pipelineRef) == 0) {
                 throw new ExtractionException("Extraction is enabled, but no extraction pipeline is configured.");
@@ -424,9 +557,7 @@ public class ExtractionDecorator {
             if (pipelineDoc == null) {
                 throw new ExtractionException("Unable to find result pipeline: " + pipelineRef);
             }
-
-            // Create the parser.
-            return pipelineDataCache.get(pipelineDoc);
+            return pipelineDoc;
         });
     }
 
@@ -437,4 +568,80 @@ public class ExtractionDecorator {
     private record Receiver(FieldIndex fieldIndex, ValuesConsumer valuesConsumer) {
 
     }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * Passes extracted values on to a receiver while grouping them by event id so they can be
+     * added to the {@link ExtractionCache}. The values can only be cached if every record the
+     * pipeline outputs has the id of one of the events we asked it to extract.
+     */
+    static class ExtractedValuesRecorder implements ValuesConsumer {
+
+        private final ValuesConsumer valuesConsumer;
+        private final int fieldCount;
+        private final int eventIdPos;
+        private final Map<Long, List<Val[]>> eventValues;
+        private boolean cacheable;
+
+        ExtractedValuesRecorder(final ValuesConsumer valuesConsumer,
+                                final FieldIndex fieldIndex,
+                                final Extraction extraction,
+                                final long[] eventIds) {
+            this.valuesConsumer = valuesConsumer;
+            this.fieldCount = extraction.fields().size();
+            final Integer pos = fieldIndex.getPos(IndexConstants.EVENT_ID);
+            this.eventIdPos = pos != null
+                    ? pos
+                    : -1;
+            this.cacheable = eventIdPos >= 0 && eventIdPos < fieldCount;
+            this.eventValues = new HashMap<>(eventIds.length);
+            // Events the pipeline filters out will have no values.
+            for (final long eventId : eventIds) {
+                eventValues.put(eventId, new ArrayList<>(1));
+            }
+        }
+
+        @Override
+        public void accept(final Val[] values) {
+            valuesConsumer.accept(values);
+
+            if (cacheable) {
+                final List<Val[]> list = getValueList(values);
+                if (list != null) {
+                    list.add(values);
+                } else {
+                    LOGGER.debug("Unable to cache extracted values with unknown event id");
+                    cacheable = false;
+                    eventValues.clear();
+                }
+            }
+        }
+
+        private List<Val[]> getValueList(final Val[] values) {
+            if (values == null || values.length != fieldCount) {
+                return null;
+            }
+            final Val eventIdVal = values[eventIdPos];
+            if (eventIdVal == null) {
+                return null;
+            }
+            final Long eventId = eventIdVal.toLong();
+            return eventId != null
+                    ? eventValues.get(eventId)
+                    : null;
+        }
+
+        Optional<Map<Long, Val[][]>> getEventValues() {
+            if (!cacheable) {
+                return Optional.empty();
+            }
+            final Map<Long, Val[][]> map = new HashMap<>(eventValues.size());
+            eventValues.forEach((eventId, list) ->
+                    map.put(eventId, list.toArray(new Val[0][])));
+            return Optional.of(map);
+        }
+    }
 }
@@ -26,6 +26,7 @@ public class ExtractionDecoratorFactory {
     private final Provider<ExtractionTaskHandler> handlerProvider;
     private final Provider<QueryInfoHolder> queryInfoHolderProvider;
     private final Provider<FieldListConsumerHolder> fieldListConsumerHolderProvider;
+    private final ExtractionCache extractionCache;
 
     @Inject
     ExtractionDecoratorFactory(final FieldValueExtractorFactory fieldValueExtractorFactory,
@@ -39,7 +40,8 @@ public class ExtractionDecoratorFactory {
                                final PipelineDataCache pipelineDataCache,
                                final Provider<ExtractionTaskHandler> handlerProvider,
                                final Provider<QueryInfoHolder> queryInfoHolderProvider,
-                               final Provider<FieldListConsumerHolder> fieldListConsumerHolderProvider) {
+                               final Provider<FieldListConsumerHolder> fieldListConsumerHolderProvider,
+                               final ExtractionCache extractionCache) {
         this.fieldValueExtractorFactory = fieldValueExtractorFactory;
         this.extractionConfig = extractionConfig;
         this.executorProvider = executorProvider;
@@ -52,6 +54,7 @@ public class ExtractionDecoratorFactory {
         this.handlerProvider = handlerProvider;
         this.queryInfoHolderProvider = queryInfoHolderProvider;
         this.fieldListConsumerHolderProvider = fieldListConsumerHolderProvider;
+        this.extractionCache = extractionCache;
     }
 
     public ExtractionDecorator create(final QueryKey queryKey) {
@@ -68,6 +71,7 @@ public class ExtractionDecoratorFactory {
                 handlerProvider,
                 queryInfoHolderProvider,
                 fieldListConsumerHolderProvider,
+                extractionCache,
                 queryKey);
     }
 }
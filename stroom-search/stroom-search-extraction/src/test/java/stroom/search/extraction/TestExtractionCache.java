@@ -0,0 +1,132 @@
+package stroom.search.extraction;
+
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.dictionary.shared.DictionaryDoc;
+import stroom.pipeline.shared.XsltDoc;
+import stroom.query.language.functions.Val;
+import stroom.query.language.functions.ValLong;
+import stroom.query.language.functions.ValString;
+import stroom.search.extraction.ExtractionCache.Extraction;
+import stroom.util.cache.CacheConfig;
+import stroom.util.entityevent.EntityAction;
+import stroom.util.entityevent.EntityEvent;
+import stroom.util.io.ByteSize;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestExtractionCache {
+
+    private static final Extraction EXTRACTION = new Extraction("uuid", "v1", List.of("EventId", "Text"));
+    private static final long STREAM_ID = 1L;
+
+    @Test
+    void testPutAndGet() {
+        final ExtractionCache extractionCache = createExtractionCache(ByteSize.ofMebibytes(1));
+        final Val[][] records = createRecords(1L);
+        extractionCache.put(EXTRACTION, STREAM_ID, Map.of(1L, records, 2L, new Val[0][]));
+
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 1L))
+                .hasValue(records);
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 2L))
+                .hasValueSatisfying(values -> assertThat(values).isEmpty());
+        // Different fields so different values
+        assertThat(extractionCache.get(
+                new Extraction("uuid", "v1", List.of("EventId")), STREAM_ID, 1L))
+                .isEmpty();
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 3L))
+                .isEmpty();
+    }
+
+    @Test
+    void testMaxByteSize() {
+        final long recordByteSize = ExtractionCache.estimateByteSize(createRecords(1L));
+        // Room for two events
+        final ExtractionCache extractionCache = createExtractionCache(
+                ByteSize.ofBytes(recordByteSize * 2 + recordByteSize / 2));
+
+        final Map<Long, Val[][]> eventValues = new LinkedHashMap<>();
+        for (long eventId = 1; eventId <= 3; eventId++) {
+            eventValues.put(eventId, createRecords(eventId));
+        }
+        extractionCache.put(EXTRACTION, STREAM_ID, eventValues);
+
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 1L))
+                .isPresent();
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 2L))
+                .isPresent();
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 3L))
+                .isEmpty();
+        assertThat(extractionCache.getByteSize())
+                .isEqualTo(recordByteSize * 2);
+
+        // Clearing frees the space
+        extractionCache.clear();
+        extractionCache.put(EXTRACTION, STREAM_ID, Map.of(3L, createRecords(3L)));
+
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 3L))
+                .isPresent();
+    }
+
+    @Test
+    void testEstimateByteSize() {
+        final long shortSize = ExtractionCache.estimateByteSize(new Val[][]{
+                new Val[]{ValString.create("a")}});
+        final long longSize = ExtractionCache.estimateByteSize(new Val[][]{
+                new Val[]{ValString.create("a".repeat(1000))}});
+
+        assertThat(longSize - shortSize)
+                .isEqualTo(999);
+        assertThat(ExtractionCache.estimateByteSize(new Val[0][]))
+                .isPositive();
+    }
+
+    @Test
+    void testClearedByXsltChange() {
+        final ExtractionCache extractionCache = createExtractionCache(ByteSize.ofMebibytes(1));
+        extractionCache.put(EXTRACTION, STREAM_ID, Map.of(1L, createRecords(1L)));
+
+        extractionCache.onChange(new EntityEvent(
+                XsltDoc.buildDocRef().randomUuid().build(),
+                EntityAction.UPDATE));
+
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 1L))
+                .isEmpty();
+    }
+
+    @Test
+    void testClearedByDictionaryChange() {
+        final ExtractionCache extractionCache = createExtractionCache(ByteSize.ofMebibytes(1));
+        extractionCache.put(EXTRACTION, STREAM_ID, Map.of(1L, createRecords(1L)));
+
+        extractionCache.onChange(new EntityEvent(
+                DictionaryDoc.buildDocRef().randomUuid().build(),
+                EntityAction.UPDATE));
+
+        assertThat(extractionCache.get(EXTRACTION, STREAM_ID, 1L))
+                .isEmpty();
+    }
+
+    private ExtractionCache createExtractionCache(final ByteSize maxExtractionCacheSize) {
+        final ExtractionConfig extractionConfig = new ExtractionConfig(
+                1000,
+                1,
+                1000,
+                0,
+                CacheConfig.builder()
+                        .maximumSize(1000L)
+                        .build(),
+                maxExtractionCacheSize);
+        return new ExtractionCache(new CacheManagerImpl(), () -> extractionConfig);
+    }
+
+    private Val[][] createRecords(final long eventId) {
+        return new Val[][]{
+                new Val[]{ValLong.create(eventId), ValString.create("event " + eventId)}};
+    }
+}
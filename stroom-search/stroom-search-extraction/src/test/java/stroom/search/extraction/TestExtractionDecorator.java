@@ -0,0 +1,439 @@
+package stroom.search.extraction;
+
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.docref.DocRef;
+import stroom.index.shared.IndexConstants;
+import stroom.meta.api.MetaService;
+import stroom.meta.shared.Meta;
+import stroom.pipeline.PipelineStore;
+import stroom.pipeline.factory.PipelineDataCache;
+import stroom.pipeline.shared.PipelineDoc;
+import stroom.query.api.Query;
+import stroom.query.api.QueryKey;
+import stroom.query.common.v2.Coprocessor;
+import stroom.query.common.v2.Coprocessors;
+import stroom.query.common.v2.ErrorConsumerImpl;
+import stroom.query.common.v2.StringFieldValue;
+import stroom.query.language.functions.FieldIndex;
+import stroom.query.language.functions.Val;
+import stroom.query.language.functions.ValLong;
+import stroom.query.language.functions.ValString;
+import stroom.query.language.functions.ref.ErrorConsumer;
+import stroom.search.extraction.ExtractionCache.Extraction;
+import stroom.search.extraction.ExtractionDecorator.ExtractedValuesRecorder;
+import stroom.security.mock.MockSecurityContext;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.SimpleTaskContext;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.task.shared.ThreadPool;
+import stroom.util.cache.CacheConfig;
+import stroom.util.entityevent.EntityAction;
+import stroom.util.entityevent.EntityEvent;
+import stroom.util.io.ByteSize;
+import stroom.util.pipeline.scope.PipelineScopeRunnable;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+class TestExtractionDecorator {
+
+    private static final DocRef PIPELINE_REF = PipelineDoc.buildDocRef()
+            .uuid("extraction-pipeline-uuid")
+            .name("Extraction")
+            .build();
+    private static final long STREAM_ID = 123L;
+    private static final String TEXT_FIELD = "Text";
+
+    @Mock
+    private MetaService mockMetaService;
+    @Mock
+    private Meta mockMeta;
+    @Mock
+    private PipelineStore mockPipelineStore;
+    @Mock
+    private PipelineDataCache mockPipelineDataCache;
+    @Mock
+    private PipelineScopeRunnable mockPipelineScopeRunnable;
+    @Mock
+    private FieldValueExtractorFactory mockFieldValueExtractorFactory;
+    @Mock
+    private FieldValueExtractor mockFieldValueExtractor;
+    @Mock
+    private ExtractionTaskHandler mockExtractionTaskHandler;
+    @Mock
+    private Coprocessors mockCoprocessors;
+    @Mock
+    private Coprocessor mockCoprocessor;
+
+    private final ExtractionConfig extractionConfig = new ExtractionConfig(
+            1000,
+            1,
+            1000,
+            0,
+            CacheConfig.builder()
+                    .maximumSize(1000L)
+                    .build(),
+            ByteSize.ofMebibytes(1));
+    private final FieldListConsumerHolder fieldListConsumerHolder = new FieldListConsumerHolder(
+            new ExtractionState());
+    private final List<Val[]> receivedValues = new ArrayList<>();
+
+    private ExtractionCache extractionCache;
+    private FieldIndex fieldIndex;
+
+    @BeforeEach
+    void setUp() {
+        extractionCache = new ExtractionCache(new CacheManagerImpl(), () -> extractionConfig);
+
+        final PipelineDoc pipelineDoc = new PipelineDoc();
+        pipelineDoc.setUuid(PIPELINE_REF.getUuid());
+        pipelineDoc.setVersion("v1");
+        Mockito.when(mockPipelineStore.readDocument(PIPELINE_REF))
+                .thenReturn(pipelineDoc);
+        Mockito.when(mockMetaService.getMeta(STREAM_ID))
+                .thenReturn(mockMeta);
+        Mockito.when(mockPipelineScopeRunnable.scopeResult(Mockito.any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+
+        // The extraction pipeline outputs one record for each event with the event id as the text
+        Mockito.when(mockFieldValueExtractorFactory.create(Mockito.any(), Mockito.any()))
+                .thenReturn(mockFieldValueExtractor);
+        Mockito.when(mockFieldValueExtractor.convert(Mockito.anyInt(), Mockito.anyString()))
+                .thenAnswer(invocation -> {
+                    final int pos = invocation.getArgument(0);
+                    final String value = invocation.getArgument(1);
+                    return new FieldValue(null, pos == fieldIndex.getPos(TEXT_FIELD)
+                            ? ValString.create(value)
+                            : ValLong.create(Long.parseLong(value)));
+                });
+        Mockito.when(mockExtractionTaskHandler.extract(
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.anyLong(),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any()))
+                .thenAnswer(invocation -> {
+                    final long streamId = invocation.getArgument(2);
+                    final long[] eventIds = invocation.getArgument(3);
+                    for (final long eventId : eventIds) {
+                        fieldListConsumerHolder.acceptStringValues(List.of(
+                                new StringFieldValue(IndexConstants.STREAM_ID, String.valueOf(streamId)),
+                                new StringFieldValue(IndexConstants.EVENT_ID, String.valueOf(eventId)),
+                                new StringFieldValue(TEXT_FIELD, "event " + eventId)));
+                    }
+                    return mockMeta;
+                });
+
+        Mockito.doAnswer(invocation -> receivedValues.add(invocation.getArgument(0)))
+                .when(mockCoprocessor).accept(Mockito.any());
+        Mockito.doAnswer(invocation -> {
+                    final BiConsumer<DocRef, Set<Coprocessor>> consumer = invocation.getArgument(0);
+                    consumer.accept(PIPELINE_REF, Set.of(mockCoprocessor));
+                    return null;
+                })
+                .when(mockCoprocessors).forEachExtractionCoprocessor(Mockito.any());
+        Mockito.when(mockCoprocessors.getErrorConsumer())
+                .thenReturn(new ErrorConsumerImpl());
+    }
+
+    @Test
+    void testCacheMiss() {
+        search(1L, 2L);
+
+        Mockito.verify(mockExtractionTaskHandler, Mockito.times(1))
+                .extract(Mockito.any(),
+                        Mockito.any(),
+                        Mockito.eq(STREAM_ID),
+                        Mockito.eq(new long[]{1L, 2L}),
+                        Mockito.eq(PIPELINE_REF),
+                        Mockito.any(),
+                        Mockito.any());
+        assertThat(getTextValues())
+                .containsExactlyInAnyOrder("event 1", "event 2");
+        assertThat(extractionCache.getByteSize())
+                .isPositive();
+    }
+
+    @Test
+    void testCacheHit() {
+        search(1L, 2L);
+        receivedValues.clear();
+        Mockito.clearInvocations(mockExtractionTaskHandler);
+
+        // Same events again so the extraction pipeline is skipped
+        final long extractionCount = search(1L, 2L);
+
+        Mockito.verifyNoInteractions(mockExtractionTaskHandler);
+        assertThat(getTextValues())
+                .containsExactlyInAnyOrder("event 1", "event 2");
+        assertThat(extractionCount)
+                .isEqualTo(2);
+    }
+
+    @Test
+    void testPartialCacheHit() {
+        search(1L);
+        receivedValues.clear();
+        Mockito.clearInvocations(mockExtractionTaskHandler);
+
+        search(1L, 2L);
+
+        // Only the event that was not cached is extracted
+        Mockito.verify(mockExtractionTaskHandler, Mockito.times(1))
+                .extract(Mockito.any(),
+                        Mockito.any(),
+                        Mockito.eq(STREAM_ID),
+                        Mockito.eq(new long[]{2L}),
+                        Mockito.eq(PIPELINE_REF),
+                        Mockito.any(),
+                        Mockito.any());
+        assertThat(getTextValues())
+                .containsExactlyInAnyOrder("event 1", "event 2");
+    }
+
+    @Test
+    void testStreamNotReadable() {
+        search(1L);
+        Mockito.clearInvocations(mockExtractionTaskHandler);
+
+        // The cache is shared between users so a user that can't read the stream must not get its values
+        Mockito.when(mockMetaService.getMeta(STREAM_ID))
+                .thenReturn(null);
+        search(1L);
+
+        Mockito.verify(mockExtractionTaskHandler, Mockito.times(1))
+                .extract(Mockito.any(),
+                        Mockito.any(),
+                        Mockito.eq(STREAM_ID),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any());
+    }
+
+    @Test
+    void testClearedByEntityEvent() {
+        search(1L, 2L);
+        Mockito.clearInvocations(mockExtractionTaskHandler);
+
+        extractionCache.onChange(new EntityEvent(PIPELINE_REF, EntityAction.UPDATE));
+        search(1L, 2L);
+
+        Mockito.verify(mockExtractionTaskHandler, Mockito.times(1))
+                .extract(Mockito.any(),
+                        Mockito.any(),
+                        Mockito.eq(STREAM_ID),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any());
+    }
+
+    @Test
+    void testCacheDisabled() {
+        final ExtractionConfig disabledConfig = new ExtractionConfig(
+                1000,
+                1,
+                1000,
+                0,
+                CacheConfig.builder()
+                        .maximumSize(0L)
+                        .build(),
+                ByteSize.ofMebibytes(1));
+        search(disabledConfig, 1L);
+        Mockito.clearInvocations(mockExtractionTaskHandler);
+
+        search(disabledConfig, 1L);
+
+        Mockito.verify(mockExtractionTaskHandler, Mockito.times(1))
+                .extract(Mockito.any(),
+                        Mockito.any(),
+                        Mockito.eq(STREAM_ID),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any(),
+                        Mockito.any());
+    }
+
+    @Test
+    void testExtractedValuesRecorder() {
+        final FieldIndex fieldIndex = createRecorderFieldIndex();
+        final List<Val[]> consumed = new ArrayList<>();
+        final ExtractedValuesRecorder recorder = new ExtractedValuesRecorder(
+                consumed::add,
+                fieldIndex,
+                new Extraction("uuid", "v1", List.of(fieldIndex.getFields())),
+                new long[]{1L, 2L, 3L});
+
+        final Val[] event1Record1 = createRecord(1L, "a");
+        final Val[] event1Record2 = createRecord(1L, "b");
+        final Val[] event3Record1 = createRecord(3L, "c");
+        recorder.accept(event1Record1);
+        recorder.accept(event1Record2);
+        recorder.accept(event3Record1);
+
+        // Values are always passed on
+        assertThat(consumed)
+                .containsExactly(event1Record1, event1Record2, event3Record1);
+
+        final Map<Long, Val[][]> eventValues = recorder.getEventValues().orElseThrow();
+        assertThat(eventValues)
+                .containsOnlyKeys(1L, 2L, 3L);
+        assertThat(eventValues.get(1L))
+                .containsExactly(event1Record1, event1Record2);
+        // Event 2 was filtered out by the pipeline so is cached with no records
+        assertThat(eventValues.get(2L))
+                .isEmpty();
+        assertThat(eventValues.get(3L))
+                .containsExactly(event3Record1);
+    }
+
+    @Test
+    void testExtractedValuesRecorder_unknownEventId() {
+        final FieldIndex fieldIndex = createRecorderFieldIndex();
+        final List<Val[]> consumed = new ArrayList<>();
+        final ExtractedValuesRecorder recorder = new ExtractedValuesRecorder(
+                consumed::add,
+                fieldIndex,
+                new Extraction("uuid", "v1", List.of(fieldIndex.getFields())),
+                new long[]{1L});
+
+        recorder.accept(createRecord(1L, "a"));
+        // The pipeline output a record for an event we didn't ask for
+        recorder.accept(createRecord(99L, "b"));
+
+        assertThat(consumed)
+                .hasSize(2);
+        assertThat(recorder.getEventValues())
+                .isEmpty();
+    }
+
+    @Test
+    void testExtractedValuesRecorder_noEventIdField() {
+        final FieldIndex fieldIndex = new FieldIndex();
+        fieldIndex.create(TEXT_FIELD);
+        final ExtractedValuesRecorder recorder = new ExtractedValuesRecorder(
+                values -> {
+                },
+                fieldIndex,
+                new Extraction("uuid", "v1", List.of(fieldIndex.getFields())),
+                new long[]{1L});
+
+        recorder.accept(new Val[]{ValString.create("a")});
+
+        assertThat(recorder.getEventValues())
+                .isEmpty();
+    }
+
+    private FieldIndex createRecorderFieldIndex() {
+        final FieldIndex fieldIndex = new FieldIndex();
+        fieldIndex.create(IndexConstants.EVENT_ID);
+        fieldIndex.create(TEXT_FIELD);
+        return fieldIndex;
+    }
+
+    private Val[] createRecord(final long eventId, final String text) {
+        return new Val[]{ValLong.create(eventId), ValString.create(text)};
+    }
+
+    private long search(final long... eventIds) {
+        return search(extractionConfig, eventIds);
+    }
+
+    /**
+     * Runs the mapping and extraction of a search synchronously.
+     *
+     * @return The extraction count.
+     */
+    private long search(final ExtractionConfig extractionConfig, final long... eventIds) {
+        fieldIndex = new FieldIndex();
+        fieldIndex.create(TEXT_FIELD);
+        Mockito.when(mockCoprocessors.getFieldIndex())
+                .thenReturn(fieldIndex);
+
+        final ExtractionDecorator extractionDecorator = new ExtractionDecorator(
+                mockFieldValueExtractorFactory,
+                extractionConfig,
+                new DirectExecutorProvider(),
+                new SimpleTaskContextFactory(),
+                mockPipelineScopeRunnable,
+                new MockSecurityContext(),
+                mockMetaService,
+                mockPipelineStore,
+                mockPipelineDataCache,
+                () -> mockExtractionTaskHandler,
+                QueryInfoHolder::new,
+                () -> fieldListConsumerHolder,
+                extractionCache,
+                new QueryKey("test"));
+
+        final StoredDataQueue storedDataQueue = extractionDecorator.createStoredDataQueue(
+                mockCoprocessors,
+                Query.builder().dataSource(DocRef.builder().type("Index").uuid("index-uuid").build()).build());
+
+        final int streamIdPos = fieldIndex.getPos(IndexConstants.STREAM_ID);
+        final int eventIdPos = fieldIndex.getPos(IndexConstants.EVENT_ID);
+        for (final long eventId : eventIds) {
+            final Val[] values = new Val[fieldIndex.size()];
+            values[streamIdPos] = ValLong.create(STREAM_ID);
+            values[eventIdPos] = ValLong.create(eventId);
+            storedDataQueue.accept(values);
+        }
+        storedDataQueue.complete();
+
+        final SimpleTaskContext taskContext = new SimpleTaskContext();
+        final LongAdder extractionCount = new LongAdder();
+        final ErrorConsumer errorConsumer = new ErrorConsumerImpl();
+        extractionDecorator.startMapping(taskContext, mockCoprocessors).join();
+        extractionDecorator.startExtraction(taskContext, extractionCount, errorConsumer).join();
+
+        assertThat(errorConsumer.hasErrors())
+                .isFalse();
+        return extractionCount.sum();
+    }
+
+    private List<String> getTextValues() {
+        final int textPos = fieldIndex.getPos(TEXT_FIELD);
+        return receivedValues.stream()
+                .map(values -> values[textPos].toString())
+                .toList();
+    }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    private static class DirectExecutorProvider implements ExecutorProvider {
+
+        @Override
+        public Executor get(final ThreadPool threadPool) {
+            return Runnable::run;
+        }
+
+        @Override
+        public Executor get() {
+            return Runnable::run;
+        }
+    }
+}
@@ -3,15 +3,22 @@ package stroom.search.impl;
 import stroom.node.api.NodeCallUtil;
 import stroom.node.api.NodeInfo;
 import stroom.node.api.NodeService;
+import stroom.query.api.QueryKey;
 import stroom.query.common.v2.ResultStore;
+import stroom.query.common.v2.SearchProgressLog;
+import stroom.query.common.v2.SearchProgressLog.SearchPhase;
 import stroom.task.api.TaskContext;
+import stroom.util.io.ByteCountInputStream;
 import stroom.util.jersey.UriBuilderUtil;
 import stroom.util.jersey.WebTargetFactory;
 import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.DurationTimer;
 import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.shared.ModelStringUtil;
 import stroom.util.shared.ResourcePaths;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Provider;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.client.Entity;
@@ -30,14 +37,17 @@ public class RemoteNodeSearch implements NodeSearch {
     private final NodeService nodeService;
     private final NodeInfo nodeInfo;
     private final WebTargetFactory webTargetFactory;
+    private final Provider<SearchConfig> searchConfigProvider;
 
     @Inject
     public RemoteNodeSearch(final NodeService nodeService,
                             final NodeInfo nodeInfo,
-                            final WebTargetFactory webTargetFactory) {
+                            final WebTargetFactory webTargetFactory,
+                            final Provider<SearchConfig> searchConfigProvider) {
         this.nodeService = nodeService;
         this.nodeInfo = nodeInfo;
         this.webTargetFactory = webTargetFactory;
+        this.searchConfigProvider = searchConfigProvider;
     }
 
     @Override
@@ -74,10 +84,17 @@ public class RemoteNodeSearch implements NodeSearch {
             parentContext.info(() -> task.getSearchName() + " - searching node: " + targetNode + "...");
 
             // Poll for results until completion.
+            final String compression = searchConfigProvider.get().isCompressRemoteResults()
+                    ? RemoteResultCompression.LZ4_FRAMED
+                    : null;
+            final PollStats pollStats = new PollStats();
             boolean complete = false;
             while (!Thread.currentThread().isInterrupted() && !complete) {
-                complete = pollRemoteSearch(targetNode, queryKey, resultCollector);
+                complete = pollRemoteSearch(targetNode, task.getKey(), compression, resultCollector, pollStats);
+                parentContext.info(() -> task.getSearchName() + " - searching node: " + targetNode +
+                                         " - " + pollStats);
             }
+            LOGGER.debug(() -> task.getSearchName() + " - received from node: " + targetNode + " - " + pollStats);
 
         } catch (final Throwable e) {
             LOGGER.debug(e::getMessage, e);
@@ -126,8 +143,10 @@ public class RemoteNodeSearch implements NodeSearch {
     }
 
     private Boolean pollRemoteSearch(final String nodeName,
-                                     final String queryKey,
-                                     final ResultStore resultCollector) throws IOException {
+                                     final QueryKey queryKey,
+                                     final String compression,
+                                     final ResultStore resultCollector,
+                                     final PollStats pollStats) throws IOException {
         final boolean complete;
         final String url = NodeCallUtil.getBaseEndpointUrl(nodeInfo, nodeService, nodeName)
                 + ResourcePaths.buildAuthenticatedApiPath(
@@ -135,14 +154,24 @@ public class RemoteNodeSearch implements NodeSearch {
                 RemoteSearchResource.POLL_PATH_PART);
 
         WebTarget webTarget = webTargetFactory.create(url);
-        webTarget = UriBuilderUtil.addParam(webTarget, "queryKey", queryKey);
+        webTarget = UriBuilderUtil.addParam(webTarget, "queryKey", queryKey.getUuid());
+        if (compression != null) {
+            webTarget = UriBuilderUtil.addParam(webTarget, RemoteResultCompression.PARAM_NAME, compression);
+        }
 
-        try (final InputStream inputStream = webTarget
+        try (final ByteCountInputStream byteCountInputStream = new ByteCountInputStream(webTarget
                 .request(MediaType.APPLICATION_OCTET_STREAM)
-                .get(InputStream.class)) {
+                .get(InputStream.class))) {
 
             LOGGER.debug(() -> "Receive result for node: " + nodeName);
-            complete = resultCollector.onSuccess(nodeName, inputStream);
+            final DurationTimer durationTimer = DurationTimer.start();
+            complete = resultCollector.onSuccess(nodeName, RemoteResultCompression.decompress(byteCountInputStream));
+
+            final long bytes = byteCountInputStream.getCount();
+            final long millis = durationTimer.get().toMillis();
+            pollStats.add(bytes, millis);
+            SearchProgressLog.add(queryKey, SearchPhase.REMOTE_NODE_SEARCH_POLL_BYTES_READ, bytes);
+            SearchProgressLog.add(queryKey, SearchPhase.REMOTE_NODE_SEARCH_POLL_READ_MS, millis);
         }
         return complete;
     }
@@ -174,4 +203,30 @@ public class RemoteNodeSearch implements NodeSearch {
             throw NodeCallUtil.handleExceptionsOnNodeCall(nodeName, url, e);
         }
     }
+
+
+    // --------------------------------------------------------------------------------
+
+
+    /**
+     * The amount of data received from a node and the time spent reading it.
+     */
+    private static class PollStats {
+
+        private int polls;
+        private long bytes;
+        private long millis;
+
+        void add(final long bytes, final long millis) {
+            this.polls++;
+            this.bytes += bytes;
+            this.millis += millis;
+        }
+
+        @Override
+        public String toString() {
+            return "received " + ModelStringUtil.formatIECByteSizeString(bytes) +
+                   " in " + polls + " polls, read time " + ModelStringUtil.formatDurationString(millis);
+        }
+    }
 }
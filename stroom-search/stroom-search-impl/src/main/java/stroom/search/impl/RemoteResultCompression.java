@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream.BlockSize;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream.Parameters;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression of the result payloads that remote nodes send back to the node that is running a
+ * federated search.
+ * <p>
+ * The polling node asks for compressed results with a query param. A node that doesn't understand
+ * the param, e.g. one running an older version, will just ignore it and send uncompressed results.
+ * The polling node therefore looks at the first bytes of each response to see if they are an LZ4
+ * frame. Uncompressed results start with the completion flag so can't be mistaken for an LZ4 frame.
+ */
+final class RemoteResultCompression {
+
+    static final String PARAM_NAME = "compression";
+    static final String LZ4_FRAMED = "lz4-framed";
+
+    // Small blocks as each poll creates a new stream and a payload is rarely more than a few MB.
+    private static final Parameters PARAMETERS = new Parameters(BlockSize.K64);
+
+    private RemoteResultCompression() {
+        // Utility class.
+    }
+
+    /**
+     * @param compression The compression requested by the polling node, may be null.
+     * @return The stream to write the results to. Closing it will close the supplied stream.
+     */
+    static OutputStream compress(final String compression,
+                                 final OutputStream outputStream) throws IOException {
+        if (LZ4_FRAMED.equals(compression)) {
+            return new FramedLZ4CompressorOutputStream(outputStream, PARAMETERS);
+        }
+        return outputStream;
+    }
+
+    /**
+     * @return A stream of the uncompressed results, whether or not the remote node compressed them.
+     */
+    static InputStream decompress(final InputStream inputStream) throws IOException {
+        final BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream);
+        bufferedInputStream.mark(4);
+        final byte[] signature = bufferedInputStream.readNBytes(4);
+        bufferedInputStream.reset();
+
+        if (FramedLZ4CompressorInputStream.matches(signature, signature.length)) {
+            return new FramedLZ4CompressorInputStream(bufferedInputStream);
+        }
+        return bufferedInputStream;
+    }
+}
@@ -54,7 +54,8 @@ public interface RemoteSearchResource extends RestResource {
     @Operation(
             summary = "Poll the server for search results for the supplied queryKey",
             operationId = "pollRemoteSearch")
-    StreamingOutput poll(@QueryParam("queryKey") String queryKey);
+    StreamingOutput poll(@QueryParam("queryKey") String queryKey,
+                         @QueryParam("compression") String compression);
 
     @GET
     @Path(DESTROY_PATH_PART)
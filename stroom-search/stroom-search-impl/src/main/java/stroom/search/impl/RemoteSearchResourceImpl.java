@@ -42,8 +42,8 @@ public class RemoteSearchResourceImpl implements RemoteSearchResource {
 
     @Timed
     @Override
-    public StreamingOutput poll(final String queryKey) {
-        return outputStream -> remoteSearchServiceProvider.get().poll(queryKey, outputStream);
+    public StreamingOutput poll(final String queryKey, final String compression) {
+        return outputStream -> remoteSearchServiceProvider.get().poll(queryKey, compression, outputStream);
     }
 
     @Timed
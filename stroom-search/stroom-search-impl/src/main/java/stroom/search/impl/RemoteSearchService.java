@@ -1,14 +1,19 @@
 package stroom.search.impl;
 
 import stroom.query.api.Query;
+import stroom.query.api.QueryKey;
 import stroom.query.common.v2.CoprocessorsFactory;
 import stroom.query.common.v2.CoprocessorsImpl;
 import stroom.query.common.v2.DataStoreSettings;
+import stroom.query.common.v2.SearchProgressLog;
+import stroom.query.common.v2.SearchProgressLog.SearchPhase;
 import stroom.security.api.SecurityContext;
 import stroom.task.api.ExecutorProvider;
 import stroom.task.api.TaskContextFactory;
 import stroom.task.api.TaskManager;
 import stroom.task.api.TerminateHandlerFactory;
+import stroom.util.io.ByteCountOutputStream;
+import stroom.util.logging.DurationTimer;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.shared.ErrorMessage;
@@ -160,14 +165,24 @@ public class RemoteSearchService {
         return true;
     }
 
-    public void poll(final String queryKey, final OutputStream outputStream) throws IOException {
+    public void poll(final String queryKey,
+                     final String compression,
+                     final OutputStream outputStream) throws IOException {
         try {
-            LOGGER.debug(() -> "poll " + queryKey);
+            LOGGER.debug(() -> "poll " + queryKey + ", compression " + compression);
             final Optional<RemoteSearchResultFactory> optional = remoteSearchResults.get(queryKey);
 
             if (optional.isPresent()) {
                 final RemoteSearchResultFactory factory = optional.get();
-                factory.write(outputStream);
+                final ByteCountOutputStream byteCountOutputStream = new ByteCountOutputStream(outputStream);
+                final DurationTimer durationTimer = DurationTimer.start();
+                factory.write(RemoteResultCompression.compress(compression, byteCountOutputStream));
+
+                final QueryKey key = new QueryKey(queryKey);
+                SearchProgressLog.add(key, SearchPhase.REMOTE_SEARCH_POLL_BYTES_WRITTEN,
+                        byteCountOutputStream.getCount());
+                SearchProgressLog.add(key, SearchPhase.REMOTE_SEARCH_POLL_WRITE_MS,
+                        durationTimer.get().toMillis());
 
             } else {
                 // There aren't any results in the cache so the search is probably dead
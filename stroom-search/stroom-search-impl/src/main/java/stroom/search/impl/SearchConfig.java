@@ -40,6 +40,7 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
 
     private final int maxStoredDataQueueSize;
     private final int maxBooleanClauseCount;
+    private final boolean compressRemoteResults;
     private final ExtractionConfig extractionConfig;
     private final IndexShardSearchConfig shardConfig;
     private final SearchResultStoreConfig resultStoreConfig;
@@ -47,6 +48,7 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
     public SearchConfig() {
         maxStoredDataQueueSize = DEFAULT_MAX_STORED_DATA_QUEUE_SIZE;
         maxBooleanClauseCount = DEFAULT_MAX_BOOLEAN_CLAUSE_COUNT;
+        compressRemoteResults = true;
         extractionConfig = new ExtractionConfig();
         shardConfig = new IndexShardSearchConfig();
         resultStoreConfig = new SearchResultStoreConfig();
@@ -55,12 +57,14 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
     @JsonCreator
     public SearchConfig(@JsonProperty("maxStoredDataQueueSize") final int maxStoredDataQueueSize,
                         @JsonProperty("maxBooleanClauseCount") final int maxBooleanClauseCount,
+                        @JsonProperty("compressRemoteResults") final boolean compressRemoteResults,
                         @JsonProperty("extraction") final ExtractionConfig extractionConfig,
                         @JsonProperty("shard") final IndexShardSearchConfig shardConfig,
                         @JsonProperty("resultStore") final SearchResultStoreConfig resultStoreConfig) {
 
         this.maxStoredDataQueueSize = maxStoredDataQueueSize;
         this.maxBooleanClauseCount = maxBooleanClauseCount;
+        this.compressRemoteResults = compressRemoteResults;
         this.extractionConfig = extractionConfig;
         this.shardConfig = shardConfig;
         this.resultStoreConfig = resultStoreConfig;
@@ -77,6 +81,13 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
         return maxBooleanClauseCount;
     }
 
+    @JsonPropertyDescription("If true, the node running a search will ask the other nodes searched to LZ4 " +
+            "compress the search results they send back to it. This reduces the network traffic between nodes " +
+            "at the cost of a little CPU on each node.")
+    public boolean isCompressRemoteResults() {
+        return compressRemoteResults;
+    }
+
     @JsonProperty("extraction")
     public ExtractionConfig getExtractionConfig() {
         return extractionConfig;
@@ -98,6 +109,7 @@ public class SearchConfig extends AbstractConfig implements IsStroomConfig {
         return "SearchConfig{" +
                 "maxStoredDataQueueSize=" + maxStoredDataQueueSize +
                 ", maxBooleanClauseCount=" + maxBooleanClauseCount +
+                ", compressRemoteResults=" + compressRemoteResults +
                 '}';
     }
 }
@@ -0,0 +1,282 @@
+package stroom.search.impl;
+
+import stroom.node.api.NodeInfo;
+import stroom.node.api.NodeService;
+import stroom.query.api.QueryKey;
+import stroom.query.common.v2.CompletionState;
+import stroom.query.common.v2.CoprocessorsImpl;
+import stroom.query.common.v2.ErrorConsumerImpl;
+import stroom.query.common.v2.ResultStore;
+import stroom.task.api.TaskContext;
+import stroom.util.jersey.WebTargetFactory;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.client.WebTarget;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs a {@link RemoteNodeSearch} against a fake remote node that answers polls using a real
+ * {@link RemoteSearchService}, so the results go through the same compression on both sides as they would
+ * between two nodes.
+ */
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+class TestRemoteNodeSearch {
+
+    private static final String THIS_NODE = "node1";
+    private static final String REMOTE_NODE = "node2";
+    // Compressible, like real payloads which repeat a lot of keys and values
+    private static final byte[] PAYLOAD = "some repeating payload data ".repeat(5_000)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private NodeService mockNodeService;
+    @Mock
+    private NodeInfo mockNodeInfo;
+    @Mock
+    private WebTargetFactory mockWebTargetFactory;
+    @Mock
+    private ResultStore mockResultStore;
+    @Mock
+    private TaskContext mockTaskContext;
+    @Mock
+    private CoprocessorsImpl mockCoprocessors;
+    @Mock
+    private CompletionState mockCompletionState;
+    @Mock
+    private RemoteSearchResults mockRemoteSearchResults;
+
+    private final QueryKey queryKey = new QueryKey(UUID.randomUUID().toString());
+    private final Map<String, Object> pollParams = new HashMap<>();
+
+    // What the remote node sent and what the result store was given
+    private byte[] sentBytes;
+    private byte[] receivedBytes;
+    // Set to behave like a node running an older version
+    private boolean remoteNodeIgnoresCompression;
+
+    @BeforeEach
+    void setup() throws InterruptedException {
+        Mockito.when(mockNodeInfo.getThisNodeName())
+                .thenReturn(THIS_NODE);
+        Mockito.when(mockNodeService.getBaseEndpointUrl(THIS_NODE))
+                .thenReturn("http://" + THIS_NODE + ":8080");
+        Mockito.when(mockNodeService.getBaseEndpointUrl(REMOTE_NODE))
+                .thenReturn("http://" + REMOTE_NODE + ":8080");
+
+        // The remote node's results
+        Mockito.when(mockCoprocessors.getCompletionState())
+                .thenReturn(mockCompletionState);
+        Mockito.when(mockCompletionState.awaitCompletion(Mockito.anyLong(), Mockito.any(TimeUnit.class)))
+                .thenReturn(true);
+        Mockito.when(mockCoprocessors.getErrorConsumer())
+                .thenReturn(new ErrorConsumerImpl());
+        Mockito.doAnswer(invocation -> {
+                    final Output output = invocation.getArgument(0);
+                    output.writeInt(PAYLOAD.length);
+                    output.writeBytes(PAYLOAD);
+                    return null;
+                })
+                .when(mockCoprocessors)
+                .writePayloads(Mockito.any());
+        final RemoteSearchResultFactory remoteSearchResultFactory = new RemoteSearchResultFactory(null, null);
+        remoteSearchResultFactory.setCoprocessors(mockCoprocessors);
+        remoteSearchResultFactory.setStarted(true);
+        Mockito.when(mockRemoteSearchResults.get(queryKey.getUuid()))
+                .thenReturn(Optional.of(remoteSearchResultFactory));
+
+        Mockito.when(mockWebTargetFactory.create(Mockito.anyString()))
+                .thenAnswer(invocation -> createWebTarget(invocation.getArgument(0)));
+
+        Mockito.when(mockResultStore.onSuccess(Mockito.eq(REMOTE_NODE), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    final InputStream inputStream = invocation.getArgument(1);
+                    receivedBytes = inputStream.readAllBytes();
+                    return true;
+                });
+    }
+
+    @Test
+    void testCompressedRoundTrip() throws IOException {
+        searchNode(true);
+
+        assertThat(pollParams)
+                .containsEntry(RemoteResultCompression.PARAM_NAME, RemoteResultCompression.LZ4_FRAMED);
+        assertThat(FramedLZ4CompressorInputStream.matches(sentBytes, sentBytes.length))
+                .isTrue();
+        assertThat(sentBytes.length)
+                .isLessThan(PAYLOAD.length / 10);
+        assertThat(receivedBytes)
+                .isEqualTo(writeUncompressedResults());
+        assertPayload(receivedBytes);
+    }
+
+    @Test
+    void testRemoteNodeIgnoresCompression() throws IOException {
+        remoteNodeIgnoresCompression = true;
+
+        searchNode(true);
+
+        // We asked for compression but got plain results which must still be read
+        assertThat(pollParams)
+                .containsEntry(RemoteResultCompression.PARAM_NAME, RemoteResultCompression.LZ4_FRAMED);
+        assertThat(FramedLZ4CompressorInputStream.matches(sentBytes, sentBytes.length))
+                .isFalse();
+        assertThat(receivedBytes)
+                .isEqualTo(sentBytes);
+        assertPayload(receivedBytes);
+    }
+
+    @Test
+    void testCompressionDisabled() throws IOException {
+        searchNode(false);
+
+        assertThat(pollParams)
+                .containsKey("queryKey")
+                .doesNotContainKey(RemoteResultCompression.PARAM_NAME);
+        assertThat(FramedLZ4CompressorInputStream.matches(sentBytes, sentBytes.length))
+                .isFalse();
+        assertThat(receivedBytes)
+                .isEqualTo(sentBytes);
+        assertPayload(receivedBytes);
+    }
+
+    private void searchNode(final boolean compressRemoteResults) {
+        final SearchConfig mockSearchConfig = Mockito.mock(SearchConfig.class);
+        Mockito.when(mockSearchConfig.isCompressRemoteResults())
+                .thenReturn(compressRemoteResults);
+        final RemoteNodeSearch remoteNodeSearch = new RemoteNodeSearch(
+                mockNodeService,
+                mockNodeInfo,
+                mockWebTargetFactory,
+                () -> mockSearchConfig);
+
+        final FederatedSearchTask federatedSearchTask = new FederatedSearchTask(
+                null,
+                queryKey,
+                "test search",
+                null,
+                List.of(),
+                null);
+        federatedSearchTask.setResultStore(mockResultStore);
+
+        remoteNodeSearch.searchNode(
+                THIS_NODE,
+                REMOTE_NODE,
+                federatedSearchTask,
+                Mockito.mock(NodeSearchTask.class),
+                mockTaskContext);
+
+        Mockito.verify(mockResultStore, Mockito.never())
+                .onFailure(Mockito.any(), Mockito.any());
+        Mockito.verify(mockResultStore)
+                .onSuccess(Mockito.eq(REMOTE_NODE), Mockito.any());
+    }
+
+    private byte[] writeUncompressedResults() throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        createRemoteSearchService().poll(queryKey.getUuid(), null, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private void assertPayload(final byte[] results) {
+        try (final Input input = new Input(results)) {
+            assertThat(input.readBoolean())
+                    .isTrue();
+            final int length = input.readInt();
+            assertThat(input.readBytes(length))
+                    .isEqualTo(PAYLOAD);
+            // No errors
+            assertThat(input.readInt())
+                    .isZero();
+        }
+    }
+
+    private RemoteSearchService createRemoteSearchService() {
+        return new RemoteSearchService(mockRemoteSearchResults, null, null, null, null, null, null);
+    }
+
+    private WebTarget createWebTarget(final String url) {
+        final WebTarget mockWebTarget = Mockito.mock(WebTarget.class, Answers.RETURNS_SELF);
+        final Invocation.Builder mockBuilder = Mockito.mock(Invocation.Builder.class);
+        if (url.endsWith(RemoteSearchResource.POLL_PATH_PART)) {
+            // Template values are the query param values
+            Mockito.when(mockWebTarget.resolveTemplate(Mockito.anyString(), Mockito.any()))
+                    .thenAnswer(invocation -> {
+                        final String templateName = invocation.getArgument(0);
+                        pollParams.put(templateName.substring(0, templateName.length() - "Template".length()),
+                                invocation.getArgument(1));
+                        return mockWebTarget;
+                    });
+            Mockito.when(mockWebTarget.request(MediaType.APPLICATION_OCTET_STREAM))
+                    .thenReturn(mockBuilder);
+            Mockito.when(mockBuilder.get(InputStream.class))
+                    .thenAnswer(invocation -> {
+                        sentBytes = poll();
+                        return new ByteArrayInputStream(sentBytes);
+                    });
+        } else {
+            // Start and destroy
+            final Response mockResponse = Mockito.mock(Response.class);
+            Mockito.when(mockResponse.getStatus())
+                    .thenReturn(Response.Status.OK.getStatusCode());
+            Mockito.when(mockResponse.readEntity(Boolean.class))
+                    .thenReturn(true);
+            Mockito.when(mockWebTarget.request(MediaType.APPLICATION_JSON))
+                    .thenReturn(mockBuilder);
+            Mockito.when(mockBuilder.post(Mockito.any(Entity.class)))
+                    .thenReturn(mockResponse);
+            Mockito.when(mockBuilder.get())
+                    .thenReturn(mockResponse);
+        }
+        return mockWebTarget;
+    }
+
+    /**
+     * What the remote node does when it is polled.
+     */
+    private byte[] poll() {
+        final String compression = remoteNodeIgnoresCompression
+                ? null
+                : (String) pollParams.get(RemoteResultCompression.PARAM_NAME);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            createRemoteSearchService().poll(
+                    (String) pollParams.get("queryKey"),
+                    compression,
+                    outputStream);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+}
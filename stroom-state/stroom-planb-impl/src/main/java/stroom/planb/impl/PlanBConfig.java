@@ -1,6 +1,8 @@
 package stroom.planb.impl;
 
 import stroom.util.cache.CacheConfig;
+import stroom.util.config.annotations.RequiresRestart;
+import stroom.util.io.ByteSize;
 import stroom.util.shared.AbstractConfig;
 import stroom.util.shared.IsStroomConfig;
 import stroom.util.time.StroomDuration;
@@ -17,12 +19,20 @@ import java.util.Objects;
 @JsonPropertyOrder(alphabetic = true)
 public class PlanBConfig extends AbstractConfig implements IsStroomConfig {
 
+    public static final int DEFAULT_MERGE_THREADS = 4;
+    public static final ByteSize DEFAULT_MAX_STAGED_SIZE = ByteSize.ofGibibytes(10);
+    public static final StroomDuration DEFAULT_MAX_STAGED_SIZE_WAIT = StroomDuration.ofSeconds(30);
+
     private final CacheConfig stateDocCache;
     private final List<String> nodeList;
     private final String path;
     private final StroomDuration minTimeToKeepSnapshots;
     private final StroomDuration minTimeToKeepEnvOpen;
     private final StroomDuration snapshotRetryFetchInterval;
+    private final int mergeThreads;
+    private final boolean mergeLargestFirst;
+    private final ByteSize maxStagedSize;
+    private final StroomDuration maxStagedSizeWait;
 
     public PlanBConfig() {
         this("${stroom.home}/planb");
@@ -38,7 +48,11 @@ public class PlanBConfig extends AbstractConfig implements IsStroomConfig {
                 path,
                 StroomDuration.ofMinutes(10),
                 StroomDuration.ofMinutes(1),
-                StroomDuration.ofMinutes(1));
+                StroomDuration.ofMinutes(1),
+                DEFAULT_MERGE_THREADS,
+                false,
+                DEFAULT_MAX_STAGED_SIZE,
+                DEFAULT_MAX_STAGED_SIZE_WAIT);
     }
 
     @SuppressWarnings("unused")
@@ -48,13 +62,21 @@ public class PlanBConfig extends AbstractConfig implements IsStroomConfig {
                        @JsonProperty("path") final String path,
                        @JsonProperty("minTimeToKeepSnapshots") final StroomDuration minTimeToKeepSnapshots,
                        @JsonProperty("minTimeToKeepEnvOpen") final StroomDuration minTimeToKeepEnvOpen,
-                       @JsonProperty("snapshotRetryFetchInterval") final StroomDuration snapshotRetryFetchInterval) {
+                       @JsonProperty("snapshotRetryFetchInterval") final StroomDuration snapshotRetryFetchInterval,
+                       @JsonProperty("mergeThreads") final Integer mergeThreads,
+                       @JsonProperty("mergeLargestFirst") final Boolean mergeLargestFirst,
+                       @JsonProperty("maxStagedSize") final ByteSize maxStagedSize,
+                       @JsonProperty("maxStagedSizeWait") final StroomDuration maxStagedSizeWait) {
         this.stateDocCache = stateDocCache;
         this.nodeList = nodeList;
         this.path = path;
         this.minTimeToKeepSnapshots = minTimeToKeepSnapshots;
         this.minTimeToKeepEnvOpen = minTimeToKeepEnvOpen;
         this.snapshotRetryFetchInterval = snapshotRetryFetchInterval;
+        this.mergeThreads = Objects.requireNonNullElse(mergeThreads, DEFAULT_MERGE_THREADS);
+        this.mergeLargestFirst = Objects.requireNonNullElse(mergeLargestFirst, false);
+        this.maxStagedSize = Objects.requireNonNullElse(maxStagedSize, DEFAULT_MAX_STAGED_SIZE);
+        this.maxStagedSizeWait = Objects.requireNonNullElse(maxStagedSizeWait, DEFAULT_MAX_STAGED_SIZE_WAIT);
     }
 
     @JsonProperty
@@ -95,6 +117,35 @@ public class PlanBConfig extends AbstractConfig implements IsStroomConfig {
         return snapshotRetryFetchInterval;
     }
 
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonProperty
+    @JsonPropertyDescription("The number of threads used to merge received parts into Plan B stores. " +
+                             "Each store is only ever merged by one thread at a time.")
+    public int getMergeThreads() {
+        return mergeThreads;
+    }
+
+    @JsonProperty
+    @JsonPropertyDescription("If true the store with the most data waiting to be merged is always merged next. " +
+                             "If false stores take it in turns to have a part merged.")
+    public boolean isMergeLargestFirst() {
+        return mergeLargestFirst;
+    }
+
+    @JsonProperty
+    @JsonPropertyDescription("The maximum amount of received data that can be waiting to be merged before " +
+                             "new parts are held back. Set to zero for no limit.")
+    public ByteSize getMaxStagedSize() {
+        return maxStagedSize;
+    }
+
+    @JsonProperty
+    @JsonPropertyDescription("How long a new part will wait for merging to catch up when 'maxStagedSize' has " +
+                             "been reached before it is refused.")
+    public StroomDuration getMaxStagedSizeWait() {
+        return maxStagedSizeWait;
+    }
+
     @Override
     public String toString() {
         return "PlanBConfig{" +
@@ -104,6 +155,10 @@ public class PlanBConfig extends AbstractConfig implements IsStroomConfig {
                ", minTimeToKeepSnapshots=" + minTimeToKeepSnapshots +
                ", minTimeToKeepEnvOpen=" + minTimeToKeepEnvOpen +
                ", snapshotRetryFetchInterval=" + snapshotRetryFetchInterval +
+               ", mergeThreads=" + mergeThreads +
+               ", mergeLargestFirst=" + mergeLargestFirst +
+               ", maxStagedSize=" + maxStagedSize +
+               ", maxStagedSizeWait=" + maxStagedSizeWait +
                '}';
     }
 
@@ -121,7 +176,11 @@ public class PlanBConfig extends AbstractConfig implements IsStroomConfig {
                Objects.equals(path, that.path) &&
                Objects.equals(minTimeToKeepSnapshots, that.minTimeToKeepSnapshots) &&
                Objects.equals(minTimeToKeepEnvOpen, that.minTimeToKeepEnvOpen) &&
-               Objects.equals(snapshotRetryFetchInterval, that.snapshotRetryFetchInterval);
+               Objects.equals(snapshotRetryFetchInterval, that.snapshotRetryFetchInterval) &&
+               mergeThreads == that.mergeThreads &&
+               mergeLargestFirst == that.mergeLargestFirst &&
+               Objects.equals(maxStagedSize, that.maxStagedSize) &&
+               Objects.equals(maxStagedSizeWait, that.maxStagedSizeWait);
     }
 
     @Override
@@ -132,6 +191,10 @@ public class PlanBConfig extends AbstractConfig implements IsStroomConfig {
                 path,
                 minTimeToKeepSnapshots,
                 minTimeToKeepEnvOpen,
-                snapshotRetryFetchInterval);
+                snapshotRetryFetchInterval,
+                mergeThreads,
+                mergeLargestFirst,
+                maxStagedSize,
+                maxStagedSizeWait);
     }
 }
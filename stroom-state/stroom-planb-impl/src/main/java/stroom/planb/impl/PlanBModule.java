@@ -45,6 +45,7 @@ import stroom.searchable.api.Searchable;
 import stroom.util.RunnableWrapper;
 import stroom.util.entityevent.EntityEvent;
 import stroom.util.guice.GuiceUtil;
+import stroom.util.guice.HasSystemInfoBinder;
 import stroom.util.guice.RestResourcesBinder;
 import stroom.util.shared.Clearable;
 import stroom.util.shared.scheduler.CronExpressions;
@@ -98,6 +99,9 @@ public class PlanBModule extends AbstractModule {
                 .bind(PlanBRemoteQueryResourceImpl.class)
                 .bind(TracesRemoteQueryResourceImpl.class);
 
+        HasSystemInfoBinder.create(binder())
+                .bind(MergeProcessor.class);
+
         GuiceUtil.buildMultiBinder(binder(), DataSourceProvider.class)
                 .addBinding(StateSearchProvider.class);
         GuiceUtil.buildMultiBinder(binder(), SearchProvider.class)
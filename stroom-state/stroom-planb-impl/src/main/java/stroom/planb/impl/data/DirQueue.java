@@ -205,6 +205,23 @@ public class DirQueue {
         }
     }
 
+    /**
+     * @return The number of dirs waiting to be read from the queue. This may be an overestimate if there are gaps
+     * in the sequence of dirs.
+     */
+    public long size() {
+        try {
+            lock.lockInterruptibly();
+            try {
+                return Math.max(0, writeId - readId + 1);
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+    }
+
     private Dir createDir(final long id, final Path path) {
         return new Dir(this, path, latches.remove(id));
     }
@@ -5,8 +5,16 @@ import java.time.Instant;
 
 public interface FileTransferClient {
 
-    void storePart(FileDescriptor fileDescriptor,
-                   Path path,
+    /**
+     * Store a part on all Plan B nodes.
+     *
+     * @param metaId           The id of the meta the part was created from.
+     * @param partDir          A dir containing one LMDB env dir per store to merge. The dir may be moved by this
+     *                         method so callers must not rely on it still existing afterwards.
+     * @param synchroniseMerge True if we should wait for the part to be merged.
+     */
+    void storePart(long metaId,
+                   Path partDir,
                    boolean synchroniseMerge);
 
     Instant fetchSnapshot(String nodeName,
@@ -69,89 +69,139 @@ public class FileTransferClientImpl implements FileTransferClient {
     }
 
     @Override
-    public void storePart(final FileDescriptor fileDescriptor,
-                          final Path path,
+    public void storePart(final long metaId,
+                          final Path partDir,
                           final boolean synchroniseMerge) {
         securityContext.asProcessingUser(() -> {
-            final Set<String> targetNodes = new HashSet<>();
+            final Set<String> targetNodes = getTargetNodes();
+            final long createTime = System.currentTimeMillis();
 
-            // Now post to all nodes.
-            final PlanBConfig planBConfig = configProvider.get();
-            final List<String> configuredNodes = planBConfig.getNodeList();
-            if (configuredNodes == null || configuredNodes.isEmpty()) {
-                LOGGER.warn("No node list configured for PlanB, assuming this is a single node test setup");
-                if (nodeInfo != null) {
-                    targetNodes.add(nodeInfo.getThisNodeName());
+            if (targetNodes.size() == 1 && isLocal(targetNodes.iterator().next())) {
+                // If the only target is the local node then there is no need to compress the part, we can just
+                // move the dir into the store and merge it in place.
+                try {
+                    final FileDescriptor fileDescriptor = new FileDescriptor(createTime, metaId, null);
+                    LOGGER.debug(() -> LogUtil.message(
+                            "Plan B storing uncompressed part {} locally",
+                            fileDescriptor.getInfo(partDir)));
+                    partDestination.receiveLocalPartDir(fileDescriptor, partDir, synchroniseMerge);
+                } catch (final IOException e) {
+                    LOGGER.error(e::getMessage, e);
+                    throw new UncheckedIOException(e);
                 }
 
-            } else {
+            } else if (!targetNodes.isEmpty()) {
+                final Path zipFile = partDir.resolveSibling(partDir.getFileName().toString() +
+                                                            SequentialFileStore.ZIP_EXTENSION);
                 try {
-                    if (targetNodeSetFactory != null) {
-                        final Set<String> enabledNodes = targetNodeSetFactory.getEnabledTargetNodeSet();
-                        for (final String node : configuredNodes) {
-                            if (enabledNodes.contains(node)) {
-                                targetNodes.add(node);
-                            } else {
-                                throw new RuntimeException("Plan B target node '" +
-                                                           node +
-                                                           "' is not enabled");
-                            }
-                        }
-                    }
-                } catch (final Exception e) {
+                    LOGGER.debug(() -> LogUtil.message("Plan B zipping part {}", partDir));
+                    ZipUtil.zip(zipFile, partDir);
+                    final String fileHash = FileHashUtil.hash(zipFile);
+                    final FileDescriptor fileDescriptor = new FileDescriptor(createTime, metaId, fileHash);
+                    storePart(targetNodes, fileDescriptor, zipFile, synchroniseMerge);
+                } catch (final IOException e) {
                     LOGGER.error(e::getMessage, e);
-                    throw new RuntimeException(e.getMessage(), e);
+                    throw new UncheckedIOException(e);
+                } finally {
+                    try {
+                        Files.deleteIfExists(zipFile);
+                    } catch (final IOException e) {
+                        LOGGER.error(e::getMessage, e);
+                    }
                 }
             }
+        });
+    }
 
-            // Send the data to all nodes.
-            final List<CompletableFuture<?>> futures = new ArrayList<>(targetNodes.size());
-            final List<RuntimeException> collectedExceptions = Collections.synchronizedList(new ArrayList<>());
-            for (final String nodeName : targetNodes) {
-                futures.add(CompletableFuture.runAsync(() ->
-                        securityContext.asProcessingUser(() -> {
-                            try {
-                                LOGGER.debug(() -> LogUtil.message(
-                                        "Plan B sending data {} to {}",
-                                        fileDescriptor.getInfo(path),
-                                        nodeName));
+    private boolean isLocal(final String nodeName) {
+        return nodeInfo == null || NodeCallUtil.shouldExecuteLocally(nodeInfo, nodeName);
+    }
 
-                                if (nodeInfo == null || NodeCallUtil.shouldExecuteLocally(nodeInfo, nodeName)) {
-                                    // Allow file move if the only target is the local node.
-                                    final boolean allowMove = targetNodes.size() == 1;
-                                    storePartLocally(
-                                            fileDescriptor,
-                                            path,
-                                            allowMove,
-                                            synchroniseMerge);
-                                } else {
-                                    storePartRemotely(
-                                            nodeName,
-                                            fileDescriptor,
-                                            path,
-                                            synchroniseMerge);
-                                }
-                            } catch (final IOException e) {
-                                LOGGER.error(e::getMessage, e);
-                                final UncheckedIOException uncheckedIOException = new UncheckedIOException(e);
-                                collectedExceptions.add(uncheckedIOException);
-                                throw uncheckedIOException;
-                            }
-                        })));
+    private Set<String> getTargetNodes() {
+        final Set<String> targetNodes = new HashSet<>();
+
+        // Now post to all nodes.
+        final PlanBConfig planBConfig = configProvider.get();
+        final List<String> configuredNodes = planBConfig.getNodeList();
+        if (configuredNodes == null || configuredNodes.isEmpty()) {
+            LOGGER.warn("No node list configured for PlanB, assuming this is a single node test setup");
+            if (nodeInfo != null) {
+                targetNodes.add(nodeInfo.getThisNodeName());
             }
 
-            // Wait for all futures to complete or cancel them all and throw an exception if one fails.
+        } else {
             try {
-                allOfTerminateOnFailure(futures).join();
-            } catch (final RuntimeException e) {
-                // If we collected an exception then throw that or else throw the completion exception.
-                if (!collectedExceptions.isEmpty()) {
-                    throw collectedExceptions.getFirst();
-                } else {
-                    throw e;
+                if (targetNodeSetFactory != null) {
+                    final Set<String> enabledNodes = targetNodeSetFactory.getEnabledTargetNodeSet();
+                    for (final String node : configuredNodes) {
+                        if (enabledNodes.contains(node)) {
+                            targetNodes.add(node);
+                        } else {
+                            throw new RuntimeException("Plan B target node '" +
+                                                       node +
+                                                       "' is not enabled");
+                        }
+                    }
                 }
+            } catch (final Exception e) {
+                LOGGER.error(e::getMessage, e);
+                throw new RuntimeException(e.getMessage(), e);
             }
-        });
+        }
+        return targetNodes;
+    }
+
+    private void storePart(final Set<String> targetNodes,
+                           final FileDescriptor fileDescriptor,
+                           final Path path,
+                           final boolean synchroniseMerge) {
+        // Send the data to all nodes.
+        final List<CompletableFuture<?>> futures = new ArrayList<>(targetNodes.size());
+        final List<RuntimeException> collectedExceptions = Collections.synchronizedList(new ArrayList<>());
+        for (final String nodeName : targetNodes) {
+            futures.add(CompletableFuture.runAsync(() ->
+                    securityContext.asProcessingUser(() -> {
+                        try {
+                            LOGGER.debug(() -> LogUtil.message(
+                                    "Plan B sending data {} to {}",
+                                    fileDescriptor.getInfo(path),
+                                    nodeName));
+
+                            if (isLocal(nodeName)) {
+                                // Allow file move if the only target is the local node.
+                                final boolean allowMove = targetNodes.size() == 1;
+                                storePartLocally(
+                                        fileDescriptor,
+                                        path,
+                                        allowMove,
+                                        synchroniseMerge);
+                            } else {
+                                storePartRemotely(
+                                        nodeName,
+                                        fileDescriptor,
+                                        path,
+                                        synchroniseMerge);
+                            }
+                        } catch (final IOException e) {
+                            LOGGER.error(e::getMessage, e);
+                            final UncheckedIOException uncheckedIOException = new UncheckedIOException(e);
+                            collectedExceptions.add(uncheckedIOException);
+                            throw uncheckedIOException;
+                        }
+                    })));
+        }
+
+        // Wait for all futures to complete or cancel them all and throw an exception if one fails.
+        try {
+            allOfTerminateOnFailure(futures).join();
+        } catch (final RuntimeException e) {
+            // If we collected an exception then throw that or else throw the completion exception.
+            if (!collectedExceptions.isEmpty()) {
+                throw collectedExceptions.getFirst();
+            } else {
+                throw e;
+            }
+        }
     }
 
     private static CompletableFuture<?> allOfTerminateOnFailure(final List<CompletableFuture<?>> futures) {
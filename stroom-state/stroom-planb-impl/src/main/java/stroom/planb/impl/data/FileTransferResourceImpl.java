@@ -107,6 +107,11 @@ public class FileTransferResourceImpl implements FileTransferResource {
             return Response
                     .status(Status.UNAUTHORIZED.getStatusCode(), e.getMessage())
                     .build();
+        } catch (final MergeBackpressureException e) {
+            LOGGER.warn(() -> LogUtil.message("Refused part: {} {}", fileInfo, e.getMessage()));
+            return Response
+                    .status(Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getMessage())
+                    .build();
         } catch (final Exception e) {
             LOGGER.error(LogUtil.message("Exception receiving part: " + fileInfo), e);
             return Response
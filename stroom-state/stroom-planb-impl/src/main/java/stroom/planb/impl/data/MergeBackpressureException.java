@@ -0,0 +1,11 @@
+package stroom.planb.impl.data;
+
+/**
+ * Thrown when a part is refused because too much received data is still waiting to be merged.
+ */
+public class MergeBackpressureException extends RuntimeException {
+
+    public MergeBackpressureException(final String message) {
+        super(message);
+    }
+}
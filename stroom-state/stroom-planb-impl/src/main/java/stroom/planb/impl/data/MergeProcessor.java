@@ -1,19 +1,28 @@
 package stroom.planb.impl.data;
 
 import stroom.docstore.api.DocumentNotFoundException;
+import stroom.planb.impl.PlanBConfig;
 import stroom.planb.impl.db.StatePaths;
 import stroom.planb.shared.PlanBDoc;
 import stroom.security.api.SecurityContext;
+import stroom.task.api.ExecutorProvider;
 import stroom.task.api.TaskContextFactory;
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
+import stroom.util.exception.ThrowingRunnable;
+import stroom.util.io.ByteSize;
 import stroom.util.io.FileUtil;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
 import stroom.util.shared.NullSafe;
 import stroom.util.string.StringIdUtil;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
 import stroom.util.zip.ZipUtil;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 
 import java.io.IOException;
@@ -25,36 +34,49 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 @Singleton
-public class MergeProcessor {
+public class MergeProcessor implements HasSystemInfo {
 
     public static final String MERGE_TASK_NAME = "Plan B Merge Processor";
     public static final String MAINTAIN_TASK_NAME = "Plan B Maintenance Processor";
 
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(MergeProcessor.class);
+    private static final ThreadPool MERGE_THREAD_POOL = new ThreadPoolImpl("Plan B Merge");
 
     private final Map<String, DirQueue> mergeQueues = new ConcurrentHashMap<>();
     private final SequentialFileStore receiveStore;
     private final Path mergingDir;
     private final Path unzipDir;
     private final AtomicLong unzipSequenceId = new AtomicLong();
+    private final Provider<PlanBConfig> planBConfigProvider;
     private final SecurityContext securityContext;
     private final TaskContextFactory taskContextFactory;
+    private final ExecutorProvider executorProvider;
     private final ShardManager shardManager;
+    private final MergeScheduler mergeScheduler;
+    private final AtomicBoolean workersStarted = new AtomicBoolean();
     private volatile boolean merging;
 
     @Inject
     public MergeProcessor(final StatePaths statePaths,
+                          final Provider<PlanBConfig> planBConfigProvider,
                           final SecurityContext securityContext,
                           final TaskContextFactory taskContextFactory,
+                          final ExecutorProvider executorProvider,
                           final ShardManager shardManager) {
         this.receiveStore = new SequentialFileStore(statePaths.getStagingDir());
+        this.planBConfigProvider = planBConfigProvider;
         this.securityContext = securityContext;
         this.taskContextFactory = taskContextFactory;
+        this.executorProvider = executorProvider;
         this.shardManager = shardManager;
+        this.mergeScheduler = new MergeScheduler(
+                () -> planBConfigProvider.get().isMergeLargestFirst(),
+                this::mergeDir);
 
         mergingDir = statePaths.getMergingDir();
         FileUtil.ensureDirExists(mergingDir);
@@ -66,16 +88,37 @@ public class MergeProcessor {
         if (!FileUtil.deleteContents(unzipDir)) {
             throw new RuntimeException("Unable to delete contents of: " + FileUtil.getCanonicalPath(unzipDir));
         }
+
+        // Account for any parts left in the receive store from before a restart.
+        mergeScheduler.addReceivedBytes(FileUtil.getByteSize(statePaths.getStagingDir()));
+    }
+
+    /**
+     * Wait until there is capacity to accept more received data for merge. If merging has fallen so far behind that
+     * 'maxStagedSize' is still exceeded after waiting for 'maxStagedSizeWait' then the part is refused.
+     *
+     * @throws MergeBackpressureException If the part is refused.
+     */
+    public void awaitCapacity() {
+        final PlanBConfig planBConfig = planBConfigProvider.get();
+        final long maxStagedBytes = NullSafe.getOrElse(planBConfig.getMaxStagedSize(), ByteSize::getBytes, 0L);
+        if (!mergeScheduler.awaitCapacity(maxStagedBytes, planBConfig.getMaxStagedSizeWait().getDuration())) {
+            throw new MergeBackpressureException(LogUtil.message(
+                    "Plan B merge is behind, {} bytes waiting to be merged exceeds the limit of {}",
+                    mergeScheduler.getStagedBytes(),
+                    planBConfig.getMaxStagedSize()));
+        }
     }
 
     public void add(final FileDescriptor fileDescriptor,
                     final Path file,
                     final boolean synchroniseMerge) throws IOException {
         final FileInfo fileInfo = fileDescriptor.getInfo(file);
+        final long bytes = Files.size(file);
         if (synchroniseMerge) {
             final CountDownLatch countDownLatch = new CountDownLatch(1);
             LOGGER.debug(() -> "Plan B adding part for synchronous merge : " + fileInfo);
-            receiveStore.add(fileDescriptor, file, countDownLatch);
+            addToReceiveStore(bytes, () -> receiveStore.add(fileDescriptor, file, countDownLatch));
             try {
                 countDownLatch.await();
             } catch (final InterruptedException e) {
@@ -84,7 +127,43 @@ public class MergeProcessor {
             }
         } else {
             LOGGER.debug(() -> "Plan B adding part for merge : " + fileInfo);
-            receiveStore.add(fileDescriptor, file, null);
+            addToReceiveStore(bytes, () -> receiveStore.add(fileDescriptor, file, null));
+        }
+    }
+
+    /**
+     * Add an uncompressed part dir for merge. The dir is moved into the receive store and the stores it contains
+     * are merged in place so no copy of the data is made.
+     */
+    public void addPartDir(final FileDescriptor fileDescriptor,
+                           final Path partDir,
+                           final boolean synchroniseMerge) throws IOException {
+        final FileInfo fileInfo = fileDescriptor.getInfo(partDir);
+        final long bytes = FileUtil.getByteSize(partDir);
+        if (synchroniseMerge) {
+            final CountDownLatch countDownLatch = new CountDownLatch(1);
+            LOGGER.debug(() -> "Plan B adding part dir for synchronous merge : " + fileInfo);
+            addToReceiveStore(bytes, () -> receiveStore.addPartDir(partDir, countDownLatch));
+            try {
+                countDownLatch.await();
+            } catch (final InterruptedException e) {
+                LOGGER.debug(e::getMessage, e);
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            LOGGER.debug(() -> "Plan B adding part dir for merge : " + fileInfo);
+            addToReceiveStore(bytes, () -> receiveStore.addPartDir(partDir, null));
+        }
+    }
+
+    private void addToReceiveStore(final long bytes, final ThrowingRunnable<IOException> action) throws IOException {
+        // Count the bytes before adding as the part could be merged before the add returns.
+        mergeScheduler.addReceivedBytes(bytes);
+        try {
+            action.run();
+        } catch (final IOException | RuntimeException e) {
+            mergeScheduler.addReceivedBytes(-bytes);
+            throw e;
         }
     }
 
@@ -104,6 +183,13 @@ public class MergeProcessor {
                         LOGGER.error(e::getMessage, e);
                     }
 
+                    // Start the workers that merge queued dirs into stores.
+                    if (workersStarted.compareAndSet(false, true)) {
+                        mergeScheduler.start(
+                                planBConfigProvider.get().getMergeThreads(),
+                                executorProvider.get(MERGE_THREAD_POOL));
+                    }
+
                     CompletableFuture.runAsync(() -> {
                         try {
                             unzipPartFiles();
@@ -135,7 +221,7 @@ public class MergeProcessor {
                 final long currentStoreId = storeId;
                 final SequentialFile sequentialFile = receiveStore.awaitNext(currentStoreId);
                 taskContextFactory.context(MERGE_TASK_NAME, taskContext -> {
-                    taskContext.info(() -> "Decompressing received data: " + currentStoreId);
+                    taskContext.info(() -> "Queuing received data for merge: " + currentStoreId);
                     unzipPartFile(sequentialFile);
                 }).run();
 
@@ -169,13 +255,10 @@ public class MergeProcessor {
         final SequentialFile sequentialFile = receiveStore.awaitNext(storeId);
         taskContextFactory.context(MERGE_TASK_NAME, parentContext -> {
             try {
-                final Path zipFile = sequentialFile.getZip();
-                if (Files.isRegularFile(zipFile)) {
-                    final String dirName = StringIdUtil.idToString(unzipSequenceId.incrementAndGet());
-                    final Path dir = unzipDir.resolve(dirName);
-                    ZipUtil.unzip(zipFile, dir);
-
-                    // We ought to have one or more stores to merge in this part zip file.
+                final long partBytes = getPartBytes(sequentialFile);
+                final Path dir = getPartDir(sequentialFile);
+                if (dir != null) {
+                    // We ought to have one or more stores to merge in this part.
                     try (final Stream<Path> stream = Files.list(dir)) {
                         stream.forEach(source -> {
                             final String docUuid = source.getFileName().toString();
@@ -186,8 +269,9 @@ public class MergeProcessor {
                     // Delete unzip dir.
                     FileUtil.deleteDir(dir);
 
-                    // Delete the original zip file.
+                    // Delete the original zip file or part dir.
                     receiveStore.delete(sequentialFile);
+                    mergeScheduler.addReceivedBytes(-partBytes);
                 }
             } catch (final IOException | RuntimeException e) {
                 LOGGER.error(e::getMessage, e);
@@ -195,16 +279,44 @@ public class MergeProcessor {
         }).run();
     }
 
+    private long getPartBytes(final SequentialFile sequentialFile) throws IOException {
+        if (Files.isDirectory(sequentialFile.getPartDir())) {
+            return FileUtil.getByteSize(sequentialFile.getPartDir());
+        } else if (Files.isRegularFile(sequentialFile.getZip())) {
+            return Files.size(sequentialFile.getZip());
+        }
+        return 0;
+    }
+
+    /**
+     * Get the dir containing the stores to merge for a part. Uncompressed parts are used in place, whereas zipped
+     * parts have to be unzipped first.
+     *
+     * @return The dir containing the stores to merge or null if the part no longer exists.
+     */
+    private Path getPartDir(final SequentialFile sequentialFile) throws IOException {
+        final Path partDir = sequentialFile.getPartDir();
+        if (Files.isDirectory(partDir)) {
+            return partDir;
+        }
+
+        final Path zipFile = sequentialFile.getZip();
+        if (Files.isRegularFile(zipFile)) {
+            final String dirName = StringIdUtil.idToString(unzipSequenceId.incrementAndGet());
+            final Path dir = unzipDir.resolve(dirName);
+            ZipUtil.unzip(zipFile, dir);
+            return dir;
+        }
+        return null;
+    }
+
     private void unzipPartFile(final SequentialFile sequentialFile) {
         // Create a map to track the max positions of each of the items we add to the processing queue.
         try {
-            final Path zipFile = sequentialFile.getZip();
-            if (Files.isRegularFile(zipFile)) {
-                final String dirName = StringIdUtil.idToString(unzipSequenceId.incrementAndGet());
-                final Path dir = unzipDir.resolve(dirName);
-                ZipUtil.unzip(zipFile, dir);
-
-                // We ought to have one or more stores to merge in this part zip file.
+            final long partBytes = getPartBytes(sequentialFile);
+            final Path dir = getPartDir(sequentialFile);
+            if (dir != null) {
+                // We ought to have one or more stores to merge in this part.
                 final List<Path> dirs = FileUtil.listChildDirs(dir);
 
                 // If the parent process is waiting for merge then create a countdown latch to cover all dirs that need
@@ -220,9 +332,14 @@ public class MergeProcessor {
                 dirs.forEach(source -> {
                     final String docUuid = source.getFileName().toString();
                     final DirQueue queue = getOrCreateDirQueue(docUuid);
+                    final long bytes = FileUtil.getByteSize(source);
                     queue.add(source, countDownLatch);
+                    mergeScheduler.onQueued(docUuid, bytes);
                 });
 
+                // The received data is now accounted for by the merge queues.
+                mergeScheduler.addReceivedBytes(-partBytes);
+
                 // If the parent process is waiting for merge to complete then wait.
                 if (countDownLatch != null) {
                     try {
@@ -237,7 +354,7 @@ public class MergeProcessor {
                 // Delete unzip dir.
                 FileUtil.deleteDir(dir);
 
-                // Delete the original zip file.
+                // Delete the original zip file or part dir.
                 receiveStore.delete(sequentialFile);
             }
         } catch (final IOException | RuntimeException e) {
@@ -251,8 +368,8 @@ public class MergeProcessor {
                 final Path uuidDir = mergingDir.resolve(docUuid);
                 Files.createDirectories(uuidDir);
                 final DirQueue dirQueue = new DirQueue(uuidDir, docUuid);
-                // Start processing this queue.
-                CompletableFuture.runAsync(() -> mergeStore(dirQueue, docUuid));
+                // Schedule processing of this queue.
+                mergeScheduler.register(docUuid, dirQueue, uuidDir);
                 return dirQueue;
             } catch (final IOException e) {
                 throw new UncheckedIOException(e);
@@ -260,26 +377,13 @@ public class MergeProcessor {
         });
     }
 
-    private void mergeStore(final DirQueue dirQueue,
-                            final String uuid) {
-        securityContext.asProcessingUser(() -> {
-            while (!Thread.currentThread().isInterrupted()) {
-                // Wait until new data is available.
-                try (final Dir dir = dirQueue.next()) {
-                    mergeDir(dir.getPath(), uuid);
-
-                    // If synchronisation is happening on merge then let the parent process know we finished merging
-                    // this dir.
-                    if (dir.getCountDownLatch() != null) {
-                        dir.getCountDownLatch().countDown();
-                    }
-                }
-            }
-        });
-    }
-
     private void mergeDir(final Path path,
                           final String uuid) {
+        securityContext.asProcessingUser(() -> mergeDirAsProcessingUser(path, uuid));
+    }
+
+    private void mergeDirAsProcessingUser(final Path path,
+                                          final String uuid) {
         try {
             final Shard shard = shardManager.getShardForDocUuid(uuid);
             final String name = NullSafe.get(shard, Shard::getDoc, PlanBDoc::getName);
@@ -296,4 +400,14 @@ public class MergeProcessor {
             LOGGER.error(e::getMessage, e);
         }
     }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final PlanBConfig planBConfig = planBConfigProvider.get();
+        final SystemInfoResult.Builder builder = SystemInfoResult.builder(this)
+                .addDetail("maxStagedSize", String.valueOf(planBConfig.getMaxStagedSize()))
+                .addDetail("stagedBytes", mergeScheduler.getStagedBytes());
+        mergeScheduler.getInfo().forEach(builder::addDetail);
+        return builder.build();
+    }
 }
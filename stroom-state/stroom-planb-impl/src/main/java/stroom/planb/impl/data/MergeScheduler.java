@@ -0,0 +1,347 @@
+package stroom.planb.impl.data;
+
+import stroom.util.concurrent.UncheckedInterruptedException;
+import stroom.util.io.FileUtil;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Schedules merging of the parts queued for each Plan B store across a fixed number of workers.
+ * <p>
+ * Each worker takes a store that has parts waiting, merges a single part and then puts the store to the back of
+ * the ready queue if it still has parts waiting. This gives fair round-robin scheduling across stores, or if
+ * largest first is enabled then the store with the most bytes waiting is always merged next. A store is only ever
+ * merged by one worker at a time.
+ * <p>
+ * The scheduler also keeps track of the total bytes of received data that are waiting to be merged so that part
+ * uploads can be slowed down or refused when merging falls behind.
+ */
+class MergeScheduler {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(MergeScheduler.class);
+
+    private final BooleanSupplier largestFirst;
+    private final BiConsumer<Path, String> merger;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition capacityAvailable = lock.newCondition();
+
+    // All guarded by lock.
+    private final Map<String, StoreQueue> stores = new HashMap<>();
+    private final Deque<StoreQueue> ready = new ArrayDeque<>();
+    private long receivedBytes;
+    private long queuedBytes;
+    private int workers;
+
+    /**
+     * @param largestFirst Whether the store with the most bytes waiting should always be merged next.
+     * @param merger       Merges a dir into the store with the supplied doc UUID.
+     */
+    MergeScheduler(final BooleanSupplier largestFirst,
+                   final BiConsumer<Path, String> merger) {
+        this.largestFirst = largestFirst;
+        this.merger = merger;
+    }
+
+    /**
+     * Start the workers that will merge queued parts.
+     */
+    void start(final int workerCount, final Executor executor) {
+        final int count = Math.max(1, workerCount);
+        runInLock(() -> workers += count);
+        LOGGER.info("Starting {} Plan B merge workers", count);
+        for (int i = 0; i < count; i++) {
+            CompletableFuture.runAsync(this::work, executor);
+        }
+    }
+
+    /**
+     * Register the queue of dirs to merge for a store. Any dirs already in the queue, e.g. left over from before a
+     * restart, will be scheduled for merge.
+     */
+    void register(final String docUuid, final DirQueue dirQueue, final Path queueDir) {
+        final long size = dirQueue.size();
+        final long bytes = size > 0
+                ? FileUtil.getByteSize(queueDir)
+                : 0;
+        runInLock(() -> {
+            final StoreQueue storeQueue = new StoreQueue(docUuid, dirQueue);
+            stores.put(docUuid, storeQueue);
+            if (size > 0) {
+                final long now = System.currentTimeMillis();
+                storeQueue.pendingParts = size;
+                storeQueue.pendingBytes = bytes;
+                for (long i = 0; i < size; i++) {
+                    storeQueue.queueTimes.addLast(now);
+                }
+                queuedBytes += bytes;
+                makeReady(storeQueue);
+            }
+        });
+    }
+
+    /**
+     * Record that a dir has been added to the queue for a store. This must be called after the dir has been added to
+     * the store's {@link DirQueue}.
+     */
+    void onQueued(final String docUuid, final long bytes) {
+        runInLock(() -> {
+            final StoreQueue storeQueue = stores.get(docUuid);
+            if (storeQueue == null) {
+                throw new IllegalStateException("No merge queue registered for " + docUuid);
+            }
+            storeQueue.pendingParts++;
+            storeQueue.pendingBytes += bytes;
+            storeQueue.queuedSinceTaken++;
+            storeQueue.queueTimes.addLast(System.currentTimeMillis());
+            queuedBytes += bytes;
+            if (!storeQueue.merging) {
+                makeReady(storeQueue);
+            }
+        });
+    }
+
+    /**
+     * Adjust the bytes of received parts that have not yet been queued for merge.
+     */
+    void addReceivedBytes(final long delta) {
+        runInLock(() -> {
+            receivedBytes = Math.max(0, receivedBytes + delta);
+            if (delta < 0) {
+                capacityAvailable.signalAll();
+            }
+        });
+    }
+
+    /**
+     * @return The total bytes of received data that has not yet been merged.
+     */
+    long getStagedBytes() {
+        return getInLock(() -> receivedBytes + queuedBytes);
+    }
+
+    /**
+     * Wait until the total bytes of received data that has not yet been merged is below the supplied limit.
+     *
+     * @param maxStagedBytes The limit, zero or less for no limit.
+     * @param maxWait        The maximum time to wait.
+     * @return True if staged data is below the limit, false if we timed out waiting.
+     */
+    boolean awaitCapacity(final long maxStagedBytes, final Duration maxWait) {
+        if (maxStagedBytes <= 0) {
+            return true;
+        }
+        try {
+            lock.lockInterruptibly();
+            try {
+                long nanos = maxWait.toNanos();
+                while (receivedBytes + queuedBytes >= maxStagedBytes) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = capacityAvailable.awaitNanos(nanos);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+    }
+
+    /**
+     * @return Details of the merge backlog for each store, ordered by lag with the most lagging first.
+     */
+    Map<String, Object> getInfo() {
+        return getInLock(() -> {
+            final long now = System.currentTimeMillis();
+            final List<Map<String, Object>> storeInfo = new ArrayList<>(stores.size());
+            stores.values()
+                    .stream()
+                    .sorted(Comparator.comparingLong((StoreQueue storeQueue) -> storeQueue.getLag(now))
+                            .reversed()
+                            .thenComparing(storeQueue -> storeQueue.docUuid))
+                    .forEach(storeQueue -> {
+                        final Map<String, Object> map = new LinkedHashMap<>();
+                        map.put("docUuid", storeQueue.docUuid);
+                        map.put("merging", storeQueue.merging);
+                        map.put("pendingParts", storeQueue.pendingParts);
+                        map.put("pendingBytes", storeQueue.pendingBytes);
+                        map.put("lag", Duration.ofMillis(storeQueue.getLag(now)).toString());
+                        storeInfo.add(map);
+                    });
+
+            final Map<String, Object> info = new LinkedHashMap<>();
+            info.put("workers", workers);
+            info.put("largestFirst", largestFirst.getAsBoolean());
+            info.put("readyStores", ready.size());
+            info.put("receivedBytes", receivedBytes);
+            info.put("queuedBytes", queuedBytes);
+            info.put("stores", storeInfo);
+            return info;
+        });
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final StoreQueue storeQueue = take();
+            long bytes = 0;
+            boolean merged = false;
+            try {
+                final Optional<Dir> optional = storeQueue.dirQueue.next(0, TimeUnit.MILLISECONDS);
+                if (optional.isPresent()) {
+                    try (final Dir dir = optional.get()) {
+                        bytes = FileUtil.getByteSize(dir.getPath());
+                        merged = true;
+                        merger.accept(dir.getPath(), storeQueue.docUuid);
+
+                        // If synchronisation is happening on merge then let the parent process know we finished
+                        // merging this dir.
+                        if (dir.getCountDownLatch() != null) {
+                            dir.getCountDownLatch().countDown();
+                        }
+                    }
+                }
+            } catch (final UncheckedInterruptedException e) {
+                LOGGER.debug(e::getMessage, e);
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException e) {
+                LOGGER.error(e::getMessage, e);
+            } finally {
+                release(storeQueue, merged, bytes);
+            }
+        }
+    }
+
+    private StoreQueue take() {
+        try {
+            lock.lockInterruptibly();
+            try {
+                while (ready.isEmpty()) {
+                    workAvailable.await();
+                }
+                final StoreQueue storeQueue;
+                if (largestFirst.getAsBoolean()) {
+                    storeQueue = ready.stream()
+                            .max(Comparator.comparingLong(queue -> queue.pendingBytes))
+                            .orElseThrow();
+                    ready.remove(storeQueue);
+                } else {
+                    storeQueue = ready.pollFirst();
+                }
+                storeQueue.ready = false;
+                storeQueue.merging = true;
+                storeQueue.queuedSinceTaken = 0;
+                return storeQueue;
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            throw UncheckedInterruptedException.create(e);
+        }
+    }
+
+    private void release(final StoreQueue storeQueue, final boolean merged, final long bytes) {
+        runInLock(() -> {
+            storeQueue.merging = false;
+            if (merged) {
+                final long removedBytes = Math.min(bytes, storeQueue.pendingBytes);
+                storeQueue.pendingParts = Math.max(0, storeQueue.pendingParts - 1);
+                storeQueue.pendingBytes -= removedBytes;
+                storeQueue.queueTimes.pollFirst();
+                queuedBytes -= removedBytes;
+            } else if (storeQueue.queuedSinceTaken == 0) {
+                // The queue is empty so our counts were an overestimate, e.g. due to gaps in the queue after a
+                // restart. Reset them.
+                queuedBytes -= storeQueue.pendingBytes;
+                storeQueue.pendingParts = 0;
+                storeQueue.pendingBytes = 0;
+                storeQueue.queueTimes.clear();
+            }
+
+            if (storeQueue.pendingParts > 0) {
+                makeReady(storeQueue);
+            }
+            capacityAvailable.signalAll();
+        });
+    }
+
+    private void makeReady(final StoreQueue storeQueue) {
+        if (!storeQueue.ready) {
+            storeQueue.ready = true;
+            ready.addLast(storeQueue);
+            workAvailable.signal();
+        }
+    }
+
+    private void runInLock(final Runnable runnable) {
+        lock.lock();
+        try {
+            runnable.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T getInLock(final Supplier<T> supplier) {
+        lock.lock();
+        try {
+            return supplier.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --------------------------------------------------------------------------------
+
+
+    private static class StoreQueue {
+
+        private final String docUuid;
+        private final DirQueue dirQueue;
+        private final Deque<Long> queueTimes = new ArrayDeque<>();
+        private long pendingParts;
+        private long pendingBytes;
+        private long queuedSinceTaken;
+        private boolean ready;
+        private boolean merging;
+
+        StoreQueue(final String docUuid, final DirQueue dirQueue) {
+            this.docUuid = docUuid;
+            this.dirQueue = dirQueue;
+        }
+
+        /**
+         * @return How long the oldest waiting part has been waiting.
+         */
+        long getLag(final long now) {
+            final Long oldest = queueTimes.peekFirst();
+            return oldest == null
+                    ? 0
+                    : now - oldest;
+        }
+    }
+}
@@ -9,14 +9,21 @@ import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.shared.PermissionException;
 import stroom.util.string.StringIdUtil;
 
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Singleton
@@ -69,13 +76,54 @@ public class PartDestination {
             throw new PermissionException(securityContext.getUserRef(), "Only processing users can use this resource");
         }
 
+        // Hold back or refuse the part if merging has fallen behind.
+        mergeProcessorProvider.get().awaitCapacity();
+
         final FileDescriptor fileDescriptor = new FileDescriptor(createTime, metaId, fileHash);
-        final String receiveFileName = StringIdUtil.idToString(receiveId.incrementAndGet()) +
-                                       SequentialFileStore.ZIP_EXTENSION;
-        final Path receiveFile = receiveDir.resolve(receiveFileName);
-        StreamUtil.streamToFile(inputStream, receiveFile);
+        final String partDirName = StringIdUtil.idToString(receiveId.incrementAndGet()) +
+                                   SequentialFileStore.PART_EXTENSION;
+        final Path partDir = receiveDir.resolve(partDirName);
+        try {
+            // Rather than writing the zip to disk and unzipping it again before merge, unzip the stream
+            // straight into an uncompressed part dir that can be merged in place.
+            final String receivedHash = unzip(inputStream, partDir);
+            if (!Objects.equals(receivedHash, fileHash)) {
+                throw new IOException("File hash is not equal");
+            }
+            mergeProcessorProvider.get().addPartDir(fileDescriptor, partDir, synchroniseMerge);
+        } finally {
+            // Nothing to do if the part dir has been moved to the store.
+            FileUtil.deleteDir(partDir);
+        }
+    }
 
-        mergeProcessorProvider.get().add(fileDescriptor, receiveFile, synchroniseMerge);
+    /**
+     * Unzip a part into a dir, hashing all the bytes read so the caller can check the part was received intact.
+     * Stroom creates the part zip files so we don't expect entries outside the central directory.
+     *
+     * @return The hash of the whole stream.
+     */
+    static String unzip(final InputStream inputStream, final Path targetDir) throws IOException {
+        final HashingInputStream hashingInputStream = new HashingInputStream(Hashing.murmur3_128(), inputStream);
+        final ZipArchiveInputStream zip = new ZipArchiveInputStream(new BufferedInputStream(hashingInputStream));
+        Files.createDirectories(targetDir);
+        ZipArchiveEntry zipEntry;
+        while ((zipEntry = zip.getNextEntry()) != null) {
+            // Get output file. This will throw if the entry is outside targetDir
+            final Path file = zipEntry.resolveIn(targetDir);
+            if (zipEntry.isDirectory()) {
+                Files.createDirectories(file);
+            } else {
+                Files.createDirectories(file.getParent());
+                try (final OutputStream outputStream = Files.newOutputStream(file)) {
+                    StreamUtil.streamToStream(zip, outputStream);
+                }
+            }
+        }
+
+        // Consume the central directory so the hash covers the whole stream.
+        hashingInputStream.transferTo(OutputStream.nullOutputStream());
+        return hashingInputStream.hash().toString();
     }
 
     public void receiveLocalPart(final FileDescriptor fileDescriptor,
@@ -86,6 +134,7 @@ public class PartDestination {
         LOGGER.debug(() -> "Receiving remote part: " + fileInfo);
 
         final MergeProcessor mergeProcessor = mergeProcessorProvider.get();
+        mergeProcessor.awaitCapacity();
         if (allowMove) {
             // If we allow move then we can allow the file store to move the file directly into the store.
             mergeProcessor.add(fileDescriptor, sourcePath, synchroniseMerge);
@@ -99,4 +148,17 @@ public class PartDestination {
             mergeProcessor.add(fileDescriptor, receiveFile, synchroniseMerge);
         }
     }
+
+    /**
+     * Receive an uncompressed part dir from this node. The dir will be moved into the store so must not be used
+     * by the caller afterwards.
+     */
+    public void receiveLocalPartDir(final FileDescriptor fileDescriptor,
+                                    final Path partDir,
+                                    final boolean synchroniseMerge) throws IOException {
+        LOGGER.debug(() -> "Receiving local part dir: " + fileDescriptor.getInfo(partDir));
+        final MergeProcessor mergeProcessor = mergeProcessorProvider.get();
+        mergeProcessor.awaitCapacity();
+        mergeProcessor.addPartDir(fileDescriptor, partDir, synchroniseMerge);
+    }
 }
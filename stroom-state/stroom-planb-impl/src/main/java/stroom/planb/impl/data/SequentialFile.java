@@ -9,15 +9,18 @@ public class SequentialFile {
     private final Path root;
     private final List<Path> subDirs;
     private final Path zip;
+    private final Path partDir;
     private final CountDownLatch countDownLatch;
 
     public SequentialFile(final Path root,
                           final List<Path> subDirs,
                           final Path zip,
+                          final Path partDir,
                           final CountDownLatch countDownLatch) {
         this.root = root;
         this.subDirs = subDirs;
         this.zip = zip;
+        this.partDir = partDir;
         this.countDownLatch = countDownLatch;
     }
 
@@ -33,6 +36,14 @@ public class SequentialFile {
         return zip;
     }
 
+    /**
+     * @return The path of the uncompressed part dir that is used instead of the zip file when a part has been
+     * stored without compression.
+     */
+    public Path getPartDir() {
+        return partDir;
+    }
+
     public CountDownLatch getCountDownLatch() {
         return countDownLatch;
     }
@@ -26,6 +26,7 @@ import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 public class SequentialFileStore {
@@ -34,6 +35,7 @@ public class SequentialFileStore {
     private final Map<Long, CountDownLatch> latches = new ConcurrentHashMap<>();
 
     public static final String ZIP_EXTENSION = ".zip";
+    public static final String PART_EXTENSION = ".part";
 
     private final Path path;
     private final AtomicLong storeId = new AtomicLong();
@@ -64,6 +66,24 @@ public class SequentialFileStore {
             throw new IOException("File hash is not equal");
         }
 
+        moveToStore(path, SequentialFile::getZip, countDownLatch);
+    }
+
+    /**
+     * Add an uncompressed part dir to the store. The dir will be moved into the store so that the stores it
+     * contains can later be merged in place without any further copying.
+     *
+     * @param partDir        The part dir containing one dir per store to merge.
+     * @param countDownLatch An optional latch to count down when the part has been merged.
+     */
+    public void addPartDir(final Path partDir,
+                           final CountDownLatch countDownLatch) throws IOException {
+        moveToStore(partDir, SequentialFile::getPartDir, countDownLatch);
+    }
+
+    private void moveToStore(final Path path,
+                             final Function<SequentialFile, Path> targetFunction,
+                             final CountDownLatch countDownLatch) throws IOException {
         try {
             try {
                 lock.lockInterruptibly();
@@ -75,15 +95,16 @@ public class SequentialFileStore {
                         latches.put(currentStoreId, countDownLatch);
                     }
 
+                    final Path target = targetFunction.apply(storeFileSet);
                     try {
                         Files.move(path,
-                                storeFileSet.getZip(),
+                                target,
                                 StandardCopyOption.ATOMIC_MOVE);
                     } catch (final NoSuchFileException e) {
                         ensureDirExists(storeFileSet.getRoot());
                         storeFileSet.getSubDirs().forEach(SequentialFileStore.this::ensureDirExists);
                         Files.move(path,
-                                storeFileSet.getZip(),
+                                target,
                                 StandardCopyOption.ATOMIC_MOVE);
                     }
 
@@ -142,7 +163,8 @@ public class SequentialFileStore {
         }
 
         final Path zip = dir.resolve(idString + ZIP_EXTENSION);
-        return new SequentialFile(path, subDirs, zip, latches.remove(storeId));
+        final Path partDir = dir.resolve(idString + PART_EXTENSION);
+        return new SequentialFile(path, subDirs, zip, partDir, latches.remove(storeId));
     }
 
     public long getMaxStoreId() {
@@ -244,6 +266,7 @@ public class SequentialFileStore {
         final Path zip = sequentialFile.getZip();
         LOGGER.debug(() -> "Deleting: " + FileUtil.getCanonicalPath(zip));
         Files.deleteIfExists(zip);
+        FileUtil.deleteDir(sequentialFile.getPartDir());
 
         // Try to delete directories.
         try {
@@ -5,11 +5,8 @@ import stroom.bytebuffer.impl6.ByteBuffers;
 import stroom.meta.shared.Meta;
 import stroom.planb.impl.PlanBDocCache;
 import stroom.planb.impl.PlanBNameValidator;
-import stroom.planb.impl.data.FileDescriptor;
-import stroom.planb.impl.data.FileHashUtil;
 import stroom.planb.impl.data.FileTransferClient;
 import stroom.planb.impl.data.RangeState;
-import stroom.planb.impl.data.SequentialFileStore;
 import stroom.planb.impl.data.Session;
 import stroom.planb.impl.data.SpanKV;
 import stroom.planb.impl.data.State;
@@ -31,7 +28,6 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
 import stroom.util.shared.NullSafe;
-import stroom.util.zip.ZipUtil;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
@@ -280,9 +276,6 @@ public class ShardWriters {
         @Override
         public void close() {
             LOGGER.debug(() -> LogUtil.message("Plan B finished processing for {}", meta));
-            final Path parent = dir.getParent();
-            final Path zipFile = parent.resolve(dir.getFileName().toString() + SequentialFileStore.ZIP_EXTENSION);
-
             try {
                 if (!writers.isEmpty()) {
                     writers.values().forEach(WriterInstance::close);
@@ -292,8 +285,6 @@ public class ShardWriters {
                             .stream()
                             .anyMatch(WriterInstance::isSynchroniseMerge);
 
-                    // Zip all.
-                    LOGGER.debug(() -> LogUtil.message("Plan B zipping data for {}", meta));
                     LOGGER.trace(() -> {
                         try (final Stream<Path> stream = Files.list(dir)) {
                             final String paths = stream
@@ -307,27 +298,15 @@ public class ShardWriters {
                         return null;
                     });
 
-                    ZipUtil.zip(zipFile, dir);
-                    final String fileHash = FileHashUtil.hash(zipFile);
-
-                    final FileDescriptor fileDescriptor = new FileDescriptor(
-                            System.currentTimeMillis(),
-                            meta.getId(),
-                            fileHash);
-                    LOGGER.debug(() -> LogUtil.message(
-                            "Plan B sending data {} for {}",
-                            zipFile.getFileName().toString(),
-                            meta));
-                    fileTransferClient.storePart(fileDescriptor, zipFile, synchroniseMerge);
+                    // The transfer client will decide whether the part needs to be zipped or can be moved
+                    // straight to the local store.
+                    LOGGER.debug(() -> LogUtil.message("Plan B sending data {} for {}", dir.getFileName(), meta));
+                    fileTransferClient.storePart(meta.getId(), dir, synchroniseMerge);
                 }
-            } catch (final IOException e) {
-                throw new UncheckedIOException(e);
-
             } finally {
                 try {
                     // Cleanup.
                     FileUtil.deleteDir(dir);
-                    Files.deleteIfExists(zipFile);
                 } catch (final Exception e) {
                     LOGGER.error(e.getMessage(), e);
                 }
@@ -0,0 +1,149 @@
+package stroom.planb.impl.data;
+
+import stroom.util.io.FileUtil;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestMergeScheduler {
+
+    @Test
+    void testRoundRobin(@TempDir final Path tempDir) throws InterruptedException {
+        final List<String> merged = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch countDownLatch = new CountDownLatch(6);
+        final MergeScheduler mergeScheduler = new MergeScheduler(() -> false, (path, uuid) -> {
+            merged.add(uuid);
+            FileUtil.deleteDir(path);
+            countDownLatch.countDown();
+        });
+
+        final DirQueue queueA = register(mergeScheduler, tempDir, "A");
+        final DirQueue queueB = register(mergeScheduler, tempDir, "B");
+        for (int i = 0; i < 3; i++) {
+            queue(mergeScheduler, tempDir, queueA, "A", 10);
+        }
+        for (int i = 0; i < 3; i++) {
+            queue(mergeScheduler, tempDir, queueB, "B", 10);
+        }
+        assertThat(mergeScheduler.getStagedBytes()).isEqualTo(60);
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            mergeScheduler.start(1, executorService);
+            assertThat(countDownLatch.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Stores should take it in turns.
+        assertThat(merged).containsExactly("A", "B", "A", "B", "A", "B");
+    }
+
+    @Test
+    void testLargestFirst(@TempDir final Path tempDir) throws InterruptedException {
+        final List<String> merged = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch countDownLatch = new CountDownLatch(3);
+        final MergeScheduler mergeScheduler = new MergeScheduler(() -> true, (path, uuid) -> {
+            merged.add(uuid);
+            FileUtil.deleteDir(path);
+            countDownLatch.countDown();
+        });
+
+        final DirQueue queueA = register(mergeScheduler, tempDir, "A");
+        final DirQueue queueB = register(mergeScheduler, tempDir, "B");
+        queue(mergeScheduler, tempDir, queueA, "A", 10);
+        queue(mergeScheduler, tempDir, queueB, "B", 1000);
+        queue(mergeScheduler, tempDir, queueB, "B", 1000);
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            mergeScheduler.start(1, executorService);
+            assertThat(countDownLatch.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertThat(merged).containsExactly("B", "B", "A");
+    }
+
+    @Test
+    void testAwaitCapacity() {
+        final MergeScheduler mergeScheduler = new MergeScheduler(() -> false, (path, uuid) -> {
+        });
+        mergeScheduler.addReceivedBytes(100);
+
+        // No limit.
+        assertThat(mergeScheduler.awaitCapacity(0, Duration.ZERO)).isTrue();
+        assertThat(mergeScheduler.awaitCapacity(200, Duration.ZERO)).isTrue();
+        assertThat(mergeScheduler.awaitCapacity(50, Duration.ZERO)).isFalse();
+
+        // Waiting parts should be released as soon as staged data drops below the limit.
+        final CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() ->
+                mergeScheduler.awaitCapacity(50, Duration.ofSeconds(10)));
+        mergeScheduler.addReceivedBytes(-100);
+        assertThat(future.join()).isTrue();
+        assertThat(mergeScheduler.getStagedBytes()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testInfo(@TempDir final Path tempDir) {
+        final MergeScheduler mergeScheduler = new MergeScheduler(() -> false, (path, uuid) -> {
+        });
+        final DirQueue queueA = register(mergeScheduler, tempDir, "A");
+        register(mergeScheduler, tempDir, "B");
+        queue(mergeScheduler, tempDir, queueA, "A", 10);
+        queue(mergeScheduler, tempDir, queueA, "A", 10);
+
+        final Map<String, Object> info = mergeScheduler.getInfo();
+        assertThat(info).containsEntry("queuedBytes", 20L);
+        final List<Map<String, Object>> stores = (List<Map<String, Object>>) info.get("stores");
+        assertThat(stores).hasSize(2);
+        // The most lagging store comes first.
+        assertThat(stores.getFirst())
+                .containsEntry("docUuid", "A")
+                .containsEntry("pendingParts", 2L)
+                .containsEntry("pendingBytes", 20L);
+        assertThat(stores.get(1))
+                .containsEntry("docUuid", "B")
+                .containsEntry("pendingParts", 0L);
+    }
+
+    private DirQueue register(final MergeScheduler mergeScheduler, final Path tempDir, final String uuid) {
+        final Path queueDir = tempDir.resolve("merging").resolve(uuid);
+        final DirQueue dirQueue = new DirQueue(queueDir, uuid);
+        mergeScheduler.register(uuid, dirQueue, queueDir);
+        return dirQueue;
+    }
+
+    private void queue(final MergeScheduler mergeScheduler,
+                       final Path tempDir,
+                       final DirQueue dirQueue,
+                       final String uuid,
+                       final int size) {
+        try {
+            final Path dir = Files.createTempDirectory(tempDir, uuid);
+            Files.write(dir.resolve("data.mdb"), new byte[size]);
+            dirQueue.add(dir, null);
+            mergeScheduler.onQueued(uuid, size);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package stroom.planb.impl.data;
+
+import stroom.test.common.TestUtil;
+import stroom.test.common.TestUtil.TimedCase;
+import stroom.util.io.FileUtil;
+import stroom.util.io.StreamUtil;
+import stroom.util.zip.ZipUtil;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestPartDestination {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestPartDestination.class);
+
+    @Test
+    void testUnzip(@TempDir final Path tempDir) throws IOException {
+        final Path sourceDir = tempDir.resolve("source");
+        writeStore(sourceDir.resolve("uuid1"), 1_000);
+        writeStore(sourceDir.resolve("uuid2"), 2_000);
+        final Path zipFile = tempDir.resolve("part.zip");
+        ZipUtil.zip(zipFile, sourceDir);
+
+        final Path targetDir = tempDir.resolve("target");
+        final String hash;
+        try (final InputStream inputStream = Files.newInputStream(zipFile)) {
+            hash = PartDestination.unzip(inputStream, targetDir);
+        }
+
+        // The hash must match the one the sender calculates from the zip file.
+        assertThat(hash).isEqualTo(FileHashUtil.hash(zipFile));
+        assertThat(Files.readAllBytes(targetDir.resolve("uuid1").resolve("data.mdb")))
+                .isEqualTo(Files.readAllBytes(sourceDir.resolve("uuid1").resolve("data.mdb")));
+        assertThat(Files.readAllBytes(targetDir.resolve("uuid2").resolve("data.mdb")))
+                .isEqualTo(Files.readAllBytes(sourceDir.resolve("uuid2").resolve("data.mdb")));
+    }
+
+    /**
+     * Compares receiving a large part by staging the zip on disk and unzipping it before merge, as we used to, with
+     * unzipping the received stream straight into an uncompressed part dir.
+     */
+    @Disabled // Manual benchmark
+    @Test
+    void testReceiveLargePartPerf(@TempDir final Path tempDir) throws IOException {
+        final Path sourceDir = tempDir.resolve("source");
+        for (int i = 0; i < 4; i++) {
+            writeStore(sourceDir.resolve("uuid" + i), 128 * 1024 * 1024);
+        }
+        final Path zipFile = tempDir.resolve("part.zip");
+        ZipUtil.zip(zipFile, sourceDir);
+        LOGGER.info("Part size {}", Files.size(zipFile));
+
+        TestUtil.comparePerformance(
+                3,
+                1,
+                LOGGER::info,
+                TimedCase.of("Stage zip then unzip", (round, iterations) -> {
+                    final Path stagedZip = tempDir.resolve("staged.zip");
+                    final Path unzipDir = tempDir.resolve("unzip");
+                    try (final InputStream inputStream = new BufferedInputStream(Files.newInputStream(zipFile))) {
+                        StreamUtil.streamToFile(inputStream, stagedZip);
+                        FileHashUtil.hash(stagedZip);
+                        ZipUtil.unzip(stagedZip, unzipDir);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        FileUtil.deleteFile(stagedZip);
+                        FileUtil.deleteDir(unzipDir);
+                    }
+                }),
+                TimedCase.of("Unzip stream to part dir", (round, iterations) -> {
+                    final Path partDir = tempDir.resolve("part");
+                    try (final InputStream inputStream = Files.newInputStream(zipFile)) {
+                        PartDestination.unzip(inputStream, partDir);
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    } finally {
+                        FileUtil.deleteDir(partDir);
+                    }
+                }));
+    }
+
+    private void writeStore(final Path dir, final int size) throws IOException {
+        Files.createDirectories(dir);
+        // Partly compressible content, roughly like an LMDB file with some empty space in its pages.
+        final Random random = new Random(size);
+        final byte[] page = new byte[4096];
+        try (final OutputStream outputStream = Files.newOutputStream(dir.resolve("data.mdb"))) {
+            int remaining = size;
+            while (remaining > 0) {
+                random.nextBytes(page);
+                final int len = Math.min(remaining, page.length);
+                outputStream.write(page, 0, len / 2);
+                outputStream.write(new byte[len - (len / 2)]);
+                remaining -= len;
+            }
+        }
+        Files.write(dir.resolve("lock.mdb"), new byte[8192]);
+    }
+}
@@ -60,6 +60,41 @@ class TestSequentialFileStore {
         }
     }
 
+    @Test
+    void testPartDir() throws IOException {
+        final Path rootDir = Files.createTempDirectory("root");
+        try {
+            final StatePaths statePaths = new StatePaths(rootDir);
+            final SequentialFileStore fileStore = new SequentialFileStore(statePaths.getStagingDir());
+
+            addFile(rootDir, fileStore, 0);
+            final Path partDir = rootDir.resolve("1.part");
+            Files.createDirectories(partDir.resolve("uuid"));
+            Files.writeString(partDir.resolve("uuid").resolve("data.mdb"), "test");
+            fileStore.addPartDir(partDir, null);
+
+            assertThat(partDir).doesNotExist();
+            assertThat(fileStore.getMinStoreId()).isEqualTo(0);
+            assertThat(fileStore.getMaxStoreId()).isEqualTo(1);
+
+            final SequentialFile zipFile = fileStore.awaitNext(0);
+            assertThat(zipFile.getZip()).isRegularFile();
+            assertThat(zipFile.getPartDir()).doesNotExist();
+            fileStore.delete(zipFile);
+
+            final SequentialFile partFile = fileStore.awaitNext(1);
+            assertThat(partFile.getZip()).doesNotExist();
+            assertThat(partFile.getPartDir().resolve("uuid").resolve("data.mdb")).hasContent("test");
+            fileStore.delete(partFile);
+            assertThat(partFile.getPartDir()).doesNotExist();
+
+            assertThat(fileStore.getMinStoreId()).isEqualTo(-1);
+            assertThat(fileStore.getMaxStoreId()).isEqualTo(-1);
+        } finally {
+            FileUtil.deleteDir(rootDir);
+        }
+    }
+
     private void addFile(final Path rootDir, final SequentialFileStore fileStore, final int i) throws IOException {
         final Path file = rootDir.resolve(i + ".txt");
         Files.writeString(file, "test");
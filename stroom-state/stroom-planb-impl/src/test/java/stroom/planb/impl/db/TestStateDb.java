@@ -221,8 +221,10 @@ class TestStateDb {
                 new SimpleTaskContextFactory());
         final MergeProcessor mergeProcessor = new MergeProcessor(
                 statePaths,
+                () -> planBConfig,
                 new MockSecurityContext(),
                 new SimpleTaskContextFactory(),
+                null,
                 shardManager);
 
         final int threads = 10;
@@ -204,8 +204,10 @@ class TestTemporalStateDb {
                 new SimpleTaskContextFactory());
         final MergeProcessor mergeProcessor = new MergeProcessor(
                 statePaths,
+                () -> planBConfig,
                 new MockSecurityContext(),
                 new SimpleTaskContextFactory(),
+                null,
                 shardManager);
 
         final int threads = 10;
@@ -129,8 +129,10 @@ public class TestTraceDb {
                 new SimpleTaskContextFactory());
         final MergeProcessor mergeProcessor = new MergeProcessor(
                 statePaths,
+                () -> planBConfig,
                 new MockSecurityContext(),
                 new SimpleTaskContextFactory(),
+                null,
                 shardManager);
 
         final int threads = 10;
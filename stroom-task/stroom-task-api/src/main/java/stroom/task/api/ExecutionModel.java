@@ -0,0 +1,38 @@
+package stroom.task.api;
+
+/**
+ * The way tasks submitted to a {@link stroom.task.shared.ThreadPool} are executed.
+ */
+public enum ExecutionModel {
+    /**
+     * An unbounded pool that creates a new platform thread whenever there is no idle thread to run a task.
+     */
+    CACHED,
+    /**
+     * A pool with a fixed maximum number of platform threads and a bounded queue for tasks waiting for a thread.
+     * Once the queue is full tasks are run on the thread submitting them.
+     * <p>
+     * Not suitable for pools whose tasks wait on other tasks submitted to the same pool, as every thread could
+     * end up waiting on tasks queued behind them. For this reason it can only be set for individual pools.
+     * </p>
+     */
+    BOUNDED,
+    /**
+     * A work stealing fork/join pool sized to the number of processors. Only suitable for CPU bound tasks
+     * that do not block, and like {@link #BOUNDED} can only be set for individual pools.
+     */
+    FORK_JOIN,
+    /**
+     * A new virtual thread per task. Suitable for I/O bound tasks, e.g. remote calls.
+     * Thread priority is ignored.
+     */
+    VIRTUAL;
+
+    /**
+     * @return True if this model can be used as the default for all thread pools. Models with a limited number
+     * of threads can deadlock pools whose tasks wait on other tasks in the same pool so must be chosen per pool.
+     */
+    public boolean isValidAsDefault() {
+        return this == CACHED || this == VIRTUAL;
+    }
+}
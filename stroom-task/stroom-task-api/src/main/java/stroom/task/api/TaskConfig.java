@@ -0,0 +1,124 @@
+package stroom.task.api;
+
+import stroom.util.config.annotations.RequiresRestart;
+import stroom.util.shared.AbstractConfig;
+import stroom.util.shared.IsStroomConfig;
+import stroom.util.shared.NullSafe;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import jakarta.validation.constraints.AssertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+@JsonPropertyOrder(alphabetic = true)
+public class TaskConfig extends AbstractConfig implements IsStroomConfig {
+
+    public static final ExecutionModel DEFAULT_EXECUTION_MODEL = ExecutionModel.CACHED;
+    public static final int DEFAULT_BOUNDED_MAX_THREADS = 100;
+    public static final int DEFAULT_BOUNDED_QUEUE_CAPACITY = 10_000;
+
+    private final ExecutionModel defaultExecutionModel;
+    private final Map<String, String> executionModels;
+    private final int boundedMaxThreads;
+    private final int boundedQueueCapacity;
+    private final int forkJoinParallelism;
+
+    public TaskConfig() {
+        defaultExecutionModel = DEFAULT_EXECUTION_MODEL;
+        executionModels = Collections.emptyMap();
+        boundedMaxThreads = DEFAULT_BOUNDED_MAX_THREADS;
+        boundedQueueCapacity = DEFAULT_BOUNDED_QUEUE_CAPACITY;
+        forkJoinParallelism = 0;
+    }
+
+    @SuppressWarnings("unused")
+    @JsonCreator
+    public TaskConfig(@JsonProperty("defaultExecutionModel") final ExecutionModel defaultExecutionModel,
+                      @JsonProperty("executionModels") final Map<String, String> executionModels,
+                      @JsonProperty("boundedMaxThreads") final Integer boundedMaxThreads,
+                      @JsonProperty("boundedQueueCapacity") final Integer boundedQueueCapacity,
+                      @JsonProperty("forkJoinParallelism") final Integer forkJoinParallelism) {
+        this.defaultExecutionModel = Objects.requireNonNullElse(defaultExecutionModel, DEFAULT_EXECUTION_MODEL);
+        this.executionModels = NullSafe.map(executionModels);
+        this.boundedMaxThreads = Objects.requireNonNullElse(boundedMaxThreads, DEFAULT_BOUNDED_MAX_THREADS);
+        this.boundedQueueCapacity = Objects.requireNonNullElse(boundedQueueCapacity, DEFAULT_BOUNDED_QUEUE_CAPACITY);
+        this.forkJoinParallelism = Objects.requireNonNullElse(forkJoinParallelism, 0);
+    }
+
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonPropertyDescription("The execution model to use for any thread pool that does not have one set in " +
+                             "'executionModels'. One of CACHED (unbounded pool of platform threads), BOUNDED " +
+                             "(fixed maximum number of platform threads with a bounded queue), FORK_JOIN " +
+                             "(work stealing pool sized to the number of processors) or VIRTUAL (a virtual " +
+                             "thread per task). Only CACHED or VIRTUAL can be used as the default.")
+    public ExecutionModel getDefaultExecutionModel() {
+        return defaultExecutionModel;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "defaultExecutionModel must be CACHED or VIRTUAL. BOUNDED and FORK_JOIN can only be " +
+                          "set for individual thread pools in executionModels.")
+    public boolean isDefaultExecutionModelValid() {
+        return defaultExecutionModel.isValidAsDefault();
+    }
+
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonPropertyDescription("A map of thread pool name to the execution model to use for that pool, e.g. " +
+                             "'Search Elasticsearch Cluster: VIRTUAL'. VIRTUAL is best suited to pools that " +
+                             "mostly wait on I/O such as remote search, HTTP forwarding and S3. BOUNDED and " +
+                             "FORK_JOIN must not be used for pools whose tasks wait on other tasks in the same " +
+                             "pool as they can deadlock, and FORK_JOIN should only be used for CPU bound pools " +
+                             "whose tasks do not block. The names of the thread " +
+                             "pools in use and their metrics can be seen in the system info for " +
+                             "'stroom.task.impl.ExecutorProviderImpl'.")
+    public Map<String, String> getExecutionModels() {
+        return executionModels;
+    }
+
+    @JsonIgnore
+    public ExecutionModel getExecutionModel(final String threadPoolName) {
+        final String value = executionModels.get(threadPoolName);
+        if (NullSafe.isBlankString(value)) {
+            return defaultExecutionModel;
+        }
+        return ExecutionModel.valueOf(value.trim().toUpperCase());
+    }
+
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonPropertyDescription("The maximum number of threads in each thread pool using the BOUNDED execution model.")
+    public int getBoundedMaxThreads() {
+        return boundedMaxThreads;
+    }
+
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonPropertyDescription("The maximum number of tasks that can be waiting for a thread in each thread pool " +
+                             "using the BOUNDED execution model. Further tasks will be run on the thread " +
+                             "submitting them.")
+    public int getBoundedQueueCapacity() {
+        return boundedQueueCapacity;
+    }
+
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonPropertyDescription("The target parallelism of each thread pool using the FORK_JOIN execution model. " +
+                             "If zero or less the number of available processors is used.")
+    public int getForkJoinParallelism() {
+        return forkJoinParallelism;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskConfig{" +
+               "defaultExecutionModel=" + defaultExecutionModel +
+               ", executionModels=" + executionModels +
+               ", boundedMaxThreads=" + boundedMaxThreads +
+               ", boundedQueueCapacity=" + boundedQueueCapacity +
+               ", forkJoinParallelism=" + forkJoinParallelism +
+               '}';
+    }
+}
@@ -16,34 +16,76 @@
 
 package stroom.task.impl;
 
+import stroom.task.api.ExecutionModel;
 import stroom.task.api.ExecutorProvider;
+import stroom.task.api.TaskConfig;
 import stroom.task.api.ThreadPoolImpl;
 import stroom.task.shared.ThreadPool;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.metrics.Metrics;
+import stroom.util.shared.NullSafe;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
 import stroom.util.thread.CustomThreadFactory;
 import stroom.util.thread.StroomThreadGroup;
 
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
 
 @Singleton
-public class ExecutorProviderImpl implements ExecutorProvider {
+public class ExecutorProviderImpl implements ExecutorProvider, HasSystemInfo {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ExecutorProviderImpl.class);
 
     public static final ThreadPool DEFAULT_THREAD_POOL = new ThreadPoolImpl("Stroom P2", 2);
 
+    private static final Map<String, ToLongFunction<PoolExecutor>> METRICS = Map.of(
+            "active", PoolExecutor::getActiveCount,
+            "queued", PoolExecutor::getQueuedCount,
+            "completed", PoolExecutor::getCompletedCount,
+            "rejected", PoolExecutor::getRejectedCount,
+            "callerRuns", PoolExecutor::getCallerRunsCount);
+
+    private final Provider<TaskConfig> taskConfigProvider;
+    private final Metrics metrics;
+
     // The thread pools that will be used to execute tasks.
-    private final ConcurrentHashMap<ThreadPool, ExecutorService> threadPoolMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ThreadPool, PoolExecutor> threadPoolMap = new ConcurrentHashMap<>();
+    // The names of the pools we have registered metrics for.
+    private final Set<String> metricPoolNames = ConcurrentHashMap.newKeySet();
     private final ReentrantLock poolCreationLock = new ReentrantLock();
     private final AtomicBoolean stop = new AtomicBoolean();
 
+    @Inject
+    public ExecutorProviderImpl(final Provider<TaskConfig> taskConfigProvider,
+                                final Metrics metrics) {
+        this.taskConfigProvider = taskConfigProvider;
+        this.metrics = metrics;
+    }
+
     @Override
     public Executor get() {
         return get(DEFAULT_THREAD_POOL);
@@ -56,7 +98,7 @@ public class ExecutorProviderImpl implements ExecutorProvider {
 
     private Executor getRealExecutor(final ThreadPool threadPool) {
         Objects.requireNonNull(threadPool, "Null thread pool");
-        ExecutorService executor = threadPoolMap.get(threadPool);
+        PoolExecutor executor = threadPoolMap.get(threadPool);
         if (executor == null) {
             poolCreationLock.lock();
             try {
@@ -65,15 +107,8 @@ public class ExecutorProviderImpl implements ExecutorProvider {
                     throw new RejectedExecutionException("Stopping");
                 }
 
-                executor = threadPoolMap.computeIfAbsent(threadPool, k -> {
-                    // Create a thread factory for the thread pool
-                    final ThreadGroup poolThreadGroup = new ThreadGroup(StroomThreadGroup.instance(),
-                            threadPool.getName());
-                    final CustomThreadFactory taskThreadFactory = new CustomThreadFactory(
-                            threadPool.getName() + " #", poolThreadGroup, threadPool.getPriority());
-
-                    return Executors.newCachedThreadPool(taskThreadFactory);
-                });
+                executor = threadPoolMap.computeIfAbsent(threadPool, this::createExecutor);
+                registerMetrics(threadPool);
             } finally {
                 poolCreationLock.unlock();
             }
@@ -81,6 +116,96 @@ public class ExecutorProviderImpl implements ExecutorProvider {
         return executor;
     }
 
+    private PoolExecutor createExecutor(final ThreadPool threadPool) {
+        final TaskConfig taskConfig = taskConfigProvider.get();
+        final ExecutionModel executionModel = getExecutionModel(taskConfig, threadPool);
+        LOGGER.debug("Creating thread pool '{}' with execution model {}", threadPool.getName(), executionModel);
+
+        final String threadNamePrefix = threadPool.getName() + " #";
+        final ExecutorService executorService = switch (executionModel) {
+            case CACHED -> Executors.newCachedThreadPool(createThreadFactory(threadPool));
+            case BOUNDED -> {
+                final int maxThreads = Math.max(1, taskConfig.getBoundedMaxThreads());
+                final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                        maxThreads,
+                        maxThreads,
+                        60L,
+                        TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(Math.max(1, taskConfig.getBoundedQueueCapacity())),
+                        createThreadFactory(threadPool));
+                // Let idle threads die off like they do in a cached pool.
+                threadPoolExecutor.allowCoreThreadTimeOut(true);
+                yield threadPoolExecutor;
+            }
+            case FORK_JOIN -> {
+                final int parallelism = taskConfig.getForkJoinParallelism() > 0
+                        ? taskConfig.getForkJoinParallelism()
+                        : Runtime.getRuntime().availableProcessors();
+                final AtomicInteger threadNo = new AtomicInteger();
+                yield new ForkJoinPool(
+                        parallelism,
+                        pool -> {
+                            final ForkJoinWorkerThread thread =
+                                    ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setName(threadNamePrefix + threadNo.incrementAndGet());
+                            thread.setPriority(threadPool.getPriority());
+                            return thread;
+                        },
+                        null,
+                        true);
+            }
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                    .name(threadNamePrefix, 1)
+                    .factory());
+        };
+        return new PoolExecutor(threadPool, executionModel, executorService);
+    }
+
+    private ExecutionModel getExecutionModel(final TaskConfig taskConfig, final ThreadPool threadPool) {
+        ExecutionModel defaultExecutionModel = taskConfig.getDefaultExecutionModel();
+        if (!defaultExecutionModel.isValidAsDefault()) {
+            // Pools whose tasks wait on other tasks in the same pool can deadlock with a limited number of
+            // threads, so these models must be chosen for each pool.
+            LOGGER.warn("Execution model {} can't be used as the default, using {} for thread pool '{}'",
+                    defaultExecutionModel, TaskConfig.DEFAULT_EXECUTION_MODEL, threadPool.getName());
+            defaultExecutionModel = TaskConfig.DEFAULT_EXECUTION_MODEL;
+        }
+        if (NullSafe.isBlankString(taskConfig.getExecutionModels().get(threadPool.getName()))) {
+            return defaultExecutionModel;
+        }
+        try {
+            return taskConfig.getExecutionModel(threadPool.getName());
+        } catch (final IllegalArgumentException e) {
+            LOGGER.error("Invalid execution model configured for thread pool '{}', using {}",
+                    threadPool.getName(), defaultExecutionModel, e);
+            return defaultExecutionModel;
+        }
+    }
+
+    private CustomThreadFactory createThreadFactory(final ThreadPool threadPool) {
+        // Create a thread factory for the thread pool
+        final ThreadGroup poolThreadGroup = new ThreadGroup(StroomThreadGroup.instance(),
+                threadPool.getName());
+        return new CustomThreadFactory(
+                threadPool.getName() + " #", poolThreadGroup, threadPool.getPriority());
+    }
+
+    private void registerMetrics(final ThreadPool threadPool) {
+        // Thread pools are created on demand so we can't use HasMetrics. The gauges look up the pool each time
+        // so they only need registering once, even if the pool is shut down and created again.
+        if (metricPoolNames.add(threadPool.getName())) {
+            METRICS.forEach((metricName, valueFunc) ->
+                    metrics.registrationBuilder(getClass())
+                            .addNamePart(threadPool.getName())
+                            .addNamePart(metricName)
+                            .gauge(() -> NullSafe.getOrElse(
+                                    threadPoolMap.get(threadPool),
+                                    valueFunc::applyAsLong,
+                                    0L))
+                            .register());
+        }
+    }
+
     void setStop(final boolean stop) {
         this.stop.set(stop);
     }
@@ -90,7 +215,7 @@ public class ExecutorProviderImpl implements ExecutorProvider {
         try {
             final Iterator<ThreadPool> iter = threadPoolMap.keySet().iterator();
             iter.forEachRemaining(threadPool -> {
-                final ExecutorService executor = threadPoolMap.get(threadPool);
+                final PoolExecutor executor = threadPoolMap.get(threadPool);
                 if (executor != null) {
                     executor.shutdown();
                     threadPoolMap.remove(threadPool);
@@ -100,4 +225,17 @@ public class ExecutorProviderImpl implements ExecutorProvider {
             poolCreationLock.unlock();
         }
     }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final List<Map<String, Object>> threadPools = threadPoolMap.values()
+                .stream()
+                .sorted(Comparator.comparing(poolExecutor -> poolExecutor.getThreadPool().getName()))
+                .map(PoolExecutor::getInfo)
+                .toList();
+        return SystemInfoResult.builder(this)
+                .description("Thread pool info")
+                .addDetail("threadPools", threadPools)
+                .build();
+    }
 }
@@ -0,0 +1,126 @@
+package stroom.task.impl;
+
+import stroom.task.api.ExecutionModel;
+import stroom.task.shared.ThreadPool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps the {@link ExecutorService} backing a {@link ThreadPool} so that we can count the tasks that are
+ * queued, active, completed, rejected and run by the caller regardless of the {@link ExecutionModel} in use.
+ */
+class PoolExecutor implements Executor {
+
+    private final ThreadPool threadPool;
+    private final ExecutionModel executionModel;
+    private final ExecutorService executorService;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong activeCount = new AtomicLong();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder callerRunsCount = new LongAdder();
+
+    PoolExecutor(final ThreadPool threadPool,
+                 final ExecutionModel executionModel,
+                 final ExecutorService executorService) {
+        this.threadPool = threadPool;
+        this.executionModel = executionModel;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        final Runnable task = () -> {
+            queuedCount.decrementAndGet();
+            activeCount.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                activeCount.decrementAndGet();
+                completedCount.increment();
+            }
+        };
+        queuedCount.incrementAndGet();
+        try {
+            executorService.execute(task);
+        } catch (final RejectedExecutionException e) {
+            if (executionModel == ExecutionModel.BOUNDED && !executorService.isShutdown()) {
+                // The queue is full so slow the caller down by running the task on its thread rather than
+                // failing it, as callers such as CompletableFuture.runAsync don't expect to be rejected.
+                callerRunsCount.increment();
+                task.run();
+            } else {
+                queuedCount.decrementAndGet();
+                rejectedCount.increment();
+                throw e;
+            }
+        }
+    }
+
+    void shutdown() {
+        executorService.shutdown();
+    }
+
+    ThreadPool getThreadPool() {
+        return threadPool;
+    }
+
+    ExecutionModel getExecutionModel() {
+        return executionModel;
+    }
+
+    /**
+     * @return The number of tasks waiting for a thread.
+     */
+    long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return The number of tasks currently running.
+     */
+    long getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return The number of tasks that have finished running, successfully or not.
+     */
+    long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+    /**
+     * @return The number of tasks that could not be accepted by the pool.
+     */
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * @return The number of tasks that were run on the submitting thread as the pool's queue was full.
+     */
+    long getCallerRunsCount() {
+        return callerRunsCount.sum();
+    }
+
+    Map<String, Object> getInfo() {
+        final Map<String, Object> info = new LinkedHashMap<>();
+        info.put("name", threadPool.getName());
+        info.put("priority", threadPool.getPriority());
+        info.put("executionModel", executionModel);
+        info.put("active", getActiveCount());
+        info.put("queued", getQueuedCount());
+        info.put("completed", getCompletedCount());
+        info.put("rejected", getRejectedCount());
+        info.put("callerRuns", getCallerRunsCount());
+        return info;
+    }
+}
@@ -21,7 +21,6 @@ import stroom.cluster.task.api.NullClusterStateException;
 import stroom.cluster.task.api.TargetNodeSetFactory;
 import stroom.docref.DocRef;
 import stroom.entity.shared.ExpressionCriteria;
-import stroom.expression.matcher.ExpressionMatcher;
 import stroom.expression.matcher.ExpressionMatcherFactory;
 import stroom.query.api.DateTimeSettings;
 import stroom.query.api.datasource.FindFieldCriteria;
@@ -63,6 +62,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 class SearchableTaskProgress implements Searchable {
@@ -138,8 +138,8 @@ class SearchableTaskProgress implements Searchable {
         securityContext.secure(AppPermission.MANAGE_TASKS_PERMISSION, () -> {
             final Map<String, TaskProgressResponse> nodeResponses = searchAllNodes();
 
-            final ExpressionMatcher expressionMatcher = expressionMatcherFactory.create(
-                    TaskManagerFields.getFieldMap());
+            final Predicate<Map<String, Object>> predicate = expressionMatcherFactory.create(
+                    TaskManagerFields.getFieldMap()).compile(criteria.getExpression());
 
             nodeResponses.values()
                     .stream()
@@ -156,7 +156,7 @@ class SearchableTaskProgress implements Searchable {
                         attributeMap.put(TaskManagerFields.FIELD_INFO, taskProgress.getTaskInfo());
                         return attributeMap;
                     })
-                    .filter(attributeMap -> expressionMatcher.match(attributeMap, criteria.getExpression()))
+                    .filter(predicate)
                     .forEach(attributeMap -> {
                         final String[] fields = fieldIndex.getFields();
                         final Val[] arr = new Val[fields.length];
@@ -24,6 +24,7 @@ import stroom.task.api.TaskManager;
 import stroom.task.shared.TaskResource;
 import stroom.util.RunnableWrapper;
 import stroom.util.guice.GuiceUtil;
+import stroom.util.guice.HasSystemInfoBinder;
 import stroom.util.guice.RestResourcesBinder;
 
 import com.google.inject.AbstractModule;
@@ -46,6 +47,9 @@ public class TaskModule extends AbstractModule {
         RestResourcesBinder.create(binder())
                 .bind(TaskResourceImpl.class);
 
+        HasSystemInfoBinder.create(binder())
+                .bind(ExecutorProviderImpl.class);
+
         GuiceUtil.buildMultiBinder(binder(), HttpSessionListener.class)
                 .addBinding(TaskManagerSessionListener.class);
 
@@ -0,0 +1,185 @@
+package stroom.task.impl;
+
+import stroom.task.api.ExecutionModel;
+import stroom.task.api.TaskConfig;
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
+import stroom.util.metrics.Metrics;
+import stroom.util.metrics.MetricsImpl;
+import stroom.util.metrics.MetricsUtil;
+import stroom.util.sysinfo.SystemInfoResult;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestExecutorProviderImpl {
+
+    private static final ThreadPool THREAD_POOL = new ThreadPoolImpl("Test Pool");
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Metrics metrics = new MetricsImpl(metricRegistry);
+
+    @ParameterizedTest
+    @EnumSource(ExecutionModel.class)
+    void testExecutionModels(final ExecutionModel executionModel) {
+        final ExecutorProviderImpl executorProvider = new ExecutorProviderImpl(() -> new TaskConfig(
+                ExecutionModel.CACHED,
+                Map.of(THREAD_POOL.getName(), executionModel.name()),
+                2,
+                1_000,
+                2),
+                metrics);
+        try {
+            final Executor executor = executorProvider.get(THREAD_POOL);
+            final AtomicInteger count = new AtomicInteger();
+            final CompletableFuture<?>[] futures = IntStream.range(0, 100)
+                    .mapToObj(i -> CompletableFuture.runAsync(count::incrementAndGet, executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+
+            assertThat(count).hasValue(100);
+            // Tasks are counted as complete just after the futures complete.
+            waitForCompletedCount(executorProvider, 100L);
+            final Map<String, Object> info = getPoolInfo(executorProvider);
+            assertThat(info)
+                    .containsEntry("executionModel", executionModel)
+                    .containsEntry("completed", 100L)
+                    .containsEntry("active", 0L)
+                    .containsEntry("queued", 0L)
+                    .containsEntry("rejected", 0L);
+        } finally {
+            executorProvider.shutdownExecutors();
+        }
+    }
+
+    @Test
+    void testBoundedCallerRuns() throws InterruptedException {
+        final ExecutorProviderImpl executorProvider = new ExecutorProviderImpl(() -> new TaskConfig(
+                ExecutionModel.CACHED,
+                Map.of(THREAD_POOL.getName(), ExecutionModel.BOUNDED.name()),
+                1,
+                1,
+                null),
+                metrics);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final Executor executor = executorProvider.get(THREAD_POOL);
+            executor.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Fills the queue.
+            executor.execute(() -> {
+            });
+
+            // The queue is full so the task is run on this thread rather than being rejected.
+            final AtomicReference<Thread> thread = new AtomicReference<>();
+            CompletableFuture.runAsync(() -> thread.set(Thread.currentThread()), executor).join();
+            assertThat(thread).hasValue(Thread.currentThread());
+
+            final Map<String, Object> info = getPoolInfo(executorProvider);
+            assertThat(info)
+                    .containsEntry("active", 1L)
+                    .containsEntry("queued", 1L)
+                    .containsEntry("rejected", 0L)
+                    .containsEntry("callerRuns", 1L);
+            final String metricName = MetricsUtil.buildName(
+                    ExecutorProviderImpl.class, THREAD_POOL.getName(), "callerRuns");
+            assertThat(metricRegistry.getGauges().get(metricName).getValue())
+                    .isEqualTo(1L);
+        } finally {
+            release.countDown();
+            executorProvider.shutdownExecutors();
+        }
+    }
+
+    @Test
+    void testBoundedRejectionAfterShutdown() {
+        final PoolExecutor poolExecutor = new PoolExecutor(
+                THREAD_POOL,
+                ExecutionModel.BOUNDED,
+                Executors.newSingleThreadExecutor());
+        poolExecutor.shutdown();
+
+        // Tasks must not be run on the caller once the pool has been shut down.
+        assertThatThrownBy(() -> poolExecutor.execute(() -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+        assertThat(poolExecutor.getRejectedCount()).isOne();
+        assertThat(poolExecutor.getCallerRunsCount()).isZero();
+        assertThat(poolExecutor.getQueuedCount()).isZero();
+    }
+
+    @Test
+    void testInvalidDefaultExecutionModel() {
+        // Limited thread models can't be the default as they can deadlock pools whose tasks wait on each other.
+        final ExecutorProviderImpl executorProvider = new ExecutorProviderImpl(() -> new TaskConfig(
+                ExecutionModel.BOUNDED,
+                null,
+                1,
+                1,
+                null),
+                metrics);
+        try {
+            CompletableFuture.runAsync(() -> {
+            }, executorProvider.get(THREAD_POOL)).join();
+            assertThat(getPoolInfo(executorProvider))
+                    .containsEntry("executionModel", TaskConfig.DEFAULT_EXECUTION_MODEL);
+        } finally {
+            executorProvider.shutdownExecutors();
+        }
+    }
+
+    @Test
+    void testDefaultExecutionModel() {
+        final ExecutorProviderImpl executorProvider = new ExecutorProviderImpl(TaskConfig::new, metrics);
+        try {
+            CompletableFuture.runAsync(() -> {
+            }, executorProvider.get(THREAD_POOL)).join();
+            assertThat(getPoolInfo(executorProvider))
+                    .containsEntry("executionModel", TaskConfig.DEFAULT_EXECUTION_MODEL);
+        } finally {
+            executorProvider.shutdownExecutors();
+        }
+    }
+
+    private void waitForCompletedCount(final ExecutorProviderImpl executorProvider, final long expected) {
+        final long timeout = System.currentTimeMillis() + 5_000;
+        while (!Long.valueOf(expected).equals(getPoolInfo(executorProvider).get("completed"))
+               && System.currentTimeMillis() < timeout) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getPoolInfo(final ExecutorProviderImpl executorProvider) {
+        final SystemInfoResult systemInfo = executorProvider.getSystemInfo();
+        final List<Map<String, Object>> threadPools =
+                (List<Map<String, Object>>) systemInfo.getDetails().get("threadPools");
+        assertThat(threadPools).hasSize(1);
+        return threadPools.getFirst();
+    }
+}
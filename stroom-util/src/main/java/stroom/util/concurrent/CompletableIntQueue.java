@@ -0,0 +1,235 @@
+package stroom.util.concurrent;
+
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded ring buffer of primitive int values that is designed to hand over values in chunks rather than one at a
+ * time so that no boxing or per value locking is needed. Producers add whole chunks with
+ * {@link #put(int[], int, int)} and consumers remove as many values as will fit in a supplied array with
+ * {@link #take(int[])}.
+ * <p>
+ * Once {@link #complete()} has been called consumers will drain any remaining values and then be told the queue is
+ * complete. {@link #terminate()} discards any remaining values and completes the queue immediately.
+ */
+public class CompletableIntQueue {
+
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(CompletableIntQueue.class);
+
+    /**
+     * Returned by {@link #take(int[])} once the queue is complete and there are no more values.
+     */
+    public static final int COMPLETE = -1;
+
+    /**
+     * The queued values
+     */
+    private final int[] values;
+
+    /**
+     * Index for next take
+     */
+    private int takeIndex;
+
+    /**
+     * Index for next put
+     */
+    private int putIndex;
+
+    /**
+     * Number of values in the queue
+     */
+    private int count;
+
+    /**
+     * Set when producers have finished adding values.
+     */
+    private boolean complete;
+
+    /**
+     * Set when the queue is terminated so no more values will be added or taken.
+     */
+    private volatile boolean terminated;
+
+    /**
+     * Main lock guarding all access
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Condition for waiting takes
+     */
+    private final Condition notEmpty;
+
+    /**
+     * Condition for waiting puts
+     */
+    private final Condition notFull;
+
+    public CompletableIntQueue(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.values = new int[capacity];
+        lock = new ReentrantLock();
+        notEmpty = lock.newCondition();
+        notFull = lock.newCondition();
+    }
+
+    /**
+     * Add a chunk of values to the queue, blocking while the queue is full. If the chunk is larger than the free
+     * space in the queue then it will be added in pieces as space becomes available. Values added after the queue
+     * has been terminated are ignored.
+     *
+     * @throws IllegalStateException If the queue has been completed before all the values could be added, as
+     *                               consumers would never see them.
+     */
+    public void put(final int[] chunk, final int offset, final int length) {
+        try {
+            int pos = offset;
+            final int end = offset + length;
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                while (pos < end && !terminated) {
+                    if (complete) {
+                        throw new IllegalStateException("Queue is complete, unable to add " +
+                                                        (end - pos) + " values");
+                    }
+                    if (count == values.length) {
+                        notFull.await();
+                    } else {
+                        pos += enqueue(chunk, pos, end - pos);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.debug(e::getMessage, e);
+            Thread.currentThread().interrupt();
+            throw new UncheckedInterruptedException(e);
+        }
+    }
+
+    /**
+     * Remove as many values as are available and will fit into the supplied array, blocking until at least one
+     * value is available or the queue is complete.
+     *
+     * @return The number of values copied into the array or {@link #COMPLETE} if there are no more values.
+     */
+    public int take(final int[] chunk) {
+        try {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                while (!terminated && !complete && count == 0) {
+                    notEmpty.await();
+                }
+                if (terminated || count == 0) {
+                    return COMPLETE;
+                }
+                return dequeue(chunk);
+            } finally {
+                lock.unlock();
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.debug(e::getMessage, e);
+            Thread.currentThread().interrupt();
+            throw new UncheckedInterruptedException(e);
+        }
+    }
+
+    /**
+     * Tell consumers that no more values will be added. Consumers will still be able to take any values that remain
+     * in the queue.
+     */
+    public void complete() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            complete = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard any remaining values and release all waiting producers and consumers.
+     */
+    public void terminate() {
+        // Make sure we don't try to add any more values.
+        terminated = true;
+
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            takeIndex = 0;
+            putIndex = 0;
+            count = 0;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Copies as many values as will fit into the free space of the ring and signals.
+     * Call only when holding lock.
+     *
+     * @return The number of values copied.
+     */
+    private int enqueue(final int[] chunk, final int offset, final int length) {
+        final int[] values = this.values;
+        final int n = Math.min(length, values.length - count);
+        final int firstPart = Math.min(n, values.length - putIndex);
+        System.arraycopy(chunk, offset, values, putIndex, firstPart);
+        if (n > firstPart) {
+            System.arraycopy(chunk, offset + firstPart, values, 0, n - firstPart);
+        }
+        putIndex = (putIndex + n) % values.length;
+        count += n;
+        notEmpty.signal();
+        return n;
+    }
+
+    /**
+     * Copies as many values as are available and will fit into the supplied array and signals.
+     * Call only when holding lock.
+     *
+     * @return The number of values copied.
+     */
+    private int dequeue(final int[] chunk) {
+        final int[] values = this.values;
+        final int n = Math.min(chunk.length, count);
+        final int firstPart = Math.min(n, values.length - takeIndex);
+        System.arraycopy(values, takeIndex, chunk, 0, firstPart);
+        if (n > firstPart) {
+            System.arraycopy(values, 0, chunk, firstPart, n - firstPart);
+        }
+        takeIndex = (takeIndex + n) % values.length;
+        count -= n;
+        notFull.signal();
+        return n;
+    }
+}
@@ -0,0 +1,220 @@
+package stroom.util.concurrent;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestCompletableIntQueue {
+
+    @RepeatedTest(3)
+    void putAndTake() throws ExecutionException, InterruptedException, TimeoutException {
+        final int count = 10_000;
+        // Chunk sizes that don't divide the capacity so the ring wraps at different points and puts larger
+        // than the capacity have to be added in pieces.
+        final CompletableIntQueue queue = new CompletableIntQueue(10);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+                final int[] chunk = new int[23];
+                int value = 0;
+                while (value < count) {
+                    final int length = Math.min(chunk.length, count - value);
+                    for (int i = 0; i < length; i++) {
+                        chunk[i] = value++;
+                    }
+                    queue.put(chunk, 0, length);
+                }
+                queue.complete();
+            }, executor);
+
+            final CompletableFuture<List<Integer>> consumer = CompletableFuture.supplyAsync(() -> {
+                final List<Integer> values = new ArrayList<>();
+                final int[] chunk = new int[7];
+                int n;
+                while ((n = queue.take(chunk)) != CompletableIntQueue.COMPLETE) {
+                    assertThat(n)
+                            .isPositive();
+                    for (int i = 0; i < n; i++) {
+                        values.add(chunk[i]);
+                    }
+                }
+                return values;
+            }, executor);
+
+            producer.get(10, TimeUnit.SECONDS);
+            assertThat(consumer.get(10, TimeUnit.SECONDS))
+                    .containsExactlyElementsOf(IntStream.range(0, count).boxed().toList());
+            assertThat(queue.isEmpty())
+                    .isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void putWithOffset() {
+        final CompletableIntQueue queue = new CompletableIntQueue(10);
+        queue.put(new int[]{1, 2, 3, 4, 5}, 1, 3);
+        assertThat(queue.size())
+                .isEqualTo(3);
+
+        final int[] chunk = new int[10];
+        assertThat(queue.take(chunk))
+                .isEqualTo(3);
+        assertThat(chunk)
+                .startsWith(2, 3, 4);
+    }
+
+    @Test
+    void takeLimitedByChunkSize() {
+        final CompletableIntQueue queue = new CompletableIntQueue(10);
+        queue.put(new int[]{1, 2, 3, 4, 5}, 0, 5);
+
+        final int[] chunk = new int[2];
+        assertThat(queue.take(chunk))
+                .isEqualTo(2);
+        assertThat(chunk)
+                .containsExactly(1, 2);
+        assertThat(queue.size())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void complete() {
+        final CompletableIntQueue queue = new CompletableIntQueue(10);
+        queue.put(new int[]{1, 2, 3}, 0, 3);
+        queue.complete();
+
+        // Remaining values can still be taken
+        final int[] chunk = new int[10];
+        assertThat(queue.take(chunk))
+                .isEqualTo(3);
+        assertThat(chunk)
+                .startsWith(1, 2, 3);
+        assertThat(queue.take(chunk))
+                .isEqualTo(CompletableIntQueue.COMPLETE);
+
+        assertThatThrownBy(() -> queue.put(new int[]{4}, 0, 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void completeWhileTakerBlocked() throws ExecutionException, InterruptedException, TimeoutException {
+        final int count = 5;
+        final CompletableIntQueue queue = new CompletableIntQueue(10);
+        final ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            final CountDownLatch aboutToTakeLatch = new CountDownLatch(count);
+            final List<CompletableFuture<Integer>> takers = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                takers.add(CompletableFuture.supplyAsync(() -> {
+                    aboutToTakeLatch.countDown();
+                    return queue.take(new int[10]);
+                }, executor));
+            }
+
+            // Make sure all threads have or are ready to take
+            aboutToTakeLatch.await();
+            ThreadUtil.sleepIgnoringInterrupts(50);
+            assertThat(takers)
+                    .noneMatch(CompletableFuture::isDone);
+
+            // Complete the queue, which should release all blocked takers
+            queue.complete();
+            for (final CompletableFuture<Integer> taker : takers) {
+                assertThat(taker.get(5, TimeUnit.SECONDS))
+                        .isEqualTo(CompletableIntQueue.COMPLETE);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void completeWhilePutterBlocked() throws InterruptedException, TimeoutException {
+        final CompletableIntQueue queue = new CompletableIntQueue(10);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // More values than will fit so the put blocks
+            final CompletableFuture<Void> putter = CompletableFuture.runAsync(() ->
+                    queue.put(new int[15], 0, 15), executor);
+            ThreadUtil.sleepIgnoringInterrupts(50);
+            assertThat(putter)
+                    .isNotDone();
+
+            // The values that don't fit would never be seen by consumers
+            queue.complete();
+            assertThatThrownBy(() -> putter.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void terminate() {
+        final CompletableIntQueue queue = new CompletableIntQueue(10);
+        queue.put(new int[]{1, 2, 3}, 0, 3);
+        queue.terminate();
+
+        // Remaining values are discarded
+        assertThat(queue.isEmpty())
+                .isTrue();
+        assertThat(queue.take(new int[10]))
+                .isEqualTo(CompletableIntQueue.COMPLETE);
+
+        // Values added after termination are ignored
+        queue.put(new int[]{4}, 0, 1);
+        assertThat(queue.isEmpty())
+                .isTrue();
+    }
+
+    @Test
+    void terminateWhileBlocked() throws ExecutionException, InterruptedException, TimeoutException {
+        final CompletableIntQueue takeQueue = new CompletableIntQueue(10);
+        final CompletableIntQueue putQueue = new CompletableIntQueue(10);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final CompletableFuture<Integer> taker = CompletableFuture.supplyAsync(() ->
+                    takeQueue.take(new int[10]), executor);
+            final CompletableFuture<Void> putter = CompletableFuture.runAsync(() ->
+                    putQueue.put(new int[15], 0, 15), executor);
+            ThreadUtil.sleepIgnoringInterrupts(50);
+            assertThat(taker)
+                    .isNotDone();
+            assertThat(putter)
+                    .isNotDone();
+
+            // Terminate the queues, which should release the blocked taker and putter
+            takeQueue.terminate();
+            putQueue.terminate();
+            assertThat(taker.get(5, TimeUnit.SECONDS))
+                    .isEqualTo(CompletableIntQueue.COMPLETE);
+            putter.get(5, TimeUnit.SECONDS);
+            assertThat(putQueue.isEmpty())
+                    .isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void badCapacity() {
+        assertThatThrownBy(() -> new CompletableIntQueue(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}